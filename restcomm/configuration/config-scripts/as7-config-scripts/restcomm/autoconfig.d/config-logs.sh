@@ -25,6 +25,35 @@ configure_RMS_log(){
     sed -i  "s|<priority value=\".*\"/>|<priority value=\"${LOG_LEVEL}\"/>|"  $FILE
 }
 
+#Routes the root-logger through an async-handler wrapping the CONSOLE & FILE handlers.
+#Running again only updates the queue length and the overflow action.
+configure_RC_async_logs(){
+    FILE=$RESTCOMM_CONF/standalone-sip.xml
+    QUEUE_LENGTH=${LOG_ASYNC_QUEUE_LENGTH:-4096}
+    OVERFLOW_ACTION=${LOG_ASYNC_OVERFLOW_ACTION:-BLOCK}
+    if grep -q "<async-handler name=\"ASYNC\">" $FILE; then
+        sed -i "/<async-handler name=\"ASYNC\">/,/<\/async-handler>/ {
+            s|<queue-length value=\".*\"/>|<queue-length value=\"${QUEUE_LENGTH}\"/>|
+            s|<overflow-action value=\".*\"/>|<overflow-action value=\"${OVERFLOW_ACTION}\"/>|
+        }" $FILE
+    else
+        sed -i "s|<root-logger>|<async-handler name=\"ASYNC\">\n\
+                <queue-length value=\"${QUEUE_LENGTH}\"/>\n\
+                <overflow-action value=\"${OVERFLOW_ACTION}\"/>\n\
+                <subhandlers>\n\
+                    <handler name=\"CONSOLE\"/>\n\
+                    <handler name=\"FILE\"/>\n\
+                </subhandlers>\n\
+            </async-handler>\n\
+            <root-logger>|" $FILE
+        sed -i "/<root-logger>/,/<\/root-logger>/ {
+            /<handler name=\"CONSOLE\"\/>/d
+            s|<handler name=\"FILE\"/>|<handler name=\"ASYNC\"/>|
+        }" $FILE
+    fi
+    echo "Configured async logging, queue-length: $QUEUE_LENGTH overflow-action: $OVERFLOW_ACTION"
+}
+
 config_on_thefly(){
     FILE=$RESTCOMM_BIN/restcomm/set-log-level.sh
     MNGMTPORT=$((9999 + PORT_OFFSET))
@@ -47,6 +76,9 @@ config_AKKA_logs(){
 if [ -n "$LOG_LEVEL" ]; then
     configure_RMS_log
     configure_RC_logs
+    if [ "${LOG_ASYNC^^}" = "TRUE" ]; then
+        configure_RC_async_logs
+    fi
     config_on_thefly
     config_AKKA_logs
     for i in $( set -o posix ; set | grep ^LOG_LEVEL_COMPONENT_ | sort -rn ); do
@@ -0,0 +1,23 @@
+-- SQL Script for MySQL/MariaDB to index the calls of an account by creation date, used by the keyset pagination of the Calls list
+
+-- #To run the script use mysql client:
+-- #mysql -u yourusername -p yourpassword yourdatabase < sql_update_script.sql
+
+USE ${RESTCOMM_DBNAME};
+DELIMITER //
+CREATE PROCEDURE updateProcedure()
+ BEGIN
+ SELECT DISTINCTROW IFNULL(index_name, '') INTO @indexName782
+ FROM information_schema.statistics
+ WHERE table_schema='${RESTCOMM_DBNAME}'
+ AND table_name = 'restcomm_call_detail_records'
+ AND index_name = 'idx_cdr_account_sid_date_created';
+
+IF @indexName782 IS NULL THEN
+CREATE INDEX idx_cdr_account_sid_date_created ON restcomm_call_detail_records (account_sid, date_created, sid);
+END IF;
+END //
+
+DELIMITER ;
+CALL updateProcedure();
+drop procedure updateProcedure;
@@ -0,0 +1,58 @@
+-- SQL Script for MySQL/MariaDB to add the daily usage rollups read when dao-manager/usage-rollup is enabled, with
+-- the date_created indexes of the call detail records and SMS messages they are rolled up from
+
+-- #To run the script use mysql client:
+-- #mysql -u yourusername -p yourpassword yourdatabase < sql_update_script.sql
+
+USE ${RESTCOMM_DBNAME};
+
+CREATE TABLE IF NOT EXISTS restcomm_usage_daily (
+account_sid VARCHAR(34) NOT NULL,
+category VARCHAR(16) NOT NULL,
+api_version VARCHAR(10) NOT NULL,
+usage_date DATE NOT NULL,
+record_count BIGINT NOT NULL,
+usage_amount BIGINT NOT NULL,
+price DECIMAL(20,4) NOT NULL,
+PRIMARY KEY (account_sid, category, usage_date, api_version)
+);
+
+DELIMITER //
+CREATE PROCEDURE updateProcedure()
+ BEGIN
+ SELECT DISTINCTROW IFNULL(index_name, '') INTO @indexName783
+ FROM information_schema.statistics
+ WHERE table_schema='${RESTCOMM_DBNAME}'
+ AND table_name = 'restcomm_usage_daily'
+ AND index_name = 'idx_usage_daily_category_usage_date';
+
+IF @indexName783 IS NULL THEN
+CREATE INDEX idx_usage_daily_category_usage_date ON restcomm_usage_daily (category, usage_date);
+END IF;
+
+ SET @indexName783 = NULL;
+ SELECT DISTINCTROW IFNULL(index_name, '') INTO @indexName783
+ FROM information_schema.statistics
+ WHERE table_schema='${RESTCOMM_DBNAME}'
+ AND table_name = 'restcomm_call_detail_records'
+ AND index_name = 'idx_cdr_date_created';
+
+IF @indexName783 IS NULL THEN
+CREATE INDEX idx_cdr_date_created ON restcomm_call_detail_records (date_created);
+END IF;
+
+ SET @indexName783 = NULL;
+ SELECT DISTINCTROW IFNULL(index_name, '') INTO @indexName783
+ FROM information_schema.statistics
+ WHERE table_schema='${RESTCOMM_DBNAME}'
+ AND table_name = 'restcomm_sms_messages'
+ AND index_name = 'idx_sms_date_created';
+
+IF @indexName783 IS NULL THEN
+CREATE INDEX idx_sms_date_created ON restcomm_sms_messages (date_created);
+END IF;
+END //
+
+DELIMITER ;
+CALL updateProcedure();
+drop procedure updateProcedure;
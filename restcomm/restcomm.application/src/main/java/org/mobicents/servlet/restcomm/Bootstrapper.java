@@ -2,6 +2,7 @@ package org.mobicents.servlet.restcomm;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 
@@ -23,15 +24,21 @@ import org.apache.commons.configuration.interpol.ConfigurationInterpolator;
 import org.apache.log4j.Logger;
 import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.dispatch.RestcommDispatchers;
 import org.mobicents.servlet.restcomm.entities.InstanceId;
 import org.mobicents.servlet.restcomm.entities.shiro.ShiroResources;
+import org.mobicents.servlet.restcomm.http.CustomHttpClientBuilder;
 import org.mobicents.servlet.restcomm.identity.IdentityContext;
+import org.mobicents.servlet.restcomm.interpreter.InterpreterServices;
 import org.mobicents.servlet.restcomm.loader.ObjectFactory;
 import org.mobicents.servlet.restcomm.loader.ObjectInstantiationException;
 import org.mobicents.servlet.restcomm.mgcp.PowerOnMediaGateway;
 import org.mobicents.servlet.restcomm.mscontrol.MediaServerControllerFactory;
 import org.mobicents.servlet.restcomm.mscontrol.MediaServerInfo;
+import org.mobicents.servlet.restcomm.mscontrol.MediaServerPool;
+import org.mobicents.servlet.restcomm.mscontrol.PooledMediaServer;
 import org.mobicents.servlet.restcomm.mscontrol.jsr309.Jsr309ControllerFactory;
+import org.mobicents.servlet.restcomm.mscontrol.mgcp.MgcpHealthCheck;
 import org.mobicents.servlet.restcomm.mscontrol.mgcp.MmsControllerFactory;
 import org.mobicents.servlet.restcomm.telephony.config.ConfigurationStringLookup;
 import org.mobicents.servlet.sip.SipConnector;
@@ -67,6 +74,12 @@ public final class Bootstrapper extends SipServlet implements SipServletListener
     public void destroy() {
         system.shutdown();
         system.awaitTermination();
+        // Write whatever the storage still holds once the actors that feed it are gone.
+        final DaoManager storage = (DaoManager) getServletContext().getAttribute(DaoManager.class.getName());
+        if (storage != null) {
+            storage.shutdown();
+        }
+        CustomHttpClientBuilder.stopDefaultClient();
     }
 
     private MediaServerControllerFactory mediaServerControllerFactory(final Configuration configuration, ClassLoader loader)
@@ -80,8 +93,25 @@ public final class Bootstrapper extends SipServlet implements SipServletListener
                 ActorRef gateway;
                 try {
                     settings = configuration.subset("media-server-manager");
-                    gateway = gateway(settings, loader);
-                    factory = new MmsControllerFactory(this.system, gateway);
+                    final int servers = settings.getList("mgcp-server[@class]").size();
+                    if (servers > 1) {
+                        // Spread the calls over several media servers.
+                        final Configuration healthCheck = settings.subset("health-check");
+                        final List<PooledMediaServer> pool = new ArrayList<PooledMediaServer>();
+                        for (int i = 0; i < servers; i++) {
+                            final String server = "mgcp-server(" + i + ")";
+                            gateway = gateway(settings, server, loader);
+                            final PooledMediaServer member = pooledMediaServer(settings, server,
+                                    new MmsControllerFactory(this.system, gateway));
+                            healthCheck(gateway, member, settings.getString(server + ".remote-address") + ":"
+                                    + settings.getString(server + ".remote-port"), healthCheck);
+                            pool.add(member);
+                        }
+                        factory = new MediaServerPool(system, pool);
+                    } else {
+                        gateway = gateway(settings, "mgcp-server", loader);
+                        factory = new MmsControllerFactory(this.system, gateway);
+                    }
                 } catch (UnknownHostException e) {
                     throw new ServletException(e);
                 }
@@ -90,18 +120,17 @@ public final class Bootstrapper extends SipServlet implements SipServletListener
             case "xms":
                 try {
                     settings = configuration.subset("mscontrol");
-                    // Load JSR 309 driver
-                    final String driverName = settings.getString("media-server[@class]");
-                    Driver driver = DriverManager.getDriver(driverName);
-                    DriverManager.registerDriver(driver);
-
-                    // Configure properties
-                    Properties properties = getDialogicXmsProperties(settings);
-
-                    // Create JSR 309 factory
-                    MsControlFactory msControlFactory = driver.getFactory(properties);
-                    MediaServerInfo mediaServerInfo = mediaServerInfo(settings);
-                    factory = new Jsr309ControllerFactory(system, mediaServerInfo, msControlFactory);
+                    final int servers = settings.getList("media-server[@class]").size();
+                    if (servers > 1) {
+                        final List<PooledMediaServer> pool = new ArrayList<PooledMediaServer>();
+                        for (int i = 0; i < servers; i++) {
+                            final String server = "media-server(" + i + ")";
+                            pool.add(pooledMediaServer(settings, server, jsr309ControllerFactory(settings, server)));
+                        }
+                        factory = new MediaServerPool(system, pool);
+                    } else {
+                        factory = jsr309ControllerFactory(settings, "media-server");
+                    }
                 } catch (UnknownHostException | MsControlException e) {
                     throw new ServletException(e);
                 }
@@ -113,15 +142,55 @@ public final class Bootstrapper extends SipServlet implements SipServletListener
         return factory;
     }
 
-    private MediaServerInfo mediaServerInfo(final Configuration configuration) throws UnknownHostException {
-        final String name = configuration.getString("media-server[@name]");
-        final String address = configuration.getString("media-server.address");
-        final int port = configuration.getInt("media-server.port");
-        final int timeout = configuration.getInt("media-server.timeout", 5);
+    private MediaServerControllerFactory jsr309ControllerFactory(final Configuration settings, final String server)
+            throws UnknownHostException, MsControlException {
+        // Load JSR 309 driver
+        final String driverName = settings.getString(server + "[@class]");
+        Driver driver = DriverManager.getDriver(driverName);
+        DriverManager.registerDriver(driver);
+
+        // Configure properties
+        Properties properties = getDialogicXmsProperties(settings, server);
+
+        // Create JSR 309 factory
+        MsControlFactory msControlFactory = driver.getFactory(properties);
+        MediaServerInfo mediaServerInfo = mediaServerInfo(settings, server);
+        return new Jsr309ControllerFactory(system, mediaServerInfo, msControlFactory);
+    }
+
+    private PooledMediaServer pooledMediaServer(final Configuration settings, final String server,
+            final MediaServerControllerFactory factory) {
+        final String name = settings.getString(server + "[@name]");
+        final int weight = settings.getInt(server + ".weight", 1);
+        final PooledMediaServer member = new PooledMediaServer(name, weight, factory);
+        member.setDraining(settings.getBoolean(server + ".draining", false));
+        return member;
+    }
+
+    private void healthCheck(final ActorRef gateway, final PooledMediaServer server, final String domain,
+            final Configuration settings) {
+        final long interval = settings.getLong("interval", 5000);
+        final int failures = settings.getInt("failures", 3);
+        system.actorOf(new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public UntypedActor create() throws Exception {
+                return new MgcpHealthCheck(gateway, server, domain, interval, failures);
+            }
+        }));
+    }
+
+    private MediaServerInfo mediaServerInfo(final Configuration configuration, final String server)
+            throws UnknownHostException {
+        final String name = configuration.getString(server + "[@name]");
+        final String address = configuration.getString(server + ".address");
+        final int port = configuration.getInt(server + ".port");
+        final int timeout = configuration.getInt(server + ".timeout", 5);
         return new MediaServerInfo(name, InetAddress.getByName(address), port, timeout);
     }
 
-    private Properties getDialogicXmsProperties(final Configuration configuration) {
+    private Properties getDialogicXmsProperties(final Configuration configuration, final String server) {
         // New set of properties that will be used to configure the connector
         Properties properties = new Properties();
 
@@ -129,7 +198,7 @@ public final class Bootstrapper extends SipServlet implements SipServletListener
         // properties.setProperty("connector.dynamic.configuration", "yes");
 
         // Configure the transport to be used by the connector
-        final String mediaTransport = configuration.getString("media-server.transport", "udp");
+        final String mediaTransport = configuration.getString(server + ".transport", "udp");
         if(logger.isInfoEnabled()) {
             logger.info("JSR 309 - media-server.transport: udp");
         }
@@ -147,13 +216,13 @@ public final class Bootstrapper extends SipServlet implements SipServletListener
         }
 
         // Configure Media Server address based on restcomm configuration file
-        final String mediaAddress = configuration.getString("media-server.address", "127.0.0.1");
+        final String mediaAddress = configuration.getString(server + ".address", "127.0.0.1");
         properties.setProperty("mediaserver.sip.ipaddress", mediaAddress);
         if(logger.isInfoEnabled()) {
             logger.info("JSR 309 - mediaserver.sip.ipaddress: " + mediaAddress);
         }
 
-        final String mediaPort = configuration.getString("media-server.port", "5060");
+        final String mediaPort = configuration.getString(server + ".port", "5060");
         properties.setProperty("mediaserver.sip.port", mediaPort);
         if(logger.isInfoEnabled()) {
             logger.info("JSR 309 - mediaserver.sip.port: " + mediaPort);
@@ -191,35 +260,40 @@ public final class Bootstrapper extends SipServlet implements SipServletListener
         return result;
     }
 
-    private ActorRef gateway(final Configuration settings, final ClassLoader loader) throws UnknownHostException {
+    private ActorRef gateway(final Configuration settings, final String server, final ClassLoader loader)
+            throws UnknownHostException {
         final ActorRef gateway = system.actorOf(new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
 
             @Override
             public UntypedActor create() throws Exception {
-                final String classpath = settings.getString("mgcp-server[@class]");
+                final String classpath = settings.getString(server + "[@class]");
                 return (UntypedActor) new ObjectFactory(loader).getObjectInstance(classpath);
             }
         }));
         final PowerOnMediaGateway.Builder builder = PowerOnMediaGateway.builder();
-        builder.setName(settings.getString("mgcp-server[@name]"));
-        String address = settings.getString("mgcp-server.local-address");
+        builder.setName(settings.getString(server + "[@name]"));
+        String address = settings.getString(server + ".local-address");
         builder.setLocalIP(InetAddress.getByName(address));
-        String port = settings.getString("mgcp-server.local-port");
+        String port = settings.getString(server + ".local-port");
         builder.setLocalPort(Integer.parseInt(port));
-        address = settings.getString("mgcp-server.remote-address");
+        address = settings.getString(server + ".remote-address");
         builder.setRemoteIP(InetAddress.getByName(address));
-        port = settings.getString("mgcp-server.remote-port");
+        port = settings.getString(server + ".remote-port");
         builder.setRemotePort(Integer.parseInt(port));
-        address = settings.getString("mgcp-server.external-address");
+        address = settings.getString(server + ".external-address");
         if (address != null) {
             builder.setExternalIP(InetAddress.getByName(address));
             builder.setUseNat(true);
         } else {
             builder.setUseNat(false);
         }
-        final String timeout = settings.getString("mgcp-server.response-timeout");
+        final String timeout = settings.getString(server + ".response-timeout");
         builder.setTimeout(Long.parseLong(timeout));
+        final String transactionTimeout = settings.getString(server + ".transaction-timeout");
+        if (transactionTimeout != null && !transactionTimeout.isEmpty()) {
+            builder.setTransactionTimeout(Long.parseLong(transactionTimeout));
+        }
         final PowerOnMediaGateway powerOn = builder.build();
         gateway.tell(powerOn, null);
         return gateway;
@@ -287,7 +361,7 @@ public final class Bootstrapper extends SipServlet implements SipServletListener
             // Initialize global dependencies.
             final ClassLoader loader = getClass().getClassLoader();
             // Create the actor system.
-            final Config settings = ConfigFactory.load();
+            final Config settings = RestcommDispatchers.configure(xml.subset("dispatchers"), ConfigFactory.load());
             system = ActorSystem.create("RestComm", settings, loader);
             // Share the actor system with other servlets.
             context.setAttribute(ActorSystem.class.getName(), system);
@@ -320,6 +394,12 @@ public final class Bootstrapper extends SipServlet implements SipServletListener
                 logger.error("Monitoring Service is null");
             }
 
+            // Create the services shared by the interpreters
+            final InterpreterServices services = InterpreterServices.create(system, xml);
+            if (services != null) {
+                context.setAttribute(InterpreterServices.class.getName(), services);
+            }
+
             //Initialize Extensions
             Configuration extensionConfiguration = null;
             try {
@@ -20,9 +20,15 @@
  */
 package org.mobicents.servlet.restcomm;
 
+import java.lang.reflect.Constructor;
+import java.util.List;
+
 import org.apache.commons.configuration.Configuration;
 import org.apache.log4j.Logger;
 
+import com.telestax.servlet.ExtensionController;
+import com.telestax.servlet.RestcommExtensionGeneric;
+
 /**
  * @author <a href="mailto:gvagenas@gmail.com">gvagenas</a>
  *
@@ -35,8 +41,39 @@ public class ExtensionScanner {
         this.configuration = configuration;
     }
 
+    /**
+     * Loads, initializes and registers the enabled extensions of extensions.xml. Extensions with a constructor taking
+     * a {@link Configuration} get the 'configuration' element of their entry.
+     */
     public void start() {
-
+        if (configuration == null) {
+            return;
+        }
+        final List<Object> names = configuration.getList("extension.class");
+        for (int index = 0; index < names.size(); index++) {
+            final String prefix = "extension(" + index + ")";
+            final String name = configuration.getString(prefix + ".class");
+            if (!configuration.getBoolean(prefix + ".enabled", true)) {
+                continue;
+            }
+            try {
+                final Class<?> klass = Class.forName(name);
+                RestcommExtensionGeneric extension = null;
+                try {
+                    final Constructor<?> constructor = klass.getConstructor(Configuration.class);
+                    extension = (RestcommExtensionGeneric) constructor.newInstance(configuration.subset(prefix + ".configuration"));
+                } catch (final NoSuchMethodException exception) {
+                    extension = (RestcommExtensionGeneric) klass.newInstance();
+                }
+                extension.init();
+                ExtensionController.getInstance().register(extension);
+                if (logger.isInfoEnabled()) {
+                    logger.info("Loaded extension " + name);
+                }
+            } catch (final Exception exception) {
+                logger.error("Could not load extension " + name, exception);
+            }
+        }
     }
 
 }
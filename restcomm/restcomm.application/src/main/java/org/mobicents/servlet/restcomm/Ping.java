@@ -37,6 +37,7 @@ import org.apache.http.client.HttpClient;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
 import org.apache.log4j.Logger;
 import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
 import org.mobicents.servlet.restcomm.http.CustomHttpClientBuilder;
@@ -107,7 +108,7 @@ public class Ping {
                     List<NameValuePair> parameters = new ArrayList<NameValuePair>();
                     parameters.add(new BasicNameValuePair("apidata", body));
                     post.setEntity(new UrlEncodedFormEntity(parameters));
-                    final HttpClient client = CustomHttpClientBuilder.build(RestcommConfiguration.getInstance().getMain());
+                    final HttpClient client = CustomHttpClientBuilder.buildDefaultClient(RestcommConfiguration.getInstance().getMain());
 
                     //This will work as a flag for LB that this request will need to be modified and proxied to VI
                     post.addHeader("TelestaxProxy", String.valueOf(proxyEnabled));
@@ -124,6 +125,8 @@ public class Ping {
                         post.addHeader("PublicIpAddress",publicIpAddress);
                     }
                     final HttpResponse response = client.execute(post);
+                    // Give the connection back to the shared pool
+                    EntityUtils.consumeQuietly(response.getEntity());
                     if (response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
                         logger.info("Ping to Telestax Proxy was successfully sent");
                         timer.cancel();
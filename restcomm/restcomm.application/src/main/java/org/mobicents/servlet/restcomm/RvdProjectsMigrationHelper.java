@@ -51,6 +51,7 @@ import org.mobicents.servlet.restcomm.dao.ClientsDao;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
 import org.mobicents.servlet.restcomm.dao.IncomingPhoneNumbersDao;
 import org.mobicents.servlet.restcomm.dao.NotificationsDao;
+import org.mobicents.servlet.restcomm.dao.RoutingCache;
 import org.mobicents.servlet.restcomm.email.EmailService;
 import org.mobicents.servlet.restcomm.entities.Account;
 import org.mobicents.servlet.restcomm.entities.Application;
@@ -100,6 +101,7 @@ public class RvdProjectsMigrationHelper {
     private final IncomingPhoneNumbersDao didsDao;
     private final ClientsDao clientsDao;
     private final NotificationsDao notificationsDao;
+    private final RoutingCache routingCache;
     private List<IncomingPhoneNumber> dids;
     private List<Client> clients;
     private ActorSystem system;
@@ -114,6 +116,7 @@ public class RvdProjectsMigrationHelper {
         this.didsDao = storage.getIncomingPhoneNumbersDao();
         this.clientsDao = storage.getClientsDao();
         this.notificationsDao = storage.getNotificationsDao();
+        this.routingCache = storage.getRoutingCache();
         this.system = ActorSystem.create();
     }
 
@@ -282,6 +285,7 @@ public class RvdProjectsMigrationHelper {
                 currentApplication = currentApplication.setRcmlUrl(URI.create("/restcomm-rvd/services/apps/" + applicationSid
                         + "/controller"));
                 applicationDao.updateApplication(currentApplication);
+                routingCache.invalidate();
                 return applicationSid;
             } else {
                 // Create new application
@@ -403,6 +407,9 @@ public class RvdProjectsMigrationHelper {
                     + did.getSid().toString() + "' with the Application '" + applicationSid + "' "
                     + e.getMessage(), 9);
         }
+        if (amountUpdated > 0) {
+            routingCache.invalidate();
+        }
         return amountUpdated;
     }
 
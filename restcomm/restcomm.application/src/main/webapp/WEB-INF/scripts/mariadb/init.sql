@@ -148,6 +148,9 @@ end_conference_on_exit BOOLEAN,
 on_hold BOOLEAN
 );
 
+CREATE INDEX idx_cdr_account_sid_date_created ON restcomm_call_detail_records (account_sid, date_created, sid);
+CREATE INDEX idx_cdr_date_created ON restcomm_call_detail_records (date_created);
+
 CREATE TABLE restcomm_conference_detail_records (
 sid VARCHAR(34) NOT NULL PRIMARY KEY,
 date_created DATETIME NOT NULL,
@@ -224,6 +227,21 @@ api_version VARCHAR(10) NOT NULL,
 uri MEDIUMTEXT NOT NULL
 );
 
+CREATE TABLE restcomm_usage_daily (
+account_sid VARCHAR(34) NOT NULL,
+category VARCHAR(16) NOT NULL,
+api_version VARCHAR(10) NOT NULL,
+usage_date DATE NOT NULL,
+record_count BIGINT NOT NULL,
+usage_amount BIGINT NOT NULL,
+price DECIMAL(20,4) NOT NULL,
+PRIMARY KEY (account_sid, category, usage_date, api_version)
+);
+
+CREATE INDEX idx_usage_daily_category_usage_date ON restcomm_usage_daily (category, usage_date);
+
+CREATE INDEX idx_sms_date_created ON restcomm_sms_messages (date_created);
+
 CREATE TABLE restcomm_recordings (
 sid VARCHAR(34) NOT NULL PRIMARY KEY,
 date_created DATETIME NOT NULL,
@@ -137,6 +137,9 @@ CREATE TABLE "restcomm_call_detail_records" (
 "on_hold" BOOLEAN
 );
 
+CREATE INDEX "idx_cdr_account_sid_date_created" ON "restcomm_call_detail_records" ("account_sid", "date_created", "sid");
+CREATE INDEX "idx_cdr_date_created" ON "restcomm_call_detail_records" ("date_created");
+
 CREATE TABLE "restcomm_conference_detail_records" (
 "sid" VARCHAR(34) NOT NULL PRIMARY KEY,
 "date_created" DATETIME NOT NULL,
@@ -211,6 +214,21 @@ CREATE TABLE "restcomm_sms_messages" (
 "uri" LONGVARCHAR NOT NULL
 );
 
+CREATE TABLE "restcomm_usage_daily" (
+"account_sid" VARCHAR(34) NOT NULL,
+"category" VARCHAR(16) NOT NULL,
+"api_version" VARCHAR(10) NOT NULL,
+"usage_date" DATE NOT NULL,
+"record_count" BIGINT NOT NULL,
+"usage_amount" BIGINT NOT NULL,
+"price" DOUBLE NOT NULL,
+PRIMARY KEY ("account_sid", "category", "usage_date", "api_version")
+);
+
+CREATE INDEX "idx_usage_daily_category_usage_date" ON "restcomm_usage_daily" ("category", "usage_date");
+
+CREATE INDEX "idx_sms_date_created" ON "restcomm_sms_messages" ("date_created");
+
 CREATE TABLE "restcomm_recordings" (
 "sid" VARCHAR(34) NOT NULL PRIMARY KEY,
 "date_created" DATETIME NOT NULL,
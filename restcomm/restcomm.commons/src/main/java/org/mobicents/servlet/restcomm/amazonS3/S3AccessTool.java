@@ -38,14 +38,22 @@ import com.amazonaws.AmazonServiceException;
 import com.amazonaws.HttpMethod;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.BasicAWSCredentials;
-import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.S3ClientOptions;
 import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.StorageClass;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.TransferManagerConfiguration;
 
 /**
+ * Uploads the recordings to an S3 bucket. The tool holds a single S3 client, created once with the credentials of the
+ * configuration, and uploads the files bigger than the multipart threshold in parallel parts.
+ * <p>
+ * The endpoint can be pointed to an S3 compatible store (i.e a local stand-in for tests) in which case the bucket is
+ * addressed in the path of the URLs instead of the host name.
+ *
  * @author <a href="mailto:gvagenas@gmail.com">gvagenas</a>
  *
  */
@@ -53,80 +61,79 @@ public class S3AccessTool {
 
     private static Logger logger = Logger.getLogger(S3AccessTool.class);
 
-    private String accessKey;
-    private String securityKey;
-    private String bucketName;
-    private String folder;
-    private String bucketRegion;
-    private boolean reducedRedundancy;
-    private int daysToRetainPublicUrl;
-    private boolean removeOriginalFile;
+    // 16MB, roughly 17 minutes of 8kHz 16 bit mono audio.
+    public static final long DEFAULT_MULTIPART_THRESHOLD = 16 * 1024 * 1024;
+
+    private final String bucketName;
+    private final String folder;
+    private final boolean reducedRedundancy;
+    private final int daysToRetainPublicUrl;
+    private final boolean removeOriginalFile;
+    private final AmazonS3Client s3client;
+    private final TransferManager transfers;
 
     public S3AccessTool(final String accessKey, final String securityKey, final String bucketName, final String folder,
             final boolean reducedRedundancy, final int daysToRetainPublicUrl, final boolean removeOriginalFile,final String bucketRegion) {
-        this.accessKey = accessKey;
-        this.securityKey = securityKey;
+        this(accessKey, securityKey, bucketName, folder, reducedRedundancy, daysToRetainPublicUrl, removeOriginalFile,
+                bucketRegion, null, DEFAULT_MULTIPART_THRESHOLD);
+    }
+
+    /**
+     * @param endpoint the URL of an S3 compatible store to use instead of Amazon S3 or null.
+     * @param multipartThreshold the size in bytes above which the files are uploaded in parts.
+     */
+    public S3AccessTool(final String accessKey, final String securityKey, final String bucketName, final String folder,
+            final boolean reducedRedundancy, final int daysToRetainPublicUrl, final boolean removeOriginalFile,
+            final String bucketRegion, final String endpoint, final long multipartThreshold) {
         this.bucketName = bucketName;
         this.folder = folder;
         this.reducedRedundancy = reducedRedundancy;
         this.daysToRetainPublicUrl = daysToRetainPublicUrl;
         this.removeOriginalFile = removeOriginalFile;
-        this.bucketRegion = bucketRegion;
+        AWSCredentials credentials = new BasicAWSCredentials(accessKey, securityKey);
+        this.s3client = new AmazonS3Client(credentials);
+        if (endpoint != null && !endpoint.isEmpty()) {
+            s3client.setEndpoint(endpoint);
+            s3client.setS3ClientOptions(new S3ClientOptions().withPathStyleAccess(true));
+            if(logger.isInfoEnabled()){
+                logger.info("S3 Endpoint: "+endpoint);
+            }
+        } else {
+            s3client.setRegion(Region.getRegion(Regions.fromName(bucketRegion)));
+            if(logger.isInfoEnabled()){
+                logger.info("S3 Region: "+bucketRegion);
+            }
+        }
+        this.transfers = new TransferManager(s3client);
+        final TransferManagerConfiguration configuration = new TransferManagerConfiguration();
+        configuration.setMultipartUploadThreshold(multipartThreshold);
+        configuration.setMinimumUploadPartSize(Math.min(multipartThreshold, configuration.getMinimumUploadPartSize()));
+        transfers.setConfiguration(configuration);
     }
 
+    /**
+     * Uploads a file and waits for the upload to complete.
+     *
+     * @return the public URL of the uploaded file or null if the upload failed.
+     */
     public URI uploadFile(final String fileToUpload) {
-        AWSCredentials credentials =new BasicAWSCredentials(accessKey, securityKey);
-        AmazonS3 s3client = new AmazonS3Client(credentials);
-        s3client.setRegion(Region.getRegion(Regions.fromName(bucketRegion)));
-        if(logger.isInfoEnabled()){
-            logger.info("S3 Region: "+bucketRegion.toString());
-        }
         try {
-            StringBuffer bucket = new StringBuffer();
-            bucket.append(bucketName);
-            if (folder != null && !folder.isEmpty())
-                bucket.append("/").append(folder);
             URI fileUri = URI.create(fileToUpload);
             if(logger.isInfoEnabled()){
                 logger.info("File to upload to S3: "+fileUri.toString());
             }
             File file = new File(fileUri);
-//            while (!file.exists()){}
-//            logger.info("File exist: "+file.exists());
             //First generate the Presigned URL, buy some time for the file to be written on the disk
-            Date date = new Date();
-            Calendar cal = Calendar.getInstance();
-            cal.setTime(date);
-            if (daysToRetainPublicUrl > 0) {
-                cal.add(Calendar.DATE, daysToRetainPublicUrl);
-            } else {
-                //By default the Public URL will be valid for 180 days
-                cal.add(Calendar.DATE, 180);
-            }
-            date = cal.getTime();
-            GeneratePresignedUrlRequest generatePresignedUrlRequestGET =
-                    new GeneratePresignedUrlRequest(bucket.toString(), file.getName());
-            generatePresignedUrlRequestGET.setMethod(HttpMethod.GET);
-            generatePresignedUrlRequestGET.setExpiration(date);
-
-            URL downloadUrl = s3client.generatePresignedUrl(generatePresignedUrlRequestGET);
+            URI downloadUri = getPublicUrl(file.getName());
 
             //Second upload the file to S3
-//            while (!file.exists()){}
             while (!FileUtils.waitFor(file, 30)){}
             if (file.exists()) {
-                PutObjectRequest putRequest = new PutObjectRequest(bucket.toString(), file.getName(), file);
-                ObjectMetadata metadata = new ObjectMetadata();
-                metadata.setContentType(new MimetypesFileTypeMap().getContentType(file));
-                putRequest.setMetadata(metadata);
-                if (reducedRedundancy)
-                    putRequest.setStorageClass(StorageClass.ReducedRedundancy);
-                s3client.putObject(putRequest);
-
+                upload(file);
                 if (removeOriginalFile) {
                     removeLocalFile(file);
                 }
-                return downloadUrl.toURI();
+                return downloadUri;
             } else {
                 logger.error("Timeout waiting for the recording file: "+file.getAbsolutePath());
                 return null;
@@ -143,12 +150,77 @@ public class S3AccessTool {
             logger.error("Caught an AmazonClientException, which ");
             logger.error("Error Message: " + ace.getMessage());
             return null;
-        } catch (URISyntaxException e) {
-            logger.error("URISyntaxException: "+e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             return null;
         }
     }
 
+    /**
+     * Uploads a file, in parts when it is bigger than the multipart threshold, and waits for the upload to complete.
+     *
+     * @throws AmazonClientException if the upload failed.
+     */
+    public void upload(final File file) throws InterruptedException {
+        PutObjectRequest putRequest = new PutObjectRequest(bucket(), file.getName(), file);
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(new MimetypesFileTypeMap().getContentType(file));
+        putRequest.setMetadata(metadata);
+        if (reducedRedundancy)
+            putRequest.setStorageClass(StorageClass.ReducedRedundancy);
+        transfers.upload(putRequest).waitForUploadResult();
+    }
+
+    /**
+     * @return the presigned URL the uploaded file can be downloaded from until it expires.
+     */
+    public URI getPublicUrl(final String fileName) {
+        Date date = new Date();
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(date);
+        if (daysToRetainPublicUrl > 0) {
+            cal.add(Calendar.DATE, daysToRetainPublicUrl);
+        } else {
+            //By default the Public URL will be valid for 180 days
+            cal.add(Calendar.DATE, 180);
+        }
+        date = cal.getTime();
+        GeneratePresignedUrlRequest generatePresignedUrlRequestGET =
+                new GeneratePresignedUrlRequest(bucket(), fileName);
+        generatePresignedUrlRequestGET.setMethod(HttpMethod.GET);
+        generatePresignedUrlRequestGET.setExpiration(date);
+        URL downloadUrl = s3client.generatePresignedUrl(generatePresignedUrlRequestGET);
+        try {
+            return downloadUrl.toURI();
+        } catch (URISyntaxException e) {
+            throw new AmazonClientException("URISyntaxException: "+e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Deletes the local copy of an uploaded file when the tool is configured to do so.
+     */
+    public void removeOriginalFile(final File file) {
+        if (removeOriginalFile) {
+            removeLocalFile(file);
+        }
+    }
+
+    /**
+     * Aborts the uploads in progress and releases the S3 client.
+     */
+    public void shutdown() {
+        transfers.shutdownNow();
+    }
+
+    private String bucket() {
+        StringBuffer bucket = new StringBuffer();
+        bucket.append(bucketName);
+        if (folder != null && !folder.isEmpty())
+            bucket.append("/").append(folder);
+        return bucket.toString();
+    }
+
     private void removeLocalFile(final File file) {
         if (!file.delete()) {
             if(logger.isInfoEnabled()){
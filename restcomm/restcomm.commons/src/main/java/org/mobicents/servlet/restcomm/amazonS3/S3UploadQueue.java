@@ -0,0 +1,272 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.amazonS3;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+
+/**
+ * Uploads the recordings to S3 in the background so that storing a recording doesn't wait for the upload.
+ * <p>
+ * Every upload is first written to the queue directory as a <code>&lt;id&gt;.upload</code> file holding the URI of
+ * the file to upload and is removed once the {@link Listener} has been told where the file was uploaded. The uploads
+ * left in the directory by a restart are resumed by {@link #start(Listener)}.
+ * <p>
+ * A fixed number of threads run the uploads. A failed upload is retried with an exponential backoff, starting at
+ * 'retryDelay' milliseconds and capped to a minute, and is renamed to <code>&lt;id&gt;.failed</code> after
+ * 'maxAttempts' attempts so it can be inspected and queued again by hand.
+ */
+@ThreadSafe
+public final class S3UploadQueue {
+    private static final Logger logger = Logger.getLogger(S3UploadQueue.class);
+
+    private static final String PENDING = ".upload";
+    private static final String FAILED = ".failed";
+    private static final long MAX_RETRY_DELAY = 60 * 1000;
+    // How often and how long to look for a file that the media server is still writing.
+    private static final long FILE_POLL_INTERVAL = 1000;
+    private static final int FILE_POLLS = 30;
+
+    private final S3AccessTool s3AccessTool;
+    private final File directory;
+    private final int maxAttempts;
+    private final long retryDelay;
+    private final ScheduledThreadPoolExecutor executor;
+    private final AtomicInteger pending;
+    private volatile Listener listener;
+
+    public S3UploadQueue(final S3AccessTool s3AccessTool, final File directory, final int threads, final int maxAttempts,
+            final long retryDelay) {
+        super();
+        this.s3AccessTool = s3AccessTool;
+        this.directory = directory;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+        this.executor = new ScheduledThreadPoolExecutor(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "s3-uploader-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.pending = new AtomicInteger();
+    }
+
+    /**
+     * Resumes the uploads left in the queue directory and starts accepting new ones.
+     *
+     * @param listener told about every completed upload.
+     */
+    public void start(final Listener listener) {
+        this.listener = listener;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            logger.error("Could not create the S3 upload queue directory " + directory.getAbsolutePath());
+            return;
+        }
+        final File[] markers = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(final File file) {
+                return file.isFile() && file.getName().endsWith(PENDING);
+            }
+        });
+        if (markers == null) {
+            return;
+        }
+        for (final File marker : markers) {
+            final String name = marker.getName();
+            final String id = name.substring(0, name.length() - PENDING.length());
+            try {
+                final String file = FileUtils.readFileToString(marker, "UTF-8").trim();
+                schedule(new Upload(id, new File(URI.create(file)), marker), 0);
+            } catch (final IOException exception) {
+                logger.error("Could not read the S3 upload " + marker.getAbsolutePath(), exception);
+            } catch (final IllegalArgumentException exception) {
+                logger.error("Invalid S3 upload " + marker.getAbsolutePath(), exception);
+                fail(marker);
+            }
+        }
+        if (logger.isInfoEnabled() && markers.length > 0) {
+            logger.info("Resuming " + markers.length + " S3 uploads from " + directory.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Queues a file for upload.
+     *
+     * @param id identifies the upload to the listener, i.e the sid of the recording.
+     * @param file the URI of the file to upload.
+     * @return false if the upload could not be written to the queue directory.
+     */
+    public boolean upload(final String id, final String file) {
+        final File marker = new File(directory, id + PENDING);
+        final File temporary = new File(directory, id + PENDING + ".tmp");
+        try {
+            final File upload = new File(URI.create(file));
+            // Write then rename so that a restart never sees a partial entry.
+            FileUtils.writeStringToFile(temporary, file, "UTF-8");
+            if (!temporary.renameTo(marker)) {
+                throw new IOException("Could not rename " + temporary + " to " + marker);
+            }
+            schedule(new Upload(id, upload, marker), 0);
+            return true;
+        } catch (final IOException exception) {
+            logger.error("Could not queue the S3 upload of " + file, exception);
+            return false;
+        } catch (final IllegalArgumentException exception) {
+            logger.error("Invalid file to upload to S3: " + file, exception);
+            return false;
+        }
+    }
+
+    /**
+     * @return the URL a file will be downloaded from once uploaded. It is known before the upload completes as the
+     *         files are stored under their name.
+     */
+    public URI getPublicUrl(final String fileName) {
+        return s3AccessTool.getPublicUrl(fileName);
+    }
+
+    /**
+     * @return the number of uploads waiting or in progress.
+     */
+    public int getPendingUploads() {
+        return pending.get();
+    }
+
+    /**
+     * Stops the uploads, the ones in progress are resumed by the next {@link #start(Listener)}.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        s3AccessTool.shutdown();
+    }
+
+    private void schedule(final Upload upload, final long delay) {
+        if (upload.scheduled()) {
+            pending.incrementAndGet();
+        }
+        try {
+            executor.schedule(upload, delay, TimeUnit.MILLISECONDS);
+        } catch (final RejectedExecutionException exception) {
+            // Shutting down, the upload stays in the queue directory.
+            pending.decrementAndGet();
+        }
+    }
+
+    private void fail(final File marker) {
+        final String name = marker.getName();
+        final File failed = new File(directory, name.substring(0, name.length() - PENDING.length()) + FAILED);
+        if (!marker.renameTo(failed)) {
+            logger.error("Could not rename the failed S3 upload " + marker.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Told about the completed uploads from the upload threads.
+     */
+    public interface Listener {
+        void uploaded(String id, URI uri);
+    }
+
+    private final class Upload implements Runnable {
+        private final String id;
+        private final File file;
+        private final File marker;
+        private int attempts;
+        private int polls;
+        private boolean queued;
+
+        private Upload(final String id, final File file, final File marker) {
+            super();
+            this.id = id;
+            this.file = file;
+            this.marker = marker;
+        }
+
+        // True the first time the upload is scheduled.
+        private boolean scheduled() {
+            final boolean first = !queued;
+            queued = true;
+            return first;
+        }
+
+        @Override
+        public void run() {
+            if (!file.exists()) {
+                if (++polls < FILE_POLLS) {
+                    schedule(this, FILE_POLL_INTERVAL);
+                } else {
+                    logger.error("Timeout waiting for the recording file: " + file.getAbsolutePath());
+                    fail(marker);
+                    pending.decrementAndGet();
+                }
+                return;
+            }
+            try {
+                s3AccessTool.upload(file);
+                final URI uri = s3AccessTool.getPublicUrl(file.getName());
+                final Listener listener = S3UploadQueue.this.listener;
+                if (listener != null) {
+                    listener.uploaded(id, uri);
+                }
+                if (!marker.delete()) {
+                    logger.error("Could not remove the completed S3 upload " + marker.getAbsolutePath());
+                }
+                s3AccessTool.removeOriginalFile(file);
+                pending.decrementAndGet();
+            } catch (final InterruptedException exception) {
+                // Shutting down, the upload stays in the queue directory.
+                Thread.currentThread().interrupt();
+            } catch (final RuntimeException exception) {
+                attempts++;
+                if (attempts < maxAttempts && !executor.isShutdown()) {
+                    final long delay = Math.min(retryDelay << Math.min(attempts - 1, 16), MAX_RETRY_DELAY);
+                    logger.warn("S3 upload " + attempts + " of " + file.getName() + " failed, retrying in " + delay
+                            + "ms: " + exception.getMessage());
+                    schedule(this, delay);
+                } else {
+                    logger.error("Giving up the S3 upload of " + file.getName() + " after " + attempts + " attempts",
+                            exception);
+                    fail(marker);
+                    pending.decrementAndGet();
+                }
+            }
+        }
+    }
+}
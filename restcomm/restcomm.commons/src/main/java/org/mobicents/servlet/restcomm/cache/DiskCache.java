@@ -26,7 +26,6 @@ import akka.event.LoggingAdapter;
 import org.apache.commons.io.FileUtils;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.utils.HttpClientUtils;
@@ -91,6 +90,8 @@ public final class DiskCache extends UntypedActor {
 
     private URI cache(final Object message) throws IOException, URISyntaxException {
         final DiskCacheRequest request = (DiskCacheRequest) message;
+        final String location = location(request.scope());
+        final String root = request.scope() == null ? this.uri : this.uri + request.scope() + "/";
 
         if (request.hash() == null) {
             if (request.uri().getScheme().equalsIgnoreCase("file")) {
@@ -99,7 +100,7 @@ public final class DiskCache extends UntypedActor {
                 if (!destFile.exists())
                     FileUtils.moveFile(origFile, destFile);
 
-                return URI.create(this.uri + destFile.getName());
+                return URI.create(root + destFile.getName());
 
             } else {
                 //Handle all the rest
@@ -127,7 +128,7 @@ public final class DiskCache extends UntypedActor {
                     try {
                         if (request.uri().getScheme().equalsIgnoreCase("https")) {
                             //Handle the HTTPS URIs
-                            client = CustomHttpClientBuilder.build(RestcommConfiguration.getInstance().getMain());
+                            client = CustomHttpClientBuilder.buildDefaultClient(RestcommConfiguration.getInstance().getMain());
                             URI result = new URIBuilder()
                                     .setScheme(uri.getScheme())
                                     .setHost(uri.getHost())
@@ -169,16 +170,13 @@ public final class DiskCache extends UntypedActor {
                             output.close();
                         }
                         if (httpResponse != null) {
-                            ((CloseableHttpResponse) httpResponse).close();
+                            // Returns the connection to the shared pool, the client itself is never closed here
+                            HttpClientUtils.closeQuietly(httpResponse);
                             httpResponse = null;
                         }
-                        if (client != null) {
-                            HttpClientUtils.closeQuietly(client);
-                            client = null;
-                        }
                     }
                 }
-                URI result = URI.create(this.uri+ hash + "." + extension);
+                URI result = URI.create(root + hash + "." + extension);
                 return result;
             }
         } else {
@@ -190,13 +188,25 @@ public final class DiskCache extends UntypedActor {
 
             if (Files.exists(p)) {
                 // return URI.create(matchedFile.getAbsolutePath());
-                return URI.create(this.uri + filename);
+                return URI.create(root + filename);
             } else {
                 throw new FileNotFoundException(filename);
             }
         }
     }
 
+    private String location(final String scope) {
+        if (scope == null) {
+            return location;
+        }
+        final String result = location + scope + "/";
+        final File path = new File(result);
+        if (!path.isDirectory()) {
+            path.mkdirs();
+        }
+        return result;
+    }
+
     private String extension(final URI uri) {
         final String path = uri.getPath();
         return path.substring(path.lastIndexOf(".") + 1);
@@ -30,6 +30,7 @@ import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
 public final class DiskCacheRequest {
     private URI uri;
     private String hash = null;
+    private String scope = null;
 
     public DiskCacheRequest(URI uri) {
         super();
@@ -41,6 +42,20 @@ public final class DiskCacheRequest {
         this.hash = hash;
     }
 
+    /**
+     * @param scope the sub directory of the cache to use, i.e the account sid when the cache is shared by all the
+     *        accounts. A null scope uses the cache location itself.
+     */
+    public DiskCacheRequest(URI uri, String scope) {
+        this(uri);
+        this.scope = scope;
+    }
+
+    public DiskCacheRequest(String hash, String scope) {
+        this(hash);
+        this.scope = scope;
+    }
+
     public URI uri() {
         return uri;
     }
@@ -48,4 +63,8 @@ public final class DiskCacheRequest {
     public String hash() {
         return hash;
     }
+
+    public String scope() {
+        return scope;
+    }
 }
@@ -26,6 +26,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.configuration.Configuration;
 import org.mobicents.servlet.restcomm.configuration.sets.ConfigurationSet;
 import org.mobicents.servlet.restcomm.configuration.sets.MainConfigurationSet;
+import org.mobicents.servlet.restcomm.configuration.sets.RcmlCacheConfigurationSet;
 import org.mobicents.servlet.restcomm.configuration.sources.ApacheConfigurationSource;
 
 /**
@@ -45,6 +46,7 @@ public class RestcommConfiguration {
 
     public RestcommConfiguration(Configuration apacheConf) {
         addConfigurationSet("main", new MainConfigurationSet( new ApacheConfigurationSource(apacheConf)));
+        addConfigurationSet("rcmlCache", new RcmlCacheConfigurationSet( new ApacheConfigurationSource(apacheConf)));
         // addConfigurationSet("identity", new IdentityConfigurationSet( new DbConfigurationSource(dbConf)));
         // ...
     }
@@ -67,6 +69,10 @@ public class RestcommConfiguration {
     }
     */
 
+    public RcmlCacheConfigurationSet getRcmlCache() {
+        return (RcmlCacheConfigurationSet) sets.get("rcmlCache");
+    }
+
     // define getters  for additional ConfigurationSets here
     // ...
 
@@ -43,6 +43,18 @@ public class MainConfigurationSet extends ConfigurationSet {
     private static final SslMode SSL_MODE_DEFAULT = SslMode.strict;
     private final SslMode sslMode;
     private final int responseTimeout;
+    private static final String HTTP_MAX_CONN_TOTAL = "http-client.max-conn-total";
+    private static final String HTTP_MAX_CONN_PER_ROUTE = "http-client.max-conn-per-route";
+    private static final String HTTP_KEEP_ALIVE_TIME = "http-client.keep-alive-time";
+    private static final String HTTP_IDLE_CONNECTION_TIMEOUT = "http-client.idle-connection-timeout";
+    private static final int MAX_CONN_TOTAL_DEFAULT = 200;
+    private static final int MAX_CONN_PER_ROUTE_DEFAULT = 50;
+    private static final long KEEP_ALIVE_TIME_DEFAULT = 30000;
+    private static final long IDLE_CONNECTION_TIMEOUT_DEFAULT = 60000;
+    private final int maxConnTotal;
+    private final int maxConnPerRoute;
+    private final long keepAliveTime;
+    private final long idleConnectionTimeout;
     private static final String USE_HOSTNAME_TO_RESOLVE_RELATIVE_URL_KEY = "http-client.use-hostname-to-resolve-relative-url";
     private static final String HOSTNAME_TO_USE_FOR_RELATIVE_URLS_KEY = "http-client.hostname";
     private static final boolean RESOLVE_RELATIVE_URL_WITH_HOSTNAME_DEFAULT = true;
@@ -66,6 +78,33 @@ public class MainConfigurationSet extends ConfigurationSet {
         } catch (Exception e) {
             throw new RuntimeException("Error initializing '" + HTTP_RESPONSE_TIMEOUT + "' configuration setting", e);
         }
+        // http-client connection pool
+        int connTotal = MAX_CONN_TOTAL_DEFAULT;
+        int connPerRoute = MAX_CONN_PER_ROUTE_DEFAULT;
+        long keepAlive = KEEP_ALIVE_TIME_DEFAULT;
+        long idleTimeout = IDLE_CONNECTION_TIMEOUT_DEFAULT;
+        String pooling = null;
+        try {
+            pooling = HTTP_MAX_CONN_TOTAL;
+            if ( ! StringUtils.isEmpty(source.getProperty(pooling)) )
+                connTotal = Integer.parseInt(source.getProperty(pooling));
+            pooling = HTTP_MAX_CONN_PER_ROUTE;
+            if ( ! StringUtils.isEmpty(source.getProperty(pooling)) )
+                connPerRoute = Integer.parseInt(source.getProperty(pooling));
+            pooling = HTTP_KEEP_ALIVE_TIME;
+            if ( ! StringUtils.isEmpty(source.getProperty(pooling)) )
+                keepAlive = Long.parseLong(source.getProperty(pooling));
+            pooling = HTTP_IDLE_CONNECTION_TIMEOUT;
+            if ( ! StringUtils.isEmpty(source.getProperty(pooling)) )
+                idleTimeout = Long.parseLong(source.getProperty(pooling));
+        } catch (Exception e) {
+            throw new RuntimeException("Error initializing '" + pooling + "' configuration setting", e);
+        }
+        this.maxConnTotal = connTotal;
+        this.maxConnPerRoute = connPerRoute;
+        this.keepAliveTime = keepAlive;
+        this.idleConnectionTimeout = idleTimeout;
+
         // http-client.ssl-mode
         try {
             sslMode = SSL_MODE_DEFAULT;
@@ -101,6 +140,22 @@ public class MainConfigurationSet extends ConfigurationSet {
         return responseTimeout;
     }
 
+    public int getMaxConnTotal() {
+        return maxConnTotal;
+    }
+
+    public int getMaxConnPerRoute() {
+        return maxConnPerRoute;
+    }
+
+    public long getKeepAliveTime() {
+        return keepAliveTime;
+    }
+
+    public long getIdleConnectionTimeout() {
+        return idleConnectionTimeout;
+    }
+
     public boolean isUseHostnameToResolveRelativeUrls() {
         return useHostnameToResolveRelativeUrls;
     }
@@ -0,0 +1,154 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+
+package org.mobicents.servlet.restcomm.configuration.sets;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.configuration.sources.ConfigurationSource;
+
+/**
+ * Options of the RCML response cache. Caching is opt-in, it applies to every application when all-applications is set
+ * and otherwise only to the applications and incoming phone numbers listed here. Either way a response is only cached
+ * when its headers allow it, or when default-ttl is set.
+ *
+ * List options are comma separated since delimiter parsing is disabled for restcomm.xml.
+ */
+@Immutable
+public class RcmlCacheConfigurationSet extends ConfigurationSet {
+
+    private static final String ENABLED_KEY = "rcml-cache.enabled";
+    private static final String MAX_ENTRIES_KEY = "rcml-cache.max-entries";
+    private static final String DEFAULT_TTL_KEY = "rcml-cache.default-ttl";
+    private static final String IGNORED_PARAMETERS_KEY = "rcml-cache.ignored-parameters";
+    private static final String ALL_APPLICATIONS_KEY = "rcml-cache.all-applications";
+    private static final String APPLICATIONS_KEY = "rcml-cache.applications";
+    private static final String INCOMING_PHONE_NUMBERS_KEY = "rcml-cache.incoming-phone-numbers";
+    private static final int MAX_ENTRIES_DEFAULT = 1000;
+    private static final long DEFAULT_TTL_DEFAULT = 0;
+    // Call specific parameters that Restcomm sends along with every RCML request.
+    private static final String IGNORED_PARAMETERS_DEFAULT = "AccountSid,ApiVersion,CallSid,CallStatus,CallTimestamp,"
+            + "CallerName,DialSipCallId,DialSipResponseCode,Direction,ForwardedFrom,From,OutboundCallSid,To";
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long defaultTtl;
+    private final Set<String> ignoredParameters;
+    private final boolean allApplications;
+    private final Set<String> applications;
+    private final Set<String> incomingPhoneNumbers;
+
+    public RcmlCacheConfigurationSet(ConfigurationSource source) {
+        super(source);
+        boolean enabled = false;
+        int maxEntries = MAX_ENTRIES_DEFAULT;
+        long defaultTtl = DEFAULT_TTL_DEFAULT;
+        String ignoredParameters = IGNORED_PARAMETERS_DEFAULT;
+        boolean allApplications = false;
+        String key = null;
+        try {
+            key = ENABLED_KEY;
+            if ( ! StringUtils.isEmpty(source.getProperty(key)) )
+                enabled = Boolean.parseBoolean(source.getProperty(key));
+            key = MAX_ENTRIES_KEY;
+            if ( ! StringUtils.isEmpty(source.getProperty(key)) )
+                maxEntries = Integer.parseInt(source.getProperty(key));
+            key = DEFAULT_TTL_KEY;
+            if ( ! StringUtils.isEmpty(source.getProperty(key)) )
+                defaultTtl = Long.parseLong(source.getProperty(key));
+            key = IGNORED_PARAMETERS_KEY;
+            if ( source.getProperty(key) != null )
+                ignoredParameters = source.getProperty(key);
+            key = ALL_APPLICATIONS_KEY;
+            if ( ! StringUtils.isEmpty(source.getProperty(key)) )
+                allApplications = Boolean.parseBoolean(source.getProperty(key));
+        } catch (Exception e) {
+            throw new RuntimeException("Error initializing '" + key + "' configuration setting", e);
+        }
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.defaultTtl = defaultTtl;
+        this.ignoredParameters = split(ignoredParameters);
+        this.allApplications = allApplications;
+        this.applications = split(source.getProperty(APPLICATIONS_KEY));
+        this.incomingPhoneNumbers = split(source.getProperty(INCOMING_PHONE_NUMBERS_KEY));
+    }
+
+    private static Set<String> split(final String value) {
+        if (StringUtils.isBlank(value)) {
+            return Collections.emptySet();
+        }
+        final Set<String> values = new HashSet<String>(Arrays.asList(StringUtils.stripAll(value.split(","))));
+        values.remove("");
+        return Collections.unmodifiableSet(values);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @return how long, in seconds, a response without Cache-Control or Expires headers is considered fresh.
+     */
+    public long getDefaultTtl() {
+        return defaultTtl;
+    }
+
+    public Set<String> getIgnoredParameters() {
+        return ignoredParameters;
+    }
+
+    /**
+     * @return true if the RCML of every application may be served from the cache.
+     */
+    public boolean isAllApplications() {
+        return allApplications;
+    }
+
+    public Set<String> getApplications() {
+        return applications;
+    }
+
+    public Set<String> getIncomingPhoneNumbers() {
+        return incomingPhoneNumbers;
+    }
+
+    /**
+     * @param application the sid of the application that serves the RCML, may be null.
+     * @param incomingPhoneNumber the sid of the number that was called, may be null.
+     * @return true if the RCML of this application or number may be served from the cache.
+     */
+    public boolean isCacheable(final String application, final String incomingPhoneNumber) {
+        if (!enabled) {
+            return false;
+        }
+        return allApplications
+                || (application != null && applications.contains(application))
+                || (incomingPhoneNumber != null && incomingPhoneNumbers.contains(incomingPhoneNumber));
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dispatch;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+
+/**
+ * Counters of a metered dispatcher, updated by its {@link MeteredExecutorServiceConfigurator executor} and
+ * {@link MeteredMailbox mailboxes} and read by the monitoring service.
+ * <p>
+ * The processing time is the time a thread spends running one mailbox, up to <code>throughput</code> messages, and is
+ * averaged over the runs completed since the previous time the counters were read.
+ */
+@ThreadSafe
+public final class DispatcherMetrics {
+    private static final ConcurrentMap<String, DispatcherMetrics> metrics = new ConcurrentHashMap<String, DispatcherMetrics>();
+
+    private final String name;
+    private final AtomicInteger messages;
+    private final AtomicLong rejected;
+    private final AtomicLong runs;
+    private final AtomicLong time;
+    private final AtomicLong max;
+    private volatile ThreadPoolExecutor executor;
+    // Values of the previous read, guarded by this.
+    private long lastRuns;
+    private long lastTime;
+
+    private DispatcherMetrics(final String name) {
+        super();
+        this.name = name;
+        this.messages = new AtomicInteger();
+        this.rejected = new AtomicLong();
+        this.runs = new AtomicLong();
+        this.time = new AtomicLong();
+        this.max = new AtomicLong();
+    }
+
+    public static DispatcherMetrics get(final String id) {
+        DispatcherMetrics result = metrics.get(id);
+        if (result == null) {
+            final DispatcherMetrics created = new DispatcherMetrics(name(id));
+            result = metrics.putIfAbsent(id, created);
+            if (result == null) {
+                result = created;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the counters of all the metered dispatchers, i.e <code>DispatcherDatabaseQueueDepth</code>.
+     */
+    public static Map<String, Integer> getCounters() {
+        final Map<String, Integer> counters = new HashMap<String, Integer>();
+        for (final DispatcherMetrics dispatcher : metrics.values()) {
+            dispatcher.counters(counters);
+        }
+        return counters;
+    }
+
+    // restcomm.call-control-dispatcher becomes CallControl
+    private static String name(final String id) {
+        String name = id.substring(id.lastIndexOf('.') + 1);
+        if (name.endsWith("-dispatcher")) {
+            name = name.substring(0, name.length() - "-dispatcher".length());
+        }
+        final StringBuilder buffer = new StringBuilder();
+        for (final String word : name.split("-")) {
+            if (!word.isEmpty()) {
+                buffer.append(Character.toUpperCase(word.charAt(0))).append(word.substring(1));
+            }
+        }
+        return buffer.toString();
+    }
+
+    void setExecutor(final ThreadPoolExecutor executor) {
+        this.executor = executor;
+    }
+
+    void enqueued() {
+        messages.incrementAndGet();
+    }
+
+    void dequeued() {
+        messages.decrementAndGet();
+    }
+
+    void rejected() {
+        rejected.incrementAndGet();
+    }
+
+    void processed(final long nanos) {
+        runs.incrementAndGet();
+        time.addAndGet(nanos);
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos)) {
+            current = max.get();
+        }
+    }
+
+    private synchronized void counters(final Map<String, Integer> counters) {
+        final String prefix = "Dispatcher" + name;
+        final ThreadPoolExecutor executor = this.executor;
+        if (executor != null) {
+            counters.put(prefix + "QueueDepth", executor.getQueue().size());
+            counters.put(prefix + "ActiveThreads", executor.getActiveCount());
+            counters.put(prefix + "PoolSize", executor.getPoolSize());
+        }
+        counters.put(prefix + "MailboxSize", messages.get());
+        counters.put(prefix + "MailboxRejected", (int) rejected.get());
+        final long runs = this.runs.get();
+        final long time = this.time.get();
+        final long count = runs - lastRuns;
+        final long average = count > 0 ? (time - lastTime) / count : 0;
+        counters.put(prefix + "ProcessingTimeAvgMicros", (int) TimeUnit.NANOSECONDS.toMicros(average));
+        counters.put(prefix + "ProcessingTimeMaxMicros", (int) TimeUnit.NANOSECONDS.toMicros(max.getAndSet(0)));
+        lastRuns = runs;
+        lastTime = time;
+    }
+}
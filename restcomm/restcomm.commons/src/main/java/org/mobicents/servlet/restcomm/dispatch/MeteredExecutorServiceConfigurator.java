@@ -0,0 +1,116 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dispatch;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.typesafe.config.Config;
+
+import akka.dispatch.DispatcherPrerequisites;
+import akka.dispatch.ExecutorServiceConfigurator;
+import akka.dispatch.ExecutorServiceFactory;
+import akka.dispatch.ThreadPoolExecutorConfigurator;
+
+/**
+ * Executor of the RestComm dispatchers, configured like the default <code>thread-pool-executor</code> and measuring
+ * the queue depth, active threads and processing time of the pool in the {@link DispatcherMetrics} of the dispatcher.
+ * <p>
+ * Usage: <code>executor = "org.mobicents.servlet.restcomm.dispatch.MeteredExecutorServiceConfigurator"</code>
+ */
+public final class MeteredExecutorServiceConfigurator extends ExecutorServiceConfigurator {
+    private final ThreadPoolExecutorConfigurator configurator;
+
+    public MeteredExecutorServiceConfigurator(final Config config, final DispatcherPrerequisites prerequisites) {
+        super(config, prerequisites);
+        this.configurator = new ThreadPoolExecutorConfigurator(config.getConfig("thread-pool-executor"), prerequisites);
+    }
+
+    @Override
+    public ExecutorServiceFactory createExecutorServiceFactory(final String id, final ThreadFactory threadFactory) {
+        final ExecutorServiceFactory factory = configurator.createExecutorServiceFactory(id, threadFactory);
+        final DispatcherMetrics metrics = DispatcherMetrics.get(id);
+        return new ExecutorServiceFactory() {
+            @Override
+            public ExecutorService createExecutorService() {
+                final ExecutorService executor = factory.createExecutorService();
+                if (executor instanceof ThreadPoolExecutor) {
+                    metrics.setExecutor((ThreadPoolExecutor) executor);
+                }
+                return new MeteredExecutorService(executor, metrics);
+            }
+        };
+    }
+
+    private static final class MeteredExecutorService extends AbstractExecutorService {
+        private final ExecutorService executor;
+        private final DispatcherMetrics metrics;
+
+        private MeteredExecutorService(final ExecutorService executor, final DispatcherMetrics metrics) {
+            super();
+            this.executor = executor;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    final long start = System.nanoTime();
+                    try {
+                        command.run();
+                    } finally {
+                        metrics.processed(System.nanoTime() - start);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void shutdown() {
+            executor.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return executor.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return executor.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return executor.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+            return executor.awaitTermination(timeout, unit);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dispatch;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import scala.Option;
+
+import com.typesafe.config.Config;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.DeadLetter;
+import akka.actor.Status;
+import akka.dispatch.Envelope;
+import akka.dispatch.MailboxType;
+import akka.dispatch.MessageQueue;
+
+/**
+ * Mailbox of the RestComm dispatchers counting the messages waiting in the mailboxes of the dispatcher in its
+ * {@link DispatcherMetrics}. When the dispatcher sets a positive <code>mailbox-capacity</code> the messages sent to a
+ * full mailbox go to the dead letters instead of blocking the sender, and the sender is answered with a
+ * {@link Status.Failure} carrying a {@link MailboxOverflowException}. Only bound the dispatchers of actors whose
+ * senders handle that failure, i.e the ones asking with a timeout, a sender waiting for a reply of its own type would
+ * wait forever.
+ * <p>
+ * Usage: <code>mailbox-type = "org.mobicents.servlet.restcomm.dispatch.MeteredMailbox"</code>
+ */
+public final class MeteredMailbox implements MailboxType {
+    private final DispatcherMetrics metrics;
+    private final int capacity;
+
+    public MeteredMailbox(final ActorSystem.Settings settings, final Config config) {
+        super();
+        this.metrics = DispatcherMetrics.get(config.hasPath("id") ? config.getString("id") : "default-dispatcher");
+        this.capacity = config.hasPath("mailbox-capacity") ? config.getInt("mailbox-capacity") : -1;
+    }
+
+    @Override
+    public MessageQueue create(final Option<ActorRef> owner, final Option<ActorSystem> system) {
+        final ActorRef deadLetters = system.isDefined() ? system.get().deadLetters() : null;
+        return new MeteredMessageQueue(metrics, capacity, deadLetters);
+    }
+
+    private static final class MeteredMessageQueue implements MessageQueue {
+        private final Queue<Envelope> queue;
+        private final AtomicInteger size;
+        private final DispatcherMetrics metrics;
+        private final int capacity;
+        private final ActorRef deadLetters;
+
+        private MeteredMessageQueue(final DispatcherMetrics metrics, final int capacity, final ActorRef deadLetters) {
+            super();
+            this.queue = new ConcurrentLinkedQueue<Envelope>();
+            this.size = new AtomicInteger();
+            this.metrics = metrics;
+            this.capacity = capacity;
+            this.deadLetters = deadLetters;
+        }
+
+        @Override
+        public void enqueue(final ActorRef receiver, final Envelope handle) {
+            if (capacity > 0 && size.get() >= capacity && deadLetters != null) {
+                metrics.rejected();
+                deadLetters.tell(new DeadLetter(handle.message(), handle.sender(), receiver), handle.sender());
+                final ActorRef sender = handle.sender();
+                if (sender != null && !sender.equals(deadLetters)) {
+                    sender.tell(new Status.Failure(new MailboxOverflowException(receiver)), receiver);
+                }
+                return;
+            }
+            size.incrementAndGet();
+            metrics.enqueued();
+            queue.offer(handle);
+        }
+
+        @Override
+        public Envelope dequeue() {
+            final Envelope handle = queue.poll();
+            if (handle != null) {
+                size.decrementAndGet();
+                metrics.dequeued();
+            }
+            return handle;
+        }
+
+        @Override
+        public int numberOfMessages() {
+            return size.get();
+        }
+
+        @Override
+        public boolean hasMessages() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public void cleanUp(final ActorRef owner, final MessageQueue deadLetters) {
+            Envelope handle = dequeue();
+            while (handle != null) {
+                deadLetters.enqueue(owner, handle);
+                handle = dequeue();
+            }
+        }
+    }
+}
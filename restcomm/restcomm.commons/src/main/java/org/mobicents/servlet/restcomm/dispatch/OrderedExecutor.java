@@ -0,0 +1,107 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dispatch;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import org.apache.log4j.Logger;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+
+/**
+ * Runs tasks on an executor one at a time per key, in the order they were submitted for the key, i.e the writes of a
+ * call detail record. The keys are spread over a fixed number of stripes, the tasks of the keys sharing a stripe are
+ * run in order too and a stripe gives its thread back after a few tasks so a busy one can't hold a thread forever.
+ */
+@ThreadSafe
+public final class OrderedExecutor {
+    private static final Logger logger = Logger.getLogger(OrderedExecutor.class);
+    private static final int BATCH = 16;
+
+    private final Executor executor;
+    private final Stripe[] stripes;
+
+    /**
+     * @param executor the executor the tasks run on.
+     * @param stripes the number of keys whose tasks may run at the same time.
+     */
+    public OrderedExecutor(final Executor executor, final int stripes) {
+        super();
+        this.executor = executor;
+        this.stripes = new Stripe[stripes];
+        for (int index = 0; index < stripes; index++) {
+            this.stripes[index] = new Stripe();
+        }
+    }
+
+    public void execute(final Object key, final Runnable task) {
+        final int hash = key.hashCode();
+        stripes[((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % stripes.length].execute(task);
+    }
+
+    private final class Stripe implements Runnable {
+        private final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+        private boolean scheduled;
+
+        private void execute(final Runnable task) {
+            synchronized (this) {
+                tasks.add(task);
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            try {
+                executor.execute(this);
+            } catch (final RuntimeException exception) {
+                synchronized (this) {
+                    scheduled = false;
+                }
+                throw exception;
+            }
+        }
+
+        @Override
+        public void run() {
+            for (int count = 0; count < BATCH; count++) {
+                final Runnable task;
+                synchronized (this) {
+                    task = tasks.poll();
+                    if (task == null) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                try {
+                    task.run();
+                } catch (final Exception exception) {
+                    logger.error("Exception while running an ordered task", exception);
+                }
+            }
+            // More tasks are waiting, let the others run first.
+            schedule();
+        }
+    }
+}
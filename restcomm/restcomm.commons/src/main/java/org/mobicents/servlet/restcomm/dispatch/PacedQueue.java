@@ -0,0 +1,196 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dispatch;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.NotThreadSafe;
+
+/**
+ * Starts the tasks of the batches queued by an actor at a steady pace, i.e. the destinations of the bulk calls or the
+ * messages of the bulk SMS. Every tick adds 'perSecond * period / 1000' tokens, at most a second worth of them, a task
+ * takes a token to start and holds one of the 'maxConcurrent' slots until it is done. The batches take turns, one task
+ * at a time, and a finished batch is kept for 'retention' milliseconds so its outcome can still be read.
+ * <p>
+ * The queue belongs to the actor that ticks it, it is not meant to be shared.
+ */
+@NotThreadSafe
+public final class PacedQueue<K, B extends PacedQueue.Batch> {
+    private final double perSecond;
+    private final int maxConcurrent;
+    private final long retention;
+    private final long period;
+
+    private final Map<K, B> batches;
+    // The batches with tasks left to start, taking turns.
+    private final Deque<B> turns;
+    // The finished batches, the oldest first.
+    private final Deque<B> finished;
+    private double tokens;
+    private int active;
+
+    /**
+     * @param perSecond the number of tasks started every second.
+     * @param maxConcurrent the number of tasks that may be started and not done at once.
+     * @param retention how long a finished batch is kept, in milliseconds.
+     * @param period the time between two ticks, in milliseconds.
+     */
+    public PacedQueue(final double perSecond, final int maxConcurrent, final long retention, final long period) {
+        super();
+        this.perSecond = perSecond;
+        this.maxConcurrent = maxConcurrent;
+        this.retention = retention;
+        this.period = period;
+        this.batches = new LinkedHashMap<K, B>();
+        this.turns = new ArrayDeque<B>();
+        this.finished = new ArrayDeque<B>();
+    }
+
+    public void add(final K key, final B batch) {
+        batch.key = key;
+        batches.put(key, batch);
+        turns.addLast(batch);
+    }
+
+    public B get(final K key) {
+        return batches.get(key);
+    }
+
+    /**
+     * The batches that are going on or were finished less than 'retention' milliseconds ago, the oldest first.
+     */
+    public Collection<B> batches() {
+        return Collections.unmodifiableCollection(batches.values());
+    }
+
+    public int active() {
+        return active;
+    }
+
+    /**
+     * Starts the tasks the tokens and the free slots allow, then forgets the batches finished for too long.
+     *
+     * @param now the current time in milliseconds.
+     */
+    public void tick(final long now) {
+        tokens = Math.min(Math.max(1, perSecond), tokens + perSecond * period / 1000);
+        // A batch whose next task is not ready keeps its turn, the others go on without it.
+        int skipped = 0;
+        while (tokens >= 1 && active < maxConcurrent && skipped < turns.size()) {
+            final B batch = turns.removeFirst();
+            if (batch.ready()) {
+                if (batch.startNext()) {
+                    batch.active++;
+                    active++;
+                    tokens--;
+                }
+                skipped = 0;
+            } else {
+                skipped++;
+            }
+            if (batch.hasNext()) {
+                turns.addLast(batch);
+            } else {
+                finishWhenDone(batch, now);
+            }
+        }
+        while (!finished.isEmpty() && finished.peekFirst().finishedAt + retention <= now) {
+            batches.remove(finished.removeFirst().key);
+        }
+    }
+
+    /**
+     * A task started by the batch is done, its slot goes to the next task.
+     */
+    public void done(final B batch, final long now) {
+        batch.active--;
+        active--;
+        finishWhenDone(batch, now);
+    }
+
+    /**
+     * The batch starts no more tasks, the ones started are left alone. It must have skipped its remaining tasks so
+     * {@link Batch#hasNext()} is false.
+     */
+    public void cancel(final B batch, final long now) {
+        turns.remove(batch);
+        finishWhenDone(batch, now);
+    }
+
+    private void finishWhenDone(final B batch, final long now) {
+        if (!batch.isFinished() && !batch.hasNext() && batch.active == 0) {
+            batch.finishedAt = now;
+            finished.addLast(batch);
+            batch.onFinished();
+        }
+    }
+
+    /**
+     * The tasks of a batch, started one at a time by the queue.
+     */
+    public abstract static class Batch {
+        // Package private, the queue reaches them through its type parameter.
+        Object key;
+        int active;
+        // When the last task was done, in milliseconds.
+        long finishedAt = -1;
+
+        /**
+         * @return whether there are tasks left to start.
+         */
+        protected abstract boolean hasNext();
+
+        /**
+         * @return whether the next task can be started now, a batch whose next task is not ready is passed over.
+         */
+        protected boolean ready() {
+            return true;
+        }
+
+        /**
+         * Starts the next task, or skips it.
+         *
+         * @return whether a task was started, it takes a token and a slot until it is done.
+         */
+        protected abstract boolean startNext();
+
+        /**
+         * Called once the batch has no tasks left to start and all its tasks are done.
+         */
+        protected void onFinished() {
+        }
+
+        /**
+         * @return the number of tasks started and not done yet.
+         */
+        public int active() {
+            return active;
+        }
+
+        public boolean isFinished() {
+            return finishedAt >= 0;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dispatch;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import org.apache.commons.configuration.Configuration;
+
+import scala.concurrent.ExecutionContext;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.AbstractExtensionId;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Extension;
+import akka.actor.Props;
+
+/**
+ * The dispatchers the RestComm actors run on, so that blocking work can't starve call signalling.
+ * <ul>
+ * <li>call-control: the calls, media controllers and interpreters.</li>
+ * <li>database: the managers that block on the DAOs while handling a message.</li>
+ * <li>http: the services blocking on HTTP or SMTP requests.</li>
+ * <li>disk: the disk cache.</li>
+ * </ul>
+ * The dispatchers are declared in application.conf and their pools can be sized from the <code>dispatchers</code>
+ * section of restcomm.xml.
+ */
+public final class RestcommDispatchers {
+    public static final String CALL_CONTROL = "restcomm.call-control-dispatcher";
+    public static final String DATABASE = "restcomm.database-dispatcher";
+    public static final String HTTP = "restcomm.http-dispatcher";
+    public static final String DISK = "restcomm.disk-dispatcher";
+
+    private static final String[] DISPATCHERS = { CALL_CONTROL, DATABASE, HTTP, DISK };
+    // Keys whose writes may run at the same time on the database dispatcher.
+    private static final int DATABASE_STRIPES = 64;
+    private static final DatabaseExecutorId DATABASE_EXECUTOR = new DatabaseExecutorId();
+
+    private RestcommDispatchers() {
+        super();
+    }
+
+    /**
+     * Runs the actor on the given dispatcher. Actor systems without the RestComm dispatchers (i.e unit tests) keep using
+     * the default dispatcher.
+     */
+    public static Props props(final ActorSystem system, final Props props, final String dispatcher) {
+        if (system.settings().config().hasPath(dispatcher)) {
+            return props.withDispatcher(dispatcher);
+        }
+        return props;
+    }
+
+    /**
+     * @return the executor of the actor system running tasks on the database dispatcher in the order they were
+     *         submitted for their key, for the actors running elsewhere that write to the DAOs without waiting.
+     */
+    public static OrderedExecutor database(final ActorSystem system) {
+        return DATABASE_EXECUTOR.get(system).executor;
+    }
+
+    /**
+     * Overrides the pool and mailbox sizes of the dispatchers with the ones of restcomm.xml, i.e
+     * <code>&lt;database&gt;&lt;pool-size&gt;32&lt;/pool-size&gt;&lt;/database&gt;</code>.
+     *
+     * @param configuration the <code>dispatchers</code> section of restcomm.xml.
+     * @param config the Akka configuration declaring the dispatchers.
+     */
+    public static Config configure(final Configuration configuration, final Config config) {
+        final Map<String, Object> overrides = new HashMap<String, Object>();
+        for (final String dispatcher : DISPATCHERS) {
+            final String name = dispatcher.substring(dispatcher.indexOf('.') + 1, dispatcher.lastIndexOf("-dispatcher"));
+            final Configuration settings = configuration.subset(name);
+            final String poolSize = settings.getString("pool-size");
+            if (poolSize != null && !poolSize.isEmpty()) {
+                final int size = Integer.parseInt(poolSize);
+                overrides.put(dispatcher + ".thread-pool-executor.core-pool-size-min", size);
+                overrides.put(dispatcher + ".thread-pool-executor.core-pool-size-max", size);
+                overrides.put(dispatcher + ".thread-pool-executor.max-pool-size-min", size);
+                overrides.put(dispatcher + ".thread-pool-executor.max-pool-size-max", size);
+            }
+            final String capacity = settings.getString("mailbox-capacity");
+            if (capacity != null && !capacity.isEmpty()) {
+                overrides.put(dispatcher + ".mailbox-capacity", Integer.parseInt(capacity));
+            }
+        }
+        return ConfigFactory.parseMap(overrides).withFallback(config);
+    }
+
+    private static final class DatabaseExecutor implements Extension {
+        private final OrderedExecutor executor;
+
+        private DatabaseExecutor(final OrderedExecutor executor) {
+            super();
+            this.executor = executor;
+        }
+    }
+
+    private static final class DatabaseExecutorId extends AbstractExtensionId<DatabaseExecutor> {
+        @Override
+        public DatabaseExecutor createExtension(final ExtendedActorSystem system) {
+            final ExecutionContext context = system.settings().config().hasPath(DATABASE) ? system.dispatchers()
+                    .lookup(DATABASE) : system.dispatcher();
+            return new DatabaseExecutor(new OrderedExecutor(new Executor() {
+                @Override
+                public void execute(final Runnable task) {
+                    context.execute(task);
+                }
+            }, DATABASE_STRIPES));
+        }
+    }
+}
@@ -20,12 +20,24 @@
 
 package org.mobicents.servlet.restcomm.http;
 
+import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.config.CookieSpecs;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.utils.HttpClientUtils;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.conn.ssl.TrustSelfSignedStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.ssl.SSLContextBuilder;
 import org.mobicents.servlet.restcomm.HttpConnector;
 import org.mobicents.servlet.restcomm.HttpConnectorList;
@@ -37,6 +49,7 @@ import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -45,6 +58,10 @@ import java.util.List;
  */
 public class CustomHttpClientBuilder {
 
+    // The process-wide pooled client shared by the Downloader, DiskCache, TTS adapters etc.
+    private static CloseableHttpClient defaultClient;
+    private static PoolingHttpClientConnectionManager defaultConnectionManager;
+
     private CustomHttpClientBuilder() {
         // TODO Auto-generated constructor stub
     }
@@ -52,44 +69,129 @@ public class CustomHttpClientBuilder {
 
     public static HttpClient build(MainConfigurationSet config) {
         SslMode mode = config.getSslMode();
+        RequestConfig requestConfig = buildRequestConfig(config);
+        if ( mode == SslMode.strict ) {
+            return  HttpClients.custom().setDefaultRequestConfig(requestConfig).build();
+        } else {
+            return buildAllowallClient(requestConfig);
+        }
+    }
+
+    /**
+     * Returns the process-wide connection pooling client, creating it on first use. Connections (and TLS sessions)
+     * are kept alive and reused across requests so callers must NOT close the returned client. Release the
+     * connection back to the pool by consuming the response entity or closing the response instead.
+     *
+     * @param config the main configuration set holding the http-client pool settings
+     * @return the shared client
+     */
+    public static synchronized CloseableHttpClient buildDefaultClient(MainConfigurationSet config) {
+        if (defaultClient == null) {
+            final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                    buildSocketFactoryRegistry(config.getSslMode()));
+            connectionManager.setMaxTotal(config.getMaxConnTotal());
+            connectionManager.setDefaultMaxPerRoute(config.getMaxConnPerRoute());
+            defaultClient = HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(buildRequestConfig(config))
+                    .setKeepAliveStrategy(buildKeepAliveStrategy(config.getKeepAliveTime()))
+                    .evictExpiredConnections()
+                    .evictIdleConnections(config.getIdleConnectionTimeout(), TimeUnit.MILLISECONDS)
+                    // Don't bind pooled connections to a user token so that TLS connections can be reused by everyone
+                    .disableConnectionState()
+                    .build();
+            defaultConnectionManager = connectionManager;
+        }
+        return defaultClient;
+    }
+
+    /**
+     * Closes the process-wide pooled client, if any, along with all the connections it keeps.
+     */
+    public static synchronized void stopDefaultClient() {
+        if (defaultClient != null) {
+            HttpClientUtils.closeQuietly(defaultClient);
+            defaultClient = null;
+            defaultConnectionManager = null;
+        }
+    }
+
+    /**
+     * @return the totals of the process-wide connection pool or null if the pooled client has not been created yet
+     */
+    public static synchronized PoolStats getDefaultPoolStats() {
+        if (defaultConnectionManager == null) {
+            return null;
+        }
+        return defaultConnectionManager.getTotalStats();
+    }
+
+    private static RequestConfig buildRequestConfig(MainConfigurationSet config) {
         int timeoutConnection = config.getResponseTimeout();
-        RequestConfig requestConfig = RequestConfig.custom()
+        return RequestConfig.custom()
                 .setConnectTimeout(timeoutConnection)
                 .setConnectionRequestTimeout(timeoutConnection)
                 .setSocketTimeout(timeoutConnection)
                 .setCookieSpec(CookieSpecs.STANDARD).build();
-        if ( mode == SslMode.strict ) {
-            return  HttpClients.custom().setDefaultRequestConfig(requestConfig).build();
-        } else {
-            return buildAllowallClient(requestConfig);
+    }
+
+    private static ConnectionKeepAliveStrategy buildKeepAliveStrategy(final long maxKeepAliveTime) {
+        return new DefaultConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                // Honour the Keep-Alive header of the server but never keep a connection longer than configured
+                final long duration = super.getKeepAliveDuration(response, context);
+                if (duration > 0 && duration < maxKeepAliveTime) {
+                    return duration;
+                }
+                return maxKeepAliveTime;
+            }
+        };
+    }
+
+    private static Registry<ConnectionSocketFactory> buildSocketFactoryRegistry(SslMode mode) {
+        SSLConnectionSocketFactory sslsf = null;
+        if ( mode != SslMode.strict ) {
+            sslsf = buildAllowallSocketFactory();
+        }
+        if (sslsf == null) {
+            sslsf = SSLConnectionSocketFactory.getSocketFactory();
         }
+        return RegistryBuilder.<ConnectionSocketFactory> create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", sslsf)
+                .build();
     }
 
     private static HttpClient buildAllowallClient(RequestConfig requestConfig) {
-        HttpConnectorList httpConnectorList = UriUtils.getHttpConnectorList();
         HttpClient httpClient = null;
+        SSLConnectionSocketFactory sslsf = buildAllowallSocketFactory();
+        if (sslsf != null) {
+            httpClient = HttpClients.custom().setDefaultRequestConfig(requestConfig).setSSLSocketFactory(sslsf).build();
+        } else {
+            httpClient = HttpClients.custom().setDefaultRequestConfig(requestConfig).build();
+        }
+
+        return httpClient;
+    }
+
+    private static SSLConnectionSocketFactory buildAllowallSocketFactory() {
+        HttpConnectorList httpConnectorList = UriUtils.getHttpConnectorList();
         //Enable SSL only if we have HTTPS connector
         List<HttpConnector> connectors = httpConnectorList.getConnectors();
         Iterator<HttpConnector> iterator = connectors.iterator();
         while (iterator.hasNext()) {
             HttpConnector connector = iterator.next();
             if (connector.isSecure()) {
-                SSLConnectionSocketFactory sslsf;
                 try {
                     SSLContextBuilder builder = new SSLContextBuilder();
                     builder.loadTrustMaterial(null, new TrustSelfSignedStrategy());
-                    sslsf = new SSLConnectionSocketFactory(builder.build());
-                    httpClient = HttpClients.custom().setDefaultRequestConfig(requestConfig).setSSLSocketFactory(sslsf).build();
+                    return new SSLConnectionSocketFactory(builder.build());
                 } catch (KeyManagementException | NoSuchAlgorithmException | KeyStoreException e) {
                     throw new RuntimeException("Error creating HttpClient", e);
                 }
-                break;
             }
         }
-        if (httpClient == null) {
-            httpClient = HttpClients.custom().setDefaultRequestConfig(requestConfig).build();
-        }
-
-        return httpClient;
+        return null;
     }
 }
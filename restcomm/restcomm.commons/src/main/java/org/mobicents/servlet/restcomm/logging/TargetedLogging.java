@@ -0,0 +1,133 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.logging;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+
+/**
+ * Turns up the logging of a single call or account without raising the level of a whole subsystem. Operators target
+ * the sid of a call or of an account for a while and the hot paths knowing those sids write their debug statements
+ * for it, whatever the level of their logger.
+ * <p>
+ * A hot path checks its level first and the targets next, the check costs a volatile read while nothing is targeted:
+ *
+ * <pre>
+ * if (logger.isDebugEnabled()) {
+ *     logger.debug(message);
+ * } else if (TargetedLogging.isTargeted(callSid, accountSid)) {
+ *     TargetedLogging.log(Call.class, message);
+ * }
+ * </pre>
+ */
+@ThreadSafe
+public final class TargetedLogging {
+    private static final String FQCN = TargetedLogging.class.getName();
+
+    // The sids and the time their targeting expires at. Updates of the flag are synchronized, lookups aren't.
+    private static final ConcurrentMap<String, Long> targets = new ConcurrentHashMap<String, Long>();
+    private static volatile boolean empty = true;
+
+    private TargetedLogging() {
+        super();
+    }
+
+    /**
+     * Logs the statements made for the sid during the given time.
+     *
+     * @param sid the sid of a call or an account.
+     * @param duration the time to log for in milliseconds.
+     */
+    public static synchronized void target(final String sid, final long duration) {
+        if (sid == null || duration <= 0) {
+            throw new IllegalArgumentException("A target needs a sid and a positive duration.");
+        }
+        targets.put(sid, System.currentTimeMillis() + duration);
+        empty = false;
+    }
+
+    /**
+     * @return true if the sid was targeted.
+     */
+    public static synchronized boolean untarget(final String sid) {
+        final boolean removed = targets.remove(sid) != null;
+        empty = targets.isEmpty();
+        return removed;
+    }
+
+    /**
+     * @return the targeted sids with the time in milliseconds their targeting expires at.
+     */
+    public static Map<String, Long> targets() {
+        purge(System.currentTimeMillis());
+        return new HashMap<String, Long>(targets);
+    }
+
+    /**
+     * @return true if any of the sids a statement is about, i.e the call and its account, is targeted. Null sids are
+     *         ignored.
+     */
+    public static boolean isTargeted(final Object first, final Object second) {
+        if (empty) {
+            return false;
+        }
+        return isTargeted(first) || isTargeted(second);
+    }
+
+    public static boolean isTargeted(final Object sid) {
+        if (empty || sid == null) {
+            return false;
+        }
+        final Long expires = targets.get(sid.toString());
+        if (expires == null) {
+            return false;
+        }
+        final long now = System.currentTimeMillis();
+        if (expires < now) {
+            purge(now);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes the statement to the appenders of the logger of the class at INFO, bypassing the level of the logger.
+     */
+    public static void log(final Class<?> klass, final String message) {
+        final Logger logger = Logger.getLogger(klass);
+        logger.callAppenders(new LoggingEvent(FQCN, logger, Level.INFO, "[targeted] " + message, null));
+    }
+
+    private static synchronized void purge(final long now) {
+        for (final Map.Entry<String, Long> target : targets.entrySet()) {
+            if (target.getValue() < now) {
+                targets.remove(target.getKey(), target.getValue());
+            }
+        }
+        empty = targets.isEmpty();
+    }
+}
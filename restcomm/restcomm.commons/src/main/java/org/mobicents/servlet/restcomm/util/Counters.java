@@ -0,0 +1,63 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+
+/**
+ * Counters read by the monitoring service from the modules it can't depend on, i.e the SMPP binds of the SMS service,
+ * the MGCP transactions or the admission control of the traffic throttling extension.
+ */
+@ThreadSafe
+public final class Counters {
+    private static final ConcurrentMap<String, Source> sources = new ConcurrentHashMap<String, Source>();
+
+    private Counters() {
+        super();
+    }
+
+    public static void register(final String name, final Source source) {
+        sources.put(name, source);
+    }
+
+    public static void unregister(final String name) {
+        sources.remove(name);
+    }
+
+    /**
+     * @return the counters of all the registered sources.
+     */
+    public static Map<String, Integer> getCounters() {
+        final Map<String, Integer> counters = new HashMap<String, Integer>();
+        for (final Source source : sources.values()) {
+            source.counters(counters);
+        }
+        return counters;
+    }
+
+    public interface Source {
+        void counters(Map<String, Integer> counters);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.amazonS3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+
+public final class S3UploadQueueTest {
+    private File directory;
+    private File queue;
+
+    @Before
+    public void before() throws IOException {
+        directory = File.createTempFile("s3-upload-queue", "");
+        directory.delete();
+        directory.mkdirs();
+        queue = new File(directory, ".s3-uploads");
+    }
+
+    @After
+    public void after() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void testUploadedRecordingIsReported() throws Exception {
+        final StubS3AccessTool s3 = new StubS3AccessTool(0);
+        final S3UploadQueue uploads = new S3UploadQueue(s3, queue, 2, 3, 10);
+        final Uploads listener = new Uploads(1);
+        uploads.start(listener);
+        assertTrue(uploads.upload("RE1", recording("RE1").toURI().toString()));
+        assertTrue(listener.await());
+        assertEquals(URI.create("http://127.0.0.1:9000/restcomm-recordings/RE1.wav"), listener.uris.get("RE1"));
+        assertFalse(new File(queue, "RE1.upload").exists());
+        uploads.shutdown();
+    }
+
+    @Test
+    public void testPublicUrlIsKnownBeforeTheUpload() throws Exception {
+        final S3UploadQueue uploads = new S3UploadQueue(new StubS3AccessTool(0), queue, 1, 3, 10);
+        final Uploads listener = new Uploads(1);
+        uploads.start(listener);
+        final URI url = uploads.getPublicUrl("RE5.wav");
+        uploads.upload("RE5", recording("RE5").toURI().toString());
+        assertTrue(listener.await());
+        assertEquals(url, listener.uris.get("RE5"));
+        uploads.shutdown();
+    }
+
+    @Test
+    public void testFailedUploadIsRetried() throws Exception {
+        final StubS3AccessTool s3 = new StubS3AccessTool(2);
+        final S3UploadQueue uploads = new S3UploadQueue(s3, queue, 1, 3, 10);
+        final Uploads listener = new Uploads(1);
+        uploads.start(listener);
+        uploads.upload("RE2", recording("RE2").toURI().toString());
+        assertTrue(listener.await());
+        assertEquals(3, s3.attempts.get());
+        uploads.shutdown();
+    }
+
+    @Test
+    public void testUploadIsGivenUpAfterMaxAttempts() throws Exception {
+        final StubS3AccessTool s3 = new StubS3AccessTool(Integer.MAX_VALUE);
+        final S3UploadQueue uploads = new S3UploadQueue(s3, queue, 1, 2, 10);
+        uploads.start(new Uploads(1));
+        uploads.upload("RE3", recording("RE3").toURI().toString());
+        final File failed = new File(queue, "RE3.failed");
+        for (int i = 0; i < 100 && !failed.exists(); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(failed.exists());
+        assertEquals(2, s3.attempts.get());
+        assertEquals(0, uploads.getPendingUploads());
+        uploads.shutdown();
+    }
+
+    @Test
+    public void testQueuedUploadsSurviveRestarts() throws Exception {
+        // An upload queued before the restart.
+        queue.mkdirs();
+        FileUtils.writeStringToFile(new File(queue, "RE4.upload"), recording("RE4").toURI().toString(), "UTF-8");
+        final S3UploadQueue uploads = new S3UploadQueue(new StubS3AccessTool(0), queue, 1, 3, 10);
+        final Uploads listener = new Uploads(1);
+        uploads.start(listener);
+        assertTrue(listener.await());
+        assertTrue(listener.uris.containsKey("RE4"));
+        assertFalse(new File(queue, "RE4.upload").exists());
+        uploads.shutdown();
+    }
+
+    private File recording(final String sid) throws IOException {
+        final File file = new File(directory, sid + ".wav");
+        FileUtils.writeByteArrayToFile(file, new byte[1024]);
+        return file;
+    }
+
+    private static final class Uploads implements S3UploadQueue.Listener {
+        private final Map<String, URI> uris = new ConcurrentHashMap<String, URI>();
+        private final CountDownLatch latch;
+
+        private Uploads(final int count) {
+            this.latch = new CountDownLatch(count);
+        }
+
+        @Override
+        public void uploaded(final String id, final URI uri) {
+            uris.put(id, uri);
+            latch.countDown();
+        }
+
+        private boolean await() throws InterruptedException {
+            return latch.await(5, TimeUnit.SECONDS);
+        }
+    }
+
+    // Fails the first 'failures' uploads and doesn't talk to S3.
+    private static final class StubS3AccessTool extends S3AccessTool {
+        private final int failures;
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        private StubS3AccessTool(final int failures) {
+            super("access-key", "security-key", "restcomm-recordings", null, false, 1, false, "us-east-1",
+                    "http://127.0.0.1:9000", DEFAULT_MULTIPART_THRESHOLD);
+            this.failures = failures;
+        }
+
+        @Override
+        public void upload(final File file) throws InterruptedException {
+            if (attempts.incrementAndGet() <= failures) {
+                throw new AmazonClientException("Unable to execute HTTP request: Connection refused");
+            }
+        }
+
+        @Override
+        public URI getPublicUrl(final String fileName) {
+            return URI.create("http://127.0.0.1:9000/restcomm-recordings/" + fileName);
+        }
+    }
+}
@@ -113,4 +113,25 @@ public final class DiskCacheTest {
             }
         };
     }
+
+    @Test
+    public void testScope() throws Exception {
+        final File source = File.createTempFile("scoped", ".wav");
+        new JavaTestKit(system) {
+            {
+                final ActorRef observer = getRef();
+                cache.tell(new DiskCacheRequest(source.toURI(), "ACae6e420f425248d6a26948c17a9e2acf"), observer);
+                final DiskCacheResponse response = this.expectMsgClass(FiniteDuration.create(30, TimeUnit.SECONDS),
+                        DiskCacheResponse.class);
+                assertTrue(response.succeeded());
+                final File file = new File("/tmp/ACae6e420f425248d6a26948c17a9e2acf/" + source.getName());
+                assertTrue(file.exists());
+                final URI result = response.get();
+                final URI uri = URI.create("http://127.0.0.1:8080/restcomm/cache/ACae6e420f425248d6a26948c17a9e2acf/"
+                        + source.getName());
+                assertTrue(result.equals(uri));
+                file.delete();
+            }
+        };
+    }
 }
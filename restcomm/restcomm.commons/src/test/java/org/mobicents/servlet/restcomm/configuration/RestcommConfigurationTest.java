@@ -12,6 +12,7 @@ import org.apache.commons.configuration.XMLConfiguration;
 import org.junit.Before;
 import org.junit.Test;
 import org.mobicents.servlet.restcomm.configuration.sets.MainConfigurationSet;
+import org.mobicents.servlet.restcomm.configuration.sets.RcmlCacheConfigurationSet;
 import org.mobicents.servlet.restcomm.http.SslMode;
 
 public class RestcommConfigurationTest {
@@ -26,13 +27,18 @@ public class RestcommConfigurationTest {
     public void before() throws ConfigurationException, MalformedURLException {
         URL url = this.getClass().getResource("/restcomm.xml");
         // String relativePath = "../../../../../../../../restcomm.application/src/main/webapp/WEB-INF/conf/restcomm.xml";
-        xml = new XMLConfiguration(url);
+        // same as the Bootstrapper, lists are comma separated strings
+        XMLConfiguration xmlConfiguration = new XMLConfiguration();
+        xmlConfiguration.setDelimiterParsingDisabled(true);
+        xmlConfiguration.load(url);
+        xml = xmlConfiguration;
         conf = new RestcommConfiguration(xml);
     }
     
     @Test 
     public void allConfiguraitonSetsAreAvailable() {
         assertNotNull(conf.getMain());
+        assertNotNull(conf.getRcmlCache());
         // add new sets here ...
         // ...
     }
@@ -44,6 +50,25 @@ public class RestcommConfigurationTest {
         assertTrue( main.getSslMode().equals(SslMode.strict));
         assertTrue( main.getHostname().equals(""));
         assertTrue( main.isUseHostnameToResolveRelativeUrls() == true );
+        assertTrue( main.getMaxConnTotal() == 200 );
+        assertTrue( main.getMaxConnPerRoute() == 50 );
+        assertTrue( main.getKeepAliveTime() == 30000 );
+        assertTrue( main.getIdleConnectionTimeout() == 60000 );
+    }
+
+    // Test properties for the 'RcmlCache' configuration set
+    @Test
+    public void rcmlCacheSetConfigurationOptionsAreValid() {
+        RcmlCacheConfigurationSet rcmlCache = conf.getRcmlCache();
+        assertFalse( rcmlCache.isEnabled() );
+        assertTrue( rcmlCache.getMaxEntries() == 1000 );
+        assertTrue( rcmlCache.getDefaultTtl() == 0 );
+        assertTrue( rcmlCache.getIgnoredParameters().contains("CallSid") );
+        assertTrue( rcmlCache.getIgnoredParameters().contains("To") );
+        assertFalse( rcmlCache.isAllApplications() );
+        assertTrue( rcmlCache.getApplications().isEmpty() );
+        assertTrue( rcmlCache.getIncomingPhoneNumbers().isEmpty() );
+        assertFalse( rcmlCache.isCacheable("AP73926e7113fa4d95981aa96b76eca854", null) );
     }
     
     @Test 
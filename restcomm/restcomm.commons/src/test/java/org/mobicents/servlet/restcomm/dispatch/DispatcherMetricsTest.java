@@ -0,0 +1,64 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dispatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public final class DispatcherMetricsTest {
+
+    @Test
+    public void testCountersAreNamedAfterTheDispatcher() {
+        final DispatcherMetrics metrics = DispatcherMetrics.get("test.call-control-dispatcher");
+        assertSame(metrics, DispatcherMetrics.get("test.call-control-dispatcher"));
+        metrics.enqueued();
+        metrics.enqueued();
+        metrics.dequeued();
+        metrics.rejected();
+        final Map<String, Integer> counters = DispatcherMetrics.getCounters();
+        assertEquals(1, (int) counters.get("DispatcherCallControlMailboxSize"));
+        assertEquals(1, (int) counters.get("DispatcherCallControlMailboxRejected"));
+        // No executor was created for this dispatcher.
+        assertFalse(counters.containsKey("DispatcherCallControlQueueDepth"));
+    }
+
+    @Test
+    public void testProcessingTimeIsAveragedSinceThePreviousRead() {
+        final DispatcherMetrics metrics = DispatcherMetrics.get("test.disk-dispatcher");
+        metrics.processed(TimeUnit.MILLISECONDS.toNanos(1));
+        metrics.processed(TimeUnit.MILLISECONDS.toNanos(3));
+        Map<String, Integer> counters = DispatcherMetrics.getCounters();
+        assertEquals(2000, (int) counters.get("DispatcherDiskProcessingTimeAvgMicros"));
+        assertEquals(3000, (int) counters.get("DispatcherDiskProcessingTimeMaxMicros"));
+        metrics.processed(TimeUnit.MILLISECONDS.toNanos(10));
+        counters = DispatcherMetrics.getCounters();
+        assertEquals(10000, (int) counters.get("DispatcherDiskProcessingTimeAvgMicros"));
+        assertEquals(10000, (int) counters.get("DispatcherDiskProcessingTimeMaxMicros"));
+        counters = DispatcherMetrics.getCounters();
+        assertEquals(0, (int) counters.get("DispatcherDiskProcessingTimeAvgMicros"));
+        assertEquals(0, (int) counters.get("DispatcherDiskProcessingTimeMaxMicros"));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dispatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public final class OrderedExecutorTest {
+    private ExecutorService pool;
+
+    @Before
+    public void before() {
+        pool = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void after() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void testTasksOfAKeyRunInOrder() throws InterruptedException {
+        final OrderedExecutor executor = new OrderedExecutor(pool, 8);
+        final int keys = 20;
+        final int tasks = 100;
+        final List<List<Integer>> runs = new ArrayList<List<Integer>>();
+        for (int key = 0; key < keys; key++) {
+            runs.add(Collections.synchronizedList(new ArrayList<Integer>()));
+        }
+        final CountDownLatch done = new CountDownLatch(keys * tasks);
+        for (int task = 0; task < tasks; task++) {
+            for (int key = 0; key < keys; key++) {
+                final List<Integer> run = runs.get(key);
+                final int number = task;
+                executor.execute("key-" + key, new Runnable() {
+                    @Override
+                    public void run() {
+                        run.add(number);
+                        done.countDown();
+                    }
+                });
+            }
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (final List<Integer> run : runs) {
+            assertEquals(tasks, run.size());
+            for (int task = 0; task < tasks; task++) {
+                assertEquals(task, (int) run.get(task));
+            }
+        }
+    }
+
+    @Test
+    public void testAFailedTaskDoesNotStopTheOthers() throws InterruptedException {
+        final OrderedExecutor executor = new OrderedExecutor(pool, 1);
+        final CountDownLatch done = new CountDownLatch(1);
+        executor.execute("key", new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("The database is down.");
+            }
+        });
+        executor.execute("key", new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dispatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public final class PacedQueueTest {
+    private static final long PERIOD = 100;
+
+    // Records the tasks it starts in a list shared by the batches of a test.
+    private static final class Tasks extends PacedQueue.Batch {
+        private final String name;
+        private final int size;
+        private final List<String> started;
+        private int next;
+        // The number of tasks that can be started, all of them by default.
+        private int ready;
+        private boolean skipping;
+        private int finished;
+
+        private Tasks(final String name, final int size, final List<String> started) {
+            super();
+            this.name = name;
+            this.size = size;
+            this.started = started;
+            this.ready = size;
+        }
+
+        @Override
+        protected boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        protected boolean ready() {
+            return next < ready;
+        }
+
+        @Override
+        protected boolean startNext() {
+            final int task = next++;
+            if (skipping) {
+                return false;
+            }
+            started.add(name + task);
+            return true;
+        }
+
+        @Override
+        protected void onFinished() {
+            finished++;
+        }
+    }
+
+    private static void tick(final PacedQueue<String, Tasks> queue, final int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            queue.tick(0);
+        }
+    }
+
+    @Test
+    public void testTasksArePacedByTheRate() {
+        final List<String> started = new ArrayList<String>();
+        // Half a task a tick.
+        final PacedQueue<String, Tasks> queue = new PacedQueue<String, Tasks>(5, 100, 0, PERIOD);
+        queue.add("a", new Tasks("a", 3, started));
+        tick(queue, 1);
+        assertTrue(started.isEmpty());
+        tick(queue, 1);
+        assertEquals(Arrays.asList("a0"), started);
+        tick(queue, 4);
+        assertEquals(Arrays.asList("a0", "a1", "a2"), started);
+        assertEquals(3, queue.active());
+    }
+
+    @Test
+    public void testTokensAreCappedToASecond() {
+        final List<String> started = new ArrayList<String>();
+        final PacedQueue<String, Tasks> queue = new PacedQueue<String, Tasks>(5, 100, 0, PERIOD);
+        // Idle ticks do not pile up more than a second worth of tokens.
+        tick(queue, 50);
+        queue.add("a", new Tasks("a", 20, started));
+        tick(queue, 1);
+        assertEquals(5, started.size());
+        // A rate below one a second still starts a task once the token is whole, an eighth of a token a tick here.
+        final PacedQueue<String, Tasks> slow = new PacedQueue<String, Tasks>(0.5, 100, 0, 250);
+        final List<String> slowStarted = new ArrayList<String>();
+        slow.add("b", new Tasks("b", 2, slowStarted));
+        tick(slow, 7);
+        assertTrue(slowStarted.isEmpty());
+        tick(slow, 1);
+        assertEquals(Arrays.asList("b0"), slowStarted);
+    }
+
+    @Test
+    public void testConcurrentTasksAreLimited() {
+        final List<String> started = new ArrayList<String>();
+        final PacedQueue<String, Tasks> queue = new PacedQueue<String, Tasks>(100, 2, 0, PERIOD);
+        final Tasks batch = new Tasks("a", 3, started);
+        queue.add("a", batch);
+        tick(queue, 5);
+        assertEquals(Arrays.asList("a0", "a1"), started);
+        assertEquals(2, queue.active());
+        assertEquals(2, batch.active());
+        // The slot of a done task goes to the next one.
+        queue.done(batch, 0);
+        tick(queue, 1);
+        assertEquals(Arrays.asList("a0", "a1", "a2"), started);
+        assertEquals(2, queue.active());
+    }
+
+    @Test
+    public void testBatchesTakeTurns() {
+        final List<String> started = new ArrayList<String>();
+        // A task a tick.
+        final PacedQueue<String, Tasks> queue = new PacedQueue<String, Tasks>(10, 100, 0, PERIOD);
+        queue.add("a", new Tasks("a", 2, started));
+        queue.add("b", new Tasks("b", 3, started));
+        tick(queue, 10);
+        assertEquals(Arrays.asList("a0", "b0", "a1", "b1", "b2"), started);
+    }
+
+    @Test
+    public void testBatchesNotReadyArePassedOver() {
+        final List<String> started = new ArrayList<String>();
+        final PacedQueue<String, Tasks> queue = new PacedQueue<String, Tasks>(10, 100, 0, PERIOD);
+        final Tasks waiting = new Tasks("a", 2, started);
+        waiting.ready = 0;
+        queue.add("a", waiting);
+        queue.add("b", new Tasks("b", 2, started));
+        tick(queue, 2);
+        assertEquals(Arrays.asList("b0", "b1"), started);
+        // Its turn is kept until the tasks are ready.
+        waiting.ready = 2;
+        tick(queue, 2);
+        assertEquals(Arrays.asList("b0", "b1", "a0", "a1"), started);
+    }
+
+    @Test
+    public void testSkippedTasksTakeNoToken() {
+        final List<String> started = new ArrayList<String>();
+        // Two tasks a tick.
+        final PacedQueue<String, Tasks> queue = new PacedQueue<String, Tasks>(20, 100, 0, PERIOD);
+        final Tasks skipped = new Tasks("a", 5, started);
+        skipped.skipping = true;
+        queue.add("a", skipped);
+        queue.add("b", new Tasks("b", 1, started));
+        tick(queue, 1);
+        assertEquals(Arrays.asList("b0"), started);
+        // Nothing was started, the batch is over as soon as its tasks were all skipped.
+        assertEquals(0, skipped.active());
+        assertTrue(skipped.isFinished());
+        assertEquals(1, skipped.finished);
+    }
+
+    @Test
+    public void testCanceledBatchFinishesWhenItsTasksAreDone() {
+        final List<String> started = new ArrayList<String>();
+        final PacedQueue<String, Tasks> queue = new PacedQueue<String, Tasks>(10, 100, 0, PERIOD);
+        final Tasks batch = new Tasks("a", 3, started);
+        queue.add("a", batch);
+        tick(queue, 1);
+        batch.next = batch.size;
+        queue.cancel(batch, 0);
+        assertFalse(batch.isFinished());
+        tick(queue, 5);
+        assertEquals(Arrays.asList("a0"), started);
+        queue.done(batch, 0);
+        assertTrue(batch.isFinished());
+        assertEquals(1, batch.finished);
+    }
+
+    @Test
+    public void testFinishedBatchesAreKeptForTheRetention() {
+        final List<String> started = new ArrayList<String>();
+        final PacedQueue<String, Tasks> queue = new PacedQueue<String, Tasks>(10, 100, 1000, PERIOD);
+        final Tasks first = new Tasks("a", 1, started);
+        final Tasks second = new Tasks("b", 1, started);
+        queue.add("a", first);
+        queue.add("b", second);
+        queue.tick(0);
+        queue.tick(100);
+        queue.done(first, 100);
+        queue.done(second, 500);
+        queue.tick(1099);
+        assertSame(first, queue.get("a"));
+        queue.tick(1100);
+        assertNull(queue.get("a"));
+        assertSame(second, queue.get("b"));
+        assertEquals(1, queue.batches().size());
+        queue.tick(1500);
+        assertTrue(queue.batches().isEmpty());
+    }
+}
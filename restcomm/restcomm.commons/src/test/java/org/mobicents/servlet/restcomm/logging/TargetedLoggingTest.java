@@ -0,0 +1,56 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.logging;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+public final class TargetedLoggingTest {
+
+    @After
+    public void after() {
+        for (final String sid : TargetedLogging.targets().keySet()) {
+            TargetedLogging.untarget(sid);
+        }
+    }
+
+    @Test
+    public void testTargetedSidsAreMatchedUntilUntargeted() {
+        assertFalse(TargetedLogging.isTargeted("CA1", "AC1"));
+        TargetedLogging.target("AC1", 60000);
+        assertTrue(TargetedLogging.isTargeted("CA1", "AC1"));
+        assertTrue(TargetedLogging.isTargeted(null, "AC1"));
+        assertFalse(TargetedLogging.isTargeted("CA2", "AC2"));
+        assertTrue(TargetedLogging.untarget("AC1"));
+        assertFalse(TargetedLogging.isTargeted("CA1", "AC1"));
+        assertFalse(TargetedLogging.untarget("AC1"));
+    }
+
+    @Test
+    public void testExpiredTargetsAreDropped() throws InterruptedException {
+        TargetedLogging.target("CA1", 1);
+        Thread.sleep(10);
+        assertFalse(TargetedLogging.isTargeted("CA1"));
+        assertTrue(TargetedLogging.targets().isEmpty());
+    }
+}
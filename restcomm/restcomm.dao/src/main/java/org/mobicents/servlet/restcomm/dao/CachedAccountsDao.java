@@ -0,0 +1,161 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dao;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.entities.Account;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+/**
+ * Read-through cache of the accounts looked up by sid, by name and to authenticate, so that authenticating and
+ * authorizing a REST API request doesn't have to query the database over and over.
+ *
+ * The least recently used accounts are evicted once 'maxSize' lookups are cached. Adding, updating or removing an
+ * account through this DAO drops the whole cache, since an account is cached under each of its lookups. Entries also
+ * expire after a while so that changes made by other cluster nodes are picked up.
+ */
+@ThreadSafe
+public final class CachedAccountsDao implements AccountsDao {
+    private enum Lookup {
+        SID, NAME, AUTHENTICATE
+    }
+
+    private final AccountsDao dao;
+    private final long ttl;
+    private final Map<String, Entry> accounts;
+    // Bumped by every invalidation so that a lookup racing with an update doesn't cache stale data.
+    private long generation;
+
+    /**
+     * @param maxSize the lookups kept at most.
+     * @param ttl how long, in milliseconds, an account is kept.
+     */
+    public CachedAccountsDao(final AccountsDao dao, final int maxSize, final long ttl) {
+        super();
+        this.dao = dao;
+        this.ttl = ttl;
+        this.accounts = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    @Override
+    public void addAccount(final Account account) {
+        dao.addAccount(account);
+        // Lookups of this account that failed so far are cached.
+        invalidate();
+    }
+
+    @Override
+    public Account getAccount(final Sid sid) {
+        return get(Lookup.SID, sid.toString());
+    }
+
+    @Override
+    public Account getAccount(final String name) {
+        return get(Lookup.NAME, name);
+    }
+
+    @Override
+    public Account getAccountToAuthenticate(final String name) {
+        return get(Lookup.AUTHENTICATE, name);
+    }
+
+    @Override
+    public List<Account> getAccounts(final Sid sid) {
+        return dao.getAccounts(sid);
+    }
+
+    @Override
+    public void removeAccount(final Sid sid) {
+        dao.removeAccount(sid);
+        invalidate();
+    }
+
+    @Override
+    public void updateAccount(final Account account) {
+        dao.updateAccount(account);
+        invalidate();
+    }
+
+    /**
+     * Drops every cached account.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        accounts.clear();
+    }
+
+    public synchronized int size() {
+        return accounts.size();
+    }
+
+    private Account get(final Lookup lookup, final String key) {
+        final String name = lookup.name() + ":" + key;
+        final long current;
+        synchronized (this) {
+            final Entry entry = accounts.get(name);
+            if (entry != null && System.currentTimeMillis() - entry.loaded < ttl) {
+                return entry.account;
+            }
+            current = generation;
+        }
+        final Account account = load(lookup, key);
+        synchronized (this) {
+            if (generation == current) {
+                accounts.put(name, new Entry(account, System.currentTimeMillis()));
+            }
+        }
+        return account;
+    }
+
+    private Account load(final Lookup lookup, final String key) {
+        switch (lookup) {
+            case SID:
+                return dao.getAccount(new Sid(key));
+            case NAME:
+                return dao.getAccount(key);
+            default:
+                return dao.getAccountToAuthenticate(key);
+        }
+    }
+
+    @Immutable
+    private static final class Entry {
+        private final Account account;
+        private final long loaded;
+
+        private Entry(final Account account, final long loaded) {
+            super();
+            this.account = account;
+            this.loaded = loaded;
+        }
+    }
+}
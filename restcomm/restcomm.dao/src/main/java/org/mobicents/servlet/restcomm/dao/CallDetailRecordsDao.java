@@ -64,4 +64,11 @@ public interface CallDetailRecordsDao {
     List<CallDetailRecord> getCallDetailRecords(CallDetailRecordFilter filter);
 
     Integer getTotalCallDetailRecords(CallDetailRecordFilter filter);
+
+    // Keyset pagination, the records that come after the page token of the filter sorted by creation date and sid.
+    List<CallDetailRecord> getCallDetailRecordsPage(CallDetailRecordFilter filter);
+
+    void getCallDetailRecords(CallDetailRecordFilter filter, RecordHandler<CallDetailRecord> handler);
+
+    void getCallDetailRecordsPage(CallDetailRecordFilter filter, RecordHandler<CallDetailRecord> handler);
 }
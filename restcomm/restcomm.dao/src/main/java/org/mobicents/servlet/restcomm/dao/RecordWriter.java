@@ -0,0 +1,61 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dao;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.dispatch.OrderedExecutor;
+import org.mobicents.servlet.restcomm.entities.CallDetailRecord;
+import org.mobicents.servlet.restcomm.entities.Notification;
+
+/**
+ * Writes the call detail records and notifications of the calls and interpreters without blocking their dispatcher.
+ * The writes run on the database dispatcher, the writes of a record in the order they were made. Failed writes are
+ * logged. A call detail record is inserted by its call before its updates are handed over, so that it can be read back
+ * as soon as the call is known.
+ */
+@ThreadSafe
+public final class RecordWriter {
+    private final DaoManager storage;
+    private final OrderedExecutor executor;
+
+    public RecordWriter(final DaoManager storage, final OrderedExecutor executor) {
+        super();
+        this.storage = storage;
+        this.executor = executor;
+    }
+
+    public void updateCallDetailRecord(final CallDetailRecord record) {
+        executor.execute(record.getSid(), new Runnable() {
+            @Override
+            public void run() {
+                storage.getCallDetailRecordsDao().updateCallDetailRecord(record);
+            }
+        });
+    }
+
+    public void addNotification(final Notification notification) {
+        executor.execute(notification.getSid(), new Runnable() {
+            @Override
+            public void run() {
+                storage.getNotificationsDao().addNotification(notification);
+            }
+        });
+    }
+}
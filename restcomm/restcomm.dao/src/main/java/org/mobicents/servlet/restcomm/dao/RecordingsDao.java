@@ -19,6 +19,7 @@
  */
 package org.mobicents.servlet.restcomm.dao;
 
+import java.net.URI;
 import java.util.List;
 
 import org.mobicents.servlet.restcomm.entities.Recording;
@@ -32,6 +33,12 @@ public interface RecordingsDao {
 
     Recording getRecording(Sid sid);
 
+    /**
+     * @return the URL the recording can be downloaded from, when the recordings are uploaded to S3 it is the S3 URL
+     *         even while the upload is still in progress.
+     */
+    URI getRecordingUrl(Sid sid);
+
     // otsakir: is this really needed?
     Recording getRecordingByCall(Sid callSid);
 
@@ -39,6 +46,8 @@ public interface RecordingsDao {
 
     List<Recording> getRecordings(Sid accountSid);
 
+    void getRecordings(Sid accountSid, RecordHandler<Recording> handler);
+
     void removeRecording(Sid sid);
 
     void removeRecordings(Sid accountSid);
@@ -21,6 +21,7 @@ package org.mobicents.servlet.restcomm.dao;
 
 import java.util.List;
 
+import org.joda.time.DateTime;
 import org.mobicents.servlet.restcomm.entities.Registration;
 
 /**
@@ -37,6 +38,16 @@ public interface RegistrationsDao {
 
     List<Registration> getRegistrations();
 
+    /**
+     * The registrations that expired at or before the given date.
+     */
+    List<Registration> getExpiredRegistrations(DateTime date);
+
+    /**
+     * The registrations that were neither refreshed nor answered a keep alive since the given date.
+     */
+    List<Registration> getRegistrationsUpdatedBefore(DateTime date);
+
     boolean hasRegistration(Registration registration);
 
     void removeRegistration(Registration registration);
@@ -0,0 +1,286 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dao;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.entities.Account;
+import org.mobicents.servlet.restcomm.entities.Application;
+import org.mobicents.servlet.restcomm.entities.IncomingPhoneNumber;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+/**
+ * Read-through cache of the inbound call routes, an incoming phone number along with the account that owns it and the
+ * voice application attached to it, so that setting up a call doesn't have to query the database.
+ *
+ * Lookups of numbers that don't exist are cached as well since the call manager tries several variants of the dialed
+ * number before falling back to the '*' wildcard. Anyone can dial any number, so these misses are kept apart in a LRU
+ * bounded to max-misses entries. Whoever updates numbers, accounts or applications must call {@link #invalidate()}.
+ * Entries also expire after a while so that changes made by other cluster nodes are picked up, expired entries are
+ * purged at most once per ttl.
+ */
+@ThreadSafe
+public final class RoutingCache {
+    private static final Logger logger = Logger.getLogger(RoutingCache.class);
+    private static final int DEFAULT_MAX_MISSES = 10000;
+
+    private final IncomingPhoneNumbersDao numbers;
+    private final AccountsDao accounts;
+    private final ApplicationsDao applications;
+    private final boolean enabled;
+    private final long ttl;
+    private final ConcurrentMap<String, Route> routes;
+    // The numbers that don't exist with the time they were looked up at, guarded by itself.
+    private final Map<String, Long> misses;
+    private final AtomicLong lastPurge;
+    // Bumped by every invalidation so that a lookup racing with an update doesn't cache stale data.
+    private final AtomicLong generation;
+
+    /**
+     * @param ttl how long, in milliseconds, a route is kept. 0 keeps routes until the next invalidation.
+     */
+    public RoutingCache(final IncomingPhoneNumbersDao numbers, final AccountsDao accounts,
+            final ApplicationsDao applications, final boolean enabled, final long ttl) {
+        this(numbers, accounts, applications, enabled, ttl, DEFAULT_MAX_MISSES);
+    }
+
+    /**
+     * @param ttl how long, in milliseconds, a route is kept. 0 keeps routes until the next invalidation.
+     * @param maxMisses how many numbers that don't exist are remembered, 0 to not remember them.
+     */
+    public RoutingCache(final IncomingPhoneNumbersDao numbers, final AccountsDao accounts,
+            final ApplicationsDao applications, final boolean enabled, final long ttl, final int maxMisses) {
+        super();
+        this.numbers = numbers;
+        this.accounts = accounts;
+        this.applications = applications;
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.routes = new ConcurrentHashMap<String, Route>();
+        this.misses = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Long> eldest) {
+                return size() > maxMisses;
+            }
+        };
+        this.lastPurge = new AtomicLong(System.currentTimeMillis());
+        this.generation = new AtomicLong();
+    }
+
+    /**
+     * @param phoneNumber the phone number exactly as it is stored, i.e +15126002188 or *
+     * @return the route of the number or null if there is no such number.
+     */
+    public Route getRoute(final String phoneNumber) {
+        if (phoneNumber == null) {
+            return null;
+        }
+        final long now = System.currentTimeMillis();
+        purge(now);
+        Route route = routes.get(phoneNumber);
+        if (route != null && !route.isExpired(ttl, now)) {
+            return route;
+        }
+        if (isMissing(phoneNumber, now)) {
+            return null;
+        }
+        final long current = generation.get();
+        route = load(phoneNumber, null, null);
+        if (enabled) {
+            if (route != null) {
+                routes.put(phoneNumber, route);
+                if (generation.get() != current) {
+                    routes.remove(phoneNumber, route);
+                }
+            } else {
+                routes.remove(phoneNumber);
+                synchronized (misses) {
+                    misses.put(phoneNumber, now);
+                }
+                if (generation.get() != current) {
+                    synchronized (misses) {
+                        misses.remove(phoneNumber);
+                    }
+                }
+            }
+        }
+        return route;
+    }
+
+    /**
+     * Caches the routes of all the incoming phone numbers, used at start up.
+     */
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        final long current = generation.get();
+        final List<IncomingPhoneNumber> all = numbers.getAllIncomingPhoneNumbers();
+        // Many numbers belong to the same account or application so only look each of them up once.
+        final Map<Sid, Account> accountsBySid = new HashMap<Sid, Account>();
+        final Map<Sid, Application> applicationsBySid = new HashMap<Sid, Application>();
+        for (final IncomingPhoneNumber number : all) {
+            routes.put(number.getPhoneNumber(), route(number, accountsBySid, applicationsBySid));
+        }
+        if (generation.get() != current) {
+            invalidate();
+        }
+        if (logger.isInfoEnabled()) {
+            logger.info("Loaded the routes of " + all.size() + " incoming phone numbers");
+        }
+    }
+
+    /**
+     * Drops every cached route. Call it after adding, updating or removing an incoming phone number, an account or an
+     * application.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        routes.clear();
+        synchronized (misses) {
+            misses.clear();
+        }
+    }
+
+    /**
+     * @return the number of cached routes, numbers that don't exist included.
+     */
+    public int size() {
+        synchronized (misses) {
+            return routes.size() + misses.size();
+        }
+    }
+
+    private boolean isMissing(final String phoneNumber, final long now) {
+        synchronized (misses) {
+            final Long created = misses.get(phoneNumber);
+            if (created == null) {
+                return false;
+            }
+            if (ttl > 0 && now - created > ttl) {
+                misses.remove(phoneNumber);
+                return false;
+            }
+            return true;
+        }
+    }
+
+    // Drops the expired routes, so that numbers that aren't called anymore don't stay in memory.
+    private void purge(final long now) {
+        final long last = lastPurge.get();
+        if (ttl <= 0 || now - last < ttl || !lastPurge.compareAndSet(last, now)) {
+            return;
+        }
+        for (final Map.Entry<String, Route> entry : routes.entrySet()) {
+            if (entry.getValue().isExpired(ttl, now)) {
+                routes.remove(entry.getKey(), entry.getValue());
+            }
+        }
+        synchronized (misses) {
+            final Iterator<Long> created = misses.values().iterator();
+            while (created.hasNext()) {
+                if (now - created.next() > ttl) {
+                    created.remove();
+                }
+            }
+        }
+    }
+
+    private Route load(final String phoneNumber, final Map<Sid, Account> accountsBySid,
+            final Map<Sid, Application> applicationsBySid) {
+        final IncomingPhoneNumber number = numbers.getIncomingPhoneNumber(phoneNumber);
+        if (number == null) {
+            return null;
+        }
+        return route(number, accountsBySid, applicationsBySid);
+    }
+
+    private Route route(final IncomingPhoneNumber number, final Map<Sid, Account> accountsBySid,
+            final Map<Sid, Application> applicationsBySid) {
+        final Sid accountSid = number.getAccountSid();
+        Account account = accountsBySid != null ? accountsBySid.get(accountSid) : null;
+        if (account == null && accountSid != null) {
+            account = accounts.getAccount(accountSid);
+            if (accountsBySid != null && account != null) {
+                accountsBySid.put(accountSid, account);
+            }
+        }
+        final Sid applicationSid = number.getVoiceApplicationSid();
+        Application application = applicationsBySid != null ? applicationsBySid.get(applicationSid) : null;
+        if (application == null && applicationSid != null) {
+            application = applications.getApplication(applicationSid);
+            if (applicationsBySid != null && application != null) {
+                applicationsBySid.put(applicationSid, application);
+            }
+        }
+        return new Route(number, account, application, System.currentTimeMillis());
+    }
+
+    /**
+     * A snapshot of everything needed to start the voice application of an incoming phone number.
+     */
+    @Immutable
+    public static final class Route {
+        private final IncomingPhoneNumber number;
+        private final Account account;
+        private final Application application;
+        private final long created;
+
+        private Route(final IncomingPhoneNumber number, final Account account, final Application application,
+                final long created) {
+            super();
+            this.number = number;
+            this.account = account;
+            this.application = application;
+            this.created = created;
+        }
+
+        public IncomingPhoneNumber getNumber() {
+            return number;
+        }
+
+        public Account getAccount() {
+            return account;
+        }
+
+        /**
+         * @return the voice application of the number or null if the number uses a voice url.
+         */
+        public Application getApplication() {
+            return application;
+        }
+
+        private boolean isExpired(final long ttl, final long now) {
+            return ttl > 0 && now - created > ttl;
+        }
+    }
+}
@@ -30,13 +30,25 @@ import org.mobicents.servlet.restcomm.entities.SmsMessage;
 public interface SmsMessagesDao {
     void addSmsMessage(SmsMessage smsMessage);
 
+    /**
+     * Inserts the messages in JDBC batches of at most batchSize statements, one transaction per batch.
+     */
+    void addSmsMessages(List<SmsMessage> smsMessages, int batchSize);
+
     SmsMessage getSmsMessage(Sid sid);
 
     List<SmsMessage> getSmsMessages(Sid accountSid);
 
+    void getSmsMessages(Sid accountSid, RecordHandler<SmsMessage> handler);
+
     void removeSmsMessage(Sid sid);
 
     void removeSmsMessages(Sid accountSid);
 
     void updateSmsMessage(SmsMessage smsMessage);
+
+    /**
+     * Updates the messages in JDBC batches of at most batchSize statements, one transaction per batch.
+     */
+    void updateSmsMessages(List<SmsMessage> smsMessages, int batchSize);
 }
@@ -40,11 +40,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.joda.time.DateTime;
 import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
 import org.mobicents.servlet.restcomm.dao.CallDetailRecordsDao;
+import org.mobicents.servlet.restcomm.dao.RecordHandler;
 import org.mobicents.servlet.restcomm.entities.CallDetailRecord;
 import org.mobicents.servlet.restcomm.entities.CallDetailRecordFilter;
 import org.mobicents.servlet.restcomm.entities.Sid;
@@ -54,7 +57,7 @@ import org.mobicents.servlet.restcomm.entities.Sid;
  */
 @ThreadSafe
 public final class MybatisCallDetailRecordsDao implements CallDetailRecordsDao {
-    private static final String namespace = "org.mobicents.servlet.sip.restcomm.dao.CallDetailRecordsDao.";
+    static final String namespace = "org.mobicents.servlet.sip.restcomm.dao.CallDetailRecordsDao.";
     private final SqlSessionFactory sessions;
 
     public MybatisCallDetailRecordsDao(final SqlSessionFactory sessions) {
@@ -125,6 +128,57 @@ public final class MybatisCallDetailRecordsDao implements CallDetailRecordsDao {
         }
     }
 
+    @Override
+    public List<CallDetailRecord> getCallDetailRecordsPage(CallDetailRecordFilter filter) {
+        final SqlSession session = sessions.openSession();
+        try {
+            final List<Map<String, Object>> results = session.selectList(namespace + "getCallDetailRecordPageByUsingFilters",
+                    filter);
+            final List<CallDetailRecord> cdrs = new ArrayList<CallDetailRecord>();
+            if (results != null && !results.isEmpty()) {
+                for (final Map<String, Object> result : results) {
+                    cdrs.add(toCallDetailRecord(result));
+                }
+            }
+            return cdrs;
+        } finally {
+            session.close();
+        }
+    }
+
+    @Override
+    public void getCallDetailRecords(final CallDetailRecordFilter filter, final RecordHandler<CallDetailRecord> handler) {
+        final SqlSession session = sessions.openSession();
+        try {
+            session.select(namespace + "getCallDetailRecordByUsingFilters", filter, new ResultHandler() {
+                @SuppressWarnings("unchecked")
+                @Override
+                public void handleResult(final ResultContext context) {
+                    handler.handle(toCallDetailRecord((Map<String, Object>) context.getResultObject()));
+                }
+            });
+        } finally {
+            session.close();
+        }
+    }
+
+    @Override
+    public void getCallDetailRecordsPage(final CallDetailRecordFilter filter,
+            final RecordHandler<CallDetailRecord> handler) {
+        final SqlSession session = sessions.openSession();
+        try {
+            session.select(namespace + "getCallDetailRecordPageByUsingFilters", filter, new ResultHandler() {
+                @SuppressWarnings("unchecked")
+                @Override
+                public void handleResult(final ResultContext context) {
+                    handler.handle(toCallDetailRecord((Map<String, Object>) context.getResultObject()));
+                }
+            });
+        } finally {
+            session.close();
+        }
+    }
+
     @Override
     public List<CallDetailRecord> getCallDetailRecords(final Sid accountSid) {
         return getCallDetailRecords(namespace + "getCallDetailRecords", accountSid.toString());
@@ -256,7 +310,7 @@ public final class MybatisCallDetailRecordsDao implements CallDetailRecordsDao {
                 uri, callPath, ringDuration, muted, startConferenceOnEnter, endConferenceOnExit, onHold);
     }
 
-    private Map<String, Object> toMap(final CallDetailRecord cdr) {
+    Map<String, Object> toMap(final CallDetailRecord cdr) {
         final Map<String, Object> map = new HashMap<String, Object>();
         map.put("sid", writeSid(cdr.getSid()));
         map.put("instanceid", cdr.getInstanceId());
@@ -19,9 +19,11 @@
  */
 package org.mobicents.servlet.restcomm.dao.mybatis;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.Reader;
+import java.net.URI;
 import java.util.Properties;
 
 import org.apache.commons.configuration.Configuration;
@@ -31,6 +33,7 @@ import org.mobicents.servlet.restcomm.dao.AccountsDao;
 import org.mobicents.servlet.restcomm.dao.AnnouncementsDao;
 import org.mobicents.servlet.restcomm.dao.ApplicationsDao;
 import org.mobicents.servlet.restcomm.dao.AvailablePhoneNumbersDao;
+import org.mobicents.servlet.restcomm.dao.CachedAccountsDao;
 import org.mobicents.servlet.restcomm.dao.CallDetailRecordsDao;
 import org.mobicents.servlet.restcomm.dao.ClientsDao;
 import org.mobicents.servlet.restcomm.dao.ConferenceDetailRecordsDao;
@@ -43,11 +46,13 @@ import org.mobicents.servlet.restcomm.dao.NotificationsDao;
 import org.mobicents.servlet.restcomm.dao.OutgoingCallerIdsDao;
 import org.mobicents.servlet.restcomm.dao.RecordingsDao;
 import org.mobicents.servlet.restcomm.dao.RegistrationsDao;
+import org.mobicents.servlet.restcomm.dao.RoutingCache;
 import org.mobicents.servlet.restcomm.dao.ShortCodesDao;
 import org.mobicents.servlet.restcomm.dao.SmsMessagesDao;
 import org.mobicents.servlet.restcomm.dao.TranscriptionsDao;
 import org.mobicents.servlet.restcomm.dao.UsageDao;
 import org.mobicents.servlet.restcomm.amazonS3.S3AccessTool;
+import org.mobicents.servlet.restcomm.amazonS3.S3UploadQueue;
 import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
 
 /**
@@ -58,7 +63,7 @@ public final class MybatisDaoManager implements DaoManager {
     private Configuration configuration;
     private Configuration amazonS3Configuration;
     private Configuration runtimeConfiguration;
-    private S3AccessTool s3AccessTool;
+    private S3UploadQueue s3UploadQueue;
     private AccountsDao accountsDao;
     private ApplicationsDao applicationsDao;
     private AvailablePhoneNumbersDao availablePhoneNumbersDao;
@@ -74,10 +79,12 @@ public final class MybatisDaoManager implements DaoManager {
     private ShortCodesDao shortCodesDao;
     private SmsMessagesDao smsMessagesDao;
     private UsageDao usageDao;
+    private MybatisUsageRollup usageRollup;
     private TranscriptionsDao transcriptionsDao;
     private GatewaysDao gatewaysDao;
     private AnnouncementsDao announcementsDao;
     private InstanceIdDao instanceIdDao;
+    private RoutingCache routingCache;
 
     public MybatisDaoManager() {
         super();
@@ -185,9 +192,25 @@ public final class MybatisDaoManager implements DaoManager {
         return instanceIdDao;
     }
 
+    @Override
+    public RoutingCache getRoutingCache() {
+        return routingCache;
+    }
+
     @Override
     public void shutdown() {
-        // Nothing to do.
+        if (callDetailRecordsDao instanceof MybatisWriteBehindCallDetailRecordsDao) {
+            ((MybatisWriteBehindCallDetailRecordsDao) callDetailRecordsDao).shutdown();
+        }
+        if (usageRollup != null) {
+            usageRollup.shutdown();
+        }
+        if (presenceRecordsDao instanceof MybatisWriteBehindRegistrationsDao) {
+            ((MybatisWriteBehindRegistrationsDao) presenceRecordsDao).shutdown();
+        }
+        if (s3UploadQueue != null) {
+            s3UploadQueue.shutdown();
+        }
     }
 
     @Override
@@ -220,19 +243,48 @@ public final class MybatisDaoManager implements DaoManager {
                 final int daysToRetainPublicUrl = amazonS3Configuration.getInt("days-to-retain-public-url");
                 final boolean removeOriginalFile = amazonS3Configuration.getBoolean("remove-original-file");
                 final String bucketRegion = amazonS3Configuration.getString("bucket-region");
-                s3AccessTool = new S3AccessTool(accessKey, securityKey, bucketName, folder, reducedRedundancy, daysToRetainPublicUrl, removeOriginalFile,bucketRegion);
+                final String endpoint = amazonS3Configuration.getString("endpoint");
+                final long multipartThreshold = amazonS3Configuration.getLong("multipart-threshold", 16) * 1024 * 1024;
+                final S3AccessTool s3AccessTool = new S3AccessTool(accessKey, securityKey, bucketName, folder,
+                        reducedRedundancy, daysToRetainPublicUrl, removeOriginalFile, bucketRegion, endpoint,
+                        multipartThreshold);
+                String queuePath = amazonS3Configuration.getString("upload-queue-path");
+                if (queuePath == null || queuePath.isEmpty()) {
+                    queuePath = new File(URI.create(runtimeConfiguration.getString("recordings-path")), ".s3-uploads").getPath();
+                }
+                final int threads = amazonS3Configuration.getInt("upload-threads", 4);
+                final int maxAttempts = amazonS3Configuration.getInt("upload-max-attempts", 10);
+                final long retryDelay = amazonS3Configuration.getLong("upload-retry-delay", 1);
+                s3UploadQueue = new S3UploadQueue(s3AccessTool, new File(queuePath), threads, maxAttempts, retryDelay * 1000);
             }
         }
         start(sessions);
+        // Warm up the inbound call routes so the first calls don't have to hit the database.
+        routingCache.load();
     }
 
     public void start(final SqlSessionFactory sessions) {
         // Instantiate the DAO objects.
         accountsDao = new MybatisAccountsDao(sessions);
+        if (configuration != null && configuration.getBoolean("accounts-cache.enabled", false)) {
+            final int maxSize = configuration.getInt("accounts-cache.max-size", 10000);
+            final long ttl = configuration.getLong("accounts-cache.ttl", 60);
+            accountsDao = new CachedAccountsDao(accountsDao, maxSize, ttl * 1000);
+        }
         applicationsDao = new MybatisApplicationsDao(sessions);
         announcementsDao = new MybatisAnnouncementsDao(sessions);
         availablePhoneNumbersDao = new MybatisAvailablePhoneNumbersDao(sessions);
         callDetailRecordsDao = new MybatisCallDetailRecordsDao(sessions);
+        if (configuration != null && configuration.getBoolean("cdr-write-behind.enabled", false)) {
+            final int batchSize = configuration.getInt("cdr-write-behind.batch-size", 100);
+            final long flushInterval = configuration.getLong("cdr-write-behind.flush-interval", 500);
+            final int maxPending = configuration.getInt("cdr-write-behind.max-pending", 10000);
+            final int maxAttempts = configuration.getInt("cdr-write-behind.max-attempts", 5);
+            final String deadLetters = configuration.getString("cdr-write-behind.dead-letter-file");
+            callDetailRecordsDao = new MybatisWriteBehindCallDetailRecordsDao(sessions,
+                    (MybatisCallDetailRecordsDao) callDetailRecordsDao, batchSize, flushInterval, maxPending, maxAttempts,
+                    deadLetters == null || deadLetters.isEmpty() ? null : new File(deadLetters));
+        }
         conferenceDetailRecordsDao = new MybatisConferenceDetailRecordsDao(sessions);
         clientsDao = new MybatisClientsDao(sessions);
         httpCookiesDao = new MybatisHttpCookiesDao(sessions);
@@ -240,17 +292,46 @@ public final class MybatisDaoManager implements DaoManager {
         notificationsDao = new MybatisNotificationsDao(sessions);
         outgoingCallerIdsDao = new MybatisOutgoingCallerIdsDao(sessions);
         presenceRecordsDao = new MybatisRegistrationsDao(sessions);
-        if (s3AccessTool != null) {
+        if (configuration != null && configuration.getBoolean("registrations-cache.enabled", false)) {
+            final int maxPending = configuration.getInt("registrations-cache.max-pending", 10000);
+            final long retryInterval = configuration.getLong("registrations-cache.retry-interval", 30);
+            presenceRecordsDao = new MybatisWriteBehindRegistrationsDao(presenceRecordsDao, maxPending,
+                    retryInterval * 1000);
+        }
+        if (s3UploadQueue != null) {
             final String recordingPath = runtimeConfiguration.getString("recordings-path");
-            recordingsDao = new MybatisRecordingsDao(sessions, s3AccessTool, recordingPath);
+            final MybatisRecordingsDao recordings = new MybatisRecordingsDao(sessions, s3UploadQueue, recordingPath);
+            // Resume the uploads interrupted by the last shutdown.
+            s3UploadQueue.start(recordings);
+            recordingsDao = recordings;
         } else {
             recordingsDao = new MybatisRecordingsDao(sessions);
         }
         shortCodesDao = new MybatisShortCodesDao(sessions);
         smsMessagesDao = new MybatisSmsMessagesDao(sessions);
-        usageDao = new MybatisUsageDao(sessions);
+        if (configuration != null && configuration.getBoolean("usage-rollup.enabled", false)) {
+            final long interval = configuration.getLong("usage-rollup.interval", 60);
+            final int lookback = configuration.getInt("usage-rollup.lookback", 2);
+            final int maxDays = configuration.getInt("usage-rollup.max-days", 31);
+            usageDao = new MybatisUsageDao(sessions, true);
+            usageRollup = new MybatisUsageRollup(sessions, lookback, maxDays);
+            usageRollup.start(interval * 60 * 1000);
+        } else {
+            usageDao = new MybatisUsageDao(sessions);
+        }
         transcriptionsDao = new MybatisTranscriptionsDao(sessions);
         gatewaysDao = new MybatisGatewaysDao(sessions);
         instanceIdDao = new MybatisInstanceIdDao(sessions);
+        boolean routingCacheEnabled = true;
+        // Routes changed by other nodes of a cluster are picked up this many seconds later at most.
+        long routingCacheTtl = 30;
+        int routingCacheMaxMisses = 10000;
+        if (configuration != null) {
+            routingCacheEnabled = configuration.getBoolean("routing-cache.enabled", routingCacheEnabled);
+            routingCacheTtl = configuration.getLong("routing-cache.ttl", routingCacheTtl);
+            routingCacheMaxMisses = configuration.getInt("routing-cache.max-misses", routingCacheMaxMisses);
+        }
+        routingCache = new RoutingCache(incomingPhoneNumbersDao, accountsDao, applicationsDao, routingCacheEnabled,
+                routingCacheTtl * 1000, routingCacheMaxMisses);
     }
 }
@@ -35,24 +35,32 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
-import org.mobicents.servlet.restcomm.amazonS3.S3AccessTool;
+import org.mobicents.servlet.restcomm.amazonS3.S3UploadQueue;
 import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.dao.RecordHandler;
 import org.mobicents.servlet.restcomm.dao.RecordingsDao;
 import org.mobicents.servlet.restcomm.entities.Recording;
 import org.mobicents.servlet.restcomm.entities.Sid;
 import org.mobicents.servlet.restcomm.util.UriUtils;
 
 /**
+ * When the recordings are uploaded to S3 a recording is stored with its local URI and queued for upload, its file URI
+ * is replaced by the S3 one once the {@link S3UploadQueue} completes the upload.
+ *
  * @author quintana.thomas@gmail.com (Thomas Quintana)
  */
 @ThreadSafe
-public final class MybatisRecordingsDao implements RecordingsDao {
+public final class MybatisRecordingsDao implements RecordingsDao, S3UploadQueue.Listener {
+    private static final Logger logger = Logger.getLogger(MybatisRecordingsDao.class);
     private static final String namespace = "org.mobicents.servlet.sip.restcomm.dao.RecordingsDao.";
     private final SqlSessionFactory sessions;
-    private S3AccessTool s3AccessTool;
+    private S3UploadQueue uploads;
     private String recordingPath;
 
     public MybatisRecordingsDao(final SqlSessionFactory sessions) {
@@ -60,23 +68,16 @@ public final class MybatisRecordingsDao implements RecordingsDao {
         this.sessions = sessions;
     }
 
-    public MybatisRecordingsDao(final SqlSessionFactory sessions, final S3AccessTool s3AccessTool, final String recordingPath) {
+    public MybatisRecordingsDao(final SqlSessionFactory sessions, final S3UploadQueue uploads, final String recordingPath) {
         super();
         this.sessions = sessions;
-        this.s3AccessTool = s3AccessTool;
+        this.uploads = uploads;
         this.recordingPath = recordingPath;
     }
 
     @Override
     public void addRecording(Recording recording) {
-        if (s3AccessTool != null) {
-            URI s3Uri = s3AccessTool.uploadFile(recordingPath+"/"+recording.getSid().toString()+".wav");
-            if (s3Uri != null) {
-                recording = recording.updateFileUri(s3Uri);
-            }
-        } else {
-            recording = recording.updateFileUri(generateLocalFileUri("/restcomm/recordings/" + recording.getSid()));
-        }
+        recording = recording.updateFileUri(generateLocalFileUri("/restcomm/recordings/" + recording.getSid()));
         final SqlSession session = sessions.openSession();
         try {
             session.insert(namespace + "addRecording", toMap(recording));
@@ -84,6 +85,27 @@ public final class MybatisRecordingsDao implements RecordingsDao {
         } finally {
             session.close();
         }
+        if (uploads != null) {
+            uploads.upload(recording.getSid().toString(), recordingPath + "/" + recording.getSid().toString() + ".wav");
+        }
+    }
+
+    @Override
+    public void uploaded(final String sid, final URI uri) {
+        final Map<String, Object> map = new HashMap<String, Object>();
+        map.put("sid", sid);
+        map.put("file_uri", writeUri(uri));
+        map.put("date_updated", writeDateTime(DateTime.now()));
+        final SqlSession session = sessions.openSession();
+        try {
+            session.update(namespace + "updateRecordingFileUri", map);
+            session.commit();
+        } finally {
+            session.close();
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Recording " + sid + " uploaded to " + uri);
+        }
     }
 
     public URI generateLocalFileUri(String recordingRelativeUri) {
@@ -100,6 +122,15 @@ public final class MybatisRecordingsDao implements RecordingsDao {
         return getRecording(namespace + "getRecording", sid);
     }
 
+    @Override
+    public URI getRecordingUrl(final Sid sid) {
+        if (uploads != null) {
+            return uploads.getPublicUrl(sid.toString() + ".wav");
+        }
+        final Recording recording = getRecording(sid);
+        return recording != null ? recording.getFileUri() : null;
+    }
+
     @Override
     public Recording getRecordingByCall(final Sid callSid) {
         return getRecording(namespace + "getRecordingByCall", callSid);
@@ -153,6 +184,22 @@ public final class MybatisRecordingsDao implements RecordingsDao {
         }
     }
 
+    @Override
+    public void getRecordings(final Sid accountSid, final RecordHandler<Recording> handler) {
+        final SqlSession session = sessions.openSession();
+        try {
+            session.select(namespace + "getRecordings", accountSid.toString(), new ResultHandler() {
+                @SuppressWarnings("unchecked")
+                @Override
+                public void handleResult(final ResultContext context) {
+                    handler.handle(toRecording((Map<String, Object>) context.getResultObject()));
+                }
+            });
+        } finally {
+            session.close();
+        }
+    }
+
     @Override
     public void removeRecording(final Sid sid) {
         removeRecording(namespace + "removeRecording", sid);
@@ -171,6 +171,34 @@ public final class MybatisRegistrationsDao implements RegistrationsDao {
         }
     }
 
+    @Override
+    public List<Registration> getExpiredRegistrations(final DateTime date) {
+        return getRegistrations(namespace + "getExpiredRegistrations", date);
+    }
+
+    @Override
+    public List<Registration> getRegistrationsUpdatedBefore(final DateTime date) {
+        return getRegistrations(namespace + "getRegistrationsUpdatedBefore", date);
+    }
+
+    private List<Registration> getRegistrations(final String selector, final DateTime date) {
+        final SqlSession session = sessions.openSession();
+        try {
+            final Map<String, Object> map = new HashMap<String, Object>();
+            map.put("date", writeDateTime(date));
+            final List<Map<String, Object>> results = session.selectList(selector, map);
+            final List<Registration> records = new ArrayList<Registration>();
+            if (results != null && !results.isEmpty()) {
+                for (final Map<String, Object> result : results) {
+                    records.add(toPresenceRecord(result));
+                }
+            }
+            return records;
+        } finally {
+            session.close();
+        }
+    }
+
     @Override
     public boolean hasRegistration(final Registration registration) {
         final SqlSession session = sessions.openSession();
@@ -27,12 +27,16 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 
 import org.joda.time.DateTime;
 
 import static org.mobicents.servlet.restcomm.dao.DaoUtils.*;
+import org.mobicents.servlet.restcomm.dao.RecordHandler;
 import org.mobicents.servlet.restcomm.dao.SmsMessagesDao;
 import org.mobicents.servlet.restcomm.entities.Sid;
 import org.mobicents.servlet.restcomm.entities.SmsMessage;
@@ -62,6 +66,11 @@ public final class MybatisSmsMessagesDao implements SmsMessagesDao {
         }
     }
 
+    @Override
+    public void addSmsMessages(final List<SmsMessage> smsMessages, final int batchSize) {
+        write(true, smsMessages, batchSize);
+    }
+
     @Override
     public SmsMessage getSmsMessage(final Sid sid) {
         final SqlSession session = sessions.openSession();
@@ -94,6 +103,22 @@ public final class MybatisSmsMessagesDao implements SmsMessagesDao {
         }
     }
 
+    @Override
+    public void getSmsMessages(final Sid accountSid, final RecordHandler<SmsMessage> handler) {
+        final SqlSession session = sessions.openSession();
+        try {
+            session.select(namespace + "getSmsMessages", accountSid.toString(), new ResultHandler() {
+                @SuppressWarnings("unchecked")
+                @Override
+                public void handleResult(final ResultContext context) {
+                    handler.handle(toSmsMessage((Map<String, Object>) context.getResultObject()));
+                }
+            });
+        } finally {
+            session.close();
+        }
+    }
+
     @Override
     public void removeSmsMessage(final Sid sid) {
         deleteSmsMessage(namespace + "removeSmsMessage", sid);
@@ -124,6 +149,36 @@ public final class MybatisSmsMessagesDao implements SmsMessagesDao {
         }
     }
 
+    @Override
+    public void updateSmsMessages(final List<SmsMessage> smsMessages, final int batchSize) {
+        write(false, smsMessages, batchSize);
+    }
+
+    private void write(final boolean insert, final List<SmsMessage> smsMessages, final int batchSize) {
+        final SqlSession session = sessions.openSession(ExecutorType.BATCH);
+        try {
+            int pending = 0;
+            for (final SmsMessage smsMessage : smsMessages) {
+                if (insert) {
+                    session.insert(namespace + "addSmsMessage", toMap(smsMessage));
+                } else {
+                    session.update(namespace + "updateSmsMessage", toMap(smsMessage));
+                }
+                if (++pending == batchSize) {
+                    session.flushStatements();
+                    session.commit();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                session.flushStatements();
+                session.commit();
+            }
+        } finally {
+            session.close();
+        }
+    }
+
     private Map<String, Object> toMap(final SmsMessage smsMessage) {
         final Map<String, Object> map = new HashMap<String, Object>();
         map.put("sid", writeSid(smsMessage.getSid()));
@@ -22,6 +22,7 @@ package org.mobicents.servlet.restcomm.dao.mybatis;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
 import org.joda.time.format.DateTimeFormat;
 import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
 import org.mobicents.servlet.restcomm.dao.UsageDao;
@@ -33,7 +34,10 @@ import java.net.URI;
 import java.sql.Date;
 import java.util.Currency;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -47,12 +51,19 @@ import static org.mobicents.servlet.restcomm.dao.DaoUtils.readUri;
 @ThreadSafe
 public final class MybatisUsageDao implements UsageDao {
 
-  private static final String namespace = "org.mobicents.servlet.sip.restcomm.dao.UsageDao.";
+  static final String namespace = "org.mobicents.servlet.sip.restcomm.dao.UsageDao.";
   private final SqlSessionFactory sessions;
+  // Answer from the daily rollups maintained by MybatisUsageRollup instead of scanning the records.
+  private final boolean rollups;
 
   public MybatisUsageDao(final SqlSessionFactory sessions) {
+    this(sessions, false);
+  }
+
+  public MybatisUsageDao(final SqlSessionFactory sessions, final boolean rollups) {
     super();
     this.sessions = sessions;
+    this.rollups = rollups;
   }
 
   @Override
@@ -102,6 +113,9 @@ public final class MybatisUsageDao implements UsageDao {
   }
   */
   private List<Usage> getUsageCalls(final Sid accountSid, Usage.Category category, DateTime startDate, DateTime endDate, final String queryName) {
+    if (rollups) {
+      return getUsageRollups(accountSid, category, startDate, endDate, queryName);
+    }
     long startTime = System.currentTimeMillis();
     final SqlSession session = sessions.openSession();
     Map<String, Object> params = new HashMap<String, Object>();
@@ -123,6 +137,91 @@ public final class MybatisUsageDao implements UsageDao {
     }
   }
 
+  /*
+   * The days that were rolled up are read from the daily rollups, the more recent ones (today at least) are read
+   * from the records. The days are then added up by period the same way the queries of usage.xml group them.
+   */
+  private List<Usage> getUsageRollups(final Sid accountSid, Usage.Category category, DateTime startDate, DateTime endDate, final String queryName) {
+    final Map<String, Object> params = new HashMap<String, Object>();
+    params.put("sid", accountSid.toString());
+    fillParametersByCategory(category, params);
+    params.put("category", MybatisUsageRollup.getCategory(params));
+    final LocalDate first = new LocalDate(startDate);
+    final LocalDate last = new LocalDate(endDate);
+    final List<Map<String, Object>> days = new ArrayList<Map<String, Object>>();
+    final SqlSession session = sessions.openSession();
+    try {
+      final java.util.Date rolledUp = session.selectOne(namespace + "getUsageRollupWatermark", params);
+      LocalDate raw = first;
+      if (rolledUp != null) {
+        final LocalDate watermark = new LocalDate(rolledUp);
+        if (!first.isAfter(watermark)) {
+          params.put("startDate", new Date(first.toDate().getTime()));
+          params.put("endDate", new Date((last.isBefore(watermark) ? last : watermark).toDate().getTime()));
+          days.addAll(session.<Map<String, Object>> selectList(namespace + "getDailyRollups", params));
+          raw = watermark.plusDays(1);
+        }
+      }
+      if (!raw.isAfter(last)) {
+        params.put("startDate", new Date(raw.toDate().getTime()));
+        params.put("endDate", new Date(last.toDate().getTime()));
+        days.addAll(session.<Map<String, Object>> selectList(namespace + "getDailyCalls", params));
+      }
+    } finally {
+      session.close();
+    }
+    final List<Usage> usageRecords = new ArrayList<Usage>();
+    for (final Map<String, Object> result : sum(days, queryName)) {
+      usageRecords.add(toUsageRecord(accountSid, result));
+    }
+    return usageRecords;
+  }
+
+  private List<Map<String, Object>> sum(final List<Map<String, Object>> days, final String queryName) {
+    final Map<String, Map<String, Object>> periods = new LinkedHashMap<String, Map<String, Object>>();
+    for (final Map<String, Object> day : days) {
+      final String date = day.get("start_date").toString();
+      final String period;
+      if ("getDailyCalls".equals(queryName)) {
+        period = date;
+      } else if ("getMonthlyCalls".equals(queryName)) {
+        period = date.substring(0, 7);
+      } else if ("getYearlyCalls".equals(queryName)) {
+        period = date.substring(0, 4);
+      } else {
+        // All time usage is grouped by month of the year.
+        period = date.substring(5, 7);
+      }
+      final String key = period + "/" + day.get("api_version");
+      final Map<String, Object> sum = periods.get(key);
+      if (sum == null) {
+        final Map<String, Object> copy = new HashMap<String, Object>(day);
+        copy.put("count", readLong(day.get("count")));
+        copy.put("usage", readLong(day.get("usage")));
+        copy.put("price", new BigDecimal(day.get("price").toString()));
+        periods.put(key, copy);
+      } else {
+        sum.put("count", (Long) sum.get("count") + readLong(day.get("count")));
+        sum.put("usage", (Long) sum.get("usage") + readLong(day.get("usage")));
+        sum.put("price", ((BigDecimal) sum.get("price")).add(new BigDecimal(day.get("price").toString())));
+        if (date.compareTo(sum.get("start_date").toString()) < 0) {
+          sum.put("start_date", day.get("start_date"));
+        }
+        if (day.get("end_date").toString().compareTo(sum.get("end_date").toString()) > 0) {
+          sum.put("end_date", day.get("end_date"));
+        }
+      }
+    }
+    final List<Map<String, Object>> results = new ArrayList<Map<String, Object>>(periods.values());
+    Collections.sort(results, new Comparator<Map<String, Object>>() {
+      @Override
+      public int compare(final Map<String, Object> first, final Map<String, Object> second) {
+        return first.get("start_date").toString().compareTo(second.get("start_date").toString());
+      }
+    });
+    return results;
+  }
+
   private Usage toUsageRecord(final Sid accountSid, final Map<String, Object> map) {
     final Usage.Category category = Usage.Category.CALLS;
     final String description = "Total Calls";
@@ -144,7 +243,7 @@ public final class MybatisUsageDao implements UsageDao {
     return new Usage(category, description, accountSid, startDate, endDate, usage, usageUnit, count, countUnit, price, priceUnit, uri);
   }
 
-  private Map<String, Object> fillParametersByCategory(Usage.Category category, Map<String, Object> params) {
+  static Map<String, Object> fillParametersByCategory(Usage.Category category, Map<String, Object> params) {
     // FIXME: handle no category, meaning all
     if (category == null) category = Usage.Category.CALLS;
     switch (category) {
@@ -0,0 +1,160 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dao.mybatis;
+
+import static org.mobicents.servlet.restcomm.dao.mybatis.MybatisUsageDao.namespace;
+
+import java.sql.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.log4j.Logger;
+import org.joda.time.LocalDate;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.entities.Usage;
+
+/**
+ * Maintains the per account daily usage rollups that {@link MybatisUsageDao} reads instead of grouping the call detail
+ * records and the SMS messages for every request. Every pass rolls up the days that ended since the last pass and
+ * rolls up again the last 'lookback' days, the records of a day may still change for a while (i.e. calls that go on
+ * past midnight).
+ * <p>
+ * A pass rolls up 'maxDays' days at most so the first passes over a large history don't hold the database for long,
+ * the following passes carry on from the last rolled up day. The rollups of a day are upserted so the nodes of a
+ * cluster sharing the database may run their passes at the same time.
+ */
+@ThreadSafe
+public final class MybatisUsageRollup implements Runnable {
+    private static final Logger logger = Logger.getLogger(MybatisUsageRollup.class);
+
+    private static final String CALLS = "calls";
+    private static final String SMS = "sms";
+
+    private final SqlSessionFactory sessions;
+    private final int lookback;
+    private final int maxDays;
+    private final ScheduledExecutorService scheduler;
+
+    public MybatisUsageRollup(final SqlSessionFactory sessions, final int lookback, final int maxDays) {
+        super();
+        this.sessions = sessions;
+        this.lookback = lookback;
+        // A pass has to get past the days it rolls up again.
+        this.maxDays = Math.max(maxDays, lookback + 1);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "usage-rollup");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * The rollup category of the usage parameters filled by {@link MybatisUsageDao}.
+     */
+    static String getCategory(final Map<String, Object> params) {
+        return "restcomm_sms_messages".equals(params.get("tableName")) ? SMS : CALLS;
+    }
+
+    public void start(final long interval) {
+        scheduler.scheduleWithFixedDelay(this, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public void run() {
+        final LocalDate today = new LocalDate();
+        try {
+            rollup(Usage.Category.CALLS, today);
+            rollup(Usage.Category.SMS, today);
+        } catch (final Exception exception) {
+            logger.error("Exception while rolling up the usage", exception);
+        }
+    }
+
+    /**
+     * Rolls up at most 'maxDays' of the days that ended before today.
+     *
+     * @return the number of days rolled up.
+     */
+    int rollup(final Usage.Category category, final LocalDate today) {
+        final Map<String, Object> params = MybatisUsageDao.fillParametersByCategory(category,
+                new HashMap<String, Object>());
+        params.put("category", getCategory(params));
+        LocalDate day = null;
+        LocalDate watermark = null;
+        final SqlSession session = sessions.openSession();
+        try {
+            final java.util.Date rolledUp = session.selectOne(namespace + "getUsageRollupWatermark", params);
+            if (rolledUp != null) {
+                watermark = new LocalDate(rolledUp);
+                day = watermark.plusDays(1 - lookback);
+            }
+            int days = 0;
+            while (days < maxDays) {
+                // Skip the days without records past the watermark, they have nothing to roll up.
+                if (day == null || watermark == null || day.isAfter(watermark)) {
+                    params.put("from", day == null ? null : new Date(day.toDate().getTime()));
+                    final java.util.Date next = session.selectOne(namespace + "getUsageRollupFirstDate", params);
+                    if (next == null) {
+                        break;
+                    }
+                    day = new LocalDate(next);
+                }
+                if (!day.isBefore(today)) {
+                    break;
+                }
+                rollup(params, day);
+                day = day.plusDays(1);
+                days++;
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rolled up " + days + " days of " + params.get("category") + " usage");
+            }
+            return days;
+        } finally {
+            session.close();
+        }
+    }
+
+    private void rollup(final Map<String, Object> params, final LocalDate day) {
+        params.put("day", new Date(day.toDate().getTime()));
+        params.put("nextDay", new Date(day.plusDays(1).toDate().getTime()));
+        final SqlSession transaction = sessions.openSession(false);
+        try {
+            transaction.delete(namespace + "removeDailyRollups", params);
+            transaction.insert(namespace + "addDailyRollups", params);
+            transaction.commit();
+        } finally {
+            transaction.close();
+        }
+    }
+}
@@ -0,0 +1,519 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dao.mybatis;
+
+import static org.mobicents.servlet.restcomm.dao.mybatis.MybatisCallDetailRecordsDao.namespace;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.log4j.Logger;
+import org.joda.time.DateTime;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.dao.CallDetailRecordsDao;
+import org.mobicents.servlet.restcomm.dao.RecordHandler;
+import org.mobicents.servlet.restcomm.entities.CallDetailRecord;
+import org.mobicents.servlet.restcomm.entities.CallDetailRecordFilter;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+/**
+ * Write-behind flavour of the {@link MybatisCallDetailRecordsDao}. The call and interpreter actors only queue their
+ * inserts and updates, a background thread writes them in JDBC batches once 'batchSize' records are pending or every
+ * 'flushInterval' milliseconds. Successive writes of the same call are coalesced into a single statement.
+ *
+ * When 'maxPending' records are waiting the writers of new calls block until the database catches up. Reads of a
+ * single record see the pending writes. Lists, pages and counts are read from the database and may miss the writes of
+ * the last 'flushInterval' milliseconds, they don't wait for the pending writes.
+ *
+ * Records that can't be written are queued again and retried with the next batches, 'flushInterval' milliseconds
+ * later. A record that failed 'maxAttempts' times is appended to the 'deadLetters' file, one line per record with the
+ * column values, so that it can be replayed. Call {@link #flush()} to wait for the writes queued so far and
+ * {@link #shutdown()} to write everything that is still pending.
+ */
+@ThreadSafe
+public final class MybatisWriteBehindCallDetailRecordsDao implements CallDetailRecordsDao {
+    private static final Logger logger = Logger.getLogger(MybatisWriteBehindCallDetailRecordsDao.class);
+
+    private final SqlSessionFactory sessions;
+    private final MybatisCallDetailRecordsDao dao;
+    private final int batchSize;
+    private final long flushInterval;
+    private final int maxPending;
+    private final int maxAttempts;
+    private final File deadLetters;
+
+    // Guards pending, inflight and sequence.
+    private final ReentrantLock lock;
+    private final Condition ready;
+    private final Condition notFull;
+    // Keeps the batches in order, it is held while a batch is taken from pending and written.
+    private final ReentrantLock writeLock;
+    private final Map<Sid, Write> pending;
+    private Map<Sid, Write> inflight;
+    // Numbers the writes in the order they are queued.
+    private long sequence;
+    private volatile boolean running;
+    private final Thread writer;
+
+    public MybatisWriteBehindCallDetailRecordsDao(final SqlSessionFactory sessions, final MybatisCallDetailRecordsDao dao,
+            final int batchSize, final long flushInterval, final int maxPending) {
+        this(sessions, dao, batchSize, flushInterval, maxPending, 5, null);
+    }
+
+    /**
+     * @param maxAttempts how many times a record is written before it is dead-lettered.
+     * @param deadLetters the file the records that can't be written are appended to, null to only log them.
+     */
+    public MybatisWriteBehindCallDetailRecordsDao(final SqlSessionFactory sessions, final MybatisCallDetailRecordsDao dao,
+            final int batchSize, final long flushInterval, final int maxPending, final int maxAttempts,
+            final File deadLetters) {
+        super();
+        this.sessions = sessions;
+        this.dao = dao;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.maxPending = maxPending;
+        this.maxAttempts = maxAttempts;
+        this.deadLetters = deadLetters;
+        this.lock = new ReentrantLock();
+        this.ready = lock.newCondition();
+        this.notFull = lock.newCondition();
+        this.writeLock = new ReentrantLock();
+        this.pending = new LinkedHashMap<Sid, Write>();
+        this.inflight = new LinkedHashMap<Sid, Write>();
+        this.sequence = 0;
+        this.running = true;
+        this.writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (running) {
+                    try {
+                        awaitBatch();
+                        if (!flush(batchSize, Long.MAX_VALUE)) {
+                            // Give the database some time to come back before retrying.
+                            Thread.sleep(flushInterval);
+                        }
+                    } catch (final InterruptedException exception) {
+                        break;
+                    } catch (final Exception exception) {
+                        logger.error("Exception while writing call detail records", exception);
+                    }
+                }
+            }
+        }, "cdr-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void addCallDetailRecord(final CallDetailRecord cdr) {
+        queue(cdr, true);
+    }
+
+    @Override
+    public void updateCallDetailRecord(final CallDetailRecord cdr) {
+        queue(cdr, false);
+    }
+
+    private void queue(final CallDetailRecord cdr, final boolean insert) {
+        if (!running) {
+            // Shutting down, don't leave anything behind.
+            if (insert) {
+                dao.addCallDetailRecord(cdr);
+            } else {
+                dao.updateCallDetailRecord(cdr);
+            }
+            return;
+        }
+        final Sid sid = cdr.getSid();
+        lock.lock();
+        try {
+            Write write = pending.get(sid);
+            // Back-pressure, only writes that would grow the queue have to wait.
+            while (write == null && running && pending.size() >= maxPending) {
+                notFull.await(flushInterval, TimeUnit.MILLISECONDS);
+                write = pending.get(sid);
+            }
+            if (write != null) {
+                // An update of a record that is still pending replaces it, an insert stays an insert.
+                write.cdr = cdr;
+                write.insert |= insert;
+                return;
+            }
+            pending.put(sid, new Write(cdr, insert, ++sequence));
+            if (pending.size() >= batchSize) {
+                ready.signal();
+            }
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            pending.put(sid, new Write(cdr, insert, ++sequence));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitBatch() throws InterruptedException {
+        lock.lock();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(flushInterval);
+            while (running && pending.size() < batchSize && nanos > 0) {
+                nanos = ready.awaitNanos(nanos);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the pending records queued up to the 'last' sequence number, at most 'limit' of them.
+     *
+     * @return false if some records could not be written and were queued again.
+     */
+    private boolean flush(final int limit, final long last) {
+        boolean written = true;
+        writeLock.lock();
+        try {
+            lock.lock();
+            try {
+                final Iterator<Map.Entry<Sid, Write>> iterator = pending.entrySet().iterator();
+                while (iterator.hasNext() && inflight.size() < limit) {
+                    final Map.Entry<Sid, Write> entry = iterator.next();
+                    // Retried records are queued again at the end, keep looking past the newer ones.
+                    if (entry.getValue().sequence <= last) {
+                        inflight.put(entry.getKey(), entry.getValue());
+                        iterator.remove();
+                    }
+                }
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (!inflight.isEmpty()) {
+                final List<Write> failed = write(new ArrayList<Write>(inflight.values()));
+                if (!failed.isEmpty()) {
+                    final List<Write> dead = retry(failed);
+                    written = dead.size() == failed.size();
+                    // Still holding the write lock, a flush that returns has settled the records it waited for.
+                    for (final Write write : dead) {
+                        deadLetter(write);
+                    }
+                }
+            }
+        } finally {
+            lock.lock();
+            try {
+                inflight = new LinkedHashMap<Sid, Write>();
+            } finally {
+                lock.unlock();
+            }
+            writeLock.unlock();
+        }
+        return written;
+    }
+
+    /**
+     * Writes the records queued before this call, the ones queued meanwhile are left to the background writer. The
+     * records that fail are retried every 'flushInterval' milliseconds until they are written or dead-lettered.
+     */
+    public void flush() {
+        final long last;
+        lock.lock();
+        try {
+            last = sequence;
+        } finally {
+            lock.unlock();
+        }
+        while (!flush(Integer.MAX_VALUE, last)) {
+            try {
+                // Give the database some time to come back before retrying.
+                Thread.sleep(flushInterval);
+            } catch (final InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the records that could not be written.
+     */
+    private List<Write> write(final List<Write> batch) {
+        final List<Write> failed = new ArrayList<Write>();
+        final SqlSession session = sessions.openSession(ExecutorType.BATCH);
+        try {
+            for (final Write write : batch) {
+                if (write.insert) {
+                    session.insert(namespace + "addCallDetailRecord", dao.toMap(write.cdr));
+                } else {
+                    session.update(namespace + "updateCallDetailRecord", dao.toMap(write.cdr));
+                }
+            }
+            session.flushStatements();
+            session.commit();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Wrote a batch of " + batch.size() + " call detail records");
+            }
+            return failed;
+        } catch (final Exception exception) {
+            logger.warn("Exception while writing a batch of " + batch.size()
+                    + " call detail records, writing them one by one", exception);
+            session.rollback();
+        } finally {
+            session.close();
+        }
+        // Don't let a single faulty record take the whole batch down.
+        for (final Write write : batch) {
+            try {
+                if (write.insert) {
+                    dao.addCallDetailRecord(write.cdr);
+                } else {
+                    dao.updateCallDetailRecord(write.cdr);
+                }
+            } catch (final Exception exception) {
+                write.attempts++;
+                logger.error("Exception while writing call detail record " + write.cdr.getSid() + ", attempt "
+                        + write.attempts + " of " + maxAttempts, exception);
+                failed.add(write);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Queues the records that failed again, unless a newer write of the same call is already pending.
+     *
+     * @return the records that failed too many times.
+     */
+    private List<Write> retry(final List<Write> failed) {
+        List<Write> dead = null;
+        lock.lock();
+        try {
+            for (final Write write : failed) {
+                final Sid sid = write.cdr.getSid();
+                final Write newer = pending.get(sid);
+                if (newer != null) {
+                    // The row was never written so the newer state of the call must still be inserted.
+                    newer.insert |= write.insert;
+                    newer.attempts = write.attempts;
+                    // The newer state replaces a write that was queued earlier, a flush must still wait for it.
+                    newer.sequence = write.sequence;
+                } else if (write.attempts < maxAttempts) {
+                    pending.put(sid, write);
+                } else {
+                    if (dead == null) {
+                        dead = new ArrayList<Write>();
+                    }
+                    dead.add(write);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return dead != null ? dead : new ArrayList<Write>();
+    }
+
+    private void deadLetter(final Write write) {
+        final Map<String, Object> columns = dao.toMap(write.cdr);
+        final StringBuilder line = new StringBuilder(write.insert ? "insert" : "update");
+        for (final Map.Entry<String, Object> column : columns.entrySet()) {
+            line.append('\t').append(column.getKey()).append('=').append(column.getValue());
+        }
+        line.append('\n');
+        if (deadLetters != null) {
+            synchronized (deadLetters) {
+                Writer writer = null;
+                try {
+                    writer = new OutputStreamWriter(new FileOutputStream(deadLetters, true), Charset.forName("UTF-8"));
+                    writer.write(line.toString());
+                    logger.error("Call detail record " + write.cdr.getSid() + " could not be written, it was appended to "
+                            + deadLetters);
+                    return;
+                } catch (final IOException exception) {
+                    logger.error("Exception while appending call detail record " + write.cdr.getSid() + " to "
+                            + deadLetters, exception);
+                } finally {
+                    if (writer != null) {
+                        try {
+                            writer.close();
+                        } catch (final IOException ignored) {
+                        }
+                    }
+                }
+            }
+        }
+        logger.error("Call detail record could not be written: " + line.toString().trim());
+    }
+
+    /**
+     * Stops the background writer and writes all the pending records.
+     */
+    public void shutdown() {
+        running = false;
+        lock.lock();
+        try {
+            ready.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join(flushInterval * 10);
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    @Override
+    public CallDetailRecord getCallDetailRecord(final Sid sid) {
+        lock.lock();
+        try {
+            Write write = pending.get(sid);
+            if (write == null) {
+                write = inflight.get(sid);
+            }
+            if (write != null) {
+                return write.cdr;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return dao.getCallDetailRecord(sid);
+    }
+
+    @Override
+    public List<CallDetailRecord> getCallDetailRecords(final Sid accountSid) {
+        return dao.getCallDetailRecords(accountSid);
+    }
+
+    @Override
+    public List<CallDetailRecord> getCallDetailRecordsByRecipient(final String recipient) {
+        return dao.getCallDetailRecordsByRecipient(recipient);
+    }
+
+    @Override
+    public List<CallDetailRecord> getCallDetailRecordsBySender(final String sender) {
+        return dao.getCallDetailRecordsBySender(sender);
+    }
+
+    @Override
+    public List<CallDetailRecord> getCallDetailRecordsByStatus(final String status) {
+        return dao.getCallDetailRecordsByStatus(status);
+    }
+
+    @Override
+    public List<CallDetailRecord> getCallDetailRecordsByStartTime(final DateTime startTime) {
+        return dao.getCallDetailRecordsByStartTime(startTime);
+    }
+
+    @Override
+    public List<CallDetailRecord> getCallDetailRecordsByEndTime(final DateTime endTime) {
+        return dao.getCallDetailRecordsByEndTime(endTime);
+    }
+
+    @Override
+    public List<CallDetailRecord> getCallDetailRecordsByStarTimeAndEndTime(final DateTime endTime) {
+        return dao.getCallDetailRecordsByStarTimeAndEndTime(endTime);
+    }
+
+    @Override
+    public List<CallDetailRecord> getCallDetailRecordsByParentCall(final Sid parentCallSid) {
+        return dao.getCallDetailRecordsByParentCall(parentCallSid);
+    }
+
+    @Override
+    public List<CallDetailRecord> getCallDetailRecordsByConferenceSid(final Sid conferenceSid) {
+        return dao.getCallDetailRecordsByConferenceSid(conferenceSid);
+    }
+
+    @Override
+    public List<CallDetailRecord> getCallDetailRecordsByInstanceId(final Sid instanceId) {
+        return dao.getCallDetailRecordsByInstanceId(instanceId);
+    }
+
+    @Override
+    public List<CallDetailRecord> getCallDetailRecords(final CallDetailRecordFilter filter) {
+        return dao.getCallDetailRecords(filter);
+    }
+
+    @Override
+    public Integer getTotalCallDetailRecords(final CallDetailRecordFilter filter) {
+        return dao.getTotalCallDetailRecords(filter);
+    }
+
+    @Override
+    public List<CallDetailRecord> getCallDetailRecordsPage(final CallDetailRecordFilter filter) {
+        return dao.getCallDetailRecordsPage(filter);
+    }
+
+    @Override
+    public void getCallDetailRecords(final CallDetailRecordFilter filter, final RecordHandler<CallDetailRecord> handler) {
+        dao.getCallDetailRecords(filter, handler);
+    }
+
+    @Override
+    public void getCallDetailRecordsPage(final CallDetailRecordFilter filter,
+            final RecordHandler<CallDetailRecord> handler) {
+        dao.getCallDetailRecordsPage(filter, handler);
+    }
+
+    @Override
+    public void removeCallDetailRecord(final Sid sid) {
+        // Rare enough to wait for the pending writes, a pending insert must not bring the record back.
+        flush();
+        dao.removeCallDetailRecord(sid);
+    }
+
+    @Override
+    public void removeCallDetailRecords(final Sid accountSid) {
+        flush();
+        dao.removeCallDetailRecords(accountSid);
+    }
+
+    private static final class Write {
+        // Guarded by the lock of the dao while the write is pending.
+        private CallDetailRecord cdr;
+        private boolean insert;
+        private int attempts;
+        private long sequence;
+
+        private Write(final CallDetailRecord cdr, final boolean insert, final long sequence) {
+            super();
+            this.cdr = cdr;
+            this.insert = insert;
+            this.sequence = sequence;
+        }
+    }
+}
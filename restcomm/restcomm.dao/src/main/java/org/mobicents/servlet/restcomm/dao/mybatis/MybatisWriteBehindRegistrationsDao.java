@@ -0,0 +1,386 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dao.mybatis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.joda.time.DateTime;
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.dao.RegistrationsDao;
+import org.mobicents.servlet.restcomm.entities.Registration;
+
+/**
+ * Keeps the registrations in memory, indexed by user, by location and address of record and by expiry and last update
+ * dates, and writes the changes behind to the data store in the order they were made. The data store is only read
+ * once when the registrations are loaded so looking up a client or finding the registrations that expired or have to
+ * be pinged never scans the registrations table.
+ * <p>
+ * The registrations made by the other instances sharing the data store after the registrations were loaded are not
+ * visible, this must not be used when the SIP clients of a cluster register with different instances.
+ * <p>
+ * At most 'maxPending' changes wait to be written. The registrations whose change could not be queued or written are
+ * marked out of sync and their data store rows are rewritten from memory every 'retryInterval' milliseconds until
+ * that succeeds.
+ */
+@ThreadSafe
+public final class MybatisWriteBehindRegistrationsDao implements RegistrationsDao {
+    private static final Logger logger = Logger.getLogger(MybatisWriteBehindRegistrationsDao.class);
+
+    private final RegistrationsDao dao;
+    private final ThreadPoolExecutor writer;
+    private final ScheduledExecutorService resync;
+    // Registrations by location and address of record, the data store removes them by these.
+    private final Map<String, Registration> registrations;
+    private final Map<String, Set<String>> users;
+    private final TreeSet<Deadline> expiries;
+    private final TreeSet<Deadline> updates;
+    // The last registration changed of the keys whose data store rows are out of sync.
+    private final Map<String, Registration> unsynced;
+
+    public MybatisWriteBehindRegistrationsDao(final RegistrationsDao dao) {
+        this(dao, 10000, 30000);
+    }
+
+    public MybatisWriteBehindRegistrationsDao(final RegistrationsDao dao, final int maxPending, final long retryInterval) {
+        super();
+        this.dao = dao;
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(maxPending),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        final Thread thread = new Thread(runnable, "registrations-writer");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        this.resync = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "registrations-resync");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.registrations = new HashMap<String, Registration>();
+        this.users = new HashMap<String, Set<String>>();
+        this.expiries = new TreeSet<Deadline>();
+        this.updates = new TreeSet<Deadline>();
+        this.unsynced = new HashMap<String, Registration>();
+        for (final Registration registration : dao.getRegistrations()) {
+            index(registration);
+        }
+        resync.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    writer.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            resync();
+                        }
+                    });
+                } catch (final RejectedExecutionException ignored) {
+                    // The queue is full or we are shutting down, try again on the next round.
+                }
+            }
+        }, retryInterval, retryInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes the pending changes and stops writing behind.
+     */
+    public void shutdown() {
+        resync.shutdownNow();
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("Timed out writing the pending registrations to the data store.");
+                return;
+            }
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        resync();
+        synchronized (this) {
+            if (!unsynced.isEmpty()) {
+                logger.error(unsynced.size() + " registrations could not be written to the data store.");
+            }
+        }
+    }
+
+    @Override
+    public void addRegistration(final Registration registration) {
+        synchronized (this) {
+            index(registration);
+        }
+        write(registration, new Runnable() {
+            @Override
+            public void run() {
+                dao.addRegistration(registration);
+            }
+        });
+    }
+
+    @Override
+    public synchronized Registration getRegistration(final String user) {
+        final List<Registration> results = find(user, null);
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    @Override
+    public synchronized Registration getRegistrationByInstanceId(final String user, final String instanceId) {
+        if (instanceId == null) {
+            return null;
+        }
+        final List<Registration> results = find(user, instanceId);
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    @Override
+    public synchronized List<Registration> getRegistrations(final String user) {
+        final List<Registration> results = find(user, null);
+        return results.isEmpty() ? null : results;
+    }
+
+    @Override
+    public synchronized List<Registration> getRegistrations() {
+        return new ArrayList<Registration>(registrations.values());
+    }
+
+    @Override
+    public synchronized List<Registration> getExpiredRegistrations(final DateTime date) {
+        return collect(expiries.headSet(new Deadline(date.getMillis() + 1, null), false));
+    }
+
+    @Override
+    public synchronized List<Registration> getRegistrationsUpdatedBefore(final DateTime date) {
+        return collect(updates.headSet(new Deadline(date.getMillis(), null), false));
+    }
+
+    @Override
+    public synchronized boolean hasRegistration(final Registration registration) {
+        return matches(registrations.get(key(registration)), registration);
+    }
+
+    @Override
+    public void removeRegistration(final Registration registration) {
+        synchronized (this) {
+            unindex(key(registration));
+        }
+        write(registration, new Runnable() {
+            @Override
+            public void run() {
+                dao.removeRegistration(registration);
+            }
+        });
+    }
+
+    @Override
+    public void updateRegistration(final Registration registration) {
+        synchronized (this) {
+            final Registration existing = registrations.get(key(registration));
+            if (!matches(existing, registration)) {
+                return;
+            }
+            index(new Registration(existing.getSid(), existing.getInstanceId(), existing.getDateCreated(),
+                    registration.getDateUpdated(), registration.getDateExpires(), existing.getAddressOfRecord(),
+                    existing.getDisplayName(), existing.getUserName(), existing.getUserAgent(),
+                    registration.getTimeToLive(), existing.getLocation(), existing.isWebRTC(), existing.isLBPresent()));
+        }
+        write(registration, new Runnable() {
+            @Override
+            public void run() {
+                dao.updateRegistration(registration);
+            }
+        });
+    }
+
+    private void write(final Registration registration, final Runnable change) {
+        final String key = key(registration);
+        try {
+            writer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        change.run();
+                    } catch (final Exception exception) {
+                        logger.error("Could not write a registration to the data store, will retry.", exception);
+                        unsync(key, registration);
+                    }
+                }
+            });
+        } catch (final RejectedExecutionException exception) {
+            if (writer.isShutdown()) {
+                // Shutting down, write it ourselves.
+                change.run();
+            } else {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Too many pending registration changes, " + key + " will be written later.");
+                }
+                unsync(key, registration);
+            }
+        }
+    }
+
+    private synchronized void unsync(final String key, final Registration registration) {
+        unsynced.put(key, registration);
+    }
+
+    /**
+     * Rewrites the data store rows of the registrations out of sync from their state in memory.
+     */
+    private void resync() {
+        final Map<String, Registration> keys;
+        synchronized (this) {
+            if (unsynced.isEmpty()) {
+                return;
+            }
+            keys = new HashMap<String, Registration>(unsynced);
+            unsynced.clear();
+        }
+        int failures = 0;
+        for (final Map.Entry<String, Registration> entry : keys.entrySet()) {
+            final Registration current;
+            synchronized (this) {
+                current = registrations.get(entry.getKey());
+            }
+            try {
+                dao.removeRegistration(entry.getValue());
+                if (current != null) {
+                    dao.addRegistration(current);
+                }
+            } catch (final Exception exception) {
+                failures++;
+                synchronized (this) {
+                    // Keep a newer change that was not written either.
+                    if (!unsynced.containsKey(entry.getKey())) {
+                        unsynced.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                if (failures == 1) {
+                    logger.error("Could not resync the registrations with the data store, will retry.", exception);
+                }
+            }
+        }
+    }
+
+    private List<Registration> find(final String user, final String instanceId) {
+        final List<Registration> results = new ArrayList<Registration>();
+        final Set<String> keys = users.get(user);
+        if (keys != null) {
+            for (final String key : keys) {
+                final Registration registration = registrations.get(key);
+                if (instanceId == null || instanceId.equals(registration.getInstanceId())) {
+                    results.add(registration);
+                }
+            }
+            // Latest updated first so that we target the device where the user last updated the registration.
+            Collections.sort(results);
+        }
+        return results;
+    }
+
+    private List<Registration> collect(final Set<Deadline> deadlines) {
+        final List<Registration> results = new ArrayList<Registration>(deadlines.size());
+        for (final Deadline deadline : deadlines) {
+            results.add(registrations.get(deadline.key));
+        }
+        return results;
+    }
+
+    private void index(final Registration registration) {
+        final String key = key(registration);
+        unindex(key);
+        registrations.put(key, registration);
+        Set<String> keys = users.get(registration.getUserName());
+        if (keys == null) {
+            keys = new HashSet<String>();
+            users.put(registration.getUserName(), keys);
+        }
+        keys.add(key);
+        expiries.add(new Deadline(registration.getDateExpires().getMillis(), key));
+        updates.add(new Deadline(registration.getDateUpdated().getMillis(), key));
+    }
+
+    private void unindex(final String key) {
+        final Registration registration = registrations.remove(key);
+        if (registration != null) {
+            final Set<String> keys = users.get(registration.getUserName());
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                users.remove(registration.getUserName());
+            }
+            expiries.remove(new Deadline(registration.getDateExpires().getMillis(), key));
+            updates.remove(new Deadline(registration.getDateUpdated().getMillis(), key));
+        }
+    }
+
+    private static String key(final Registration registration) {
+        return registration.getLocation() + " " + registration.getAddressOfRecord();
+    }
+
+    // The data store matches the registrations to update on these and never matches null values.
+    private static boolean matches(final Registration existing, final Registration registration) {
+        return existing != null && registration.getDisplayName() != null && registration.getUserAgent() != null
+                && registration.getDisplayName().equals(existing.getDisplayName())
+                && registration.getUserAgent().equals(existing.getUserAgent());
+    }
+
+    @Immutable
+    private static final class Deadline implements Comparable<Deadline> {
+        private final long time;
+        private final String key;
+
+        private Deadline(final long time, final String key) {
+            super();
+            this.time = time;
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(final Deadline other) {
+            if (time != other.time) {
+                return time < other.time ? -1 : 1;
+            }
+            // A deadline without a key comes before all the keys of its time.
+            if (key == null || other.key == null) {
+                return key == null ? (other.key == null ? 0 : -1) : 1;
+            }
+            return key.compareTo(other.key);
+        }
+    }
+}
@@ -43,6 +43,8 @@ public class CallDetailRecordFilter {
     private final Integer limit;
     private final Integer offset;
     private final String instanceid;
+    private final Date afterDate;
+    private final String afterSid;
 
     public CallDetailRecordFilter(String accountSid, String recipient, String sender, String status, String startTime, String endTime,
             String parentCallSid, String conferenceSid, Integer limit, Integer offset) throws ParseException {
@@ -51,6 +53,14 @@ public class CallDetailRecordFilter {
 
     public CallDetailRecordFilter(String accountSid, String recipient, String sender, String status, String startTime, String endTime,
             String parentCallSid, String conferenceSid, Integer limit, Integer offset, String instanceId) throws ParseException {
+        this(accountSid, recipient, sender, status, startTime, endTime, parentCallSid, conferenceSid, limit, offset,
+                instanceId, null);
+    }
+
+    // The records that come after the page token, null for the first page.
+    public CallDetailRecordFilter(String accountSid, String recipient, String sender, String status, String startTime, String endTime,
+            String parentCallSid, String conferenceSid, Integer limit, Integer offset, String instanceId, PageToken after)
+            throws ParseException {
         this.accountSid = accountSid;
 
         // The LIKE keyword uses '%' to match any (including 0) number of characters, and '_' to match exactly one character
@@ -86,6 +96,14 @@ public class CallDetailRecordFilter {
         } else {
             this.instanceid = null;
         }
+        if (after != null) {
+            // The date_created column keeps whole seconds.
+            this.afterDate = after.getDateCreated().withMillisOfSecond(0).toDate();
+            this.afterSid = after.getSid().toString();
+        } else {
+            this.afterDate = null;
+            this.afterSid = null;
+        }
     }
 
     public String getSid() {
@@ -129,4 +147,12 @@ public class CallDetailRecordFilter {
     }
 
     public String getInstanceid() { return instanceid; }
+
+    public Date getAfterDate() {
+        return afterDate;
+    }
+
+    public String getAfterSid() {
+        return afterSid;
+    }
 }
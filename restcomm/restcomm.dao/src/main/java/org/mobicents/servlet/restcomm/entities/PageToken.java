@@ -0,0 +1,72 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.entities;
+
+import org.joda.time.DateTime;
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+
+/**
+ * Position of a record in a list sorted by creation date and sid. Lists are read one page at a time starting right
+ * after the last record of the previous page (keyset pagination), so the database doesn't have to skip over all the
+ * previous pages like it does with an offset.
+ *
+ * The token is handed to the clients as an opaque string made of the creation date in base 36 followed by the sid. The
+ * date is kept in whole seconds like the date_created columns.
+ */
+@Immutable
+public final class PageToken {
+    private static final int SID_LENGTH = 34;
+
+    private final DateTime dateCreated;
+    private final Sid sid;
+
+    public PageToken(final DateTime dateCreated, final Sid sid) {
+        super();
+        this.dateCreated = dateCreated.withMillisOfSecond(0);
+        this.sid = sid;
+    }
+
+    public static PageToken valueOf(final String token) throws IllegalArgumentException {
+        if (token == null || token.length() <= SID_LENGTH) {
+            throw new IllegalArgumentException(token + " is an invalid page token.");
+        }
+        final int split = token.length() - SID_LENGTH;
+        final long millis;
+        try {
+            millis = Long.parseLong(token.substring(0, split), Character.MAX_RADIX);
+        } catch (final NumberFormatException exception) {
+            throw new IllegalArgumentException(token + " is an invalid page token.", exception);
+        }
+        return new PageToken(new DateTime(millis), new Sid(token.substring(split)));
+    }
+
+    public DateTime getDateCreated() {
+        return dateCreated;
+    }
+
+    public Sid getSid() {
+        return sid;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(dateCreated.getMillis(), Character.MAX_RADIX) + sid.toString();
+    }
+}
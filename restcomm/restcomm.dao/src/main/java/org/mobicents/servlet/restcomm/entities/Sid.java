@@ -34,7 +34,7 @@ public final class Sid {
     private final String id;
 
     public enum Type {
-        ACCOUNT, APPLICATION, ANNOUNCEMENT, CALL, CLIENT, CONFERENCE, GATEWAY, INVALID, NOTIFICATION, PHONE_NUMBER, RECORDING, REGISTRATION, SHORT_CODE, SMS_MESSAGE, TRANSCRIPTION, INSTANCE
+        ACCOUNT, APPLICATION, ANNOUNCEMENT, BULK_CALL, BULK_SMS, CALL, CLIENT, CONFERENCE, GATEWAY, INVALID, NOTIFICATION, PHONE_NUMBER, RECORDING, REGISTRATION, SHORT_CODE, SMS_MESSAGE, TRANSCRIPTION, INSTANCE
     };
 
     private static final Sid INVALID_SID = new Sid("IN00000000000000000000000000000000");
@@ -91,6 +91,12 @@ public final class Sid {
             case ANNOUNCEMENT: {
                 return new Sid("AN" + uuid);
             }
+            case BULK_CALL: {
+                return new Sid("BC" + uuid);
+            }
+            case BULK_SMS: {
+                return new Sid("BS" + uuid);
+            }
             case CALL: {
                 return new Sid("CA" + uuid);
             }
@@ -0,0 +1,94 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dao.mybatis;
+
+import static org.junit.Assert.*;
+
+import java.io.InputStream;
+import java.net.URI;
+
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.dao.CachedAccountsDao;
+import org.mobicents.servlet.restcomm.entities.Account;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+public class CachedAccountsDaoTest {
+    private MybatisAccountsDao dao;
+    private CachedAccountsDao accounts;
+    private Sid sid;
+
+    public CachedAccountsDaoTest() {
+        super();
+    }
+
+    @Before
+    public void before() {
+        final InputStream data = getClass().getResourceAsStream("/mybatis.xml");
+        final SqlSessionFactoryBuilder builder = new SqlSessionFactoryBuilder();
+        final SqlSessionFactory factory = builder.build(data);
+        dao = new MybatisAccountsDao(factory);
+        accounts = new CachedAccountsDao(dao, 2, 60000);
+        sid = Sid.generate(Sid.Type.ACCOUNT);
+        final Account.Builder accountBuilder = Account.builder();
+        accountBuilder.setSid(sid);
+        accountBuilder.setEmailAddress("cached@company.com");
+        accountBuilder.setFriendlyName("Cached Accounts Test");
+        accountBuilder.setType(Account.Type.FULL);
+        accountBuilder.setStatus(Account.Status.ACTIVE);
+        accountBuilder.setAuthToken("77f8c12cc7b8f8423e5c38b035249166");
+        accountBuilder.setRole("Administrator");
+        accountBuilder.setUri(URI.create("/2012-04-24/Accounts/" + sid + ".json"));
+        accounts.addAccount(accountBuilder.build());
+    }
+
+    @After
+    public void after() {
+        dao.removeAccount(sid);
+    }
+
+    @Test
+    public void lookupsAreCachedUntilUpdated() {
+        final Account account = accounts.getAccountToAuthenticate("cached@company.com");
+        assertEquals(sid, account.getSid());
+        assertEquals(sid, accounts.getAccount(sid).getSid());
+        // Changes made behind the cache's back are not seen until the entries expire.
+        dao.updateAccount(account.setAuthToken("a3b6b3d7c4f1e2a9b8c7d6e5f4a3b2c1"));
+        assertEquals("77f8c12cc7b8f8423e5c38b035249166", accounts.getAccountToAuthenticate("cached@company.com").getAuthToken());
+        // Changes made through the cache are seen right away.
+        accounts.updateAccount(account.setAuthToken("0a1b2c3d4e5f60718293a4b5c6d7e8f9"));
+        assertEquals("0a1b2c3d4e5f60718293a4b5c6d7e8f9", accounts.getAccountToAuthenticate("cached@company.com").getAuthToken());
+        assertEquals("0a1b2c3d4e5f60718293a4b5c6d7e8f9", accounts.getAccount(sid).getAuthToken());
+    }
+
+    @Test
+    public void cacheIsBounded() {
+        accounts.getAccount(sid);
+        accounts.getAccount("Cached Accounts Test");
+        accounts.getAccountToAuthenticate("cached@company.com");
+        assertEquals(2, accounts.size());
+        // Unknown accounts are cached as well.
+        assertNull(accounts.getAccountToAuthenticate("unknown@company.com"));
+        assertEquals(2, accounts.size());
+    }
+}
@@ -24,7 +24,12 @@ import static org.junit.Assert.*;
 import java.io.InputStream;
 import java.math.BigDecimal;
 import java.net.URI;
+import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.session.SqlSessionFactoryBuilder;
@@ -35,6 +40,8 @@ import org.junit.Test;
 import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
 import org.mobicents.servlet.restcomm.dao.CallDetailRecordsDao;
 import org.mobicents.servlet.restcomm.entities.CallDetailRecord;
+import org.mobicents.servlet.restcomm.entities.CallDetailRecordFilter;
+import org.mobicents.servlet.restcomm.entities.PageToken;
 import org.mobicents.servlet.restcomm.entities.Sid;
 
 /**
@@ -169,6 +176,92 @@ public class CallDetailRecordsDaoTest {
         assertTrue(cdrs.getCallDetailRecords(account).size() == 0);
     }
 
+    @Test
+    public void testReadPageAfterToken() throws ParseException {
+        final Sid account = Sid.generate(Sid.Type.ACCOUNT);
+        final URI url = URI.create("http://127.0.0.1:8080/restcomm/demos/hello-world.xml");
+        final CallDetailRecordsDao cdrs = manager.getCallDetailRecordsDao();
+        // Some calls share the same creation date so that the sid has to break the ties.
+        final DateTime now = DateTime.now().withMillisOfSecond(0);
+        for (int index = 0; index < 5; index++) {
+            final CallDetailRecord.Builder builder = CallDetailRecord.builder();
+            builder.setSid(Sid.generate(Sid.Type.CALL));
+            builder.setInstanceId(Sid.generate(Sid.Type.INSTANCE).toString());
+            builder.setDateCreated(now.plusSeconds(index / 2));
+            builder.setAccountSid(account);
+            builder.setTo("+12223334444");
+            builder.setFrom("+17778889999");
+            builder.setStatus("completed");
+            builder.setPriceUnit(Currency.getInstance("USD"));
+            builder.setDirection("inbound");
+            builder.setApiVersion("2012-04-24");
+            builder.setUri(url);
+            cdrs.addCallDetailRecord(builder.build());
+        }
+        // Walk through the calls two at a time.
+        final List<Sid> sids = new ArrayList<Sid>();
+        PageToken token = null;
+        List<CallDetailRecord> page;
+        do {
+            final CallDetailRecordFilter filter = new CallDetailRecordFilter(account.toString(), null, null, null, null,
+                    null, null, null, 2, null, null, token);
+            page = cdrs.getCallDetailRecordsPage(filter);
+            for (final CallDetailRecord cdr : page) {
+                assertFalse(sids.contains(cdr.getSid()));
+                sids.add(cdr.getSid());
+            }
+            if (!page.isEmpty()) {
+                final CallDetailRecord last = page.get(page.size() - 1);
+                token = PageToken.valueOf(new PageToken(last.getDateCreated(), last.getSid()).toString());
+            }
+        } while (page.size() == 2);
+        assertTrue(sids.size() == 5);
+        cdrs.removeCallDetailRecords(account);
+    }
+
+    @Test
+    public void testReadPageAfterTokenWithMilliseconds() {
+        final Sid account = Sid.generate(Sid.Type.ACCOUNT);
+        final URI url = URI.create("http://127.0.0.1:8080/restcomm/demos/hello-world.xml");
+        final CallDetailRecordsDao cdrs = manager.getCallDetailRecordsDao();
+        // The column keeps whole seconds while the tokens are made from the dates the calls were created with.
+        final DateTime now = DateTime.now().withMillisOfSecond(0);
+        final Map<Sid, DateTime> created = new HashMap<Sid, DateTime>();
+        for (int index = 0; index < 5; index++) {
+            final CallDetailRecord.Builder builder = CallDetailRecord.builder();
+            final Sid sid = Sid.generate(Sid.Type.CALL);
+            builder.setSid(sid);
+            builder.setInstanceId(Sid.generate(Sid.Type.INSTANCE).toString());
+            builder.setDateCreated(now.plusMillis(index * 400));
+            builder.setAccountSid(account);
+            builder.setTo("+12223334444");
+            builder.setFrom("+17778889999");
+            builder.setStatus("completed");
+            builder.setPriceUnit(Currency.getInstance("USD"));
+            builder.setDirection("inbound");
+            builder.setApiVersion("2012-04-24");
+            builder.setUri(url);
+            cdrs.addCallDetailRecord(builder.build());
+            created.put(sid, now.plusMillis(index * 400));
+        }
+        // Walk through the calls one at a time.
+        final List<Sid> sids = new ArrayList<Sid>();
+        PageToken token = null;
+        List<CallDetailRecord> page;
+        do {
+            final CallDetailRecordFilter filter = new CallDetailRecordFilter(account.toString(), null, null, null, null,
+                    null, null, null, 1, null, null, token);
+            page = cdrs.getCallDetailRecordsPage(filter);
+            for (final CallDetailRecord cdr : page) {
+                assertFalse(sids.contains(cdr.getSid()));
+                sids.add(cdr.getSid());
+                token = new PageToken(created.get(cdr.getSid()), cdr.getSid());
+            }
+        } while (page.size() == 1);
+        assertTrue(sids.size() == 5);
+        cdrs.removeCallDetailRecords(account);
+    }
+
     public void testReadByRecipient() {
         final Sid sid = Sid.generate(Sid.Type.CALL);
         final String instanceId = Sid.generate(Sid.Type.INSTANCE).toString();
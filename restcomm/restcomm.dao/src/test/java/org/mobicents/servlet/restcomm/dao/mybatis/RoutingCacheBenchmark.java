@@ -0,0 +1,169 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dao.mybatis;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.mobicents.servlet.restcomm.dao.RoutingCache;
+import org.mobicents.servlet.restcomm.entities.Account;
+import org.mobicents.servlet.restcomm.entities.Application;
+import org.mobicents.servlet.restcomm.entities.IncomingPhoneNumber;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the routing done by CallManager.redirectToHostedVoiceApp() for an INVITE with and without the routing
+ * cache. 'direct' is a number found by its first variant (3 queries without the cache) and 'wildcard' one that falls
+ * through to the '*' number (6 queries without the cache).
+ *
+ * It runs against the HSQLDB database of the unit tests. To run it against MySQL pass the path of a MyBatis
+ * configuration that points to a MySQL data source and uses the MySQL mappers with -Drestcomm.benchmark.mybatis=...
+ * It is not part of the unit tests, run its main method with the test class path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RoutingCacheBenchmark {
+
+    @Param({ "true", "false" })
+    public boolean cached;
+
+    @Param({ "direct", "wildcard" })
+    public String dialed;
+
+    private MybatisDaoManager manager;
+    private RoutingCache routes;
+    private String[] variants;
+    private Sid account;
+    private Sid application;
+    private Sid number;
+    private Sid wildcard;
+
+    @Setup
+    public void setup() throws IOException {
+        final String configuration = System.getProperty("restcomm.benchmark.mybatis");
+        final InputStream data = configuration != null ? new FileInputStream(configuration) : getClass()
+                .getResourceAsStream("/mybatis.xml");
+        final SqlSessionFactory factory = new SqlSessionFactoryBuilder().build(data);
+        manager = new MybatisDaoManager();
+        manager.start(factory);
+        account = Sid.generate(Sid.Type.ACCOUNT);
+        application = Sid.generate(Sid.Type.APPLICATION);
+        number = Sid.generate(Sid.Type.PHONE_NUMBER);
+        wildcard = Sid.generate(Sid.Type.PHONE_NUMBER);
+        final Account.Builder accountBuilder = Account.builder();
+        accountBuilder.setSid(account);
+        accountBuilder.setEmailAddress("benchmark@company.com");
+        accountBuilder.setFriendlyName("Routing Cache Benchmark");
+        accountBuilder.setType(Account.Type.FULL);
+        accountBuilder.setStatus(Account.Status.ACTIVE);
+        accountBuilder.setAuthToken("77f8c12cc7b8f8423e5c38b035249166");
+        accountBuilder.setRole("Administrator");
+        accountBuilder.setUri(URI.create("/2012-04-24/Accounts/" + account + ".json"));
+        manager.getAccountsDao().addAccount(accountBuilder.build());
+        final Application.Builder applicationBuilder = Application.builder();
+        applicationBuilder.setSid(application);
+        applicationBuilder.setFriendlyName("Routing Cache Benchmark");
+        applicationBuilder.setAccountSid(account);
+        applicationBuilder.setApiVersion("2012-04-24");
+        applicationBuilder.setHasVoiceCallerIdLookup(false);
+        applicationBuilder.setUri(URI.create("/2012-04-24/Accounts/" + account + "/Applications/" + application));
+        applicationBuilder.setRcmlUrl(URI.create("http://127.0.0.1:8080/restcomm/demos/hello-world.xml"));
+        applicationBuilder.setKind(Application.Kind.VOICE);
+        manager.getApplicationsDao().addApplication(applicationBuilder.build());
+        manager.getIncomingPhoneNumbersDao().addIncomingPhoneNumber(number(number, "+12223334466"));
+        if ("direct".equals(dialed)) {
+            variants = new String[] { "+12223334466" };
+        } else {
+            if (manager.getIncomingPhoneNumbersDao().getIncomingPhoneNumber("*") == null) {
+                manager.getIncomingPhoneNumbersDao().addIncomingPhoneNumber(number(wildcard, "*"));
+            }
+            // E.164, as dialed, with the '+' toggled then the wildcard
+            variants = new String[] { "+15550001111", "15550001111", "+15550001111", "*" };
+        }
+        routes = new RoutingCache(manager.getIncomingPhoneNumbersDao(), manager.getAccountsDao(),
+                manager.getApplicationsDao(), cached, 0);
+        routes.load();
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager.getIncomingPhoneNumbersDao().removeIncomingPhoneNumber(number);
+        manager.getIncomingPhoneNumbersDao().removeIncomingPhoneNumber(wildcard);
+        manager.getApplicationsDao().removeApplication(application);
+        manager.getAccountsDao().removeAccount(account);
+        manager.shutdown();
+    }
+
+    private IncomingPhoneNumber number(final Sid sid, final String phoneNumber) {
+        final IncomingPhoneNumber.Builder builder = IncomingPhoneNumber.builder();
+        builder.setSid(sid);
+        builder.setFriendlyName("Routing Cache Benchmark");
+        builder.setAccountSid(account);
+        builder.setPhoneNumber(phoneNumber);
+        builder.setApiVersion("2012-04-24");
+        builder.setHasVoiceCallerIdLookup(false);
+        builder.setVoiceMethod("POST");
+        builder.setVoiceApplicationSid(application);
+        builder.setUri(URI.create("/2012-04-24/Accounts/" + account + "/IncomingPhoneNumbers/" + sid));
+        return builder.build();
+    }
+
+    @Benchmark
+    public RoutingCache.Route route() {
+        RoutingCache.Route route = null;
+        for (final String variant : variants) {
+            route = routes.getRoute(variant);
+            if (route != null) {
+                break;
+            }
+        }
+        return route;
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder().include(RoutingCacheBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dao.mybatis;
+
+import static org.junit.Assert.*;
+
+import java.io.InputStream;
+import java.net.URI;
+
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.dao.RoutingCache;
+import org.mobicents.servlet.restcomm.entities.Account;
+import org.mobicents.servlet.restcomm.entities.Application;
+import org.mobicents.servlet.restcomm.entities.IncomingPhoneNumber;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+public class RoutingCacheTest {
+    private static MybatisDaoManager manager;
+
+    private Sid account;
+    private Sid application;
+    private Sid number;
+    private Sid other;
+
+    public RoutingCacheTest() {
+        super();
+    }
+
+    @Before
+    public void before() {
+        final InputStream data = getClass().getResourceAsStream("/mybatis.xml");
+        final SqlSessionFactoryBuilder builder = new SqlSessionFactoryBuilder();
+        final SqlSessionFactory factory = builder.build(data);
+        manager = new MybatisDaoManager();
+        manager.start(factory);
+        account = Sid.generate(Sid.Type.ACCOUNT);
+        application = Sid.generate(Sid.Type.APPLICATION);
+        number = Sid.generate(Sid.Type.PHONE_NUMBER);
+        other = Sid.generate(Sid.Type.PHONE_NUMBER);
+        final Account.Builder accountBuilder = Account.builder();
+        accountBuilder.setSid(account);
+        accountBuilder.setEmailAddress("routing@company.com");
+        accountBuilder.setFriendlyName("Routing Cache Test");
+        accountBuilder.setType(Account.Type.FULL);
+        accountBuilder.setStatus(Account.Status.ACTIVE);
+        accountBuilder.setAuthToken("77f8c12cc7b8f8423e5c38b035249166");
+        accountBuilder.setRole("Administrator");
+        accountBuilder.setUri(URI.create("/2012-04-24/Accounts/" + account + ".json"));
+        manager.getAccountsDao().addAccount(accountBuilder.build());
+        final Application.Builder applicationBuilder = Application.builder();
+        applicationBuilder.setSid(application);
+        applicationBuilder.setFriendlyName("Routing Cache Test");
+        applicationBuilder.setAccountSid(account);
+        applicationBuilder.setApiVersion("2012-04-24");
+        applicationBuilder.setHasVoiceCallerIdLookup(false);
+        applicationBuilder.setUri(URI.create("/2012-04-24/Accounts/" + account + "/Applications/" + application));
+        applicationBuilder.setRcmlUrl(URI.create("http://127.0.0.1:8080/restcomm/demos/hello-world.xml"));
+        applicationBuilder.setKind(Application.Kind.VOICE);
+        manager.getApplicationsDao().addApplication(applicationBuilder.build());
+        manager.getIncomingPhoneNumbersDao().addIncomingPhoneNumber(number(number, "+12223334455"));
+    }
+
+    @After
+    public void after() {
+        manager.getIncomingPhoneNumbersDao().removeIncomingPhoneNumber(number);
+        manager.getIncomingPhoneNumbersDao().removeIncomingPhoneNumber(other);
+        manager.getApplicationsDao().removeApplication(application);
+        manager.getAccountsDao().removeAccount(account);
+        manager.shutdown();
+    }
+
+    private IncomingPhoneNumber number(final Sid sid, final String phoneNumber) {
+        final IncomingPhoneNumber.Builder builder = IncomingPhoneNumber.builder();
+        builder.setSid(sid);
+        builder.setFriendlyName("Routing Cache Test");
+        builder.setAccountSid(account);
+        builder.setPhoneNumber(phoneNumber);
+        builder.setApiVersion("2012-04-24");
+        builder.setHasVoiceCallerIdLookup(false);
+        builder.setVoiceMethod("POST");
+        builder.setVoiceApplicationSid(application);
+        builder.setUri(URI.create("/2012-04-24/Accounts/" + account + "/IncomingPhoneNumbers/" + sid));
+        return builder.build();
+    }
+
+    @Test
+    public void routeIsResolvedAndCached() {
+        final RoutingCache routes = manager.getRoutingCache();
+        routes.invalidate();
+        final RoutingCache.Route route = routes.getRoute("+12223334455");
+        assertNotNull(route);
+        assertEquals(number, route.getNumber().getSid());
+        assertEquals("routing@company.com", route.getAccount().getEmailAddress());
+        assertEquals(application, route.getApplication().getSid());
+        // The second lookup doesn't go to the database
+        assertSame(route, routes.getRoute("+12223334455"));
+        assertEquals(1, routes.size());
+    }
+
+    @Test
+    public void missingNumbersAreCachedUntilInvalidated() {
+        final RoutingCache routes = manager.getRoutingCache();
+        routes.invalidate();
+        assertNull(routes.getRoute("+15556667788"));
+        manager.getIncomingPhoneNumbersDao().addIncomingPhoneNumber(number(other, "+15556667788"));
+        assertNull(routes.getRoute("+15556667788"));
+        routes.invalidate();
+        assertNotNull(routes.getRoute("+15556667788"));
+    }
+
+    @Test
+    public void missingNumbersAreBounded() {
+        final RoutingCache routes = new RoutingCache(manager.getIncomingPhoneNumbersDao(), manager.getAccountsDao(),
+                manager.getApplicationsDao(), true, 0, 2);
+        assertNull(routes.getRoute("+15550000001"));
+        assertNull(routes.getRoute("+15550000002"));
+        assertNull(routes.getRoute("+15550000003"));
+        assertEquals(2, routes.size());
+        assertNotNull(routes.getRoute("+12223334455"));
+        assertEquals(3, routes.size());
+    }
+
+    @Test
+    public void expiredRoutesArePurged() throws InterruptedException {
+        final RoutingCache routes = new RoutingCache(manager.getIncomingPhoneNumbersDao(), manager.getAccountsDao(),
+                manager.getApplicationsDao(), true, 50, 10);
+        assertNull(routes.getRoute("+15550000001"));
+        assertNotNull(routes.getRoute("+12223334455"));
+        assertEquals(2, routes.size());
+        Thread.sleep(120);
+        // Any lookup purges what expired, here a number that is not cached yet.
+        assertNull(routes.getRoute("+15550000002"));
+        assertEquals(1, routes.size());
+    }
+
+    @Test
+    public void updatesAreSeenAfterInvalidation() {
+        final RoutingCache routes = manager.getRoutingCache();
+        routes.invalidate();
+        assertEquals(URI.create("http://127.0.0.1:8080/restcomm/demos/hello-world.xml"),
+                routes.getRoute("+12223334455").getApplication().getRcmlUrl());
+        final Application updated = manager.getApplicationsDao().getApplication(application)
+                .setRcmlUrl(URI.create("http://127.0.0.1:8080/restcomm/demos/gather.xml"));
+        manager.getApplicationsDao().updateApplication(updated);
+        routes.invalidate();
+        assertEquals(URI.create("http://127.0.0.1:8080/restcomm/demos/gather.xml"),
+                routes.getRoute("+12223334455").getApplication().getRcmlUrl());
+    }
+
+    @Test
+    public void loadCachesAllNumbers() {
+        final RoutingCache routes = manager.getRoutingCache();
+        routes.invalidate();
+        routes.load();
+        final int size = routes.size();
+        assertTrue(size >= 1);
+        final RoutingCache.Route route = routes.getRoute("+12223334455");
+        assertNotNull(route);
+        assertEquals(size, routes.size());
+    }
+
+    @Test
+    public void disabledCacheAlwaysReadsTheDatabase() {
+        final RoutingCache routes = new RoutingCache(manager.getIncomingPhoneNumbersDao(), manager.getAccountsDao(),
+                manager.getApplicationsDao(), false, 0);
+        assertNotNull(routes.getRoute("+12223334455"));
+        assertEquals(0, routes.size());
+    }
+}
@@ -22,7 +22,9 @@ package org.mobicents.servlet.restcomm.dao.mybatis;
 import java.io.InputStream;
 import java.math.BigDecimal;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Currency;
+import java.util.List;
 
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.session.SqlSessionFactoryBuilder;
@@ -111,6 +113,42 @@ public final class SmsMessagesDaoTest {
         assertTrue(messages.getSmsMessage(sid) == null);
     }
 
+    @Test
+    public void addAndUpdateInBatches() {
+        final Sid account = Sid.generate(Sid.Type.ACCOUNT);
+        final URI url = URI.create("2012-04-24/Accounts/Acoount/SMS/Messages/unique-id.json");
+        final List<SmsMessage> batch = new ArrayList<SmsMessage>();
+        for (int index = 0; index < 7; index++) {
+            final SmsMessage.Builder builder = SmsMessage.builder();
+            builder.setSid(Sid.generate(Sid.Type.SMS_MESSAGE));
+            builder.setAccountSid(account);
+            builder.setApiVersion("2012-04-24");
+            builder.setRecipient("+1222333444" + index);
+            builder.setSender("+17778889999");
+            builder.setBody("Hello World!");
+            builder.setStatus(SmsMessage.Status.QUEUED);
+            builder.setDirection(SmsMessage.Direction.OUTBOUND_API);
+            builder.setPrice(new BigDecimal("0.00"));
+            builder.setPriceUnit(Currency.getInstance("USD"));
+            builder.setUri(url);
+            batch.add(builder.build());
+        }
+        final SmsMessagesDao messages = manager.getSmsMessagesDao();
+        // Insert the messages in batches of 3, the last batch is not full.
+        messages.addSmsMessages(batch, 3);
+        assertTrue(messages.getSmsMessages(account).size() == 7);
+        final List<SmsMessage> updates = new ArrayList<SmsMessage>();
+        for (final SmsMessage message : batch) {
+            updates.add(message.setStatus(SmsMessage.Status.SENT));
+        }
+        messages.updateSmsMessages(updates, 3);
+        for (final SmsMessage message : batch) {
+            assertTrue(messages.getSmsMessage(message.getSid()).getStatus() == SmsMessage.Status.SENT);
+        }
+        messages.removeSmsMessages(account);
+        assertTrue(messages.getSmsMessages(account).size() == 0);
+    }
+
     @Test
     public void testReadDeleteByAccount() {
         final Sid sid = Sid.generate(Sid.Type.SMS_MESSAGE);
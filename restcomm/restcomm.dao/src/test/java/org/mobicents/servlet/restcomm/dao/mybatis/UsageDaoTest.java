@@ -0,0 +1,165 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dao.mybatis;
+
+import static org.junit.Assert.*;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Currency;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.dao.UsageDao;
+import org.mobicents.servlet.restcomm.entities.CallDetailRecord;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.entities.Usage;
+
+public class UsageDaoTest {
+    private SqlSessionFactory factory;
+    private MybatisCallDetailRecordsDao cdrs;
+    private MybatisUsageRollup rollup;
+    private Sid account;
+
+    public UsageDaoTest() {
+        super();
+    }
+
+    @Before
+    public void before() {
+        final InputStream data = getClass().getResourceAsStream("/mybatis.xml");
+        final SqlSessionFactoryBuilder builder = new SqlSessionFactoryBuilder();
+        factory = builder.build(data);
+        cdrs = new MybatisCallDetailRecordsDao(factory);
+        // Roll up the whole history in a single pass.
+        rollup = new MybatisUsageRollup(factory, 1, 3650);
+        account = Sid.generate(Sid.Type.ACCOUNT);
+    }
+
+    @After
+    public void after() throws SQLException {
+        rollup.shutdown();
+        cdrs.removeCallDetailRecords(account);
+        final SqlSession session = factory.openSession(true);
+        try {
+            final Statement statement = session.getConnection().createStatement();
+            statement.execute("DELETE FROM \"restcomm_usage_daily\"");
+            statement.close();
+        } finally {
+            session.close();
+        }
+    }
+
+    @Test
+    public void rollupsMatchTheRecords() {
+        addCall(new DateTime(2015, 1, 10, 9, 0), 30, "0.25");
+        addCall(new DateTime(2015, 1, 10, 17, 30), 60, "0.5");
+        addCall(new DateTime(2015, 1, 11, 12, 0), 15, "0.25");
+        addCall(new DateTime(2015, 2, 3, 23, 45), 120, "1.0");
+        assertTrue(rollup.rollup(Usage.Category.CALLS, new LocalDate(2015, 2, 5)) > 0);
+        assertSameUsage();
+        // Records past the watermark are read from the call detail records until the next pass.
+        addCall(new DateTime(2015, 2, 4, 8, 0), 45, "0.75");
+        addCall(new DateTime(2015, 3, 2, 10, 0), 90, "0.5");
+        assertSameUsage();
+        rollup.rollup(Usage.Category.CALLS, new LocalDate(2015, 3, 5));
+        assertSameUsage();
+    }
+
+    @Test
+    public void rollupsStopBeforeToday() {
+        addCall(new DateTime(2015, 1, 10, 9, 0), 30, "0.25");
+        addCall(new DateTime(2015, 1, 11, 12, 0), 15, "0.25");
+        // The records of today and later may still change, they are not rolled up.
+        rollup.rollup(Usage.Category.CALLS, new LocalDate(2015, 1, 11));
+        final Map<String, Object> params = new HashMap<String, Object>();
+        params.put("category", "calls");
+        final SqlSession session = factory.openSession();
+        try {
+            final Date watermark = session.selectOne(MybatisUsageDao.namespace + "getUsageRollupWatermark", params);
+            assertEquals(new LocalDate(2015, 1, 10), new LocalDate(watermark));
+        } finally {
+            session.close();
+        }
+        assertSameUsage();
+    }
+
+    private void addCall(final DateTime date, final int duration, final String price) {
+        final CallDetailRecord.Builder builder = CallDetailRecord.builder();
+        builder.setSid(Sid.generate(Sid.Type.CALL));
+        builder.setInstanceId(Sid.generate(Sid.Type.INSTANCE).toString());
+        builder.setDateCreated(date);
+        builder.setAccountSid(account);
+        builder.setTo("+12223334444");
+        builder.setFrom("+17778889999");
+        builder.setStatus("completed");
+        builder.setStartTime(date);
+        builder.setEndTime(date.plusSeconds(duration));
+        builder.setDuration(duration);
+        builder.setPrice(new BigDecimal(price));
+        builder.setPriceUnit(Currency.getInstance("USD"));
+        builder.setDirection("outbound-api");
+        builder.setApiVersion("2012-04-24");
+        builder.setUri(URI.create("/2012-04-24/Accounts/" + account + "/Calls/" + date.getMillis()));
+        cdrs.addCallDetailRecord(builder.build());
+    }
+
+    private void assertSameUsage() {
+        final UsageDao records = new MybatisUsageDao(factory, false);
+        final UsageDao rollups = new MybatisUsageDao(factory, true);
+        final DateTime start = new DateTime(2015, 1, 1, 0, 0);
+        final DateTime end = new DateTime(2015, 3, 31, 0, 0);
+        assertSameUsage(records.getUsageDaily(account, Usage.Category.CALLS, start, end),
+                rollups.getUsageDaily(account, Usage.Category.CALLS, start, end));
+        assertSameUsage(records.getUsageMonthly(account, Usage.Category.CALLS, start, end),
+                rollups.getUsageMonthly(account, Usage.Category.CALLS, start, end));
+        assertSameUsage(records.getUsageYearly(account, Usage.Category.CALLS, start, end),
+                rollups.getUsageYearly(account, Usage.Category.CALLS, start, end));
+        assertSameUsage(records.getUsageAllTime(account, Usage.Category.CALLS, start, end),
+                rollups.getUsageAllTime(account, Usage.Category.CALLS, start, end));
+    }
+
+    private void assertSameUsage(final List<Usage> expected, final List<Usage> actual) {
+        assertFalse(expected.isEmpty());
+        assertEquals(expected.size(), actual.size());
+        for (int index = 0; index < expected.size(); index++) {
+            final Usage record = expected.get(index);
+            final Usage rolledUp = actual.get(index);
+            assertEquals(record.getStartDate(), rolledUp.getStartDate());
+            assertEquals(record.getEndDate(), rolledUp.getEndDate());
+            assertEquals(record.getCount(), rolledUp.getCount());
+            assertEquals(record.getUsage(), rolledUp.getUsage());
+            assertEquals(0, record.getPrice().compareTo(rolledUp.getPrice()));
+        }
+    }
+}
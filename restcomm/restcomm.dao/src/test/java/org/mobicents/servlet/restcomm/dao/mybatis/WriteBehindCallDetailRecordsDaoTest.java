@@ -0,0 +1,200 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dao.mybatis;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Currency;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.entities.CallDetailRecord;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+public class WriteBehindCallDetailRecordsDaoTest {
+    private MybatisCallDetailRecordsDao dao;
+    private MybatisWriteBehindCallDetailRecordsDao cdrs;
+    private SqlSessionFactory factory;
+
+    public WriteBehindCallDetailRecordsDaoTest() {
+        super();
+    }
+
+    @Before
+    public void before() {
+        final InputStream data = getClass().getResourceAsStream("/mybatis.xml");
+        final SqlSessionFactoryBuilder builder = new SqlSessionFactoryBuilder();
+        factory = builder.build(data);
+        dao = new MybatisCallDetailRecordsDao(factory);
+        // A batch size and an interval large enough for nothing to be written behind our back.
+        cdrs = new MybatisWriteBehindCallDetailRecordsDao(factory, dao, 1000, 60000, 1000);
+    }
+
+    @After
+    public void after() {
+        cdrs.shutdown();
+    }
+
+    private CallDetailRecord cdr(final Sid account) {
+        final CallDetailRecord.Builder builder = CallDetailRecord.builder();
+        builder.setSid(Sid.generate(Sid.Type.CALL));
+        builder.setInstanceId(Sid.generate(Sid.Type.INSTANCE).toString());
+        builder.setDateCreated(DateTime.now());
+        builder.setAccountSid(account);
+        builder.setTo("+12223334444");
+        builder.setFrom("+17778889999");
+        builder.setStatus("queued");
+        builder.setStartTime(DateTime.now());
+        builder.setDuration(0);
+        builder.setPrice(new BigDecimal("0.00"));
+        builder.setPriceUnit(Currency.getInstance("USD"));
+        builder.setDirection("inbound");
+        builder.setApiVersion("2012-04-24");
+        builder.setUri(URI.create("http://127.0.0.1:8080/restcomm/demos/hello-world.xml"));
+        return builder.build();
+    }
+
+    @Test
+    public void pendingWritesAreVisible() {
+        final CallDetailRecord cdr = cdr(Sid.generate(Sid.Type.ACCOUNT));
+        cdrs.addCallDetailRecord(cdr);
+        // Nothing was written yet but the record can be read back.
+        assertNull(dao.getCallDetailRecord(cdr.getSid()));
+        assertEquals("queued", cdrs.getCallDetailRecord(cdr.getSid()).getStatus());
+        cdrs.updateCallDetailRecord(cdr.setStatus("in-progress"));
+        assertEquals("in-progress", cdrs.getCallDetailRecord(cdr.getSid()).getStatus());
+    }
+
+    @Test
+    public void updatesAreCoalesced() {
+        final CallDetailRecord cdr = cdr(Sid.generate(Sid.Type.ACCOUNT));
+        cdrs.addCallDetailRecord(cdr);
+        cdrs.updateCallDetailRecord(cdr.setStatus("ringing"));
+        cdrs.updateCallDetailRecord(cdr.setStatus("in-progress"));
+        cdrs.updateCallDetailRecord(cdr.setStatus("completed").setDuration(10));
+        cdrs.flush();
+        // The insert and the updates ended up as a single row with the last state of the call.
+        final CallDetailRecord result = dao.getCallDetailRecord(cdr.getSid());
+        assertEquals("completed", result.getStatus());
+        assertEquals(Integer.valueOf(10), result.getDuration());
+        dao.removeCallDetailRecord(cdr.getSid());
+    }
+
+    @Test
+    public void listsDontWaitForPendingWrites() {
+        final Sid account = Sid.generate(Sid.Type.ACCOUNT);
+        for (int index = 0; index < 10; index++) {
+            cdrs.addCallDetailRecord(cdr(account));
+        }
+        assertTrue(cdrs.getCallDetailRecords(account).isEmpty());
+        cdrs.flush();
+        assertEquals(10, cdrs.getCallDetailRecords(account).size());
+        // A pending insert must not bring back a removed record.
+        cdrs.addCallDetailRecord(cdr(account));
+        cdrs.removeCallDetailRecords(account);
+        assertTrue(dao.getCallDetailRecords(account).isEmpty());
+    }
+
+    @Test
+    public void failedRecordsAreRetriedThenDeadLettered() throws IOException {
+        final File deadLetters = File.createTempFile("cdr-dead-letters", ".log");
+        deadLetters.deleteOnExit();
+        final MybatisWriteBehindCallDetailRecordsDao retrying = new MybatisWriteBehindCallDetailRecordsDao(factory, dao,
+                1000, 500, 1000, 3, deadLetters);
+        try {
+            final Sid account = Sid.generate(Sid.Type.ACCOUNT);
+            final CallDetailRecord good = cdr(account);
+            // The status can't be null, this one is refused by the database.
+            final CallDetailRecord bad = cdr(account).setStatus(null);
+            retrying.addCallDetailRecord(good);
+            retrying.addCallDetailRecord(bad);
+            final long start = System.currentTimeMillis();
+            retrying.flush();
+            // The attempts are spaced by the flush interval instead of failing back to back.
+            assertTrue(System.currentTimeMillis() - start >= 500);
+            assertNotNull(dao.getCallDetailRecord(good.getSid()));
+            assertNull(dao.getCallDetailRecord(bad.getSid()));
+            final List<String> lines = Files.readAllLines(deadLetters.toPath(), Charset.forName("UTF-8"));
+            assertEquals(1, lines.size());
+            assertTrue(lines.get(0).startsWith("insert\t"));
+            assertTrue(lines.get(0).contains("sid=" + bad.getSid()));
+            dao.removeCallDetailRecords(account);
+        } finally {
+            retrying.shutdown();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void flushDoesNotWaitForLaterWrites() throws InterruptedException {
+        final Sid account = Sid.generate(Sid.Type.ACCOUNT);
+        for (int index = 0; index < 10; index++) {
+            cdrs.addCallDetailRecord(cdr(account));
+        }
+        // Calls keep coming while the records are flushed.
+        final Sid other = Sid.generate(Sid.Type.ACCOUNT);
+        final AtomicBoolean calling = new AtomicBoolean(true);
+        final Thread calls = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (calling.get()) {
+                    cdrs.addCallDetailRecord(cdr(other));
+                }
+            }
+        });
+        calls.start();
+        try {
+            cdrs.flush();
+            assertEquals(10, dao.getCallDetailRecords(account).size());
+        } finally {
+            calling.set(false);
+            calls.join();
+        }
+        cdrs.flush();
+        dao.removeCallDetailRecords(account);
+        dao.removeCallDetailRecords(other);
+    }
+
+    @Test
+    public void shutdownWritesPendingRecords() {
+        final Sid account = Sid.generate(Sid.Type.ACCOUNT);
+        for (int index = 0; index < 5; index++) {
+            cdrs.addCallDetailRecord(cdr(account));
+        }
+        cdrs.shutdown();
+        assertEquals(5, dao.getCallDetailRecords(account).size());
+        // Writes made once the writer is gone go straight to the database.
+        cdrs.addCallDetailRecord(cdr(account));
+        assertEquals(6, dao.getCallDetailRecords(account).size());
+        dao.removeCallDetailRecords(account);
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dao.mybatis;
+
+import static org.junit.Assert.*;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.dao.RegistrationsDao;
+import org.mobicents.servlet.restcomm.entities.Registration;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+public class WriteBehindRegistrationsDaoTest {
+    private MybatisRegistrationsDao dao;
+    private MybatisWriteBehindRegistrationsDao registrations;
+
+    public WriteBehindRegistrationsDaoTest() {
+        super();
+    }
+
+    @Before
+    public void before() {
+        final InputStream data = getClass().getResourceAsStream("/mybatis.xml");
+        final SqlSessionFactoryBuilder builder = new SqlSessionFactoryBuilder();
+        final SqlSessionFactory factory = builder.build(data);
+        dao = new MybatisRegistrationsDao(factory);
+        registrations = new MybatisWriteBehindRegistrationsDao(dao);
+    }
+
+    @After
+    public void after() {
+        registrations.shutdown();
+        for (final Registration registration : dao.getRegistrations()) {
+            dao.removeRegistration(registration);
+        }
+    }
+
+    private Registration registration(final String user, final String location, final DateTime updated, final int ttl) {
+        return new Registration(Sid.generate(Sid.Type.REGISTRATION), "instanceId", updated, updated, updated.plusSeconds(ttl),
+                "sip:" + user + "@company.com", user, user, "TestUserAgent/1.0", ttl, location, false, false);
+    }
+
+    @Test
+    public void lookupsAreServedFromMemory() {
+        final DateTime now = DateTime.now();
+        final Registration desk = registration("alice", "sip:alice@192.168.1.10:5060", now.minusSeconds(30), 3600);
+        final Registration mobile = registration("alice", "sip:alice@192.168.1.11:5060", now, 3600);
+        registrations.addRegistration(desk);
+        registrations.addRegistration(mobile);
+        assertTrue(registrations.hasRegistration(desk));
+        // The device that registered last comes first.
+        assertEquals(mobile.getSid(), registrations.getRegistration("alice").getSid());
+        assertEquals(2, registrations.getRegistrations("alice").size());
+        assertNull(registrations.getRegistrations("bob"));
+        registrations.removeRegistration(mobile);
+        assertEquals(desk.getSid(), registrations.getRegistration("alice").getSid());
+        registrations.shutdown();
+        // The changes were written behind to the data store.
+        final List<Registration> results = dao.getRegistrations("alice");
+        assertEquals(1, results.size());
+        assertEquals(desk.getSid(), results.get(0).getSid());
+    }
+
+    @Test
+    public void updateKeepsTheRegistrationIdentity() {
+        final DateTime now = DateTime.now();
+        final Registration registration = registration("bob", "sip:bob@192.168.1.12:5060", now.minusSeconds(60), 60);
+        registrations.addRegistration(registration);
+        // A REGISTER refreshing the binding carries a new sid.
+        final Registration refresh = registration("bob", "sip:bob@192.168.1.12:5060", now, 3600);
+        assertTrue(registrations.hasRegistration(refresh));
+        registrations.updateRegistration(refresh);
+        final Registration result = registrations.getRegistration("bob");
+        assertEquals(registration.getSid(), result.getSid());
+        assertEquals(registration.getDateCreated(), result.getDateCreated());
+        assertEquals(refresh.getDateExpires(), result.getDateExpires());
+        assertEquals(3600, result.getTimeToLive());
+    }
+
+    @Test
+    public void expiredAndStaleRegistrationsAreIndexed() {
+        final DateTime now = DateTime.now();
+        final Registration expired = registration("carol", "sip:carol@192.168.1.13:5060", now.minusSeconds(120), 60);
+        final Registration stale = registration("dave", "sip:dave@192.168.1.14:5060", now.minusSeconds(600), 3600);
+        final Registration alive = registration("erin", "sip:erin@192.168.1.15:5060", now, 3600);
+        registrations.addRegistration(expired);
+        registrations.addRegistration(stale);
+        registrations.addRegistration(alive);
+        List<Registration> results = registrations.getExpiredRegistrations(now);
+        assertEquals(1, results.size());
+        assertEquals(expired.getSid(), results.get(0).getSid());
+        // Expiring exactly now counts as expired.
+        assertEquals(1, registrations.getExpiredRegistrations(expired.getDateExpires()).size());
+        results = registrations.getRegistrationsUpdatedBefore(now.minusSeconds(180));
+        assertEquals(1, results.size());
+        assertEquals(stale.getSid(), results.get(0).getSid());
+        // Answering a keep alive moves the registration out of the stale ones.
+        registrations.updateRegistration(stale.updated());
+        assertTrue(registrations.getRegistrationsUpdatedBefore(now.minusSeconds(180)).isEmpty());
+        assertEquals(3, registrations.getRegistrationsUpdatedBefore(DateTime.now().plusSeconds(1)).size());
+    }
+
+    @Test
+    public void failedWritesAreResynced() throws InterruptedException {
+        final CountDownLatch failed = new CountDownLatch(1);
+        final ForwardingRegistrationsDao failing = new ForwardingRegistrationsDao(dao) {
+            @Override
+            public void addRegistration(final Registration registration) {
+                if (failed.getCount() > 0) {
+                    failed.countDown();
+                    throw new IllegalStateException("The data store is down.");
+                }
+                super.addRegistration(registration);
+            }
+        };
+        registrations.shutdown();
+        registrations = new MybatisWriteBehindRegistrationsDao(failing, 10, 3600000);
+        final Registration desk = registration("frank", "sip:frank@192.168.1.16:5060", DateTime.now(), 3600);
+        registrations.addRegistration(desk);
+        failed.await();
+        assertNull(dao.getRegistration("frank"));
+        // The registration is still served from memory and gets rewritten once the data store is back.
+        assertEquals(desk.getSid(), registrations.getRegistration("frank").getSid());
+        registrations.shutdown();
+        assertEquals(desk.getSid(), dao.getRegistration("frank").getSid());
+    }
+
+    @Test
+    public void changesOverTheMaxPendingAreResynced() throws InterruptedException {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ForwardingRegistrationsDao blocking = new ForwardingRegistrationsDao(dao) {
+            @Override
+            public void addRegistration(final Registration registration) {
+                if (writing.getCount() > 0) {
+                    writing.countDown();
+                    try {
+                        release.await();
+                    } catch (final InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.addRegistration(registration);
+            }
+        };
+        registrations.shutdown();
+        registrations = new MybatisWriteBehindRegistrationsDao(blocking, 1, 3600000);
+        final DateTime now = DateTime.now();
+        final Registration first = registration("grace", "sip:grace@192.168.1.17:5060", now, 3600);
+        final Registration second = registration("heidi", "sip:heidi@192.168.1.18:5060", now, 3600);
+        final Registration third = registration("ivan", "sip:ivan@192.168.1.19:5060", now, 3600);
+        registrations.addRegistration(first);
+        writing.await();
+        // The writer is busy with the first one, the second one fills the queue.
+        registrations.addRegistration(second);
+        registrations.addRegistration(third);
+        registrations.removeRegistration(second);
+        release.countDown();
+        registrations.shutdown();
+        assertEquals(first.getSid(), dao.getRegistration("grace").getSid());
+        assertNull(dao.getRegistration("heidi"));
+        assertEquals(third.getSid(), dao.getRegistration("ivan").getSid());
+    }
+
+    private static class ForwardingRegistrationsDao implements RegistrationsDao {
+        private final RegistrationsDao dao;
+
+        private ForwardingRegistrationsDao(final RegistrationsDao dao) {
+            super();
+            this.dao = dao;
+        }
+
+        @Override
+        public void addRegistration(final Registration registration) {
+            dao.addRegistration(registration);
+        }
+
+        @Override
+        public Registration getRegistration(final String user) {
+            return dao.getRegistration(user);
+        }
+
+        @Override
+        public Registration getRegistrationByInstanceId(final String user, final String instanceId) {
+            return dao.getRegistrationByInstanceId(user, instanceId);
+        }
+
+        @Override
+        public List<Registration> getRegistrations(final String user) {
+            return dao.getRegistrations(user);
+        }
+
+        @Override
+        public List<Registration> getRegistrations() {
+            return dao.getRegistrations();
+        }
+
+        @Override
+        public List<Registration> getExpiredRegistrations(final DateTime date) {
+            return dao.getExpiredRegistrations(date);
+        }
+
+        @Override
+        public List<Registration> getRegistrationsUpdatedBefore(final DateTime date) {
+            return dao.getRegistrationsUpdatedBefore(date);
+        }
+
+        @Override
+        public boolean hasRegistration(final Registration registration) {
+            return dao.hasRegistration(registration);
+        }
+
+        @Override
+        public void removeRegistration(final Registration registration) {
+            dao.removeRegistration(registration);
+        }
+
+        @Override
+        public void updateRegistration(final Registration registration) {
+            dao.updateRegistration(registration);
+        }
+    }
+}
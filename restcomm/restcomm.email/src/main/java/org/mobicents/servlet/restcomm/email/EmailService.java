@@ -63,7 +63,9 @@ public class EmailService extends UntypedActor  {
         port = configuration.getString("port");
         user = configuration.getString("user");
         password = configuration.getString("password");
-        final Properties properties = System.getProperties();
+        // Every service keeps its own copy, the notification and service mailers can point to different servers
+        final Properties properties = new Properties();
+        properties.putAll(System.getProperties());
         properties.setProperty("mail.smtp.host", host);
         if (user != null && !user.isEmpty()) {
             properties.setProperty("mail.smtp.user", user);
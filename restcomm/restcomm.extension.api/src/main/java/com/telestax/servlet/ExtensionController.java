@@ -0,0 +1,64 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2013, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.telestax.servlet;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps the extensions loaded at start up so that the Restcomm components can run them.
+ */
+public final class ExtensionController {
+    private static final ExtensionController instance = new ExtensionController();
+
+    private final Map<ExtensionType, List<RestcommExtensionGeneric>> extensions;
+
+    private ExtensionController() {
+        extensions = new EnumMap<ExtensionType, List<RestcommExtensionGeneric>>(ExtensionType.class);
+        for (final ExtensionType type : ExtensionType.values()) {
+            extensions.put(type, new CopyOnWriteArrayList<RestcommExtensionGeneric>());
+        }
+    }
+
+    public static ExtensionController getInstance() {
+        return instance;
+    }
+
+    /**
+     * Registers an initialized extension for the types of its {@link RestcommExtension} annotation.
+     */
+    public void register(final RestcommExtensionGeneric extension) {
+        final RestcommExtension annotation = extension.getClass().getAnnotation(RestcommExtension.class);
+        if (annotation == null) {
+            throw new IllegalArgumentException(extension.getClass().getName() + " is not annotated with @RestcommExtension");
+        }
+        for (final ExtensionType type : annotation.type()) {
+            extensions.get(type).add(extension);
+        }
+    }
+
+    public List<RestcommExtensionGeneric> getExtensions(final ExtensionType type) {
+        return Collections.unmodifiableList(extensions.get(type));
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2013, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.telestax.servlet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mobicents.servlet.restcomm.util.Counters;
+
+/**
+ * Admits calls against the limits of the whole instance and of the account, the incoming phone number and the client
+ * involved. The limits of every account, number or client are created the first time they place or receive a call,
+ * from their own settings or from the defaults of their scope. Nothing is locked on the way, the counters are
+ * only ever updated with compare and set.
+ *
+ * Concurrent calls are taken before the rate is checked so that a call rejected for being over the rate gives its
+ * call slots back, the tokens a call took from the buckets checked before the one that rejected it are not returned.
+ */
+final class AdmissionControl implements Counters.Source {
+    enum Scope {
+        ACCOUNT, NUMBER, CLIENT
+    }
+
+    enum Decision {
+        ADMITTED, RATE_EXCEEDED, CONCURRENCY_EXCEEDED
+    }
+
+    private final TrafficLimit global;
+    private final Map<Scope, TrafficLimit> defaults;
+    private final Map<Scope, Map<String, TrafficLimit>> settings;
+    private final Map<Scope, ConcurrentMap<String, TrafficLimit>> limits;
+    private final AtomicInteger admitted;
+    private final AtomicInteger rateExceeded;
+    private final AtomicInteger concurrencyExceeded;
+
+    /**
+     * @param defaults the limits of the accounts, numbers and clients without settings of their own.
+     * @param settings the limits of specific accounts, numbers and clients by sid, phone number and login.
+     */
+    AdmissionControl(final TrafficLimit global, final Map<Scope, TrafficLimit> defaults,
+            final Map<Scope, Map<String, TrafficLimit>> settings) {
+        super();
+        this.global = global;
+        this.defaults = new EnumMap<Scope, TrafficLimit>(Scope.class);
+        this.settings = new EnumMap<Scope, Map<String, TrafficLimit>>(Scope.class);
+        this.limits = new EnumMap<Scope, ConcurrentMap<String, TrafficLimit>>(Scope.class);
+        for (final Scope scope : Scope.values()) {
+            final TrafficLimit limit = defaults.get(scope);
+            this.defaults.put(scope, limit != null ? limit : new TrafficLimit(0, 0, 0));
+            final Map<String, TrafficLimit> specific = settings.get(scope);
+            this.settings.put(scope, specific != null ? new HashMap<String, TrafficLimit>(specific)
+                    : Collections.<String, TrafficLimit> emptyMap());
+            this.limits.put(scope, new ConcurrentHashMap<String, TrafficLimit>());
+        }
+        this.admitted = new AtomicInteger();
+        this.rateExceeded = new AtomicInteger();
+        this.concurrencyExceeded = new AtomicInteger();
+    }
+
+    /**
+     * @return whether some account, number or client of the scope is limited, if not there is no need to figure out
+     *         who is involved in a call.
+     */
+    boolean isLimited(final Scope scope) {
+        return !defaults.get(scope).isUnlimited() || !settings.get(scope).isEmpty();
+    }
+
+    /**
+     * @param account the sid of the account, null if unknown.
+     * @param number the incoming phone number, null if none.
+     * @param client the login of the client, null if none.
+     * @param concurrent whether the call takes a call slot, release it through {@link Admission#release()}.
+     */
+    Admission admit(final String account, final String number, final String client, final boolean concurrent) {
+        final List<TrafficLimit> applicable = new ArrayList<TrafficLimit>(4);
+        applicable.add(global);
+        add(applicable, Scope.ACCOUNT, account);
+        add(applicable, Scope.NUMBER, number);
+        add(applicable, Scope.CLIENT, client);
+        if (concurrent) {
+            for (int index = 0; index < applicable.size(); index++) {
+                if (!applicable.get(index).tryAcquire()) {
+                    release(applicable.subList(0, index));
+                    concurrencyExceeded.incrementAndGet();
+                    return new Admission(Decision.CONCURRENCY_EXCEEDED, null);
+                }
+            }
+        }
+        final long now = System.nanoTime();
+        for (final TrafficLimit limit : applicable) {
+            if (!limit.tryRate(now)) {
+                if (concurrent) {
+                    release(applicable);
+                }
+                rateExceeded.incrementAndGet();
+                return new Admission(Decision.RATE_EXCEEDED, null);
+            }
+        }
+        admitted.incrementAndGet();
+        return new Admission(Decision.ADMITTED, concurrent ? applicable : null);
+    }
+
+    Map<String, Integer> getCounters() {
+        final Map<String, Integer> counters = new HashMap<String, Integer>();
+        counters.put("ThrottlingLiveCalls", global.getCalls());
+        counters.put("ThrottlingAdmittedCalls", admitted.get());
+        counters.put("ThrottlingRateExceededCalls", rateExceeded.get());
+        counters.put("ThrottlingConcurrencyExceededCalls", concurrencyExceeded.get());
+        return counters;
+    }
+
+    @Override
+    public void counters(final Map<String, Integer> counters) {
+        counters.putAll(getCounters());
+    }
+
+    private void add(final List<TrafficLimit> applicable, final Scope scope, final String key) {
+        if (key == null) {
+            return;
+        }
+        final ConcurrentMap<String, TrafficLimit> scoped = limits.get(scope);
+        TrafficLimit limit = scoped.get(key);
+        if (limit == null) {
+            TrafficLimit template = settings.get(scope).get(key);
+            if (template == null) {
+                template = defaults.get(scope);
+            }
+            if (template.isUnlimited()) {
+                return;
+            }
+            limit = template.copy();
+            final TrafficLimit existing = scoped.putIfAbsent(key, limit);
+            if (existing != null) {
+                limit = existing;
+            }
+        }
+        applicable.add(limit);
+    }
+
+    private static void release(final List<TrafficLimit> acquired) {
+        for (final TrafficLimit limit : acquired) {
+            limit.release();
+        }
+    }
+
+    static final class Admission {
+        private final Decision decision;
+        private final List<TrafficLimit> acquired;
+        private final AtomicBoolean released;
+
+        private Admission(final Decision decision, final List<TrafficLimit> acquired) {
+            super();
+            this.decision = decision;
+            this.acquired = acquired;
+            this.released = new AtomicBoolean();
+        }
+
+        boolean isAdmitted() {
+            return decision == Decision.ADMITTED;
+        }
+
+        Decision getDecision() {
+            return decision;
+        }
+
+        /**
+         * Gives the call slots back once the call is over, only the first call counts.
+         */
+        void release() {
+            if (acquired != null && released.compareAndSet(false, true)) {
+                AdmissionControl.release(acquired);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2013, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.telestax.servlet;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock free token bucket. It is kept in its virtual scheduling form (GCRA), instead of counting the tokens it keeps the
+ * time at which the bucket will be full again so taking a token is a single compare and set.
+ */
+final class TokenBucket {
+    // Nanoseconds it takes to earn a token.
+    private final long interval;
+    // How far ahead of time tokens can be taken, that is the burst size.
+    private final long tolerance;
+    private final AtomicLong full;
+
+    /**
+     * @param rate the tokens earned per second.
+     * @param burst the tokens the bucket holds.
+     */
+    TokenBucket(final double rate, final int burst) {
+        super();
+        this.interval = (long) (1000000000L / rate);
+        this.tolerance = interval * (burst - 1);
+        this.full = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * @param now the current value of {@link System#nanoTime()}.
+     */
+    boolean tryTake(final long now) {
+        for (;;) {
+            final long current = full.get();
+            final long start = current - now > 0 ? current : now;
+            if (start - now > tolerance) {
+                return false;
+            }
+            if (full.compareAndSet(current, start + interval)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2013, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.telestax.servlet;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The calls per second and the concurrent calls allowed to an account, an incoming phone number, a client or to the
+ * whole instance, along with the calls it currently has.
+ */
+final class TrafficLimit {
+    private final double cps;
+    private final int burst;
+    private final int maxCalls;
+    private final TokenBucket bucket;
+    private final AtomicInteger calls;
+
+    /**
+     * @param cps the calls allowed per second, 0 for no limit.
+     * @param burst the calls allowed at once on top of the rate, 0 for one second worth of calls.
+     * @param maxCalls the concurrent calls allowed, 0 for no limit.
+     */
+    TrafficLimit(final double cps, final int burst, final int maxCalls) {
+        super();
+        this.cps = cps;
+        this.burst = burst > 0 ? burst : Math.max(1, (int) cps);
+        this.maxCalls = maxCalls;
+        this.bucket = cps > 0 ? new TokenBucket(cps, this.burst) : null;
+        this.calls = new AtomicInteger();
+    }
+
+    boolean isUnlimited() {
+        return bucket == null && maxCalls <= 0;
+    }
+
+    TrafficLimit copy() {
+        return new TrafficLimit(cps, burst, maxCalls);
+    }
+
+    boolean tryRate(final long now) {
+        return bucket == null || bucket.tryTake(now);
+    }
+
+    boolean tryAcquire() {
+        if (maxCalls <= 0) {
+            calls.incrementAndGet();
+            return true;
+        }
+        for (;;) {
+            final int current = calls.get();
+            if (current >= maxCalls) {
+                return false;
+            }
+            if (calls.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release() {
+        calls.decrementAndGet();
+    }
+
+    int getCalls() {
+        return calls.get();
+    }
+}
@@ -20,14 +20,37 @@
  */
 package com.telestax.servlet;
 
+import java.io.Serializable;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.sip.SipApplicationSessionBindingEvent;
+import javax.servlet.sip.SipApplicationSessionBindingListener;
 import javax.servlet.sip.SipServletRequest;
+import javax.servlet.sip.SipURI;
+import javax.servlet.sip.URI;
 
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
 import org.apache.log4j.Logger;
+import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.dao.RoutingCache;
+import org.mobicents.servlet.restcomm.entities.Client;
+import org.mobicents.servlet.restcomm.logging.TargetedLogging;
 import org.mobicents.servlet.restcomm.telephony.CreateCall;
-import org.mobicents.servlet.sip.core.SipManager;
-import org.mobicents.servlet.sip.message.MobicentsSipApplicationSessionFacade;
+import org.mobicents.servlet.restcomm.util.Counters;
+
+import com.telestax.servlet.AdmissionControl.Admission;
+import com.telestax.servlet.AdmissionControl.Scope;
 
 /**
+ * Admission control of the calls, see the traffic-throttling entry of extensions.xml for the limits. Rejected inbound
+ * calls carry the SIP status code to answer with as the object of the {@link ExtensionResponse}. Outbound calls are
+ * only rate limited, and only when created through the REST API, the dial legs belong to calls already admitted.
+ *
  * @author <a href="mailto:gvagenas@gmail.com">gvagenas</a>
  *
  */
@@ -35,20 +58,108 @@ import org.mobicents.servlet.sip.message.MobicentsSipApplicationSessionFacade;
 public class TrafficThrottling implements RestcommExtensionGeneric {
 
     private static final Logger logger = Logger.getLogger(TrafficThrottling.class);
+    private static final String ADMISSION = TrafficThrottling.class.getName() + ".admission";
+    private static final long REPORT_INTERVAL = TimeUnit.SECONDS.toMillis(10);
+
+    private final Configuration configuration;
+    private AdmissionControl admissionControl;
+    private int rateRejectCode;
+    private int concurrencyRejectCode;
+    // Rejections are logged one by one at debug only, INFO gets a count at most every REPORT_INTERVAL.
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong lastReport = new AtomicLong();
+
+    public TrafficThrottling() {
+        this(new BaseConfiguration());
+    }
+
+    public TrafficThrottling(final Configuration configuration) {
+        this.configuration = configuration;
+    }
 
     @Override
     public void init() {
+        rateRejectCode = configuration.getInt("rate-reject-code", 503);
+        concurrencyRejectCode = configuration.getInt("concurrency-reject-code", 503);
+        final Map<Scope, TrafficLimit> defaults = new EnumMap<Scope, TrafficLimit>(Scope.class);
+        final Map<Scope, Map<String, TrafficLimit>> settings = new EnumMap<Scope, Map<String, TrafficLimit>>(Scope.class);
+        for (final Scope scope : Scope.values()) {
+            final String name = scope.name().toLowerCase();
+            defaults.put(scope, limit(name));
+            settings.put(scope, new HashMap<String, TrafficLimit>());
+        }
+        for (int index = 0; configuration.containsKey("limit(" + index + ")[@cps]")
+                || configuration.containsKey("limit(" + index + ")[@max-calls]"); index++) {
+            final String prefix = "limit(" + index + ")";
+            for (final Scope scope : Scope.values()) {
+                final String key = configuration.getString(prefix + "[@" + scope.name().toLowerCase() + "]");
+                if (key != null) {
+                    settings.get(scope).put(key, limit(prefix));
+                }
+            }
+        }
+        admissionControl = new AdmissionControl(limit("global"), defaults, settings);
+        // Reported by the monitoring service.
+        Counters.register(TrafficThrottling.class.getName(), admissionControl);
+    }
+
+    private TrafficLimit limit(final String prefix) {
+        final double cps = configuration.getDouble(prefix + "[@cps]", 0);
+        final int burst = configuration.getInt(prefix + "[@burst]", 0);
+        final int maxCalls = configuration.getInt(prefix + "[@max-calls]", 0);
+        return new TrafficLimit(cps, burst, maxCalls);
     }
 
     @Override
     public ExtensionResponse preInboundAction(SipServletRequest request) {
-        SipManager sipManager = ((MobicentsSipApplicationSessionFacade) request.getApplicationSession()).getSipContext().getSipManager();
-        int activeCalls = sipManager.getActiveSipApplicationSessions();
-        if(logger.isInfoEnabled()) {
-            logger.info("Active calls: "+activeCalls);
+        final ExtensionResponse response = new ExtensionResponse();
+        if (!"INVITE".equalsIgnoreCase(request.getMethod()) || !request.isInitial()) {
+            response.setAllowed(true);
+            return response;
+        }
+        String account = null;
+        String number = null;
+        String client = null;
+        final DaoManager storage = (DaoManager) request.getSession().getServletContext().getAttribute(DaoManager.class.getName());
+        if (storage != null) {
+            if (admissionControl.isLimited(Scope.NUMBER) || admissionControl.isLimited(Scope.ACCOUNT)) {
+                final RoutingCache.Route route = route(storage.getRoutingCache(), user(request.getRequestURI()));
+                if (route != null) {
+                    number = route.getNumber().getPhoneNumber();
+                    account = route.getNumber().getAccountSid().toString();
+                }
+            }
+            if (admissionControl.isLimited(Scope.CLIENT) || (account == null && admissionControl.isLimited(Scope.ACCOUNT))) {
+                final String from = user(request.getFrom().getURI());
+                final Client caller = from != null ? storage.getClientsDao().getClient(from) : null;
+                if (caller != null) {
+                    client = caller.getLogin();
+                    if (account == null) {
+                        account = caller.getAccountSid().toString();
+                    }
+                }
+            }
+        }
+        final Admission admission = admissionControl.admit(account, number, client, true);
+        if (admission.isAdmitted()) {
+            // The call slots are given back when the application session of the call goes away.
+            request.getApplicationSession().setAttribute(ADMISSION, new AdmissionBinding(admission));
+            response.setAllowed(true);
+        } else {
+            if (logger.isDebugEnabled() || TargetedLogging.isTargeted(account)) {
+                final String message = "Rejecting call from " + request.getFrom() + " to " + request.getRequestURI() + ", "
+                        + admission.getDecision() + " (account " + account + ", number " + number + ", client " + client + ")";
+                if (logger.isDebugEnabled()) {
+                    logger.debug(message);
+                } else {
+                    TargetedLogging.log(TrafficThrottling.class, message);
+                }
+            }
+            rejected(admission);
+            response.setAllowed(false);
+            response.setObject(admission.getDecision() == AdmissionControl.Decision.RATE_EXCEEDED ? rateRejectCode
+                    : concurrencyRejectCode);
         }
-        ExtensionResponse response = new ExtensionResponse();
-        response.setAllowed(false);
         return response;
     }
 
@@ -59,13 +170,85 @@ public class TrafficThrottling implements RestcommExtensionGeneric {
 
     @Override
     public ExtensionResponse preOutboundAction(CreateCall createCallRequest) {
-        // TODO Auto-generated method stub
-        return null;
+        final ExtensionResponse response = new ExtensionResponse();
+        if (!createCallRequest.isFromApi()) {
+            response.setAllowed(true);
+            return response;
+        }
+        final String account = createCallRequest.accountId() != null ? createCallRequest.accountId().toString() : null;
+        final String client = CreateCall.Type.CLIENT == createCallRequest.type() ? createCallRequest.to() : null;
+        // The caller id of a call made through the API is one of the incoming phone numbers of the account.
+        final Admission admission = admissionControl.admit(account, createCallRequest.from(), client, false);
+        response.setAllowed(admission.isAdmitted());
+        if (!admission.isAdmitted()) {
+            if (logger.isDebugEnabled() || TargetedLogging.isTargeted(account)) {
+                final String message = "Rejecting outbound call from " + createCallRequest.from() + " to "
+                        + createCallRequest.to() + ", " + admission.getDecision() + " (account " + account + ")";
+                if (logger.isDebugEnabled()) {
+                    logger.debug(message);
+                } else {
+                    TargetedLogging.log(TrafficThrottling.class, message);
+                }
+            }
+            rejected(admission);
+            response.setObject(rateRejectCode);
+        }
+        return response;
     }
 
     @Override
     public ExtensionResponse postOutboundAction(CreateCall createCallRequest) {
-        // TODO Auto-generated method stub
         return null;
     }
+
+    private void rejected(final Admission admission) {
+        final long count = rejections.incrementAndGet();
+        final long now = System.currentTimeMillis();
+        final long last = lastReport.get();
+        if (now - last >= REPORT_INTERVAL && lastReport.compareAndSet(last, now)) {
+            rejections.addAndGet(-count);
+            if (logger.isInfoEnabled()) {
+                logger.info("Traffic throttling rejected " + count + " call(s) since the previous report, latest one "
+                        + admission.getDecision());
+            }
+        }
+    }
+
+    private static String user(final URI uri) {
+        return uri.isSipURI() ? ((SipURI) uri).getUser() : null;
+    }
+
+    // Same lookups the call manager makes, minus the E.164 formatting.
+    private static RoutingCache.Route route(final RoutingCache routes, final String phone) {
+        if (phone == null) {
+            return null;
+        }
+        RoutingCache.Route route = routes.getRoute(phone);
+        if (route == null) {
+            route = routes.getRoute(phone.startsWith("+") ? phone.substring(1) : "+" + phone);
+        }
+        return route;
+    }
+
+    private static final class AdmissionBinding implements SipApplicationSessionBindingListener, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        // Not replicated, a call that fails over to another node is not counted there.
+        private final transient Admission admission;
+
+        private AdmissionBinding(final Admission admission) {
+            this.admission = admission;
+        }
+
+        @Override
+        public void valueBound(final SipApplicationSessionBindingEvent event) {
+        }
+
+        @Override
+        public void valueUnbound(final SipApplicationSessionBindingEvent event) {
+            if (admission != null) {
+                admission.release();
+            }
+        }
+    }
 }
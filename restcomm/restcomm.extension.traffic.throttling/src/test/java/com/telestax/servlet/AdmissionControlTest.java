@@ -0,0 +1,86 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2013, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.telestax.servlet;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import com.telestax.servlet.AdmissionControl.Admission;
+import com.telestax.servlet.AdmissionControl.Decision;
+import com.telestax.servlet.AdmissionControl.Scope;
+
+public class AdmissionControlTest extends TestCase {
+
+    private static AdmissionControl admissionControl(final TrafficLimit global, final TrafficLimit accounts,
+            final Map<String, TrafficLimit> specificAccounts) {
+        final Map<Scope, TrafficLimit> defaults = new EnumMap<Scope, TrafficLimit>(Scope.class);
+        defaults.put(Scope.ACCOUNT, accounts);
+        final Map<Scope, Map<String, TrafficLimit>> settings = new EnumMap<Scope, Map<String, TrafficLimit>>(Scope.class);
+        settings.put(Scope.ACCOUNT, specificAccounts);
+        return new AdmissionControl(global, defaults, settings);
+    }
+
+    public void testConcurrentCallsPerAccount() {
+        final AdmissionControl admissionControl = admissionControl(new TrafficLimit(0, 0, 0), new TrafficLimit(0, 0, 2),
+                Collections.<String, TrafficLimit> emptyMap());
+        final Admission first = admissionControl.admit("AC1", null, null, true);
+        final Admission second = admissionControl.admit("AC1", null, null, true);
+        assertTrue(first.isAdmitted());
+        assertTrue(second.isAdmitted());
+        assertEquals(Decision.CONCURRENCY_EXCEEDED, admissionControl.admit("AC1", null, null, true).getDecision());
+        // Other accounts have slots of their own.
+        assertTrue(admissionControl.admit("AC2", null, null, true).isAdmitted());
+        first.release();
+        first.release();
+        assertTrue(admissionControl.admit("AC1", null, null, true).isAdmitted());
+        assertEquals(Decision.CONCURRENCY_EXCEEDED, admissionControl.admit("AC1", null, null, true).getDecision());
+        assertEquals(Integer.valueOf(3), admissionControl.getCounters().get("ThrottlingLiveCalls"));
+    }
+
+    public void testCallsPerSecond() {
+        final AdmissionControl admissionControl = admissionControl(new TrafficLimit(1, 3, 0), null,
+                Collections.<String, TrafficLimit> emptyMap());
+        // The burst goes through, the next call has to wait for a token.
+        for (int index = 0; index < 3; index++) {
+            assertTrue(admissionControl.admit(null, null, null, true).isAdmitted());
+        }
+        assertEquals(Decision.RATE_EXCEEDED, admissionControl.admit(null, null, null, true).getDecision());
+        // Calls rejected on rate don't keep their call slot.
+        assertEquals(Integer.valueOf(3), admissionControl.getCounters().get("ThrottlingLiveCalls"));
+        assertEquals(Integer.valueOf(1), admissionControl.getCounters().get("ThrottlingRateExceededCalls"));
+    }
+
+    public void testAccountSettings() {
+        final AdmissionControl admissionControl = admissionControl(new TrafficLimit(0, 0, 0), new TrafficLimit(0, 0, 1),
+                Collections.singletonMap("AC1", new TrafficLimit(0, 0, 0)));
+        assertTrue(admissionControl.isLimited(Scope.ACCOUNT));
+        assertFalse(admissionControl.isLimited(Scope.CLIENT));
+        // AC1 is not limited at all.
+        for (int index = 0; index < 10; index++) {
+            assertTrue(admissionControl.admit("AC1", null, null, true).isAdmitted());
+        }
+        assertTrue(admissionControl.admit("AC2", null, null, true).isAdmitted());
+        assertFalse(admissionControl.admit("AC2", null, null, true).isAdmitted());
+    }
+}
@@ -46,6 +46,7 @@ import org.apache.shiro.crypto.hash.Md5Hash;
 import org.joda.time.DateTime;
 import org.mobicents.servlet.restcomm.dao.ClientsDao;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.dao.RoutingCache;
 import org.mobicents.servlet.restcomm.entities.Account;
 import org.mobicents.servlet.restcomm.entities.AccountList;
 import org.mobicents.servlet.restcomm.entities.Client;
@@ -62,12 +63,27 @@ import org.mobicents.servlet.restcomm.util.StringUtils;
  * @author quintana.thomas@gmail.com (Thomas Quintana)
  */
 public abstract class AccountsEndpoint extends SecuredEndpoint {
+    private static final Serializers serializers = new Serializers() {
+        @Override
+        protected void register(final XStream xstream, final Configuration configuration) {
+            xstream.registerConverter(new AccountConverter(configuration));
+            xstream.registerConverter(new AccountListConverter(configuration));
+            xstream.registerConverter(new RestCommResponseConverter(configuration));
+        }
+
+        @Override
+        protected void register(final GsonBuilder builder, final Configuration configuration) {
+            builder.registerTypeAdapter(Account.class, new AccountConverter(configuration));
+        }
+    };
+
     @Context
     protected ServletContext context;
     protected Configuration configuration;
     protected Gson gson;
     protected XStream xstream;
     protected ClientsDao clientDao;
+    protected RoutingCache routingCache;
 
     public AccountsEndpoint() {
         super();
@@ -78,17 +94,12 @@ public abstract class AccountsEndpoint extends SecuredEndpoint {
         configuration = (Configuration) context.getAttribute(Configuration.class.getName());
         configuration = configuration.subset("runtime-settings");
         super.init(configuration);
-        clientDao = ((DaoManager) context.getAttribute(DaoManager.class.getName())).getClientsDao();
-        final AccountConverter converter = new AccountConverter(configuration);
-        final GsonBuilder builder = new GsonBuilder();
-        builder.registerTypeAdapter(Account.class, converter);
-        builder.setPrettyPrinting();
-        gson = builder.create();
-        xstream = new XStream();
-        xstream.alias("RestcommResponse", RestCommResponse.class);
-        xstream.registerConverter(converter);
-        xstream.registerConverter(new AccountListConverter(configuration));
-        xstream.registerConverter(new RestCommResponseConverter(configuration));
+        final DaoManager storage = (DaoManager) context.getAttribute(DaoManager.class.getName());
+        clientDao = storage.getClientsDao();
+        routingCache = storage.getRoutingCache();
+        final Configuration settings = (Configuration) context.getAttribute(Configuration.class.getName());
+        xstream = serializers.getXStream(settings);
+        gson = serializers.getGson(settings);
         // Make sure there is an authenticated account present when this endpoint is used
         checkAuthenticatedAccount();
     }
@@ -173,6 +184,7 @@ public abstract class AccountsEndpoint extends SecuredEndpoint {
             return status(NOT_FOUND).build();
 
         accountsDao.removeAccount(sidToBeRemoved);
+        routingCache.invalidate();
 
         // Remove its SIP client account
         clientDao.removeClients(sidToBeRemoved);
@@ -324,6 +336,7 @@ public abstract class AccountsEndpoint extends SecuredEndpoint {
 
             secure(account, "RestComm:Modify:Accounts", SecuredType.SECURED_ACCOUNT);
             accountsDao.updateAccount(account);
+            routingCache.invalidate();
 
             // Update SIP client of the corresponding Account
             String email = account.getEmailAddress();
@@ -8,7 +8,6 @@ import static javax.ws.rs.core.MediaType.APPLICATION_XML_TYPE;
 import static javax.ws.rs.core.Response.ok;
 
 import java.net.URI;
-import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -32,16 +31,14 @@ import org.mobicents.servlet.restcomm.http.converter.RestCommResponseConverter;
 import org.mobicents.servlet.restcomm.tts.api.SpeechSynthesizerRequest;
 import org.mobicents.servlet.restcomm.tts.api.SpeechSynthesizerResponse;
 
-import scala.concurrent.Await;
 import scala.concurrent.Future;
-import scala.concurrent.duration.Duration;
 import akka.actor.Actor;
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
 import akka.actor.Props;
 import akka.actor.UntypedActor;
 import akka.actor.UntypedActorFactory;
-import akka.util.Timeout;
+import akka.dispatch.OnFailure;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -52,6 +49,21 @@ import com.thoughtworks.xstream.XStream;
  */
 @NotThreadSafe
 public abstract class AnnouncementsEndpoint extends SecuredEndpoint {
+    private static final Serializers serializers = new Serializers() {
+        @Override
+        protected void register(final XStream xstream, final Configuration configuration) {
+            xstream.registerConverter(new AnnouncementConverter(configuration));
+            xstream.registerConverter(new AnnouncementListConverter(configuration));
+            xstream.registerConverter(new RestCommResponseConverter(configuration));
+        }
+
+        @Override
+        protected void register(final GsonBuilder builder, final Configuration configuration) {
+            builder.registerTypeAdapter(Announcement.class, new AnnouncementConverter(configuration));
+        }
+    };
+    private static final AsyncRequests requests = new AsyncRequests("announcements");
+
     private static Logger logger = Logger.getLogger(AnnouncementsEndpoint.class);
 
     @Context
@@ -64,6 +76,7 @@ public abstract class AnnouncementsEndpoint extends SecuredEndpoint {
     protected Gson gson;
     protected XStream xstream;
     private URI uri;
+    private boolean suspended;
 
     public AnnouncementsEndpoint() {
         super();
@@ -77,25 +90,65 @@ public abstract class AnnouncementsEndpoint extends SecuredEndpoint {
         runtime = configuration.subset("runtime-settings");
         synthesizer = tts(ttsConfiguration);
         super.init(runtime);
-        final AnnouncementConverter converter = new AnnouncementConverter(configuration);
-        final GsonBuilder builder = new GsonBuilder();
-        builder.registerTypeAdapter(Announcement.class, converter);
-        builder.setPrettyPrinting();
-        gson = builder.create();
-        xstream = new XStream();
-        xstream.alias("RestcommResponse", RestCommResponse.class);
-        xstream.registerConverter(converter);
-        xstream.registerConverter(new AnnouncementListConverter(configuration));
-        xstream.registerConverter(new RestCommResponseConverter(configuration));
+        xstream = serializers.getXStream(configuration);
+        gson = serializers.getGson(configuration);
     }
 
     public Response putAnnouncement(final String accountSid, final MultivaluedMap<String, String> data,
             final MediaType responseType) throws Exception {
+        if (requests.isResumed(request)) {
+            return requests.resume(request);
+        }
         secure(accountsDao.getAccount(accountSid), "RestComm:Create:Announcements");
         if(cache == null)
             createCacheActor(accountSid);
 
-        Announcement announcement = createFrom(accountSid, data);
+        final Sid sid = Sid.generate(Sid.Type.ANNOUNCEMENT);
+        String gender = data.getFirst("Gender");
+        if (gender == null) {
+            gender = "man";
+        }
+        String language = data.getFirst("Language");
+        if (language == null) {
+            language = "en";
+        }
+        final String text = data.getFirst("Text");
+        if (text == null) {
+            return toResponse(createFrom(sid, accountSid, gender, language, text), responseType);
+        }
+        if(logger.isInfoEnabled()){
+             logger.info("Synthesizing announcement");
+        }
+        final SpeechSynthesizerRequest synthesize = new SpeechSynthesizerRequest(gender, language, text);
+        final Future<Object> future = ask(synthesizer, synthesize, requests.timeout(context));
+        final String announcementGender = gender;
+        final String announcementLanguage = language;
+        final Response response = requests.suspend(request, future, new AsyncRequests.Continuation() {
+            @Override
+            public Response resume(final Object reply) {
+                try {
+                    precache(reply);
+                    return toResponse(createFrom(sid, accountSid, announcementGender, announcementLanguage, text),
+                            responseType);
+                } finally {
+                    stopActors();
+                }
+            }
+        });
+        // The actors of a suspended request are stopped once the speech is synthesized or the request failed.
+        suspended = response == null;
+        if (suspended) {
+            future.onFailure(new OnFailure() {
+                @Override
+                public void onFailure(final Throwable failure) {
+                    stopActors();
+                }
+            }, system.dispatcher());
+        }
+        return response;
+    }
+
+    private Response toResponse(final Announcement announcement, final MediaType responseType) {
         if (APPLICATION_JSON_TYPE == responseType) {
             return ok(gson.toJson(announcement), APPLICATION_JSON).build();
         } else if (APPLICATION_XML_TYPE == responseType) {
@@ -120,14 +173,8 @@ public abstract class AnnouncementsEndpoint extends SecuredEndpoint {
         this.cache = cache(path, uri);
     }
 
-    private void precache(final String text, final String gender, final String language) throws Exception {
-        if(logger.isInfoEnabled()){
-             logger.info("Synthesizing announcement");
-        }
-        final SpeechSynthesizerRequest synthesize = new SpeechSynthesizerRequest(gender, language, text);
-        Timeout expires = new Timeout(Duration.create(6000, TimeUnit.SECONDS));
-        Future<Object> future = (Future<Object>) ask(synthesizer, synthesize, expires);
-        Object object = Await.result(future, Duration.create(6000, TimeUnit.SECONDS));
+    @SuppressWarnings("unchecked")
+    private void precache(final Object object) {
         if(object != null) {
             SpeechSynthesizerResponse<URI> response = (SpeechSynthesizerResponse<URI>)object;
             uri = response.get();
@@ -139,20 +186,8 @@ public abstract class AnnouncementsEndpoint extends SecuredEndpoint {
         cache.tell(request, null);
     }
 
-    private Announcement createFrom(String accountSid, MultivaluedMap<String, String> data) throws Exception {
-        Sid sid = Sid.generate(Sid.Type.ANNOUNCEMENT);
-        String gender = data.getFirst("Gender");
-        if (gender == null) {
-            gender = "man";
-        }
-        String language = data.getFirst("Language");
-        if (language == null) {
-            language = "en";
-        }
-        String text = data.getFirst("Text");
-        if (text != null) {
-            precache(text, gender, language);
-        }
+    private Announcement createFrom(final Sid sid, final String accountSid, final String gender, final String language,
+            final String text) {
         if(logger.isInfoEnabled()){
             logger.info("Creating annnouncement");
         }
@@ -186,10 +221,18 @@ public abstract class AnnouncementsEndpoint extends SecuredEndpoint {
 
     @PreDestroy
     private void cleanup() {
+        if (!suspended) {
+            stopActors();
+        }
+    }
+
+    private void stopActors() {
         if(logger.isInfoEnabled()){
             logger.info("Stopping actors before endpoint destroy");
         }
-        system.stop(cache);
+        if (cache != null) {
+            system.stop(cache);
+        }
         system.stop(synthesizer);
     }
 }
@@ -45,6 +45,7 @@ import org.mobicents.servlet.restcomm.annotations.concurrency.NotThreadSafe;
 import org.mobicents.servlet.restcomm.dao.AccountsDao;
 import org.mobicents.servlet.restcomm.dao.ApplicationsDao;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.dao.RoutingCache;
 import org.mobicents.servlet.restcomm.entities.Account;
 import org.mobicents.servlet.restcomm.entities.Application;
 import org.mobicents.servlet.restcomm.entities.ApplicationList;
@@ -64,6 +65,20 @@ import com.thoughtworks.xstream.XStream;
  */
 @NotThreadSafe
 public class ApplicationsEndpoint extends SecuredEndpoint {
+    private static final Serializers serializers = new Serializers() {
+        @Override
+        protected void register(final XStream xstream, final Configuration configuration) {
+            xstream.registerConverter(new ApplicationConverter(configuration));
+            xstream.registerConverter(new ApplicationListConverter(configuration));
+            xstream.registerConverter(new RestCommResponseConverter(configuration));
+        }
+
+        @Override
+        protected void register(final GsonBuilder builder, final Configuration configuration) {
+            builder.registerTypeAdapter(Application.class, new ApplicationConverter(configuration));
+        }
+    };
+
     @Context
     protected ServletContext context;
     protected Configuration configuration;
@@ -71,6 +86,7 @@ public class ApplicationsEndpoint extends SecuredEndpoint {
     protected Gson gson;
     protected XStream xstream;
     protected AccountsDao accountsDao;
+    protected RoutingCache routingCache;
 
     public ApplicationsEndpoint() {
         super();
@@ -81,19 +97,13 @@ public class ApplicationsEndpoint extends SecuredEndpoint {
         final DaoManager storage = (DaoManager) context.getAttribute(DaoManager.class.getName());
         dao = storage.getApplicationsDao();
         accountsDao = storage.getAccountsDao();
+        routingCache = storage.getRoutingCache();
         configuration = (Configuration) context.getAttribute(Configuration.class.getName());
         configuration = configuration.subset("runtime-settings");
         super.init(configuration);
-        final ApplicationConverter converter = new ApplicationConverter(configuration);
-        final GsonBuilder builder = new GsonBuilder();
-        builder.registerTypeAdapter(Application.class, converter);
-        builder.setPrettyPrinting();
-        gson = builder.create();
-        xstream = new XStream();
-        xstream.alias("RestcommResponse", RestCommResponse.class);
-        xstream.registerConverter(converter);
-        xstream.registerConverter(new ApplicationListConverter(configuration));
-        xstream.registerConverter(new RestCommResponseConverter(configuration));
+        final Configuration settings = (Configuration) context.getAttribute(Configuration.class.getName());
+        xstream = serializers.getXStream(settings);
+        gson = serializers.getGson(settings);
     }
 
     private Application createFrom(final Sid accountSid, final MultivaluedMap<String, String> data) {
@@ -217,6 +227,7 @@ public class ApplicationsEndpoint extends SecuredEndpoint {
             secure(account, application.getAccountSid(), SecuredType.SECURED_APP);
             final Application applicationUpdate = update(application, data);
             dao.updateApplication(applicationUpdate);
+            routingCache.invalidate();
             if (APPLICATION_XML_TYPE == responseType) {
                 final RestCommResponse response = new RestCommResponse(applicationUpdate);
                 return ok(xstream.toXML(response), APPLICATION_XML).build();
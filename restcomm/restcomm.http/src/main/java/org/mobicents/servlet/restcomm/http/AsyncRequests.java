@@ -0,0 +1,288 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http;
+
+import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
+import static javax.ws.rs.core.Response.Status.SERVICE_UNAVAILABLE;
+import static javax.ws.rs.core.Response.status;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.Response;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.log4j.Logger;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+
+import scala.concurrent.Future;
+import scala.concurrent.duration.Duration;
+import akka.actor.ActorSystem;
+import akka.dispatch.OnComplete;
+import akka.util.Timeout;
+
+/**
+ * Suspends the requests of an endpoint while an actor answers them, instead of parking a servlet thread in
+ * Await.result(). Jersey 1 has no asynchronous resources so this relies on Servlet 3: the request is put in
+ * asynchronous mode, the reply of the actor is stored in the request when the Akka future completes and the request is
+ * dispatched again to the same resource method, which returns the response built from the reply.
+ * <p>
+ * A resource method suspending a request starts with:
+ *
+ * <pre>
+ * if (requests.isResumed(request)) {
+ *     return requests.resume(request);
+ * }
+ * </pre>
+ *
+ * The timeout and the number of requests an endpoint may have suspended at once come from the
+ * <code>async-requests</code> section of restcomm.xml. Requests over the limit are answered 503 right away. A suspended
+ * request holds its permit until its last asynchronous cycle completes, even when the resource method fails before
+ * resuming it.
+ * <p>
+ * Jersey writes the null returned by the suspending resource method as a 204 without entity. The status is only set on
+ * the servlet response, which is not committed, and the dispatched request overwrites it.
+ */
+@ThreadSafe
+public final class AsyncRequests {
+    private static final Logger logger = Logger.getLogger(AsyncRequests.class);
+
+    private static final String REPLY = AsyncRequests.class.getName() + ".reply";
+    private static final String PERMIT = AsyncRequests.class.getName() + ".permit";
+
+    private static final long DEFAULT_TIMEOUT = 10000;
+    private static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 200;
+
+    private final String name;
+    private volatile Settings settings;
+
+    /**
+     * @param name the section of <code>async-requests</code> overriding the defaults for the endpoint.
+     */
+    public AsyncRequests(final String name) {
+        super();
+        this.name = name;
+    }
+
+    /**
+     * Builds the response of the request out of the reply of an actor.
+     */
+    public interface Continuation {
+        /**
+         * Runs on the servlet thread the request is dispatched to once the reply is in. It may suspend the request
+         * again to wait for another actor.
+         */
+        Response resume(Object reply) throws Exception;
+    }
+
+    /**
+     * The timeout of the asks made for the endpoint.
+     */
+    public Timeout timeout(final ServletContext context) {
+        return new Timeout(Duration.create(settings(context).timeout, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Suspends the request until the future completes or the request times out, then dispatches it again.
+     *
+     * @return null once the request is suspended, the resource method must return it as is. A 503 response when the
+     *         endpoint already has the maximum number of suspended requests.
+     */
+    public <T> Response suspend(final HttpServletRequest request, final Future<T> future, final Continuation continuation) {
+        final ServletContext context = request.getServletContext();
+        final Settings settings = settings(context);
+        // A request suspended again by its continuation keeps the permit it holds.
+        if (request.getAttribute(PERMIT) == null) {
+            if (!settings.permits.tryAcquire()) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Too many suspended " + name + " requests, rejecting " + request.getRequestURI());
+                }
+                return status(SERVICE_UNAVAILABLE).header("Retry-After", 1).build();
+            }
+            request.setAttribute(PERMIT, new Permit(settings.permits));
+        }
+        final AsyncContext async;
+        try {
+            async = request.startAsync();
+        } catch (final IllegalStateException exception) {
+            release(request);
+            throw exception;
+        }
+        async.setTimeout(settings.timeout);
+        final AtomicBoolean done = new AtomicBoolean();
+        async.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(final AsyncEvent event) throws IOException {
+                dispatch(async, done, new Reply(continuation, null, new TimeoutException(name + " request timed out after "
+                        + settings.timeout + " ms")));
+            }
+
+            @Override
+            public void onError(final AsyncEvent event) throws IOException {
+                dispatch(async, done, new Reply(continuation, null, event.getThrowable()));
+            }
+
+            @Override
+            public void onComplete(final AsyncEvent event) throws IOException {
+                // The request is answered, whether it went through resume() or not.
+                release((HttpServletRequest) async.getRequest());
+            }
+
+            @Override
+            public void onStartAsync(final AsyncEvent event) throws IOException {
+            }
+        });
+        final ActorSystem system = (ActorSystem) context.getAttribute(ActorSystem.class.getName());
+        future.onComplete(new OnComplete<T>() {
+            @Override
+            public void onComplete(final Throwable failure, final T success) {
+                dispatch(async, done, new Reply(continuation, success, failure));
+            }
+        }, system.dispatcher());
+        return null;
+    }
+
+    /**
+     * @return true when the request is dispatched again with the reply it was suspended for.
+     */
+    public boolean isResumed(final HttpServletRequest request) {
+        return request.getDispatcherType() == DispatcherType.ASYNC && request.getAttribute(REPLY) != null;
+    }
+
+    /**
+     * Runs the continuation of a resumed request.
+     *
+     * @return the response built by the continuation, null if it suspended the request again.
+     */
+    public Response resume(final HttpServletRequest request) {
+        final Reply reply = (Reply) request.getAttribute(REPLY);
+        request.removeAttribute(REPLY);
+        Response response;
+        try {
+            if (reply.failure != null) {
+                throw reply.failure;
+            }
+            response = reply.continuation.resume(reply.success);
+        } catch (final Throwable exception) {
+            logger.error("Failed to answer the " + name + " request " + request.getRequestURI(), exception);
+            response = status(INTERNAL_SERVER_ERROR).entity(exception.getMessage()).build();
+        }
+        if (!request.isAsyncStarted()) {
+            release(request);
+        }
+        return response;
+    }
+
+    private static void release(final HttpServletRequest request) {
+        final Permit permit = (Permit) request.getAttribute(PERMIT);
+        if (permit != null) {
+            request.removeAttribute(PERMIT);
+            permit.release();
+        }
+    }
+
+    // Only the first of the reply, the timeout or an error dispatches the request.
+    private static void dispatch(final AsyncContext async, final AtomicBoolean done, final Reply reply) {
+        if (done.compareAndSet(false, true)) {
+            async.getRequest().setAttribute(REPLY, reply);
+            async.dispatch();
+        }
+    }
+
+    private Settings settings(final ServletContext context) {
+        final Configuration configuration = (Configuration) context.getAttribute(Configuration.class.getName());
+        Settings result = settings;
+        if (result == null || result.configuration != configuration) {
+            synchronized (this) {
+                result = settings;
+                if (result == null || result.configuration != configuration) {
+                    result = new Settings(configuration, name);
+                    settings = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    // Released once, by resume() or by the completion of the request.
+    private static final class Permit {
+        private final Semaphore permits;
+        private final AtomicBoolean released;
+
+        private Permit(final Semaphore permits) {
+            super();
+            this.permits = permits;
+            this.released = new AtomicBoolean();
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+
+    private static final class Reply {
+        private final Continuation continuation;
+        private final Object success;
+        private final Throwable failure;
+
+        private Reply(final Continuation continuation, final Object success, final Throwable failure) {
+            super();
+            this.continuation = continuation;
+            this.success = success;
+            this.failure = failure;
+        }
+    }
+
+    private static final class Settings {
+        private final Configuration configuration;
+        private final long timeout;
+        private final Semaphore permits;
+
+        private Settings(final Configuration configuration, final String name) {
+            super();
+            this.configuration = configuration;
+            final Configuration defaults = configuration.subset("async-requests");
+            final Configuration endpoint = defaults.subset(name);
+            timeout = getLong(endpoint, "timeout", getLong(defaults, "timeout", DEFAULT_TIMEOUT));
+            final int max = (int) getLong(endpoint, "max-concurrent-requests",
+                    getLong(defaults, "max-concurrent-requests", DEFAULT_MAX_CONCURRENT_REQUESTS));
+            permits = new Semaphore(max);
+        }
+
+        private static long getLong(final Configuration configuration, final String key, final long defaultValue) {
+            final String value = configuration.getString(key);
+            if (value == null || value.trim().isEmpty()) {
+                return defaultValue;
+            }
+            return Long.parseLong(value.trim());
+        }
+    }
+}
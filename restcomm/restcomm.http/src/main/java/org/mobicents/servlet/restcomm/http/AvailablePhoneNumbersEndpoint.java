@@ -60,6 +60,19 @@ import com.thoughtworks.xstream.XStream;
  */
 @ThreadSafe
 public abstract class AvailablePhoneNumbersEndpoint extends SecuredEndpoint {
+    private static final Serializers serializers = new Serializers() {
+        @Override
+        protected void register(final XStream xstream, final Configuration configuration) {
+            xstream.registerConverter(new AvailablePhoneNumberConverter(configuration));
+            xstream.registerConverter(new AvailablePhoneNumberListConverter(configuration));
+            xstream.registerConverter(new RestCommResponseConverter(configuration));
+        }
+
+        @Override
+        protected void register(final GsonBuilder builder, final Configuration configuration) {
+        }
+    };
+
     @Context
     protected ServletContext context;
     protected PhoneNumberProvisioningManager phoneNumberProvisioningManager;
@@ -88,15 +101,8 @@ public abstract class AvailablePhoneNumbersEndpoint extends SecuredEndpoint {
             context.setAttribute("phoneNumberProvisioningManager", phoneNumberProvisioningManager);
         }
 
-        xstream = new XStream();
-        xstream.alias("RestcommResponse", RestCommResponse.class);
-        xstream.registerConverter(new AvailablePhoneNumberConverter(configuration));
-        xstream.registerConverter(new AvailablePhoneNumberListConverter(configuration));
-        xstream.registerConverter(new RestCommResponseConverter(configuration));
-        final GsonBuilder builder = new GsonBuilder();
-        builder.setPrettyPrinting();
-//        builder.serializeNulls();
-        gson = builder.create();
+        xstream = serializers.getXStream(configuration);
+        gson = serializers.getGson(configuration);
     }
 
     protected Response getAvailablePhoneNumbers(final String accountSid, final String isoCountryCode, PhoneNumberSearchFilters listFilters, String filterPattern, final MediaType responseType) {
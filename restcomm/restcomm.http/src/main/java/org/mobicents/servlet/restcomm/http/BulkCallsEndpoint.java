@@ -0,0 +1,306 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http;
+
+import static akka.pattern.Patterns.ask;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
+import static javax.ws.rs.core.MediaType.APPLICATION_XML;
+import static javax.ws.rs.core.MediaType.APPLICATION_XML_TYPE;
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
+import static javax.ws.rs.core.Response.Status.NOT_FOUND;
+import static javax.ws.rs.core.Response.ok;
+import static javax.ws.rs.core.Response.status;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.ServletContext;
+import javax.servlet.sip.ServletParseException;
+import javax.servlet.sip.SipFactory;
+import javax.servlet.sip.SipServlet;
+import javax.servlet.sip.SipURI;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+
+import org.apache.commons.configuration.Configuration;
+import org.mobicents.servlet.restcomm.annotations.concurrency.NotThreadSafe;
+import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.entities.Account;
+import org.mobicents.servlet.restcomm.entities.RestCommResponse;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.http.converter.BulkCallInfoConverter;
+import org.mobicents.servlet.restcomm.http.converter.BulkCallInfoList;
+import org.mobicents.servlet.restcomm.http.converter.BulkCallInfoListConverter;
+import org.mobicents.servlet.restcomm.http.converter.RestCommResponseConverter;
+import org.mobicents.servlet.restcomm.telephony.BulkCallInfo;
+import org.mobicents.servlet.restcomm.telephony.BulkCallResponse;
+import org.mobicents.servlet.restcomm.telephony.CancelBulkCall;
+import org.mobicents.servlet.restcomm.telephony.CreateBulkCall;
+import org.mobicents.servlet.restcomm.telephony.GetBulkCall;
+import org.mobicents.servlet.restcomm.telephony.GetBulkCalls;
+
+import scala.concurrent.Future;
+import akka.actor.ActorRef;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.i18n.phonenumbers.NumberParseException;
+import com.google.i18n.phonenumbers.PhoneNumberUtil;
+import com.google.i18n.phonenumbers.PhoneNumberUtil.PhoneNumberFormat;
+import com.thoughtworks.xstream.XStream;
+
+/**
+ * Calls a list of destinations and runs the same application on every call. The destinations are handed to the bulk
+ * call dialer, which paces the calls, so the request returns as soon as the bulk call is queued and its progress is
+ * polled with a GET on the bulk call.
+ */
+@NotThreadSafe
+public abstract class BulkCallsEndpoint extends SecuredEndpoint {
+    private static final Serializers serializers = new Serializers() {
+        @Override
+        protected void register(final XStream xstream, final Configuration configuration) {
+            xstream.registerConverter(new BulkCallInfoConverter(configuration));
+            xstream.registerConverter(new BulkCallInfoListConverter(configuration));
+            xstream.registerConverter(new RestCommResponseConverter(configuration));
+        }
+
+        @Override
+        protected void register(final GsonBuilder builder, final Configuration configuration) {
+            builder.registerTypeAdapter(BulkCallInfo.class, new BulkCallInfoConverter(configuration));
+        }
+    };
+    private static final AsyncRequests requests = new AsyncRequests("bulk-calls");
+
+    @Context
+    protected ServletContext context;
+    protected Configuration configuration;
+    protected ActorRef dialer;
+    protected SipFactory sipFactory;
+    protected DaoManager daos;
+    protected Gson gson;
+    protected XStream xstream;
+    protected boolean normalizePhoneNumbers;
+
+    public BulkCallsEndpoint() {
+        super();
+    }
+
+    @PostConstruct
+    public void init() {
+        final Configuration settings = (Configuration) context.getAttribute(Configuration.class.getName());
+        configuration = settings.subset("runtime-settings");
+        dialer = (ActorRef) context.getAttribute("org.mobicents.servlet.restcomm.telephony.BulkCallDialer");
+        sipFactory = (SipFactory) context.getAttribute(SipServlet.SIP_FACTORY);
+        daos = (DaoManager) context.getAttribute(DaoManager.class.getName());
+        super.init(configuration);
+        xstream = serializers.getXStream(settings);
+        gson = serializers.getGson(settings);
+        normalizePhoneNumbers = configuration.getBoolean("normalize-numbers-for-outbound-calls");
+    }
+
+    protected Response getBulkCall(final String accountSid, final String sid, final MediaType responseType) {
+        if (requests.isResumed(request)) {
+            return requests.resume(request);
+        }
+        final Account account = daos.getAccountsDao().getAccount(accountSid);
+        secure(account, "RestComm:Read:Calls");
+        final Future<Object> future = ask(dialer, new GetBulkCall(new Sid(sid), account.getSid()), requests.timeout(context));
+        return requests.suspend(request, future, new AsyncRequests.Continuation() {
+            @Override
+            public Response resume(final Object reply) {
+                return toResponse(reply, responseType);
+            }
+        });
+    }
+
+    protected Response getBulkCalls(final String accountSid, final MediaType responseType) {
+        if (requests.isResumed(request)) {
+            return requests.resume(request);
+        }
+        final Account account = daos.getAccountsDao().getAccount(accountSid);
+        secure(account, "RestComm:Read:Calls");
+        final Future<Object> future = ask(dialer, new GetBulkCalls(account.getSid()), requests.timeout(context));
+        return requests.suspend(request, future, new AsyncRequests.Continuation() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public Response resume(final Object reply) {
+                final BulkCallResponse<List<BulkCallInfo>> response = (BulkCallResponse<List<BulkCallInfo>>) reply;
+                final List<BulkCallInfo> bulkCalls = response.get();
+                if (APPLICATION_XML_TYPE == responseType) {
+                    final RestCommResponse result = new RestCommResponse(new BulkCallInfoList(bulkCalls));
+                    return ok(xstream.toXML(result), APPLICATION_XML).build();
+                } else if (APPLICATION_JSON_TYPE == responseType) {
+                    return ok(gson.toJson(bulkCalls), APPLICATION_JSON).build();
+                } else {
+                    return null;
+                }
+            }
+        });
+    }
+
+    protected Response putBulkCall(final String accountSid, final MultivaluedMap<String, String> data,
+            final MediaType responseType) {
+        if (requests.isResumed(request)) {
+            return requests.resume(request);
+        }
+        final Account account = daos.getAccountsDao().getAccount(accountSid);
+        secure(account, "RestComm:Create:Calls");
+        final CreateBulkCall create;
+        try {
+            validate(data);
+            String from = check(data.getFirst("From").trim());
+            final List<String> destinations = getDestinations(data);
+            if (normalizePhoneNumbers) {
+                from = normalize(from);
+            }
+            for (int index = 0; index < destinations.size(); index++) {
+                final String destination = check(destinations.get(index));
+                destinations.set(index, normalizePhoneNumbers ? normalize(destination) : destination);
+            }
+            create = new CreateBulkCall(account.getSid(), from, destinations, data.getFirst("Username"),
+                    data.getFirst("Password"), getTimeout(data), getApiVersion(data), getUrl("Url", data), getMethod(
+                            "Method", data), getUrl("FallbackUrl", data), getMethod("FallbackMethod", data), getUrl(
+                            "StatusCallback", data), getMethod("StatusCallbackMethod", data));
+        } catch (final RuntimeException exception) {
+            return status(BAD_REQUEST).entity(exception.getMessage()).build();
+        }
+        final Future<Object> future = ask(dialer, create, requests.timeout(context));
+        return requests.suspend(request, future, new AsyncRequests.Continuation() {
+            @Override
+            public Response resume(final Object reply) {
+                return toResponse(reply, responseType);
+            }
+        });
+    }
+
+    protected Response updateBulkCall(final String accountSid, final String sid, final MultivaluedMap<String, String> data,
+            final MediaType responseType) {
+        if (requests.isResumed(request)) {
+            return requests.resume(request);
+        }
+        final Account account = daos.getAccountsDao().getAccount(accountSid);
+        secure(account, "RestComm:Modify:Calls");
+        if (!"canceled".equalsIgnoreCase(data.getFirst("Status"))) {
+            return status(BAD_REQUEST).entity("A bulk call can only be updated to Status canceled.").build();
+        }
+        final Future<Object> future = ask(dialer, new CancelBulkCall(new Sid(sid), account.getSid()),
+                requests.timeout(context));
+        return requests.suspend(request, future, new AsyncRequests.Continuation() {
+            @Override
+            public Response resume(final Object reply) {
+                return toResponse(reply, responseType);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private Response toResponse(final Object reply, final MediaType responseType) {
+        final BulkCallResponse<BulkCallInfo> response = (BulkCallResponse<BulkCallInfo>) reply;
+        if (!response.succeeded()) {
+            if (response.cause() instanceof IllegalArgumentException) {
+                return status(BAD_REQUEST).entity(response.error()).build();
+            }
+            return status(INTERNAL_SERVER_ERROR).entity(response.error()).build();
+        }
+        final BulkCallInfo info = response.get();
+        if (info == null) {
+            return status(NOT_FOUND).build();
+        }
+        if (APPLICATION_XML_TYPE == responseType) {
+            return ok(xstream.toXML(new RestCommResponse(info)), APPLICATION_XML).build();
+        } else if (APPLICATION_JSON_TYPE == responseType) {
+            return ok(gson.toJson(info), APPLICATION_JSON).build();
+        } else {
+            return null;
+        }
+    }
+
+    // The To parameter can be repeated and every value can hold several destinations separated by commas or lines.
+    private List<String> getDestinations(final MultivaluedMap<String, String> data) {
+        final List<String> destinations = new ArrayList<String>();
+        for (final String value : data.get("To")) {
+            for (final String destination : value.split("[,\\r\\n]+")) {
+                if (!destination.trim().isEmpty()) {
+                    destinations.add(destination.trim());
+                }
+            }
+        }
+        if (destinations.isEmpty()) {
+            throw new IllegalArgumentException("To can not be empty.");
+        }
+        return destinations;
+    }
+
+    // The call manager fails on the destinations it can't parse without answering, refuse them before they are queued.
+    private String check(final String destination) throws IllegalArgumentException {
+        if (destination.startsWith("client")) {
+            if (destination.split(":").length != 2) {
+                throw new IllegalArgumentException(destination + " is an invalid client identifier.");
+            }
+        } else if (destination.contains("@")) {
+            try {
+                if (!(sipFactory.createURI(destination) instanceof SipURI)) {
+                    throw new IllegalArgumentException(destination + " is not a SIP URI.");
+                }
+            } catch (final ServletParseException exception) {
+                throw new IllegalArgumentException(destination + " is an invalid SIP URI.", exception);
+            }
+        }
+        return destination;
+    }
+
+    private String normalize(final String number) throws IllegalArgumentException {
+        // Only try to normalize phone numbers.
+        if (number.startsWith("client") || number.contains("@")) {
+            return number;
+        }
+        final PhoneNumberUtil phoneNumberUtil = PhoneNumberUtil.getInstance();
+        try {
+            return phoneNumberUtil.format(phoneNumberUtil.parse(number, "US"), PhoneNumberFormat.E164);
+        } catch (final NumberParseException exception) {
+            throw new IllegalArgumentException(exception);
+        }
+    }
+
+    private int getTimeout(final MultivaluedMap<String, String> data) {
+        int result = 60;
+        if (data.containsKey("Timeout")) {
+            result = Integer.parseInt(data.getFirst("Timeout"));
+        }
+        return result;
+    }
+
+    private void validate(final MultivaluedMap<String, String> data) throws NullPointerException {
+        if (!data.containsKey("From")) {
+            throw new NullPointerException("From can not be null.");
+        } else if (!data.containsKey("To")) {
+            throw new NullPointerException("To can not be null.");
+        } else if (!data.containsKey("Url")) {
+            throw new NullPointerException("Url can not be null.");
+        }
+        URI.create(data.getFirst("Url"));
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http;
+
+import static akka.pattern.Patterns.ask;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
+import static javax.ws.rs.core.MediaType.APPLICATION_XML;
+import static javax.ws.rs.core.MediaType.APPLICATION_XML_TYPE;
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
+import static javax.ws.rs.core.Response.Status.NOT_FOUND;
+import static javax.ws.rs.core.Response.ok;
+import static javax.ws.rs.core.Response.status;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.ServletContext;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+
+import org.apache.commons.configuration.Configuration;
+import org.mobicents.servlet.restcomm.annotations.concurrency.NotThreadSafe;
+import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.entities.Account;
+import org.mobicents.servlet.restcomm.entities.RestCommResponse;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.http.converter.BulkSmsInfoConverter;
+import org.mobicents.servlet.restcomm.http.converter.BulkSmsInfoList;
+import org.mobicents.servlet.restcomm.http.converter.BulkSmsInfoListConverter;
+import org.mobicents.servlet.restcomm.http.converter.RestCommResponseConverter;
+import org.mobicents.servlet.restcomm.sms.BulkSmsInfo;
+import org.mobicents.servlet.restcomm.sms.BulkSmsResponse;
+import org.mobicents.servlet.restcomm.sms.CancelBulkSms;
+import org.mobicents.servlet.restcomm.sms.CreateBulkSms;
+import org.mobicents.servlet.restcomm.sms.GetBulkSms;
+import org.mobicents.servlet.restcomm.sms.GetBulkSmsList;
+
+import scala.concurrent.Future;
+import akka.actor.ActorRef;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.i18n.phonenumbers.NumberParseException;
+import com.google.i18n.phonenumbers.PhoneNumberUtil;
+import com.google.i18n.phonenumbers.PhoneNumberUtil.PhoneNumberFormat;
+import com.thoughtworks.xstream.XStream;
+
+/**
+ * Sends the same text message to a list of recipients. The recipients are handed to the bulk SMS sender, which
+ * stores and sends the messages at a steady pace, so the request returns as soon as the bulk SMS is queued. The status
+ * of every recipient is polled with a GET on the bulk SMS and every message shows up in the SMS messages of the account.
+ */
+@NotThreadSafe
+public abstract class BulkSmsMessagesEndpoint extends SecuredEndpoint {
+    private static final Serializers serializers = new Serializers() {
+        @Override
+        protected void register(final XStream xstream, final Configuration configuration) {
+            xstream.registerConverter(new BulkSmsInfoConverter(configuration));
+            xstream.registerConverter(new BulkSmsInfoListConverter(configuration));
+            xstream.registerConverter(new RestCommResponseConverter(configuration));
+        }
+
+        @Override
+        protected void register(final GsonBuilder builder, final Configuration configuration) {
+            builder.registerTypeAdapter(BulkSmsInfo.class, new BulkSmsInfoConverter(configuration));
+        }
+    };
+    private static final AsyncRequests requests = new AsyncRequests("bulk-sms-messages");
+
+    @Context
+    protected ServletContext context;
+    protected Configuration configuration;
+    protected ActorRef sender;
+    protected DaoManager daos;
+    protected Gson gson;
+    protected XStream xstream;
+    protected boolean normalizePhoneNumbers;
+
+    public BulkSmsMessagesEndpoint() {
+        super();
+    }
+
+    @PostConstruct
+    public void init() {
+        final Configuration settings = (Configuration) context.getAttribute(Configuration.class.getName());
+        configuration = settings.subset("runtime-settings");
+        sender = (ActorRef) context.getAttribute("org.mobicents.servlet.restcomm.sms.BulkSmsSender");
+        daos = (DaoManager) context.getAttribute(DaoManager.class.getName());
+        super.init(configuration);
+        xstream = serializers.getXStream(settings);
+        gson = serializers.getGson(settings);
+        normalizePhoneNumbers = configuration.getBoolean("normalize-numbers-for-outbound-calls");
+    }
+
+    protected Response getBulkSmsMessage(final String accountSid, final String sid, final MediaType responseType) {
+        if (requests.isResumed(request)) {
+            return requests.resume(request);
+        }
+        final Account account = daos.getAccountsDao().getAccount(accountSid);
+        secure(account, "RestComm:Read:SmsMessages");
+        final Future<Object> future = ask(sender, new GetBulkSms(new Sid(sid), account.getSid()), requests.timeout(context));
+        return requests.suspend(request, future, new AsyncRequests.Continuation() {
+            @Override
+            public Response resume(final Object reply) {
+                return toResponse(reply, responseType);
+            }
+        });
+    }
+
+    protected Response getBulkSmsMessages(final String accountSid, final MediaType responseType) {
+        if (requests.isResumed(request)) {
+            return requests.resume(request);
+        }
+        final Account account = daos.getAccountsDao().getAccount(accountSid);
+        secure(account, "RestComm:Read:SmsMessages");
+        final Future<Object> future = ask(sender, new GetBulkSmsList(account.getSid()), requests.timeout(context));
+        return requests.suspend(request, future, new AsyncRequests.Continuation() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public Response resume(final Object reply) {
+                final BulkSmsResponse<List<BulkSmsInfo>> response = (BulkSmsResponse<List<BulkSmsInfo>>) reply;
+                final List<BulkSmsInfo> bulkMessages = response.get();
+                if (APPLICATION_XML_TYPE == responseType) {
+                    final RestCommResponse result = new RestCommResponse(new BulkSmsInfoList(bulkMessages));
+                    return ok(xstream.toXML(result), APPLICATION_XML).build();
+                } else if (APPLICATION_JSON_TYPE == responseType) {
+                    return ok(gson.toJson(bulkMessages), APPLICATION_JSON).build();
+                } else {
+                    return null;
+                }
+            }
+        });
+    }
+
+    protected Response putBulkSmsMessage(final String accountSid, final MultivaluedMap<String, String> data,
+            final MediaType responseType) {
+        if (requests.isResumed(request)) {
+            return requests.resume(request);
+        }
+        final Account account = daos.getAccountsDao().getAccount(accountSid);
+        secure(account, "RestComm:Create:SmsMessages");
+        final CreateBulkSms create;
+        try {
+            validate(data);
+            String from = data.getFirst("From").trim();
+            final List<String> recipients = getRecipients(data);
+            String body = data.getFirst("Body");
+            if (normalizePhoneNumbers) {
+                from = normalize(from);
+                for (int index = 0; index < recipients.size(); index++) {
+                    recipients.set(index, normalize(recipients.get(index)));
+                }
+                if (body.getBytes().length > 160) {
+                    body = body.substring(0, 159);
+                }
+            }
+            final Map<String, String> headers = new HashMap<String, String>();
+            for (final String name : data.keySet()) {
+                if (name.startsWith("X-")) {
+                    headers.put(name, data.getFirst(name));
+                }
+            }
+            create = new CreateBulkSms(account.getSid(), getApiVersion(data), from, recipients, body, headers);
+        } catch (final RuntimeException exception) {
+            return status(BAD_REQUEST).entity(exception.getMessage()).build();
+        }
+        final Future<Object> future = ask(sender, create, requests.timeout(context));
+        return requests.suspend(request, future, new AsyncRequests.Continuation() {
+            @Override
+            public Response resume(final Object reply) {
+                return toResponse(reply, responseType);
+            }
+        });
+    }
+
+    protected Response updateBulkSmsMessage(final String accountSid, final String sid,
+            final MultivaluedMap<String, String> data, final MediaType responseType) {
+        if (requests.isResumed(request)) {
+            return requests.resume(request);
+        }
+        final Account account = daos.getAccountsDao().getAccount(accountSid);
+        secure(account, "RestComm:Modify:SmsMessages");
+        if (!"canceled".equalsIgnoreCase(data.getFirst("Status"))) {
+            return status(BAD_REQUEST).entity("A bulk SMS can only be updated to Status canceled.").build();
+        }
+        final Future<Object> future = ask(sender, new CancelBulkSms(new Sid(sid), account.getSid()),
+                requests.timeout(context));
+        return requests.suspend(request, future, new AsyncRequests.Continuation() {
+            @Override
+            public Response resume(final Object reply) {
+                return toResponse(reply, responseType);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private Response toResponse(final Object reply, final MediaType responseType) {
+        final BulkSmsResponse<BulkSmsInfo> response = (BulkSmsResponse<BulkSmsInfo>) reply;
+        if (!response.succeeded()) {
+            if (response.cause() instanceof IllegalArgumentException) {
+                return status(BAD_REQUEST).entity(response.error()).build();
+            }
+            return status(INTERNAL_SERVER_ERROR).entity(response.error()).build();
+        }
+        final BulkSmsInfo info = response.get();
+        if (info == null) {
+            return status(NOT_FOUND).build();
+        }
+        if (APPLICATION_XML_TYPE == responseType) {
+            return ok(xstream.toXML(new RestCommResponse(info)), APPLICATION_XML).build();
+        } else if (APPLICATION_JSON_TYPE == responseType) {
+            return ok(gson.toJson(info), APPLICATION_JSON).build();
+        } else {
+            return null;
+        }
+    }
+
+    // The To parameter can be repeated and every value can hold several recipients separated by commas or lines.
+    private List<String> getRecipients(final MultivaluedMap<String, String> data) {
+        final List<String> recipients = new ArrayList<String>();
+        for (final String value : data.get("To")) {
+            for (final String recipient : value.split("[,\\r\\n]+")) {
+                if (!recipient.trim().isEmpty()) {
+                    recipients.add(recipient.trim());
+                }
+            }
+        }
+        if (recipients.isEmpty()) {
+            throw new IllegalArgumentException("To can not be empty.");
+        }
+        return recipients;
+    }
+
+    private String normalize(final String number) throws IllegalArgumentException {
+        final PhoneNumberUtil phoneNumberUtil = PhoneNumberUtil.getInstance();
+        try {
+            return phoneNumberUtil.format(phoneNumberUtil.parse(number, "US"), PhoneNumberFormat.E164);
+        } catch (final NumberParseException exception) {
+            throw new IllegalArgumentException(exception);
+        }
+    }
+
+    private void validate(final MultivaluedMap<String, String> data) throws NullPointerException {
+        if (!data.containsKey("From")) {
+            throw new NullPointerException("From can not be null.");
+        } else if (!data.containsKey("To")) {
+            throw new NullPointerException("To can not be null.");
+        } else if (!data.containsKey("Body")) {
+            throw new NullPointerException("Body can not be null.");
+        }
+    }
+}
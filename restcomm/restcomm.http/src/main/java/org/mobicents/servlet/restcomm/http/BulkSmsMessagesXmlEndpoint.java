@@ -0,0 +1,79 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http;
+
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
+import static javax.ws.rs.core.MediaType.APPLICATION_XML_TYPE;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+
+@Path("/Accounts/{accountSid}/SMS/BulkMessages")
+@ThreadSafe
+public final class BulkSmsMessagesXmlEndpoint extends BulkSmsMessagesEndpoint {
+    public BulkSmsMessagesXmlEndpoint() {
+        super();
+    }
+
+    @Path("/{sid}.json")
+    @GET
+    public Response getBulkSmsMessageAsJson(@PathParam("accountSid") final String accountSid,
+            @PathParam("sid") final String sid) {
+        return getBulkSmsMessage(accountSid, sid, APPLICATION_JSON_TYPE);
+    }
+
+    @Path("/{sid}")
+    @GET
+    public Response getBulkSmsMessageAsXml(@PathParam("accountSid") final String accountSid,
+            @PathParam("sid") final String sid) {
+        return getBulkSmsMessage(accountSid, sid, APPLICATION_XML_TYPE);
+    }
+
+    @GET
+    public Response getBulkSmsMessages(@PathParam("accountSid") final String accountSid) {
+        return getBulkSmsMessages(accountSid, APPLICATION_XML_TYPE);
+    }
+
+    @POST
+    public Response putBulkSmsMessage(@PathParam("accountSid") final String accountSid,
+            final MultivaluedMap<String, String> data) {
+        return putBulkSmsMessage(accountSid, data, APPLICATION_XML_TYPE);
+    }
+
+    @Path("/{sid}.json")
+    @POST
+    public Response modifyBulkSmsMessageAsJson(@PathParam("accountSid") final String accountSid,
+            @PathParam("sid") final String sid, final MultivaluedMap<String, String> data) {
+        return updateBulkSmsMessage(accountSid, sid, data, APPLICATION_JSON_TYPE);
+    }
+
+    @Path("/{sid}")
+    @POST
+    public Response modifyBulkSmsMessage(@PathParam("accountSid") final String accountSid,
+            @PathParam("sid") final String sid, final MultivaluedMap<String, String> data) {
+        return updateBulkSmsMessage(accountSid, sid, data, APPLICATION_XML_TYPE);
+    }
+}
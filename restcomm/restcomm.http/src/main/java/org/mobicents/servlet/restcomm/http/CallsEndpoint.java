@@ -20,10 +20,13 @@
 package org.mobicents.servlet.restcomm.http;
 
 import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.dispatch.Futures;
 import akka.util.Timeout;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
 import com.google.i18n.phonenumbers.NumberParseException;
 import com.google.i18n.phonenumbers.PhoneNumberUtil;
 import com.google.i18n.phonenumbers.PhoneNumberUtil.PhoneNumberFormat;
@@ -34,11 +37,13 @@ import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
 import org.mobicents.servlet.restcomm.dao.AccountsDao;
 import org.mobicents.servlet.restcomm.dao.CallDetailRecordsDao;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.dao.RecordHandler;
 import org.mobicents.servlet.restcomm.dao.RecordingsDao;
 import org.mobicents.servlet.restcomm.entities.Account;
 import org.mobicents.servlet.restcomm.entities.CallDetailRecord;
 import org.mobicents.servlet.restcomm.entities.CallDetailRecordFilter;
 import org.mobicents.servlet.restcomm.entities.CallDetailRecordList;
+import org.mobicents.servlet.restcomm.entities.PageToken;
 import org.mobicents.servlet.restcomm.entities.Recording;
 import org.mobicents.servlet.restcomm.entities.RecordingList;
 import org.mobicents.servlet.restcomm.entities.RestCommResponse;
@@ -57,9 +62,7 @@ import org.mobicents.servlet.restcomm.telephony.GetCall;
 import org.mobicents.servlet.restcomm.telephony.GetCallInfo;
 import org.mobicents.servlet.restcomm.telephony.Hangup;
 import org.mobicents.servlet.restcomm.telephony.UpdateCallScript;
-import scala.concurrent.Await;
 import scala.concurrent.Future;
-import scala.concurrent.duration.Duration;
 
 import javax.annotation.PostConstruct;
 import javax.servlet.ServletContext;
@@ -71,9 +74,10 @@ import javax.ws.rs.core.UriInfo;
 import java.net.URI;
 import java.net.URL;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.TimeUnit;
 
 import static akka.pattern.Patterns.ask;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
@@ -95,13 +99,31 @@ import static javax.ws.rs.core.Response.status;
  */
 @NotThreadSafe
 public abstract class CallsEndpoint extends SecuredEndpoint {
+    private static final Serializers serializers = new Serializers() {
+        @Override
+        protected void register(final XStream xstream, final Configuration configuration) {
+            xstream.registerConverter(new CallDetailRecordConverter(configuration));
+            xstream.registerConverter(new RecordingConverter(configuration));
+            xstream.registerConverter(new RecordingListConverter(configuration));
+            xstream.registerConverter(new RestCommResponseConverter(configuration));
+            xstream.registerConverter(new CallDetailRecordListConverter(configuration));
+        }
+
+        @Override
+        protected void register(final GsonBuilder builder, final Configuration configuration) {
+            builder.registerTypeAdapter(CallDetailRecord.class, new CallDetailRecordConverter(configuration));
+            builder.registerTypeAdapter(CallDetailRecordList.class, new CallDetailRecordListConverter(configuration));
+            builder.registerTypeAdapter(Recording.class, new RecordingConverter(configuration));
+        }
+    };
+    private static final AsyncRequests requests = new AsyncRequests("calls");
+
     @Context
     protected ServletContext context;
     protected Configuration configuration;
     protected ActorRef callManager;
     protected DaoManager daos;
     protected Gson gson;
-    protected GsonBuilder builder;
     protected XStream xstream;
     protected CallDetailRecordListConverter listConverter;
     protected AccountsDao accountsDao;
@@ -123,22 +145,10 @@ public abstract class CallsEndpoint extends SecuredEndpoint {
         accountsDao = daos.getAccountsDao();
         recordingsDao = daos.getRecordingsDao();
         super.init(configuration);
-        CallDetailRecordConverter converter = new CallDetailRecordConverter(configuration);
+        final Configuration settings = (Configuration) context.getAttribute(Configuration.class.getName());
+        xstream = serializers.getXStream(settings);
+        gson = serializers.getGson(settings);
         listConverter = new CallDetailRecordListConverter(configuration);
-        final RecordingConverter recordingConverter = new RecordingConverter(configuration);
-        builder = new GsonBuilder();
-        builder.registerTypeAdapter(CallDetailRecord.class, converter);
-        builder.registerTypeAdapter(CallDetailRecordList.class, listConverter);
-        builder.registerTypeAdapter(Recording.class, recordingConverter);
-        builder.setPrettyPrinting();
-        gson = builder.create();
-        xstream = new XStream();
-        xstream.alias("RestcommResponse", RestCommResponse.class);
-        xstream.registerConverter(converter);
-        xstream.registerConverter(recordingConverter);
-        xstream.registerConverter(new RecordingListConverter(configuration));
-        xstream.registerConverter(new RestCommResponseConverter(configuration));
-        xstream.registerConverter(listConverter);
 
         instanceId = RestcommConfiguration.getInstance().getMain().getInstanceId();
 
@@ -181,7 +191,8 @@ public abstract class CallsEndpoint extends SecuredEndpoint {
 
         String pageSize = info.getQueryParameters().getFirst("PageSize");
         String page = info.getQueryParameters().getFirst("Page");
-        // String afterSid = info.getQueryParameters().getFirst("AfterSid");
+        String pageToken = info.getQueryParameters().getFirst("PageToken");
+        String afterSid = info.getQueryParameters().getFirst("AfterSid");
         String recipient = info.getQueryParameters().getFirst("To");
         String sender = info.getQueryParameters().getFirst("From");
         String status = info.getQueryParameters().getFirst("Status");
@@ -194,15 +205,35 @@ public abstract class CallsEndpoint extends SecuredEndpoint {
             pageSize = "50";
         }
 
+        // Clients that still send the page number keep on getting the offset based pages.
+        if (page == null && (pageToken != null || afterSid != null)) {
+            PageToken after = null;
+            try {
+                if (pageToken != null && !pageToken.isEmpty()) {
+                    after = PageToken.valueOf(pageToken);
+                } else if (afterSid != null && !afterSid.isEmpty()) {
+                    final CallDetailRecord cdr = daos.getCallDetailRecordsDao().getCallDetailRecord(new Sid(afterSid));
+                    if (cdr == null || !cdr.getAccountSid().toString().equals(accountSid)) {
+                        return status(BAD_REQUEST).build();
+                    }
+                    after = new PageToken(cdr.getDateCreated(), cdr.getSid());
+                }
+            } catch (IllegalArgumentException e) {
+                return status(BAD_REQUEST).build();
+            }
+            return getCallsPage(accountSid, localInstanceOnly ? null : instanceId, Integer.parseInt(pageSize), after,
+                    recipient, sender, status, startTime, endTime, parentCallSid, conferenceSid, info, responseType);
+        }
+
         if (page == null) {
             page = "0";
         }
 
-        int limit = Integer.parseInt(pageSize);
+        final int limit = Integer.parseInt(pageSize);
         int offset = (page == "0") ? 0 : (((Integer.parseInt(page) - 1) * Integer.parseInt(pageSize)) + Integer
                 .parseInt(pageSize));
 
-        CallDetailRecordsDao dao = daos.getCallDetailRecordsDao();
+        final CallDetailRecordsDao dao = daos.getCallDetailRecordsDao();
 
         CallDetailRecordFilter filterForTotal;
         try {
@@ -237,18 +268,104 @@ public abstract class CallsEndpoint extends SecuredEndpoint {
             return status(BAD_REQUEST).build();
         }
 
+        if (APPLICATION_JSON_TYPE == responseType) {
+            // Write the calls as they are read, the page properties follow them.
+            final CallDetailRecordFilter pageFilter = filter;
+            final int currentPage = Integer.parseInt(page);
+            final String pathUri = info.getRequestUri().getPath();
+            return ok(new StreamingListOutput<CallDetailRecord>(gson, CallDetailRecord.class, "calls") {
+                @Override
+                protected void read(final RecordHandler<CallDetailRecord> handler) {
+                    dao.getCallDetailRecords(pageFilter, handler);
+                }
+
+                @Override
+                protected JsonObject properties(final int count, final CallDetailRecord last) {
+                    return listConverter.getPageProperties(currentPage, limit, total, pathUri, count,
+                            (last == null) ? null : last.getSid().toString());
+                }
+            }, APPLICATION_JSON).build();
+        }
+
         final List<CallDetailRecord> cdrs = dao.getCallDetailRecords(filter);
 
         listConverter.setCount(total);
         listConverter.setPage(Integer.parseInt(page));
         listConverter.setPageSize(Integer.parseInt(pageSize));
         listConverter.setPathUri(info.getRequestUri().getPath());
+        listConverter.setNextPageToken(null);
 
         if (APPLICATION_XML_TYPE == responseType) {
             final RestCommResponse response = new RestCommResponse(new CallDetailRecordList(cdrs));
-            return ok(xstream.toXML(response), APPLICATION_XML).build();
-        } else if (APPLICATION_JSON_TYPE == responseType) {
-            return ok(gson.toJson(new CallDetailRecordList(cdrs)), APPLICATION_JSON).build();
+            return ok(Serializers.toXML(xstream, response, listConverter), APPLICATION_XML).build();
+        } else {
+            return null;
+        }
+    }
+
+    // Keyset pagination, reads the page that comes after the page token without counting nor skipping the previous ones.
+    private Response getCallsPage(final String accountSid, final String instanceId, final int pageSize,
+            final PageToken after, final String recipient, final String sender, final String status,
+            final String startTime, final String endTime, final String parentCallSid, final String conferenceSid,
+            final UriInfo info, final MediaType responseType) {
+        final CallDetailRecordFilter filter;
+        try {
+            // One more record than asked for tells us whether there is a next page.
+            filter = new CallDetailRecordFilter(accountSid, recipient, sender, status, startTime, endTime, parentCallSid,
+                    conferenceSid, pageSize + 1, null, instanceId, after);
+        } catch (ParseException e) {
+            return status(BAD_REQUEST).build();
+        }
+
+        final CallDetailRecordsDao dao = daos.getCallDetailRecordsDao();
+        if (APPLICATION_JSON_TYPE == responseType) {
+            // Write the calls as they are read, the page properties follow them.
+            final String pathUri = info.getRequestUri().getPath();
+            return ok(new StreamingListOutput<CallDetailRecord>(gson, CallDetailRecord.class, "calls") {
+                private boolean more;
+
+                @Override
+                protected void read(final RecordHandler<CallDetailRecord> handler) {
+                    dao.getCallDetailRecordsPage(filter, new RecordHandler<CallDetailRecord>() {
+                        private int count;
+
+                        @Override
+                        public void handle(final CallDetailRecord cdr) {
+                            if (count++ < pageSize) {
+                                handler.handle(cdr);
+                            } else {
+                                more = true;
+                            }
+                        }
+                    });
+                }
+
+                @Override
+                protected JsonObject properties(final int count, final CallDetailRecord last) {
+                    final String nextPageToken = more ? new PageToken(last.getDateCreated(), last.getSid()).toString()
+                            : null;
+                    return listConverter.getPageTokenProperties(pageSize, pathUri, nextPageToken);
+                }
+            }, APPLICATION_JSON).build();
+        }
+
+        final List<CallDetailRecord> cdrs = dao.getCallDetailRecordsPage(filter);
+        String nextPageToken = null;
+        if (cdrs.size() > pageSize) {
+            cdrs.remove(pageSize);
+            final CallDetailRecord last = cdrs.get(pageSize - 1);
+            nextPageToken = new PageToken(last.getDateCreated(), last.getSid()).toString();
+        }
+
+        listConverter.setCount(null);
+        listConverter.setPage(null);
+        listConverter.setPageSize(pageSize);
+        listConverter.setPathUri(info.getRequestUri().getPath());
+        listConverter.setNextPageToken(nextPageToken);
+
+        if (APPLICATION_XML_TYPE == responseType) {
+            final RestCommResponse response = new RestCommResponse(new CallDetailRecordList(cdrs));
+            return ok(Serializers.toXML(xstream, response, listConverter), APPLICATION_XML).build();
         } else {
             return null;
         }
@@ -283,8 +400,10 @@ public abstract class CallsEndpoint extends SecuredEndpoint {
         URI.create(data.getFirst("Url"));
     }
 
-    @SuppressWarnings("unchecked")
     protected Response putCall(final String accountSid, final MultivaluedMap<String, String> data, final MediaType responseType) {
+        if (requests.isResumed(request)) {
+            return requests.resume(request);
+        }
         final Sid accountId = new Sid(accountSid);
         secure(daos.getAccountsDao().getAccount(accountSid), "RestComm:Create:Calls");
         try {
@@ -299,7 +418,7 @@ public abstract class CallsEndpoint extends SecuredEndpoint {
         final String username = data.getFirst("Username");
         final String password = data.getFirst("Password");
         final Integer timeout = getTimeout(data);
-        final Timeout expires = new Timeout(Duration.create(60, TimeUnit.SECONDS));
+        final Timeout expires = requests.timeout(context);
         CreateCall create = null;
         try {
             if (to.contains("@")) {
@@ -315,87 +434,108 @@ public abstract class CallsEndpoint extends SecuredEndpoint {
             create.setCreateCDR(false);
             if (callManager == null)
                 callManager = (ActorRef) context.getAttribute("org.mobicents.servlet.restcomm.telephony.CallManager");
-            Future<Object> future = (Future<Object>) ask(callManager, create, expires);
-            Object object = Await.result(future, Duration.create(10, TimeUnit.SECONDS));
-            Class<?> klass = object.getClass();
-            if (CallManagerResponse.class.equals(klass)) {
-                final CallManagerResponse<ActorRef> managerResponse = (CallManagerResponse<ActorRef>) object;
-                if (managerResponse.succeeded()) {
-                    List<ActorRef> dialBranches;
-                    if (managerResponse.get() instanceof List) {
-                        dialBranches = (List<ActorRef>) managerResponse.get();
-                    } else {
-                        dialBranches = new CopyOnWriteArrayList<ActorRef>();
-                        dialBranches.add(managerResponse.get());
-                    }
-                    List<CallDetailRecord> cdrs = new CopyOnWriteArrayList<CallDetailRecord>();
-                    for (ActorRef call : dialBranches) {
-                        future = (Future<Object>) ask(call, new GetCallInfo(), expires);
-                        object = Await.result(future, Duration.create(10, TimeUnit.SECONDS));
-                        klass = object.getClass();
-                        if (CallResponse.class.equals(klass)) {
-                            final CallResponse<CallInfo> callResponse = (CallResponse<CallInfo>) object;
-                            if (callResponse.succeeded()) {
-                                final CallInfo callInfo = callResponse.get();
-                                // Execute the call script.
-                                final String version = getApiVersion(data);
-                                final URI url = getUrl("Url", data);
-                                final String method = getMethod("Method", data);
-                                final URI fallbackUrl = getUrl("FallbackUrl", data);
-                                final String fallbackMethod = getMethod("FallbackMethod", data);
-                                final URI callback = getUrl("StatusCallback", data);
-                                final String callbackMethod = getMethod("StatusCallbackMethod", data);
-                                final ExecuteCallScript execute = new ExecuteCallScript(call, accountId, version, url, method,
-                                        fallbackUrl, fallbackMethod, callback, callbackMethod);
-                                callManager.tell(execute, null);
-                                cdrs.add(daos.getCallDetailRecordsDao().getCallDetailRecord(callInfo.sid()));
-                            }
-                        }
-                    }
-                    if (APPLICATION_XML_TYPE == responseType) {
-                        if (cdrs.size()==1) {
-                            return ok(xstream.toXML(cdrs.get(0)), APPLICATION_XML).build();
-                        } else {
-                            final RestCommResponse response = new RestCommResponse(new CallDetailRecordList(cdrs));
-                            return ok(xstream.toXML(response), APPLICATION_XML).build();
-                        }
-                    } else if (APPLICATION_JSON_TYPE == responseType) {
-                        if (cdrs.size()==1) {
-                            return ok(gson.toJson(cdrs.get(0)), APPLICATION_JSON).build();
-                        } else {
-                            return ok(gson.toJson(cdrs), APPLICATION_JSON).build();
-                        }
-                    } else {
-                        return null;
-                    }
-//                    if (APPLICATION_JSON_TYPE == responseType) {
-//                        return ok(gson.toJson(cdrs), APPLICATION_JSON).build();
-//                    } else if (APPLICATION_XML_TYPE == responseType) {
-//                        return ok(xstream.toXML(new RestCommResponse(cdrs)), APPLICATION_XML).build();
-//                    } else {
-//                        return null;
-//                    }
-                } else {
-                    return status(INTERNAL_SERVER_ERROR).entity(managerResponse.cause() + " : " + managerResponse.error()).build();
+            final Future<Object> future = ask(callManager, create, expires);
+            return requests.suspend(request, future, new AsyncRequests.Continuation() {
+                @Override
+                public Response resume(final Object reply) {
+                    return getCallsInfo(accountId, data, reply, expires, responseType);
                 }
-            }
-            return status(INTERNAL_SERVER_ERROR).build();
+            });
         } catch (final Exception exception) {
             return status(INTERNAL_SERVER_ERROR).entity(exception.getMessage()).build();
         }
     }
 
-    // Issue 139: https://bitbucket.org/telestax/telscale-restcomm/issue/139
+    // Asks the dial branches created by the call manager for their call info.
     @SuppressWarnings("unchecked")
+    private Response getCallsInfo(final Sid accountId, final MultivaluedMap<String, String> data, final Object object,
+            final Timeout expires, final MediaType responseType) {
+        if (CallManagerResponse.class.equals(object.getClass())) {
+            final CallManagerResponse<ActorRef> managerResponse = (CallManagerResponse<ActorRef>) object;
+            if (managerResponse.succeeded()) {
+                final List<ActorRef> dialBranches;
+                if (managerResponse.get() instanceof List) {
+                    dialBranches = (List<ActorRef>) managerResponse.get();
+                } else {
+                    dialBranches = new CopyOnWriteArrayList<ActorRef>();
+                    dialBranches.add(managerResponse.get());
+                }
+                final List<Future<Object>> futures = new ArrayList<Future<Object>>(dialBranches.size());
+                for (ActorRef call : dialBranches) {
+                    futures.add(ask(call, new GetCallInfo(), expires));
+                }
+                final ActorSystem system = (ActorSystem) context.getAttribute(ActorSystem.class.getName());
+                final Future<Iterable<Object>> future = Futures.sequence(futures, system.dispatcher());
+                return requests.suspend(request, future, new AsyncRequests.Continuation() {
+                    @Override
+                    public Response resume(final Object reply) {
+                        return executeCallScripts(accountId, data, dialBranches, (Iterable<Object>) reply, responseType);
+                    }
+                });
+            } else {
+                return status(INTERNAL_SERVER_ERROR).entity(managerResponse.cause() + " : " + managerResponse.error()).build();
+            }
+        }
+        return status(INTERNAL_SERVER_ERROR).build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Response executeCallScripts(final Sid accountId, final MultivaluedMap<String, String> data,
+            final List<ActorRef> dialBranches, final Iterable<Object> replies, final MediaType responseType) {
+        List<CallDetailRecord> cdrs = new CopyOnWriteArrayList<CallDetailRecord>();
+        final Iterator<ActorRef> calls = dialBranches.iterator();
+        for (Object object : replies) {
+            final ActorRef call = calls.next();
+            if (CallResponse.class.equals(object.getClass())) {
+                final CallResponse<CallInfo> callResponse = (CallResponse<CallInfo>) object;
+                if (callResponse.succeeded()) {
+                    final CallInfo callInfo = callResponse.get();
+                    // Execute the call script.
+                    final String version = getApiVersion(data);
+                    final URI url = getUrl("Url", data);
+                    final String method = getMethod("Method", data);
+                    final URI fallbackUrl = getUrl("FallbackUrl", data);
+                    final String fallbackMethod = getMethod("FallbackMethod", data);
+                    final URI callback = getUrl("StatusCallback", data);
+                    final String callbackMethod = getMethod("StatusCallbackMethod", data);
+                    final ExecuteCallScript execute = new ExecuteCallScript(call, accountId, version, url, method,
+                            fallbackUrl, fallbackMethod, callback, callbackMethod);
+                    callManager.tell(execute, null);
+                    cdrs.add(daos.getCallDetailRecordsDao().getCallDetailRecord(callInfo.sid()));
+                }
+            }
+        }
+        if (APPLICATION_XML_TYPE == responseType) {
+            if (cdrs.size()==1) {
+                return ok(xstream.toXML(cdrs.get(0)), APPLICATION_XML).build();
+            } else {
+                final RestCommResponse response = new RestCommResponse(new CallDetailRecordList(cdrs));
+                return ok(xstream.toXML(response), APPLICATION_XML).build();
+            }
+        } else if (APPLICATION_JSON_TYPE == responseType) {
+            if (cdrs.size()==1) {
+                return ok(gson.toJson(cdrs.get(0)), APPLICATION_JSON).build();
+            } else {
+                return ok(gson.toJson(cdrs), APPLICATION_JSON).build();
+            }
+        } else {
+            return null;
+        }
+    }
+
+    // Issue 139: https://bitbucket.org/telestax/telscale-restcomm/issue/139
     protected Response updateCall(final String sid, final String callSid, final MultivaluedMap<String, String> data, final MediaType responseType) {
+        if (requests.isResumed(request)) {
+            return requests.resume(request);
+        }
         final Sid accountSid = new Sid(sid);
         Account account = daos.getAccountsDao().getAccount(accountSid);
         secure(account, "RestComm:Modify:Calls");
 
-        final Timeout expires = new Timeout(Duration.create(60, TimeUnit.SECONDS));
+        final Timeout expires = requests.timeout(context);
 
         final CallDetailRecordsDao dao = daos.getCallDetailRecordsDao();
-        CallDetailRecord cdr = null;
+        final CallDetailRecord cdr;
         try {
             cdr = dao.getCallDetailRecord(new Sid(callSid));
 
@@ -408,6 +548,27 @@ public abstract class CallsEndpoint extends SecuredEndpoint {
             return status(BAD_REQUEST).build();
         }
 
+        final String callPath = cdr.getCallPath();
+        final Future<Object> future = ask(callManager, new GetCall(callPath), expires);
+        return requests.suspend(request, future, new AsyncRequests.Continuation() {
+            @Override
+            public Response resume(final Object reply) {
+                final ActorRef call = (ActorRef) reply;
+                final Future<Object> future = ask(call, new GetCallInfo(), expires);
+                return requests.suspend(request, future, new AsyncRequests.Continuation() {
+                    @SuppressWarnings("unchecked")
+                    @Override
+                    public Response resume(final Object reply) {
+                        final CallInfo callInfo = ((CallResponse<CallInfo>) reply).get();
+                        return updateCall(accountSid, cdr, call, callInfo, data, responseType);
+                    }
+                });
+            }
+        });
+    }
+
+    private Response updateCall(final Sid accountSid, final CallDetailRecord cdr, final ActorRef call,
+            final CallInfo callInfo, final MultivaluedMap<String, String> data, final MediaType responseType) {
         final String url = data.getFirst("Url");
         String method = data.getFirst("Method");
         final String status = data.getFirst("Status");
@@ -418,23 +579,6 @@ public abstract class CallsEndpoint extends SecuredEndpoint {
         //Restcomm-  Move connected call leg (if exists) to the new URL
         Boolean moveConnectedCallLeg = Boolean.valueOf(data.getFirst("MoveConnectedCallLeg"));
 
-        String callPath = null;
-        final ActorRef call;
-        final CallInfo callInfo;
-
-        try {
-            callPath = cdr.getCallPath();
-            Future<Object> future = (Future<Object>) ask(callManager, new GetCall(callPath), expires);
-            call = (ActorRef) Await.result(future, Duration.create(10, TimeUnit.SECONDS));
-
-            future = (Future<Object>) ask(call, new GetCallInfo(), expires);
-            CallResponse<CallInfo> response = (CallResponse<CallInfo>) Await.result(future,
-                    Duration.create(10, TimeUnit.SECONDS));
-            callInfo = response.get();
-        } catch (Exception exception) {
-            return status(INTERNAL_SERVER_ERROR).entity(exception.getMessage()).build();
-        }
-
         if (method == null)
             method = "POST";
 
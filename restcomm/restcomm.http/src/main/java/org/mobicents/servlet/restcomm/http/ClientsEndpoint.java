@@ -58,6 +58,20 @@ import org.mobicents.servlet.restcomm.util.StringUtils;
  */
 @NotThreadSafe
 public abstract class ClientsEndpoint extends SecuredEndpoint {
+    private static final Serializers serializers = new Serializers() {
+        @Override
+        protected void register(final XStream xstream, final Configuration configuration) {
+            xstream.registerConverter(new ClientConverter(configuration));
+            xstream.registerConverter(new ClientListConverter(configuration));
+            xstream.registerConverter(new RestCommResponseConverter(configuration));
+        }
+
+        @Override
+        protected void register(final GsonBuilder builder, final Configuration configuration) {
+            builder.registerTypeAdapter(Client.class, new ClientConverter(configuration));
+        }
+    };
+
     @Context
     protected ServletContext context;
     protected Configuration configuration;
@@ -78,16 +92,9 @@ public abstract class ClientsEndpoint extends SecuredEndpoint {
         configuration = (Configuration) context.getAttribute(Configuration.class.getName());
         configuration = configuration.subset("runtime-settings");
         super.init(configuration);
-        final ClientConverter converter = new ClientConverter(configuration);
-        final GsonBuilder builder = new GsonBuilder();
-        builder.registerTypeAdapter(Client.class, converter);
-        builder.setPrettyPrinting();
-        gson = builder.create();
-        xstream = new XStream();
-        xstream.alias("RestcommResponse", RestCommResponse.class);
-        xstream.registerConverter(converter);
-        xstream.registerConverter(new ClientListConverter(configuration));
-        xstream.registerConverter(new RestCommResponseConverter(configuration));
+        final Configuration settings = (Configuration) context.getAttribute(Configuration.class.getName());
+        xstream = serializers.getXStream(settings);
+        gson = serializers.getGson(settings);
     }
 
     private Client createFrom(final Sid accountSid, final MultivaluedMap<String, String> data) {
@@ -63,12 +63,25 @@ import com.thoughtworks.xstream.XStream;
  */
 @NotThreadSafe
 public abstract class ConferencesEndpoint extends SecuredEndpoint {
+    private static final Serializers serializers = new Serializers() {
+        @Override
+        protected void register(final XStream xstream, final Configuration configuration) {
+            xstream.registerConverter(new ConferenceDetailRecordConverter(configuration));
+            xstream.registerConverter(new ConferenceDetailRecordListConverter(configuration));
+        }
+
+        @Override
+        protected void register(final GsonBuilder builder, final Configuration configuration) {
+            builder.registerTypeAdapter(ConferenceDetailRecord.class, new ConferenceDetailRecordConverter(configuration));
+            builder.registerTypeAdapter(ConferenceDetailRecordList.class, new ConferenceDetailRecordListConverter(configuration));
+        }
+    };
+
     @Context
     protected ServletContext context;
     protected Configuration configuration;
     private DaoManager daoManager;
     private Gson gson;
-    private GsonBuilder builder;
     private XStream xstream;
     private ConferenceDetailRecordListConverter listConverter;
 
@@ -82,17 +95,10 @@ public abstract class ConferencesEndpoint extends SecuredEndpoint {
         configuration = configuration.subset("runtime-settings");
         daoManager = (DaoManager) context.getAttribute(DaoManager.class.getName());
         super.init(configuration);
-        ConferenceDetailRecordConverter converter = new ConferenceDetailRecordConverter(configuration);
+        final Configuration settings = (Configuration) context.getAttribute(Configuration.class.getName());
+        xstream = serializers.getXStream(settings);
+        gson = serializers.getGson(settings);
         listConverter = new ConferenceDetailRecordListConverter(configuration);
-        builder = new GsonBuilder();
-        builder.registerTypeAdapter(ConferenceDetailRecord.class, converter);
-        builder.registerTypeAdapter(ConferenceDetailRecordList.class, listConverter);
-        builder.setPrettyPrinting();
-        gson = builder.create();
-        xstream = new XStream();
-        xstream.alias("RestcommResponse", RestCommResponse.class);
-        xstream.registerConverter(converter);
-        xstream.registerConverter(listConverter);
     }
 
     protected Response getConference(final String accountSid, final String sid, final MediaType responseType) {
@@ -185,9 +191,9 @@ public abstract class ConferencesEndpoint extends SecuredEndpoint {
 
         if (APPLICATION_XML_TYPE == responseType) {
             final RestCommResponse response = new RestCommResponse(new ConferenceDetailRecordList(cdrs));
-            return ok(xstream.toXML(response), APPLICATION_XML).build();
+            return ok(Serializers.toXML(xstream, response, listConverter), APPLICATION_XML).build();
         } else if (APPLICATION_JSON_TYPE == responseType) {
-            return ok(gson.toJson(new ConferenceDetailRecordList(cdrs)), APPLICATION_JSON).build();
+            return ok(Serializers.toJson(gson, new ConferenceDetailRecordList(cdrs), listConverter), APPLICATION_JSON).build();
         } else {
             return null;
         }
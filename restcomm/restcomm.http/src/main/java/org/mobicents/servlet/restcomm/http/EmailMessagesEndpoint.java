@@ -43,6 +43,19 @@ import org.mobicents.servlet.restcomm.patterns.StopObserving;
  *  @author lefty .liblefty@telestax.com (Lefteris Banos)
  */
 public class EmailMessagesEndpoint extends SecuredEndpoint {
+    private static final Serializers serializers = new Serializers() {
+        @Override
+        protected void register(final XStream xstream, final Configuration configuration) {
+            xstream.registerConverter(new EmailMessageConverter(configuration));
+            xstream.registerConverter(new RestCommResponseConverter(configuration));
+        }
+
+        @Override
+        protected void register(final GsonBuilder builder, final Configuration configuration) {
+            builder.registerTypeAdapter(Mail.class, new EmailMessageConverter(configuration));
+        }
+    };
+
     private static Logger logger = Logger.getLogger(EmailMessagesEndpoint.class);
     @Context
     protected ServletContext context;
@@ -70,15 +83,9 @@ public class EmailMessagesEndpoint extends SecuredEndpoint {
         accountsDao = storage.getAccountsDao();
         system = (ActorSystem) context.getAttribute(ActorSystem.class.getName());
         super.init(configuration);
-        final EmailMessageConverter converter = new EmailMessageConverter(configuration);
-        final GsonBuilder builder = new GsonBuilder();
-        builder.registerTypeAdapter(Mail.class, converter);
-        builder.setPrettyPrinting();
-        gson = builder.create();
-        xstream = new XStream();
-        xstream.alias("RestcommResponse", RestCommResponse.class);
-        xstream.registerConverter(converter);
-        xstream.registerConverter(new RestCommResponseConverter(configuration));
+        final Configuration settings = (Configuration) context.getAttribute(Configuration.class.getName());
+        xstream = serializers.getXStream(settings);
+        gson = serializers.getGson(settings);
     }
 
     private void normalize(final MultivaluedMap<String, String> data) throws IllegalArgumentException {
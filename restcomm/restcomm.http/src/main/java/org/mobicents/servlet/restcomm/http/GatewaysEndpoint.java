@@ -41,6 +41,20 @@ import com.thoughtworks.xstream.XStream;
 
 @ThreadSafe
 public class GatewaysEndpoint extends SecuredEndpoint {
+    private static final Serializers serializers = new Serializers() {
+        @Override
+        protected void register(final XStream xstream, final Configuration configuration) {
+            xstream.registerConverter(new GatewayConverter(configuration));
+            xstream.registerConverter(new GatewayListConverter(configuration));
+            xstream.registerConverter(new RestCommResponseConverter(configuration));
+        }
+
+        @Override
+        protected void register(final GsonBuilder builder, final Configuration configuration) {
+            builder.registerTypeAdapter(Gateway.class, new GatewayConverter(configuration));
+        }
+    };
+
     @Context
     protected ServletContext context;
     protected Configuration configuration;
@@ -60,16 +74,9 @@ public class GatewaysEndpoint extends SecuredEndpoint {
         configuration = configuration.subset("runtime-settings");
         super.init(configuration);
         dao = storage.getGatewaysDao();
-        final GatewayConverter converter = new GatewayConverter(configuration);
-        final GsonBuilder builder = new GsonBuilder();
-        builder.registerTypeAdapter(Gateway.class, converter);
-        builder.setPrettyPrinting();
-        gson = builder.create();
-        xstream = new XStream();
-        xstream.alias("RestcommResponse", RestCommResponse.class);
-        xstream.registerConverter(converter);
-        xstream.registerConverter(new GatewayListConverter(configuration));
-        xstream.registerConverter(new RestCommResponseConverter(configuration));
+        final Configuration settings = (Configuration) context.getAttribute(Configuration.class.getName());
+        xstream = serializers.getXStream(settings);
+        gson = serializers.getGson(settings);
         proxyManager = (ActorRef) context.getAttribute("org.mobicents.servlet.restcomm.telephony.proxy.ProxyManager");
     }
 
@@ -46,6 +46,7 @@ import org.apache.commons.configuration.Configuration;
 import org.joda.time.DateTime;
 import org.mobicents.servlet.restcomm.annotations.concurrency.NotThreadSafe;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.dao.RoutingCache;
 import org.mobicents.servlet.restcomm.dao.IncomingPhoneNumbersDao;
 import org.mobicents.servlet.restcomm.entities.IncomingPhoneNumber;
 import org.mobicents.servlet.restcomm.entities.IncomingPhoneNumberFilter;
@@ -82,11 +83,28 @@ import com.thoughtworks.xstream.XStream;
  */
 @NotThreadSafe
 public abstract class IncomingPhoneNumbersEndpoint extends SecuredEndpoint {
+    private static final Serializers serializers = new Serializers() {
+        @Override
+        protected void register(final XStream xstream, final Configuration configuration) {
+            xstream.registerConverter(new IncomingPhoneNumberConverter(configuration));
+            xstream.registerConverter(new IncomingPhoneNumberListConverter(configuration));
+            xstream.registerConverter(new AvailableCountriesConverter(configuration));
+            xstream.registerConverter(new RestCommResponseConverter(configuration));
+        }
+
+        @Override
+        protected void register(final GsonBuilder builder, final Configuration configuration) {
+            builder.serializeNulls();
+            builder.registerTypeAdapter(IncomingPhoneNumber.class, new IncomingPhoneNumberConverter(configuration));
+        }
+    };
+
     @Context
     protected ServletContext context;
     protected PhoneNumberProvisioningManager phoneNumberProvisioningManager;
     PhoneNumberParameters phoneNumberParameters;
     private IncomingPhoneNumbersDao dao;
+    private RoutingCache routingCache;
     private XStream xstream;
     protected Gson gson;
 
@@ -101,6 +119,7 @@ public abstract class IncomingPhoneNumbersEndpoint extends SecuredEndpoint {
         super.init(configuration.subset("runtime-settings"));
         dao = storage.getIncomingPhoneNumbersDao();
         accountsDao = storage.getAccountsDao();
+        routingCache = storage.getRoutingCache();
 
         phoneNumberProvisioningManager = (PhoneNumberProvisioningManager) context.getAttribute("PhoneNumberProvisioningManager");
         if(phoneNumberProvisioningManager == null) {
@@ -125,18 +144,9 @@ public abstract class IncomingPhoneNumbersEndpoint extends SecuredEndpoint {
                 callbackUrlsConfiguration.getString("ussd[@url]"),
                 callbackUrlsConfiguration.getString("ussd[@method]"));
 
-        final IncomingPhoneNumberConverter converter = new IncomingPhoneNumberConverter(configuration);
-        final GsonBuilder builder = new GsonBuilder();
-        builder.serializeNulls();
-        builder.registerTypeAdapter(IncomingPhoneNumber.class, converter);
-        builder.setPrettyPrinting();
-        gson = builder.create();
-        xstream = new XStream();
-        xstream.alias("RestcommResponse", RestCommResponse.class);
-        xstream.registerConverter(converter);
-        xstream.registerConverter(new IncomingPhoneNumberListConverter(configuration));
-        xstream.registerConverter(new AvailableCountriesConverter(configuration));
-        xstream.registerConverter(new RestCommResponseConverter(configuration));
+        final Configuration settings = (Configuration) context.getAttribute(Configuration.class.getName());
+        xstream = serializers.getXStream(settings);
+        gson = serializers.getGson(settings);
     }
 
     private IncomingPhoneNumber createFrom(final Sid accountSid, final MultivaluedMap<String, String> data) {
@@ -306,6 +316,7 @@ public abstract class IncomingPhoneNumbersEndpoint extends SecuredEndpoint {
                     incomingPhoneNumber.setPhoneNumber(phoneNumber.getPhoneNumber());
                 }
                 dao.addIncomingPhoneNumber(incomingPhoneNumber);
+                routingCache.invalidate();
                 if (APPLICATION_JSON_TYPE == responseType) {
                     return ok(gson.toJson(incomingPhoneNumber), APPLICATION_JSON).build();
                 } else if (APPLICATION_XML_TYPE == responseType) {
@@ -329,6 +340,7 @@ public abstract class IncomingPhoneNumbersEndpoint extends SecuredEndpoint {
         }
         if(updated) {
             dao.updateIncomingPhoneNumber(update(incomingPhoneNumber, data));
+            routingCache.invalidate();
             if (APPLICATION_JSON_TYPE == responseType) {
                 return ok(gson.toJson(incomingPhoneNumber), APPLICATION_JSON).build();
             } else if (APPLICATION_XML_TYPE == responseType) {
@@ -461,6 +473,7 @@ public abstract class IncomingPhoneNumbersEndpoint extends SecuredEndpoint {
             phoneNumberProvisioningManager.cancelNumber(convertIncomingPhoneNumbertoPhoneNumber(incomingPhoneNumber));
         }
         dao.removeIncomingPhoneNumber(new Sid(sid));
+        routingCache.invalidate();
         return noContent().build();
     }
 
@@ -26,11 +26,8 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
 import static javax.ws.rs.core.MediaType.APPLICATION_XML;
 import static javax.ws.rs.core.MediaType.APPLICATION_XML_TYPE;
 import static javax.ws.rs.core.Response.ok;
-import static javax.ws.rs.core.Response.status;
-import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
 
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
 import javax.servlet.ServletContext;
@@ -46,11 +43,8 @@ import org.mobicents.servlet.restcomm.telephony.GetActiveProxy;
 import org.mobicents.servlet.restcomm.telephony.GetProxies;
 import org.mobicents.servlet.restcomm.telephony.SwitchProxy;
 
-import scala.concurrent.Await;
 import scala.concurrent.Future;
-import scala.concurrent.duration.Duration;
 import akka.actor.ActorRef;
-import akka.util.Timeout;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -61,13 +55,23 @@ import com.thoughtworks.xstream.XStream;
  *
  */
 public class OutboundProxyEndpoint extends SecuredEndpoint {
+    private static final Serializers serializers = new Serializers() {
+        @Override
+        protected void register(final XStream xstream, final Configuration configuration) {
+            xstream.registerConverter(new RestCommResponseConverter(configuration));
+        }
+
+        @Override
+        protected void register(final GsonBuilder builder, final Configuration configuration) {
+        }
+    };
+    private static final AsyncRequests requests = new AsyncRequests("outbound-proxy");
 
     @Context
     protected ServletContext context;
     protected Configuration configuration;
     private ActorRef callManager;
     private Gson gson;
-    private GsonBuilder builder;
     private XStream xstream;
 
     public OutboundProxyEndpoint() {
@@ -80,78 +84,64 @@ public class OutboundProxyEndpoint extends SecuredEndpoint {
         configuration = configuration.subset("runtime-settings");
         callManager = (ActorRef) context.getAttribute("org.mobicents.servlet.restcomm.telephony.CallManager");
         super.init(configuration);
-        builder = new GsonBuilder();
-        builder.setPrettyPrinting();
-        gson = builder.create();
-        xstream = new XStream();
-        xstream.alias("RestcommResponse", RestCommResponse.class);
-        xstream.registerConverter(new RestCommResponseConverter(configuration));
+        final Configuration settings = (Configuration) context.getAttribute(Configuration.class.getName());
+        xstream = serializers.getXStream(settings);
+        gson = serializers.getGson(settings);
     }
 
     protected Response getProxies(final String accountSid, final MediaType responseType) {
-        secure(accountsDao.getAccount(accountSid), "RestComm:Read:OutboundProxies");
-
-        Map<String, String> proxies;
-
-        final Timeout expires = new Timeout(Duration.create(60, TimeUnit.SECONDS));
-        try {
-            Future<Object> future = (Future<Object>) ask(callManager, new GetProxies(), expires);
-            proxies = (Map<String, String>) Await.result(future, Duration.create(10, TimeUnit.SECONDS));
-        } catch (Exception exception) {
-            return status(INTERNAL_SERVER_ERROR).entity(exception.getMessage()).build();
+        if (requests.isResumed(request)) {
+            return requests.resume(request);
         }
+        secure(accountsDao.getAccount(accountSid), "RestComm:Read:OutboundProxies");
 
-        if (APPLICATION_XML_TYPE == responseType) {
-            final RestCommResponse response = new RestCommResponse(proxies);
-            return ok(xstream.toXML(response), APPLICATION_XML).build();
-        } else if (APPLICATION_JSON_TYPE == responseType) {
-            return ok(gson.toJson(proxies), APPLICATION_JSON).build();
-        } else {
-            return null;
-        }
+        final Future<Object> future = ask(callManager, new GetProxies(), requests.timeout(context));
+        return requests.suspend(request, future, new AsyncRequests.Continuation() {
+            @Override
+            public Response resume(final Object reply) {
+                return toResponse(reply, responseType);
+            }
+        });
     }
 
     protected Response switchProxy(final String accountSid, final MediaType responseType) {
-        secure(accountsDao.getAccount(accountSid), "RestComm:Read:OutboundProxies");
-
-        Map<String, String> proxyAfterSwitch;
-
-        final Timeout expires = new Timeout(Duration.create(60, TimeUnit.SECONDS));
-        try {
-            Future<Object> future = (Future<Object>) ask(callManager, new SwitchProxy(new Sid(accountSid)), expires);
-            proxyAfterSwitch = (Map<String, String>) Await.result(future, Duration.create(10, TimeUnit.SECONDS));
-        } catch (Exception exception) {
-            return status(INTERNAL_SERVER_ERROR).entity(exception.getMessage()).build();
+        if (requests.isResumed(request)) {
+            return requests.resume(request);
         }
+        secure(accountsDao.getAccount(accountSid), "RestComm:Read:OutboundProxies");
 
-        if (APPLICATION_XML_TYPE == responseType) {
-            final RestCommResponse response = new RestCommResponse(proxyAfterSwitch);
-            return ok(xstream.toXML(response), APPLICATION_XML).build();
-        } else if (APPLICATION_JSON_TYPE == responseType) {
-            return ok(gson.toJson(proxyAfterSwitch), APPLICATION_JSON).build();
-        } else {
-            return null;
-        }
+        final Future<Object> future = ask(callManager, new SwitchProxy(new Sid(accountSid)), requests.timeout(context));
+        return requests.suspend(request, future, new AsyncRequests.Continuation() {
+            @Override
+            public Response resume(final Object reply) {
+                return toResponse(reply, responseType);
+            }
+        });
     }
 
     protected Response getActiveProxy(final String accountSid, final MediaType responseType) {
+        if (requests.isResumed(request)) {
+            return requests.resume(request);
+        }
         secure(accountsDao.getAccount(accountSid), "RestComm:Read:OutboundProxies");
 
-        Map<String, String> activeProxy;
-
-        final Timeout expires = new Timeout(Duration.create(60, TimeUnit.SECONDS));
-        try {
-            Future<Object> future = (Future<Object>) ask(callManager, new GetActiveProxy(), expires);
-            activeProxy = (Map<String, String>) Await.result(future, Duration.create(10, TimeUnit.SECONDS));
-        } catch (Exception exception) {
-            return status(INTERNAL_SERVER_ERROR).entity(exception.getMessage()).build();
-        }
+        final Future<Object> future = ask(callManager, new GetActiveProxy(), requests.timeout(context));
+        return requests.suspend(request, future, new AsyncRequests.Continuation() {
+            @Override
+            public Response resume(final Object reply) {
+                return toResponse(reply, responseType);
+            }
+        });
+    }
 
+    @SuppressWarnings("unchecked")
+    private Response toResponse(final Object reply, final MediaType responseType) {
+        final Map<String, String> proxies = (Map<String, String>) reply;
         if (APPLICATION_XML_TYPE == responseType) {
-            final RestCommResponse response = new RestCommResponse(activeProxy);
+            final RestCommResponse response = new RestCommResponse(proxies);
             return ok(xstream.toXML(response), APPLICATION_XML).build();
         } else if (APPLICATION_JSON_TYPE == responseType) {
-            return ok(gson.toJson(activeProxy), APPLICATION_JSON).build();
+            return ok(gson.toJson(proxies), APPLICATION_JSON).build();
         } else {
             return null;
         }
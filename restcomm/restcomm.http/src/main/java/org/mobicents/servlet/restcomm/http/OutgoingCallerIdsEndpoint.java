@@ -63,6 +63,20 @@ import org.mobicents.servlet.restcomm.util.StringUtils;
  */
 @NotThreadSafe
 public abstract class OutgoingCallerIdsEndpoint extends SecuredEndpoint {
+    private static final Serializers serializers = new Serializers() {
+        @Override
+        protected void register(final XStream xstream, final Configuration configuration) {
+            xstream.registerConverter(new OutgoingCallerIdConverter(configuration));
+            xstream.registerConverter(new OutgoingCallerIdListConverter(configuration));
+            xstream.registerConverter(new RestCommResponseConverter(configuration));
+        }
+
+        @Override
+        protected void register(final GsonBuilder builder, final Configuration configuration) {
+            builder.registerTypeAdapter(OutgoingCallerId.class, new OutgoingCallerIdConverter(configuration));
+        }
+    };
+
     @Context
     protected ServletContext context;
     protected Configuration configuration;
@@ -81,16 +95,9 @@ public abstract class OutgoingCallerIdsEndpoint extends SecuredEndpoint {
         configuration = configuration.subset("runtime-settings");
         super.init(configuration);
         dao = storage.getOutgoingCallerIdsDao();
-        final OutgoingCallerIdConverter converter = new OutgoingCallerIdConverter(configuration);
-        final GsonBuilder builder = new GsonBuilder();
-        builder.registerTypeAdapter(OutgoingCallerId.class, converter);
-        builder.setPrettyPrinting();
-        gson = builder.create();
-        xstream = new XStream();
-        xstream.alias("RestcommResponse", RestCommResponse.class);
-        xstream.registerConverter(converter);
-        xstream.registerConverter(new OutgoingCallerIdListConverter(configuration));
-        xstream.registerConverter(new RestCommResponseConverter(configuration));
+        final Configuration settings = (Configuration) context.getAttribute(Configuration.class.getName());
+        xstream = serializers.getXStream(settings);
+        gson = serializers.getGson(settings);
     }
 
     private OutgoingCallerId createFrom(final Sid accountSid, final MultivaluedMap<String, String> data) {
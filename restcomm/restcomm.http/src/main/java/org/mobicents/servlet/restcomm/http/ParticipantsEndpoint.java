@@ -27,14 +27,12 @@ import static javax.ws.rs.core.MediaType.APPLICATION_XML_TYPE;
 import static javax.ws.rs.core.Response.ok;
 import static javax.ws.rs.core.Response.status;
 import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
-import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
 import static javax.ws.rs.core.Response.Status.NOT_ACCEPTABLE;
 import static javax.ws.rs.core.Response.Status.NOT_FOUND;
 import static javax.ws.rs.core.Response.Status.UNAUTHORIZED;
 
 import java.text.ParseException;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
 import javax.servlet.ServletContext;
@@ -72,9 +70,7 @@ import org.mobicents.servlet.restcomm.telephony.GetCallInfo;
 import org.mobicents.servlet.restcomm.mscontrol.messages.Mute;
 import org.mobicents.servlet.restcomm.mscontrol.messages.Unmute;
 
-import scala.concurrent.Await;
 import scala.concurrent.Future;
-import scala.concurrent.duration.Duration;
 import akka.actor.ActorRef;
 import akka.util.Timeout;
 
@@ -87,13 +83,31 @@ import com.thoughtworks.xstream.XStream;
  */
 @NotThreadSafe
 public abstract class ParticipantsEndpoint extends SecuredEndpoint {
+    private static final Serializers serializers = new Serializers() {
+        @Override
+        protected void register(final XStream xstream, final Configuration configuration) {
+            xstream.registerConverter(new ConferenceParticipantConverter(configuration));
+            xstream.registerConverter(new RecordingConverter(configuration));
+            xstream.registerConverter(new RecordingListConverter(configuration));
+            xstream.registerConverter(new RestCommResponseConverter(configuration));
+            xstream.registerConverter(new CallDetailRecordListConverter(configuration));
+        }
+
+        @Override
+        protected void register(final GsonBuilder builder, final Configuration configuration) {
+            builder.registerTypeAdapter(CallDetailRecord.class, new ConferenceParticipantConverter(configuration));
+            builder.registerTypeAdapter(CallDetailRecordList.class, new CallDetailRecordListConverter(configuration));
+            builder.registerTypeAdapter(Recording.class, new RecordingConverter(configuration));
+        }
+    };
+    private static final AsyncRequests requests = new AsyncRequests("participants");
+
     @Context
     protected ServletContext context;
     protected Configuration configuration;
     protected ActorRef callManager;
     protected DaoManager daos;
     protected Gson gson;
-    protected GsonBuilder builder;
     protected XStream xstream;
     protected CallDetailRecordListConverter listConverter;
     protected AccountsDao accountsDao;
@@ -113,22 +127,10 @@ public abstract class ParticipantsEndpoint extends SecuredEndpoint {
         accountsDao = daos.getAccountsDao();
         recordingsDao = daos.getRecordingsDao();
         super.init(configuration);
-        ConferenceParticipantConverter converter = new ConferenceParticipantConverter(configuration);
+        final Configuration settings = (Configuration) context.getAttribute(Configuration.class.getName());
+        xstream = serializers.getXStream(settings);
+        gson = serializers.getGson(settings);
         listConverter = new CallDetailRecordListConverter(configuration);
-        final RecordingConverter recordingConverter = new RecordingConverter(configuration);
-        builder = new GsonBuilder();
-        builder.registerTypeAdapter(CallDetailRecord.class, converter);
-        builder.registerTypeAdapter(CallDetailRecordList.class, listConverter);
-        builder.registerTypeAdapter(Recording.class, recordingConverter);
-        builder.setPrettyPrinting();
-        gson = builder.create();
-        xstream = new XStream();
-        xstream.alias("RestcommResponse", RestCommResponse.class);
-        xstream.registerConverter(converter);
-        xstream.registerConverter(recordingConverter);
-        xstream.registerConverter(new RecordingListConverter(configuration));
-        xstream.registerConverter(new RestCommResponseConverter(configuration));
-        xstream.registerConverter(listConverter);
 
         instanceId = RestcommConfiguration.getInstance().getMain().getInstanceId();
     }
@@ -238,16 +240,18 @@ public abstract class ParticipantsEndpoint extends SecuredEndpoint {
 
         if (APPLICATION_XML_TYPE == responseType) {
             final RestCommResponse response = new RestCommResponse(new CallDetailRecordList(cdrs));
-            return ok(xstream.toXML(response), APPLICATION_XML).build();
+            return ok(Serializers.toXML(xstream, response, listConverter), APPLICATION_XML).build();
         } else if (APPLICATION_JSON_TYPE == responseType) {
-            return ok(gson.toJson(new CallDetailRecordList(cdrs)), APPLICATION_JSON).build();
+            return ok(Serializers.toJson(gson, new CallDetailRecordList(cdrs), listConverter), APPLICATION_JSON).build();
         } else {
             return null;
         }
     }
 
-    @SuppressWarnings("unchecked")
     protected Response updateCall(final String sid, final String callSid, final MultivaluedMap<String, String> data, final MediaType responseType) {
+        if (requests.isResumed(request)) {
+            return requests.resume(request);
+        }
         final Sid accountSid = new Sid(sid);
         Account account = daos.getAccountsDao().getAccount(accountSid);
         try {
@@ -256,9 +260,9 @@ public abstract class ParticipantsEndpoint extends SecuredEndpoint {
             return status(UNAUTHORIZED).build();
         }
 
-        final Timeout expires = new Timeout(Duration.create(60, TimeUnit.SECONDS));
+        final Timeout expires = requests.timeout(context);
         final CallDetailRecordsDao dao = daos.getCallDetailRecordsDao();
-        CallDetailRecord cdr = null;
+        final CallDetailRecord cdr;
         try {
             cdr = dao.getCallDetailRecord(new Sid(callSid));
 
@@ -279,38 +283,47 @@ public abstract class ParticipantsEndpoint extends SecuredEndpoint {
         // Mute/UnMute call
         if (mutedStr != null) {
 
-            boolean muted = Boolean.parseBoolean(mutedStr);
-            String callPath = null;
-            final ActorRef call;
-            final CallInfo callInfo;
-
-            try {
-                callPath = cdr.getCallPath();
-                Future<Object> future = (Future<Object>) ask(callManager, new GetCall(callPath), expires);
-                call = (ActorRef) Await.result(future, Duration.create(100000, TimeUnit.SECONDS));
-
-                future = (Future<Object>) ask(call, new GetCallInfo(), expires);
-                CallResponse<CallInfo> response = (CallResponse<CallInfo>) Await.result(future,
-                        Duration.create(100000, TimeUnit.SECONDS));
-                callInfo = response.get();
+            final boolean muted = Boolean.parseBoolean(mutedStr);
+            final String callPath = cdr.getCallPath();
+            final Future<Object> future = ask(callManager, new GetCall(callPath), expires);
+            return requests.suspend(request, future, new AsyncRequests.Continuation() {
+                @Override
+                public Response resume(final Object reply) {
+                    final ActorRef call = (ActorRef) reply;
+                    final Future<Object> future = ask(call, new GetCallInfo(), expires);
+                    return requests.suspend(request, future, new AsyncRequests.Continuation() {
+                        @SuppressWarnings("unchecked")
+                        @Override
+                        public Response resume(final Object reply) {
+                            final CallInfo callInfo = ((CallResponse<CallInfo>) reply).get();
+                            return mute(cdr, call, callInfo, muted, responseType);
+                        }
+                    });
+                }
+            });
+        }
+        return toResponse(cdr, responseType);
+    }
 
-            } catch (Exception exception) {
-                return status(INTERNAL_SERVER_ERROR).entity(exception.getMessage()).build();
-            }
-            if (callInfo.state().name().equalsIgnoreCase("IN_PROGRESS")){
-                if (muted) {
-                    if (call != null) {
-                        call.tell(new Mute(), call);
-                    }
-                } else {
-                    if (call != null) {
-                        call.tell(new Unmute(), call);
-                    }
+    private Response mute(CallDetailRecord cdr, final ActorRef call, final CallInfo callInfo, final boolean muted,
+            final MediaType responseType) {
+        if (callInfo.state().name().equalsIgnoreCase("IN_PROGRESS")){
+            if (muted) {
+                if (call != null) {
+                    call.tell(new Mute(), call);
+                }
+            } else {
+                if (call != null) {
+                    call.tell(new Unmute(), call);
                 }
-                cdr = cdr.setMuted(muted);
-                dao.updateCallDetailRecord(cdr);
             }
+            cdr = cdr.setMuted(muted);
+            daos.getCallDetailRecordsDao().updateCallDetailRecord(cdr);
         }
+        return toResponse(cdr, responseType);
+    }
+
+    private Response toResponse(final CallDetailRecord cdr, final MediaType responseType) {
         if (APPLICATION_JSON_TYPE == responseType) {
             return ok(gson.toJson(cdr), APPLICATION_JSON).build();
         } else if (APPLICATION_XML_TYPE == responseType) {
@@ -319,4 +332,4 @@ public abstract class ParticipantsEndpoint extends SecuredEndpoint {
             return null;
         }
     }
-}
\ No newline at end of file
+}
@@ -23,6 +23,7 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.thoughtworks.xstream.XStream;
 
+import java.util.Collections;
 import java.util.List;
 
 import static javax.ws.rs.core.MediaType.*;
@@ -39,6 +40,7 @@ import static javax.ws.rs.core.Response.Status.*;
 import org.apache.commons.configuration.Configuration;
 import org.mobicents.servlet.restcomm.annotations.concurrency.NotThreadSafe;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.dao.RecordHandler;
 import org.mobicents.servlet.restcomm.dao.RecordingsDao;
 import org.mobicents.servlet.restcomm.entities.Recording;
 import org.mobicents.servlet.restcomm.entities.RecordingList;
@@ -54,6 +56,20 @@ import org.mobicents.servlet.restcomm.http.converter.RestCommResponseConverter;
  */
 @NotThreadSafe
 public abstract class RecordingsEndpoint extends SecuredEndpoint {
+    private static final Serializers serializers = new Serializers() {
+        @Override
+        protected void register(final XStream xstream, final Configuration configuration) {
+            xstream.registerConverter(new RecordingConverter(configuration));
+            xstream.registerConverter(new RecordingListConverter(configuration));
+            xstream.registerConverter(new RestCommResponseConverter(configuration));
+        }
+
+        @Override
+        protected void register(final GsonBuilder builder, final Configuration configuration) {
+            builder.registerTypeAdapter(Recording.class, new RecordingConverter(configuration));
+        }
+    };
+
     @Context
     protected ServletContext context;
     protected Configuration configuration;
@@ -72,16 +88,9 @@ public abstract class RecordingsEndpoint extends SecuredEndpoint {
         configuration = configuration.subset("runtime-settings");
         super.init(configuration);
         dao = storage.getRecordingsDao();
-        final RecordingConverter converter = new RecordingConverter(configuration);
-        final GsonBuilder builder = new GsonBuilder();
-        builder.registerTypeAdapter(Recording.class, converter);
-        builder.setPrettyPrinting();
-        gson = builder.create();
-        xstream = new XStream();
-        xstream.alias("RestcommResponse", RestCommResponse.class);
-        xstream.registerConverter(converter);
-        xstream.registerConverter(new RecordingListConverter(configuration));
-        xstream.registerConverter(new RestCommResponseConverter(configuration));
+        final Configuration settings = (Configuration) context.getAttribute(Configuration.class.getName());
+        xstream = serializers.getXStream(settings);
+        gson = serializers.getGson(settings);
     }
 
     protected Response getRecording(final String accountSid, final String sid, final MediaType responseType) {
@@ -105,12 +114,22 @@ public abstract class RecordingsEndpoint extends SecuredEndpoint {
 
     protected Response getRecordings(final String accountSid, final MediaType responseType) {
         secure(accountsDao.getAccount(accountSid), "RestComm:Read:Recordings");
-        final List<Recording> recordings = dao.getRecordings(new Sid(accountSid));
+        final Sid sid = new Sid(accountSid);
+        // Write the recordings as they are read instead of building the whole document first.
         if (APPLICATION_JSON_TYPE == responseType) {
-            return ok(gson.toJson(recordings), APPLICATION_JSON).build();
+            return ok(new StreamingListOutput<Recording>(gson, Recording.class, null) {
+                @Override
+                protected void read(final RecordHandler<Recording> handler) {
+                    dao.getRecordings(sid, handler);
+                }
+            }, APPLICATION_JSON).build();
         } else if (APPLICATION_XML_TYPE == responseType) {
-            final RestCommResponse response = new RestCommResponse(new RecordingList(recordings));
-            return ok(xstream.toXML(response), APPLICATION_XML).build();
+            return ok(new StreamingListOutput<Recording>(xstream, "Recordings", Collections.<String, String> emptyMap()) {
+                @Override
+                protected void read(final RecordHandler<Recording> handler) {
+                    dao.getRecordings(sid, handler);
+                }
+            }, APPLICATION_XML).build();
         } else {
             return null;
         }
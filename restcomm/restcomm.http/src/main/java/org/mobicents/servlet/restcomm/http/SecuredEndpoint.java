@@ -259,8 +259,8 @@ public abstract class SecuredEndpoint extends AbstractEndpoint {
             operatedAccountSid = operatedAccount.getSid().toString();
 
         if (!operatingAccountSid.equals(operatedAccountSid)) {
-            Account account = accountsDao.getAccount(new Sid(operatedAccountSid));
-            if (!operatingAccountSid.equals(String.valueOf(account.getAccountSid()))) {
+            // The operated account was just looked up by the endpoint, no need to read its parent again.
+            if (!operatingAccountSid.equals(String.valueOf(operatedAccount.getAccountSid()))) {
                 return AuthOutcome.FAILED;
             } else if (resourceAccountSid != null && !operatedAccountSid.equals(resourceAccountSid)) {
                 return AuthOutcome.FAILED;
@@ -0,0 +1,152 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http;
+
+import java.io.StringWriter;
+import java.lang.reflect.Type;
+
+import org.apache.commons.configuration.Configuration;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.entities.RestCommResponse;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.ConverterLookup;
+import com.thoughtworks.xstream.core.ReferenceByXPathMarshaller;
+import com.thoughtworks.xstream.core.ReferenceByXPathMarshallingStrategy;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.io.xml.PrettyPrintWriter;
+
+/**
+ * The XStream and Gson instances of an endpoint, built with its converters by the first request and shared by all the
+ * requests after that. The JAX-RS resources are created for every request and building XStream and its converters
+ * used to cost more than serializing the response. The converters get the <code>runtime-settings</code> of the
+ * configuration and are built again if the servlet context configuration is replaced.
+ * <p>
+ * The shared instances must not be modified once built. Converters holding the paging of a request are applied on top
+ * of them with {@link #toXML(XStream, Object, Converter)} and {@link #toJson(Gson, Object, JsonSerializer)}.
+ */
+@ThreadSafe
+public abstract class Serializers {
+    private volatile Instances instances;
+
+    public Serializers() {
+        super();
+    }
+
+    /**
+     * Registers the converters of the endpoint, the RestcommResponse alias is already set.
+     */
+    protected abstract void register(XStream xstream, Configuration configuration);
+
+    /**
+     * Registers the type adapters of the endpoint, pretty printing is already set.
+     */
+    protected abstract void register(GsonBuilder builder, Configuration configuration);
+
+    /**
+     * @param configuration the RestComm configuration of the servlet context.
+     */
+    public XStream getXStream(final Configuration configuration) {
+        return instances(configuration).xstream;
+    }
+
+    /**
+     * @param configuration the RestComm configuration of the servlet context.
+     */
+    public Gson getGson(final Configuration configuration) {
+        return instances(configuration).gson;
+    }
+
+    // Two requests racing on the first build both build the instances, one of them is kept.
+    private Instances instances(final Configuration configuration) {
+        Instances result = instances;
+        if (result == null || result.configuration != configuration) {
+            result = new Instances(configuration);
+            instances = result;
+        }
+        return result;
+    }
+
+    /**
+     * Marshals the object like XStream.toXML() using the given converter ahead of the ones registered.
+     */
+    public static String toXML(final XStream xstream, final Object object, final Converter converter) {
+        final ConverterLookup lookup = new ConverterLookup() {
+            @SuppressWarnings("rawtypes")
+            @Override
+            public Converter lookupConverterForType(final Class type) {
+                if (converter.canConvert(type)) {
+                    return converter;
+                }
+                return xstream.getConverterLookup().lookupConverterForType(type);
+            }
+        };
+        final StringWriter buffer = new StringWriter();
+        final HierarchicalStreamWriter writer = new PrettyPrintWriter(buffer);
+        new ReferenceByXPathMarshaller(writer, lookup, xstream.getMapper(), ReferenceByXPathMarshallingStrategy.RELATIVE)
+                .start(object, null);
+        writer.flush();
+        return buffer.toString();
+    }
+
+    /**
+     * Serializes the object like Gson.toJson() with the given serializer, the objects it serializes in turn go through
+     * the type adapters of the Gson instance.
+     */
+    public static <T> String toJson(final Gson gson, final T object, final JsonSerializer<T> serializer) {
+        final JsonSerializationContext context = new JsonSerializationContext() {
+            @Override
+            public JsonElement serialize(final Object src) {
+                return gson.toJsonTree(src);
+            }
+
+            @Override
+            public JsonElement serialize(final Object src, final Type type) {
+                return gson.toJsonTree(src, type);
+            }
+        };
+        return gson.toJson(serializer.serialize(object, object.getClass(), context));
+    }
+
+    private final class Instances {
+        private final Configuration configuration;
+        private final XStream xstream;
+        private final Gson gson;
+
+        private Instances(final Configuration configuration) {
+            super();
+            this.configuration = configuration;
+            final Configuration runtime = configuration.subset("runtime-settings");
+            xstream = new XStream();
+            xstream.alias("RestcommResponse", RestCommResponse.class);
+            register(xstream, runtime);
+            final GsonBuilder builder = new GsonBuilder();
+            builder.setPrettyPrinting();
+            register(builder, runtime);
+            gson = builder.create();
+        }
+    }
+}
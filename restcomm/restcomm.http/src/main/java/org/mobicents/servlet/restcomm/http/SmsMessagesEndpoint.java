@@ -36,12 +36,12 @@ import org.apache.commons.configuration.Configuration;
 import org.joda.time.DateTime;
 import org.mobicents.servlet.restcomm.annotations.concurrency.NotThreadSafe;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.dao.RecordHandler;
 import org.mobicents.servlet.restcomm.dao.SmsMessagesDao;
 import org.mobicents.servlet.restcomm.entities.RestCommResponse;
 import org.mobicents.servlet.restcomm.entities.Sid;
 import org.mobicents.servlet.restcomm.entities.SmsMessage;
 import org.mobicents.servlet.restcomm.entities.SmsMessage.Status;
-import org.mobicents.servlet.restcomm.entities.SmsMessageList;
 import org.mobicents.servlet.restcomm.entities.Account;
 import org.mobicents.servlet.restcomm.http.converter.RestCommResponseConverter;
 import org.mobicents.servlet.restcomm.http.converter.SmsMessageConverter;
@@ -54,9 +54,7 @@ import org.mobicents.servlet.restcomm.sms.SmsSessionInfo;
 import org.mobicents.servlet.restcomm.sms.SmsSessionRequest;
 import org.mobicents.servlet.restcomm.sms.SmsSessionResponse;
 import org.mobicents.servlet.restcomm.util.StringUtils;
-import scala.concurrent.Await;
 import scala.concurrent.Future;
-import scala.concurrent.duration.Duration;
 
 import javax.annotation.PostConstruct;
 import javax.servlet.ServletContext;
@@ -66,11 +64,10 @@ import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 import java.math.BigDecimal;
 import java.net.URI;
+import java.util.Collections;
 import java.util.Currency;
 import java.util.Iterator;
-import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
 
 import static akka.pattern.Patterns.ask;
 import static javax.ws.rs.core.MediaType.*;
@@ -83,6 +80,21 @@ import static javax.ws.rs.core.Response.status;
  */
 @NotThreadSafe
 public abstract class SmsMessagesEndpoint extends SecuredEndpoint {
+    private static final Serializers serializers = new Serializers() {
+        @Override
+        protected void register(final XStream xstream, final Configuration configuration) {
+            xstream.registerConverter(new SmsMessageConverter(configuration));
+            xstream.registerConverter(new SmsMessageListConverter(configuration));
+            xstream.registerConverter(new RestCommResponseConverter(configuration));
+        }
+
+        @Override
+        protected void register(final GsonBuilder builder, final Configuration configuration) {
+            builder.registerTypeAdapter(SmsMessage.class, new SmsMessageConverter(configuration));
+        }
+    };
+    private static final AsyncRequests requests = new AsyncRequests("sms-messages");
+
     @Context
     protected ServletContext context;
     protected ActorSystem system;
@@ -107,16 +119,9 @@ public abstract class SmsMessagesEndpoint extends SecuredEndpoint {
         aggregator = (ActorRef) context.getAttribute("org.mobicents.servlet.restcomm.sms.SmsService");
         system = (ActorSystem) context.getAttribute(ActorSystem.class.getName());
         super.init(configuration);
-        final SmsMessageConverter converter = new SmsMessageConverter(configuration);
-        final GsonBuilder builder = new GsonBuilder();
-        builder.registerTypeAdapter(SmsMessage.class, converter);
-        builder.setPrettyPrinting();
-        gson = builder.create();
-        xstream = new XStream();
-        xstream.alias("RestcommResponse", RestCommResponse.class);
-        xstream.registerConverter(converter);
-        xstream.registerConverter(new SmsMessageListConverter(configuration));
-        xstream.registerConverter(new RestCommResponseConverter(configuration));
+        final Configuration settings = (Configuration) context.getAttribute(Configuration.class.getName());
+        xstream = serializers.getXStream(settings);
+        gson = serializers.getGson(settings);
 
         normalizePhoneNumbers = configuration.getBoolean("normalize-numbers-for-outbound-calls");
     }
@@ -142,12 +147,22 @@ public abstract class SmsMessagesEndpoint extends SecuredEndpoint {
 
     protected Response getSmsMessages(final String accountSid, final MediaType responseType) {
         secure(accountsDao.getAccount(accountSid), "RestComm:Read:SmsMessages");
-        final List<SmsMessage> smsMessages = dao.getSmsMessages(new Sid(accountSid));
+        final Sid sid = new Sid(accountSid);
+        // Write the messages as they are read instead of building the whole document first.
         if (APPLICATION_JSON_TYPE == responseType) {
-            return ok(gson.toJson(smsMessages), APPLICATION_JSON).build();
+            return ok(new StreamingListOutput<SmsMessage>(gson, SmsMessage.class, null) {
+                @Override
+                protected void read(final RecordHandler<SmsMessage> handler) {
+                    dao.getSmsMessages(sid, handler);
+                }
+            }, APPLICATION_JSON).build();
         } else if (APPLICATION_XML_TYPE == responseType) {
-            final RestCommResponse response = new RestCommResponse(new SmsMessageList(smsMessages));
-            return ok(xstream.toXML(response), APPLICATION_XML).build();
+            return ok(new StreamingListOutput<SmsMessage>(xstream, "SMSMessages", Collections.<String, String> emptyMap()) {
+                @Override
+                protected void read(final RecordHandler<SmsMessage> handler) {
+                    dao.getSmsMessages(sid, handler);
+                }
+            }, APPLICATION_XML).build();
         } else {
             return null;
         }
@@ -176,9 +191,11 @@ public abstract class SmsMessagesEndpoint extends SecuredEndpoint {
         }
     }
 
-    @SuppressWarnings("unchecked")
     protected Response putSmsMessage(final String accountSid, final MultivaluedMap<String, String> data,
             final MediaType responseType) {
+        if (requests.isResumed(request)) {
+            return requests.resume(request);
+        }
         secure(accountsDao.getAccount(accountSid), "RestComm:Create:SmsMessages");
         try {
             validate(data);
@@ -190,7 +207,7 @@ public abstract class SmsMessagesEndpoint extends SecuredEndpoint {
         final String sender = data.getFirst("From");
         final String recipient = data.getFirst("To");
         final String body = data.getFirst("Body");
-        ConcurrentHashMap<String, String> customRestOutgoingHeaderMap = new ConcurrentHashMap<String, String>();
+        final ConcurrentHashMap<String, String> customRestOutgoingHeaderMap = new ConcurrentHashMap<String, String>();
         Iterator<String> iter = data.keySet().iterator();
         while (iter.hasNext()) {
             String name = iter.next();
@@ -198,10 +215,23 @@ public abstract class SmsMessagesEndpoint extends SecuredEndpoint {
                 customRestOutgoingHeaderMap.put(name, data.getFirst(name));
             }
         }
-        final Timeout expires = new Timeout(Duration.create(60, TimeUnit.SECONDS));
+        final Timeout expires = requests.timeout(context);
+        final Future<Object> future = ask(aggregator, new CreateSmsSession(), expires);
+        return requests.suspend(request, future, new AsyncRequests.Continuation() {
+            @Override
+            public Response resume(final Object reply) {
+                return sendSmsMessage(accountSid, data, sender, recipient, body, customRestOutgoingHeaderMap, reply,
+                        responseType);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private Response sendSmsMessage(final String accountSid, final MultivaluedMap<String, String> data,
+            final String sender, final String recipient, final String body,
+            final ConcurrentHashMap<String, String> customRestOutgoingHeaderMap, final Object object,
+            final MediaType responseType) {
         try {
-            Future<Object> future = (Future<Object>) ask(aggregator, new CreateSmsSession(), expires);
-            Object object = Await.result(future, Duration.create(10, TimeUnit.SECONDS));
             Class<?> klass = object.getClass();
             if (SmsServiceResponse.class.equals(klass)) {
                 final SmsServiceResponse<ActorRef> smsServiceResponse = (SmsServiceResponse<ActorRef>) object;
@@ -0,0 +1,150 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.NotThreadSafe;
+import org.mobicents.servlet.restcomm.dao.RecordHandler;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.core.TreeMarshaller;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.io.xml.PrettyPrintWriter;
+
+/**
+ * Writes a list response to the servlet output stream one record at a time, as the records are read from the database,
+ * instead of building the whole document as a String first. The records go through the same converters that
+ * XStream and Gson use for the buffered responses so the documents are the same.
+ *
+ * The XML documents are written as &lt;RestcommResponse&gt;&lt;name attributes&gt;records&lt;/name&gt;&lt;/RestcommResponse&gt;.
+ * The JSON documents are a bare array when there is no name, an object with the array under the name otherwise
+ * followed by the {@link #properties(int, Object)} that depend on the records that were written.
+ */
+@NotThreadSafe
+public abstract class StreamingListOutput<T> implements StreamingOutput, RecordHandler<T> {
+    private static final String CHARSET = "UTF-8";
+
+    private final XStream xstream;
+    private final Gson gson;
+    private final Type type;
+    private final String name;
+    private final Map<String, String> attributes;
+
+    private MarshallingContext context;
+    private JsonWriter json;
+    private int count;
+    private T last;
+
+    protected StreamingListOutput(final XStream xstream, final String name, final Map<String, String> attributes) {
+        super();
+        this.xstream = xstream;
+        this.gson = null;
+        this.type = null;
+        this.name = name;
+        this.attributes = attributes;
+    }
+
+    protected StreamingListOutput(final Gson gson, final Type type, final String name) {
+        super();
+        this.xstream = null;
+        this.gson = gson;
+        this.type = type;
+        this.name = name;
+        this.attributes = Collections.emptyMap();
+    }
+
+    /**
+     * Reads the records from the database and hands them over to the handler one at a time.
+     */
+    protected abstract void read(RecordHandler<T> handler);
+
+    /**
+     * Properties of a named JSON list that are written after the records.
+     */
+    protected JsonObject properties(final int count, final T last) {
+        return null;
+    }
+
+    @Override
+    public void write(final OutputStream output) throws IOException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(output, CHARSET));
+        if (xstream != null) {
+            final HierarchicalStreamWriter xml = new PrettyPrintWriter(writer);
+            context = new TreeMarshaller(xml, xstream.getConverterLookup(), xstream.getMapper());
+            xml.startNode("RestcommResponse");
+            xml.startNode(name);
+            for (final Map.Entry<String, String> attribute : attributes.entrySet()) {
+                xml.addAttribute(attribute.getKey(), attribute.getValue());
+            }
+            read(this);
+            xml.endNode();
+            xml.endNode();
+            xml.flush();
+        } else {
+            json = new JsonWriter(writer);
+            json.setIndent("  ");
+            if (name != null) {
+                json.beginObject();
+                json.name(name);
+            }
+            json.beginArray();
+            read(this);
+            json.endArray();
+            if (name != null) {
+                final JsonObject properties = properties(count, last);
+                if (properties != null) {
+                    for (final Map.Entry<String, JsonElement> property : properties.entrySet()) {
+                        json.name(property.getKey());
+                        gson.toJson(property.getValue(), json);
+                    }
+                }
+                json.endObject();
+            }
+            json.flush();
+        }
+        writer.flush();
+    }
+
+    @Override
+    public void handle(final T record) {
+        if (context != null) {
+            context.convertAnother(record);
+        } else {
+            gson.toJson(record, type, json);
+        }
+        count++;
+        last = record;
+    }
+}
@@ -30,7 +30,10 @@ import static javax.ws.rs.core.Response.status;
 import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
 
 import java.text.ParseException;
-import java.util.concurrent.TimeUnit;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
 
 import javax.annotation.PostConstruct;
 import javax.servlet.ServletContext;
@@ -40,13 +43,18 @@ import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 
 import org.apache.commons.configuration.Configuration;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
+import org.joda.time.DateTime;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
 import org.mobicents.servlet.restcomm.entities.CallDetailRecordFilter;
 import org.mobicents.servlet.restcomm.entities.RestCommResponse;
 import org.mobicents.servlet.restcomm.http.converter.CallinfoConverter;
 import org.mobicents.servlet.restcomm.http.converter.MonitoringServiceConverter;
 import org.mobicents.servlet.restcomm.http.converter.RestCommResponseConverter;
+import org.mobicents.servlet.restcomm.http.exceptions.InsufficientPermission;
+import org.mobicents.servlet.restcomm.logging.TargetedLogging;
 import org.mobicents.servlet.restcomm.telephony.CallInfo;
 import org.mobicents.servlet.restcomm.telephony.GetLiveCalls;
 import org.mobicents.servlet.restcomm.telephony.MonitoringServiceResponse;
@@ -58,23 +66,38 @@ import com.thoughtworks.xstream.XStream;
 
 import akka.actor.ActorRef;
 import akka.util.Timeout;
-import scala.concurrent.Await;
 import scala.concurrent.Future;
-import scala.concurrent.duration.Duration;
 
 /**
  * @author <a href="mailto:gvagenas@gmail.com">gvagenas</a>
  *
  */
 public class SupervisorEndpoint extends SecuredEndpoint{
+    private static final Serializers serializers = new Serializers() {
+        @Override
+        protected void register(final XStream xstream, final Configuration configuration) {
+            xstream.registerConverter(new CallinfoConverter(configuration));
+            xstream.registerConverter(new MonitoringServiceConverter(configuration));
+            xstream.registerConverter(new RestCommResponseConverter(configuration));
+        }
+
+        @Override
+        protected void register(final GsonBuilder builder, final Configuration configuration) {
+            builder.registerTypeAdapter(CallInfo.class, new CallinfoConverter(configuration));
+            builder.registerTypeAdapter(MonitoringServiceResponse.class, new MonitoringServiceConverter(configuration));
+        }
+    };
+    private static final AsyncRequests requests = new AsyncRequests("supervisor");
+
     private static Logger logger = Logger.getLogger(SupervisorEndpoint.class);
 
+    private static final long DEFAULT_LOG_TARGET_DURATION = 600;
+
     @Context
     protected ServletContext context;
     protected Configuration configuration;
     private DaoManager daos;
     private Gson gson;
-    private GsonBuilder builder;
     private XStream xstream;
     private ActorRef monitoringService;
 
@@ -89,18 +112,9 @@ public class SupervisorEndpoint extends SecuredEndpoint{
         configuration = configuration.subset("runtime-settings");
         daos = (DaoManager) context.getAttribute(DaoManager.class.getName());
         super.init(configuration);
-        CallinfoConverter converter = new CallinfoConverter(configuration);
-        MonitoringServiceConverter listConverter = new MonitoringServiceConverter(configuration);
-        builder = new GsonBuilder();
-        builder.registerTypeAdapter(CallInfo.class, converter);
-        builder.registerTypeAdapter(MonitoringServiceResponse.class, listConverter);
-        builder.setPrettyPrinting();
-        gson = builder.create();
-        xstream = new XStream();
-        xstream.alias("RestcommResponse", RestCommResponse.class);
-        xstream.registerConverter(converter);
-        xstream.registerConverter(listConverter);
-        xstream.registerConverter(new RestCommResponseConverter(configuration));
+        final Configuration settings = (Configuration) context.getAttribute(Configuration.class.getName());
+        xstream = serializers.getXStream(settings);
+        gson = serializers.getGson(settings);
     }
 
     protected Response pong(final String accountSid, final MediaType responseType) {
@@ -124,92 +138,167 @@ public class SupervisorEndpoint extends SecuredEndpoint{
     }
 
     protected Response getMetrics(final String accountSid, MediaType responseType) {
+        if (requests.isResumed(request)) {
+            return requests.resume(request);
+        }
         secure(daos.getAccountsDao().getAccount(accountSid), "RestComm:Read:Calls");
         //Get the list of live calls from Monitoring Service
-        MonitoringServiceResponse monitoringServiceResponse;
-        try {
-            final Timeout expires = new Timeout(Duration.create(60, TimeUnit.SECONDS));
-            GetLiveCalls getLiveCalls = new GetLiveCalls();
-            Future<Object> future = (Future<Object>) ask(monitoringService, getLiveCalls, expires);
-            monitoringServiceResponse = (MonitoringServiceResponse) Await.result(future, Duration.create(10, TimeUnit.SECONDS));
-        } catch (Exception exception) {
-            return status(BAD_REQUEST).entity(exception.getMessage()).build();
-        }
-        if (monitoringServiceResponse != null) {
-            if (APPLICATION_XML_TYPE == responseType) {
-                final RestCommResponse response = new RestCommResponse(monitoringServiceResponse);
-                return ok(xstream.toXML(response), APPLICATION_XML).build();
-            } else if (APPLICATION_JSON_TYPE == responseType) {
-               Response response = ok(gson.toJson(monitoringServiceResponse), APPLICATION_JSON).build();
-               if(logger.isDebugEnabled()){
-                   logger.debug("Supervisor endpoint response: "+gson.toJson(monitoringServiceResponse));
-               }
-               return response;
-            } else {
-                return null;
-            }
-        } else {
-            return null;
-        }
+        return getLiveCalls(responseType, true);
     }
 
     //Register a remote location where Restcomm will send monitoring updates
     protected Response registerForUpdates(final String accountSid, final MultivaluedMap<String, String> data, MediaType responseType) {
+        if (requests.isResumed(request)) {
+            return requests.resume(request);
+        }
         secure(daos.getAccountsDao().getAccount(accountSid), "RestComm:Read:Calls");
         //Get the list of live calls from Monitoring Service
-        MonitoringServiceResponse liveCalls;
-        try {
-            final Timeout expires = new Timeout(Duration.create(60, TimeUnit.SECONDS));
-            GetLiveCalls getLiveCalls = new GetLiveCalls();
-            Future<Object> future = (Future<Object>) ask(monitoringService, getLiveCalls, expires);
-            liveCalls = (MonitoringServiceResponse) Await.result(future, Duration.create(10, TimeUnit.SECONDS));
-        } catch (Exception exception) {
-            return status(BAD_REQUEST).entity(exception.getMessage()).build();
-        }
-        if (liveCalls != null) {
-            if (APPLICATION_XML_TYPE == responseType) {
-                final RestCommResponse response = new RestCommResponse(liveCalls);
-                return ok(xstream.toXML(response), APPLICATION_XML).build();
-            } else if (APPLICATION_JSON_TYPE == responseType) {
-               Response response = ok(gson.toJson(liveCalls), APPLICATION_JSON).build();
-                return response;
-            } else {
-                return null;
-            }
-        } else {
-            return null;
-        }
+        return getLiveCalls(responseType, false);
     }
 
     //Register a remote location where Restcomm will send monitoring updates for a specific Call
     protected Response registerForCallUpdates(final String accountSid, final String callSid, final MultivaluedMap<String, String> data, MediaType responseType) {
+        if (requests.isResumed(request)) {
+            return requests.resume(request);
+        }
         secure(daos.getAccountsDao().getAccount(accountSid), "RestComm:Read:Calls");
 
         final String url = data.getFirst("Url");
         final String refresh = data.getFirst("Refresh");
         //Get the list of live calls from Monitoring Service
+        return getLiveCalls(responseType, false);
+    }
 
-        MonitoringServiceResponse liveCalls;
-        try {
-            final Timeout expires = new Timeout(Duration.create(60, TimeUnit.SECONDS));
-            GetLiveCalls getLiveCalls = new GetLiveCalls();
-            Future<Object> future = (Future<Object>) ask(monitoringService, getLiveCalls, expires);
-            liveCalls = (MonitoringServiceResponse) Await.result(future, Duration.create(10, TimeUnit.SECONDS));
-        } catch (Exception exception) {
-            return status(BAD_REQUEST).entity(exception.getMessage()).build();
-        }
-        if (liveCalls != null) {
-            if (APPLICATION_XML_TYPE == responseType) {
-                final RestCommResponse response = new RestCommResponse(liveCalls);
-                return ok(xstream.toXML(response), APPLICATION_XML).build();
-            } else if (APPLICATION_JSON_TYPE == responseType) {
-               Response response = ok(gson.toJson(liveCalls), APPLICATION_JSON).build();
-                return response;
-            } else {
-                return null;
+    /**
+     * The loggers with a level of their own and the sids targeted by {@link TargetedLogging}. Administrators only.
+     */
+    protected Response getLogging(final String accountSid, final MediaType responseType) {
+        secureAdministrator(accountSid);
+        return logging(responseType);
+    }
+
+    /**
+     * Sets the level of the logger of a subsystem at runtime, i.e Subsystem=org.mobicents.servlet.restcomm.telephony
+     * and Level=DEBUG. An empty Level makes the logger inherit the level of its parent again. The actors log through
+     * Akka, their debug statements only reach the logger when the Akka log level (AKKA_LOG_LEVEL) allows them.
+     */
+    protected Response setLogLevel(final String accountSid, final MultivaluedMap<String, String> data,
+            final MediaType responseType) {
+        secureAdministrator(accountSid);
+        final String subsystem = data.getFirst("Subsystem");
+        final String name = data.getFirst("Level");
+        if (subsystem == null || subsystem.trim().isEmpty()) {
+            return status(BAD_REQUEST).entity("Subsystem is required").build();
+        }
+        Level level = null;
+        if (name != null && !name.trim().isEmpty()) {
+            level = Level.toLevel(name.trim(), null);
+            if (level == null) {
+                return status(BAD_REQUEST).entity("Unknown Level " + name).build();
             }
+        }
+        Logger.getLogger(subsystem.trim()).setLevel(level);
+        logger.info("Log level of " + subsystem.trim() + " set to " + (level != null ? level : "inherited"));
+        return logging(responseType);
+    }
+
+    /**
+     * Logs the debug statements of the hot paths about a call or an account, i.e Sid=CA... and Duration=600 seconds,
+     * without raising the level of their subsystems.
+     */
+    protected Response addLogTarget(final String accountSid, final MultivaluedMap<String, String> data,
+            final MediaType responseType) {
+        secureAdministrator(accountSid);
+        final String sid = data.getFirst("Sid");
+        final String duration = data.getFirst("Duration");
+        if (sid == null || sid.trim().isEmpty()) {
+            return status(BAD_REQUEST).entity("Sid is required").build();
+        }
+        long seconds = DEFAULT_LOG_TARGET_DURATION;
+        if (duration != null && !duration.trim().isEmpty()) {
+            try {
+                seconds = Long.parseLong(duration.trim());
+            } catch (final NumberFormatException exception) {
+                seconds = 0;
+            }
+            if (seconds <= 0) {
+                return status(BAD_REQUEST).entity("Duration must be a positive number of seconds").build();
+            }
+        }
+        TargetedLogging.target(sid.trim(), seconds * 1000);
+        logger.info("Targeted logging of " + sid.trim() + " for " + seconds + " seconds");
+        return logging(responseType);
+    }
+
+    protected Response removeLogTarget(final String accountSid, final String sid, final MediaType responseType) {
+        secureAdministrator(accountSid);
+        if (TargetedLogging.untarget(sid)) {
+            logger.info("Targeted logging of " + sid + " stopped");
+        }
+        return logging(responseType);
+    }
+
+    private void secureAdministrator(final String accountSid) {
+        secure(daos.getAccountsDao().getAccount(accountSid), "RestComm:Read:Calls");
+        if (!hasAccountRole(getAdministratorRole())) {
+            throw new InsufficientPermission();
+        }
+    }
+
+    private Response logging(final MediaType responseType) {
+        final Map<String, String> levels = new TreeMap<String, String>();
+        final Logger root = Logger.getRootLogger();
+        if (root.getLevel() != null) {
+            levels.put(root.getName(), root.getLevel().toString());
+        }
+        final Enumeration<?> loggers = LogManager.getCurrentLoggers();
+        while (loggers.hasMoreElements()) {
+            final Logger current = (Logger) loggers.nextElement();
+            if (current.getLevel() != null) {
+                levels.put(current.getName(), current.getLevel().toString());
+            }
+        }
+        final Map<String, String> targets = new TreeMap<String, String>();
+        for (final Map.Entry<String, Long> target : TargetedLogging.targets().entrySet()) {
+            targets.put(target.getKey(), new DateTime(target.getValue()).toString());
+        }
+        final Map<String, Object> logging = new LinkedHashMap<String, Object>();
+        logging.put("Levels", levels);
+        logging.put("Targets", targets);
+        if (APPLICATION_XML_TYPE == responseType) {
+            final RestCommResponse response = new RestCommResponse(logging);
+            return ok(xstream.toXML(response), APPLICATION_XML).build();
+        } else if (APPLICATION_JSON_TYPE == responseType) {
+            return ok(gson.toJson(logging), APPLICATION_JSON).build();
         } else {
             return null;
         }
     }
+
+    private Response getLiveCalls(final MediaType responseType, final boolean debug) {
+        final Timeout expires = requests.timeout(context);
+        final Future<Object> future = ask(monitoringService, new GetLiveCalls(), expires);
+        return requests.suspend(request, future, new AsyncRequests.Continuation() {
+            @Override
+            public Response resume(final Object reply) {
+                final MonitoringServiceResponse liveCalls = (MonitoringServiceResponse) reply;
+                if (liveCalls != null) {
+                    if (APPLICATION_XML_TYPE == responseType) {
+                        final RestCommResponse response = new RestCommResponse(liveCalls);
+                        return ok(xstream.toXML(response), APPLICATION_XML).build();
+                    } else if (APPLICATION_JSON_TYPE == responseType) {
+                        final String json = gson.toJson(liveCalls);
+                        if (debug && logger.isDebugEnabled()) {
+                            logger.debug("Supervisor endpoint response: " + json);
+                        }
+                        return ok(json, APPLICATION_JSON).build();
+                    } else {
+                        return null;
+                    }
+                } else {
+                    return null;
+                }
+            }
+        });
+    }
 }
@@ -22,6 +22,7 @@ package org.mobicents.servlet.restcomm.http;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
 
+import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
@@ -69,4 +70,31 @@ public class SupservisorJsonEndpoint extends SupervisorEndpoint{
     public Response registerForCallMetricsUpdates(@PathParam("accountSid") final String accountSid, @PathParam("sid") final String sid, final MultivaluedMap<String, String> data) {
         return registerForCallUpdates(accountSid, sid, data, APPLICATION_JSON_TYPE);
     }
+
+    //Get the log levels and the targeted sids
+    @Path("/logging")
+    @GET
+    public Response getLogging(@PathParam("accountSid") final String accountSid) {
+        return getLogging(accountSid, APPLICATION_JSON_TYPE);
+    }
+
+    //Set the log level of a subsystem
+    @Path("/logging")
+    @POST
+    public Response setLogLevel(@PathParam("accountSid") final String accountSid, final MultivaluedMap<String, String> data) {
+        return setLogLevel(accountSid, data, APPLICATION_JSON_TYPE);
+    }
+
+    //Log the debug statements about a call or an account for a while
+    @Path("/logging/targets")
+    @POST
+    public Response addLogTarget(@PathParam("accountSid") final String accountSid, final MultivaluedMap<String, String> data) {
+        return addLogTarget(accountSid, data, APPLICATION_JSON_TYPE);
+    }
+
+    @Path("/logging/targets/{sid}")
+    @DELETE
+    public Response removeLogTarget(@PathParam("accountSid") final String accountSid, @PathParam("sid") final String sid) {
+        return removeLogTarget(accountSid, sid, APPLICATION_JSON_TYPE);
+    }
 }
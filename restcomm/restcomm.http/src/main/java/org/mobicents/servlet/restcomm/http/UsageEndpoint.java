@@ -60,6 +60,20 @@ import com.thoughtworks.xstream.XStream;
  */
 @ThreadSafe
 public abstract class UsageEndpoint extends SecuredEndpoint {
+  private static final Serializers serializers = new Serializers() {
+    @Override
+    protected void register(final XStream xstream, final Configuration configuration) {
+      xstream.registerConverter(new UsageConverter(configuration));
+      xstream.registerConverter(new UsageListConverter(configuration));
+      xstream.registerConverter(new RestCommResponseConverter(configuration));
+    }
+
+    @Override
+    protected void register(final GsonBuilder builder, final Configuration configuration) {
+      builder.registerTypeAdapter(Usage.class, new UsageConverter(configuration));
+    }
+  };
+
   @Context
   protected ServletContext context;
   protected Configuration configuration;
@@ -80,16 +94,9 @@ public abstract class UsageEndpoint extends SecuredEndpoint {
     configuration = configuration.subset("runtime-settings");
     super.init(configuration);
     dao = storage.getUsageDao();
-    final UsageConverter converter = new UsageConverter(configuration);
-    final GsonBuilder builder = new GsonBuilder();
-    builder.registerTypeAdapter(Usage.class, converter);
-    builder.setPrettyPrinting();
-    gson = builder.create();
-    xstream = new XStream();
-    xstream.alias("RestcommResponse", RestCommResponse.class);
-    xstream.registerConverter(converter);
-    xstream.registerConverter(new UsageListConverter(configuration));
-    xstream.registerConverter(new RestCommResponseConverter(configuration));
+    final Configuration settings = (Configuration) context.getAttribute(Configuration.class.getName());
+    xstream = serializers.getXStream(settings);
+    gson = serializers.getGson(settings);
   }
 
   protected Response getUsage(final String accountSid, final String subresource, UriInfo info, final MediaType responseType) {
@@ -30,7 +30,6 @@ import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
 import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
 
 import java.net.URI;
-import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
 import javax.servlet.ServletContext;
@@ -55,9 +54,7 @@ import org.mobicents.servlet.restcomm.telephony.CreateCall;
 import org.mobicents.servlet.restcomm.telephony.ExecuteCallScript;
 import org.mobicents.servlet.restcomm.telephony.GetCallInfo;
 
-import scala.concurrent.Await;
 import scala.concurrent.Future;
-import scala.concurrent.duration.Duration;
 import akka.actor.ActorRef;
 import akka.util.Timeout;
 
@@ -70,6 +67,21 @@ import com.thoughtworks.xstream.XStream;
  *
  */
 public class UssdPushEndpoint extends SecuredEndpoint {
+    private static final Serializers serializers = new Serializers() {
+        @Override
+        protected void register(final XStream xstream, final Configuration configuration) {
+            xstream.registerConverter(new CallDetailRecordConverter(configuration));
+            xstream.registerConverter(new RestCommResponseConverter(configuration));
+            xstream.registerConverter(new CallDetailRecordListConverter(configuration));
+        }
+
+        @Override
+        protected void register(final GsonBuilder builder, final Configuration configuration) {
+            builder.registerTypeAdapter(CallDetailRecord.class, new CallDetailRecordConverter(configuration));
+            builder.registerTypeAdapter(CallDetailRecordList.class, new CallDetailRecordListConverter(configuration));
+        }
+    };
+    private static final AsyncRequests requests = new AsyncRequests("ussd-push");
 
     @Context
     protected ServletContext context;
@@ -77,9 +89,7 @@ public class UssdPushEndpoint extends SecuredEndpoint {
     private ActorRef ussdCallManager;
     private DaoManager daos;
     private Gson gson;
-    private GsonBuilder builder;
     private XStream xstream;
-    private CallDetailRecordListConverter listConverter;
 
     public UssdPushEndpoint() {
         super();
@@ -92,22 +102,15 @@ public class UssdPushEndpoint extends SecuredEndpoint {
         ussdCallManager = (ActorRef) context.getAttribute("org.mobicents.servlet.restcomm.ussd.telephony.UssdCallManager");
         daos = (DaoManager) context.getAttribute(DaoManager.class.getName());
         super.init(configuration);
-        CallDetailRecordConverter converter = new CallDetailRecordConverter(configuration);
-        listConverter = new CallDetailRecordListConverter(configuration);
-        builder = new GsonBuilder();
-        builder.registerTypeAdapter(CallDetailRecord.class, converter);
-        builder.registerTypeAdapter(CallDetailRecordList.class, listConverter);
-        builder.setPrettyPrinting();
-        gson = builder.create();
-        xstream = new XStream();
-        xstream.alias("RestcommResponse", RestCommResponse.class);
-        xstream.registerConverter(converter);
-        xstream.registerConverter(new RestCommResponseConverter(configuration));
-        xstream.registerConverter(listConverter);
+        final Configuration settings = (Configuration) context.getAttribute(Configuration.class.getName());
+        xstream = serializers.getXStream(settings);
+        gson = serializers.getGson(settings);
     }
 
-    @SuppressWarnings("unchecked")
     protected Response putCall(final String accountSid, final MultivaluedMap<String, String> data, final MediaType responseType) {
+        if (requests.isResumed(request)) {
+            return requests.resume(request);
+        }
         final Sid accountId = new Sid(accountSid);
         secure(daos.getAccountsDao().getAccount(accountSid), "RestComm:Create:Calls");
         try {
@@ -120,78 +123,97 @@ public class UssdPushEndpoint extends SecuredEndpoint {
         final String username = data.getFirst("Username");
         final String password = data.getFirst("Password");
         final Integer timeout = getTimeout(data);
-        final Timeout expires = new Timeout(Duration.create(60, TimeUnit.SECONDS));
+        final Timeout expires = requests.timeout(context);
         CreateCall create = null;
         try {
             create = new CreateCall(from, to, username, password, true, timeout != null ? timeout : 30, CreateCall.Type.USSD,
                     accountId, null);
             create.setCreateCDR(false);
-            Future<Object> future = (Future<Object>) ask(ussdCallManager, create, expires);
-            Object object = Await.result(future, Duration.create(10, TimeUnit.SECONDS));
-            Class<?> klass = object.getClass();
-            if (CallManagerResponse.class.equals(klass)) {
-                final CallManagerResponse<ActorRef> managerResponse = (CallManagerResponse<ActorRef>) object;
-                if (managerResponse.succeeded()) {
-                    final ActorRef call = managerResponse.get();
-                    future = (Future<Object>) ask(call, new GetCallInfo(), expires);
-                    object = Await.result(future, Duration.create(10, TimeUnit.SECONDS));
-                    klass = object.getClass();
-                    if (CallResponse.class.equals(klass)) {
-                        final CallResponse<CallInfo> callResponse = (CallResponse<CallInfo>) object;
-                        if (callResponse.succeeded()) {
-                            final CallInfo callInfo = callResponse.get();
-                            // Execute the call script.
-                            final String version = getApiVersion(data);
-                            final URI url = getUrl("Url", data);
-                            final String method = getMethod("Method", data);
-                            final URI fallbackUrl = getUrl("FallbackUrl", data);
-                            final String fallbackMethod = getMethod("FallbackMethod", data);
-                            final URI callback = getUrl("StatusCallback", data);
-                            final String callbackMethod = getMethod("StatusCallbackMethod", data);
-                            final ExecuteCallScript execute = new ExecuteCallScript(call, accountId, version, url, method,
-                                    fallbackUrl, fallbackMethod, callback, callbackMethod);
-                            ussdCallManager.tell(execute, null);
-                            // Create a call detail record for the call.
-//                            final CallDetailRecord.Builder builder = CallDetailRecord.builder();
-//                            builder.setSid(callInfo.sid());
-//                            builder.setDateCreated(callInfo.dateCreated());
-//                            builder.setAccountSid(accountId);
-//                            builder.setTo(to);
-//                            builder.setCallerName(callInfo.fromName());
-//                            builder.setFrom(from);
-//                            builder.setForwardedFrom(callInfo.forwardedFrom());
-//                            builder.setStatus(callInfo.state().toString());
-//                            final DateTime now = DateTime.now();
-//                            builder.setStartTime(now);
-//                            builder.setDirection(callInfo.direction());
-//                            builder.setApiVersion(version);
-//                            final StringBuilder buffer = new StringBuilder();
-//                            buffer.append("/").append(version).append("/Accounts/");
-//                            buffer.append(accountId.toString()).append("/Calls/");
-//                            buffer.append(callInfo.sid().toString());
-//                            final URI uri = URI.create(buffer.toString());
-//                            builder.setUri(uri);
+            final Future<Object> future = ask(ussdCallManager, create, expires);
+            return requests.suspend(request, future, new AsyncRequests.Continuation() {
+                @Override
+                public Response resume(final Object reply) {
+                    return getCallInfo(accountId, data, reply, expires, responseType);
+                }
+            });
+        } catch (final Exception exception) {
+            return status(INTERNAL_SERVER_ERROR).entity(exception.getMessage()).build();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Response getCallInfo(final Sid accountId, final MultivaluedMap<String, String> data, final Object object,
+            final Timeout expires, final MediaType responseType) {
+        if (CallManagerResponse.class.equals(object.getClass())) {
+            final CallManagerResponse<ActorRef> managerResponse = (CallManagerResponse<ActorRef>) object;
+            if (managerResponse.succeeded()) {
+                final ActorRef call = managerResponse.get();
+                final Future<Object> future = ask(call, new GetCallInfo(), expires);
+                return requests.suspend(request, future, new AsyncRequests.Continuation() {
+                    @Override
+                    public Response resume(final Object reply) {
+                        return executeCallScript(accountId, data, call, reply, responseType);
+                    }
+                });
+            }
+        }
+        return status(INTERNAL_SERVER_ERROR).build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Response executeCallScript(final Sid accountId, final MultivaluedMap<String, String> data, final ActorRef call,
+            final Object object, final MediaType responseType) {
+        if (CallResponse.class.equals(object.getClass())) {
+            final CallResponse<CallInfo> callResponse = (CallResponse<CallInfo>) object;
+            if (callResponse.succeeded()) {
+                final CallInfo callInfo = callResponse.get();
+                // Execute the call script.
+                final String version = getApiVersion(data);
+                final URI url = getUrl("Url", data);
+                final String method = getMethod("Method", data);
+                final URI fallbackUrl = getUrl("FallbackUrl", data);
+                final String fallbackMethod = getMethod("FallbackMethod", data);
+                final URI callback = getUrl("StatusCallback", data);
+                final String callbackMethod = getMethod("StatusCallbackMethod", data);
+                final ExecuteCallScript execute = new ExecuteCallScript(call, accountId, version, url, method,
+                        fallbackUrl, fallbackMethod, callback, callbackMethod);
+                ussdCallManager.tell(execute, null);
+                // Create a call detail record for the call.
+//                final CallDetailRecord.Builder builder = CallDetailRecord.builder();
+//                builder.setSid(callInfo.sid());
+//                builder.setDateCreated(callInfo.dateCreated());
+//                builder.setAccountSid(accountId);
+//                builder.setTo(to);
+//                builder.setCallerName(callInfo.fromName());
+//                builder.setFrom(from);
+//                builder.setForwardedFrom(callInfo.forwardedFrom());
+//                builder.setStatus(callInfo.state().toString());
+//                final DateTime now = DateTime.now();
+//                builder.setStartTime(now);
+//                builder.setDirection(callInfo.direction());
+//                builder.setApiVersion(version);
+//                final StringBuilder buffer = new StringBuilder();
+//                buffer.append("/").append(version).append("/Accounts/");
+//                buffer.append(accountId.toString()).append("/Calls/");
+//                buffer.append(callInfo.sid().toString());
+//                final URI uri = URI.create(buffer.toString());
+//                builder.setUri(uri);
 //
-//                            builder.setCallPath(call.path().toString());
+//                builder.setCallPath(call.path().toString());
 //
-//                            final CallDetailRecord cdr = builder.build();
-//                            daos.getCallDetailRecordsDao().addCallDetailRecord(cdr);
-                            CallDetailRecord cdr = daos.getCallDetailRecordsDao().getCallDetailRecord(callInfo.sid());
-                            if (APPLICATION_JSON_TYPE == responseType) {
-                                return ok(gson.toJson(cdr), APPLICATION_JSON).build();
-                            } else if (APPLICATION_XML_TYPE == responseType) {
-                                return ok(xstream.toXML(new RestCommResponse(cdr)), APPLICATION_XML).build();
-                            } else {
-                                return null;
-                            }
-                        }
-                    }
+//                final CallDetailRecord cdr = builder.build();
+//                daos.getCallDetailRecordsDao().addCallDetailRecord(cdr);
+                CallDetailRecord cdr = daos.getCallDetailRecordsDao().getCallDetailRecord(callInfo.sid());
+                if (APPLICATION_JSON_TYPE == responseType) {
+                    return ok(gson.toJson(cdr), APPLICATION_JSON).build();
+                } else if (APPLICATION_XML_TYPE == responseType) {
+                    return ok(xstream.toXML(new RestCommResponse(cdr)), APPLICATION_XML).build();
+                } else {
+                    return null;
                 }
             }
-            return status(INTERNAL_SERVER_ERROR).build();
-        } catch (final Exception exception) {
-            return status(INTERNAL_SERVER_ERROR).entity(exception.getMessage()).build();
         }
+        return status(INTERNAL_SERVER_ERROR).build();
     }
 
     private Integer getTimeout(final MultivaluedMap<String, String> data) {
@@ -49,6 +49,19 @@ import static javax.ws.rs.core.Response.ok;
  */
 @ThreadSafe
 public class VersionEndpoint extends SecuredEndpoint {
+    private static final Serializers serializers = new Serializers() {
+        @Override
+        protected void register(final XStream xstream, final Configuration configuration) {
+            xstream.registerConverter(new VersionConverter(configuration));
+            xstream.registerConverter(new RestCommResponseConverter(configuration));
+        }
+
+        @Override
+        protected void register(final GsonBuilder builder, final Configuration configuration) {
+            builder.registerTypeAdapter(VersionEntity.class, new VersionConverter(configuration));
+        }
+    };
+
     private static Logger logger = Logger.getLogger(VersionEndpoint.class);
 
     @Context
@@ -66,15 +79,9 @@ public class VersionEndpoint extends SecuredEndpoint {
         super.init(configuration);
         dao = storage.getUsageDao();
         accountsDao = storage.getAccountsDao();
-        final VersionConverter converter = new VersionConverter(configuration);
-        final GsonBuilder builder = new GsonBuilder();
-        builder.registerTypeAdapter(VersionEntity.class, converter);
-        builder.setPrettyPrinting();
-        gson = builder.create();
-        xstream = new XStream();
-        xstream.alias("RestcommResponse", RestCommResponse.class);
-        xstream.registerConverter(converter);
-        xstream.registerConverter(new RestCommResponseConverter(configuration));
+        final Configuration settings = (Configuration) context.getAttribute(Configuration.class.getName());
+        xstream = serializers.getXStream(settings);
+        gson = serializers.getGson(settings);
     }
 
     protected Response getVersion(final String accountSid, final MediaType mediaType) {
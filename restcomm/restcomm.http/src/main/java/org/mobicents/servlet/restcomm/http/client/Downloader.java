@@ -41,12 +41,8 @@ import org.apache.http.impl.client.CloseableHttpClient;
 import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
 import org.mobicents.servlet.restcomm.http.CustomHttpClientBuilder;
 import org.mobicents.servlet.restcomm.util.StringUtils;
-import org.xml.sax.InputSource;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.stream.XMLStreamException;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
@@ -72,15 +68,28 @@ public final class Downloader extends UntypedActor {
         HttpRequest request = null;
         CloseableHttpResponse response = null;
         HttpRequestDescriptor temp = descriptor;
-        CloseableHttpClient client = null;
         HttpResponseDescriptor responseDescriptor = null;
+        // Static RCML of the applications that opted in is served from the cache while it is fresh
+        final HttpResponseCache cache = descriptor.isCacheable() ? HttpResponseCache.getInstance() : null;
+        if (cache != null) {
+            responseDescriptor = cache.get(descriptor);
+            if (responseDescriptor != null) {
+                return responseDescriptor;
+            }
+        }
+        HttpResponseDescriptor stale = null;
+        // The pooled client is shared by the whole process so it must not be closed here
+        final CloseableHttpClient client = CustomHttpClientBuilder.buildDefaultClient(RestcommConfiguration.getInstance().getMain());
         try {
         do {
-                client = (CloseableHttpClient) CustomHttpClientBuilder.build(RestcommConfiguration.getInstance().getMain());
     //            client.getParams().setParameter(ClientPNames.COOKIE_POLICY, CookiePolicy.BROWSER_COMPATIBILITY);
 //            client.getParams().setParameter("http.protocol.content-charset", "UTF-8");
             request = request(temp);
                 request.setHeader("http.protocol.content-charset", "UTF-8");
+                if (cache != null) {
+                    // Every hop is validated and stored under its own URI
+                    stale = cache.validate(temp, request);
+                }
 
             response = client.execute((HttpUriRequest) request);
             code = response.getStatusLine().getStatusCode();
@@ -89,14 +98,30 @@ public final class Downloader extends UntypedActor {
                 if (header != null) {
                     final String location = header.getValue();
                     final URI uri = URI.create(location);
-                    temp = new HttpRequestDescriptor(uri, temp.getMethod(), temp.getParameters());
+                    temp = new HttpRequestDescriptor(uri, temp.getMethod(), temp.getParameters(), temp.isCacheable());
+                    // Release the connection of this hop back to the pool before following the redirect
+                    HttpClientUtils.closeQuietly(response);
+                    response = null;
+                    if (cache != null) {
+                        responseDescriptor = cache.get(temp);
+                        if (responseDescriptor != null) {
+                            return responseDescriptor;
+                        }
+                    }
                     continue;
                 } else {
                     break;
                 }
             }
-//                HttpResponseDescriptor httpResponseDescriptor = response(request, response);
-                responseDescriptor = validateXML(response(request, response));
+                if (stale != null && code == HttpStatus.SC_NOT_MODIFIED) {
+                    responseDescriptor = cache.revalidated(temp, stale, response);
+                    break;
+                }
+                // The RCML is checked for well formedness by the interpreter's parser while it is being parsed
+                responseDescriptor = response(request, response);
+                if (cache != null) {
+                    cache.put(temp, responseDescriptor);
+                }
         } while (isRedirect(code));
         if (isHttpError(code)) {
             String requestUrl = request.getRequestLine().getUri();
@@ -108,12 +133,8 @@ public final class Downloader extends UntypedActor {
         }
         } catch (IllegalArgumentException | URISyntaxException | IOException e) {
             logger.error("Exception during HTTP request execution: "+e.getCause());
-            HttpClientUtils.closeQuietly(client);
-            client = null;
         } finally {
-            response.close();
-            HttpClientUtils.closeQuietly(client);
-            client = null;
+            HttpClientUtils.closeQuietly(response);
         }
         return responseDescriptor;
     }
@@ -127,21 +148,6 @@ public final class Downloader extends UntypedActor {
         return (code >= 400);
     }
 
-    private HttpResponseDescriptor validateXML (final HttpResponseDescriptor descriptor) throws XMLStreamException {
-        if (descriptor.getContentLength() > 0) {
-            try {
-                // parse an XML document into a DOM tree
-                String xml = descriptor.getContentAsString().trim().replaceAll("&([^;]+(?!(?:\\w|;)))", "&amp;$1");
-                DocumentBuilder parser = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-                parser.parse(new InputSource(new ByteArrayInputStream(xml.getBytes("utf-8"))));
-                return descriptor;
-            } catch (final Exception e) {
-                throw new XMLStreamException("Error parsing the RCML:" + e);
-            }
-        }
-        return descriptor;
-    }
-
     @Override
     public void onReceive(final Object message) throws Exception {
         final Class<?> klass = message.getClass();
@@ -38,11 +38,21 @@ public final class HttpRequestDescriptor {
     private final URI uri;
     private final String method;
     private final List<NameValuePair> parameters;
+    private final boolean cacheable;
 
     public HttpRequestDescriptor(final URI uri, final String method, final List<NameValuePair> parameters) {
+        this(uri, method, parameters, false);
+    }
+
+    /**
+     * @param cacheable true if the response to this request may be served from the {@link HttpResponseCache}.
+     */
+    public HttpRequestDescriptor(final URI uri, final String method, final List<NameValuePair> parameters,
+            final boolean cacheable) {
         super();
         this.uri = base(uri);
         this.method = method;
+        this.cacheable = cacheable;
         if (parameters != null) {
             this.parameters = parameters;
         } else {
@@ -92,4 +102,8 @@ public final class HttpRequestDescriptor {
     public URI getUri() {
         return uri;
     }
+
+    public boolean isCacheable() {
+        return cacheable;
+    }
 }
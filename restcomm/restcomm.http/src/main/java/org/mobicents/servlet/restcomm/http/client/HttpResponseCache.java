@@ -0,0 +1,380 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.Header;
+import org.apache.http.HeaderElement;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
+import org.mobicents.servlet.restcomm.configuration.sets.RcmlCacheConfigurationSet;
+import org.mobicents.servlet.restcomm.util.Counters;
+
+/**
+ * Bounded LRU cache of the RCML responses fetched by the {@link Downloader} for requests that are
+ * {@link HttpRequestDescriptor#isCacheable() cacheable}.
+ *
+ * Freshness follows the Cache-Control (no-store, private, no-cache, s-maxage, max-age) and Expires headers of the
+ * response. This is a shared cache so private responses are never stored. Once an entry is stale it is revalidated with
+ * If-None-Match/If-Modified-Since and a 304 response gives back the cached response. The interpreters can attach the
+ * parsed document to an entry so that it is parsed only once.
+ * <p>
+ * Every hop of a redirect is a request of its own, the final response is stored and revalidated under the URI it was
+ * fetched from and not under the URI of the first request. The documents are attached to the response itself so the
+ * interpreters don't need to know where it was fetched from.
+ * <p>
+ * The counters of the process-wide cache are published to the monitoring service through {@link Counters}.
+ */
+@ThreadSafe
+public final class HttpResponseCache implements Counters.Source {
+    private static HttpResponseCache instance;
+
+    private final int maxEntries;
+    private final long defaultTtl;
+    private final Set<String> ignoredParameters;
+    private final Map<String, Entry> entries;
+    // The entries by the identity of their response, kept in step with the entries by key.
+    private final Map<HttpResponseDescriptor, Entry> responses;
+
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong revalidations;
+    private final AtomicLong evictions;
+
+    /**
+     * @param maxEntries the maximum number of responses to keep, 0 disables the cache.
+     * @param defaultTtl how long, in seconds, a response without freshness headers is considered fresh.
+     * @param ignoredParameters the names of the request parameters that are not part of the cache key.
+     */
+    public HttpResponseCache(final int maxEntries, final long defaultTtl, final Set<String> ignoredParameters) {
+        super();
+        this.maxEntries = maxEntries;
+        this.defaultTtl = defaultTtl;
+        this.ignoredParameters = ignoredParameters;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                if (size() > HttpResponseCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    responses.remove(eldest.getValue().response);
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.responses = new IdentityHashMap<HttpResponseDescriptor, Entry>();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.revalidations = new AtomicLong();
+        this.evictions = new AtomicLong();
+    }
+
+    /**
+     * @return the process-wide cache configured by the 'rcml-cache' section of restcomm.xml.
+     */
+    public static synchronized HttpResponseCache getInstance() {
+        if (instance == null) {
+            final RcmlCacheConfigurationSet config = RestcommConfiguration.getInstance().getRcmlCache();
+            if (config != null && config.isEnabled()) {
+                instance = new HttpResponseCache(config.getMaxEntries(), config.getDefaultTtl(),
+                        config.getIgnoredParameters());
+                Counters.register(HttpResponseCache.class.getName(), instance);
+            } else {
+                instance = new HttpResponseCache(0, 0, Collections.<String> emptySet());
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @return the cached response if it is still fresh, null otherwise.
+     */
+    public HttpResponseDescriptor get(final HttpRequestDescriptor request) {
+        final Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key(request));
+        }
+        if (entry != null && entry.isFresh()) {
+            hits.incrementAndGet();
+            return entry.response;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Adds the If-None-Match and If-Modified-Since headers to a request whose cached response is stale.
+     *
+     * @return the stale response that is being revalidated, null if there is nothing to revalidate.
+     */
+    public HttpResponseDescriptor validate(final HttpRequestDescriptor descriptor, final HttpRequest request) {
+        final Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key(descriptor));
+        }
+        if (entry == null || (entry.etag == null && entry.lastModified == null)) {
+            return null;
+        }
+        if (entry.etag != null) {
+            request.setHeader(HttpHeaders.IF_NONE_MATCH, entry.etag);
+        }
+        if (entry.lastModified != null) {
+            request.setHeader(HttpHeaders.IF_MODIFIED_SINCE, entry.lastModified);
+        }
+        return entry.response;
+    }
+
+    /**
+     * Refreshes the entry of a request after a 304 (Not Modified) response. The entry is dropped if the new headers
+     * don't allow storing it anymore, the stale response is still good for this request.
+     *
+     * @param stale the response returned by {@link #validate(HttpRequestDescriptor, HttpRequest)}.
+     * @return the stale response, which is fresh again.
+     */
+    public HttpResponseDescriptor revalidated(final HttpRequestDescriptor request, final HttpResponseDescriptor stale,
+            final HttpResponse response) {
+        revalidations.incrementAndGet();
+        final long expires = expires(response.getAllHeaders());
+        final Header[] headers = stale.getHeaders();
+        final String key = key(request);
+        synchronized (entries) {
+            if (expires < 0) {
+                remove(key);
+                return stale;
+            }
+            final Entry entry = entries.get(key);
+            final Object document = entry != null && entry.response == stale ? entry.document : null;
+            put(key, new Entry(stale, value(headers, HttpHeaders.ETAG), value(headers, HttpHeaders.LAST_MODIFIED), expires,
+                    document));
+        }
+        return stale;
+    }
+
+    /**
+     * Stores a response that was fully downloaded, if its headers allow it.
+     */
+    public void put(final HttpRequestDescriptor request, final HttpResponseDescriptor response) {
+        if (maxEntries <= 0 || response.getStatusCode() != HttpStatus.SC_OK) {
+            return;
+        }
+        final Header[] headers = response.getHeaders();
+        final long expires = expires(headers);
+        final String etag = value(headers, HttpHeaders.ETAG);
+        final String lastModified = value(headers, HttpHeaders.LAST_MODIFIED);
+        final String key = key(request);
+        // Nothing to gain from a response that is already stale and can't be revalidated.
+        if (expires < 0 || (expires <= System.currentTimeMillis() && etag == null && lastModified == null)) {
+            // A response that may not be stored anymore replaces the one that was.
+            synchronized (entries) {
+                remove(key);
+            }
+            return;
+        }
+        synchronized (entries) {
+            put(key, new Entry(response, etag, lastModified, expires, null));
+        }
+    }
+
+    /**
+     * @return the document attached to a response, null if the response is not a cached one.
+     */
+    public Object getDocument(final HttpResponseDescriptor response) {
+        synchronized (entries) {
+            final Entry entry = responses.get(response);
+            return entry != null ? entry.document : null;
+        }
+    }
+
+    /**
+     * Attaches an immutable document (i.e the parsed RCML) to a response, if it is a cached one.
+     */
+    public void setDocument(final HttpResponseDescriptor response, final Object document) {
+        synchronized (entries) {
+            final Entry entry = responses.get(response);
+            if (entry != null) {
+                entry.document = document;
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getRevalidations() {
+        return revalidations.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public void counters(final Map<String, Integer> counters) {
+        counters.put("RcmlCacheHits", (int) hits.get());
+        counters.put("RcmlCacheMisses", (int) misses.get());
+        counters.put("RcmlCacheRevalidations", (int) revalidations.get());
+        counters.put("RcmlCacheEvictions", (int) evictions.get());
+        counters.put("RcmlCacheSize", size());
+    }
+
+    // Called with the lock of the entries held.
+    private void put(final String key, final Entry entry) {
+        final Entry replaced = entries.put(key, entry);
+        if (replaced != null) {
+            responses.remove(replaced.response);
+        }
+        responses.put(entry.response, entry);
+    }
+
+    // Called with the lock of the entries held.
+    private void remove(final String key) {
+        final Entry removed = entries.remove(key);
+        if (removed != null) {
+            responses.remove(removed.response);
+        }
+    }
+
+    String key(final HttpRequestDescriptor request) {
+        final List<NameValuePair> parameters = new ArrayList<NameValuePair>();
+        for (final NameValuePair parameter : request.getParameters()) {
+            if (!ignoredParameters.contains(parameter.getName())) {
+                parameters.add(parameter);
+            }
+        }
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append(request.getMethod().toUpperCase()).append(" ").append(request.getUri());
+        if (!parameters.isEmpty()) {
+            buffer.append("?").append(URLEncodedUtils.format(parameters, "UTF-8"));
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * @return when the response expires in milliseconds since the epoch, -1 if it must not be stored.
+     */
+    private long expires(final Header[] headers) {
+        final long now = System.currentTimeMillis();
+        if (headers == null) {
+            return now + defaultTtl * 1000;
+        }
+        long maxAge = -1;
+        long sharedMaxAge = -1;
+        for (final Header header : headers) {
+            if (!HttpHeaders.CACHE_CONTROL.equalsIgnoreCase(header.getName())) {
+                continue;
+            }
+            for (final HeaderElement element : header.getElements()) {
+                final String name = element.getName();
+                if ("no-store".equalsIgnoreCase(name) || "private".equalsIgnoreCase(name)) {
+                    return -1;
+                } else if ("no-cache".equalsIgnoreCase(name)) {
+                    return now;
+                } else if ("s-maxage".equalsIgnoreCase(name)) {
+                    sharedMaxAge = seconds(element.getValue());
+                } else if ("max-age".equalsIgnoreCase(name)) {
+                    maxAge = seconds(element.getValue());
+                }
+            }
+        }
+        if (sharedMaxAge >= 0) {
+            return now + sharedMaxAge * 1000;
+        } else if (maxAge >= 0) {
+            return now + maxAge * 1000;
+        }
+        final String expires = value(headers, HttpHeaders.EXPIRES);
+        if (expires != null) {
+            // An invalid date, like 0, means that the response is already expired.
+            final Date date = DateUtils.parseDate(expires);
+            return date != null ? date.getTime() : now;
+        }
+        return now + defaultTtl * 1000;
+    }
+
+    private static long seconds(final String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (final NullPointerException | NumberFormatException ignored) {
+            return 0;
+        }
+    }
+
+    private static String value(final Header[] headers, final String name) {
+        if (headers != null) {
+            for (final Header header : headers) {
+                if (name.equalsIgnoreCase(header.getName())) {
+                    return header.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static final class Entry {
+        private final HttpResponseDescriptor response;
+        private final String etag;
+        private final String lastModified;
+        private final long expires;
+        // Guarded by the entries map.
+        private Object document;
+
+        private Entry(final HttpResponseDescriptor response, final String etag, final String lastModified,
+                final long expires, final Object document) {
+            super();
+            this.response = response;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expires = expires;
+            this.document = document;
+        }
+
+        private boolean isFresh() {
+            return System.currentTimeMillis() < expires;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http.converter;
+
+import java.lang.reflect.Type;
+import java.net.URI;
+
+import org.apache.commons.configuration.Configuration;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.sms.BulkSmsInfo;
+import org.mobicents.servlet.restcomm.sms.BulkSmsResult;
+import org.mobicents.servlet.restcomm.util.StringUtils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+
+/**
+ * Converts the progress of a bulk SMS and the status of its recipients.
+ */
+@ThreadSafe
+public final class BulkSmsInfoConverter extends AbstractConverter implements JsonSerializer<BulkSmsInfo> {
+    private final String apiVersion;
+    private final String rootUri;
+
+    public BulkSmsInfoConverter(final Configuration configuration) {
+        super(configuration);
+        apiVersion = configuration.getString("api-version");
+        rootUri = StringUtils.addSuffixIfNotPresent(configuration.getString("root-uri"), "/");
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public boolean canConvert(final Class klass) {
+        return BulkSmsInfo.class.equals(klass);
+    }
+
+    @Override
+    public void marshal(final Object object, final HierarchicalStreamWriter writer, final MarshallingContext context) {
+        final BulkSmsInfo info = (BulkSmsInfo) object;
+        writer.startNode("BulkSMSMessage");
+        writeSid(info.sid(), writer);
+        writeAccountSid(info.accountSid(), writer);
+        writeStatus(info.status().toString(), writer);
+        writeDateCreated(info.dateCreated(), writer);
+        writeDateUpdated(info.dateUpdated(), writer);
+        writeFrom(info.from(), writer);
+        writer.startNode("Body");
+        writer.setValue(info.body());
+        writer.endNode();
+        writeCount("Total", info.total(), writer);
+        writeCount("Queued", info.queued(), writer);
+        writeCount("Sending", info.sending(), writer);
+        writeCount("Sent", info.sent(), writer);
+        writeCount("Failed", info.failed(), writer);
+        writeCount("Canceled", info.canceled(), writer);
+        writeUri(uri(info), writer);
+        if (info.results() != null) {
+            writer.startNode("Results");
+            for (final BulkSmsResult result : info.results()) {
+                writer.startNode("Result");
+                writeTo(result.to(), writer);
+                writeSmsSid(result.smsSid(), writer);
+                writeStatus(result.status().toString(), writer);
+                if (result.error() != null) {
+                    writer.startNode("Error");
+                    writer.setValue(result.error());
+                    writer.endNode();
+                }
+                writer.endNode();
+            }
+            writer.endNode();
+        }
+        writer.endNode();
+    }
+
+    @Override
+    public JsonElement serialize(final BulkSmsInfo info, final Type type, final JsonSerializationContext context) {
+        final JsonObject object = new JsonObject();
+        writeSid(info.sid(), object);
+        writeAccountSid(info.accountSid(), object);
+        writeStatus(info.status().toString(), object);
+        writeDateCreated(info.dateCreated(), object);
+        writeDateUpdated(info.dateUpdated(), object);
+        writeFrom(info.from(), object);
+        object.addProperty("body", info.body());
+        object.addProperty("total", info.total());
+        object.addProperty("queued", info.queued());
+        object.addProperty("sending", info.sending());
+        object.addProperty("sent", info.sent());
+        object.addProperty("failed", info.failed());
+        object.addProperty("canceled", info.canceled());
+        writeUri(uri(info), object);
+        if (info.results() != null) {
+            final JsonArray results = new JsonArray();
+            for (final BulkSmsResult result : info.results()) {
+                final JsonObject element = new JsonObject();
+                writeTo(result.to(), element);
+                if (result.smsSid() != null) {
+                    element.addProperty("sms_sid", result.smsSid().toString());
+                }
+                writeStatus(result.status().toString(), element);
+                if (result.error() != null) {
+                    element.addProperty("error", result.error());
+                }
+                results.add(element);
+            }
+            object.add("results", results);
+        }
+        return object;
+    }
+
+    private URI uri(final BulkSmsInfo info) {
+        return URI.create(rootUri + apiVersion + "/Accounts/" + info.accountSid() + "/SMS/BulkMessages/" + info.sid());
+    }
+
+    private void writeCount(final String name, final int count, final HierarchicalStreamWriter writer) {
+        writer.startNode(name);
+        writer.setValue(Integer.toString(count));
+        writer.endNode();
+    }
+
+    private void writeSmsSid(final Sid smsSid, final HierarchicalStreamWriter writer) {
+        if (smsSid != null) {
+            writer.startNode("SmsSid");
+            writer.setValue(smsSid.toString());
+            writer.endNode();
+        }
+    }
+}
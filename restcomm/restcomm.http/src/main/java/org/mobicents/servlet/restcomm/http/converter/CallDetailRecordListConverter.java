@@ -20,6 +20,8 @@
 package org.mobicents.servlet.restcomm.http.converter;
 
 import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.configuration.Configuration;
 import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
@@ -27,6 +29,7 @@ import org.mobicents.servlet.restcomm.entities.CallDetailRecord;
 import org.mobicents.servlet.restcomm.entities.CallDetailRecordList;
 
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
@@ -42,6 +45,8 @@ public final class CallDetailRecordListConverter extends AbstractConverter imple
 
     Integer page, pageSize, total;
     String pathUri;
+    // Keyset pagination, used instead of the page number when the list was read after a page token.
+    String nextPageToken;
 
     public CallDetailRecordListConverter(final Configuration configuration) {
         super(configuration);
@@ -60,17 +65,29 @@ public final class CallDetailRecordListConverter extends AbstractConverter imple
         final CallDetailRecordList list = (CallDetailRecordList) object;
 
         writer.startNode("Calls");
+        if (page == null) {
+            writer.addAttribute("pagesize", String.valueOf(pageSize));
+            writer.addAttribute("uri", pathUri);
+            writer.addAttribute("firstpageuri", getFirstPageTokenUri(pageSize, pathUri));
+            writer.addAttribute("nextpageuri", getNextPageTokenUri(pageSize, pathUri, nextPageToken));
+            for (final CallDetailRecord cdr : list.getCallDetailRecords()) {
+                context.convertAnother(cdr);
+            }
+            writer.endNode();
+            return;
+        }
+        final int size = list.getCallDetailRecords().size();
         writer.addAttribute("page", String.valueOf(page));
-        writer.addAttribute("numpages", String.valueOf(getTotalPages()));
+        writer.addAttribute("numpages", String.valueOf(getTotalPages(pageSize, total)));
         writer.addAttribute("pagesize", String.valueOf(pageSize));
-        writer.addAttribute("total", String.valueOf(getTotalPages()));
-        writer.addAttribute("start", getFirstIndex());
-        writer.addAttribute("end", getLastIndex(list));
+        writer.addAttribute("total", String.valueOf(getTotalPages(pageSize, total)));
+        writer.addAttribute("start", getFirstIndex(page, pageSize));
+        writer.addAttribute("end", getLastIndex(page, pageSize, total, size));
         writer.addAttribute("uri", pathUri);
-        writer.addAttribute("firstpageuri", getFirstPageUri());
-        writer.addAttribute("previouspageuri", getPreviousPageUri());
-        writer.addAttribute("nextpageuri", getNextPageUri(list));
-        writer.addAttribute("lastpageuri", getLastPageUri());
+        writer.addAttribute("firstpageuri", getFirstPageUri(pageSize, pathUri));
+        writer.addAttribute("previouspageuri", getPreviousPageUri(page, pageSize, pathUri));
+        writer.addAttribute("nextpageuri", getNextPageUri(page, pageSize, total, pathUri, getLastSid(list)));
+        writer.addAttribute("lastpageuri", getLastPageUri(pageSize, total, pathUri));
 
         for (final CallDetailRecord cdr : list.getCallDetailRecords()) {
             context.convertAnother(cdr);
@@ -90,18 +107,17 @@ public final class CallDetailRecordListConverter extends AbstractConverter imple
             array.add(context.serialize(cdr));
         }
 
-        if (total != null && pageSize != null && page != null) {
-            result.addProperty("page", page);
-            result.addProperty("num_pages", getTotalPages());
-            result.addProperty("page_size", pageSize);
-            result.addProperty("total", total);
-            result.addProperty("start", getFirstIndex());
-            result.addProperty("end", getLastIndex(cdrList));
-            result.addProperty("uri", pathUri);
-            result.addProperty("first_page_uri", getFirstPageUri());
-            result.addProperty("previous_page_uri", getPreviousPageUri());
-            result.addProperty("next_page_uri", getNextPageUri(cdrList));
-            result.addProperty("last_page_uri", getLastPageUri());
+        JsonObject properties = null;
+        if (page == null && pageSize != null) {
+            properties = getPageTokenProperties(pageSize, pathUri, nextPageToken);
+        } else if (total != null && pageSize != null && page != null) {
+            properties = getPageProperties(page, pageSize, total, pathUri, cdrList.getCallDetailRecords().size(),
+                    getLastSid(cdrList));
+        }
+        if (properties != null) {
+            for (Map.Entry<String, JsonElement> property : properties.entrySet()) {
+                result.add(property.getKey(), property.getValue());
+            }
         }
 
         result.add("calls", array);
@@ -109,35 +125,78 @@ public final class CallDetailRecordListConverter extends AbstractConverter imple
         return result;
     }
 
-    private int getTotalPages() {
+    /**
+     * The properties of a page read with an offset, 'size' is the number of calls in the page.
+     */
+    public JsonObject getPageProperties(int page, int pageSize, int total, String pathUri, int size, String lastSid) {
+        JsonObject result = new JsonObject();
+        result.addProperty("page", page);
+        result.addProperty("num_pages", getTotalPages(pageSize, total));
+        result.addProperty("page_size", pageSize);
+        result.addProperty("total", total);
+        result.addProperty("start", getFirstIndex(page, pageSize));
+        result.addProperty("end", getLastIndex(page, pageSize, total, size));
+        result.addProperty("uri", pathUri);
+        result.addProperty("first_page_uri", getFirstPageUri(pageSize, pathUri));
+        result.addProperty("previous_page_uri", getPreviousPageUri(page, pageSize, pathUri));
+        result.addProperty("next_page_uri", getNextPageUri(page, pageSize, total, pathUri, lastSid));
+        result.addProperty("last_page_uri", getLastPageUri(pageSize, total, pathUri));
+        return result;
+    }
+
+    /**
+     * The properties of a page read after a page token.
+     */
+    public JsonObject getPageTokenProperties(int pageSize, String pathUri, String nextPageToken) {
+        JsonObject result = new JsonObject();
+        result.addProperty("page_size", pageSize);
+        result.addProperty("uri", pathUri);
+        result.addProperty("first_page_uri", getFirstPageTokenUri(pageSize, pathUri));
+        result.addProperty("next_page_uri", getNextPageTokenUri(pageSize, pathUri, nextPageToken));
+        return result;
+    }
+
+    private static String getLastSid(CallDetailRecordList list) {
+        final List<CallDetailRecord> cdrs = list.getCallDetailRecords();
+        return cdrs.isEmpty() ? null : cdrs.get(cdrs.size() - 1).getSid().toString();
+    }
+
+    private static int getTotalPages(int pageSize, int total) {
         return total / pageSize;
     }
 
-    private String getFirstIndex() {
+    private static String getFirstIndex(int page, int pageSize) {
         return String.valueOf(page * pageSize);
     }
 
-    private String getLastIndex(CallDetailRecordList list) {
-        return String.valueOf((page == getTotalPages()) ? (page * pageSize) + list.getCallDetailRecords().size()
+    private static String getLastIndex(int page, int pageSize, int total, int size) {
+        return String.valueOf((page == getTotalPages(pageSize, total)) ? (page * pageSize) + size
                 : (pageSize - 1) + (page * pageSize));
     }
 
-    private String getFirstPageUri() {
+    private static String getFirstPageUri(int pageSize, String pathUri) {
         return pathUri + "?Page=0&PageSize=" + pageSize;
     }
 
-    private String getPreviousPageUri() {
+    private static String getPreviousPageUri(int page, int pageSize, String pathUri) {
         return ((page == 0) ? "null" : pathUri + "?Page=" + (page - 1) + "&PageSize=" + pageSize);
     }
 
-    private String getNextPageUri(CallDetailRecordList list) {
-        String lastSid = (page == getTotalPages()) ? "null" : list.getCallDetailRecords().get(pageSize - 1).getSid().toString();
-        return (page == getTotalPages()) ? "null" : pathUri + "?Page=" + (page + 1) + "&PageSize=" + pageSize + "&AfterSid="
-                + lastSid;
+    private static String getNextPageUri(int page, int pageSize, int total, String pathUri, String lastSid) {
+        return (page == getTotalPages(pageSize, total)) ? "null" : pathUri + "?Page=" + (page + 1) + "&PageSize="
+                + pageSize + "&AfterSid=" + lastSid;
+    }
+
+    private static String getLastPageUri(int pageSize, int total, String pathUri) {
+        return pathUri + "?Page=" + getTotalPages(pageSize, total) + "&PageSize=" + pageSize;
     }
 
-    private String getLastPageUri() {
-        return pathUri + "?Page=" + getTotalPages() + "&PageSize=" + pageSize;
+    private static String getFirstPageTokenUri(int pageSize, String pathUri) {
+        return pathUri + "?PageSize=" + pageSize + "&PageToken=";
+    }
+
+    private static String getNextPageTokenUri(int pageSize, String pathUri, String nextPageToken) {
+        return (nextPageToken == null) ? "null" : pathUri + "?PageSize=" + pageSize + "&PageToken=" + nextPageToken;
     }
 
     public void setPage(Integer page) {
@@ -156,4 +215,8 @@ public final class CallDetailRecordListConverter extends AbstractConverter imple
         this.pathUri = pathUri;
     }
 
+    public void setNextPageToken(String nextPageToken) {
+        this.nextPageToken = nextPageToken;
+    }
+
 }
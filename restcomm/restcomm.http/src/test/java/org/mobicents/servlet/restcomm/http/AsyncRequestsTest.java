@@ -0,0 +1,366 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.Response;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import scala.concurrent.Promise;
+import akka.actor.ActorSystem;
+import akka.dispatch.Futures;
+
+import com.sun.jersey.api.core.DefaultResourceConfig;
+import com.sun.jersey.core.header.InBoundHeaders;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
+import com.sun.jersey.spi.container.WebApplication;
+import com.sun.jersey.spi.container.WebApplicationFactory;
+
+public final class AsyncRequestsTest {
+    private ActorSystem system;
+    private ServletContext context;
+    private AsyncRequests requests;
+
+    @Before
+    public void before() {
+        system = ActorSystem.create();
+        final Configuration configuration = new BaseConfiguration();
+        configuration.setProperty("async-requests.timeout", "1000");
+        configuration.setProperty("async-requests.max-concurrent-requests", "1");
+        final Map<String, Object> attributes = new HashMap<String, Object>();
+        attributes.put(Configuration.class.getName(), configuration);
+        attributes.put(ActorSystem.class.getName(), system);
+        context = (ServletContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { ServletContext.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] arguments) {
+                        if ("getAttribute".equals(method.getName())) {
+                            return attributes.get(arguments[0]);
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        requests = new AsyncRequests("test");
+    }
+
+    @After
+    public void after() {
+        system.shutdown();
+    }
+
+    private static AsyncRequests.Continuation ok() {
+        return new AsyncRequests.Continuation() {
+            @Override
+            public Response resume(final Object reply) {
+                return Response.ok(reply).build();
+            }
+        };
+    }
+
+    // Tells whether a request could take the only permit of the endpoint, and gives it back.
+    private boolean isPermitAvailable() throws Exception {
+        final StubRequest request = new StubRequest(context);
+        final Promise<Object> reply = Futures.promise();
+        if (requests.suspend(request.proxy, reply.future(), ok()) != null) {
+            return false;
+        }
+        reply.success("done");
+        request.redispatch(requests);
+        return true;
+    }
+
+    @Test
+    public void testReplyResumesTheRequest() throws Exception {
+        final StubRequest request = new StubRequest(context);
+        final Promise<Object> reply = Futures.promise();
+        assertNull(requests.suspend(request.proxy, reply.future(), ok()));
+        assertFalse(requests.isResumed(request.proxy));
+        reply.success("reply");
+        final Response response = request.redispatch(requests);
+        assertEquals(200, response.getStatus());
+        assertEquals("reply", response.getEntity());
+        assertTrue(isPermitAvailable());
+    }
+
+    @Test
+    public void testRequestsOverTheLimitAreRejected() throws Exception {
+        final StubRequest request = new StubRequest(context);
+        final Promise<Object> reply = Futures.promise();
+        assertNull(requests.suspend(request.proxy, reply.future(), ok()));
+        final Response rejected = requests.suspend(new StubRequest(context).proxy, Futures.promise().future(), ok());
+        assertEquals(503, rejected.getStatus());
+        assertEquals("1", String.valueOf(rejected.getMetadata().getFirst("Retry-After")));
+        reply.success("reply");
+        request.redispatch(requests);
+        assertTrue(isPermitAvailable());
+    }
+
+    @Test
+    public void testPermitIsReleasedOnTimeout() throws Exception {
+        final StubRequest request = new StubRequest(context);
+        assertNull(requests.suspend(request.proxy, Futures.promise().future(), ok()));
+        for (final AsyncListener listener : request.async.listeners()) {
+            listener.onTimeout(new AsyncEvent(request.async.proxy));
+        }
+        final Response response = request.redispatch(requests);
+        assertEquals(500, response.getStatus());
+        assertTrue(String.valueOf(response.getEntity()).contains("timed out"));
+        assertTrue(isPermitAvailable());
+    }
+
+    @Test
+    public void testPermitIsReleasedOnError() throws Exception {
+        final StubRequest request = new StubRequest(context);
+        assertNull(requests.suspend(request.proxy, Futures.promise().future(), ok()));
+        for (final AsyncListener listener : request.async.listeners()) {
+            listener.onError(new AsyncEvent(request.async.proxy, new IOException("Connection reset by peer")));
+        }
+        final Response response = request.redispatch(requests);
+        assertEquals(500, response.getStatus());
+        assertEquals("Connection reset by peer", response.getEntity());
+        assertTrue(isPermitAvailable());
+    }
+
+    @Test
+    public void testPermitIsReleasedWhenTheResourceFailsBeforeResuming() throws Exception {
+        final StubRequest request = new StubRequest(context);
+        final Promise<Object> reply = Futures.promise();
+        assertNull(requests.suspend(request.proxy, reply.future(), ok()));
+        reply.success("reply");
+        request.awaitDispatch();
+        // The resource method throws, i.e. on authentication, so resume() is never called and the cycle completes.
+        request.complete();
+        assertTrue(isPermitAvailable());
+    }
+
+    @Test
+    public void testContinuationSuspendingAgainKeepsItsPermit() throws Exception {
+        final StubRequest request = new StubRequest(context);
+        final Promise<Object> first = Futures.promise();
+        final Promise<Object> second = Futures.promise();
+        assertNull(requests.suspend(request.proxy, first.future(), new AsyncRequests.Continuation() {
+            @Override
+            public Response resume(final Object reply) {
+                return requests.suspend(request.proxy, second.future(), ok());
+            }
+        }));
+        first.success("first");
+        assertNull(request.redispatch(requests));
+        assertTrue(request.asyncStarted);
+        // Still holding the only permit.
+        final Response rejected = requests.suspend(new StubRequest(context).proxy, Futures.promise().future(), ok());
+        assertEquals(503, rejected.getStatus());
+        second.success("second");
+        final Response response = request.redispatch(requests);
+        assertEquals("second", response.getEntity());
+        assertTrue(isPermitAvailable());
+    }
+
+    @Test
+    public void testJerseyWritesANullResponseAsNoContent() throws Exception {
+        final WebApplication application = WebApplicationFactory.createWebApplication();
+        application.initiate(new DefaultResourceConfig(SuspendingResource.class));
+        final ByteArrayOutputStream entity = new ByteArrayOutputStream();
+        final List<Long> lengths = new ArrayList<Long>();
+        final List<Integer> statuses = new ArrayList<Integer>();
+        final CountDownLatch finished = new CountDownLatch(1);
+        final URI base = URI.create("http://127.0.0.1:8080/restcomm/");
+        final ContainerRequest request = new ContainerRequest(application, "GET", base, base.resolve("suspending"),
+                new InBoundHeaders(), new ByteArrayInputStream(new byte[0]));
+        application.handleRequest(request, new ContainerResponseWriter() {
+            @Override
+            public OutputStream writeStatusAndHeaders(final long length, final ContainerResponse response) {
+                lengths.add(length);
+                statuses.add(response.getStatus());
+                return entity;
+            }
+
+            @Override
+            public void finish() {
+                finished.countDown();
+            }
+        });
+        // A bodiless 204 without content length, the dispatched request sets its own status and entity.
+        assertEquals(1, statuses.size());
+        assertEquals(204, (int) statuses.get(0));
+        assertEquals(-1, (long) lengths.get(0));
+        assertEquals(0, entity.size());
+        assertEquals(0, finished.getCount());
+    }
+
+    @Path("/suspending")
+    public static final class SuspendingResource {
+        @GET
+        public Response get() {
+            // What a resource method returns once AsyncRequests suspended the request.
+            return null;
+        }
+    }
+
+    // A servlet request going through asynchronous cycles the way Servlet 3 containers run them.
+    private static final class StubRequest implements InvocationHandler {
+        private final ServletContext context;
+        private final Map<String, Object> attributes;
+        private final HttpServletRequest proxy;
+        private volatile StubAsyncContext async;
+        private volatile boolean asyncStarted;
+        private volatile DispatcherType dispatcherType;
+
+        private StubRequest(final ServletContext context) {
+            this.context = context;
+            this.attributes = new HashMap<String, Object>();
+            this.proxy = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { HttpServletRequest.class }, this);
+            this.dispatcherType = DispatcherType.REQUEST;
+        }
+
+        @Override
+        public synchronized Object invoke(final Object proxy, final Method method, final Object[] arguments)
+                throws Throwable {
+            final String name = method.getName();
+            if ("getAttribute".equals(name)) {
+                return attributes.get(arguments[0]);
+            } else if ("setAttribute".equals(name)) {
+                attributes.put((String) arguments[0], arguments[1]);
+                return null;
+            } else if ("removeAttribute".equals(name)) {
+                attributes.remove(arguments[0]);
+                return null;
+            } else if ("getServletContext".equals(name)) {
+                return context;
+            } else if ("startAsync".equals(name) && arguments == null) {
+                if (asyncStarted) {
+                    throw new IllegalStateException("Already in asynchronous mode");
+                }
+                // The listeners of the previous cycle are told and get no more events.
+                final StubAsyncContext previous = async;
+                async = new StubAsyncContext(this.proxy);
+                if (previous != null) {
+                    for (final AsyncListener listener : previous.listeners()) {
+                        listener.onStartAsync(new AsyncEvent(async.proxy));
+                    }
+                }
+                asyncStarted = true;
+                return async.proxy;
+            } else if ("isAsyncStarted".equals(name)) {
+                return asyncStarted;
+            } else if ("getDispatcherType".equals(name)) {
+                return dispatcherType;
+            } else if ("getRequestURI".equals(name)) {
+                return "/restcomm/2012-04-24/Accounts/ACae6e420f425248d6a26948c17a9e2acf/Calls";
+            }
+            throw new UnsupportedOperationException(name);
+        }
+
+        private void awaitDispatch() throws InterruptedException {
+            assertTrue(async.dispatched.await(5, TimeUnit.SECONDS));
+            dispatcherType = DispatcherType.ASYNC;
+            asyncStarted = false;
+        }
+
+        // Runs the resource method of the dispatched request and completes the cycle unless it suspended again.
+        private Response redispatch(final AsyncRequests requests) throws Exception {
+            final StubAsyncContext cycle = async;
+            awaitDispatch();
+            assertTrue(requests.isResumed(proxy));
+            final Response response = requests.resume(proxy);
+            if (async == cycle) {
+                complete();
+            }
+            return response;
+        }
+
+        private void complete() throws IOException {
+            for (final AsyncListener listener : async.listeners()) {
+                listener.onComplete(new AsyncEvent(async.proxy));
+            }
+        }
+    }
+
+    private static final class StubAsyncContext implements InvocationHandler {
+        private final HttpServletRequest request;
+        private final AsyncContext proxy;
+        private final List<AsyncListener> listeners;
+        private final CountDownLatch dispatched;
+
+        private StubAsyncContext(final HttpServletRequest request) {
+            this.request = request;
+            this.proxy = (AsyncContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { AsyncContext.class }, this);
+            this.listeners = new ArrayList<AsyncListener>();
+            this.dispatched = new CountDownLatch(1);
+        }
+
+        @Override
+        public synchronized Object invoke(final Object proxy, final Method method, final Object[] arguments) {
+            final String name = method.getName();
+            if ("setTimeout".equals(name)) {
+                return null;
+            } else if ("addListener".equals(name) && arguments.length == 1) {
+                listeners.add((AsyncListener) arguments[0]);
+                return null;
+            } else if ("dispatch".equals(name) && arguments == null) {
+                dispatched.countDown();
+                return null;
+            } else if ("getRequest".equals(name)) {
+                return request;
+            }
+            throw new UnsupportedOperationException(name);
+        }
+
+        private synchronized List<AsyncListener> listeners() {
+            return new ArrayList<AsyncListener>(listeners);
+        }
+    }
+}
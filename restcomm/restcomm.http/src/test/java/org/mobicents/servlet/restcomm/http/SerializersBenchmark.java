@@ -0,0 +1,161 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.joda.time.DateTime;
+import org.mobicents.servlet.restcomm.entities.RestCommResponse;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.entities.SmsMessage;
+import org.mobicents.servlet.restcomm.entities.SmsMessageList;
+import org.mobicents.servlet.restcomm.http.converter.RestCommResponseConverter;
+import org.mobicents.servlet.restcomm.http.converter.SmsMessageConverter;
+import org.mobicents.servlet.restcomm.http.converter.SmsMessageListConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.thoughtworks.xstream.XStream;
+
+/**
+ * Per request cost of serializing a SMS message and a list of 50 SMS messages, building XStream, Gson and the
+ * converters for the request like the endpoints used to do in their init() against using the shared {@link Serializers}.
+ * It is not part of the unit tests, run its main method with the test class path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SerializersBenchmark {
+    private static final Serializers serializers = new Serializers() {
+        @Override
+        protected void register(final XStream xstream, final Configuration configuration) {
+            xstream.registerConverter(new SmsMessageConverter(configuration));
+            xstream.registerConverter(new SmsMessageListConverter(configuration));
+            xstream.registerConverter(new RestCommResponseConverter(configuration));
+        }
+
+        @Override
+        protected void register(final GsonBuilder builder, final Configuration configuration) {
+            builder.registerTypeAdapter(SmsMessage.class, new SmsMessageConverter(configuration));
+        }
+    };
+
+    @Param({ "resource", "list" })
+    public String response;
+
+    private Configuration configuration;
+    private Object xml;
+    private Object json;
+
+    @Setup
+    public void setup() {
+        configuration = new BaseConfiguration();
+        configuration.addProperty("runtime-settings.api-version", "2012-04-24");
+        configuration.addProperty("runtime-settings.root-uri", "/restcomm");
+        final Sid accountSid = Sid.generate(Sid.Type.ACCOUNT);
+        final List<SmsMessage> messages = new ArrayList<SmsMessage>();
+        final int size = "list".equals(response) ? 50 : 1;
+        for (int i = 0; i < size; i++) {
+            final Sid sid = Sid.generate(Sid.Type.SMS_MESSAGE);
+            final SmsMessage.Builder builder = SmsMessage.builder();
+            builder.setSid(sid);
+            builder.setDateSent(DateTime.now());
+            builder.setAccountSid(accountSid);
+            builder.setSender("+15126002188");
+            builder.setRecipient("+15126002199");
+            builder.setBody("Your verification code is " + (100000 + i));
+            builder.setStatus(SmsMessage.Status.SENT);
+            builder.setDirection(SmsMessage.Direction.OUTBOUND_API);
+            builder.setPrice(new BigDecimal("0.00"));
+            builder.setPriceUnit(Currency.getInstance("USD"));
+            builder.setApiVersion("2012-04-24");
+            builder.setUri(URI.create("/2012-04-24/Accounts/" + accountSid + "/SMS/Messages/" + sid));
+            messages.add(builder.build());
+        }
+        if (size == 1) {
+            xml = new RestCommResponse(messages.get(0));
+            json = messages.get(0);
+        } else {
+            xml = new RestCommResponse(new SmsMessageList(messages));
+            json = messages;
+        }
+    }
+
+    @Benchmark
+    public String perRequestXml() {
+        final Configuration runtime = configuration.subset("runtime-settings");
+        final XStream xstream = new XStream();
+        xstream.alias("RestcommResponse", RestCommResponse.class);
+        xstream.registerConverter(new SmsMessageConverter(runtime));
+        xstream.registerConverter(new SmsMessageListConverter(runtime));
+        xstream.registerConverter(new RestCommResponseConverter(runtime));
+        return xstream.toXML(xml);
+    }
+
+    @Benchmark
+    public String sharedXml() {
+        return serializers.getXStream(configuration).toXML(xml);
+    }
+
+    @Benchmark
+    public String perRequestJson() {
+        final Configuration runtime = configuration.subset("runtime-settings");
+        final GsonBuilder builder = new GsonBuilder();
+        builder.registerTypeAdapter(SmsMessage.class, new SmsMessageConverter(runtime));
+        builder.setPrettyPrinting();
+        final Gson gson = builder.create();
+        return gson.toJson(json);
+    }
+
+    @Benchmark
+    public String sharedJson() {
+        return serializers.getGson(configuration).toJson(json);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder().include(SerializersBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
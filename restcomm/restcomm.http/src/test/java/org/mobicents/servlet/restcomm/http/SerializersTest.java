@@ -0,0 +1,131 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.entities.CallDetailRecord;
+import org.mobicents.servlet.restcomm.entities.CallDetailRecordList;
+import org.mobicents.servlet.restcomm.entities.RestCommResponse;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.http.converter.CallDetailRecordConverter;
+import org.mobicents.servlet.restcomm.http.converter.CallDetailRecordListConverter;
+import org.mobicents.servlet.restcomm.http.converter.RestCommResponseConverter;
+
+import com.google.gson.GsonBuilder;
+import com.thoughtworks.xstream.XStream;
+
+public final class SerializersTest {
+    private static final Serializers serializers = new Serializers() {
+        @Override
+        protected void register(final XStream xstream, final Configuration configuration) {
+            xstream.registerConverter(new CallDetailRecordConverter(configuration));
+            xstream.registerConverter(new CallDetailRecordListConverter(configuration));
+            xstream.registerConverter(new RestCommResponseConverter(configuration));
+        }
+
+        @Override
+        protected void register(final GsonBuilder builder, final Configuration configuration) {
+            builder.registerTypeAdapter(CallDetailRecord.class, new CallDetailRecordConverter(configuration));
+        }
+    };
+
+    private Configuration configuration;
+    private RestCommResponse response;
+
+    @Before
+    public void before() {
+        configuration = new BaseConfiguration();
+        configuration.addProperty("runtime-settings.api-version", "2012-04-24");
+        configuration.addProperty("runtime-settings.root-uri", "/restcomm");
+        final Sid accountSid = Sid.generate(Sid.Type.ACCOUNT);
+        final List<CallDetailRecord> cdrs = new ArrayList<CallDetailRecord>();
+        for (int i = 0; i < 3; i++) {
+            final Sid sid = Sid.generate(Sid.Type.CALL);
+            final CallDetailRecord.Builder builder = CallDetailRecord.builder();
+            builder.setSid(sid);
+            builder.setDateCreated(DateTime.now());
+            builder.setAccountSid(accountSid);
+            builder.setTo("+1512600219" + i);
+            builder.setFrom("+15126002188");
+            builder.setStatus("completed");
+            builder.setStartTime(DateTime.now());
+            builder.setEndTime(DateTime.now());
+            builder.setDuration(10 + i);
+            builder.setPrice(new BigDecimal("0.00"));
+            builder.setPriceUnit(Currency.getInstance("USD"));
+            builder.setDirection("outbound-api");
+            builder.setApiVersion("2012-04-24");
+            builder.setUri(URI.create("/2012-04-24/Accounts/" + accountSid + "/Calls/" + sid));
+            cdrs.add(builder.build());
+        }
+        response = new RestCommResponse(new CallDetailRecordList(cdrs));
+    }
+
+    // The endpoints used to register the converter holding the paging of the request on an XStream of their own.
+    private String expected(final CallDetailRecordListConverter paging) {
+        final Configuration runtime = configuration.subset("runtime-settings");
+        final XStream xstream = new XStream();
+        xstream.alias("RestcommResponse", RestCommResponse.class);
+        xstream.registerConverter(new CallDetailRecordConverter(runtime));
+        xstream.registerConverter(new CallDetailRecordListConverter(runtime));
+        xstream.registerConverter(new RestCommResponseConverter(runtime));
+        xstream.registerConverter(paging);
+        return xstream.toXML(response);
+    }
+
+    @Test
+    public void testPagedListIsWrittenLikeXStream() {
+        final CallDetailRecordListConverter paging = new CallDetailRecordListConverter(
+                configuration.subset("runtime-settings"));
+        paging.setCount(53);
+        paging.setPage(1);
+        paging.setPageSize(3);
+        paging.setPathUri("/restcomm/2012-04-24/Accounts/ACae6e420f425248d6a26948c17a9e2acf/Calls");
+        paging.setNextPageToken(null);
+        final String xml = Serializers.toXML(serializers.getXStream(configuration), response, paging);
+        assertTrue(xml.contains("page=\"1\""));
+        assertEquals(expected(paging), xml);
+    }
+
+    @Test
+    public void testTokenPagedListIsWrittenLikeXStream() {
+        final CallDetailRecordListConverter paging = new CallDetailRecordListConverter(
+                configuration.subset("runtime-settings"));
+        paging.setPageSize(3);
+        paging.setPathUri("/restcomm/2012-04-24/Accounts/ACae6e420f425248d6a26948c17a9e2acf/Calls");
+        paging.setNextPageToken("CA00000000000000000000000000000001");
+        final String xml = Serializers.toXML(serializers.getXStream(configuration), response, paging);
+        assertTrue(xml.contains("nextpageuri"));
+        assertEquals(expected(paging), xml);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.http.Header;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+public final class HttpResponseCacheTest {
+    private final HttpRequestDescriptor request = new HttpRequestDescriptor(URI.create("http://127.0.0.1/rcml.xml"), "GET",
+            new ArrayList<NameValuePair>(), true);
+
+    private static HttpResponseDescriptor response(final Header... headers) {
+        final HttpResponseDescriptor.Builder builder = HttpResponseDescriptor.builder();
+        builder.setStatusCode(HttpStatus.SC_OK);
+        builder.setContent("<Response><Hangup/></Response>");
+        builder.setHeaders(headers);
+        return builder.build();
+    }
+
+    @Test
+    public void testFreshResponsesAreServedFromTheCache() {
+        final HttpResponseCache cache = new HttpResponseCache(10, 0, Collections.<String> emptySet());
+        final HttpResponseDescriptor response = response(new BasicHeader("Cache-Control", "max-age=60"));
+        assertNull(cache.get(request));
+        cache.put(request, response);
+        assertSame(response, cache.get(request));
+        final Map<String, Integer> counters = new HashMap<String, Integer>();
+        cache.counters(counters);
+        assertEquals(1, (int) counters.get("RcmlCacheHits"));
+        assertEquals(1, (int) counters.get("RcmlCacheMisses"));
+        assertEquals(1, (int) counters.get("RcmlCacheSize"));
+    }
+
+    @Test
+    public void testPrivateAndNoStoreResponsesAreNotStored() {
+        final HttpResponseCache cache = new HttpResponseCache(10, 60, Collections.<String> emptySet());
+        cache.put(request, response(new BasicHeader("Cache-Control", "private, max-age=60")));
+        assertNull(cache.get(request));
+        cache.put(request, response(new BasicHeader("Cache-Control", "no-store")));
+        assertNull(cache.get(request));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEntryIsDroppedWhenItMayNotBeStoredAnymore() {
+        final HttpResponseCache cache = new HttpResponseCache(10, 0, Collections.<String> emptySet());
+        cache.put(request, response(new BasicHeader("Cache-Control", "max-age=60")));
+        assertEquals(1, cache.size());
+        cache.put(request, response(new BasicHeader("Cache-Control", "private")));
+        assertEquals(0, cache.size());
+
+        final HttpResponseDescriptor stale = response(new BasicHeader("Cache-Control", "no-cache"),
+                new BasicHeader("ETag", "\"v1\""));
+        cache.put(request, stale);
+        assertEquals(1, cache.size());
+        final BasicHttpResponse notModified = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_NOT_MODIFIED,
+                "Not Modified");
+        notModified.addHeader("Cache-Control", "no-store");
+        assertSame(stale, cache.revalidated(request, stale, notModified));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testRedirectedResponseIsStoredUnderItsOwnUri() {
+        final HttpResponseCache cache = new HttpResponseCache(10, 0, Collections.<String> emptySet());
+        final HttpRequestDescriptor redirected = new HttpRequestDescriptor(URI.create("http://127.0.0.1/moved/rcml.xml"),
+                "GET", new ArrayList<NameValuePair>(), true);
+        final HttpResponseDescriptor response = response(new BasicHeader("Cache-Control", "max-age=60"),
+                new BasicHeader("ETag", "\"v1\""));
+        cache.put(redirected, response);
+        assertSame(response, cache.get(redirected));
+        assertNull(cache.get(request));
+        // The validators of a hop are only sent to the URI they came from.
+        final HttpGet get = new HttpGet(request.getUri());
+        assertNull(cache.validate(request, get));
+        assertNull(get.getFirstHeader("If-None-Match"));
+        // The document follows the response whatever request it was fetched for.
+        final Object document = new Object();
+        cache.setDocument(response, document);
+        assertSame(document, cache.getDocument(response));
+        cache.put(redirected, response(new BasicHeader("Cache-Control", "max-age=60")));
+        assertNull(cache.getDocument(response));
+    }
+}
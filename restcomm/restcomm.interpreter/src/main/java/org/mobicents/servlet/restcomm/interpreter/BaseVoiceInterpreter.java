@@ -38,6 +38,8 @@ import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
+import javax.xml.stream.XMLStreamException;
+
 import org.apache.commons.configuration.Configuration;
 import org.apache.http.NameValuePair;
 import org.apache.http.message.BasicNameValuePair;
@@ -54,9 +56,8 @@ import org.mobicents.servlet.restcomm.cache.DiskCache;
 import org.mobicents.servlet.restcomm.cache.DiskCacheRequest;
 import org.mobicents.servlet.restcomm.cache.DiskCacheResponse;
 import org.mobicents.servlet.restcomm.cache.HashGenerator;
-import org.mobicents.servlet.restcomm.dao.CallDetailRecordsDao;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
-import org.mobicents.servlet.restcomm.dao.NotificationsDao;
+import org.mobicents.servlet.restcomm.dao.RecordWriter;
 import org.mobicents.servlet.restcomm.dao.RecordingsDao;
 import org.mobicents.servlet.restcomm.dao.SmsMessagesDao;
 import org.mobicents.servlet.restcomm.dao.TranscriptionsDao;
@@ -78,6 +79,7 @@ import org.mobicents.servlet.restcomm.fsm.Transition;
 import org.mobicents.servlet.restcomm.http.client.Downloader;
 import org.mobicents.servlet.restcomm.http.client.DownloaderResponse;
 import org.mobicents.servlet.restcomm.http.client.HttpRequestDescriptor;
+import org.mobicents.servlet.restcomm.http.client.HttpResponseCache;
 import org.mobicents.servlet.restcomm.http.client.HttpResponseDescriptor;
 import org.mobicents.servlet.restcomm.interpreter.rcml.Attribute;
 import org.mobicents.servlet.restcomm.interpreter.rcml.GetNextVerb;
@@ -171,9 +173,13 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
     FiniteStateMachine fsm = null;
     // The user specific configuration.
     Configuration configuration = null;
+    // The node wide services, null when the interpreter creates its own.
+    InterpreterServices services = null;
     // The block storage cache.
     ActorRef cache = null;
     String cachePath = null;
+    // The sub directory of the shared block storage cache.
+    String cacheScope = null;
     // The downloader will fetch resources for us using HTTP.
     ActorRef downloader = null;
     // The mail man that will deliver e-mail.
@@ -193,6 +199,8 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
     Map<Sid, ActorRef> smsSessions = null;
     // The storage engine.
     DaoManager storage = null;
+    // Writes the call detail records and notifications on the database dispatcher.
+    RecordWriter writer = null;
     // The text to speech synthesizer service.
     ActorRef synthesizer = null;
     // The languages supported by the automatic speech recognition service.
@@ -231,6 +239,8 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
     URI statusCallback;
     String statusCallbackMethod;
     String emailAddress;
+    // True if the RCML of the application may be served from the HttpResponseCache.
+    boolean cacheRcml;
     // application data.
     HttpRequestDescriptor request;
     HttpRequestDescriptor requestCallback;
@@ -386,6 +396,9 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
     abstract List<NameValuePair> parameters();
 
     ActorRef asr(final Configuration configuration) {
+        if (services != null && services.getRecognizer() != null) {
+            return services.getRecognizer();
+        }
         final UntypedActorContext context = getContext();
         return context.actorOf(new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
@@ -427,6 +440,9 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
     }
 
     ActorRef fax(final Configuration configuration) {
+        if (services != null && services.getFax() != null) {
+            return services.getFax();
+        }
         final UntypedActorContext context = getContext();
         return context.actorOf(new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
@@ -473,6 +489,11 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
     }
 
     ActorRef cache(final String path, final String uri) {
+        if (services != null) {
+            // The shared cache keeps the files of every account in a sub directory named after the account
+            cacheScope = accountId.toString();
+            return services.getCache();
+        }
         final UntypedActorContext context = getContext();
         return context.actorOf(new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
@@ -485,6 +506,9 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
     }
 
     ActorRef downloader() {
+        if (services != null) {
+            return services.getDownloader();
+        }
         final UntypedActorContext context = getContext();
         return context.actorOf(new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
@@ -517,7 +541,11 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
         parser.tell(next, self);
     }
 
-    ActorRef mailer(final Configuration configuration) {
+    ActorRef mailer(final String name) {
+        if (services != null && services.getMailer(name) != null) {
+            return services.getMailer(name);
+        }
+        final Configuration configuration = this.configuration.subset(name);
         final UntypedActorContext context = getContext();
         return context.actorOf(new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
@@ -594,13 +622,48 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
             }));
     }
 
+    /**
+     * Creates a parser for a downloaded RCML document. The tree of tags of a cacheable document is parsed once and
+     * shared with every other call through the {@link HttpResponseCache}.
+     */
+    ActorRef parser(final HttpRequestDescriptor request, final HttpResponseDescriptor response) throws IOException {
+        final String xml = response.getContentAsString();
+        if (!request.isCacheable()) {
+            return parser(xml);
+        }
+        final HttpResponseCache cache = HttpResponseCache.getInstance();
+        Tag document = (Tag) cache.getDocument(response);
+        if (document == null) {
+            try {
+                document = Parser.parse(xml);
+            } catch (final XMLStreamException exception) {
+                // Let the parser report the failure.
+                return parser(xml);
+            }
+            if (document == null) {
+                return parser(xml);
+            }
+            cache.setDocument(response, document);
+        }
+        final Tag parsed = document;
+        final UntypedActorContext context = getContext();
+        return context.actorOf(new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public UntypedActor create() {
+                return new Parser(parsed, xml, self());
+            }
+        }));
+    }
+
     void postCleanup() {
         if (smsSessions.isEmpty() && outstandingAsrRequests == 0) {
             final UntypedActorContext context = getContext();
             context.stop(self());
         }
         if (downloader != null && !downloader.isTerminated()) {
-            getContext().stop(downloader);
+            InterpreterServices.stop(getContext(), downloader);
         }
     }
 
@@ -640,7 +703,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
         buffer.append(notification.getResponseBody()).append("</br>");
         final Mail emailMsg = new Mail(EMAIL_SENDER,emailAddress,EMAIL_SUBJECT, buffer.toString());
         if (mailerNotify == null){
-            mailerNotify = mailer(configuration.subset("smtp-notify"));
+            mailerNotify = mailer("smtp-notify");
         }
         mailerNotify.tell(new EmailRequest(emailMsg), self());
     }
@@ -701,7 +764,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
             // Send the email.
             final Mail emailMsg = new Mail(from, to, subject, verb.text(),cc,bcc);
             if (mailerService == null){
-                mailerService = mailer(configuration.subset("smtp-service"));
+                mailerService = mailer("smtp-service");
             }
             mailerService.tell(new EmailRequest(emailMsg), self());
         }
@@ -739,6 +802,9 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
     }
 
     ActorRef tts(final Configuration configuration) {
+        if (services != null && services.getSynthesizer() != null) {
+            return services.getSynthesizer();
+        }
         final String classpath = configuration.getString("[@class]");
 
         final UntypedActorContext context = getContext();
@@ -820,8 +886,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
             }
             final Notification notification = notification(WARNING_NOTIFICATION, 21402, "URL Not Found : "
                     + response.get().getURI());
-            final NotificationsDao notifications = storage.getNotificationsDao();
-            notifications.addNotification(notification);
+            writer.addNotification(notification);
             // Hang up the call.
             call.tell(new org.mobicents.servlet.restcomm.telephony.NotFound(), source);
         }
@@ -876,8 +941,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                 uri = UriUtils.resolve(new URI(path));
             } catch (final Exception exception) {
                 final Notification notification = notification(ERROR_NOTIFICATION, 12400, exception.getMessage());
-                final NotificationsDao notifications = storage.getNotificationsDao();
-                notifications.addNotification(notification);
+                writer.addNotification(notification);
                 sendMail(notification);
                 final StopInterpreter stop = new StopInterpreter();
                 source.tell(stop, source);
@@ -955,8 +1019,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                         length = Integer.parseInt(number);
                     } catch (final NumberFormatException exception) {
                         final Notification notification = notification(WARNING_NOTIFICATION, 13910, "Invalid length value.");
-                        final NotificationsDao notifications = storage.getNotificationsDao();
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                     }
                 }
             }
@@ -983,7 +1046,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
             // return;
             // }
             String hash = hash(verb);
-            DiskCacheRequest request = new DiskCacheRequest(hash);
+            DiskCacheRequest request = new DiskCacheRequest(hash, cacheScope);
             if (logger.isErrorEnabled()) {
                 logger.info("Checking cache for hash: " + hash);
             }
@@ -1002,7 +1065,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
             final Class<?> klass = message.getClass();
             if (SpeechSynthesizerResponse.class.equals(klass)) {
                 final SpeechSynthesizerResponse<URI> response = (SpeechSynthesizerResponse<URI>) message;
-                final DiskCacheRequest request = new DiskCacheRequest(response.get());
+                final DiskCacheRequest request = new DiskCacheRequest(response.get(), cacheScope);
                 cache.tell(request, source);
             } else if (Tag.class.equals(klass)) {
                 if (Tag.class.equals(klass)) {
@@ -1017,8 +1080,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                         target = URI.create(text);
                     } catch (final Exception exception) {
                         final Notification notification = notification(ERROR_NOTIFICATION, 11100, text + " is an invalid URI.");
-                        final NotificationsDao notifications = storage.getNotificationsDao();
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                         sendMail(notification);
                         final StopInterpreter stop = new StopInterpreter();
                         source.tell(stop, source);
@@ -1026,7 +1088,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                     }
                     final URI base = request.getUri();
                     final URI uri = UriUtils.resolve(base, target);
-                    final DiskCacheRequest request = new DiskCacheRequest(uri);
+                    final DiskCacheRequest request = new DiskCacheRequest(uri, cacheScope);
                     cache.tell(request, source);
                 } else {
                     // Ask the parser for the next action to take.
@@ -1055,14 +1117,13 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                         try {
                             loop = Integer.parseInt(number);
                         } catch (final NumberFormatException ignored) {
-                            final NotificationsDao notifications = storage.getNotificationsDao();
                             Notification notification = null;
                             if (say.equals(verb.name())) {
                                 notification = notification(WARNING_NOTIFICATION, 13510, loop + " is an invalid loop value.");
-                                notifications.addNotification(notification);
+                                writer.addNotification(notification);
                             } else if (play.equals(verb.name())) {
                                 notification = notification(WARNING_NOTIFICATION, 13410, loop + " is an invalid loop value.");
-                                notifications.addNotification(notification);
+                                writer.addNotification(notification);
                             }
                         }
                     }
@@ -1110,8 +1171,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                 if (!"man".equals(voice) && !"woman".equals(voice)) {
                     final Notification notification = notification(WARNING_NOTIFICATION, 13511, voice
                             + " is an invalid voice value.");
-                    final NotificationsDao notifications = storage.getNotificationsDao();
-                    notifications.addNotification(notification);
+                    writer.addNotification(notification);
                     voice = "man";
                 }
             } else {
@@ -1202,7 +1262,6 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
             if (Tag.class.equals(klass)) {
                 verb = (Tag) message;
             }
-            final NotificationsDao notifications = storage.getNotificationsDao();
             String method = "POST";
             Attribute attribute = verb.attribute("method");
             if (attribute != null) {
@@ -1211,7 +1270,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                     if (!"GET".equalsIgnoreCase(method) && !"POST".equalsIgnoreCase(method)) {
                         final Notification notification = notification(WARNING_NOTIFICATION, 13710, method
                                 + " is not a valid HTTP method for <Redirect>");
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                         method = "POST";
                     }
                 } else {
@@ -1226,7 +1285,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                     target = URI.create(text);
                 } catch (final Exception exception) {
                     final Notification notification = notification(ERROR_NOTIFICATION, 11100, text + " is an invalid URI.");
-                    notifications.addNotification(notification);
+                    writer.addNotification(notification);
                     sendMail(notification);
                     final StopInterpreter stop = new StopInterpreter();
                     source.tell(stop, source);
@@ -1235,7 +1294,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                 final URI base = request.getUri();
                 final URI uri = UriUtils.resolve(base, target);
                 final List<NameValuePair> parameters = parameters();
-                request = new HttpRequestDescriptor(uri, method, parameters);
+                request = new HttpRequestDescriptor(uri, method, parameters, cacheRcml);
                 downloader.tell(request, source);
             } else {
                 // Ask the parser for the next action to take.
@@ -1257,10 +1316,9 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                 finishOnKey = attribute.value();
                 if (finishOnKey != null && !finishOnKey.isEmpty()) {
                     if (!PATTERN.matcher(finishOnKey).matches()) {
-                        final NotificationsDao notifications = storage.getNotificationsDao();
                         final Notification notification = notification(WARNING_NOTIFICATION, 13310, finishOnKey
                                 + " is not a valid finishOnKey value");
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                         finishOnKey = "#";
                     }
                 } else {
@@ -1281,10 +1339,9 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
         public void execute(final Object message) throws Exception {
             processingGather = true;
             final Class<?> klass = message.getClass();
-            final NotificationsDao notifications = storage.getNotificationsDao();
             if (SpeechSynthesizerResponse.class.equals(klass)) {
                 final SpeechSynthesizerResponse<URI> response = (SpeechSynthesizerResponse<URI>) message;
-                final DiskCacheRequest request = new DiskCacheRequest(response.get());
+                final DiskCacheRequest request = new DiskCacheRequest(response.get(), cacheScope);
                 cache.tell(request, source);
             } else {
                 if (Tag.class.equals(klass)) {
@@ -1316,7 +1373,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                                 if (say.equals(child.name())) {
                                     notification = notification(WARNING_NOTIFICATION, 13322, loop
                                             + " is an invalid loop value.");
-                                    notifications.addNotification(notification);
+                                    writer.addNotification(notification);
                                 }
                             }
                         }
@@ -1336,7 +1393,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                             } catch (final Exception exception) {
                                 final Notification notification = notification(ERROR_NOTIFICATION, 13325, text
                                         + " is an invalid URI.");
-                                notifications.addNotification(notification);
+                                writer.addNotification(notification);
                                 sendMail(notification);
                                 final StopInterpreter stop = new StopInterpreter();
                                 source.tell(stop, source);
@@ -1345,7 +1402,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                             final URI base = request.getUri();
                             final URI uri = UriUtils.resolve(base, target);
                             // Cache the prompt.
-                            final DiskCacheRequest request = new DiskCacheRequest(uri);
+                            final DiskCacheRequest request = new DiskCacheRequest(uri, cacheScope);
                             cache.tell(request, source);
                             break;
                         }
@@ -1359,7 +1416,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                                 if (!"man".equals(voice) && !"woman".equals(voice)) {
                                     final Notification notification = notification(WARNING_NOTIFICATION, 13321, voice
                                             + " is an invalid voice value.");
-                                    notifications.addNotification(notification);
+                                    writer.addNotification(notification);
                                     voice = "man";
                                 }
                             } else {
@@ -1385,7 +1442,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                             // synthesizer.tell(synthesize, source);
                             // break;
                             String hash = hash(child);
-                            DiskCacheRequest request = new DiskCacheRequest(hash);
+                            DiskCacheRequest request = new DiskCacheRequest(hash, cacheScope);
                             cache.tell(request, source);
                             break;
                         }
@@ -1444,7 +1501,6 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
 
         @Override
         public void execute(final Object message) throws Exception {
-            final NotificationsDao notifications = storage.getNotificationsDao();
             // Parse finish on key.
             finishOnKey = finishOnKey(verb);
             // Parse the number of digits.
@@ -1457,7 +1513,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                     } catch (final NumberFormatException exception) {
                         final Notification notification = notification(WARNING_NOTIFICATION, 13314, numberOfDigits
                                 + " is not a valid numDigits value");
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                     }
                 }
             }
@@ -1472,7 +1528,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                     } catch (final NumberFormatException exception) {
                         final Notification notification = notification(WARNING_NOTIFICATION, 13313, timeout
                                 + " is not a valid timeout value");
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                     }
                 }
             }
@@ -1495,7 +1551,6 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
 
         @Override
         public void execute(final Object message) throws Exception {
-            final NotificationsDao notifications = storage.getNotificationsDao();
             Attribute attribute = verb.attribute("action");
             String digits = collectedDigits.toString();
             collectedDigits = new StringBuffer();
@@ -1522,7 +1577,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                     } catch (final Exception exception) {
                         final Notification notification = notification(ERROR_NOTIFICATION, 11100, action
                                 + " is an invalid URI.");
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                         sendMail(notification);
                         final StopInterpreter stop = new StopInterpreter();
                         source.tell(stop, source);
@@ -1539,7 +1594,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                             if (!"GET".equalsIgnoreCase(method) && !"POST".equalsIgnoreCase(method)) {
                                 final Notification notification = notification(WARNING_NOTIFICATION, 14104, method
                                         + " is not a valid HTTP method for <Gather>");
-                                notifications.addNotification(notification);
+                                writer.addNotification(notification);
                                 method = "POST";
                             }
                         } else {
@@ -1553,7 +1608,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                     }
                     final List<NameValuePair> parameters = parameters();
                     parameters.add(new BasicNameValuePair("Digits", digits));
-                    request = new HttpRequestDescriptor(uri, method, parameters);
+                    request = new HttpRequestDescriptor(uri, method, parameters, cacheRcml);
                     downloader.tell(request, source);
                     return;
                 }
@@ -1578,7 +1633,6 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
             if (Tag.class.equals(klass)) {
                 verb = (Tag) message;
             }
-            final NotificationsDao notifications = storage.getNotificationsDao();
             String finishOnKey = "1234567890*#";
             Attribute attribute = verb.attribute("finishOnKey");
             if (attribute != null) {
@@ -1587,7 +1641,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                     if (!PATTERN.matcher(finishOnKey).matches()) {
                         final Notification notification = notification(WARNING_NOTIFICATION, 13613, finishOnKey
                                 + " is not a valid finishOnKey value");
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                         finishOnKey = "1234567890*#";
                     }
                 } else {
@@ -1612,7 +1666,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                     } catch (final NumberFormatException exception) {
                         final Notification notification = notification(WARNING_NOTIFICATION, 13612, maxLength
                                 + " is not a valid maxLength value");
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                     }
                 }
             }
@@ -1626,7 +1680,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                     } catch (final NumberFormatException exception) {
                         final Notification notification = notification(WARNING_NOTIFICATION, 13612, timeout
                                 + " is not a valid timeout value");
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                     }
                 }
             }
@@ -1660,7 +1714,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                     prompts.add(UriUtils.resolve(new URI(path)));
                 } catch (final Exception exception) {
                     final Notification notification = notification(ERROR_NOTIFICATION, 12400, exception.getMessage());
-                    notifications.addNotification(notification);
+                    writer.addNotification(notification);
                     sendMail(notification);
                     final StopInterpreter stop = new StopInterpreter();
                     source.tell(stop, source);
@@ -1694,12 +1748,10 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                 callRecord = callRecord.setEndTime(end);
                 final int seconds = (int) (end.getMillis() - callRecord.getStartTime().getMillis()) / 1000;
                 callRecord = callRecord.setDuration(seconds);
-                final CallDetailRecordsDao records = storage.getCallDetailRecordsDao();
-                records.updateCallDetailRecord(callRecord);
+                writer.updateCallDetailRecord(callRecord);
                 // Update the application.
 //                callback();
             }
-            final NotificationsDao notifications = storage.getNotificationsDao();
             // Create a record of the recording.
             Double duration = WavUtils.getAudioDuration(recordingUri);
             if (duration.equals(0.0)) {
@@ -1733,7 +1785,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                     } catch (final Exception exception) {
                         final Notification notification = notification(ERROR_NOTIFICATION, 11100, transcribeCallback
                                 + " is an invalid URI.");
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                         sendMail(notification);
                         final StopInterpreter stop = new StopInterpreter();
                         source.tell(stop, source);
@@ -1792,7 +1844,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                     } catch (final Exception exception) {
                         final Notification notification = notification(ERROR_NOTIFICATION, 11100, action
                                 + " is an invalid URI.");
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                         sendMail(notification);
                         final StopInterpreter stop = new StopInterpreter();
                         source.tell(stop, source);
@@ -1809,7 +1861,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                             if (!"GET".equalsIgnoreCase(method) && !"POST".equalsIgnoreCase(method)) {
                                 final Notification notification = notification(WARNING_NOTIFICATION, 13610, method
                                         + " is not a valid HTTP method for <Record>");
-                                notifications.addNotification(notification);
+                                writer.addNotification(notification);
                                 method = "POST";
                             }
                         } else {
@@ -1819,9 +1871,11 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                     final List<NameValuePair> parameters = parameters();
                     boolean amazonS3Enabled = configuration.subset("amazon-s3").getBoolean("enabled");
                     if (amazonS3Enabled) {
-                        //If Amazon S3 is enabled the Recordings DAO uploaded the wav file to S3 and changed the URI
-                        parameters.add(new BasicNameValuePair("RecordingUrl", recording.getFileUri().toURL().toString()));
-                        parameters.add(new BasicNameValuePair("PublicRecordingUrl", recording.getFileUri().toURL().toString()));
+                        //If Amazon S3 is enabled the Recordings DAO uploads the wav file to S3 in the background and
+                        //removes the local one once done, so send the S3 URL the recording is uploaded to
+                        final URI fileUri = recordings.getRecordingUrl(recordingSid);
+                        parameters.add(new BasicNameValuePair("RecordingUrl", fileUri.toURL().toString()));
+                        parameters.add(new BasicNameValuePair("PublicRecordingUrl", fileUri.toURL().toString()));
                     } else {
                         // Redirect to the action url.
                         String httpRecordingUri = configuration.subset("runtime-settings").getString("recordings-uri");
@@ -1903,7 +1957,6 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
         public void execute(final Object message) throws Exception {
             final SmsServiceResponse<ActorRef> response = (SmsServiceResponse<ActorRef>) message;
             final ActorRef session = response.get();
-            final NotificationsDao notifications = storage.getNotificationsDao();
             // Parse "from".
             String from = callInfo.to();
             Attribute attribute = verb.attribute("from");
@@ -1915,7 +1968,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                         from = verb.attribute("from").value();
                         final Notification notification = notification(ERROR_NOTIFICATION, 14102, from
                                 + " is an invalid 'from' phone number.");
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                         sendMail(notification);
                         smsService.tell(new DestroySmsSession(session), source);
                         final StopInterpreter stop = new StopInterpreter();
@@ -1935,7 +1988,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                         to = verb.attribute("to").value();
                         final Notification notification = notification(ERROR_NOTIFICATION, 14101, to
                                 + " is an invalid 'to' phone number.");
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                         sendMail(notification);
                         smsService.tell(new DestroySmsSession(session), source);
                         final StopInterpreter stop = new StopInterpreter();
@@ -1948,7 +2001,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
             String body = verb.text();
             if (body == null || body.isEmpty()) {
                 final Notification notification = notification(ERROR_NOTIFICATION, 14103, body + " is an invalid SMS body.");
-                notifications.addNotification(notification);
+                writer.addNotification(notification);
                 sendMail(notification);
                 smsService.tell(new DestroySmsSession(session), source);
                 final StopInterpreter stop = new StopInterpreter();
@@ -1968,7 +2021,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                         } catch (final Exception exception) {
                             final Notification notification = notification(ERROR_NOTIFICATION, 14105, callback
                                     + " is an invalid URI.");
-                            notifications.addNotification(notification);
+                            writer.addNotification(notification);
                             sendMail(notification);
                             smsService.tell(new DestroySmsSession(session), source);
                             final StopInterpreter stop = new StopInterpreter();
@@ -2019,7 +2072,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                     } catch (final Exception exception) {
                         final Notification notification = notification(ERROR_NOTIFICATION, 11100, action
                                 + " is an invalid URI.");
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                         sendMail(notification);
                         final StopInterpreter stop = new StopInterpreter();
                         source.tell(stop, source);
@@ -2036,7 +2089,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                             if (!"GET".equalsIgnoreCase(method) && !"POST".equalsIgnoreCase(method)) {
                                 final Notification notification = notification(WARNING_NOTIFICATION, 14104, method
                                         + " is not a valid HTTP method for <Sms>");
-                                notifications.addNotification(notification);
+                                writer.addNotification(notification);
                                 method = "POST";
                             }
                         } else {
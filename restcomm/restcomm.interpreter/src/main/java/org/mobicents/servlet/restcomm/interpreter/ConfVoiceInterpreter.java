@@ -17,6 +17,7 @@ import org.apache.http.HttpStatus;
 import org.apache.http.NameValuePair;
 import org.apache.http.message.BasicNameValuePair;
 import org.joda.time.DateTime;
+import org.mobicents.servlet.restcomm.dispatch.RestcommDispatchers;
 import org.mobicents.servlet.restcomm.email.EmailService;
 import org.mobicents.servlet.restcomm.api.EmailRequest;
 import org.mobicents.servlet.restcomm.api.Mail;
@@ -25,7 +26,7 @@ import org.mobicents.servlet.restcomm.cache.DiskCacheRequest;
 import org.mobicents.servlet.restcomm.cache.DiskCacheResponse;
 import org.mobicents.servlet.restcomm.cache.HashGenerator;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
-import org.mobicents.servlet.restcomm.dao.NotificationsDao;
+import org.mobicents.servlet.restcomm.dao.RecordWriter;
 import org.mobicents.servlet.restcomm.entities.CallDetailRecord;
 import org.mobicents.servlet.restcomm.entities.Notification;
 import org.mobicents.servlet.restcomm.entities.Sid;
@@ -101,9 +102,13 @@ public class ConfVoiceInterpreter extends UntypedActor {
     private final FiniteStateMachine fsm;
     // The user specific configuration.
     private final Configuration configuration;
+    // The node wide services, null when the interpreter creates its own.
+    private final InterpreterServices services;
     // The block storage cache.
     private final ActorRef cache;
     private final String cachePath;
+    // The sub directory of the shared block storage cache.
+    private String cacheScope;
     // The downloader will fetch resources for us using HTTP.
     private final ActorRef downloader;
     // The mail man that will deliver e-mail.
@@ -111,6 +116,7 @@ public class ConfVoiceInterpreter extends UntypedActor {
 
     // The storage engine.
     private final DaoManager storage;
+    private final RecordWriter writer;
     // The text to speech synthesizer service.
     private final ActorRef synthesizer;
 
@@ -149,7 +155,7 @@ public class ConfVoiceInterpreter extends UntypedActor {
 
     public ConfVoiceInterpreter(final Configuration configuration, final Sid account, final String version, final URI url,
             final String method, final String emailAddress, final ActorRef conference, final DaoManager storage,
-            final CallInfo callInfo) {
+            final CallInfo callInfo, final InterpreterServices services) {
 
         super();
 
@@ -239,6 +245,8 @@ public class ConfVoiceInterpreter extends UntypedActor {
         this.configuration = configuration;
 
         this.storage = storage;
+        this.writer = new RecordWriter(storage, RestcommDispatchers.database(getContext().system()));
+        this.services = services;
         this.synthesizer = tts(configuration.subset("speech-synthesizer"));
         final Configuration runtime = configuration.subset("runtime-settings");
         String path = runtime.getString("cache-path");
@@ -260,6 +268,11 @@ public class ConfVoiceInterpreter extends UntypedActor {
     }
 
     private ActorRef cache(final String path, final String uri) {
+        if (services != null) {
+            // The shared cache keeps the files of every account in a sub directory named after the account
+            cacheScope = accountId.toString();
+            return services.getCache();
+        }
         final UntypedActorContext context = getContext();
         return context.actorOf(new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
@@ -272,6 +285,9 @@ public class ConfVoiceInterpreter extends UntypedActor {
     }
 
     private ActorRef downloader() {
+        if (services != null) {
+            return services.getDownloader();
+        }
         final UntypedActorContext context = getContext();
         return context.actorOf(new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
@@ -300,7 +316,11 @@ public class ConfVoiceInterpreter extends UntypedActor {
         parser.tell(next, self);
     }
 
-    ActorRef mailer(final Configuration configuration) {
+    ActorRef mailer(final String name) {
+        if (services != null && services.getMailer(name) != null) {
+            return services.getMailer(name);
+        }
+        final Configuration configuration = this.configuration.subset(name);
         final UntypedActorContext context = getContext();
         return context.actorOf(new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
@@ -367,9 +387,9 @@ public class ConfVoiceInterpreter extends UntypedActor {
         final State state = fsm.state();
         final ActorRef sender = sender();
 
-        if (logger.isInfoEnabled()) {
-            logger.info(" ********** ConfVoiceInterpreter's Current State: " + state.toString());
-            logger.info(" ********** ConfVoiceInterpreter's Processing Message: " + klass.getName());
+        if (logger.isDebugEnabled()) {
+            logger.debug(" ********** ConfVoiceInterpreter's Current State: " + state.toString());
+            logger.debug(" ********** ConfVoiceInterpreter's Processing Message: " + klass.getName());
         }
 
         if (StartInterpreter.class.equals(klass)) {
@@ -566,12 +586,15 @@ public class ConfVoiceInterpreter extends UntypedActor {
         buffer.append(notification.getResponseBody()).append("</br>");
         final Mail emailMsg = new Mail(EMAIL_SENDER,emailAddress,EMAIL_SUBJECT, buffer.toString());
         if (mailerNotify == null){
-            mailerNotify = mailer(configuration.subset("smtp-notify"));
+            mailerNotify = mailer("smtp-notify");
         }
         mailerNotify.tell(new EmailRequest(emailMsg), self());
     }
 
     private ActorRef tts(final Configuration configuration) {
+        if (services != null && services.getSynthesizer() != null) {
+            return services.getSynthesizer();
+        }
         final String classpath = configuration.getString("[@class]");
 
         final UntypedActorContext context = getContext();
@@ -700,8 +723,7 @@ public class ConfVoiceInterpreter extends UntypedActor {
             }
             final Notification notification = notification(WARNING_NOTIFICATION, 21402, "URL Not Found : "
                     + response.get().getURI());
-            final NotificationsDao notifications = storage.getNotificationsDao();
-            notifications.addNotification(notification);
+            writer.addNotification(notification);
             // Hang up the call.
             conference.tell(new org.mobicents.servlet.restcomm.telephony.NotFound(), source);
         }
@@ -720,7 +742,7 @@ public class ConfVoiceInterpreter extends UntypedActor {
             }
 
             String hash = hash(verb);
-            DiskCacheRequest request = new DiskCacheRequest(hash);
+            DiskCacheRequest request = new DiskCacheRequest(hash, cacheScope);
             if (logger.isInfoEnabled()) {
                 logger.info("Checking cache for hash: " + hash);
             }
@@ -739,7 +761,7 @@ public class ConfVoiceInterpreter extends UntypedActor {
             final Class<?> klass = message.getClass();
             if (SpeechSynthesizerResponse.class.equals(klass)) {
                 final SpeechSynthesizerResponse<URI> response = (SpeechSynthesizerResponse<URI>) message;
-                final DiskCacheRequest request = new DiskCacheRequest(response.get());
+                final DiskCacheRequest request = new DiskCacheRequest(response.get(), cacheScope);
                 cache.tell(request, source);
             } else if (Tag.class.equals(klass) || MediaGroupStateChanged.class.equals(klass)) {
                 if (Tag.class.equals(klass)) {
@@ -754,8 +776,7 @@ public class ConfVoiceInterpreter extends UntypedActor {
                         target = URI.create(text);
                     } catch (final Exception exception) {
                         final Notification notification = notification(ERROR_NOTIFICATION, 11100, text + " is an invalid URI.");
-                        final NotificationsDao notifications = storage.getNotificationsDao();
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                         sendMail(notification);
                         final StopInterpreter stop = new StopInterpreter();
                         source.tell(stop, source);
@@ -763,7 +784,7 @@ public class ConfVoiceInterpreter extends UntypedActor {
                     }
                     final URI base = request.getUri();
                     final URI uri = resolve(base, target);
-                    final DiskCacheRequest request = new DiskCacheRequest(uri);
+                    final DiskCacheRequest request = new DiskCacheRequest(uri, cacheScope);
                     cache.tell(request, source);
                 } else {
                     // Ask the parser for the next action to take.
@@ -793,14 +814,13 @@ public class ConfVoiceInterpreter extends UntypedActor {
                         try {
                             loop = Integer.parseInt(number);
                         } catch (final NumberFormatException ignored) {
-                            final NotificationsDao notifications = storage.getNotificationsDao();
                             Notification notification = null;
                             if (say.equals(verb.name())) {
                                 notification = notification(WARNING_NOTIFICATION, 13510, loop + " is an invalid loop value.");
-                                notifications.addNotification(notification);
+                                writer.addNotification(notification);
                             } else if (play.equals(verb.name())) {
                                 notification = notification(WARNING_NOTIFICATION, 13410, loop + " is an invalid loop value.");
-                                notifications.addNotification(notification);
+                                writer.addNotification(notification);
                             }
                         }
                     }
@@ -848,8 +868,7 @@ public class ConfVoiceInterpreter extends UntypedActor {
                 if (!"man".equals(voice) && !"woman".equals(voice)) {
                     final Notification notification = notification(WARNING_NOTIFICATION, 13511, voice
                             + " is an invalid voice value.");
-                    final NotificationsDao notifications = storage.getNotificationsDao();
-                    notifications.addNotification(notification);
+                    writer.addNotification(notification);
                     voice = "man";
                 }
             } else {
@@ -920,7 +939,6 @@ public class ConfVoiceInterpreter extends UntypedActor {
             if (Tag.class.equals(klass)) {
                 verb = (Tag) message;
             }
-            final NotificationsDao notifications = storage.getNotificationsDao();
             String method = "POST";
             Attribute attribute = verb.attribute("method");
             if (attribute != null) {
@@ -929,7 +947,7 @@ public class ConfVoiceInterpreter extends UntypedActor {
                     if (!"GET".equalsIgnoreCase(method) && !"POST".equalsIgnoreCase(method)) {
                         final Notification notification = notification(WARNING_NOTIFICATION, 13710, method
                                 + " is not a valid HTTP method for <Redirect>");
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                         method = "POST";
                     }
                 } else {
@@ -944,7 +962,7 @@ public class ConfVoiceInterpreter extends UntypedActor {
                     target = URI.create(text);
                 } catch (final Exception exception) {
                     final Notification notification = notification(ERROR_NOTIFICATION, 11100, text + " is an invalid URI.");
-                    notifications.addNotification(notification);
+                    writer.addNotification(notification);
                     sendMail(notification);
                     final StopInterpreter stop = new StopInterpreter();
                     source.tell(stop, source);
@@ -987,11 +1005,10 @@ public class ConfVoiceInterpreter extends UntypedActor {
 
             // Stop the dependencies.
             final UntypedActorContext context = getContext();
-            if (mailerNotify != null)
-                context.stop(mailerNotify);
-            context.stop(downloader);
-            context.stop(cache);
-            context.stop(synthesizer);
+            InterpreterServices.stop(context, mailerNotify);
+            InterpreterServices.stop(context, downloader);
+            InterpreterServices.stop(context, cache);
+            InterpreterServices.stop(context, synthesizer);
             // Stop the interpreter.
             postCleanup();
         }
@@ -4,6 +4,7 @@ import java.net.URI;
 
 import org.apache.commons.configuration.Configuration;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.dispatch.RestcommDispatchers;
 import org.mobicents.servlet.restcomm.entities.Sid;
 import org.mobicents.servlet.restcomm.telephony.CallInfo;
 
@@ -25,6 +26,7 @@ public class ConfVoiceInterpreterBuilder {
     private ActorRef conference;
     private DaoManager storage;
     private CallInfo callInfo;
+    private InterpreterServices services;
 
     public ConfVoiceInterpreterBuilder(final ActorSystem system) {
         super();
@@ -32,15 +34,15 @@ public class ConfVoiceInterpreterBuilder {
     }
 
     public ActorRef build() {
-        return system.actorOf(new Props(new UntypedActorFactory() {
+        return system.actorOf(RestcommDispatchers.props(system, new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
 
             @Override
             public UntypedActor create() throws Exception {
                 return new ConfVoiceInterpreter(configuration, account, version, url, method, emailAddress, conference,
-                        storage, callInfo);
+                        storage, callInfo, services);
             }
-        }));
+        }), RestcommDispatchers.CALL_CONTROL));
     }
 
     public void setConfiguration(final Configuration configuration) {
@@ -79,4 +81,7 @@ public class ConfVoiceInterpreterBuilder {
         this.callInfo = callInfo;
     }
 
+    public void setServices(final InterpreterServices services) {
+        this.services = services;
+    }
 }
@@ -0,0 +1,223 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.interpreter;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.log4j.Logger;
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.asr.ISpeechAsr;
+import org.mobicents.servlet.restcomm.cache.DiskCache;
+import org.mobicents.servlet.restcomm.dispatch.RestcommDispatchers;
+import org.mobicents.servlet.restcomm.email.EmailService;
+import org.mobicents.servlet.restcomm.fax.InterfaxService;
+import org.mobicents.servlet.restcomm.http.client.Downloader;
+import org.mobicents.servlet.restcomm.util.UriUtils;
+
+import akka.actor.Actor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedActor;
+import akka.actor.UntypedActorContext;
+import akka.actor.UntypedActorFactory;
+import akka.routing.SmallestMailboxRouter;
+
+/**
+ * Node wide pools of the services the interpreters talk to (downloader, disk cache, speech synthesizer and recognizer,
+ * fax and e-mail). All of them are stateless request/response actors, so instead of every interpreter creating its own
+ * children the interpreters built with an instance of this class share a pool per service. The requests go to the idle
+ * routee or the one with the fewest queued requests, so a slow download or SMTP server only holds up the requests it
+ * serves. The routees run on the http and disk {@link RestcommDispatchers dispatchers}, keeping the blocking HTTP, disk
+ * and SMTP work away from the dispatcher running the call state machines.
+ * <p>
+ * The disk cache is shared by all the accounts so the interpreters scope their cache requests with their account sid.
+ * A service that is not configured has no pool and the interpreters fall back to creating it themselves.
+ */
+@Immutable
+public final class InterpreterServices {
+    private static final Logger logger = Logger.getLogger(InterpreterServices.class);
+
+    private final ActorRef downloader;
+    private final ActorRef cache;
+    private final ActorRef synthesizer;
+    private final ActorRef recognizer;
+    private final ActorRef fax;
+    private final ActorRef notificationMailer;
+    private final ActorRef serviceMailer;
+
+    private InterpreterServices(final ActorRef downloader, final ActorRef cache, final ActorRef synthesizer,
+            final ActorRef recognizer, final ActorRef fax, final ActorRef notificationMailer, final ActorRef serviceMailer) {
+        super();
+        this.downloader = downloader;
+        this.cache = cache;
+        this.synthesizer = synthesizer;
+        this.recognizer = recognizer;
+        this.fax = fax;
+        this.notificationMailer = notificationMailer;
+        this.serviceMailer = serviceMailer;
+    }
+
+    /**
+     * Creates the shared services when <code>interpreter-services.enabled</code> is set in the RestComm configuration.
+     *
+     * @return the shared services or null if the interpreters must keep creating their own.
+     */
+    public static InterpreterServices create(final ActorSystem system, final Configuration configuration) {
+        final Configuration settings = configuration.subset("interpreter-services");
+        if (!settings.getBoolean("enabled", false)) {
+            return null;
+        }
+        final ActorRef downloader = pool(system, "downloader", RestcommDispatchers.HTTP, settings.getInt("downloaders", 8),
+                new UntypedActorFactory() {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    public Actor create() throws Exception {
+                        return new Downloader();
+                    }
+                });
+        final Configuration runtime = configuration.subset("runtime-settings");
+        final String path = runtime.getString("cache-path");
+        final String uri = cacheUri(runtime.getString("cache-uri"));
+        final ActorRef cache = pool(system, "disk-cache", RestcommDispatchers.DISK, settings.getInt("caches", 4),
+                new UntypedActorFactory() {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    public Actor create() throws Exception {
+                        return new DiskCache(path, uri, true);
+                    }
+                });
+        final Configuration tts = configuration.subset("speech-synthesizer");
+        final ActorRef synthesizer = tts.isEmpty() ? null : pool(system, "speech-synthesizer", RestcommDispatchers.HTTP,
+                settings.getInt("synthesizers", 4), new UntypedActorFactory() {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    public Actor create() throws Exception {
+                        final String classpath = tts.getString("[@class]");
+                        return (UntypedActor) Class.forName(classpath).getConstructor(Configuration.class).newInstance(tts);
+                    }
+                });
+        final Configuration asr = configuration.subset("speech-recognizer");
+        final ActorRef recognizer = asr.isEmpty() ? null : pool(system, "speech-recognizer", RestcommDispatchers.HTTP,
+                settings.getInt("recognizers", 2), new UntypedActorFactory() {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    public Actor create() throws Exception {
+                        return new ISpeechAsr(asr);
+                    }
+                });
+        final Configuration interfax = configuration.subset("fax-service");
+        final ActorRef fax = interfax.isEmpty() ? null : pool(system, "fax-service", RestcommDispatchers.HTTP,
+                settings.getInt("fax-senders", 2), new UntypedActorFactory() {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    public Actor create() throws Exception {
+                        return new InterfaxService(interfax);
+                    }
+                });
+        final int mailers = settings.getInt("mailers", 2);
+        final ActorRef notificationMailer = mailer(system, "smtp-notify", mailers, configuration.subset("smtp-notify"));
+        final ActorRef serviceMailer = mailer(system, "smtp-service", mailers, configuration.subset("smtp-service"));
+        if (logger.isInfoEnabled()) {
+            logger.info("Interpreter services are shared by all the interpreters");
+        }
+        return new InterpreterServices(downloader, cache, synthesizer, recognizer, fax, notificationMailer, serviceMailer);
+    }
+
+    private static ActorRef mailer(final ActorSystem system, final String name, final int size,
+            final Configuration configuration) {
+        // The mailers are created lazily by the interpreters when there is no SMTP server configured
+        if (configuration.getString("host", "").isEmpty()) {
+            return null;
+        }
+        return pool(system, name, RestcommDispatchers.HTTP, size, new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Actor create() throws Exception {
+                return new EmailService(configuration);
+            }
+        });
+    }
+
+    private static ActorRef pool(final ActorSystem system, final String name, final String dispatcher, final int size,
+            final UntypedActorFactory factory) {
+        final Props props = RestcommDispatchers.props(system, new Props(factory), dispatcher);
+        return system.actorOf(props.withRouter(new SmallestMailboxRouter(size)), name);
+    }
+
+    private static String cacheUri(final String uri) {
+        try {
+            return UriUtils.resolve(new URI(uri)).toString();
+        } catch (URISyntaxException e) {
+            logger.error("URISyntaxException while trying to resolve Cache URI: " + e);
+            return uri;
+        }
+    }
+
+    /**
+     * Stops a service actor of the interpreter if it was created by the interpreter itself, the shared services
+     * outlive the interpreters.
+     */
+    public static void stop(final UntypedActorContext context, final ActorRef service) {
+        if (service != null && service.path().parent().equals(context.self().path())) {
+            context.stop(service);
+        }
+    }
+
+    public ActorRef getDownloader() {
+        return downloader;
+    }
+
+    public ActorRef getCache() {
+        return cache;
+    }
+
+    public ActorRef getSynthesizer() {
+        return synthesizer;
+    }
+
+    public ActorRef getRecognizer() {
+        return recognizer;
+    }
+
+    public ActorRef getFax() {
+        return fax;
+    }
+
+    /**
+     * @param name the configuration section of the mailer, <code>smtp-notify</code> or <code>smtp-service</code>.
+     */
+    public ActorRef getMailer(final String name) {
+        if ("smtp-notify".equals(name)) {
+            return notificationMailer;
+        } else if ("smtp-service".equals(name)) {
+            return serviceMailer;
+        }
+        return null;
+    }
+}
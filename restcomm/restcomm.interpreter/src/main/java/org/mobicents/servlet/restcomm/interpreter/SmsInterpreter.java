@@ -46,8 +46,9 @@ import org.apache.http.client.ClientProtocolException;
 import org.apache.http.message.BasicNameValuePair;
 import org.joda.time.DateTime;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
-import org.mobicents.servlet.restcomm.dao.NotificationsDao;
+import org.mobicents.servlet.restcomm.dao.RecordWriter;
 import org.mobicents.servlet.restcomm.dao.SmsMessagesDao;
+import org.mobicents.servlet.restcomm.dispatch.RestcommDispatchers;
 import org.mobicents.servlet.restcomm.email.EmailService;
 import org.mobicents.servlet.restcomm.api.EmailRequest;
 import org.mobicents.servlet.restcomm.api.EmailResponse;
@@ -126,8 +127,11 @@ public final class SmsInterpreter extends UntypedActor {
     private SmsSessionRequest initialSessionRequest;
     // HTTP Stuff.
     private final ActorRef downloader;
+    // The node wide services, null when the interpreter creates its own.
+    private final InterpreterServices services;
     // The storage engine.
     private final DaoManager storage;
+    private final RecordWriter writer;
     //Runtime configuration
     private final Configuration runtime;
     // User specific configuration.
@@ -145,6 +149,8 @@ public final class SmsInterpreter extends UntypedActor {
     private HttpResponseDescriptor response;
     // The RCML parser.
     private ActorRef parser;
+    // True while the parser works on the RCML of the primary sms url, a malformed document then falls back
+    private boolean parsingPrimaryRcml;
     private Tag verb;
     private boolean normalizeNumber;
     private ConcurrentHashMap<String, String> customHttpHeaderMap = new ConcurrentHashMap<String, String>();
@@ -152,7 +158,7 @@ public final class SmsInterpreter extends UntypedActor {
 
     public SmsInterpreter(final ActorRef service, final Configuration configuration, final DaoManager storage,
             final Sid accountId, final String version, final URI url, final String method, final URI fallbackUrl,
-            final String fallbackMethod) {
+            final String fallbackMethod, final InterpreterServices services) {
         super();
         final ActorRef source = self();
         uninitialized = new State("uninitialized", null, null);
@@ -184,6 +190,7 @@ public final class SmsInterpreter extends UntypedActor {
         transitions.add(new Transition(ready, waitingForSmsResponses));
         transitions.add(new Transition(ready, sendingEmail));
         transitions.add(new Transition(ready, finished));
+        transitions.add(new Transition(ready, downloadingFallbackRcml));
         transitions.add(new Transition(redirecting, ready));
         transitions.add(new Transition(redirecting, creatingSmsSession));
         transitions.add(new Transition(redirecting, finished));
@@ -211,8 +218,10 @@ public final class SmsInterpreter extends UntypedActor {
         this.fsm = new FiniteStateMachine(uninitialized, transitions);
         // Initialize the runtime stuff.
         this.service = service;
+        this.services = services;
         this.downloader = downloader();
         this.storage = storage;
+        this.writer = new RecordWriter(storage, RestcommDispatchers.database(getContext().system()));
         this.runtime = configuration.subset("runtime-settings");
         this.configuration = configuration.subset("sms-aggregator");
         this.accountId = accountId;
@@ -226,6 +235,9 @@ public final class SmsInterpreter extends UntypedActor {
     }
 
     private ActorRef downloader() {
+        if (services != null) {
+            return services.getDownloader();
+        }
         final UntypedActorContext context = getContext();
         return context.actorOf(new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
@@ -237,7 +249,11 @@ public final class SmsInterpreter extends UntypedActor {
         }));
     }
 
-    ActorRef mailer(final Configuration configuration) {
+    ActorRef mailer(final String name) {
+        if (services != null && services.getMailer(name) != null) {
+            return services.getMailer(name);
+        }
+        final Configuration configuration = this.configuration.subset(name);
         final UntypedActorContext context = getContext();
         return context.actorOf(new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
@@ -266,8 +282,7 @@ public final class SmsInterpreter extends UntypedActor {
     protected void invalidVerb(final Tag verb) {
         final ActorRef self = self();
         final Notification notification = notification(WARNING_NOTIFICATION, 14110, "Invalid Verb for SMS Reply");
-        final NotificationsDao notifications = storage.getNotificationsDao();
-        notifications.addNotification(notification);
+        writer.addNotification(notification);
         // Get the next verb.
         final GetNextVerb next = GetNextVerb.instance();
         parser.tell(next, self);
@@ -363,10 +378,22 @@ public final class SmsInterpreter extends UntypedActor {
                 }
             }
         }  else if (ParserFailed.class.equals(klass)) {
-            if(logger.isInfoEnabled()) {
-                logger.info("ParserFailed received. Will stop the call");
+            if (parsingPrimaryRcml && fallbackUrl != null) {
+                if(logger.isInfoEnabled()) {
+                    logger.info("ParserFailed received for the primary RCML. Will try the fallback url");
+                }
+                parsingPrimaryRcml = false;
+                if (parser != null) {
+                    getContext().stop(parser);
+                    parser = null;
+                }
+                fsm.transition(message, downloadingFallbackRcml);
+            } else {
+                if(logger.isInfoEnabled()) {
+                    logger.info("ParserFailed received. Will stop the call");
+                }
+                fsm.transition(message, finished);
             }
-            fsm.transition(message, finished);
         } else if (Tag.class.equals(klass)) {
             final Tag verb = (Tag) message;
             if (redirect.equals(verb.name())) {
@@ -579,8 +606,7 @@ public final class SmsInterpreter extends UntypedActor {
                     notification = notification(ERROR_NOTIFICATION, 11100, cause.getMessage());
                 }
                 if (notification != null) {
-                    final NotificationsDao notifications = storage.getNotificationsDao();
-                    notifications.addNotification(notification);
+                    writer.addNotification(notification);
                 }
             }
             // Try to use the fall back url and method.
@@ -603,6 +629,7 @@ public final class SmsInterpreter extends UntypedActor {
             if (downloadingRcml.equals(state) || downloadingFallbackRcml.equals(state) || redirecting.equals(state)
                     || sendingSms.equals(state)) {
                 response = ((DownloaderResponse) message).get();
+                parsingPrimaryRcml = downloadingRcml.equals(state);
                 if (parser != null) {
                     context.stop(parser);
                     parser = null;
@@ -616,17 +643,15 @@ public final class SmsInterpreter extends UntypedActor {
                     if(logger.isInfoEnabled()) {
                         logger.info("DownloaderResponse getContentType is null: "+response);
                     }
-                    final NotificationsDao notifications = storage.getNotificationsDao();
                     final Notification notification = notification(WARNING_NOTIFICATION, 12300, "Invalide content-type.");
-                    notifications.addNotification(notification);
+                    writer.addNotification(notification);
                     final StopInterpreter stop = new StopInterpreter();
                     source.tell(stop, source);
                     return;
                 }
                 } catch (Exception e) {
-                    final NotificationsDao notifications = storage.getNotificationsDao();
                     final Notification notification = notification(WARNING_NOTIFICATION, 12300, "Invalide content-type.");
-                    notifications.addNotification(notification);
+                    writer.addNotification(notification);
                     final StopInterpreter stop = new StopInterpreter();
                     source.tell(stop, source);
                     return;
@@ -652,7 +677,6 @@ public final class SmsInterpreter extends UntypedActor {
         @Override
         public void execute(final Object message) throws Exception {
             verb = (Tag) message;
-            final NotificationsDao notifications = storage.getNotificationsDao();
             String method = "POST";
             Attribute attribute = verb.attribute("method");
             if (attribute != null) {
@@ -661,7 +685,7 @@ public final class SmsInterpreter extends UntypedActor {
                     if (!"GET".equalsIgnoreCase(method) && !"POST".equalsIgnoreCase(method)) {
                         final Notification notification = notification(WARNING_NOTIFICATION, 13710, method
                                 + " is not a valid HTTP method for <Redirect>");
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                         method = "POST";
                     }
                 } else {
@@ -676,7 +700,7 @@ public final class SmsInterpreter extends UntypedActor {
                     target = URI.create(text);
                 } catch (final Exception exception) {
                     final Notification notification = notification(ERROR_NOTIFICATION, 11100, text + " is an invalid URI.");
-                    notifications.addNotification(notification);
+                    writer.addNotification(notification);
                     final StopInterpreter stop = new StopInterpreter();
                     source.tell(stop, source);
                     return;
@@ -718,7 +742,6 @@ public final class SmsInterpreter extends UntypedActor {
         public void execute(final Object message) throws Exception {
             final SmsServiceResponse<ActorRef> response = (SmsServiceResponse<ActorRef>) message;
             final ActorRef session = response.get();
-            final NotificationsDao notifications = storage.getNotificationsDao();
             // Parse "from".
             String from = initialSessionRequest.to();
             Attribute attribute = verb.attribute("from");
@@ -730,7 +753,7 @@ public final class SmsInterpreter extends UntypedActor {
                         from = verb.attribute("from").value();
                         final Notification notification = notification(ERROR_NOTIFICATION, 14102, from
                                 + " is an invalid 'from' phone number.");
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                         service.tell(new DestroySmsSession(session), source);
                         final StopInterpreter stop = new StopInterpreter();
                         source.tell(stop, source);
@@ -754,7 +777,7 @@ public final class SmsInterpreter extends UntypedActor {
                 //                        to = verb.attribute("to").value();
                 //                        final Notification notification = notification(ERROR_NOTIFICATION, 14101, to
                 //                                + " is an invalid 'to' phone number.");
-                //                        notifications.addNotification(notification);
+                //                        writer.addNotification(notification);
                 //                        service.tell(new DestroySmsSession(session), source);
                 //                        final StopInterpreter stop = StopInterpreter.instance();
                 //                        source.tell(stop, source);
@@ -768,7 +791,7 @@ public final class SmsInterpreter extends UntypedActor {
             String body = verb.text();
             if (body == null || body.isEmpty()) {
                 final Notification notification = notification(ERROR_NOTIFICATION, 14103, body + " is an invalid SMS body.");
-                notifications.addNotification(notification);
+                writer.addNotification(notification);
                 service.tell(new DestroySmsSession(session), source);
                 final StopInterpreter stop = new StopInterpreter();
                 source.tell(stop, source);
@@ -787,7 +810,7 @@ public final class SmsInterpreter extends UntypedActor {
                         } catch (final Exception exception) {
                             final Notification notification = notification(ERROR_NOTIFICATION, 14105, callback
                                     + " is an invalid URI.");
-                            notifications.addNotification(notification);
+                            writer.addNotification(notification);
                             service.tell(new DestroySmsSession(session), source);
                             final StopInterpreter stop = new StopInterpreter();
                             source.tell(stop, source);
@@ -839,7 +862,7 @@ public final class SmsInterpreter extends UntypedActor {
                     } catch (final Exception exception) {
                         final Notification notification = notification(ERROR_NOTIFICATION, 11100, action
                                 + " is an invalid URI.");
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                         final StopInterpreter stop = new StopInterpreter();
                         source.tell(stop, source);
                         return;
@@ -855,7 +878,7 @@ public final class SmsInterpreter extends UntypedActor {
                             if (!"GET".equalsIgnoreCase(method) && !"POST".equalsIgnoreCase(method)) {
                                 final Notification notification = notification(WARNING_NOTIFICATION, 14104, method
                                         + " is not a valid HTTP method for <Sms>");
-                                notifications.addNotification(notification);
+                                writer.addNotification(notification);
                                 method = "POST";
                             }
                         } else {
@@ -956,7 +979,7 @@ public final class SmsInterpreter extends UntypedActor {
             // Send the email.
             final Mail emailMsg = new Mail(from, to, subject, verb.text(),cc,bcc);
             if (mailerService == null){
-                mailerService = mailer(configuration.subset("smtp-service"));
+                mailerService = mailer("smtp-service");
             }
             mailerService.tell(new EmailRequest(emailMsg), self());
         }
@@ -23,6 +23,7 @@ import java.net.URI;
 
 import org.apache.commons.configuration.Configuration;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.dispatch.RestcommDispatchers;
 import org.mobicents.servlet.restcomm.entities.Sid;
 
 import akka.actor.ActorRef;
@@ -45,6 +46,7 @@ public final class SmsInterpreterBuilder {
     private String method;
     private URI fallbackUrl;
     private String fallbackMethod;
+    private InterpreterServices services;
 
     public SmsInterpreterBuilder(final ActorSystem system) {
         super();
@@ -52,15 +54,15 @@ public final class SmsInterpreterBuilder {
     }
 
     public ActorRef build() {
-        return system.actorOf(new Props(new UntypedActorFactory() {
+        return system.actorOf(RestcommDispatchers.props(system, new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
 
             @Override
             public UntypedActor create() throws Exception {
                 return new SmsInterpreter(service, configuration, storage, accountId, version, url, method, fallbackUrl,
-                        fallbackMethod);
+                        fallbackMethod, services);
             }
-        }));
+        }), RestcommDispatchers.CALL_CONTROL));
     }
 
     public void setConfiguration(final Configuration configuration) {
@@ -98,4 +100,8 @@ public final class SmsInterpreterBuilder {
     public void setVersion(final String version) {
         this.version = version;
     }
+
+    public void setServices(final InterpreterServices services) {
+        this.services = services;
+    }
 }
@@ -47,9 +47,9 @@ import org.apache.http.message.BasicNameValuePair;
 import org.joda.time.DateTime;
 import org.mobicents.servlet.restcomm.asr.AsrResponse;
 import org.mobicents.servlet.restcomm.cache.DiskCacheResponse;
-import org.mobicents.servlet.restcomm.dao.CallDetailRecordsDao;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
-import org.mobicents.servlet.restcomm.dao.NotificationsDao;
+import org.mobicents.servlet.restcomm.dao.RecordWriter;
+import org.mobicents.servlet.restcomm.dispatch.RestcommDispatchers;
 import org.mobicents.servlet.restcomm.entities.Notification;
 import org.mobicents.servlet.restcomm.entities.Sid;
 import org.mobicents.servlet.restcomm.fax.FaxResponse;
@@ -112,13 +112,14 @@ public final class SubVoiceInterpreter extends BaseVoiceInterpreter {
             final ActorRef conferenceManager, final ActorRef sms, final DaoManager storage) {
 
         this(configuration, account, phone, version, url, method, fallbackUrl, fallbackMethod, statusCallback,
-                statusCallbackMethod, emailAddress, callManager, conferenceManager, sms, storage, false);
+                statusCallbackMethod, emailAddress, callManager, conferenceManager, sms, storage, false, null);
     }
 
     public SubVoiceInterpreter(final Configuration configuration, final Sid account, final Sid phone, final String version,
             final URI url, final String method, final URI fallbackUrl, final String fallbackMethod, final URI statusCallback,
             final String statusCallbackMethod, final String emailAddress, final ActorRef callManager,
-            final ActorRef conferenceManager, final ActorRef sms, final DaoManager storage, final Boolean hangupOnEnd) {
+            final ActorRef conferenceManager, final ActorRef sms, final DaoManager storage, final Boolean hangupOnEnd,
+            final InterpreterServices services) {
         super();
         source = self();
         downloadingRcml = new State("downloading rcml", new DownloadingRcml(source), null);
@@ -184,11 +185,13 @@ public final class SubVoiceInterpreter extends BaseVoiceInterpreter {
         this.emailAddress = emailAddress;
         this.configuration = configuration;
         this.callManager = callManager;
+        this.services = services;
         this.asrService = asr(configuration.subset("speech-recognizer"));
         this.faxService = fax(configuration.subset("fax-service"));
         this.smsService = sms;
         this.smsSessions = new HashMap<Sid, ActorRef>();
         this.storage = storage;
+        this.writer = new RecordWriter(storage, RestcommDispatchers.database(getContext().system()));
         this.synthesizer = tts(configuration.subset("speech-synthesizer"));
         final Configuration runtime = configuration.subset("runtime-settings");
         String path = runtime.getString("cache-path");
@@ -267,9 +270,9 @@ public final class SubVoiceInterpreter extends BaseVoiceInterpreter {
         final State state = fsm.state();
         final ActorRef sender = sender();
 
-        if (logger.isInfoEnabled()) {
-            logger.info(" ********** SubVoiceInterpreter's Current State: " + state.toString());
-            logger.info(" ********** SubVoiceInterpreter's Processing Message: " + klass.getName());
+        if (logger.isDebugEnabled()) {
+            logger.debug(" ********** SubVoiceInterpreter's Current State: " + state.toString());
+            logger.debug(" ********** SubVoiceInterpreter's Processing Message: " + klass.getName());
         }
 
         if (StartInterpreter.class.equals(klass)) {
@@ -543,8 +546,7 @@ public final class SubVoiceInterpreter extends BaseVoiceInterpreter {
             }
             final Notification notification = notification(WARNING_NOTIFICATION, 21402, "URL Not Found : "
                     + response.get().getURI());
-            final NotificationsDao notifications = storage.getNotificationsDao();
-            notifications.addNotification(notification);
+            writer.addNotification(notification);
             // Hang up the call.
             call.tell(new org.mobicents.servlet.restcomm.telephony.NotFound(), source);
         }
@@ -601,8 +603,7 @@ public final class SubVoiceInterpreter extends BaseVoiceInterpreter {
                     callRecord = callRecord.setEndTime(end);
                     final int seconds = (int) (end.getMillis() - callRecord.getStartTime().getMillis()) / 1000;
                     callRecord = callRecord.setDuration(seconds);
-                    final CallDetailRecordsDao records = storage.getCallDetailRecordsDao();
-                    records.updateCallDetailRecord(callRecord);
+                    writer.updateCallDetailRecord(callRecord);
                 }
                 callback();
             }
@@ -618,13 +619,12 @@ public final class SubVoiceInterpreter extends BaseVoiceInterpreter {
 
             // Stop the dependencies.
             final UntypedActorContext context = getContext();
-            if (mailerNotify != null)
-                context.stop(mailerNotify);
-            context.stop(downloader);
-            context.stop(asrService);
-            context.stop(faxService);
-            context.stop(cache);
-            context.stop(synthesizer);
+            InterpreterServices.stop(context, mailerNotify);
+            InterpreterServices.stop(context, downloader);
+            InterpreterServices.stop(context, asrService);
+            InterpreterServices.stop(context, faxService);
+            InterpreterServices.stop(context, cache);
+            InterpreterServices.stop(context, synthesizer);
 
             // Stop the interpreter.
             postCleanup();
@@ -30,6 +30,7 @@ import java.net.URI;
 import org.apache.commons.configuration.Configuration;
 
 import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.dispatch.RestcommDispatchers;
 import org.mobicents.servlet.restcomm.entities.Sid;
 
 /**
@@ -54,6 +55,7 @@ public final class SubVoiceInterpreterBuilder {
     private String emailAddress;
 
     private Boolean hangupOnEnd = false;
+    private InterpreterServices services;
 
     /**
      * @author thomas.quintana@telestax.com (Thomas Quintana)
@@ -64,16 +66,16 @@ public final class SubVoiceInterpreterBuilder {
     }
 
     public ActorRef build() {
-        return system.actorOf(new Props(new UntypedActorFactory() {
+        return system.actorOf(RestcommDispatchers.props(system, new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
 
             @Override
             public UntypedActor create() throws Exception {
                 return new SubVoiceInterpreter(configuration, account, phone, version, url, method, fallbackUrl,
                         fallbackMethod, statusCallback, statusCallbackMethod, emailAddress, calls, conferences, sms, storage,
-                        hangupOnEnd);
+                        hangupOnEnd, services);
             }
-        }));
+        }), RestcommDispatchers.CALL_CONTROL));
     }
 
     public void setConfiguration(final Configuration configuration) {
@@ -139,4 +141,8 @@ public final class SubVoiceInterpreterBuilder {
     public void setHangupOnEnd(final Boolean hangupOnEnd) {
         this.hangupOnEnd = hangupOnEnd;
     }
-}
\ No newline at end of file
+
+    public void setServices(final InterpreterServices services) {
+        this.services = services;
+    }
+}
@@ -66,7 +66,8 @@ import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
 import org.mobicents.servlet.restcomm.dao.CallDetailRecordsDao;
 import org.mobicents.servlet.restcomm.dao.ConferenceDetailRecordsDao;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
-import org.mobicents.servlet.restcomm.dao.NotificationsDao;
+import org.mobicents.servlet.restcomm.dao.RecordWriter;
+import org.mobicents.servlet.restcomm.dispatch.RestcommDispatchers;
 import org.mobicents.servlet.restcomm.entities.CallDetailRecord;
 import org.mobicents.servlet.restcomm.entities.CallDetailRecordFilter;
 import org.mobicents.servlet.restcomm.entities.ConferenceDetailRecord;
@@ -85,6 +86,7 @@ import org.mobicents.servlet.restcomm.interpreter.rcml.GetNextVerb;
 import org.mobicents.servlet.restcomm.interpreter.rcml.Nouns;
 import org.mobicents.servlet.restcomm.interpreter.rcml.ParserFailed;
 import org.mobicents.servlet.restcomm.interpreter.rcml.Tag;
+import org.mobicents.servlet.restcomm.logging.TargetedLogging;
 import org.mobicents.servlet.restcomm.mscontrol.messages.MediaGroupResponse;
 import org.mobicents.servlet.restcomm.mscontrol.messages.Mute;
 import org.mobicents.servlet.restcomm.mscontrol.messages.Play;
@@ -202,6 +204,8 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
     private boolean liveCallModification = false;
     private boolean recordingCall = true;
     protected boolean isParserFailed = false;
+    // True while the parser works on the RCML of the primary voice url, a malformed document then falls back
+    private boolean parsingPrimaryRcml = false;
     protected boolean playWaitUrlPending = false;
     Tag conferenceVerb;
     List<URI> conferenceWaitUris;
@@ -217,7 +221,8 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
     public VoiceInterpreter(final Configuration configuration, final Sid account, final Sid phone, final String version,
                             final URI url, final String method, final URI fallbackUrl, final String fallbackMethod, final URI statusCallback,
                             final String statusCallbackMethod, final String emailAddress, final ActorRef callManager,
-                            final ActorRef conferenceManager, final ActorRef bridgeManager, final ActorRef sms, final DaoManager storage, final ActorRef monitoring, final String rcml) {
+                            final ActorRef conferenceManager, final ActorRef bridgeManager, final ActorRef sms, final DaoManager storage, final ActorRef monitoring, final String rcml,
+                            final boolean cacheRcml, final InterpreterServices services) {
         super();
         final ActorRef source = self();
         downloadingRcml = new State("downloading rcml", new DownloadingRcml(source), null);
@@ -281,6 +286,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
         transitions.add(new Transition(ready, startDialing));
         transitions.add(new Transition(ready, hangingUp));
         transitions.add(new Transition(ready, finished));
+        transitions.add(new Transition(ready, downloadingFallbackRcml));
         transitions.add(new Transition(pausing, ready));
         transitions.add(new Transition(pausing, finished));
         transitions.add(new Transition(rejecting, finished));
@@ -413,11 +419,13 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
         this.callManager = callManager;
         this.conferenceManager = conferenceManager;
         this.bridgeManager = bridgeManager;
+        this.services = services;
         this.asrService = asr(configuration.subset("speech-recognizer"));
         this.faxService = fax(configuration.subset("fax-service"));
         this.smsService = sms;
         this.smsSessions = new HashMap<Sid, ActorRef>();
         this.storage = storage;
+        this.writer = new RecordWriter(storage, RestcommDispatchers.database(getContext().system()));
         this.synthesizer = tts(configuration.subset("speech-synthesizer"));
         final Configuration runtime = configuration.subset("runtime-settings");
         String path = runtime.getString("cache-path");
@@ -441,6 +449,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
         this.downloader = downloader();
         this.monitoring = monitoring;
         this.rcml = rcml;
+        this.cacheRcml = cacheRcml;
     }
 
     private boolean is(State state) {
@@ -508,9 +517,12 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
         sender = sender();
         ActorRef self = self();
 
-        if (logger.isInfoEnabled()) {
-            logger.info(" ********** VoiceInterpreter's " + self().path() + " Current State: " + state.toString());
-            logger.info(" ********** VoiceInterpreter's " + self().path() + " Processing Message: " + klass.getName());
+        if (logger.isDebugEnabled()) {
+            logger.debug(" ********** VoiceInterpreter's " + self().path() + " Current State: " + state.toString());
+            logger.debug(" ********** VoiceInterpreter's " + self().path() + " Processing Message: " + klass.getName());
+        } else if (TargetedLogging.isTargeted(callInfo != null ? callInfo.sid() : null, accountId)) {
+            TargetedLogging.log(VoiceInterpreter.class, "VoiceInterpreter's " + self().path() + " Current State: "
+                    + state.toString() + " Processing Message: " + klass.getName());
         }
 
         if (StartInterpreter.class.equals(klass)) {
@@ -763,7 +775,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                     final String type = response.get().getContentType();
                     if (type != null) {
                         if (type.contains("text/xml") || type.contains("application/xml") || type.contains("text/html")) {
-                            parser = parser(response.get().getContentAsString());
+                            parser = parser(request, response.get());
                         } else if (type.contains("audio/wav") || type.contains("audio/wave") || type.contains("audio/x-wav")) {
                             parser = parser("<Play>" + request.getUri() + "</Play>");
                         } else if (type.contains("text/plain")) {
@@ -828,11 +840,23 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                 }
             }
         } else if (ParserFailed.class.equals(klass)) {
-            if(logger.isInfoEnabled()) {
-                logger.info("ParserFailed received. Will stop the call");
+            if (parsingPrimaryRcml && fallbackUrl != null) {
+                if(logger.isInfoEnabled()) {
+                    logger.info("ParserFailed received for the primary RCML. Will try the fallback url");
+                }
+                parsingPrimaryRcml = false;
+                if (parser != null) {
+                    getContext().stop(parser);
+                    parser = null;
+                }
+                fsm.transition(message, downloadingFallbackRcml);
+            } else {
+                if(logger.isInfoEnabled()) {
+                    logger.info("ParserFailed received. Will stop the call");
+                }
+                isParserFailed = true;
+                fsm.transition(message, hangingUp);
             }
-            isParserFailed = true;
-            fsm.transition(message, hangingUp);
         } else if (Tag.class.equals(klass)) {
             verb = (Tag) message;
             if (playWaitUrlPending) {
@@ -886,6 +910,10 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                 invalidVerb(verb);
             }
         } else if (End.class.equals(klass)) {
+            if (downloadingFallbackRcml.equals(state)) {
+                // The parser of a malformed primary RCML has nothing more to say, wait for the fallback RCML
+                return;
+            }
 //            Because of RMS issue https://github.com/RestComm/mediaserver/issues/158 we cannot have List<URI> for waitUrl
             if (playWaitUrlPending && conferenceWaitUris != null && conferenceWaitUris.size() > 0) {
                 fsm.transition(conferenceWaitUris, conferencing);
@@ -1253,8 +1281,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                 // Update the storage.
                 if (callRecord != null) {
                     callRecord = callRecord.setStatus(callState.toString());
-                    final CallDetailRecordsDao records = storage.getCallDetailRecordsDao();
-                    records.updateCallDetailRecord(callRecord);
+                    writer.updateCallDetailRecord(callRecord);
                 }
 
                 // Update the application.
@@ -1286,7 +1313,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
             }
             // Ask the downloader to get us the application that will be executed.
             final List<NameValuePair> parameters = parameters();
-            request = new HttpRequestDescriptor(url, method, parameters);
+            request = new HttpRequestDescriptor(url, method, parameters, cacheRcml);
             downloader.tell(request, source);
         }
     }
@@ -1338,6 +1365,8 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                 builder.setCallPath(call.path().toString());
 
                 callRecord = builder.build();
+                // Written right away so that the record is there for the readers of the call, only the updates are
+                // written behind.
                 records.addCallDetailRecord(callRecord);
                 //
                 // if (liveCallModification) {
@@ -1373,14 +1402,13 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                     notification = notification(ERROR_NOTIFICATION, 11100, cause.getMessage());
                 }
                 if (notification != null) {
-                    final NotificationsDao notifications = storage.getNotificationsDao();
-                    notifications.addNotification(notification);
+                    writer.addNotification(notification);
                     sendMail(notification);
                 }
             }
             // Try to use the fall back url and method.
             final List<NameValuePair> parameters = parameters();
-            request = new HttpRequestDescriptor(fallbackUrl, fallbackMethod, parameters);
+            request = new HttpRequestDescriptor(fallbackUrl, fallbackMethod, parameters, cacheRcml);
             downloader.tell(request, source);
         }
     }
@@ -1406,8 +1434,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                 if (callRecord != null) {
                     callRecord = callRecord.setStatus(callState.toString());
                     callRecord = callRecord.setStartTime(DateTime.now());
-                    final CallDetailRecordsDao records = storage.getCallDetailRecordsDao();
-                    records.updateCallDetailRecord(callRecord);
+                    writer.updateCallDetailRecord(callRecord);
                 }
 
                 // Handle pending verbs.
@@ -1417,6 +1444,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                     || finishGathering.equals(state) || finishRecording.equals(state) || sendingSms.equals(state)
                     || finishDialing.equals(state) || finishConferencing.equals(state)) {
                 response = ((DownloaderResponse) message).get();
+                parsingPrimaryRcml = downloadingRcml.equals(state);
                 if (parser != null) {
                     context.stop(parser);
                     parser = null;
@@ -1424,7 +1452,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                 final String type = response.getContentType();
                 if (type != null) {
                         if (type.contains("text/xml") || type.contains("application/xml") || type.contains("text/html")) {
-                            parser = parser(response.getContentAsString());
+                            parser = parser(request, response);
                         } else if (type.contains("audio/wav") || type.contains("audio/wave") || type.contains("audio/x-wav")) {
                             parser = parser("<Play>" + request.getUri() + "</Play>");
                         } else if (type.contains("text/plain")) {
@@ -1471,8 +1499,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
             }
             final Notification notification = notification(WARNING_NOTIFICATION, 21402, "URL Not Found : "
                     + response.get().getURI());
-            final NotificationsDao notifications = storage.getNotificationsDao();
-            notifications.addNotification(notification);
+            writer.addNotification(notification);
             // Hang up the call.
             call.tell(new org.mobicents.servlet.restcomm.telephony.NotFound(), source);
         }
@@ -1529,10 +1556,9 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                     callerId = e164(callerId);
                     if (callerId == null) {
                         callerId = verb.attribute("callerId").value();
-                        final NotificationsDao notifications = storage.getNotificationsDao();
                         final Notification notification = notification(ERROR_NOTIFICATION, 13214, callerId
                                 + " is an invalid callerId.");
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                         sendMail(notification);
                         final StopInterpreter stop = new StopInterpreter();
                         source.tell(stop, source);
@@ -1556,10 +1582,9 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                     try {
                         timeout = Integer.parseInt(value);
                     } catch (final NumberFormatException exception) {
-                        final NotificationsDao notifications = storage.getNotificationsDao();
                         final Notification notification = notification(WARNING_NOTIFICATION, 13212, value
                                 + " is not a valid timeout value for <Dial>");
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                     }
                 }
             }
@@ -1575,10 +1600,9 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                     try {
                         timeLimit = Integer.parseInt(value);
                     } catch (final NumberFormatException exception) {
-                        final NotificationsDao notifications = storage.getNotificationsDao();
                         final Notification notification = notification(WARNING_NOTIFICATION, 13216, value
                                 + " is not a valid timeLimit value for <Dial>");
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                     }
                 }
             }
@@ -1638,7 +1662,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                     final StringBuilder buffer = new StringBuilder();
                     buffer.append(accountId.toString()).append(":").append(name);
                     conferenceFriendlyName = name;
-                    final CreateConference create = new CreateConference(buffer.toString());
+                    final CreateConference create = new CreateConference(buffer.toString(), callInfo.sid());
                     conferenceManager.tell(create, source);
                 } else {
                     // Handle forking.
@@ -1779,8 +1803,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                 uri = UriUtils.resolve(new URI(path));
             } catch (final Exception exception) {
                 final Notification notification = notification(ERROR_NOTIFICATION, 12400, exception.getMessage());
-                final NotificationsDao notifications = storage.getNotificationsDao();
-                notifications.addNotification(notification);
+                writer.addNotification(notification);
                 sendMail(notification);
                 final StopInterpreter stop = new StopInterpreter();
                 source.tell(stop, source);
@@ -1994,7 +2017,6 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                 }
             }
 
-            final NotificationsDao notifications = storage.getNotificationsDao();
             if (attribute != null) {
                 if(logger.isInfoEnabled()) {
                     logger.info("Executing Dial Action attribute.");
@@ -2006,7 +2028,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                         target = URI.create(action);
                     } catch (final Exception exception) {
                         final Notification notification = notification(ERROR_NOTIFICATION, 11100, action + " is an invalid URI.");
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                         sendMail(notification);
                         final StopInterpreter stop = new StopInterpreter();
                         self().tell(stop, self());
@@ -2023,7 +2045,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                             if (!"GET".equalsIgnoreCase(method) && !"POST".equalsIgnoreCase(method)) {
                                 final Notification notification = notification(WARNING_NOTIFICATION, 13210, method
                                         + " is not a valid HTTP method for <Dial>");
-                                notifications.addNotification(notification);
+                                writer.addNotification(notification);
                                 method = "POST";
                             }
                         } else {
@@ -2290,8 +2312,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                         uri = UriUtils.resolve(new URI(path));
                     } catch (final Exception exception) {
                         final Notification notification = notification(ERROR_NOTIFICATION, 12400, exception.getMessage());
-                        final NotificationsDao notifications = storage.getNotificationsDao();
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                         sendMail(notification);
                         final StopInterpreter stop = new StopInterpreter();
                         source.tell(stop, source);
@@ -2360,8 +2381,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                 callRecord = callRecord.setMuted(muteCall);
                 callRecord = callRecord.setStartConferenceOnEnter(startConferenceOnEnter);
                 callRecord = callRecord.setEndConferenceOnExit(endConferenceOnExit);
-                final CallDetailRecordsDao records = storage.getCallDetailRecordsDao();
-                records.updateCallDetailRecord(callRecord);
+                writer.updateCallDetailRecord(callRecord);
             }
         }
     }
@@ -2381,7 +2401,6 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                 playWaitUrlPending = false;
                 return;
             }
-            final NotificationsDao notifications = storage.getNotificationsDao();
             final Tag child = conference(verb);
             conferenceVerb = verb;
             if (muteCall) {
@@ -2446,7 +2465,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                             } catch (final Exception exception) {
                                 final Notification notification = notification(ERROR_NOTIFICATION, 13233, method
                                         + " is not a valid waitUrl value for <Conference>");
-                                notifications.addNotification(notification);
+                                writer.addNotification(notification);
                                 sendMail(notification);
                                 final StopInterpreter stop = new StopInterpreter();
                                 source.tell(stop, source);
@@ -2467,7 +2486,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                             if (!"GET".equalsIgnoreCase(method) && !"POST".equalsIgnoreCase(method)) {
                                 final Notification notification = notification(WARNING_NOTIFICATION, 13234, method
                                         + " is not a valid waitMethod value for <Conference>");
-                                notifications.addNotification(notification);
+                                writer.addNotification(notification);
                                 method = "POST";
                             }
                         } else {
@@ -2519,8 +2538,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
             if(callRecord != null){
                 callRecord = callRecord.setOnHold(onHoldInCDR);
                 callRecord = callRecord.setMuted(onMuteInCDR);
-                final CallDetailRecordsDao callRecords = storage.getCallDetailRecordsDao();
-                callRecords.updateCallDetailRecord(callRecord);
+                writer.updateCallDetailRecord(callRecord);
             }
             // Set timer.
             final int timeLimit = timeLimit(verb);
@@ -2547,8 +2565,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                 for(CallDetailRecord singleRecord:conferenceCallRecords){
                     singleRecord.setMuted(mute);
                     singleRecord.setOnHold(hold);
-                    callRecordsDAO = storage.getCallDetailRecordsDao();
-                    callRecordsDAO.updateCallDetailRecord(singleRecord);
+                    writer.updateCallDetailRecord(singleRecord);
                 }
             }
         }
@@ -2586,7 +2603,6 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
             conference = null;
 
             // Parse remaining conference attributes.
-            final NotificationsDao notifications = storage.getNotificationsDao();
 
             // Parse "action".
             Attribute attribute = conferenceVerb.attribute("action");
@@ -2599,7 +2615,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                     } catch (final Exception exception) {
                         final Notification notification = notification(ERROR_NOTIFICATION, 11100, action
                                 + " is an invalid URI.");
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                         sendMail(notification);
                         final StopInterpreter stop = new StopInterpreter();
                         source.tell(stop, source);
@@ -2616,7 +2632,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                             if (!"GET".equalsIgnoreCase(method) && !"POST".equalsIgnoreCase(method)) {
                                 final Notification notification = notification(WARNING_NOTIFICATION, 13210, method
                                         + " is not a valid HTTP method for <Dial>");
-                                notifications.addNotification(notification);
+                                writer.addNotification(notification);
                                 method = "POST";
                             }
                         } else {
@@ -2658,8 +2674,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                     callRecord = callRecord.setEndTime(end);
                     final int seconds = (int) (end.getMillis() - callRecord.getStartTime().getMillis()) / 1000;
                     callRecord = callRecord.setDuration(seconds);
-                    final CallDetailRecordsDao records = storage.getCallDetailRecordsDao();
-                    records.updateCallDetailRecord(callRecord);
+                    writer.updateCallDetailRecord(callRecord);
                 }
             if (!dialActionExecuted) {
                 executeDialAction(message, outboundCall);
@@ -2699,8 +2714,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                         uri = UriUtils.resolve(new URI(path));
                     } catch (final Exception exception) {
                         final Notification notification = notification(ERROR_NOTIFICATION, 12400, exception.getMessage());
-                        final NotificationsDao notifications = storage.getNotificationsDao();
-                        notifications.addNotification(notification);
+                        writer.addNotification(notification);
                         sendMail(notification);
                         final StopInterpreter stop = new StopInterpreter();
                         source.tell(stop, source);
@@ -2732,14 +2746,12 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
 
             // Stop the dependencies.
             final UntypedActorContext context = getContext();
-            if (mailerNotify != null)
-                context.stop(mailerNotify);
-            if (mailerService != null)
-                context.stop(mailerService);
-            context.stop(asrService);
-            context.stop(faxService);
-            context.stop(cache);
-            context.stop(synthesizer);
+            InterpreterServices.stop(context, mailerNotify);
+            InterpreterServices.stop(context, mailerService);
+            InterpreterServices.stop(context, asrService);
+            InterpreterServices.stop(context, faxService);
+            InterpreterServices.stop(context, cache);
+            InterpreterServices.stop(context, synthesizer);
 
             // Stop the interpreter.
             postCleanup();
@@ -2785,7 +2797,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
 
         @Override
         public void execute(Object message) throws Exception {
-            final CreateBridge create = new CreateBridge();
+            final CreateBridge create = new CreateBridge(callInfo.sid());
             bridgeManager.tell(create, super.source);
         }
 
@@ -2841,6 +2853,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
             builder.setVersion(version);
             builder.setUrl(url);
             builder.setMethod(method);
+            builder.setServices(services);
             return builder.build();
         }
 
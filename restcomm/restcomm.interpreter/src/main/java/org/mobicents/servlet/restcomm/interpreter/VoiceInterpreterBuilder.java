@@ -30,6 +30,7 @@ import java.net.URI;
 import org.apache.commons.configuration.Configuration;
 
 import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.dispatch.RestcommDispatchers;
 import org.mobicents.servlet.restcomm.entities.Sid;
 
 /**
@@ -56,6 +57,8 @@ public final class VoiceInterpreterBuilder {
     private String emailAddress;
     private ActorRef monitoring;
     private String rcml;
+    private boolean cacheRcml;
+    private InterpreterServices services;
 
     /**
      * @author thomas.quintana@telestax.com (Thomas Quintana)
@@ -66,15 +69,15 @@ public final class VoiceInterpreterBuilder {
     }
 
     public ActorRef build() {
-        return system.actorOf(new Props(new UntypedActorFactory() {
+        return system.actorOf(RestcommDispatchers.props(system, new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
 
             @Override
             public UntypedActor create() throws Exception {
                 return new VoiceInterpreter(configuration, account, phone, version, url, method, fallbackUrl, fallbackMethod,
-                        statusCallback, statusCallbackMethod, emailAddress, calls, conferences, bridges, sms, storage, monitoring, rcml);
+                        statusCallback, statusCallbackMethod, emailAddress, calls, conferences, bridges, sms, storage, monitoring, rcml, cacheRcml, services);
             }
-        }));
+        }), RestcommDispatchers.CALL_CONTROL));
     }
 
     public void setConfiguration(final Configuration configuration) {
@@ -146,4 +149,12 @@ public final class VoiceInterpreterBuilder {
     }
 
     public void setRcml(final String rcml) { this.rcml = rcml; }
-}
\ No newline at end of file
+
+    public void setCacheRcml(final boolean cacheRcml) {
+        this.cacheRcml = cacheRcml;
+    }
+
+    public void setServices(final InterpreterServices services) {
+        this.services = services;
+    }
+}
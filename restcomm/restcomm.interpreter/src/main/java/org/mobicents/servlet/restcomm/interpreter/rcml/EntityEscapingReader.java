@@ -0,0 +1,138 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.interpreter.rcml;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.NotThreadSafe;
+
+/**
+ * Streaming replacement of the <code>&amp;([^;]+(?!(?:\w|;)))</code> regular expression fix-up that used to be applied
+ * to the whole RCML document before parsing. Customers often put raw query strings in their RCML
+ * (i.e <code>sip:alice@example.com?a=1&amp;b=2</code>) so every ampersand that doesn't start an entity or character
+ * reference is escaped on the fly. Leading white spaces are skipped so that the XML declaration is the first thing the
+ * parser sees.
+ */
+@NotThreadSafe
+public final class EntityEscapingReader extends Reader {
+    private static final int NONE = -2;
+    private static final int CHUNK_SIZE = 1024;
+
+    private final Reader reader;
+    private final StringBuilder pending;
+    private int position;
+    private int lookahead;
+    private boolean started;
+
+    public EntityEscapingReader(final Reader reader) {
+        super();
+        this.reader = reader;
+        this.pending = new StringBuilder(CHUNK_SIZE + 16);
+        this.position = 0;
+        this.lookahead = NONE;
+        this.started = false;
+    }
+
+    @Override
+    public int read(final char[] buffer, final int offset, final int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (position == pending.length()) {
+            pending.setLength(0);
+            position = 0;
+            if (!fill()) {
+                return -1;
+            }
+        }
+        final int count = Math.min(length, pending.length() - position);
+        pending.getChars(position, position + count, buffer, offset);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private int next() throws IOException {
+        if (lookahead != NONE) {
+            final int c = lookahead;
+            lookahead = NONE;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private boolean fill() throws IOException {
+        int c = next();
+        if (!started) {
+            while (c != -1 && Character.isWhitespace(c)) {
+                c = reader.read();
+            }
+            started = true;
+        }
+        if (c == -1) {
+            return false;
+        }
+        if (c == '&') {
+            reference();
+            return true;
+        }
+        // Copy plain text up to the next ampersand.
+        while (c != -1 && c != '&' && pending.length() < CHUNK_SIZE) {
+            pending.append((char) c);
+            c = reader.read();
+        }
+        if (c != -1) {
+            lookahead = c;
+        }
+        return true;
+    }
+
+    private void reference() throws IOException {
+        int c = reader.read();
+        if (c == '#' || c == '_' || c == ':' || Character.isLetter(c)) {
+            final int mark = pending.length();
+            pending.append('&');
+            do {
+                pending.append((char) c);
+                c = reader.read();
+            } while (isWordCharacter(c));
+            if (c == ';') {
+                // A well formed reference, leave it alone.
+                pending.append(';');
+                return;
+            }
+            pending.insert(mark + 1, "amp;");
+        } else {
+            pending.append("&amp;");
+        }
+        if (c != -1) {
+            lookahead = c;
+        }
+    }
+
+    private static boolean isWordCharacter(final int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+}
@@ -44,6 +44,13 @@ import static org.mobicents.servlet.restcomm.interpreter.rcml.Verbs.*;
  */
 public final class Parser extends UntypedActor {
     private static Logger logger = Logger.getLogger(Parser.class);
+    // Factories are expensive to look up and thread safe once configured so share a single one.
+    private static final XMLInputFactory inputs;
+    static {
+        inputs = XMLInputFactory.newInstance();
+        inputs.setProperty("javax.xml.stream.isCoalescing", true);
+    }
+
     private Tag document;
     private Iterator<Tag> iterator;
     private String xml;
@@ -62,37 +69,74 @@ public final class Parser extends UntypedActor {
         }
         this.xml = xml;
         this.sender = sender;
-        final XMLInputFactory inputs = XMLInputFactory.newInstance();
-        inputs.setProperty("javax.xml.stream.isCoalescing", true);
-        XMLStreamReader stream = null;
         try {
-            stream = inputs.createXMLStreamReader(reader);
-            document = parse(stream);
+            document = parse(reader);
             if (document == null) {
                 throw new IOException("There was an error parsing the RCML.");
             }
             iterator = document.iterator();
         } catch (final XMLStreamException exception) {
-            if(logger.isInfoEnabled()) {
-                logger.info("There was an error parsing the RCML for xml: "+xml+" excpetion: ", exception);
+            // The document may be large, it is only written out at debug.
+            if(logger.isDebugEnabled()) {
+                logger.debug("There was an error parsing the RCML for xml: "+xml+" excpetion: ", exception);
+            } else if(logger.isInfoEnabled()) {
+                logger.info("There was an error parsing the RCML: " + exception.getMessage());
             }
             sender.tell(new ParserFailed(exception,xml), null);
-        } finally {
-            if (stream != null) {
-                try {
-                    stream.close();
-                } catch (final XMLStreamException nested) {
-                    throw new IOException(nested);
-                }
-            }
         }
     }
 
     public Parser(final String xml, final ActorRef sender) throws IOException {
-        this(new StringReader(xml.trim().replaceAll("&([^;]+(?!(?:\\w|;)))", "&amp;$1")), xml, sender);
+        this(new EntityEscapingReader(new StringReader(xml)), xml, sender);
+    }
+
+    /**
+     * Walks a document that has already been parsed, i.e a cached RCML document. Tags are immutable so the same
+     * document can be shared by many parsers.
+     */
+    public Parser(final Tag document, final String xml, final ActorRef sender) {
+        super();
+        this.xml = xml;
+        this.sender = sender;
+        this.document = document;
+        this.iterator = document.iterator();
+    }
+
+    /**
+     * Parses an RCML document the same way {@link #Parser(String, ActorRef)} does.
+     *
+     * @param xml the RCML document
+     * @return the root tag or null if the document has no root element
+     * @throws IOException
+     * @throws XMLStreamException if the document is not well formed
+     */
+    public static Tag parse(final String xml) throws IOException, XMLStreamException {
+        return parse(new EntityEscapingReader(new StringReader(xml)));
+    }
+
+    /**
+     * Parses an RCML document into a tree of tags in a single pass. The StAX parser checks that the document is well
+     * formed while the tree is being built so there is no need to validate it beforehand.
+     *
+     * @param reader the RCML document
+     * @return the root tag or null if the document has no root element
+     * @throws IOException
+     * @throws XMLStreamException if the document is not well formed
+     */
+    static Tag parse(final Reader reader) throws IOException, XMLStreamException {
+        final XMLStreamReader stream = inputs.createXMLStreamReader(reader);
+        try {
+            return parse(stream);
+        } finally {
+            try {
+                stream.close();
+            } catch (final XMLStreamException nested) {
+                throw new IOException(nested);
+            }
+        }
     }
 
-    private void end(final Stack<Tag.Builder> builders, final XMLStreamReader stream) {
+    private static void end(final Stack<Tag.Builder> builders, final XMLStreamReader stream) {
         if (builders.size() > 1) {
             final Tag.Builder builder = builders.pop();
             final Tag tag = builder.build();
@@ -100,7 +144,7 @@ public final class Parser extends UntypedActor {
         }
     }
 
-    private void start(final Stack<Tag.Builder> builders, final XMLStreamReader stream) {
+    private static void start(final Stack<Tag.Builder> builders, final XMLStreamReader stream) {
         final Tag.Builder builder = Tag.builder();
         // Read the next tag.
         builder.setName(stream.getLocalName());
@@ -138,7 +182,7 @@ public final class Parser extends UntypedActor {
         return null;
     }
 
-    private Tag parse(final XMLStreamReader stream) throws IOException, XMLStreamException {
+    private static Tag parse(final XMLStreamReader stream) throws IOException, XMLStreamException {
         final Stack<Tag.Builder> builders = new Stack<Tag.Builder>();
         while (stream.hasNext()) {
             switch (stream.next()) {
@@ -186,7 +230,7 @@ public final class Parser extends UntypedActor {
         }
     }
 
-    private void text(final Stack<Tag.Builder> builders, final XMLStreamReader stream) {
+    private static void text(final Stack<Tag.Builder> builders, final XMLStreamReader stream) {
         if (!stream.isWhiteSpace()) {
             // Read the text.
             final Tag.Builder builder = builders.peek();
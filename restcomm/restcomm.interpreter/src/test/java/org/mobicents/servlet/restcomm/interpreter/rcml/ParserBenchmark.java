@@ -0,0 +1,95 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.interpreter.rcml;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.xml.sax.InputSource;
+
+/**
+ * Compares the old RCML pipeline (regex fix-up, DOM validation in the Downloader then regex fix-up and StAX parsing in
+ * the Parser) with the single pass streaming one. It is not part of the unit tests, run its main method with the test
+ * class path and add the gc profiler to the options to compare allocation rates as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({ "/rcml.xml", "/rcml-sip.xml", "/rcml-ivr.xml" })
+    public String document;
+
+    private String xml;
+
+    @Setup
+    public void setup() {
+        final InputStream input = getClass().getResourceAsStream(document);
+        final Scanner scanner = new Scanner(input, "UTF-8").useDelimiter("\\A");
+        xml = scanner.hasNext() ? scanner.next() : "";
+        scanner.close();
+    }
+
+    @Benchmark
+    public Tag domValidationAndReparse() throws Exception {
+        // Downloader.validateXML()
+        final String fixed = xml.trim().replaceAll("&([^;]+(?!(?:\\w|;)))", "&amp;$1");
+        final DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        builder.parse(new InputSource(new ByteArrayInputStream(fixed.getBytes("utf-8"))));
+        // Parser(String, ActorRef) used to look up a new factory for every document
+        XMLInputFactory.newInstance().setProperty("javax.xml.stream.isCoalescing", true);
+        return Parser.parse(new StringReader(xml.trim().replaceAll("&([^;]+(?!(?:\\w|;)))", "&amp;$1")));
+    }
+
+    @Benchmark
+    public Tag singlePass() throws Exception {
+        return Parser.parse(new EntityEscapingReader(new StringReader(xml)));
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder().include(ParserBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
@@ -81,6 +81,17 @@ public final class ParserTest {
         }));
     }
 
+    private ActorRef parser(final String input, final ActorRef sender) {
+        return system.actorOf(new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public UntypedActor create() throws Exception {
+                return new Parser(input, sender);
+            }
+        }));
+    }
+
     @Test
     public void testParser() {
         final InputStream input = getClass().getResourceAsStream("/rcml.xml");
@@ -205,4 +216,42 @@ public final class ParserTest {
             }
         };
     }
+
+    @Test
+    public void testParserEscapesStrayAmpersands() {
+        final String rcmlContent = "\n  <?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + "<Response>\n"
+                + "<Play loop=\"1\">http://127.0.0.1/audio.wav?a=1&b=2&amp;c=3&#38;d=4</Play>\n"
+                + "<Say>Tom & Jerry</Say>\n" + "</Response>";
+        new JavaTestKit(system) {
+            {
+                final ActorRef observer = getRef();
+                final GetNextVerb next = GetNextVerb.instance();
+                final ActorRef parser = parser(rcmlContent);
+                parser.tell(next, observer);
+                Tag verb = expectMsgClass(Tag.class);
+                assertTrue(play.equals(verb.name()));
+                assertEquals("http://127.0.0.1/audio.wav?a=1&b=2&c=3&d=4", verb.text());
+                parser.tell(next, observer);
+                verb = expectMsgClass(Tag.class);
+                assertTrue(say.equals(verb.name()));
+                assertEquals("Tom & Jerry", verb.text());
+                parser.tell(next, observer);
+                expectMsgClass(End.class);
+            }
+        };
+    }
+
+    @Test
+    public void testParserFailedOnMalformedRcml() {
+        final String rcmlContent = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + "<Response>\n"
+                + "<Say>Hello World!\n" + "</Response>";
+        new JavaTestKit(system) {
+            {
+                final ActorRef observer = getRef();
+                parser(rcmlContent, observer);
+                final ParserFailed failed = expectMsgClass(ParserFailed.class);
+                assertEquals(rcmlContent, failed.getXml());
+            }
+        };
+    }
 }
@@ -124,7 +124,10 @@ public abstract class GenericEndpoint extends UntypedActor {
     protected void onJainMgcpResponseEvent(JainMgcpResponseEvent message, ActorRef self, ActorRef sender) {
         if (this.destroying.get()) {
             ReturnCode returnCode = message.getReturnCode();
-            if (ReturnCode.TRANSACTION_EXECUTED_NORMALLY == returnCode.getValue()) {
+            if (returnCode.getValue() < ReturnCode.TRANSACTION_EXECUTED_NORMALLY) {
+                // Provisional response, the final one is still to come.
+                return;
+            } else if (ReturnCode.TRANSACTION_EXECUTED_NORMALLY == returnCode.getValue()) {
                 broadcast(new EndpointStateChanged(EndpointState.DESTROYED));
             } else {
                 logger.error("Could not destroy endpoint " + this.id.toString() + ". Return Code: " + returnCode.toString());
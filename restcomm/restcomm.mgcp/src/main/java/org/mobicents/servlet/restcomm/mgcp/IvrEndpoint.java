@@ -145,6 +145,10 @@ public final class IvrEndpoint extends GenericEndpoint {
     private void response(final Object message) {
         final NotificationRequestResponse response = (NotificationRequestResponse) message;
         final ReturnCode code = response.getReturnCode();
+        // Wait for the final response when the media server is still working on the request.
+        if (code.getValue() < ReturnCode.TRANSACTION_EXECUTED_NORMALLY) {
+            return;
+        }
         if (!Transaction_Executed_Normally.equals(code)) {
             final int value = code.getValue();
             fail(value);
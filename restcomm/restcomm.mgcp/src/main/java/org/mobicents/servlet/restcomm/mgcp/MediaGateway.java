@@ -40,6 +40,7 @@ import jain.protocol.ip.mgcp.message.Constants;
 import jain.protocol.ip.mgcp.message.NotificationRequest;
 import jain.protocol.ip.mgcp.message.Notify;
 import jain.protocol.ip.mgcp.message.parms.NotifiedEntity;
+import jain.protocol.ip.mgcp.message.parms.ReturnCode;
 
 import java.net.InetAddress;
 import java.util.Map;
@@ -65,6 +66,7 @@ public final class MediaGateway extends UntypedActor implements JainMgcpListener
     private InetAddress externalIp;
     // Used to detect dead media gateways.
     private long timeout;
+    private long transactionTimeout;
     // JAIN MGCP stuff.
     private JainMgcpProvider provider;
     private JainMgcpStack stack;
@@ -74,16 +76,14 @@ public final class MediaGateway extends UntypedActor implements JainMgcpListener
     private String domain;
     // Message responseListeners.
     private Map<String, ActorRef> notificationListeners;
-    private Map<Integer, ActorRef> responseListeners;
+    private MgcpTransactionManager transactions;
     // Runtime stuff.
     private RevolvingCounter requestIdPool;
     private RevolvingCounter sessionIdPool;
-    private RevolvingCounter transactionIdPool;
 
     public MediaGateway() {
         super();
         notificationListeners = new ConcurrentHashMap<String, ActorRef>();
-        responseListeners = new ConcurrentHashMap<Integer, ActorRef>();
     }
 
     private ActorRef getConnection(final Object message) {
@@ -160,6 +160,20 @@ public final class MediaGateway extends UntypedActor implements JainMgcpListener
         }));
     }
 
+    private ActorRef getNetworkLink(final Object message) {
+        final CreateNetworkLink request = (CreateNetworkLink) message;
+        final ActorRef gateway = self();
+        final MediaSession session = request.session();
+        return getContext().actorOf(new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public UntypedActor create() throws Exception {
+                return new NetworkLink(gateway, session);
+            }
+        }));
+    }
+
     private ActorRef getPacketRelayEndpoint(final Object message) {
         final ActorRef gateway = self();
         final CreatePacketRelayEndpoint request = (CreatePacketRelayEndpoint) message;
@@ -195,15 +209,17 @@ public final class MediaGateway extends UntypedActor implements JainMgcpListener
         useNat = false;
         externalIp = null;
         timeout = 0;
+        transactionTimeout = 0;
         provider = null;
         stack = null;
         agent = null;
         domain = null;
-        responseListeners.clear();
-        responseListeners = null;
+        if (transactions != null) {
+            transactions.stop();
+            transactions = null;
+        }
         requestIdPool = null;
         sessionIdPool = null;
-        transactionIdPool = null;
     }
 
     private void powerOn(final Object message) {
@@ -216,6 +232,8 @@ public final class MediaGateway extends UntypedActor implements JainMgcpListener
         useNat = request.useNat();
         externalIp = request.getExternalIp();
         timeout = request.getTimeout();
+        // Never give up on a transaction before the endpoints waiting for its response do.
+        transactionTimeout = Math.max(request.getTransactionTimeout(), timeout);
         stack = new JainMgcpStackImpl(localIp, localPort);
         try {
             provider = stack.createProvider();
@@ -227,10 +245,12 @@ public final class MediaGateway extends UntypedActor implements JainMgcpListener
         agent = new NotifiedEntity("restcomm", localIp.getHostAddress(), localPort);
         domain = new StringBuilder().append(remoteIp.getHostAddress()).append(":").append(remotePort).toString();
         notificationListeners.clear();
-        responseListeners.clear();
+        if (transactions != null) {
+            transactions.stop();
+        }
+        transactions = new MgcpTransactionManager(name, transactionTimeout);
         requestIdPool = new RevolvingCounter(1, Long.MAX_VALUE);
         sessionIdPool = new RevolvingCounter(1, Long.MAX_VALUE);
-        transactionIdPool = new RevolvingCounter(1, Long.MAX_VALUE);
     }
 
     @Override
@@ -251,7 +271,13 @@ public final class MediaGateway extends UntypedActor implements JainMgcpListener
     @Override
     public void processMgcpResponseEvent(final JainMgcpResponseEvent event) {
         final int id = event.getTransactionHandle();
-        final ActorRef listener = responseListeners.remove(id);
+        // Provisional responses keep the transaction open until the final response arrives.
+        final ActorRef listener;
+        if (event.getReturnCode().getValue() < ReturnCode.TRANSACTION_EXECUTED_NORMALLY) {
+            listener = transactions.provisional(id);
+        } else {
+            listener = transactions.complete(id);
+        }
         if (listener != null) {
             listener.tell(event, self());
         }
@@ -273,6 +299,8 @@ public final class MediaGateway extends UntypedActor implements JainMgcpListener
             sender.tell(new MediaGatewayResponse<ActorRef>(getConnection(message)), self);
         } else if (CreateLink.class.equals(klass)) {
             sender.tell(new MediaGatewayResponse<ActorRef>(getLink(message)), self);
+        } else if (CreateNetworkLink.class.equals(klass)) {
+            sender.tell(new MediaGatewayResponse<ActorRef>(getNetworkLink(message)), self);
         } else if (CreateMediaSession.class.equals(klass)) {
             sender.tell(new MediaGatewayResponse<MediaSession>(getSession()), self);
         } else if (CreateBridgeEndpoint.class.equals(klass)) {
@@ -309,11 +337,27 @@ public final class MediaGateway extends UntypedActor implements JainMgcpListener
         }
     }
 
+    @Override
+    public void postStop() {
+        if (transactions != null) {
+            transactions.stop();
+            transactions = null;
+        }
+        super.postStop();
+    }
+
     private void send(final Object message, final ActorRef sender) {
         final JainMgcpCommandEvent command = (JainMgcpCommandEvent) message;
-        final int transactionId = (int) transactionIdPool.get();
+        final int transactionId;
+        try {
+            transactionId = transactions.begin(command, sender);
+        } catch (final IllegalStateException exception) {
+            // The sender fails on its receive timeout like for an unanswered command.
+            logger.error(exception, "Could not send " + command.getClass().getSimpleName() + " to "
+                    + command.getEndpointIdentifier());
+            return;
+        }
         command.setTransactionHandle(transactionId);
-        responseListeners.put(transactionId, sender);
         if (NotificationRequest.class.equals(command.getClass())) {
             final NotificationRequest request = (NotificationRequest) command;
             final String id = Long.toString(requestIdPool.get());
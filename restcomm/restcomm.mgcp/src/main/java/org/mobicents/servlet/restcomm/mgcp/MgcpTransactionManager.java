@@ -0,0 +1,437 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.mgcp;
+
+import jain.protocol.ip.mgcp.JainMgcpCommandEvent;
+import jain.protocol.ip.mgcp.message.Constants;
+import jain.protocol.ip.mgcp.message.parms.EndpointIdentifier;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.log4j.Logger;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.util.Counters;
+
+import akka.actor.ActorRef;
+
+/**
+ * The MGCP transactions a {@link MediaGateway} is waiting a response for.
+ * <p>
+ * The transactions are kept in a table indexed by the low bits of their id, ids are handed out sequentially so sending
+ * a command and matching its response neither boxes the id nor takes a lock. A slot is only reused
+ * {@link #CAPACITY} commands later, when it is still taken by a transaction waiting for its response the command gets
+ * the next id with a free slot instead.
+ * <p>
+ * Provisional responses are forwarded to the listener of the transaction and restart its timer. The final response
+ * completes the transaction and records its latency in the histogram of the command. Transactions that don't get a
+ * final response in time are expired by a hashed wheel timer, the listeners fail on their own receive timeout so they
+ * are not told, the transaction is only dropped and counted.
+ * <p>
+ * The JAIN MGCP stack retransmits the commands left unanswered on its own, the media gateway answers a retransmitted
+ * command it is still working on with another provisional response, RFC 3435 section 3.5.6. The provisional responses
+ * after the first one of a transaction are counted as retransmitted commands. A response to a transaction that is
+ * already completed is a retransmission of its final response and counted as a duplicate, the responses to the expired
+ * transactions are counted as late.
+ */
+@ThreadSafe
+public final class MgcpTransactionManager {
+    private static final Logger logger = Logger.getLogger(MgcpTransactionManager.class);
+    private static final Set<MgcpTransactionManager> managers = Collections
+            .newSetFromMap(new ConcurrentHashMap<MgcpTransactionManager, Boolean>());
+
+    public static final int CAPACITY = 1 << 16;
+    private static final int MASK = CAPACITY - 1;
+    // Transaction ids are 1 to 9 digits long, RFC 3435 section 3.2.1.2.
+    private static final int MAX_TRANSACTION_ID = 999999999;
+    private static final int WHEEL_SIZE = 512;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final long DEFAULT_TICK = 50;
+
+    private static final int CRCX = 0;
+    private static final int MDCX = 1;
+    private static final int DLCX = 2;
+    private static final int RQNT = 3;
+    private static final int OTHER = 4;
+    private static final String[] COMMANDS = { "Crcx", "Mdcx", "Dlcx", "Rqnt", "Other" };
+    // Upper bounds of the latency histogram buckets in milliseconds, the last bucket has none.
+    private static final long[] BUCKETS = { 10, 50, 100, 500, 1000 };
+    private static final AtomicIntegerFieldUpdater<Transaction> PROVISIONALS = AtomicIntegerFieldUpdater.newUpdater(
+            Transaction.class, "provisionals");
+
+    static {
+        // Reported by the monitoring service.
+        Counters.register(MgcpTransactionManager.class.getName(), new Counters.Source() {
+            @Override
+            public void counters(final Map<String, Integer> counters) {
+                counters.putAll(getCounters());
+            }
+        });
+    }
+
+    private final String name;
+    private final long timeout;
+    private final long tick;
+    private final AtomicReferenceArray<Transaction> table;
+    // The id of the last transaction completed in each slot, to tell the duplicate responses from the late ones.
+    private final AtomicIntegerArray completed;
+    private final AtomicInteger nextId;
+    private final Queue<Transaction>[] wheel;
+    private final Clock clock;
+    private final long origin;
+    private volatile long ticks;
+    private final Thread timer;
+    private volatile boolean running;
+    // Counters.
+    private final AtomicInteger inFlight;
+    private final AtomicLong provisional;
+    private final AtomicLong late;
+    private final AtomicLong duplicate;
+    private final AtomicLong retransmitted;
+    private final AtomicLongArray timedOut;
+    private final AtomicLongArray latency;
+
+    /**
+     * @param name the name of the media gateway, used to name the timer thread.
+     * @param timeout how long to wait for a final response, in milliseconds.
+     */
+    public MgcpTransactionManager(final String name, final long timeout) {
+        this(name, timeout, DEFAULT_TICK, Clock.SYSTEM, true);
+    }
+
+    /**
+     * Without a timer thread, the transactions are expired by calling {@link #expire(long)}.
+     */
+    MgcpTransactionManager(final String name, final long timeout, final long tick, final Clock clock) {
+        this(name, timeout, tick, clock, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private MgcpTransactionManager(final String name, final long timeout, final long tick, final Clock clock,
+            final boolean timer) {
+        super();
+        this.name = name;
+        this.timeout = TimeUnit.MILLISECONDS.toNanos(timeout);
+        this.tick = TimeUnit.MILLISECONDS.toNanos(tick);
+        this.table = new AtomicReferenceArray<Transaction>(CAPACITY);
+        this.completed = new AtomicIntegerArray(CAPACITY);
+        this.nextId = new AtomicInteger();
+        this.wheel = new Queue[WHEEL_SIZE];
+        for (int index = 0; index < WHEEL_SIZE; index++) {
+            wheel[index] = new ConcurrentLinkedQueue<Transaction>();
+        }
+        this.clock = clock;
+        this.origin = clock.nanoTime();
+        this.ticks = 1;
+        this.inFlight = new AtomicInteger();
+        this.provisional = new AtomicLong();
+        this.late = new AtomicLong();
+        this.duplicate = new AtomicLong();
+        this.retransmitted = new AtomicLong();
+        this.timedOut = new AtomicLongArray(COMMANDS.length);
+        this.latency = new AtomicLongArray(COMMANDS.length * (BUCKETS.length + 1));
+        this.running = true;
+        if (timer) {
+            this.timer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    expire();
+                }
+            }, "mgcp-transactions-" + name);
+            this.timer.setDaemon(true);
+            this.timer.start();
+        } else {
+            this.timer = null;
+        }
+        managers.add(this);
+    }
+
+    /**
+     * @return the counters of the transactions of all the media gateways, i.e <code>MgcpTransactionsInFlight</code>
+     *         or <code>MgcpCrcxLatencyUnder50Ms</code>.
+     */
+    public static Map<String, Integer> getCounters() {
+        int inFlight = 0;
+        long provisional = 0;
+        long late = 0;
+        long duplicate = 0;
+        long retransmitted = 0;
+        final long[] timedOut = new long[COMMANDS.length];
+        final long[] latency = new long[COMMANDS.length * (BUCKETS.length + 1)];
+        for (final MgcpTransactionManager manager : managers) {
+            inFlight += manager.inFlight.get();
+            provisional += manager.provisional.get();
+            late += manager.late.get();
+            duplicate += manager.duplicate.get();
+            retransmitted += manager.retransmitted.get();
+            for (int index = 0; index < timedOut.length; index++) {
+                timedOut[index] += manager.timedOut.get(index);
+            }
+            for (int index = 0; index < latency.length; index++) {
+                latency[index] += manager.latency.get(index);
+            }
+        }
+        final Map<String, Integer> counters = new HashMap<String, Integer>();
+        long total = 0;
+        for (int command = 0; command < COMMANDS.length; command++) {
+            final String prefix = "Mgcp" + COMMANDS[command];
+            counters.put(prefix + "TimedOut", (int) timedOut[command]);
+            total += timedOut[command];
+            for (int bucket = 0; bucket <= BUCKETS.length; bucket++) {
+                final String label = bucket < BUCKETS.length ? "Under" + BUCKETS[bucket] : "Over" + BUCKETS[bucket - 1];
+                counters.put(prefix + "Latency" + label + "Ms", (int) latency[command * (BUCKETS.length + 1) + bucket]);
+            }
+        }
+        counters.put("MgcpTransactionsInFlight", inFlight);
+        counters.put("MgcpTransactionsTimedOut", (int) total);
+        counters.put("MgcpProvisionalResponses", (int) provisional);
+        counters.put("MgcpLateResponses", (int) late);
+        counters.put("MgcpDuplicateResponses", (int) duplicate);
+        counters.put("MgcpRetransmittedCommands", (int) retransmitted);
+        return counters;
+    }
+
+    /**
+     * Starts a transaction for the command.
+     *
+     * @return the transaction id to send the command with.
+     * @throws IllegalStateException if {@link #CAPACITY} transactions are already waiting for their response.
+     */
+    public int begin(final JainMgcpCommandEvent command, final ActorRef listener) {
+        final long now = clock.nanoTime();
+        // Skip the ids whose slot is taken by a transaction still waiting for its response.
+        for (int probe = 0; probe < CAPACITY; probe++) {
+            final int id = id();
+            final int slot = id & MASK;
+            if (table.get(slot) == null) {
+                final Transaction transaction = new Transaction(id, command(command), command.getEndpointIdentifier(),
+                        listener, now, now + timeout);
+                if (table.compareAndSet(slot, null, transaction)) {
+                    inFlight.incrementAndGet();
+                    schedule(transaction);
+                    return id;
+                }
+            }
+        }
+        throw new IllegalStateException("Media gateway " + name + " has " + CAPACITY + " transactions in flight.");
+    }
+
+    /**
+     * Restarts the timer of a transaction the media server is still working on.
+     *
+     * @return the listener of the transaction or null if it is already completed or expired.
+     */
+    public ActorRef provisional(final int id) {
+        final Transaction transaction = table.get(id & MASK);
+        if (transaction == null || transaction.id != id) {
+            unmatched(id);
+            return null;
+        }
+        provisional.incrementAndGet();
+        if (PROVISIONALS.getAndIncrement(transaction) > 0) {
+            retransmitted.incrementAndGet();
+        }
+        transaction.deadline = clock.nanoTime() + timeout;
+        return transaction.listener;
+    }
+
+    /**
+     * Completes a transaction with its final response.
+     *
+     * @return the listener of the transaction or null if it is already completed or expired.
+     */
+    public ActorRef complete(final int id) {
+        final int slot = id & MASK;
+        final Transaction transaction = table.get(slot);
+        if (transaction == null || transaction.id != id || !table.compareAndSet(slot, transaction, null)) {
+            unmatched(id);
+            return null;
+        }
+        completed.set(slot, id);
+        inFlight.decrementAndGet();
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(clock.nanoTime() - transaction.start);
+        int bucket = 0;
+        while (bucket < BUCKETS.length && elapsed >= BUCKETS[bucket]) {
+            bucket++;
+        }
+        latency.incrementAndGet(transaction.command * (BUCKETS.length + 1) + bucket);
+        return transaction.listener;
+    }
+
+    // Counts a response whose transaction is no longer waiting for it.
+    private void unmatched(final int id) {
+        if (completed.get(id & MASK) == id) {
+            duplicate.incrementAndGet();
+        } else {
+            late.incrementAndGet();
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Stops the timer and drops the pending transactions.
+     */
+    public void stop() {
+        running = false;
+        if (timer != null) {
+            timer.interrupt();
+        }
+        managers.remove(this);
+        for (int slot = 0; slot < CAPACITY; slot++) {
+            if (table.getAndSet(slot, null) != null) {
+                inFlight.decrementAndGet();
+            }
+        }
+        for (final Queue<Transaction> bucket : wheel) {
+            bucket.clear();
+        }
+    }
+
+    private int id() {
+        int current;
+        int next;
+        do {
+            current = nextId.get();
+            next = current < MAX_TRANSACTION_ID ? current + 1 : 1;
+        } while (!nextId.compareAndSet(current, next));
+        return next;
+    }
+
+    private static int command(final JainMgcpCommandEvent command) {
+        switch (command.getObjectIdentifier()) {
+            case Constants.CMD_CREATE_CONNECTION:
+                return CRCX;
+            case Constants.CMD_MODIFY_CONNECTION:
+                return MDCX;
+            case Constants.CMD_DELETE_CONNECTION:
+                return DLCX;
+            case Constants.CMD_NOTIFICATION_REQUEST:
+                return RQNT;
+            default:
+                return OTHER;
+        }
+    }
+
+    private void schedule(final Transaction transaction) {
+        long tick = (transaction.deadline - origin + this.tick - 1) / this.tick;
+        final long current = ticks;
+        if (tick < current) {
+            tick = current;
+        }
+        wheel[(int) (tick & WHEEL_MASK)].offer(transaction);
+    }
+
+    private void expire() {
+        while (running) {
+            final long sleep = origin + ticks * tick - clock.nanoTime();
+            if (sleep > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (final InterruptedException exception) {
+                    continue;
+                }
+            }
+            expire(clock.nanoTime());
+        }
+    }
+
+    /**
+     * Expires the transactions of the ticks that have elapsed by the given time of the clock.
+     */
+    void expire(final long now) {
+        long current = ticks;
+        while (origin + current * tick - now <= 0) {
+            // Transactions scheduled from now on go to the next buckets.
+            ticks = current + 1;
+            final Queue<Transaction> bucket = wheel[(int) (current & WHEEL_MASK)];
+            Transaction transaction = bucket.poll();
+            while (transaction != null) {
+                final int slot = transaction.id & MASK;
+                if (table.get(slot) == transaction) {
+                    if (transaction.deadline - now > 0) {
+                        schedule(transaction);
+                    } else if (table.compareAndSet(slot, transaction, null)) {
+                        timedOut(transaction);
+                    }
+                }
+                transaction = bucket.poll();
+            }
+            current = ticks;
+        }
+    }
+
+    private void timedOut(final Transaction transaction) {
+        inFlight.decrementAndGet();
+        timedOut.incrementAndGet(transaction.command);
+        logger.warn("Media gateway " + name + " did not answer the " + COMMANDS[transaction.command].toUpperCase()
+                + " transaction " + transaction.id + " on endpoint " + transaction.endpoint);
+    }
+
+    /**
+     * The monotonic time source of the transactions, in nanoseconds.
+     */
+    interface Clock {
+        Clock SYSTEM = new Clock() {
+            @Override
+            public long nanoTime() {
+                return System.nanoTime();
+            }
+        };
+
+        long nanoTime();
+    }
+
+    private static final class Transaction {
+        private final int id;
+        private final int command;
+        private final EndpointIdentifier endpoint;
+        private final ActorRef listener;
+        private final long start;
+        private volatile long deadline;
+        // The provisional responses received, updated through PROVISIONALS that can't reach a private field.
+        volatile int provisionals;
+
+        private Transaction(final int id, final int command, final EndpointIdentifier endpoint, final ActorRef listener,
+                final long start, final long deadline) {
+            super();
+            this.id = id;
+            this.command = command;
+            this.endpoint = endpoint;
+            this.listener = listener;
+            this.start = start;
+            this.deadline = deadline;
+        }
+    }
+}
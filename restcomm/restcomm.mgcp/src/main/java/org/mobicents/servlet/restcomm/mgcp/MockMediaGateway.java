@@ -188,6 +188,22 @@ public final class MockMediaGateway extends UntypedActor {
         return link;
     }
 
+    private ActorRef getNetworkLink(final Object message) {
+        final CreateNetworkLink request = (CreateNetworkLink) message;
+        final ActorRef gateway = self();
+        final MediaSession session = request.session();
+        ActorRef link = getContext().actorOf(new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public UntypedActor create() throws Exception {
+                return new NetworkLink(gateway, session);
+            }
+        }));
+        links.put(session, link);
+        return link;
+    }
+
     private ActorRef getPacketRelayEndpoint(final Object message) {
         final ActorRef gateway = self();
         final CreatePacketRelayEndpoint request = (CreatePacketRelayEndpoint) message;
@@ -260,6 +276,8 @@ public final class MockMediaGateway extends UntypedActor {
             sender.tell(new MediaGatewayResponse<ActorRef>(getConnection(message)), self);
         } else if (CreateLink.class.equals(klass)) {
             sender.tell(new MediaGatewayResponse<ActorRef>(getLink(message)), self);
+        } else if (CreateNetworkLink.class.equals(klass)) {
+            sender.tell(new MediaGatewayResponse<ActorRef>(getNetworkLink(message)), self);
         } else if (CreateMediaSession.class.equals(klass)) {
             sender.tell(new MediaGatewayResponse<MediaSession>(getSession()), self);
         } else if (CreateBridgeEndpoint.class.equals(klass)) {
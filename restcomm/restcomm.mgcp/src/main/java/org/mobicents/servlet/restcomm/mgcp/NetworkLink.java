@@ -0,0 +1,460 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.mgcp;
+
+import akka.actor.ActorRef;
+import akka.actor.Terminated;
+import akka.actor.UntypedActor;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+
+import jain.protocol.ip.mgcp.message.parms.ConnectionMode;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.mobicents.servlet.restcomm.fsm.Action;
+import org.mobicents.servlet.restcomm.fsm.FiniteStateMachine;
+import org.mobicents.servlet.restcomm.fsm.State;
+import org.mobicents.servlet.restcomm.fsm.Transition;
+import org.mobicents.servlet.restcomm.patterns.Observe;
+import org.mobicents.servlet.restcomm.patterns.Observing;
+import org.mobicents.servlet.restcomm.patterns.StopObserving;
+
+/**
+ * A link between two endpoints that may live on different media gateways.
+ * <p>
+ * A {@link Link} asks one media gateway to connect two of its own endpoints. When the media servers are pooled the
+ * secondary endpoint, usually a conference, can be hosted by another media gateway. This link then connects each endpoint
+ * to the other over RTP: a connection on the primary endpoint is opened halfway, its session description is offered to a
+ * connection on the secondary endpoint and the answer is set back on the first connection. It understands the same
+ * messages and reports the same {@link LinkStateChanged} events as a {@link Link}, so the controllers do not have to tell
+ * them apart.
+ */
+public final class NetworkLink extends UntypedActor {
+    private final LoggingAdapter logger = Logging.getLogger(getContext().system(), this);
+    // Finite state machine stuff.
+    private final State uninitialized;
+    private final State closed;
+    private final State open;
+    // Special intermediate states to indicate we are waiting for the media gateways to create the connections.
+    private final State acquiringSession;
+    private final State acquiringPrimary;
+    private final State acquiringSecondary;
+    private final State initializing;
+    // Special intermediate states to indicate we are waiting for the connections before completing a move in to a
+    // different state.
+    private final State openingPrimary;
+    private final State openingSecondary;
+    private final State connecting;
+    private final State modifying;
+    private final State closing;
+    private final FiniteStateMachine fsm;
+    // Runtime Stuff.
+    private final ActorRef gateway;
+    private final MediaSession session;
+    private final List<ActorRef> observers;
+    private ActorRef remoteGateway;
+    private MediaSession remoteSession;
+    private ActorRef primaryEndpoint;
+    private ActorRef secondaryEndpoint;
+    private ActorRef primaryConnection;
+    private ActorRef secondaryConnection;
+    private ConnectionStateChanged.State primaryState;
+    private ConnectionStateChanged.State secondaryState;
+
+    public NetworkLink(final ActorRef gateway, final MediaSession session) {
+        super();
+        final ActorRef source = self();
+        // Initialize the states for the FSM.
+        uninitialized = new State("uninitialized", null, null);
+        closed = new State("closed", new Closed(source), null);
+        open = new State("open", new Open(source), null);
+        acquiringSession = new State("acquiring session", new AcquiringSession(source), null);
+        acquiringPrimary = new State("acquiring primary", new AcquiringPrimary(source), null);
+        acquiringSecondary = new State("acquiring secondary", new AcquiringSecondary(source), null);
+        initializing = new State("initializing", new Initializing(source), null);
+        openingPrimary = new State("opening primary", new OpeningPrimary(source), null);
+        openingSecondary = new State("opening secondary", new OpeningSecondary(source), null);
+        connecting = new State("connecting", new Connecting(source), null);
+        modifying = new State("modifying", new Modifying(source), null);
+        closing = new State("closing", new Closing(source), null);
+        // Initialize the main transitions for the FSM.
+        final Set<Transition> transitions = new HashSet<Transition>();
+        transitions.add(new Transition(uninitialized, acquiringSession));
+        transitions.add(new Transition(closed, openingPrimary));
+        transitions.add(new Transition(open, modifying));
+        transitions.add(new Transition(open, closing));
+        transitions.add(new Transition(open, closed));
+        // Initialize the intermediate transitions for the FSM.
+        transitions.add(new Transition(acquiringSession, acquiringPrimary));
+        transitions.add(new Transition(acquiringPrimary, acquiringSecondary));
+        transitions.add(new Transition(acquiringSecondary, initializing));
+        transitions.add(new Transition(initializing, closed));
+        transitions.add(new Transition(openingPrimary, openingSecondary));
+        transitions.add(new Transition(openingSecondary, connecting));
+        transitions.add(new Transition(connecting, open));
+        transitions.add(new Transition(modifying, open));
+        transitions.add(new Transition(closing, closed));
+        // Initialize transitions needed in case a media gateway or one of the connections goes away.
+        transitions.add(new Transition(acquiringSession, closed));
+        transitions.add(new Transition(acquiringPrimary, closed));
+        transitions.add(new Transition(acquiringSecondary, closed));
+        transitions.add(new Transition(openingPrimary, closing));
+        transitions.add(new Transition(openingPrimary, closed));
+        transitions.add(new Transition(openingSecondary, closing));
+        transitions.add(new Transition(openingSecondary, closed));
+        transitions.add(new Transition(connecting, closing));
+        transitions.add(new Transition(connecting, closed));
+        transitions.add(new Transition(modifying, closing));
+        transitions.add(new Transition(modifying, closed));
+        // Initialize the FSM.
+        this.fsm = new FiniteStateMachine(uninitialized, transitions);
+        // Initialize the rest of the link state.
+        this.gateway = gateway;
+        this.session = session;
+        this.observers = new ArrayList<ActorRef>();
+        this.primaryState = null;
+        this.secondaryState = null;
+    }
+
+    private void observe(final Object message) {
+        final ActorRef self = self();
+        final Observe request = (Observe) message;
+        final ActorRef observer = request.observer();
+        if (observer != null) {
+            observers.add(observer);
+            observer.tell(new Observing(self), self);
+        }
+    }
+
+    private void stopObserving(final Object message) {
+        final StopObserving request = (StopObserving) message;
+        final ActorRef observer = request.observer();
+        if (observer != null) {
+            observers.remove(observer);
+        }
+    }
+
+    @Override
+    public void onReceive(final Object message) throws Exception {
+        final Class<?> klass = message.getClass();
+        final State state = fsm.state();
+        if (Observe.class.equals(klass)) {
+            observe(message);
+        } else if (StopObserving.class.equals(klass)) {
+            stopObserving(message);
+        } else if (InitializeLink.class.equals(klass)) {
+            fsm.transition(message, acquiringSession);
+        } else if (MediaGatewayResponse.class.equals(klass)) {
+            onMediaGatewayResponse((MediaGatewayResponse<?>) message, state);
+        } else if (ConnectionStateChanged.class.equals(klass)) {
+            onConnectionStateChanged((ConnectionStateChanged) message, state);
+        } else if (OpenLink.class.equals(klass)) {
+            if (primaryConnection != null && secondaryConnection != null) {
+                fsm.transition(message, openingPrimary);
+            } else {
+                // The connections could not be created, the link stays closed.
+                broadcast(new LinkStateChanged(LinkStateChanged.State.CLOSED));
+            }
+        } else if (UpdateLink.class.equals(klass)) {
+            if (open.equals(state)) {
+                fsm.transition(message, modifying);
+            }
+        } else if (CloseLink.class.equals(klass)) {
+            if (!uninitialized.equals(state) && !closing.equals(state) && !closed.equals(state)) {
+                close(message);
+            }
+        } else if (Terminated.class.equals(klass)) {
+            // The remote media gateway went away and took the secondary connection with it.
+            logger.error("The media gateway " + remoteGateway.path() + " of the secondary endpoint went away.");
+            secondaryConnection = null;
+            secondaryState = ConnectionStateChanged.State.CLOSED;
+            if (closing.equals(state)) {
+                if (bothClosed()) {
+                    fsm.transition(message, closed);
+                }
+            } else if (!closed.equals(state)) {
+                close(message);
+            }
+        }
+    }
+
+    private void onMediaGatewayResponse(final MediaGatewayResponse<?> response, final State state) throws Exception {
+        final boolean acquiring = acquiringSession.equals(state) || acquiringPrimary.equals(state)
+                || acquiringSecondary.equals(state);
+        if (!acquiring) {
+            // A connection created after the link gave up on it.
+            if (response.succeeded() && response.get() instanceof ActorRef) {
+                sender().tell(new DestroyConnection((ActorRef) response.get()), self());
+            }
+        } else if (!response.succeeded()) {
+            logger.error(response.cause(), "The link could not be set up between " + gateway.path() + " and "
+                    + remoteGateway.path());
+            fsm.transition(response, closed);
+        } else if (acquiringSession.equals(state)) {
+            fsm.transition(response, acquiringPrimary);
+        } else if (acquiringPrimary.equals(state)) {
+            fsm.transition(response, acquiringSecondary);
+        } else {
+            fsm.transition(response, initializing);
+        }
+    }
+
+    private void onConnectionStateChanged(final ConnectionStateChanged event, final State state) throws Exception {
+        final ActorRef connection = sender();
+        if (connection.equals(primaryConnection)) {
+            primaryState = event.state();
+        } else if (connection.equals(secondaryConnection)) {
+            secondaryState = event.state();
+        } else {
+            return;
+        }
+        final boolean opened = isOpen(event.state());
+        if (closing.equals(state) || closed.equals(state)) {
+            if (opened) {
+                // The connection finished opening after the link started closing.
+                connection.tell(new CloseConnection(), self());
+            } else if (closing.equals(state) && bothClosed()) {
+                fsm.transition(event, closed);
+            }
+        } else if (initializing.equals(state)) {
+            // Wait until both connections are initialized.
+            if (ConnectionStateChanged.State.CLOSED.equals(primaryState)
+                    && ConnectionStateChanged.State.CLOSED.equals(secondaryState)) {
+                fsm.transition(event, closed);
+            }
+        } else if (!opened) {
+            // One side of the link failed or went away, close the other side.
+            close(event);
+        } else if (openingPrimary.equals(state)) {
+            fsm.transition(event, openingSecondary);
+        } else if (openingSecondary.equals(state)) {
+            fsm.transition(event, connecting);
+        } else if (connecting.equals(state) || modifying.equals(state)) {
+            fsm.transition(event, open);
+        }
+    }
+
+    private boolean isOpen(final ConnectionStateChanged.State state) {
+        return ConnectionStateChanged.State.HALF_OPEN.equals(state) || ConnectionStateChanged.State.OPEN.equals(state);
+    }
+
+    private boolean bothClosed() {
+        return !isOpen(primaryState) && !isOpen(secondaryState);
+    }
+
+    private void close(final Object message) throws Exception {
+        if (primaryConnection == null || bothClosed()) {
+            fsm.transition(message, closed);
+        } else {
+            fsm.transition(message, closing);
+        }
+    }
+
+    private void broadcast(final LinkStateChanged event) {
+        final ActorRef self = self();
+        for (final ActorRef observer : observers) {
+            observer.tell(event, self);
+        }
+    }
+
+    @Override
+    public void postStop() {
+        if (primaryConnection != null) {
+            gateway.tell(new DestroyConnection(primaryConnection), self());
+        }
+        if (secondaryConnection != null) {
+            remoteGateway.tell(new DestroyConnection(secondaryConnection), self());
+        }
+        super.postStop();
+    }
+
+    private abstract class AbstractAction implements Action {
+        protected final ActorRef source;
+
+        public AbstractAction(final ActorRef source) {
+            super();
+            this.source = source;
+        }
+    }
+
+    private final class Closed extends AbstractAction {
+        public Closed(final ActorRef source) {
+            super(source);
+        }
+
+        @Override
+        public void execute(final Object message) throws Exception {
+            broadcast(new LinkStateChanged(LinkStateChanged.State.CLOSED));
+        }
+    }
+
+    private final class Open extends AbstractAction {
+        public Open(final ActorRef source) {
+            super(source);
+        }
+
+        @Override
+        public void execute(final Object message) throws Exception {
+            broadcast(new LinkStateChanged(LinkStateChanged.State.OPEN));
+        }
+    }
+
+    private final class AcquiringSession extends AbstractAction {
+        public AcquiringSession(final ActorRef source) {
+            super(source);
+        }
+
+        @Override
+        public void execute(final Object message) throws Exception {
+            final InitializeLink request = (InitializeLink) message;
+            primaryEndpoint = request.primaryEndpoint();
+            secondaryEndpoint = request.secondaryEndpoint();
+            // Endpoints are children of the media gateway that created them.
+            remoteGateway = getContext().actorFor(secondaryEndpoint.path().parent());
+            getContext().watch(remoteGateway);
+            // Media sessions are numbered by each media gateway so the remote side needs one of its own.
+            remoteGateway.tell(new CreateMediaSession(), source);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Linking " + primaryEndpoint.path() + " to " + secondaryEndpoint.path() + " over the network.");
+            }
+        }
+    }
+
+    private final class AcquiringPrimary extends AbstractAction {
+        public AcquiringPrimary(final ActorRef source) {
+            super(source);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void execute(final Object message) throws Exception {
+            remoteSession = ((MediaGatewayResponse<MediaSession>) message).get();
+            gateway.tell(new CreateConnection(session), source);
+        }
+    }
+
+    private final class AcquiringSecondary extends AbstractAction {
+        public AcquiringSecondary(final ActorRef source) {
+            super(source);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void execute(final Object message) throws Exception {
+            primaryConnection = ((MediaGatewayResponse<ActorRef>) message).get();
+            remoteGateway.tell(new CreateConnection(remoteSession), source);
+        }
+    }
+
+    private final class Initializing extends AbstractAction {
+        public Initializing(final ActorRef source) {
+            super(source);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void execute(final Object message) throws Exception {
+            secondaryConnection = ((MediaGatewayResponse<ActorRef>) message).get();
+            primaryConnection.tell(new Observe(source), source);
+            primaryConnection.tell(new InitializeConnection(primaryEndpoint), source);
+            secondaryConnection.tell(new Observe(source), source);
+            secondaryConnection.tell(new InitializeConnection(secondaryEndpoint), source);
+        }
+    }
+
+    private final class OpeningPrimary extends AbstractAction {
+        public OpeningPrimary(final ActorRef source) {
+            super(source);
+        }
+
+        @Override
+        public void execute(final Object message) throws Exception {
+            final OpenLink request = (OpenLink) message;
+            // Get a session description for the primary endpoint to offer to the secondary one.
+            primaryConnection.tell(new OpenConnection(request.mode(), false), source);
+        }
+    }
+
+    private final class OpeningSecondary extends AbstractAction {
+        public OpeningSecondary(final ActorRef source) {
+            super(source);
+        }
+
+        @Override
+        public void execute(final Object message) throws Exception {
+            final ConnectionStateChanged event = (ConnectionStateChanged) message;
+            secondaryConnection.tell(new OpenConnection(event.descriptor(), ConnectionMode.SendRecv), source);
+        }
+    }
+
+    private final class Connecting extends AbstractAction {
+        public Connecting(final ActorRef source) {
+            super(source);
+        }
+
+        @Override
+        public void execute(final Object message) throws Exception {
+            final ConnectionStateChanged event = (ConnectionStateChanged) message;
+            // Answer the offer of the primary connection.
+            primaryConnection.tell(new UpdateConnection(event.descriptor()), source);
+        }
+    }
+
+    private final class Modifying extends AbstractAction {
+        public Modifying(final ActorRef source) {
+            super(source);
+        }
+
+        @Override
+        public void execute(final Object message) throws Exception {
+            final UpdateLink request = (UpdateLink) message;
+            final UpdateConnection update = new UpdateConnection(request.mode());
+            switch (request.type()) {
+                case PRIMARY:
+                    primaryConnection.tell(update, source);
+                    break;
+                case SECONDARY:
+                    secondaryConnection.tell(update, source);
+                    break;
+            }
+        }
+    }
+
+    private final class Closing extends AbstractAction {
+        public Closing(final ActorRef source) {
+            super(source);
+        }
+
+        @Override
+        public void execute(final Object message) throws Exception {
+            // Connections still opening are closed once they report it.
+            if (isOpen(primaryState)) {
+                primaryConnection.tell(new CloseConnection(), source);
+            }
+            if (isOpen(secondaryState)) {
+                secondaryConnection.tell(new CloseConnection(), source);
+            }
+        }
+    }
+}
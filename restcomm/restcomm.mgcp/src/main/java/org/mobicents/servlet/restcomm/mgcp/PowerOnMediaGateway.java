@@ -28,6 +28,8 @@ import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
  */
 @Immutable
 public final class PowerOnMediaGateway {
+    public static final long DEFAULT_TRANSACTION_TIMEOUT = 5000;
+
     // MediaGateway connection information.
     private final String name;
     private final InetAddress localIp;
@@ -39,9 +41,17 @@ public final class PowerOnMediaGateway {
     private final InetAddress externalIp;
     // Used to detect dead media gateways.
     private final long timeout;
+    // How long to wait for the final response of a transaction.
+    private final long transactionTimeout;
 
     public PowerOnMediaGateway(final String name, final InetAddress localIp, final int localPort, final InetAddress remoteIp,
             final int remotePort, final boolean useNat, final InetAddress externalIp, final long timeout) {
+        this(name, localIp, localPort, remoteIp, remotePort, useNat, externalIp, timeout, DEFAULT_TRANSACTION_TIMEOUT);
+    }
+
+    public PowerOnMediaGateway(final String name, final InetAddress localIp, final int localPort, final InetAddress remoteIp,
+            final int remotePort, final boolean useNat, final InetAddress externalIp, final long timeout,
+            final long transactionTimeout) {
         super();
         this.name = name;
         this.localIp = localIp;
@@ -51,6 +61,7 @@ public final class PowerOnMediaGateway {
         this.useNat = useNat;
         this.externalIp = externalIp;
         this.timeout = timeout;
+        this.transactionTimeout = transactionTimeout;
     }
 
     public static Builder builder() {
@@ -89,6 +100,10 @@ public final class PowerOnMediaGateway {
         return timeout;
     }
 
+    public long getTransactionTimeout() {
+        return transactionTimeout;
+    }
+
     public static final class Builder {
         private String name;
         private InetAddress localIp;
@@ -98,13 +113,15 @@ public final class PowerOnMediaGateway {
         private boolean useNat;
         private InetAddress externalIp;
         private long timeout;
+        private long transactionTimeout = DEFAULT_TRANSACTION_TIMEOUT;
 
         private Builder() {
             super();
         }
 
         public PowerOnMediaGateway build() {
-            return new PowerOnMediaGateway(name, localIp, localPort, remoteIp, remotePort, useNat, externalIp, timeout);
+            return new PowerOnMediaGateway(name, localIp, localPort, remoteIp, remotePort, useNat, externalIp, timeout,
+                    transactionTimeout);
         }
 
         public void setName(final String name) {
@@ -138,5 +155,9 @@ public final class PowerOnMediaGateway {
         public void setTimeout(final long timeout) {
             this.timeout = timeout;
         }
+
+        public void setTransactionTimeout(final long transactionTimeout) {
+            this.transactionTimeout = transactionTimeout;
+        }
     }
 }
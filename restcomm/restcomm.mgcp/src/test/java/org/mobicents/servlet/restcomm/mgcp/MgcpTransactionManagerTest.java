@@ -0,0 +1,198 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.mgcp;
+
+import static org.junit.Assert.*;
+
+import jain.protocol.ip.mgcp.message.CreateConnection;
+import jain.protocol.ip.mgcp.message.DeleteConnection;
+import jain.protocol.ip.mgcp.message.parms.CallIdentifier;
+import jain.protocol.ip.mgcp.message.parms.ConnectionMode;
+import jain.protocol.ip.mgcp.message.parms.EndpointIdentifier;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.JavaTestKit;
+
+public class MgcpTransactionManagerTest {
+    private static ActorSystem system;
+
+    public MgcpTransactionManagerTest() {
+        super();
+    }
+
+    @BeforeClass
+    public static void before() throws Exception {
+        system = ActorSystem.create();
+    }
+
+    @AfterClass
+    public static void after() throws Exception {
+        system.shutdown();
+    }
+
+    private CreateConnection crcx() {
+        final EndpointIdentifier endpoint = new EndpointIdentifier("mobicents/ivr/$", "127.0.0.1:2427");
+        return new CreateConnection(this, new CallIdentifier("1"), endpoint, ConnectionMode.SendRecv);
+    }
+
+    private DeleteConnection dlcx() {
+        return new DeleteConnection(this, new EndpointIdentifier("mobicents/ivr/1", "127.0.0.1:2427"));
+    }
+
+    @Test
+    public void testFinalResponseCompletesTheTransaction() {
+        final ActorRef listener = new JavaTestKit(system).getRef();
+        final MgcpTransactionManager transactions = new MgcpTransactionManager("completes", 5000);
+        try {
+            final int first = transactions.begin(crcx(), listener);
+            final int second = transactions.begin(crcx(), listener);
+            assertTrue(second != first);
+            assertEquals(2, transactions.getInFlight());
+            assertEquals(listener, transactions.complete(first));
+            assertEquals(1, transactions.getInFlight());
+            // A retransmitted final response is only counted.
+            assertNull(transactions.complete(first));
+            assertEquals(listener, transactions.complete(second));
+            assertEquals(0, transactions.getInFlight());
+            final Map<String, Integer> counters = MgcpTransactionManager.getCounters();
+            assertTrue(counters.get("MgcpCrcxLatencyUnder10Ms") + counters.get("MgcpCrcxLatencyUnder50Ms") >= 2);
+            assertTrue(counters.get("MgcpDuplicateResponses") >= 1);
+        } finally {
+            transactions.stop();
+        }
+    }
+
+    @Test
+    public void testUnansweredTransactionsExpire() {
+        final ActorRef listener = new JavaTestKit(system).getRef();
+        final ManualClock clock = new ManualClock();
+        final MgcpTransactionManager transactions = new MgcpTransactionManager("expires", 100, 10, clock);
+        try {
+            final int id = transactions.begin(dlcx(), listener);
+            assertEquals(1, transactions.getInFlight());
+            transactions.expire(clock.advance(99));
+            assertEquals(1, transactions.getInFlight());
+            transactions.expire(clock.advance(1));
+            assertEquals(0, transactions.getInFlight());
+            assertNull(transactions.complete(id));
+            final Map<String, Integer> counters = MgcpTransactionManager.getCounters();
+            assertTrue(counters.get("MgcpDlcxTimedOut") >= 1);
+            assertTrue(counters.get("MgcpLateResponses") >= 1);
+        } finally {
+            transactions.stop();
+        }
+    }
+
+    @Test
+    public void testProvisionalResponseRestartsTheTimer() {
+        final ActorRef listener = new JavaTestKit(system).getRef();
+        final ManualClock clock = new ManualClock();
+        final MgcpTransactionManager transactions = new MgcpTransactionManager("provisional", 300, 10, clock);
+        try {
+            final int id = transactions.begin(crcx(), listener);
+            transactions.expire(clock.advance(200));
+            assertEquals(listener, transactions.provisional(id));
+            transactions.expire(clock.advance(200));
+            // Without the provisional response the transaction would have expired by now.
+            assertEquals(1, transactions.getInFlight());
+            assertEquals(listener, transactions.complete(id));
+            assertEquals(0, transactions.getInFlight());
+        } finally {
+            transactions.stop();
+        }
+    }
+
+    @Test
+    public void testRepeatedProvisionalResponsesCountRetransmissions() {
+        final ActorRef listener = new JavaTestKit(system).getRef();
+        final MgcpTransactionManager transactions = new MgcpTransactionManager("resent", 5000, 10, new ManualClock());
+        try {
+            final int before = MgcpTransactionManager.getCounters().get("MgcpRetransmittedCommands");
+            final int id = transactions.begin(crcx(), listener);
+            assertEquals(listener, transactions.provisional(id));
+            assertEquals(before, (int) MgcpTransactionManager.getCounters().get("MgcpRetransmittedCommands"));
+            // The media gateway answers the retransmitted command it is still working on with another one.
+            assertEquals(listener, transactions.provisional(id));
+            assertEquals(listener, transactions.provisional(id));
+            assertEquals(before + 2, (int) MgcpTransactionManager.getCounters().get("MgcpRetransmittedCommands"));
+            assertEquals(listener, transactions.complete(id));
+        } finally {
+            transactions.stop();
+        }
+    }
+
+    @Test
+    public void testPendingTransactionKeepsItsSlot() {
+        final ActorRef listener = new JavaTestKit(system).getRef();
+        final MgcpTransactionManager transactions = new MgcpTransactionManager("slots", 5000, 10, new ManualClock());
+        try {
+            final int pending = transactions.begin(crcx(), listener);
+            // Go round the table, the next id falls on the slot of the pending transaction.
+            for (int count = 1; count < MgcpTransactionManager.CAPACITY; count++) {
+                assertEquals(listener, transactions.complete(transactions.begin(crcx(), listener)));
+            }
+            final int next = transactions.begin(crcx(), listener);
+            assertEquals(pending + MgcpTransactionManager.CAPACITY + 1, next);
+            assertEquals(2, transactions.getInFlight());
+            assertEquals(listener, transactions.complete(pending));
+            assertEquals(listener, transactions.complete(next));
+            assertEquals(0, transactions.getInFlight());
+        } finally {
+            transactions.stop();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFullTableRefusesTransactions() {
+        final ActorRef listener = new JavaTestKit(system).getRef();
+        final MgcpTransactionManager transactions = new MgcpTransactionManager("full", 5000, 10, new ManualClock());
+        try {
+            for (int count = 0; count < MgcpTransactionManager.CAPACITY; count++) {
+                transactions.begin(dlcx(), listener);
+            }
+            transactions.begin(dlcx(), listener);
+        } finally {
+            transactions.stop();
+        }
+    }
+
+    private static final class ManualClock implements MgcpTransactionManager.Clock {
+        private long now;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+
+        // Moves the clock forward and returns its new time.
+        private long advance(final long milliseconds) {
+            now += TimeUnit.MILLISECONDS.toNanos(milliseconds);
+            return now;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.mgcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import jain.protocol.ip.mgcp.message.parms.ConnectionMode;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.patterns.Observe;
+import org.mobicents.servlet.restcomm.patterns.Observing;
+import org.mobicents.servlet.restcomm.patterns.StopObserving;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.testkit.JavaTestKit;
+
+public class NetworkLinkTest {
+    private static ActorSystem system;
+
+    public NetworkLinkTest() {
+        super();
+    }
+
+    @BeforeClass
+    public static void before() throws Exception {
+        system = ActorSystem.create();
+    }
+
+    @AfterClass
+    public static void after() throws Exception {
+        system.shutdown();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T create(final JavaTestKit kit, final ActorRef gateway, final Object request) {
+        gateway.tell(request, kit.getRef());
+        final MediaGatewayResponse<T> response = kit.expectMsgClass(MediaGatewayResponse.class);
+        assertTrue(response.succeeded());
+        return response.get();
+    }
+
+    @Test
+    public void testSuccessfulScenarioWithModify() {
+        new JavaTestKit(system) {
+            {
+                final ActorRef observer = getRef();
+                // A call on one media gateway joins a conference hosted by another one.
+                final ActorRef callGateway = system.actorOf(new Props(MockMediaGateway.class));
+                final ActorRef conferenceGateway = system.actorOf(new Props(MockMediaGateway.class));
+                final MediaSession callSession = create(this, callGateway, new CreateMediaSession());
+                final ActorRef bridge = create(this, callGateway, new CreateBridgeEndpoint(callSession));
+                final MediaSession conferenceSession = create(this, conferenceGateway, new CreateMediaSession());
+                final ActorRef conference = create(this, conferenceGateway, new CreateConferenceEndpoint(conferenceSession));
+                assertNotSame(bridge.path().parent(), conference.path().parent());
+                // Create a link between the two media gateways.
+                final ActorRef link = create(this, callGateway, new CreateNetworkLink(callSession));
+                link.tell(new Observe(observer), observer);
+                final Observing observingResponse = expectMsgClass(Observing.class);
+                assertTrue(observingResponse.succeeded());
+                // Initialize the link.
+                link.tell(new InitializeLink(bridge, conference), observer);
+                LinkStateChanged event = expectMsgClass(LinkStateChanged.class);
+                assertEquals(LinkStateChanged.State.CLOSED, event.state());
+                // Open the link.
+                link.tell(new OpenLink(ConnectionMode.SendRecv), observer);
+                event = expectMsgClass(LinkStateChanged.class);
+                assertEquals(LinkStateChanged.State.OPEN, event.state());
+                // Modify the primary connection in the link.
+                link.tell(new UpdateLink(ConnectionMode.RecvOnly, UpdateLink.Type.PRIMARY), observer);
+                event = expectMsgClass(LinkStateChanged.class);
+                assertEquals(LinkStateChanged.State.OPEN, event.state());
+                // Modify the secondary connection in the link.
+                link.tell(new UpdateLink(ConnectionMode.SendOnly, UpdateLink.Type.SECONDARY), observer);
+                event = expectMsgClass(LinkStateChanged.class);
+                assertEquals(LinkStateChanged.State.OPEN, event.state());
+                // Close the link.
+                link.tell(new CloseLink(), observer);
+                event = expectMsgClass(LinkStateChanged.class);
+                assertEquals(LinkStateChanged.State.CLOSED, event.state());
+                // Stop observing events from the link.
+                link.tell(new StopObserving(observer), observer);
+                expectNoMsg();
+            }
+        };
+    }
+
+    @Test
+    public void testLinkClosesWhenTheRemoteGatewayGoesAway() {
+        new JavaTestKit(system) {
+            {
+                final ActorRef observer = getRef();
+                final ActorRef callGateway = system.actorOf(new Props(MockMediaGateway.class));
+                final ActorRef conferenceGateway = system.actorOf(new Props(MockMediaGateway.class));
+                final MediaSession callSession = create(this, callGateway, new CreateMediaSession());
+                final ActorRef bridge = create(this, callGateway, new CreateBridgeEndpoint(callSession));
+                final MediaSession conferenceSession = create(this, conferenceGateway, new CreateMediaSession());
+                final ActorRef conference = create(this, conferenceGateway, new CreateConferenceEndpoint(conferenceSession));
+                final ActorRef link = create(this, callGateway, new CreateNetworkLink(callSession));
+                link.tell(new Observe(observer), observer);
+                expectMsgClass(Observing.class);
+                link.tell(new InitializeLink(bridge, conference), observer);
+                LinkStateChanged event = expectMsgClass(LinkStateChanged.class);
+                assertEquals(LinkStateChanged.State.CLOSED, event.state());
+                link.tell(new OpenLink(ConnectionMode.SendRecv), observer);
+                event = expectMsgClass(LinkStateChanged.class);
+                assertEquals(LinkStateChanged.State.OPEN, event.state());
+                // The media server of the conference goes away, the call side of the link is closed.
+                system.stop(conferenceGateway);
+                event = expectMsgClass(LinkStateChanged.class);
+                assertEquals(LinkStateChanged.State.CLOSED, event.state());
+            }
+        };
+    }
+}
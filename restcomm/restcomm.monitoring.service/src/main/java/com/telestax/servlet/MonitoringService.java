@@ -27,7 +27,10 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.http.pool.PoolStats;
+import org.mobicents.servlet.restcomm.dispatch.DispatcherMetrics;
 import org.mobicents.servlet.restcomm.entities.InstanceId;
+import org.mobicents.servlet.restcomm.http.CustomHttpClientBuilder;
 import org.mobicents.servlet.restcomm.patterns.Observing;
 import org.mobicents.servlet.restcomm.patterns.StopObserving;
 import org.mobicents.servlet.restcomm.telephony.CallInfo;
@@ -38,6 +41,7 @@ import org.mobicents.servlet.restcomm.telephony.CallResponse;
 import org.mobicents.servlet.restcomm.telephony.CallStateChanged;
 import org.mobicents.servlet.restcomm.telephony.GetCallInfo;
 import org.mobicents.servlet.restcomm.telephony.GetLiveCalls;
+import org.mobicents.servlet.restcomm.util.Counters;
 
 import akka.actor.ActorRef;
 import akka.actor.UntypedActor;
@@ -100,8 +104,8 @@ public class MonitoringService extends UntypedActor{
         final Class<?> klass = message.getClass();
         final ActorRef self = self();
         final ActorRef sender = sender();
-        if(logger.isInfoEnabled()){
-            logger.info("MonitoringService Processing Message: \"" + klass.getName() + " sender : "+ sender.getClass()+" self is terminated: "+self.isTerminated());
+        if(logger.isDebugEnabled()){
+            logger.debug("MonitoringService Processing Message: \"" + klass.getName() + " sender : "+ sender.getClass()+" self is terminated: "+self.isTerminated());
         }
 
         if (InstanceId.class.equals(klass)) {
@@ -231,8 +235,8 @@ public class MonitoringService extends UntypedActor{
                 } else if (callState.equals(CallStateChanged.State.NOT_FOUND)) {
                     notFoundCalls.incrementAndGet();
                 }
-            } else if(logger.isInfoEnabled()){
-                logger.info("CallInfo was not in the store for Call: "+senderPath);
+            } else if(logger.isDebugEnabled()){
+                logger.debug("CallInfo was not in the store for Call: "+senderPath);
             }
         } else {
             logger.error("MonitoringService, SenderPath or storage is null.");
@@ -279,6 +283,22 @@ public class MonitoringService extends UntypedActor{
         countersMap.put("TextMessageNotFound", textNotFound.get());
         countersMap.put("TextMessageOutbound", textOutbound.get());
 
+        // Shared http client connection pool, used to size http-client.max-conn-total/max-conn-per-route
+        final PoolStats httpPoolStats = CustomHttpClientBuilder.getDefaultPoolStats();
+        if (httpPoolStats != null) {
+            countersMap.put("HttpClientPoolLeased", httpPoolStats.getLeased());
+            countersMap.put("HttpClientPoolAvailable", httpPoolStats.getAvailable());
+            countersMap.put("HttpClientPoolPending", httpPoolStats.getPending());
+            countersMap.put("HttpClientPoolMax", httpPoolStats.getMax());
+        }
+
+        // Queue depth, mailbox size and processing time of the RestComm dispatchers
+        countersMap.putAll(DispatcherMetrics.getCounters());
+
+        // Counters of the modules this service doesn't depend on: the admission control of the traffic throttling
+        // extension, the MGCP transactions and the SMPP binds
+        countersMap.putAll(Counters.getCounters());
+
         MonitoringServiceResponse callInfoList = new MonitoringServiceResponse(instanceId, callDetailsList, countersMap);
         sender.tell(callInfoList, self);
     }
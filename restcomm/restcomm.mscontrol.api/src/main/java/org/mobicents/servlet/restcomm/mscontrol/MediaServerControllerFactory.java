@@ -36,6 +36,15 @@ public interface MediaServerControllerFactory {
      */
     ActorRef provideCallController();
 
+    /**
+     * Provides a new Media Server Controller for a Call sharing its media server with the other controllers of the
+     * same affinity.
+     *
+     * @param affinity The affinity of the controller, i.e the sid of the call it belongs to, or null.
+     * @return The media server controller
+     */
+    ActorRef provideCallController(String affinity);
+
     /**
      * Provides a new Media Server Controller for a Conference.
      *
@@ -43,6 +52,15 @@ public interface MediaServerControllerFactory {
      */
     ActorRef provideConferenceController();
 
+    /**
+     * Provides a new Media Server Controller for a Conference sharing its media server with the other controllers of the
+     * same affinity.
+     *
+     * @param affinity The affinity of the controller, i.e the sid of the call it belongs to, or null.
+     * @return The media server controller
+     */
+    ActorRef provideConferenceController(String affinity);
+
     /**
      * Provides a new Media Server Controller for a Bridge.
      *
@@ -50,4 +68,13 @@ public interface MediaServerControllerFactory {
      */
     ActorRef provideBridgeController();
 
+    /**
+     * Provides a new Media Server Controller for a Bridge sharing its media server with the other controllers of the
+     * same affinity.
+     *
+     * @param affinity The affinity of the controller, i.e the sid of the call it belongs to, or null.
+     * @return The media server controller
+     */
+    ActorRef provideBridgeController(String affinity);
+
 }
@@ -0,0 +1,265 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2013, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.servlet.restcomm.mscontrol;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.Terminated;
+import akka.actor.UntypedActor;
+import akka.actor.UntypedActorFactory;
+
+/**
+ * Spreads the calls, conferences and bridges of a RestComm instance over several media servers.
+ * <p>
+ * Every controller is placed on the available server with the fewest controllers relative to its weight. The
+ * controllers provided with the same affinity, i.e the sid of a call for the call itself, its outbound legs and the
+ * bridge or conference it starts, are placed on the same server as long as one of them is alive, so that their media is
+ * joined within a server. A server that fails its health checks or is being drained only gets the controllers that have
+ * to share its media.
+ * <p>
+ * The calls are placed when they are created, before it is known which conference they will join. A call asked to join
+ * a conference or bridge hosted by another server stays where it is and its controller links the two servers over RTP.
+ */
+@ThreadSafe
+public final class MediaServerPool implements MediaServerControllerFactory {
+    private static final Logger logger = Logger.getLogger(MediaServerPool.class);
+
+    private static enum Resource {
+        CALL, CONFERENCE, BRIDGE
+    };
+
+    private final List<PooledMediaServer> servers;
+    // Guarded by this.
+    private final Map<String, Affinity> affinities;
+    private int next;
+    private final ActorRef monitor;
+
+    public MediaServerPool(final ActorSystem system, final List<PooledMediaServer> servers) {
+        super();
+        if (servers.isEmpty()) {
+            throw new IllegalArgumentException("A media server pool needs at least one media server.");
+        }
+        this.servers = Collections.unmodifiableList(new ArrayList<PooledMediaServer>(servers));
+        this.affinities = new HashMap<String, Affinity>();
+        this.next = 0;
+        this.monitor = system.actorOf(new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public UntypedActor create() throws Exception {
+                return new Monitor(MediaServerPool.this);
+            }
+        }), "media-server-pool");
+    }
+
+    public List<PooledMediaServer> getServers() {
+        return servers;
+    }
+
+    public PooledMediaServer getServer(final String name) {
+        for (final PooledMediaServer server : servers) {
+            if (server.getName().equals(name)) {
+                return server;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public ActorRef provideCallController() {
+        return provide(Resource.CALL, null);
+    }
+
+    @Override
+    public ActorRef provideCallController(final String affinity) {
+        return provide(Resource.CALL, affinity);
+    }
+
+    @Override
+    public ActorRef provideConferenceController() {
+        return provide(Resource.CONFERENCE, null);
+    }
+
+    @Override
+    public ActorRef provideConferenceController(final String affinity) {
+        return provide(Resource.CONFERENCE, affinity);
+    }
+
+    @Override
+    public ActorRef provideBridgeController() {
+        return provide(Resource.BRIDGE, null);
+    }
+
+    @Override
+    public ActorRef provideBridgeController(final String affinity) {
+        return provide(Resource.BRIDGE, affinity);
+    }
+
+    private ActorRef provide(final Resource resource, final String affinity) {
+        final PooledMediaServer server = acquire(affinity);
+        final ActorRef controller;
+        try {
+            switch (resource) {
+                case CALL:
+                    controller = server.getFactory().provideCallController();
+                    break;
+                case CONFERENCE:
+                    controller = server.getFactory().provideConferenceController();
+                    break;
+                default:
+                    controller = server.getFactory().provideBridgeController();
+                    break;
+            }
+        } catch (final RuntimeException exception) {
+            release(server, affinity);
+            throw exception;
+        }
+        // The server is released once the controller stops.
+        monitor.tell(new Placement(controller, server, affinity), null);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Placed " + resource + " controller " + controller.path() + " on media server " + server
+                    + (affinity == null ? "" : " for " + affinity));
+        }
+        return controller;
+    }
+
+    synchronized PooledMediaServer acquire(final String affinity) {
+        Affinity bound = affinity == null ? null : affinities.get(affinity);
+        final PooledMediaServer server;
+        if (bound != null && bound.server.isHealthy()) {
+            server = bound.server;
+            bound.controllers++;
+        } else {
+            server = select();
+            if (affinity != null) {
+                if (bound != null) {
+                    logger.warn("Media server " + bound.server + " of " + affinity + " is down, using " + server);
+                }
+                bound = new Affinity(server);
+                bound.controllers++;
+                affinities.put(affinity, bound);
+            }
+        }
+        server.controllers().incrementAndGet();
+        return server;
+    }
+
+    synchronized void release(final PooledMediaServer server, final String affinity) {
+        server.controllers().decrementAndGet();
+        if (affinity != null) {
+            final Affinity bound = affinities.get(affinity);
+            // The affinity may have moved to another server since.
+            if (bound != null && bound.server == server && --bound.controllers == 0) {
+                affinities.remove(affinity);
+            }
+        }
+    }
+
+    // Guarded by this.
+    private PooledMediaServer select() {
+        final int size = servers.size();
+        PooledMediaServer selected = null;
+        PooledMediaServer healthy = null;
+        PooledMediaServer any = null;
+        // Start with a different server every time so that equally loaded servers take turns.
+        for (int i = 0; i < size; i++) {
+            final PooledMediaServer server = servers.get((next + i) % size);
+            if (server.isAvailable() && (selected == null || server.load() < selected.load())) {
+                selected = server;
+            }
+            if (server.isHealthy() && (healthy == null || server.load() < healthy.load())) {
+                healthy = server;
+            }
+            if (any == null || server.load() < any.load()) {
+                any = server;
+            }
+        }
+        next = (next + 1) % size;
+        if (selected == null) {
+            // Better to try a draining or suspect server than to reject the call.
+            selected = healthy != null ? healthy : any;
+            logger.warn("No media server available, using " + selected);
+        }
+        return selected;
+    }
+
+    private static final class Affinity {
+        private final PooledMediaServer server;
+        private int controllers;
+
+        private Affinity(final PooledMediaServer server) {
+            super();
+            this.server = server;
+        }
+    }
+
+    private static final class Placement {
+        private final ActorRef controller;
+        private final PooledMediaServer server;
+        private final String affinity;
+
+        private Placement(final ActorRef controller, final PooledMediaServer server, final String affinity) {
+            super();
+            this.controller = controller;
+            this.server = server;
+            this.affinity = affinity;
+        }
+    }
+
+    // Watches the controllers to release their media server when they stop.
+    private static final class Monitor extends UntypedActor {
+        private final MediaServerPool pool;
+        private final Map<ActorRef, Placement> placements;
+
+        private Monitor(final MediaServerPool pool) {
+            super();
+            this.pool = pool;
+            this.placements = new HashMap<ActorRef, Placement>();
+        }
+
+        @Override
+        public void onReceive(final Object message) throws Exception {
+            if (message instanceof Placement) {
+                final Placement placement = (Placement) message;
+                placements.put(placement.controller, placement);
+                getContext().watch(placement.controller);
+            } else if (message instanceof Terminated) {
+                final Placement placement = placements.remove(((Terminated) message).getActor());
+                if (placement != null) {
+                    pool.release(placement.server, placement.affinity);
+                }
+            } else {
+                unhandled(message);
+            }
+        }
+    }
+}
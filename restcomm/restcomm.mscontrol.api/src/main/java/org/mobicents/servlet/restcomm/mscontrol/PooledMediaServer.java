@@ -0,0 +1,125 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2013, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.servlet.restcomm.mscontrol;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+
+/**
+ * A media server of a {@link MediaServerPool} and the controllers it is currently serving.
+ * <p>
+ * A server that fails its health checks or is being drained gets no new calls, conferences or bridges. The controllers
+ * that share their media server with controllers it already serves keep being placed on a draining server.
+ */
+@ThreadSafe
+public final class PooledMediaServer {
+    private static final Logger logger = Logger.getLogger(PooledMediaServer.class);
+
+    private final String name;
+    private final int weight;
+    private final MediaServerControllerFactory factory;
+    private final AtomicInteger controllers;
+    private volatile boolean healthy;
+    private volatile boolean draining;
+
+    /**
+     * @param weight the share of the load the server takes relative to the other servers of the pool.
+     * @param factory provides the controllers of this media server.
+     */
+    public PooledMediaServer(final String name, final int weight, final MediaServerControllerFactory factory) {
+        super();
+        this.name = name;
+        this.weight = weight > 0 ? weight : 1;
+        this.factory = factory;
+        this.controllers = new AtomicInteger();
+        this.healthy = true;
+        this.draining = false;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    MediaServerControllerFactory getFactory() {
+        return factory;
+    }
+
+    /**
+     * @return the number of controllers, and so of media sessions, currently on this server.
+     */
+    public int getControllers() {
+        return controllers.get();
+    }
+
+    AtomicInteger controllers() {
+        return controllers;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    public void setHealthy(final boolean healthy) {
+        if (this.healthy != healthy) {
+            if (healthy) {
+                logger.info("Media server " + name + " is back in service");
+            } else {
+                logger.warn("Media server " + name + " failed its health check, no new calls will be placed on it");
+            }
+        }
+        this.healthy = healthy;
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * Stops placing new calls on the server, the calls already on it complete normally.
+     */
+    public void setDraining(final boolean draining) {
+        if (this.draining != draining && logger.isInfoEnabled()) {
+            logger.info("Media server " + name + (draining ? " is draining" : " stopped draining"));
+        }
+        this.draining = draining;
+    }
+
+    boolean isAvailable() {
+        return healthy && !draining;
+    }
+
+    // The load of the server relative to its weight.
+    double load() {
+        return (double) controllers.get() / weight;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
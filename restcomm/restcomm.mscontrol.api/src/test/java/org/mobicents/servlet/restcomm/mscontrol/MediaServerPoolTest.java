@@ -0,0 +1,250 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2013, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.mobicents.servlet.restcomm.mscontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedActor;
+import akka.testkit.JavaTestKit;
+
+public final class MediaServerPoolTest {
+    // A system per test as every pool starts its monitor under the same name.
+    private ActorSystem system;
+
+    @Before
+    public void before() throws Exception {
+        system = ActorSystem.create();
+    }
+
+    @After
+    public void after() throws Exception {
+        system.shutdown();
+    }
+
+    private PooledMediaServer server(final String name, final int weight) {
+        return new PooledMediaServer(name, weight, new StubControllerFactory());
+    }
+
+    @Test
+    public void testControllersAreSpreadByWeight() {
+        final PooledMediaServer light = server("light", 1);
+        final PooledMediaServer heavy = server("heavy", 3);
+        final MediaServerPool pool = new MediaServerPool(system, Arrays.asList(light, heavy));
+        for (int i = 0; i < 40; i++) {
+            pool.acquire(null);
+        }
+        assertEquals(10, light.getControllers());
+        assertEquals(30, heavy.getControllers());
+    }
+
+    @Test
+    public void testEquallyLoadedServersTakeTurns() {
+        final PooledMediaServer first = server("first", 1);
+        final PooledMediaServer second = server("second", 1);
+        final MediaServerPool pool = new MediaServerPool(system, Arrays.asList(first, second));
+        final PooledMediaServer selected = pool.acquire(null);
+        pool.release(selected, null);
+        assertNotSame(selected, pool.acquire(null));
+    }
+
+    @Test
+    public void testControllersOfAnAffinityShareTheirServer() {
+        final PooledMediaServer first = server("first", 1);
+        final PooledMediaServer second = server("second", 1);
+        final MediaServerPool pool = new MediaServerPool(system, Arrays.asList(first, second));
+        final PooledMediaServer call = pool.acquire("CA1");
+        for (int i = 0; i < 5; i++) {
+            assertSame(call, pool.acquire("CA1"));
+        }
+        assertEquals(6, call.getControllers());
+    }
+
+    @Test
+    public void testAffinityIsReleasedWithItsLastController() {
+        final PooledMediaServer first = server("first", 1);
+        final PooledMediaServer second = server("second", 1);
+        final MediaServerPool pool = new MediaServerPool(system, Arrays.asList(first, second));
+        final PooledMediaServer call = pool.acquire("CA1");
+        final PooledMediaServer other = call == first ? second : first;
+        pool.acquire("CA1");
+        pool.release(call, "CA1");
+        // A controller of the affinity is left, the next ones still follow it to the draining server.
+        call.setDraining(true);
+        assertSame(call, pool.acquire("CA1"));
+        pool.release(call, "CA1");
+        pool.release(call, "CA1");
+        assertEquals(0, call.getControllers());
+        // Released, the affinity is placed again.
+        assertSame(other, pool.acquire("CA1"));
+    }
+
+    @Test
+    public void testDrainingServerOnlyGetsItsAffinities() {
+        final PooledMediaServer first = server("first", 1);
+        final PooledMediaServer second = server("second", 1);
+        final MediaServerPool pool = new MediaServerPool(system, Arrays.asList(first, second));
+        final PooledMediaServer call = pool.acquire("CA1");
+        final PooledMediaServer other = call == first ? second : first;
+        call.setDraining(true);
+        for (int i = 0; i < 5; i++) {
+            assertSame(other, pool.acquire(null));
+            assertSame(other, pool.acquire("CA" + (i + 2)));
+        }
+        // The legs of a call on a draining server follow the call.
+        assertSame(call, pool.acquire("CA1"));
+    }
+
+    @Test
+    public void testAffinityMovesOffAnUnhealthyServer() {
+        final PooledMediaServer first = server("first", 1);
+        final PooledMediaServer second = server("second", 1);
+        final MediaServerPool pool = new MediaServerPool(system, Arrays.asList(first, second));
+        final PooledMediaServer call = pool.acquire("CA1");
+        final PooledMediaServer other = call == first ? second : first;
+        call.setHealthy(false);
+        assertSame(other, pool.acquire("CA1"));
+        assertSame(other, pool.acquire("CA1"));
+    }
+
+    @Test
+    public void testServerIsReleasedWhenTheControllerStops() {
+        new JavaTestKit(system) {
+            {
+                final PooledMediaServer server = server("only", 1);
+                final MediaServerPool pool = new MediaServerPool(system, Arrays.asList(server));
+                final ActorRef call = pool.provideCallController("CA1");
+                final ActorRef leg = pool.provideCallController("CA1");
+                assertEquals(2, server.getControllers());
+                system.stop(call);
+                new AwaitCond(duration("5 seconds")) {
+                    @Override
+                    protected boolean cond() {
+                        return server.getControllers() == 1;
+                    }
+                };
+                system.stop(leg);
+                new AwaitCond(duration("5 seconds")) {
+                    @Override
+                    protected boolean cond() {
+                        return server.getControllers() == 0;
+                    }
+                };
+            }
+        };
+    }
+
+    @Test
+    public void testCallsOfAConferenceStayOnTheirServers() {
+        new JavaTestKit(system) {
+            {
+                final PooledMediaServer first = server("first", 1);
+                final PooledMediaServer second = server("second", 1);
+                final MediaServerPool pool = new MediaServerPool(system, Arrays.asList(first, second));
+                // Two calls are placed before it is known they will join the same conference.
+                final ActorRef alice = pool.provideCallController("CA1");
+                final PooledMediaServer aliceServer = first.getControllers() == 1 ? first : second;
+                final PooledMediaServer bobServer = aliceServer == first ? second : first;
+                final ActorRef bob = pool.provideCallController("CA2");
+                assertEquals(1, bobServer.getControllers());
+                // The conference is created by the first call to join it and follows that call.
+                final ActorRef conference = pool.provideConferenceController("CA1");
+                assertEquals(2, aliceServer.getControllers());
+                // The second call joins from its own server, its controller links the two servers.
+                assertSame(bobServer, pool.acquire("CA2"));
+                pool.release(bobServer, "CA2");
+                // The conference outlives the call that created it and keeps its server.
+                system.stop(alice);
+                new AwaitCond(duration("5 seconds")) {
+                    @Override
+                    protected boolean cond() {
+                        return aliceServer.getControllers() == 1;
+                    }
+                };
+                assertSame(aliceServer, pool.acquire("CA1"));
+                pool.release(aliceServer, "CA1");
+                system.stop(bob);
+                system.stop(conference);
+                new AwaitCond(duration("5 seconds")) {
+                    @Override
+                    protected boolean cond() {
+                        return first.getControllers() == 0 && second.getControllers() == 0;
+                    }
+                };
+            }
+        };
+    }
+
+    public static final class StubController extends UntypedActor {
+        @Override
+        public void onReceive(final Object message) throws Exception {
+            unhandled(message);
+        }
+    }
+
+    private final class StubControllerFactory implements MediaServerControllerFactory {
+        private ActorRef controller() {
+            return system.actorOf(new Props(StubController.class));
+        }
+
+        @Override
+        public ActorRef provideCallController() {
+            return controller();
+        }
+
+        @Override
+        public ActorRef provideCallController(final String affinity) {
+            return controller();
+        }
+
+        @Override
+        public ActorRef provideConferenceController() {
+            return controller();
+        }
+
+        @Override
+        public ActorRef provideConferenceController(final String affinity) {
+            return controller();
+        }
+
+        @Override
+        public ActorRef provideBridgeController() {
+            return controller();
+        }
+
+        @Override
+        public ActorRef provideBridgeController(final String affinity) {
+            return controller();
+        }
+    }
+}
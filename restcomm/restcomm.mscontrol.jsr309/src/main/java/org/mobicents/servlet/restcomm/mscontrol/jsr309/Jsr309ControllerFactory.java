@@ -71,16 +71,32 @@ public class Jsr309ControllerFactory implements MediaServerControllerFactory {
         return system.actorOf(new Props(this.callControllerFactory));
     }
 
+    @Override
+    public ActorRef provideCallController(final String affinity) {
+        // Single media server, every controller shares it.
+        return provideCallController();
+    }
+
     @Override
     public ActorRef provideConferenceController() {
         return system.actorOf(new Props(this.conferenceControllerFactory));
     }
 
+    @Override
+    public ActorRef provideConferenceController(final String affinity) {
+        return provideConferenceController();
+    }
+
     @Override
     public ActorRef provideBridgeController() {
         return system.actorOf(new Props(this.bridgeControllerFactory));
     }
 
+    @Override
+    public ActorRef provideBridgeController(final String affinity) {
+        return provideBridgeController();
+    }
+
     private final class CallControllerFactory implements UntypedActorFactory {
 
         private static final long serialVersionUID = 8689899689896436910L;
@@ -0,0 +1,109 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2013, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.servlet.restcomm.mscontrol.mgcp;
+
+import java.util.concurrent.TimeUnit;
+
+import jain.protocol.ip.mgcp.JainMgcpResponseEvent;
+import jain.protocol.ip.mgcp.message.AuditEndpoint;
+import jain.protocol.ip.mgcp.message.parms.EndpointIdentifier;
+
+import org.mobicents.servlet.restcomm.mscontrol.PooledMediaServer;
+
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+import akka.actor.ActorRef;
+import akka.actor.Cancellable;
+import akka.actor.UntypedActor;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+
+/**
+ * Checks that a pooled Mobicents Media Server is alive by sending it an MGCP audit (AUEP) every 'interval'
+ * milliseconds. Any response, even an error, proves the server alive. The server is taken out of the pool after
+ * 'failures' audits in a row went unanswered and put back as soon as it answers again.
+ */
+public final class MgcpHealthCheck extends UntypedActor {
+    private static final Object CHECK = new Object();
+    private static final int TIMED_OUT = 406;
+
+    private final LoggingAdapter logger = Logging.getLogger(getContext().system(), this);
+
+    private final ActorRef gateway;
+    private final PooledMediaServer server;
+    private final EndpointIdentifier endpoint;
+    private final long interval;
+    private final int failures;
+    private Cancellable checks;
+    private boolean waiting;
+    private int missed;
+
+    /**
+     * @param domain the address and port of the media server, i.e 127.0.0.1:2427.
+     */
+    public MgcpHealthCheck(final ActorRef gateway, final PooledMediaServer server, final String domain,
+            final long interval, final int failures) {
+        super();
+        this.gateway = gateway;
+        this.server = server;
+        this.endpoint = new EndpointIdentifier("mobicents/ivr/1", domain);
+        this.interval = interval;
+        this.failures = failures;
+    }
+
+    @Override
+    public void preStart() {
+        final FiniteDuration period = Duration.create(interval, TimeUnit.MILLISECONDS);
+        checks = getContext().system().scheduler().schedule(period, period, self(), CHECK, getContext().dispatcher());
+    }
+
+    @Override
+    public void postStop() {
+        if (checks != null) {
+            checks.cancel();
+        }
+    }
+
+    @Override
+    public void onReceive(final Object message) throws Exception {
+        if (CHECK == message) {
+            if (waiting && ++missed >= failures) {
+                if (server.isHealthy() && logger.isInfoEnabled()) {
+                    logger.info("Media server " + server.getName() + " missed " + missed + " audits");
+                }
+                server.setHealthy(false);
+            }
+            waiting = true;
+            gateway.tell(new AuditEndpoint(self(), endpoint), self());
+        } else if (message instanceof JainMgcpResponseEvent) {
+            // 406 is the time out the MGCP stack reports when the server never answered.
+            if (((JainMgcpResponseEvent) message).getReturnCode().getValue() == TIMED_OUT) {
+                return;
+            }
+            waiting = false;
+            missed = 0;
+            server.setHealthy(true);
+        } else {
+            unhandled(message);
+        }
+    }
+}
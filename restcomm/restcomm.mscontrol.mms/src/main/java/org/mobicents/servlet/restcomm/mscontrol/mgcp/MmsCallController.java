@@ -49,6 +49,7 @@ import org.mobicents.servlet.restcomm.mgcp.ConnectionStateChanged;
 import org.mobicents.servlet.restcomm.mgcp.CreateBridgeEndpoint;
 import org.mobicents.servlet.restcomm.mgcp.CreateConnection;
 import org.mobicents.servlet.restcomm.mgcp.CreateLink;
+import org.mobicents.servlet.restcomm.mgcp.CreateNetworkLink;
 import org.mobicents.servlet.restcomm.mgcp.DestroyEndpoint;
 import org.mobicents.servlet.restcomm.mgcp.DestroyLink;
 import org.mobicents.servlet.restcomm.mgcp.EndpointState;
@@ -647,6 +648,14 @@ public class MmsCallController extends MediaServerController {
         this.fsm.transition(message, acquiringInternalLink);
     }
 
+    /*
+     * The endpoints are created by the media gateway of their media server. With a pool of media servers a call can be
+     * asked to join a conference or bridge hosted by another server.
+     */
+    private boolean isLocal(final ActorRef endpoint) {
+        return endpoint == null || endpoint.path().parent().equals(mediaGateway.path());
+    }
+
     private void onMediaGroupStateChanged(MediaGroupStateChanged message, ActorRef self, ActorRef sender) throws Exception {
         switch (message.state()) {
             case ACTIVE:
@@ -862,7 +871,14 @@ public class MmsCallController extends MediaServerController {
 
         @Override
         public void execute(final Object message) throws Exception {
-            mediaGateway.tell(new CreateLink(session), source);
+            if (isLocal(internalLinkEndpoint)) {
+                mediaGateway.tell(new CreateLink(session), source);
+            } else {
+                // The endpoint lives on another media server, so the two servers are linked over RTP.
+                logger.info("Linking call " + self().path() + " on media gateway " + mediaGateway.path()
+                        + " to endpoint " + internalLinkEndpoint.path() + " hosted by another media gateway.");
+                mediaGateway.tell(new CreateNetworkLink(session), source);
+            }
         }
 
     }
@@ -21,6 +21,7 @@
 
 package org.mobicents.servlet.restcomm.mscontrol.mgcp;
 
+import org.mobicents.servlet.restcomm.dispatch.RestcommDispatchers;
 import org.mobicents.servlet.restcomm.mscontrol.MediaServerControllerFactory;
 
 import akka.actor.Actor;
@@ -54,17 +55,36 @@ public class MmsControllerFactory implements MediaServerControllerFactory {
 
     @Override
     public ActorRef provideCallController() {
-        return system.actorOf(new Props(this.callControllerFactory));
+        final Props props = new Props(this.callControllerFactory);
+        return system.actorOf(RestcommDispatchers.props(system, props, RestcommDispatchers.CALL_CONTROL));
+    }
+
+    @Override
+    public ActorRef provideCallController(final String affinity) {
+        // Single media server, every controller shares it.
+        return provideCallController();
     }
 
     @Override
     public ActorRef provideConferenceController() {
-        return system.actorOf(new Props(this.conferenceControllerFactory));
+        final Props props = new Props(this.conferenceControllerFactory);
+        return system.actorOf(RestcommDispatchers.props(system, props, RestcommDispatchers.CALL_CONTROL));
+    }
+
+    @Override
+    public ActorRef provideConferenceController(final String affinity) {
+        return provideConferenceController();
     }
 
     @Override
     public ActorRef provideBridgeController() {
-        return system.actorOf(new Props(this.bridgeControllerFactory));
+        final Props props = new Props(this.bridgeControllerFactory);
+        return system.actorOf(RestcommDispatchers.props(system, props, RestcommDispatchers.CALL_CONTROL));
+    }
+
+    @Override
+    public ActorRef provideBridgeController(final String affinity) {
+        return provideBridgeController();
     }
 
     private final class CallControllerFactory implements UntypedActorFactory {
@@ -51,6 +51,8 @@ public class RvdConfiguration {
                     "CallTimestamp", "ForwardedFrom"}));
     public static final String RESTCOMM_HEADER_PREFIX = "SipHeader_"; // the prefix added to HTTP headers from Restcomm
     public static final String RESTCOMM_HEADER_PREFIX_DIAL = "DialSipHeader_"; // another prefix
+    private static final int DEFAULT_ES_MAX_CONNECTIONS = 200;
+    private static final int DEFAULT_ES_MAX_CONNECTIONS_PER_HOST = 20;
 
     private String workspaceBasePath;
     private RvdConfig rvdConfig;  // the configuration settings from rvd.xml
@@ -193,6 +195,24 @@ public class RvdConfiguration {
         return restcommConfig.getSslMode();
     }
 
+    /**
+     * Size of the connection pool shared by the ExternalService steps
+     */
+    public int getExternalServiceMaxConnections() {
+        if (rvdConfig != null && rvdConfig.getExternalServiceMaxConnections() != null)
+            return rvdConfig.getExternalServiceMaxConnections();
+        return DEFAULT_ES_MAX_CONNECTIONS;
+    }
+
+    /**
+     * Number of pooled connections to a single remote service
+     */
+    public int getExternalServiceMaxConnectionsPerHost() {
+        if (rvdConfig != null && rvdConfig.getExternalServiceMaxConnectionsPerHost() != null)
+            return rvdConfig.getExternalServiceMaxConnectionsPerHost();
+        return DEFAULT_ES_MAX_CONNECTIONS_PER_HOST;
+    }
+
     public boolean getUseHostnameToResolveRelativeUrl() {
         return restcommConfig.isUseHostnameToResolveRelativeUrl();
     }
@@ -6,6 +6,7 @@ import javax.servlet.http.HttpServlet;
 
 import org.apache.log4j.Logger;
 import org.mobicents.servlet.restcomm.rvd.RvdConfiguration;
+import org.mobicents.servlet.restcomm.rvd.commons.http.ExternalServiceHttpClient;
 import org.mobicents.servlet.restcomm.rvd.model.ModelMarshaler;
 import org.mobicents.servlet.restcomm.rvd.storage.WorkspaceStorage;
 import org.mobicents.servlet.restcomm.rvd.storage.exceptions.StorageException;
@@ -35,6 +36,12 @@ public class RvdInitializationServlet extends HttpServlet {
         }
     }
 
+    @Override
+    public void destroy() {
+        ExternalServiceHttpClient.close();
+        super.destroy();
+    }
+
     public RvdInitializationServlet() {
         // TODO Auto-generated constructor stub
     }
@@ -4,14 +4,24 @@ package org.mobicents.servlet.restcomm.rvd.commons.http;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
 
 
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.DefaultHostnameVerifier;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.conn.ssl.TrustSelfSignedStrategy;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.ssl.SSLContexts;
 import org.mobicents.servlet.restcomm.rvd.RvdConfiguration;
 
@@ -65,6 +75,13 @@ public class CustomHttpClientBuilder {
     }
 
     private static CloseableHttpClient buildAllowallClient() {
+        SSLConnectionSocketFactory sslsf = buildAllowallSocketFactory();
+        CloseableHttpClient httpclient = HttpClients.custom().setSSLSocketFactory(sslsf).build();
+
+        return httpclient;
+    }
+
+    private static SSLConnectionSocketFactory buildAllowallSocketFactory() {
         String[] protocols = getSSLPrototocolsFromSystemProperties();
         //SSLContext sslcontext = SSLContexts.createDefault();
         SSLContext sslcontext;
@@ -74,10 +91,46 @@ public class CustomHttpClientBuilder {
             throw new RuntimeException(e);
         }
         // Allow TLSv1 protocol only
-        SSLConnectionSocketFactory sslsf = new SSLConnectionSocketFactory(sslcontext, protocols, null, new NoopHostnameVerifier());
-        CloseableHttpClient httpclient = HttpClients.custom().setSSLSocketFactory(sslsf).build();
+        return new SSLConnectionSocketFactory(sslcontext, protocols, null, new NoopHostnameVerifier());
+    }
 
-        return httpclient;
+    /**
+     * Returns an apache http client backed by a connection pool, with the same ssl behaviour as buildHttpClient().
+     * Connections are kept alive for as long as the server allows or keepAliveMillis when it does not say and are
+     * evicted once idle for that long. The client is meant to be shared and closed only when RVD shuts down.
+     *
+     * @param maxConnections the total number of connections in the pool
+     * @param maxConnectionsPerHost the number of connections to a single host (scheme, host and port)
+     * @param poolTimeoutMillis how long a request waits for a connection when the pool is exhausted
+     */
+    public static CloseableHttpClient buildPooledHttpClient(int maxConnections, int maxConnectionsPerHost,
+            final long keepAliveMillis, int poolTimeoutMillis) {
+        SSLConnectionSocketFactory sslsf;
+        if (RvdConfiguration.getInstance().getSslMode() == SslMode.strict) {
+            String[] protocols = getSSLPrototocolsFromSystemProperties();
+            if (protocols == null)
+                sslsf = SSLConnectionSocketFactory.getSocketFactory();
+            else
+                sslsf = new SSLConnectionSocketFactory(SSLContexts.createDefault(), protocols, null, new DefaultHostnameVerifier());
+        } else
+            sslsf = buildAllowallSocketFactory();
+        Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory()).register("https", sslsf).build();
+        PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager(registry);
+        manager.setMaxTotal(maxConnections);
+        manager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+
+        DefaultConnectionKeepAliveStrategy keepAlive = new DefaultConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                long duration = super.getKeepAliveDuration(response, context);
+                return duration > 0 ? duration : keepAliveMillis;
+            }
+        };
+        RequestConfig requestConfig = RequestConfig.custom().setConnectionRequestTimeout(poolTimeoutMillis).build();
+        return HttpClients.custom().setConnectionManager(manager).setKeepAliveStrategy(keepAlive)
+                .setDefaultRequestConfig(requestConfig).evictExpiredConnections()
+                .evictIdleConnections(keepAliveMillis, TimeUnit.MILLISECONDS).build();
     }
 
     private static String[] getSSLPrototocolsFromSystemProperties() {
@@ -0,0 +1,67 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+
+package org.mobicents.servlet.restcomm.rvd.commons.http;
+
+import java.io.IOException;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.log4j.Logger;
+import org.mobicents.servlet.restcomm.rvd.RvdConfiguration;
+
+/**
+ * Holds the pooled http client shared by all ExternalService steps. It is created on first use, sized from rvd.xml, and
+ * closed when RVD is undeployed. Responses must be fully consumed or closed for their connection to return to the pool.
+ */
+public class ExternalServiceHttpClient {
+    static final Logger logger = Logger.getLogger(ExternalServiceHttpClient.class.getName());
+
+    private static final long KEEP_ALIVE_MILLIS = 30000;
+    private static final int POOL_TIMEOUT_MILLIS = 10000;
+
+    private static CloseableHttpClient client;
+
+    private ExternalServiceHttpClient() {
+    }
+
+    public static synchronized CloseableHttpClient get() {
+        if (client == null) {
+            RvdConfiguration configuration = RvdConfiguration.getInstance();
+            int maxConnections = configuration.getExternalServiceMaxConnections();
+            int maxConnectionsPerHost = configuration.getExternalServiceMaxConnectionsPerHost();
+            client = CustomHttpClientBuilder.buildPooledHttpClient(maxConnections, maxConnectionsPerHost, KEEP_ALIVE_MILLIS, POOL_TIMEOUT_MILLIS);
+            if (logger.isInfoEnabled()) {
+                logger.info("ExternalService connection pool created. Max connections: " + maxConnections + ", per host: " + maxConnectionsPerHost);
+            }
+        }
+        return client;
+    }
+
+    public static synchronized void close() {
+        if (client != null) {
+            try {
+                client.close();
+            } catch (IOException e) {
+                logger.warn("Error closing the ExternalService connection pool", e);
+            }
+            client = null;
+        }
+    }
+}
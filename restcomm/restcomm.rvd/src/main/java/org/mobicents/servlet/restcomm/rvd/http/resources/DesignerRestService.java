@@ -14,6 +14,7 @@ import org.apache.log4j.Logger;
 import org.mobicents.servlet.restcomm.rvd.RvdContext;
 import org.mobicents.servlet.restcomm.rvd.exceptions.ProjectDoesNotExist;
 import org.mobicents.servlet.restcomm.rvd.model.client.WavItem;
+import org.mobicents.servlet.restcomm.rvd.model.steps.es.ExternalServiceMetrics;
 import org.mobicents.servlet.restcomm.rvd.storage.FsProjectStorage;
 import org.mobicents.servlet.restcomm.rvd.storage.exceptions.StorageException;
 
@@ -49,4 +50,16 @@ public class DesignerRestService extends SecuredRestService {
         return buildOkResponse(items);
     }
 
+    /**
+     * Returns the request counts, errors and latencies of the services called by ExternalService steps
+     * @return
+     */
+    @GET
+    @Path("externalServiceMetrics")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getExternalServiceMetrics() {
+        secure();
+        return buildOkResponse(ExternalServiceMetrics.getMetrics());
+    }
+
 }
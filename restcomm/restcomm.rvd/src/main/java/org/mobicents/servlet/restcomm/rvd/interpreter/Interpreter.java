@@ -2,8 +2,6 @@ package org.mobicents.servlet.restcomm.rvd.interpreter;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URISyntaxException;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -28,7 +26,6 @@ import org.mobicents.servlet.restcomm.rvd.exceptions.UndefinedTarget;
 import org.mobicents.servlet.restcomm.rvd.interpreter.exceptions.BadExternalServiceResponse;
 import org.mobicents.servlet.restcomm.rvd.interpreter.exceptions.InvalidAccessOperationAction;
 import org.mobicents.servlet.restcomm.rvd.model.ModelMarshaler;
-import org.mobicents.servlet.restcomm.rvd.model.StepJsonDeserializer;
 import org.mobicents.servlet.restcomm.rvd.model.client.Step;
 import org.mobicents.servlet.restcomm.rvd.model.rcml.RcmlResponse;
 import org.mobicents.servlet.restcomm.rvd.model.rcml.RcmlStep;
@@ -69,12 +66,13 @@ import org.mobicents.servlet.restcomm.rvd.model.steps.ussdlanguage.UssdLanguageR
 import org.mobicents.servlet.restcomm.rvd.model.steps.ussdsay.UssdSayRcml;
 import org.mobicents.servlet.restcomm.rvd.model.steps.ussdsay.UssdSayStepConverter;
 import org.mobicents.servlet.restcomm.rvd.storage.FsProjectStorage;
+import org.mobicents.servlet.restcomm.rvd.storage.ProjectCache;
+import org.mobicents.servlet.restcomm.rvd.storage.ProjectCache.CompiledProject;
 import org.mobicents.servlet.restcomm.rvd.storage.WorkspaceStorage;
+import org.mobicents.servlet.restcomm.rvd.storage.exceptions.StorageEntityNotFound;
 import org.mobicents.servlet.restcomm.rvd.storage.exceptions.StorageException;
 import org.mobicents.servlet.restcomm.rvd.utils.RvdUtils;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
@@ -110,7 +108,7 @@ public class Interpreter {
     private ModelMarshaler marshaler;
 
     private XStream xstream;
-    private Gson gson;
+    private CompiledProject project;
     private String targetParam;
     private Target target;
     private String appName;
@@ -214,7 +212,6 @@ public class Interpreter {
         xstream.aliasField("Uri", RcmlDialStep.class, "sipuri");
 
         // xstream.aliasField(alias, definedIn, fieldName);
-        gson = new GsonBuilder().registerTypeAdapter(Step.class, new StepJsonDeserializer()).create();
     }
 
     public RvdConfiguration getRvdSettings() {
@@ -258,7 +255,7 @@ public class Interpreter {
     public String interpret() throws RvdException {
         String response = null;
 
-        ProjectOptions projectOptions = FsProjectStorage.loadProjectOptions(appName, workspaceStorage); //rvdContext.getRuntimeProjectOptions();
+        ProjectOptions projectOptions = getProject().getOptions(); //rvdContext.getRuntimeProjectOptions();
         nodeNames = projectOptions.getNodeNames();
 
         if (targetParam == null || "".equals(targetParam)) {
@@ -324,7 +321,7 @@ public class Interpreter {
 
             if (rcmlModel == null )
                 rcmlModel = new RcmlResponse();
-            List<String> nodeStepnames = FsProjectStorage.loadNodeStepnames(appName, target.getNodename(), workspaceStorage);
+            List<String> nodeStepnames = getProject().getNode(target.getNodename()).getStepnames();
 
             // if no starting step has been specified in the target, use the first step of the node as default
             if (target.getStepname() == null && !nodeStepnames.isEmpty())
@@ -366,12 +363,20 @@ public class Interpreter {
     }
 
     private Step loadStep(String stepname) throws StorageException  {
-        String stepfile_json = FsProjectStorage.loadStep(appName, target.getNodename(), stepname, workspaceStorage);
-        Step step = gson.fromJson(stepfile_json, Step.class);
+        Step step = getProject().getNode(target.getNodename()).getStep(stepname);
+        if (step == null)
+            throw new StorageEntityNotFound("Step " + stepname + " not found in module " + target.getNodename());
 
         return step;
     }
 
+    // the built project as cached in memory, loaded once per interpreter
+    private CompiledProject getProject() throws StorageException {
+        if (project == null)
+            project = ProjectCache.getProject(appName, workspaceStorage);
+        return project;
+    }
+
 
     public String evaluateExtractorExpression( ValueExtractor extractor, JsonElement response_element) throws InvalidAccessOperationAction, BadExternalServiceResponse {
         String value = "";
@@ -429,50 +434,9 @@ public class Interpreter {
     public String populateVariables(String sourceText) {
         if ( sourceText == null )
             return sourceText;
-
-        // This class serves strictly the purposes of the following algorithm
-        final class VariableInText {
-            String variableName;
-            Integer position;
-
-            VariableInText(String variableName, Integer position) {
-                this.variableName = variableName;
-                this.position = position;
-            }
-        }
-
-        Pattern pattern = Pattern.compile("\\$([A-Za-z]+[A-Za-z0-9_]*)");
-        Matcher matches = pattern.matcher(sourceText);
-
-        int searchStart = 0;
-        List<VariableInText> variablesInText = new ArrayList<VariableInText>();
-        while (matches.find(searchStart)) {
-            variablesInText.add(new VariableInText(matches.group(1), matches.start())); // always at position 1 (second
-                                                                                        // position)
-            searchStart = matches.end();
-        }
-
-        // for ( VariableInText v : variablesInText ) {
-        // System.out.printf( "found variable %s at %d\n", v.variableName, v.position );
-        // }
-
-        StringBuffer buffer = new StringBuffer(sourceText);
-        Collections.reverse(variablesInText);
-        for (VariableInText v : variablesInText) {
-            String replaceValue = "";
-            if (variables.containsKey(v.variableName))
-                replaceValue = variables.get(v.variableName);
-            else
-            if (variables.containsKey(RvdConfiguration.MODULE_PREFIX + v.variableName) )
-                replaceValue = variables.get(RvdConfiguration.MODULE_PREFIX + v.variableName);
-            else
-            if (variables.containsKey(RvdConfiguration.STICKY_PREFIX + v.variableName) )
-                replaceValue = variables.get(RvdConfiguration.STICKY_PREFIX + v.variableName);
-
-            buffer.replace(v.position, v.position + v.variableName.length() + 1, replaceValue == null ? "" : replaceValue); // +1 is for the $ character
-        }
-
-        return buffer.toString();
+        // the templates are compiled once per project, steps rendered outside of interpret() compile their own
+        VariableTemplate template = project != null ? project.getTemplate(sourceText) : VariableTemplate.compile(sourceText);
+        return template.render(variables);
     }
 
     public String buildAction(Map<String, String> pairs) {
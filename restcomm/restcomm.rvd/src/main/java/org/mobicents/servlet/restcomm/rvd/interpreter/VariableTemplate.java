@@ -0,0 +1,125 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+
+package org.mobicents.servlet.restcomm.rvd.interpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.mobicents.servlet.restcomm.rvd.RvdConfiguration;
+
+/**
+ * A step text with RVD variable expressions ($name) parsed into literal and variable segments. Texts are compiled once,
+ * see ProjectCache, and rendered against the interpreter variables in a single pass. A variable is looked up as is,
+ * then as a module-scoped and then as a sticky variable. Undefined variables render as empty strings.
+ */
+public class VariableTemplate {
+    // the expected length of a variable value, used to size the output
+    private static final int VALUE_LENGTH_HINT = 16;
+
+    private final String source;
+    // literals.length == names.length + 1, a variable is always surrounded by (possibly empty) literals
+    private final String[] literals;
+    private final String[] names;
+    private final String[] moduleNames;
+    private final String[] stickyNames;
+    private final int literalLength;
+
+    private VariableTemplate(String source, List<String> literals, List<String> names) {
+        this.source = source;
+        this.literals = literals.toArray(new String[literals.size()]);
+        this.names = names.toArray(new String[names.size()]);
+        this.moduleNames = new String[this.names.length];
+        this.stickyNames = new String[this.names.length];
+        for (int i = 0; i < this.names.length; i++) {
+            moduleNames[i] = RvdConfiguration.MODULE_PREFIX + this.names[i];
+            stickyNames[i] = RvdConfiguration.STICKY_PREFIX + this.names[i];
+        }
+        int length = 0;
+        for (String literal : this.literals)
+            length += literal.length();
+        this.literalLength = length;
+    }
+
+    /**
+     * Parses the variable expressions of a text. A variable name starts with a letter followed by letters, digits or
+     * underscores. A '$' not followed by a letter is kept as is.
+     */
+    public static VariableTemplate compile(String source) {
+        List<String> literals = new ArrayList<String>();
+        List<String> names = new ArrayList<String>();
+        int length = source.length();
+        int literalStart = 0;
+        int i = 0;
+        while (i < length) {
+            if (source.charAt(i) == '$' && i + 1 < length && isLetter(source.charAt(i + 1))) {
+                int nameEnd = i + 2;
+                while (nameEnd < length && isNamePart(source.charAt(nameEnd)))
+                    nameEnd++;
+                literals.add(source.substring(literalStart, i));
+                names.add(source.substring(i + 1, nameEnd));
+                literalStart = nameEnd;
+                i = nameEnd;
+            } else {
+                i++;
+            }
+        }
+        literals.add(source.substring(literalStart));
+        return new VariableTemplate(source, literals, names);
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    private static boolean isNamePart(char c) {
+        return isLetter(c) || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String render(Map<String, String> variables) {
+        if (names.length == 0)
+            return source;
+        StringBuilder buffer = new StringBuilder(literalLength + names.length * VALUE_LENGTH_HINT);
+        buffer.append(literals[0]);
+        for (int i = 0; i < names.length; i++) {
+            String value = lookup(variables, i);
+            if (value != null)
+                buffer.append(value);
+            buffer.append(literals[i + 1]);
+        }
+        return buffer.toString();
+    }
+
+    private String lookup(Map<String, String> variables, int i) {
+        // a variable defined with a null value hides the module and sticky ones, same as containsKey()
+        String value = variables.get(names[i]);
+        if (value != null || variables.containsKey(names[i]))
+            return value;
+        value = variables.get(moduleNames[i]);
+        if (value != null || variables.containsKey(moduleNames[i]))
+            return value;
+        return variables.get(stickyNames[i]);
+    }
+}
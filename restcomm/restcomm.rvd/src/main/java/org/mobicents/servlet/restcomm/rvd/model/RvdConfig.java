@@ -5,6 +5,8 @@ public class RvdConfig {
     private String workspaceBackupLocation;
     private String sslMode;
     private String restcommBaseUrl;
+    private Integer externalServiceMaxConnections;
+    private Integer externalServiceMaxConnectionsPerHost;
 
     public RvdConfig() {
     }
@@ -31,4 +33,12 @@ public class RvdConfig {
     public String getRestcommBaseUrl() {
         return restcommBaseUrl;
     }
+
+    public Integer getExternalServiceMaxConnections() {
+        return externalServiceMaxConnections;
+    }
+
+    public Integer getExternalServiceMaxConnectionsPerHost() {
+        return externalServiceMaxConnectionsPerHost;
+    }
 }
@@ -36,17 +36,18 @@ import com.google.gson.JsonParseException;
 public class StepJsonDeserializer implements JsonDeserializer<Step> {
     static final Logger logger = Logger.getLogger(BuildService.class.getName());
 
+    // Gson is thread safe, no need to build it for every step
+    private static final Gson gson = new GsonBuilder()
+        .registerTypeAdapter(Step.class, new StepJsonDeserializer())
+        .registerTypeAdapter(DialNoun.class, new DialNounJsonDeserializer())
+        .create();
+
     @Override
     public Step deserialize(JsonElement rootElement, Type arg1, JsonDeserializationContext arg2) throws JsonParseException {
 
         JsonObject step_object = rootElement.getAsJsonObject();
         String kind = step_object.get("kind").getAsString();
 
-        Gson gson = new GsonBuilder()
-            .registerTypeAdapter(Step.class, new StepJsonDeserializer())
-            .registerTypeAdapter(DialNoun.class, new DialNounJsonDeserializer())
-            .create();
-
         Step step;
         if ("say".equals(kind))
             step = gson.fromJson(step_object, SayStep.class);
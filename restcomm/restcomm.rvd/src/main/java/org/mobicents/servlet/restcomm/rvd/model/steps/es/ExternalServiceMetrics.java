@@ -0,0 +1,93 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+
+package org.mobicents.servlet.restcomm.rvd.model.steps.es;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Request counts, errors and latencies of the services called by ExternalService steps, per scheme, host and port.
+ * An error is a request that failed or got a 4xx/5xx response. The latency covers sending the request and reading the
+ * response.
+ */
+public class ExternalServiceMetrics {
+    // urls built from variables could otherwise grow the map without bound
+    private static final int MAX_SERVICES = 1000;
+    private static final String OTHER_SERVICES = "other";
+
+    private static final ConcurrentMap<String, ExternalServiceMetrics> services = new ConcurrentHashMap<String, ExternalServiceMetrics>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong latency = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    private ExternalServiceMetrics() {
+    }
+
+    public static ExternalServiceMetrics get(URI url) {
+        String service = url.getScheme() + "://" + url.getHost() + (url.getPort() == -1 ? "" : ":" + url.getPort());
+        ExternalServiceMetrics metrics = services.get(service);
+        if (metrics == null) {
+            if (services.size() >= MAX_SERVICES)
+                service = OTHER_SERVICES;
+            metrics = new ExternalServiceMetrics();
+            ExternalServiceMetrics existing = services.putIfAbsent(service, metrics);
+            if (existing != null)
+                metrics = existing;
+        }
+        return metrics;
+    }
+
+    public void record(long millis, boolean error) {
+        requests.incrementAndGet();
+        if (error)
+            errors.incrementAndGet();
+        latency.addAndGet(millis);
+        long current = maxLatency.get();
+        while (millis > current && !maxLatency.compareAndSet(current, millis))
+            current = maxLatency.get();
+    }
+
+    /**
+     * @return the metrics of every service, i.e <code>{"http://crm.example.com": {"requests": 10, "errors": 0,
+     *         "latencyAvgMillis": 35, "latencyMaxMillis": 120}}</code>
+     */
+    public static Map<String, Map<String, Long>> getMetrics() {
+        Map<String, Map<String, Long>> result = new TreeMap<String, Map<String, Long>>();
+        for (Map.Entry<String, ExternalServiceMetrics> entry : services.entrySet()) {
+            ExternalServiceMetrics metrics = entry.getValue();
+            long requests = metrics.requests.get();
+            Map<String, Long> values = new LinkedHashMap<String, Long>();
+            values.put("requests", requests);
+            values.put("errors", metrics.errors.get());
+            values.put("latencyAvgMillis", requests > 0 ? metrics.latency.get() / requests : 0);
+            values.put("latencyMaxMillis", metrics.maxLatency.get());
+            result.put(entry.getKey(), values);
+        }
+        return result;
+    }
+}
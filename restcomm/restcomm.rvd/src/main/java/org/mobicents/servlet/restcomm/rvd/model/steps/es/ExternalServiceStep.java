@@ -1,8 +1,11 @@
 package org.mobicents.servlet.restcomm.rvd.model.steps.es;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -18,14 +21,15 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
-import org.apache.http.client.utils.HttpClientUtils;
 import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.protocol.HTTP;
 import org.apache.http.util.EntityUtils;
 import org.apache.log4j.Logger;
-import org.mobicents.servlet.restcomm.rvd.commons.http.CustomHttpClientBuilder;
+import org.mobicents.servlet.restcomm.rvd.commons.http.ExternalServiceHttpClient;
 import org.mobicents.servlet.restcomm.rvd.exceptions.ESRequestException;
 import org.mobicents.servlet.restcomm.rvd.exceptions.InterpreterException;
 import org.mobicents.servlet.restcomm.rvd.interpreter.Interpreter;
@@ -38,7 +42,6 @@ import org.mobicents.servlet.restcomm.rvd.model.rcml.RcmlStep;
 import org.mobicents.servlet.restcomm.rvd.utils.RvdUtils;
 
 import com.google.gson.JsonElement;
-import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
 
 
@@ -210,8 +213,9 @@ public class ExternalServiceStep extends Step {
 
             // *** Make the request and get a status code and a response. Build a JsonElement from the response  ***
 
-            CloseableHttpClient client = CustomHttpClientBuilder.buildHttpClient();
-            CloseableHttpResponse response;
+            CloseableHttpClient client = ExternalServiceHttpClient.get();
+            HttpRequestBase request;
+            CloseableHttpResponse response = null;
             int statusCode;
             JsonElement response_element = null;
 
@@ -227,11 +231,12 @@ public class ExternalServiceStep extends Step {
             if ( "POST".equals(getMethod()) || "PUT".equals(getMethod()) ) {
 
                 // Setup request object
-                HttpEntityEnclosingRequestBase request;
+                HttpEntityEnclosingRequestBase entityRequest;
                 if ( "POST".equals(getMethod()) )
-                    request = new HttpPost(url);
+                    entityRequest = new HttpPost(url);
                 else
-                    request = new HttpPut(url);
+                    entityRequest = new HttpPut(url);
+                request = entityRequest;
 
                 String body = interpreter.populateVariables(requestBody);
 
@@ -241,34 +246,31 @@ public class ExternalServiceStep extends Step {
                         List <NameValuePair> values = new ArrayList <NameValuePair>();
                         for ( UrlParam urlParam : getUrlParams() )
                             values.add(new BasicNameValuePair(urlParam.getName(), interpreter.populateVariables(urlParam.getValue()) ));
-                        request.setEntity(new UrlEncodedFormEntity(values));
+                        entityRequest.setEntity(new UrlEncodedFormEntity(values));
                     } else {
                         request.addHeader("Content-Type","application/x-www-form-urlencoded");
                         StringEntity stringBody = new StringEntity(body,"UTF-8");
-                        request.setEntity(stringBody);
+                        entityRequest.setEntity(stringBody);
                     }
                 } else
                 if ( getContentType().equals(CONTENT_TYPE_JSON) ) {
                     // send the request as JSON
                     request.addHeader("Content-Type","application/json");
                     StringEntity stringBody = new StringEntity(body,"UTF-8");
-                    request.setEntity(stringBody);
+                    entityRequest.setEntity(stringBody);
                 } else {
                     // unknown content type found. Use this content type and hope for the best
                     logger.warn( "Unknown content type found when POSTing to " + url +" : " + getContentType() );
                     request.addHeader("Content-Type", getContentType());
                     StringEntity stringBody = new StringEntity(body,"UTF-8");
-                    request.setEntity(stringBody);
+                    entityRequest.setEntity(stringBody);
                 }
 
                 // Add authentication headers if present
                 if ( !RvdUtils.isEmpty(getUsername()) )
                     request.addHeader("Authorization", "Basic " + RvdUtils.buildHttpAuthorizationToken(getUsername(), getPassword()));
-
-                response = client.execute( request );
             } else
             if ( getMethod() == null || getMethod().equals("GET") || getMethod().equals("DELETE") ) {
-                HttpRequestBase request;
                 if ( getMethod() == null || getMethod().equals("GET") )
                     request = new HttpGet( url );
                 else
@@ -276,13 +278,16 @@ public class ExternalServiceStep extends Step {
 
                 if ( !RvdUtils.isEmpty(getUsername()) )
                     request.addHeader("Authorization", "Basic " + RvdUtils.buildHttpAuthorizationToken(getUsername(), getPassword()));
-                response = client.execute( request );
             } else
                 throw new InterpreterException("Unknonwn HTTP method specified: " + getMethod() );
 
-            // got response
+            ExternalServiceMetrics metrics = ExternalServiceMetrics.get(url);
+            long start = System.currentTimeMillis();
+            boolean failed = true;
             try {
+                response = client.execute( request );
 
+                // got response
                 statusCode = response.getStatusLine().getStatusCode();
 
                 // In  case of error in the service no need to proceed. Just continue the "onException" module if set
@@ -301,23 +306,27 @@ public class ExternalServiceStep extends Step {
                         || getDoRouting() && ("responseBased".equals(getNextType()) || "mapped".equals(getNextType()))) {
                     HttpEntity entity = response.getEntity();
                     if (entity != null) {
-                        JsonParser parser = new JsonParser();
-                        String entity_string = EntityUtils.toString(entity);
-                        //logger.info("ES: Received " + entity_string.length() + " bytes");
-                        //logger.debug("ES Response: " + entity_string);
-                        if (interpreter.getRvdContext().getProjectSettings().getLogging())
+                        // only the parts of the response the extractors access are built
+                        JsonResponsePaths paths = new JsonResponsePaths(getValueExtractors());
+                        if (interpreter.getRvdContext().getProjectSettings().getLogging()) {
+                            String entity_string = EntityUtils.toString(entity);
                             interpreter.getProjectLogger().log(entity_string).tag("app", interpreter.getAppName()).tag("ES").tag("RESPONSE").done();
-                        response_element = parser.parse(entity_string);
+                            response_element = paths.parse(new StringReader(entity_string));
+                        } else {
+                            response_element = paths.parse(new InputStreamReader(entity.getContent(), getCharset(entity)));
+                        }
                     }
                 } else if (logger.isDebugEnabled()) {
                     logger.debug("ES: No parsing will be done to the response");
                 }
+                failed = false;
             } finally {
                 if (response != null) {
+                    // read what is left of the response so that the connection goes back to the pool
+                    EntityUtils.consumeQuietly(response.getEntity());
                     response.close();
-                    HttpClientUtils.closeQuietly(client);
-                    client = null;
                 }
+                metrics.record(System.currentTimeMillis() - start, failed);
             }
 
             // *** Determine what to do next. Find the next module name or whether to continue in the current module ***
@@ -412,4 +421,30 @@ public class ExternalServiceStep extends Step {
         return next;
     }
 
+    // the extractors that will be evaluated against the response
+    private List<ValueExtractor> getValueExtractors() {
+        List<ValueExtractor> extractors = new ArrayList<ValueExtractor>();
+        if (getAssignments() != null)
+            for (Assignment assignment : getAssignments())
+                extractors.add(assignment.getValueExtractor());
+        if (getDoRouting() && ("responseBased".equals(getNextType()) || "mapped".equals(getNextType())))
+            extractors.add(getNextValueExtractor());
+        return extractors;
+    }
+
+    // same as EntityUtils.toString()
+    private static Charset getCharset(HttpEntity entity) {
+        ContentType contentType = ContentType.get(entity);
+        Charset charset = null;
+        if (contentType != null) {
+            charset = contentType.getCharset();
+            if (charset == null) {
+                ContentType defaultContentType = ContentType.getByMimeType(contentType.getMimeType());
+                if (defaultContentType != null)
+                    charset = defaultContentType.getCharset();
+            }
+        }
+        return charset != null ? charset : HTTP.DEF_CONTENT_CHARSET;
+    }
+
 }
@@ -0,0 +1,161 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+
+package org.mobicents.servlet.restcomm.rvd.model.steps.es;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+/**
+ * The parts of an ExternalService response that the value extractors of a step access. Parsing a response streams
+ * through it and only builds the objects and array items on these paths, everything else is skipped. Skipped array
+ * items are kept as JSON nulls so that item positions and array sizes don't change, Interpreter.evaluateExtractorExpression()
+ * gives the same results and errors as with the whole response.
+ */
+public class JsonResponsePaths {
+    private final Node root = new Node();
+
+    private static class Node {
+        // the values the extractors read are built whole
+        boolean whole;
+        Map<String, Node> properties;
+        Map<Integer, Node> items;
+
+        Node property(String name) {
+            if (properties == null)
+                properties = new HashMap<String, Node>();
+            Node node = properties.get(name);
+            if (node == null) {
+                node = new Node();
+                properties.put(name, node);
+            }
+            return node;
+        }
+
+        Node item(Integer position) {
+            if (items == null)
+                items = new HashMap<Integer, Node>();
+            Node node = items.get(position);
+            if (node == null) {
+                node = new Node();
+                items.put(position, node);
+            }
+            return node;
+        }
+    }
+
+    public JsonResponsePaths(List<ValueExtractor> extractors) {
+        for (ValueExtractor extractor : extractors)
+            if (extractor != null && extractor.getAccessOperations() != null)
+                add(extractor.getAccessOperations());
+    }
+
+    private void add(List<AccessOperation> operations) {
+        Node node = root;
+        for (AccessOperation operation : operations) {
+            if ("object".equals(operation.getKind()) && "propertyNamed".equals(operation.getAction()) && operation.getProperty() != null)
+                node = node.property(operation.getProperty());
+            else if ("array".equals(operation.getKind()) && "itemAtPosition".equals(operation.getAction()) && operation.getPosition() != null)
+                node = node.item(operation.getPosition());
+            else
+                break; // a value or an invalid operation, the interpreter reports it against the whole value
+        }
+        node.whole = true;
+    }
+
+    /**
+     * Parses a response the way JsonParser.parse() does, building only the values on the extractor paths.
+     *
+     * @throws JsonSyntaxException if the response is not valid JSON
+     * @throws IOException if reading the response fails
+     */
+    public JsonElement parse(Reader response) throws IOException {
+        JsonReader reader = new JsonReader(response);
+        reader.setLenient(true);
+        try {
+            try {
+                reader.peek();
+            } catch (EOFException e) {
+                return JsonNull.INSTANCE; // empty response
+            }
+            JsonElement element = read(reader, root);
+            if (!element.isJsonNull() && reader.peek() != JsonToken.END_DOCUMENT)
+                throw new JsonSyntaxException("Did not consume the entire document.");
+            return element;
+        } catch (MalformedJsonException | EOFException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        } catch (JsonIOException e) {
+            // JsonParser wraps the errors reading the values it builds
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw e;
+        }
+    }
+
+    private JsonElement read(JsonReader reader, Node node) throws IOException {
+        JsonToken token = reader.peek();
+        if (node.whole || token != JsonToken.BEGIN_OBJECT && token != JsonToken.BEGIN_ARRAY)
+            return new JsonParser().parse(reader);
+        if (token == JsonToken.BEGIN_OBJECT) {
+            JsonObject object = new JsonObject();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                Node child = node.properties == null ? null : node.properties.get(name);
+                if (child == null)
+                    reader.skipValue();
+                else
+                    object.add(name, read(reader, child));
+            }
+            reader.endObject();
+            return object;
+        } else {
+            JsonArray array = new JsonArray();
+            reader.beginArray();
+            int position = 0;
+            while (reader.hasNext()) {
+                Node child = node.items == null ? null : node.items.get(position);
+                if (child == null) {
+                    reader.skipValue();
+                    array.add(JsonNull.INSTANCE);
+                } else
+                    array.add(read(reader, child));
+                position++;
+            }
+            reader.endArray();
+            return array;
+        }
+    }
+}
@@ -207,6 +207,8 @@ public class FsProjectStorage {
 
     public static void storeProjectOptions(ProjectOptions projectOptions, String projectName, WorkspaceStorage workspaceStorage) throws StorageException {
         workspaceStorage.storeEntity(projectOptions, ProjectOptions.class, "project", projectName+"/data");
+        // the project options are the last thing stored when building
+        ProjectCache.invalidate(projectName, workspaceStorage);
     }
 
     public static void storeNodeStepnames(Node node, String projectName, WorkspaceStorage storage) throws StorageException {
@@ -215,6 +217,7 @@ public class FsProjectStorage {
             stepnames.add(step.getName());
         }
         storage.storeEntity(stepnames, node.getName()+".node", projectName+"/data");
+        ProjectCache.invalidate(projectName, storage);
     }
 
     public static List<String> loadNodeStepnames(String projectName, String nodeName, WorkspaceStorage storage) throws StorageException {
@@ -224,6 +227,7 @@ public class FsProjectStorage {
 
     public static void storeNodeStep(Step step, Node node, String projectName, WorkspaceStorage storage) throws StorageException {
         storage.storeEntity(step, node.getName()+"."+step.getName(), projectName+"/data/");
+        ProjectCache.invalidate(projectName, storage);
     }
 
     public static ProjectSettings loadProjectSettings(String projectName, WorkspaceStorage storage) throws StorageException {
@@ -300,6 +304,9 @@ public class FsProjectStorage {
             FileUtils.moveDirectory(sourceDir, destDir);
         } catch (IOException e) {
             throw new StorageException("Error renaming directory '" + projectName + "' to '" + newProjectName + "'");
+        } finally {
+            ProjectCache.invalidate(projectName, storage);
+            ProjectCache.invalidate(newProjectName, storage);
         }
     }
 
@@ -309,6 +316,8 @@ public class FsProjectStorage {
             FileUtils.deleteDirectory(projectDir);
         } catch (IOException e) {
             throw new StorageException("Error removing directory '" + projectName + "'", e);
+        } finally {
+            ProjectCache.invalidate(projectName, storage);
         }
     }
 
@@ -374,6 +383,8 @@ public class FsProjectStorage {
                     FileUtils.copyDirectory(sourceProjectDirectory, destProjectDirectory);
                 } catch (IOException e1) {
                     throw new StorageException("Error importing project '" + projectName + "' from directory: " + sourceProjectDirectory);
+                } finally {
+                    ProjectCache.invalidate(projectName, storage);
                 }
             }
         }
@@ -505,6 +516,7 @@ public class FsProjectStorage {
             stateFile_os = new FileOutputStream(storage.rootPath + File.separator + projectName + File.separator + "state");
             IOUtils.write(newState, stateFile_os, Charset.forName("UTF-8"));
             stateFile_os.close();
+            ProjectCache.invalidate(projectName, storage);
         } catch (FileNotFoundException e) {
             throw new StorageException("Error updating state file for project '" + projectName + "'", e);
         } catch (IOException e) {
@@ -0,0 +1,168 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+
+package org.mobicents.servlet.restcomm.rvd.storage;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mobicents.servlet.restcomm.rvd.interpreter.VariableTemplate;
+import org.mobicents.servlet.restcomm.rvd.model.StepJsonDeserializer;
+import org.mobicents.servlet.restcomm.rvd.model.client.Step;
+import org.mobicents.servlet.restcomm.rvd.model.server.ProjectOptions;
+import org.mobicents.servlet.restcomm.rvd.storage.exceptions.StorageException;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Keeps the built projects in memory the way the interpreter runs them: the project options and, for every module, its
+ * steps already deserialized and in order. Modules are loaded the first time they are run. The step texts holding
+ * variable expressions are compiled the first time they are rendered and kept with the project as well.
+ *
+ * FsProjectStorage invalidates a project whenever it is built, imported, renamed or removed. The cached steps are
+ * shared by all the calls of the project and must not be modified while interpreting.
+ */
+public class ProjectCache {
+    private static final Gson gson = new GsonBuilder().registerTypeAdapter(Step.class, new StepJsonDeserializer()).create();
+    private static final ConcurrentMap<String, CompiledProject> projects = new ConcurrentHashMap<String, CompiledProject>();
+    // Bumped on every invalidation so that a project loaded while it was being built is not kept
+    private static final AtomicLong generation = new AtomicLong();
+
+    private ProjectCache() {
+    }
+
+    public static CompiledProject getProject(String projectName, WorkspaceStorage storage) throws StorageException {
+        String key = key(projectName, storage);
+        CompiledProject project = projects.get(key);
+        if (project == null) {
+            long current = generation.get();
+            ProjectOptions options = FsProjectStorage.loadProjectOptions(projectName, storage);
+            project = new CompiledProject(projectName, storage, options);
+            if (generation.get() == current) {
+                CompiledProject existing = projects.putIfAbsent(key, project);
+                if (existing != null)
+                    project = existing;
+                else if (generation.get() != current)
+                    // invalidated between the check and the put
+                    projects.remove(key, project);
+            }
+        }
+        return project;
+    }
+
+    public static void invalidate(String projectName, WorkspaceStorage storage) {
+        generation.incrementAndGet();
+        projects.remove(key(projectName, storage));
+    }
+
+    private static String key(String projectName, WorkspaceStorage storage) {
+        return storage.rootPath + File.separator + projectName;
+    }
+
+    public static class CompiledProject {
+        private final String projectName;
+        private final WorkspaceStorage storage;
+        private final ProjectOptions options;
+        private final ConcurrentMap<String, CompiledNode> nodes = new ConcurrentHashMap<String, CompiledNode>();
+        // keyed by the step text, there are only as many as the texts of the project steps
+        private final ConcurrentMap<String, VariableTemplate> templates = new ConcurrentHashMap<String, VariableTemplate>();
+
+        private CompiledProject(String projectName, WorkspaceStorage storage, ProjectOptions options) {
+            this.projectName = projectName;
+            this.storage = storage;
+            this.options = options;
+        }
+
+        public ProjectOptions getOptions() {
+            return options;
+        }
+
+        public CompiledNode getNode(String nodeName) throws StorageException {
+            CompiledNode node = nodes.get(nodeName);
+            if (node == null) {
+                long current = ProjectCache.generation.get();
+                List<String> stepnames = FsProjectStorage.loadNodeStepnames(projectName, nodeName, storage);
+                Map<String, Step> steps = new LinkedHashMap<String, Step>();
+                for (String stepname : stepnames) {
+                    steps.put(stepname, loadStep(nodeName, stepname));
+                }
+                node = new CompiledNode(nodeName, stepnames, steps);
+                if (ProjectCache.generation.get() == current) {
+                    CompiledNode existing = nodes.putIfAbsent(nodeName, node);
+                    if (existing != null)
+                        node = existing;
+                    else if (ProjectCache.generation.get() != current)
+                        nodes.remove(nodeName, node);
+                }
+            }
+            return node;
+        }
+
+        public VariableTemplate getTemplate(String text) {
+            VariableTemplate template = templates.get(text);
+            if (template == null) {
+                template = VariableTemplate.compile(text);
+                VariableTemplate existing = templates.putIfAbsent(text, template);
+                if (existing != null)
+                    template = existing;
+            }
+            return template;
+        }
+
+        private Step loadStep(String nodeName, String stepname) throws StorageException {
+            String stepfile_json = FsProjectStorage.loadStep(projectName, nodeName, stepname, storage);
+            return gson.fromJson(stepfile_json, Step.class);
+        }
+    }
+
+    public static class CompiledNode {
+        private final String name;
+        private final List<String> stepnames;
+        private final Map<String, Step> steps;
+
+        private CompiledNode(String name, List<String> stepnames, Map<String, Step> steps) {
+            this.name = name;
+            this.stepnames = Collections.unmodifiableList(stepnames);
+            this.steps = Collections.unmodifiableMap(steps);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<String> getStepnames() {
+            return stepnames;
+        }
+
+        /**
+         * @return the step or null if the module has no such step
+         */
+        public Step getStep(String stepname) {
+            return steps.get(stepname);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+
+package org.mobicents.servlet.restcomm.rvd.interpreter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.mobicents.servlet.restcomm.rvd.RvdConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the regex based variable substitution the interpreter used to run for every step text with rendering a
+ * precompiled VariableTemplate. It is not part of the unit tests, run its main method with the test class path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class VariableTemplateBenchmark {
+
+    @Param({ "say", "play", "externalService" })
+    public String step;
+
+    private String text;
+    private VariableTemplate template;
+    private Map<String, String> variables;
+
+    @Setup
+    public void setup() {
+        if ("say".equals(step))
+            text = "Hello $customerName, your balance is $balance dollars. Your last payment of $lastPayment was received on $paymentDate.";
+        else if ("play".equals(step))
+            text = "http://media.example.com/prompts/$lang/$promptId.wav";
+        else
+            text = "https://api.example.com/v1/accounts/$core_AccountSid/customers?phone=$core_From&called=$core_To&digits=$digits&session=$sessionId";
+        template = VariableTemplate.compile(text);
+
+        variables = new HashMap<String, String>();
+        variables.put("core_AccountSid", "ACae6e420f425248d6a26948c17a9e2acf");
+        variables.put("core_CallSid", "CA6d61e3877f3c47828a26efd498ad9a3f");
+        variables.put("core_From", "+15126002188");
+        variables.put("core_To", "+15126002199");
+        variables.put("customerName", "Alice");
+        variables.put("balance", "120");
+        variables.put(RvdConfiguration.MODULE_PREFIX + "lastPayment", "30");
+        variables.put(RvdConfiguration.MODULE_PREFIX + "paymentDate", "March 3rd");
+        variables.put(RvdConfiguration.MODULE_PREFIX + "digits", "1234");
+        variables.put(RvdConfiguration.STICKY_PREFIX + "lang", "en");
+        variables.put(RvdConfiguration.STICKY_PREFIX + "promptId", "welcome");
+        variables.put(RvdConfiguration.STICKY_PREFIX + "sessionId", "d2f8a5c1");
+    }
+
+    @Benchmark
+    public String regexAndReplace() {
+        // Interpreter.populateVariables() compiled the pattern and spliced the values in for every text
+        Pattern pattern = Pattern.compile("\\$([A-Za-z]+[A-Za-z0-9_]*)");
+        Matcher matches = pattern.matcher(text);
+        List<String> names = new ArrayList<String>();
+        List<Integer> positions = new ArrayList<Integer>();
+        int searchStart = 0;
+        while (matches.find(searchStart)) {
+            names.add(matches.group(1));
+            positions.add(matches.start());
+            searchStart = matches.end();
+        }
+        StringBuffer buffer = new StringBuffer(text);
+        Collections.reverse(names);
+        Collections.reverse(positions);
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            String value = "";
+            if (variables.containsKey(name))
+                value = variables.get(name);
+            else if (variables.containsKey(RvdConfiguration.MODULE_PREFIX + name))
+                value = variables.get(RvdConfiguration.MODULE_PREFIX + name);
+            else if (variables.containsKey(RvdConfiguration.STICKY_PREFIX + name))
+                value = variables.get(RvdConfiguration.STICKY_PREFIX + name);
+            int position = positions.get(i);
+            buffer.replace(position, position + name.length() + 1, value == null ? "" : value);
+        }
+        return buffer.toString();
+    }
+
+    @Benchmark
+    public String compiledTemplate() {
+        return template.render(variables);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder().include(VariableTemplateBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
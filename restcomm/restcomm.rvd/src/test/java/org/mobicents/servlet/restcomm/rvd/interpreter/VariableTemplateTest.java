@@ -0,0 +1,66 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+
+package org.mobicents.servlet.restcomm.rvd.interpreter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class VariableTemplateTest {
+
+    @Test
+    public void rendersVariablesInPlace() {
+        Map<String, String> variables = new HashMap<String, String>();
+        variables.put("name", "Alice");
+        variables.put("core_From", "+1234");
+        VariableTemplate template = VariableTemplate.compile("Hello $name, you called from $core_From.");
+        Assert.assertEquals("Hello Alice, you called from +1234.", template.render(variables));
+    }
+
+    @Test
+    public void looksUpModuleThenStickyVariables() {
+        Map<String, String> variables = new HashMap<String, String>();
+        variables.put("module_digits", "42");
+        variables.put("sticky_digits", "7");
+        variables.put("sticky_lang", "en");
+        VariableTemplate template = VariableTemplate.compile("$digits/$lang");
+        Assert.assertEquals("42/en", template.render(variables));
+    }
+
+    @Test
+    public void rendersUndefinedAndNullVariablesAsEmpty() {
+        Map<String, String> variables = new HashMap<String, String>();
+        variables.put("empty", null);
+        variables.put("module_empty", "hidden");
+        Assert.assertEquals("[][]", VariableTemplate.compile("[$missing][$empty]").render(variables));
+    }
+
+    @Test
+    public void keepsTextThatIsNotAVariable() {
+        Map<String, String> variables = new HashMap<String, String>();
+        variables.put("a1_b", "x");
+        Assert.assertEquals("$ $1 $$ x! $", VariableTemplate.compile("$ $1 $$ $a1_b! $").render(variables));
+        String plain = "no variables here";
+        Assert.assertSame(plain, VariableTemplate.compile(plain).render(variables));
+    }
+}
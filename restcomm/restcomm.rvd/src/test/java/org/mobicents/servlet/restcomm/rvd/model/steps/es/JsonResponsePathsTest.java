@@ -0,0 +1,96 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+
+package org.mobicents.servlet.restcomm.rvd.model.steps.es;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonSyntaxException;
+
+public class JsonResponsePathsTest {
+
+    private static AccessOperation property(String name) {
+        AccessOperation operation = new AccessOperation();
+        operation.setKind("object");
+        operation.setAction("propertyNamed");
+        operation.setProperty(name);
+        return operation;
+    }
+
+    private static AccessOperation item(int position) {
+        AccessOperation operation = new AccessOperation();
+        operation.setKind("array");
+        operation.setAction("itemAtPosition");
+        operation.setPosition(position);
+        return operation;
+    }
+
+    private static AccessOperation value() {
+        AccessOperation operation = new AccessOperation();
+        operation.setKind("value");
+        return operation;
+    }
+
+    private static ValueExtractor extractor(AccessOperation... operations) {
+        ValueExtractor extractor = new ValueExtractor();
+        extractor.setAccessOperations(new ArrayList<AccessOperation>(Arrays.asList(operations)));
+        return extractor;
+    }
+
+    private static JsonElement parse(String json, ValueExtractor... extractors) throws IOException {
+        List<ValueExtractor> list = Arrays.asList(extractors);
+        return new JsonResponsePaths(list).parse(new StringReader(json));
+    }
+
+    @Test
+    public void buildsOnlyTheExtractedPaths() throws IOException {
+        String json = "{\"customer\": {\"name\": \"Alice\", \"notes\": [\"a\", \"b\"]}, \"orders\": [{\"id\": 1}, {\"id\": 2}, {\"id\": 3}], \"big\": {\"x\": 1}}";
+        JsonElement element = parse(json, extractor(property("customer"), property("name"), value()),
+                extractor(property("orders"), item(1), property("id"), value()));
+        Assert.assertEquals("{\"customer\":{\"name\":\"Alice\"},\"orders\":[null,{\"id\":2},null]}", element.toString());
+    }
+
+    @Test
+    public void keepsTheShapeOfMismatchedValues() throws IOException {
+        // the interpreter reports these against the actual value
+        JsonElement element = parse("{\"customer\": [1, 2]}", extractor(property("customer"), property("name"), value()));
+        Assert.assertEquals("{\"customer\":[null,null]}", element.toString());
+        element = parse("{\"customer\": \"Alice\"}", extractor(property("customer"), property("name"), value()));
+        Assert.assertEquals("{\"customer\":\"Alice\"}", element.toString());
+    }
+
+    @Test
+    public void parsesEmptyResponsesAsNull() throws IOException {
+        Assert.assertTrue(parse("", extractor(property("a"), value())).isJsonNull());
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void rejectsMalformedResponses() throws IOException {
+        parse("{\"a\": [1, 2}", extractor(property("b"), value()));
+    }
+}
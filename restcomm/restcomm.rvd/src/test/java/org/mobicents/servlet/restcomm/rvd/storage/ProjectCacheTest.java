@@ -0,0 +1,113 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+
+package org.mobicents.servlet.restcomm.rvd.storage;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.rvd.TestUtils;
+import org.mobicents.servlet.restcomm.rvd.model.ModelMarshaler;
+import org.mobicents.servlet.restcomm.rvd.model.server.ProjectOptions;
+import org.mobicents.servlet.restcomm.rvd.model.steps.say.SayStep;
+import org.mobicents.servlet.restcomm.rvd.storage.ProjectCache.CompiledNode;
+import org.mobicents.servlet.restcomm.rvd.storage.ProjectCache.CompiledProject;
+import org.mobicents.servlet.restcomm.rvd.storage.exceptions.StorageException;
+
+public class ProjectCacheTest {
+
+    private void writeProject(File workspaceDir, String phrase) throws IOException {
+        File dataDir = new File(workspaceDir, "CachedProject/data");
+        dataDir.mkdirs();
+        FileUtils.fileWrite(new File(dataDir, "project"), "UTF-8", "{\"defaultTarget\":\"start\"}");
+        FileUtils.fileWrite(new File(dataDir, "start.node"), "UTF-8", "[\"step1\",\"step2\"]");
+        FileUtils.fileWrite(new File(dataDir, "start.step1"), "UTF-8", "{\"phrase\":\"" + phrase + "\",\"kind\":\"say\",\"name\":\"step1\"}");
+        FileUtils.fileWrite(new File(dataDir, "start.step2"), "UTF-8", "{\"phrase\":\"bye\",\"kind\":\"say\",\"name\":\"step2\"}");
+    }
+
+    @Test
+    public void stepsAreLoadedOnceInOrder() throws IOException, StorageException {
+        File workspaceDir = TestUtils.createTempWorkspace();
+        try {
+            WorkspaceStorage storage = new WorkspaceStorage(workspaceDir.getPath(), new ModelMarshaler());
+            writeProject(workspaceDir, "welcome");
+
+            CompiledProject project = ProjectCache.getProject("CachedProject", storage);
+            Assert.assertEquals("start", project.getOptions().getDefaultTarget());
+            CompiledNode node = project.getNode("start");
+            Assert.assertEquals(2, node.getStepnames().size());
+            Assert.assertEquals("step1", node.getStepnames().get(0));
+            Assert.assertEquals("welcome", ((SayStep) node.getStep("step1")).getPhrase());
+            Assert.assertNull(node.getStep("step3"));
+
+            // files changed behind the back of the storage are not seen
+            writeProject(workspaceDir, "changed");
+            Assert.assertSame(project, ProjectCache.getProject("CachedProject", storage));
+            Assert.assertSame(node, ProjectCache.getProject("CachedProject", storage).getNode("start"));
+        } finally {
+            ProjectCache.invalidate("CachedProject", new WorkspaceStorage(workspaceDir.getPath(), new ModelMarshaler()));
+            TestUtils.removeTempWorkspace(workspaceDir.getPath());
+        }
+    }
+
+    @Test
+    public void buildingTheProjectInvalidatesIt() throws IOException, StorageException {
+        File workspaceDir = TestUtils.createTempWorkspace();
+        try {
+            WorkspaceStorage storage = new WorkspaceStorage(workspaceDir.getPath(), new ModelMarshaler());
+            writeProject(workspaceDir, "welcome");
+            CompiledProject project = ProjectCache.getProject("CachedProject", storage);
+            project.getNode("start");
+
+            writeProject(workspaceDir, "changed");
+            ProjectOptions options = new ProjectOptions();
+            options.setDefaultTarget("start");
+            FsProjectStorage.storeProjectOptions(options, "CachedProject", storage);
+
+            CompiledProject rebuilt = ProjectCache.getProject("CachedProject", storage);
+            Assert.assertNotSame(project, rebuilt);
+            Assert.assertEquals("changed", ((SayStep) rebuilt.getNode("start").getStep("step1")).getPhrase());
+        } finally {
+            ProjectCache.invalidate("CachedProject", new WorkspaceStorage(workspaceDir.getPath(), new ModelMarshaler()));
+            TestUtils.removeTempWorkspace(workspaceDir.getPath());
+        }
+    }
+
+    @Test
+    public void modulesAreCachedAfterOtherProjectsAreInvalidated() throws IOException, StorageException {
+        File workspaceDir = TestUtils.createTempWorkspace();
+        try {
+            WorkspaceStorage storage = new WorkspaceStorage(workspaceDir.getPath(), new ModelMarshaler());
+            writeProject(workspaceDir, "welcome");
+            CompiledProject project = ProjectCache.getProject("CachedProject", storage);
+
+            ProjectCache.invalidate("OtherProject", storage);
+            Assert.assertSame(project, ProjectCache.getProject("CachedProject", storage));
+            CompiledNode node = project.getNode("start");
+            Assert.assertSame(node, project.getNode("start"));
+        } finally {
+            ProjectCache.invalidate("CachedProject", new WorkspaceStorage(workspaceDir.getPath(), new ModelMarshaler()));
+            TestUtils.removeTempWorkspace(workspaceDir.getPath());
+        }
+    }
+}
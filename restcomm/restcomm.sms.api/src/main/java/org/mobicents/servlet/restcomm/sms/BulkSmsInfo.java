@@ -0,0 +1,141 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.sms;
+
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+/**
+ * A snapshot of the progress of a bulk SMS. The status of the recipients is left out of the list of bulk SMS.
+ */
+@Immutable
+public final class BulkSmsInfo {
+    public enum Status {
+        QUEUED("queued"), IN_PROGRESS("in-progress"), COMPLETED("completed"), CANCELED("canceled");
+
+        private final String text;
+
+        private Status(final String text) {
+            this.text = text;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    };
+
+    private final Sid sid;
+    private final Sid accountSid;
+    private final Status status;
+    private final DateTime dateCreated;
+    private final DateTime dateUpdated;
+    private final String from;
+    private final String body;
+    private final int total;
+    private final int queued;
+    private final int sending;
+    private final int sent;
+    private final int failed;
+    private final int canceled;
+    private final List<BulkSmsResult> results;
+
+    public BulkSmsInfo(final Sid sid, final Sid accountSid, final Status status, final DateTime dateCreated,
+            final DateTime dateUpdated, final String from, final String body, final int total, final int queued,
+            final int sending, final int sent, final int failed, final int canceled, final List<BulkSmsResult> results) {
+        super();
+        this.sid = sid;
+        this.accountSid = accountSid;
+        this.status = status;
+        this.dateCreated = dateCreated;
+        this.dateUpdated = dateUpdated;
+        this.from = from;
+        this.body = body;
+        this.total = total;
+        this.queued = queued;
+        this.sending = sending;
+        this.sent = sent;
+        this.failed = failed;
+        this.canceled = canceled;
+        this.results = results;
+    }
+
+    public Sid sid() {
+        return sid;
+    }
+
+    public Sid accountSid() {
+        return accountSid;
+    }
+
+    public Status status() {
+        return status;
+    }
+
+    public DateTime dateCreated() {
+        return dateCreated;
+    }
+
+    public DateTime dateUpdated() {
+        return dateUpdated;
+    }
+
+    public String from() {
+        return from;
+    }
+
+    public String body() {
+        return body;
+    }
+
+    public int total() {
+        return total;
+    }
+
+    public int queued() {
+        return queued;
+    }
+
+    public int sending() {
+        return sending;
+    }
+
+    public int sent() {
+        return sent;
+    }
+
+    public int failed() {
+        return failed;
+    }
+
+    public int canceled() {
+        return canceled;
+    }
+
+    /**
+     * @return the status of every recipient, null in the list of bulk SMS.
+     */
+    public List<BulkSmsResult> results() {
+        return results;
+    }
+}
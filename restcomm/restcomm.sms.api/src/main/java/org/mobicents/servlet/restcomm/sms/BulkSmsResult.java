@@ -0,0 +1,74 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.sms;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+/**
+ * The status of the message sent to one recipient of a bulk SMS. The message is stored with the SMS messages of the
+ * account under its sid.
+ */
+@Immutable
+public final class BulkSmsResult {
+    public enum Status {
+        QUEUED("queued"), SENDING("sending"), SENT("sent"), FAILED("failed"), CANCELED("canceled");
+
+        private final String text;
+
+        private Status(final String text) {
+            this.text = text;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    };
+
+    private final String to;
+    private final Sid smsSid;
+    private final Status status;
+    private final String error;
+
+    public BulkSmsResult(final String to, final Sid smsSid, final Status status, final String error) {
+        super();
+        this.to = to;
+        this.smsSid = smsSid;
+        this.status = status;
+        this.error = error;
+    }
+
+    public String to() {
+        return to;
+    }
+
+    public Sid smsSid() {
+        return smsSid;
+    }
+
+    public Status status() {
+        return status;
+    }
+
+    public String error() {
+        return error;
+    }
+}
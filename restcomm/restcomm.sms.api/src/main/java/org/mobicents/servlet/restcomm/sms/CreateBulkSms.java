@@ -0,0 +1,81 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.sms;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+/**
+ * Asks the bulk SMS sender to send the same text message to a list of recipients. Every message goes through an
+ * {@link SmsSessionRequest} on its own SMS session, like the ones of the SMS Messages REST API.
+ */
+@Immutable
+public final class CreateBulkSms {
+    private final Sid accountId;
+    private final String apiVersion;
+    private final String from;
+    private final List<String> recipients;
+    private final String body;
+    private final Map<String, String> headers;
+
+    public CreateBulkSms(final Sid accountId, final String apiVersion, final String from, final List<String> recipients,
+            final String body, final Map<String, String> headers) {
+        super();
+        this.accountId = accountId;
+        this.apiVersion = apiVersion;
+        this.from = from;
+        this.recipients = Collections.unmodifiableList(new ArrayList<String>(recipients));
+        this.body = body;
+        this.headers = Collections.unmodifiableMap(new HashMap<String, String>(headers));
+    }
+
+    public Sid accountId() {
+        return accountId;
+    }
+
+    public String apiVersion() {
+        return apiVersion;
+    }
+
+    public String from() {
+        return from;
+    }
+
+    public List<String> recipients() {
+        return recipients;
+    }
+
+    public String body() {
+        return body;
+    }
+
+    /**
+     * @return the X- headers added to every SIP MESSAGE.
+     */
+    public Map<String, String> headers() {
+        return headers;
+    }
+}
@@ -0,0 +1,565 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.sms;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.Configuration;
+import org.joda.time.DateTime;
+import org.mobicents.servlet.restcomm.dao.SmsMessagesDao;
+import org.mobicents.servlet.restcomm.dispatch.PacedQueue;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.entities.SmsMessage;
+import org.mobicents.servlet.restcomm.patterns.Observe;
+import org.mobicents.servlet.restcomm.patterns.Observing;
+import org.mobicents.servlet.restcomm.util.StringUtils;
+
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+import akka.actor.ActorRef;
+import akka.actor.Cancellable;
+import akka.actor.Props;
+import akka.actor.ReceiveTimeout;
+import akka.actor.Terminated;
+import akka.actor.UntypedActor;
+import akka.actor.UntypedActorFactory;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+import akka.util.Timeout;
+
+/**
+ * Sends the messages of the bulk SMS created through the REST API at a steady pace. Every message is sent on its own
+ * SMS session created by the SMS service, which hands it to the SMPP link or sends it as a SIP MESSAGE, the same way
+ * the SMS Messages REST API does it for a single message.
+ * <p>
+ * The records of the messages are inserted 'batch-size' at a time while the bulk SMS goes on and their status
+ * changes are written in batches as well, instead of one transaction per message. The pace is kept by a
+ * {@link PacedQueue}: at most 'messages-per-second' messages are sent every second and at most
+ * 'max-concurrent-messages' wait for an answer at once, all the bulk SMS taking turns. A message that gets no answer
+ * in 'response-timeout' seconds is failed, so is a message the SMS service creates no session for within a minute and
+ * the session created past that is destroyed unused. The progress of a bulk SMS is kept in memory for 'retention'
+ * seconds after its last message is done.
+ */
+public final class BulkSmsSender extends UntypedActor {
+    static final Object TICK = new Object();
+    private static final long TICK_PERIOD = 100;
+
+    private final LoggingAdapter logger = Logging.getLogger(getContext().system(), this);
+
+    private final ActorRef service;
+    private final SmsMessagesDao dao;
+    private final String rootUri;
+    private final int maxRecipients;
+    private final int batchSize;
+    private final long responseTimeout;
+    private final Timeout timeout;
+    private final boolean ticking;
+
+    private final PacedQueue<Sid, BulkSms> bulks;
+    // The bulk SMS with records left to insert, the oldest first.
+    private final Deque<BulkSms> storing;
+    private final Map<ActorRef, Message> sessions;
+    private List<SmsMessage> updates;
+    private Cancellable ticks;
+
+    /**
+     * @param configuration the whole restcomm.xml configuration.
+     */
+    public BulkSmsSender(final Configuration configuration, final ActorRef service, final SmsMessagesDao dao) {
+        this(configuration, service, dao, new Timeout(Duration.create(60, TimeUnit.SECONDS)), true);
+    }
+
+    // The tests answer in a shorter time and send the ticks themselves.
+    BulkSmsSender(final Configuration configuration, final ActorRef service, final SmsMessagesDao dao,
+            final Timeout timeout, final boolean ticking) {
+        super();
+        this.service = service;
+        this.dao = dao;
+        this.rootUri = StringUtils.addSuffixIfNotPresent(configuration.subset("runtime-settings").getString("root-uri"), "/");
+        final Configuration settings = configuration.subset("bulk-sms");
+        this.maxRecipients = settings.getInt("max-recipients", 100000);
+        this.batchSize = settings.getInt("batch-size", 500);
+        this.responseTimeout = settings.getLong("response-timeout", 60) * 1000;
+        this.timeout = timeout;
+        this.ticking = ticking;
+        final double messagesPerSecond = settings.getDouble("messages-per-second", 10);
+        final int maxConcurrentMessages = settings.getInt("max-concurrent-messages", 100);
+        final long retention = settings.getLong("retention", 3600) * 1000;
+        this.bulks = new PacedQueue<Sid, BulkSms>(messagesPerSecond, maxConcurrentMessages, retention, TICK_PERIOD);
+        this.storing = new ArrayDeque<BulkSms>();
+        this.sessions = new HashMap<ActorRef, Message>();
+        this.updates = new ArrayList<SmsMessage>();
+    }
+
+    @Override
+    public void preStart() {
+        if (!ticking) {
+            return;
+        }
+        final FiniteDuration period = Duration.create(TICK_PERIOD, TimeUnit.MILLISECONDS);
+        ticks = getContext().system().scheduler().schedule(period, period, self(), TICK, getContext().dispatcher());
+    }
+
+    @Override
+    public void postStop() {
+        if (ticks != null) {
+            ticks.cancel();
+        }
+        flush();
+    }
+
+    @Override
+    public void onReceive(final Object message) throws Exception {
+        final Class<?> klass = message.getClass();
+        final ActorRef sender = sender();
+        if (TICK == message) {
+            store();
+            expire();
+            bulks.tick(System.currentTimeMillis());
+            flush();
+        } else if (SmsSessionResponse.class.equals(klass)) {
+            answered(sender, (SmsSessionResponse) message);
+        } else if (Observing.class.equals(klass)) {
+            return;
+        } else if (CreateBulkSms.class.equals(klass)) {
+            create((CreateBulkSms) message, sender);
+        } else if (GetBulkSms.class.equals(klass)) {
+            final GetBulkSms request = (GetBulkSms) message;
+            final BulkSms bulk = lookup(request.sid(), request.accountId());
+            final BulkSmsInfo info = bulk == null ? null : bulk.info(true);
+            sender.tell(new BulkSmsResponse<BulkSmsInfo>(info), self());
+        } else if (GetBulkSmsList.class.equals(klass)) {
+            final Sid accountId = ((GetBulkSmsList) message).accountId();
+            final List<BulkSmsInfo> infos = new ArrayList<BulkSmsInfo>();
+            for (final BulkSms bulk : bulks.batches()) {
+                if (bulk.request.accountId().equals(accountId)) {
+                    infos.add(bulk.info(false));
+                }
+            }
+            sender.tell(new BulkSmsResponse<List<BulkSmsInfo>>(infos), self());
+        } else if (CancelBulkSms.class.equals(klass)) {
+            final CancelBulkSms request = (CancelBulkSms) message;
+            final BulkSms bulk = lookup(request.sid(), request.accountId());
+            if (bulk != null) {
+                cancel(bulk);
+            }
+            final BulkSmsInfo info = bulk == null ? null : bulk.info(true);
+            sender.tell(new BulkSmsResponse<BulkSmsInfo>(info), self());
+        } else if (Created.class.equals(klass)) {
+            created((Created) message);
+        } else {
+            unhandled(message);
+        }
+    }
+
+    private BulkSms lookup(final Sid sid, final Sid accountId) {
+        final BulkSms bulk = bulks.get(sid);
+        if (bulk == null || !bulk.request.accountId().equals(accountId)) {
+            return null;
+        }
+        return bulk;
+    }
+
+    private void create(final CreateBulkSms request, final ActorRef sender) {
+        final int size = request.recipients().size();
+        if (size == 0) {
+            final String error = "A bulk SMS needs at least one recipient.";
+            sender.tell(new BulkSmsResponse<BulkSmsInfo>(new IllegalArgumentException(error), error), self());
+            return;
+        } else if (size > maxRecipients) {
+            final String error = "A bulk SMS can not have more than " + maxRecipients + " recipients.";
+            sender.tell(new BulkSmsResponse<BulkSmsInfo>(new IllegalArgumentException(error), error), self());
+            return;
+        }
+        final BulkSms bulk = new BulkSms(Sid.generate(Sid.Type.BULK_SMS), request);
+        bulks.add(bulk.sid, bulk);
+        storing.addLast(bulk);
+        if (logger.isInfoEnabled()) {
+            logger.info("Bulk SMS " + bulk.sid + " queued " + size + " messages for account " + request.accountId());
+        }
+        sender.tell(new BulkSmsResponse<BulkSmsInfo>(bulk.info(false)), self());
+    }
+
+    // Inserts the next batch of records of the oldest bulk SMS.
+    private void store() {
+        final BulkSms bulk = storing.peekFirst();
+        if (bulk == null) {
+            return;
+        }
+        final int end = Math.min(bulk.stored + batchSize, bulk.messages.size());
+        final List<SmsMessage> records = new ArrayList<SmsMessage>(end - bulk.stored);
+        for (int index = bulk.stored; index < end; index++) {
+            records.add(bulk.messages.get(index).record);
+        }
+        try {
+            dao.addSmsMessages(records, batchSize);
+            for (int index = bulk.stored; index < end; index++) {
+                bulk.messages.get(index).stored = true;
+            }
+        } catch (final Exception exception) {
+            logger.error(exception, "Could not store " + records.size() + " messages of the bulk SMS " + bulk.sid);
+            for (int index = bulk.stored; index < end; index++) {
+                final Message message = bulk.messages.get(index);
+                if (message.status == BulkSmsResult.Status.QUEUED) {
+                    message.status = BulkSmsResult.Status.FAILED;
+                    message.error = "The message could not be stored.";
+                }
+            }
+        }
+        bulk.stored = end;
+        if (bulk.stored == bulk.messages.size()) {
+            storing.removeFirst();
+        }
+    }
+
+    // Fails the messages the SMS sessions did not answer in time.
+    private void expire() {
+        final long now = System.currentTimeMillis();
+        final Iterator<Map.Entry<ActorRef, Message>> entries = sessions.entrySet().iterator();
+        while (entries.hasNext()) {
+            final Map.Entry<ActorRef, Message> entry = entries.next();
+            final Message message = entry.getValue();
+            if (now >= message.deadline) {
+                entries.remove();
+                service.tell(new DestroySmsSession(entry.getKey()), self());
+                failed(message, "No answer in " + responseTimeout / 1000 + " seconds.");
+            }
+        }
+    }
+
+    private void send(final Message message) {
+        message.status = BulkSmsResult.Status.SENDING;
+        update(message, message.record.setStatus(SmsMessage.Status.SENDING));
+        message.bulk.touch();
+        // Not an ask: a session created after it timed out would never be destroyed.
+        final ActorRef service = this.service;
+        final long timeout = this.timeout.duration().toMillis();
+        getContext().actorOf(new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public UntypedActor create() throws Exception {
+                return new Creation(service, message, timeout);
+            }
+        }));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void created(final Created created) {
+        final Message message = created.message;
+        if (created.failure != null || !(created.reply instanceof SmsServiceResponse)) {
+            failed(message, created.failure != null ? created.failure.getMessage() : "Unexpected reply " + created.reply);
+            return;
+        }
+        final SmsServiceResponse<ActorRef> response = (SmsServiceResponse<ActorRef>) created.reply;
+        if (!response.succeeded()) {
+            failed(message, response.error() != null ? response.error() : String.valueOf(response.cause()));
+            return;
+        }
+        final ActorRef self = self();
+        final ActorRef session = response.get();
+        final CreateBulkSms request = message.bulk.request;
+        message.deadline = System.currentTimeMillis() + responseTimeout;
+        sessions.put(session, message);
+        session.tell(new Observe(self), self);
+        session.tell(new SmsSessionAttribute("record", message.record), self);
+        session.tell(new SmsSessionRequest(request.from(), message.record.getRecipient(), request.body(),
+                message.bulk.headers), self);
+    }
+
+    private void answered(final ActorRef session, final SmsSessionResponse response) {
+        final Message message = sessions.remove(session);
+        if (message == null) {
+            // The message already timed out.
+            return;
+        }
+        service.tell(new DestroySmsSession(session), self());
+        if (response.succeeded()) {
+            message.status = BulkSmsResult.Status.SENT;
+            update(message, message.record.setDateSent(DateTime.now()).setStatus(SmsMessage.Status.SENT));
+            done(message);
+        } else {
+            failed(message, "The message was rejected.");
+        }
+    }
+
+    private void failed(final Message message, final String error) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Bulk SMS " + message.bulk.sid + " failed to send a message to " + message.record.getRecipient()
+                    + ": " + error);
+        }
+        message.status = BulkSmsResult.Status.FAILED;
+        message.error = error;
+        update(message, message.record.setStatus(SmsMessage.Status.FAILED));
+        done(message);
+    }
+
+    private void done(final Message message) {
+        final BulkSms bulk = message.bulk;
+        bulk.touch();
+        bulks.done(bulk, System.currentTimeMillis());
+    }
+
+    private void cancel(final BulkSms bulk) {
+        if (bulk.isFinished()) {
+            return;
+        }
+        storing.remove(bulk);
+        for (int index = bulk.next; index < bulk.messages.size(); index++) {
+            final Message message = bulk.messages.get(index);
+            if (message.status == BulkSmsResult.Status.QUEUED) {
+                message.status = BulkSmsResult.Status.CANCELED;
+                update(message, message.record.setStatus(SmsMessage.Status.FAILED));
+            }
+        }
+        bulk.next = bulk.messages.size();
+        bulk.stored = bulk.messages.size();
+        bulk.canceled = true;
+        bulk.touch();
+        bulks.cancel(bulk, System.currentTimeMillis());
+    }
+
+    // Queues the new state of a stored record for the next batch of updates.
+    private void update(final Message message, final SmsMessage record) {
+        message.record = record;
+        if (message.stored) {
+            updates.add(record);
+        }
+    }
+
+    private void flush() {
+        if (updates.isEmpty()) {
+            return;
+        }
+        final List<SmsMessage> batch = updates;
+        updates = new ArrayList<SmsMessage>();
+        try {
+            dao.updateSmsMessages(batch, batchSize);
+        } catch (final Exception exception) {
+            logger.error(exception, "Could not update " + batch.size() + " messages of bulk SMS");
+        }
+    }
+
+    private SmsMessage record(final CreateBulkSms request, final String recipient) {
+        final SmsMessage.Builder builder = SmsMessage.builder();
+        final Sid sid = Sid.generate(Sid.Type.SMS_MESSAGE);
+        builder.setSid(sid);
+        builder.setAccountSid(request.accountId());
+        builder.setSender(request.from());
+        builder.setRecipient(recipient);
+        builder.setBody(request.body());
+        builder.setStatus(SmsMessage.Status.QUEUED);
+        builder.setDirection(SmsMessage.Direction.OUTBOUND_API);
+        builder.setPrice(new BigDecimal(0.00));
+        builder.setPriceUnit(Currency.getInstance("USD"));
+        builder.setApiVersion(request.apiVersion());
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append(rootUri).append(request.apiVersion()).append("/Accounts/");
+        buffer.append(request.accountId().toString()).append("/SMS/Messages/");
+        buffer.append(sid.toString());
+        builder.setUri(URI.create(buffer.toString()));
+        return builder.build();
+    }
+
+    private final class BulkSms extends PacedQueue.Batch {
+        private final Sid sid;
+        private final CreateBulkSms request;
+        private final ConcurrentHashMap<String, String> headers;
+        private final DateTime dateCreated;
+        private final List<Message> messages;
+        private DateTime dateUpdated;
+        // The number of messages whose record was inserted, or failed to be.
+        private int stored;
+        // The index of the next message to send.
+        private int next;
+        private boolean canceled;
+
+        private BulkSms(final Sid sid, final CreateBulkSms request) {
+            super();
+            this.sid = sid;
+            this.request = request;
+            this.headers = new ConcurrentHashMap<String, String>(request.headers());
+            this.dateCreated = DateTime.now();
+            this.dateUpdated = dateCreated;
+            this.messages = new ArrayList<Message>(request.recipients().size());
+            for (final String recipient : request.recipients()) {
+                messages.add(new Message(this, record(request, recipient)));
+            }
+        }
+
+        private void touch() {
+            dateUpdated = DateTime.now();
+        }
+
+        @Override
+        protected boolean hasNext() {
+            return next < messages.size();
+        }
+
+        // The messages are sent once their records were inserted.
+        @Override
+        protected boolean ready() {
+            return next < stored;
+        }
+
+        // The messages that failed to be stored are skipped.
+        @Override
+        protected boolean startNext() {
+            final Message message = messages.get(next++);
+            if (message.status != BulkSmsResult.Status.QUEUED) {
+                return false;
+            }
+            send(message);
+            return true;
+        }
+
+        @Override
+        protected void onFinished() {
+            if (logger.isInfoEnabled()) {
+                logger.info("Bulk SMS " + sid + " is over");
+            }
+        }
+
+        private BulkSmsInfo info(final boolean withResults) {
+            int queued = 0, waiting = 0, sent = 0, failed = 0, stopped = 0;
+            final List<BulkSmsResult> results = withResults ? new ArrayList<BulkSmsResult>(messages.size()) : null;
+            for (final Message message : messages) {
+                switch (message.status) {
+                    case QUEUED:
+                        queued++;
+                        break;
+                    case SENDING:
+                        waiting++;
+                        break;
+                    case SENT:
+                        sent++;
+                        break;
+                    case FAILED:
+                        failed++;
+                        break;
+                    case CANCELED:
+                        stopped++;
+                        break;
+                }
+                if (withResults) {
+                    final Sid smsSid = message.stored ? message.record.getSid() : null;
+                    results.add(new BulkSmsResult(message.record.getRecipient(), smsSid, message.status, message.error));
+                }
+            }
+            final BulkSmsInfo.Status status;
+            if (isFinished()) {
+                status = canceled ? BulkSmsInfo.Status.CANCELED : BulkSmsInfo.Status.COMPLETED;
+            } else if (next == 0) {
+                status = BulkSmsInfo.Status.QUEUED;
+            } else {
+                status = BulkSmsInfo.Status.IN_PROGRESS;
+            }
+            return new BulkSmsInfo(sid, request.accountId(), status, dateCreated, dateUpdated, request.from(),
+                    request.body(), messages.size(), queued, waiting, sent, failed, stopped, results);
+        }
+    }
+
+    private static final class Message {
+        private final BulkSms bulk;
+        private SmsMessage record;
+        private BulkSmsResult.Status status;
+        private String error;
+        private boolean stored;
+        // When the SMS session must have answered, in milliseconds.
+        private long deadline;
+
+        private Message(final BulkSms bulk, final SmsMessage record) {
+            super();
+            this.bulk = bulk;
+            this.record = record;
+            this.status = BulkSmsResult.Status.QUEUED;
+        }
+    }
+
+    // Hands the session created by the SMS service for a message, or destroys it if the message failed waiting for it.
+    private static final class Creation extends UntypedActor {
+        private final ActorRef service;
+        private final Message sms;
+        private final long timeout;
+        private boolean late;
+
+        private Creation(final ActorRef service, final Message sms, final long timeout) {
+            super();
+            this.service = service;
+            this.sms = sms;
+            this.timeout = timeout;
+        }
+
+        @Override
+        public void preStart() {
+            getContext().watch(service);
+            getContext().setReceiveTimeout(Duration.create(timeout, TimeUnit.MILLISECONDS));
+            service.tell(new CreateSmsSession(), self());
+        }
+
+        @Override
+        public void onReceive(final Object message) throws Exception {
+            if (message instanceof ReceiveTimeout) {
+                getContext().setReceiveTimeout(Duration.Undefined());
+                late = true;
+                answer(null, new IllegalStateException("No SMS session in " + timeout + "ms."));
+                return;
+            }
+            if (message instanceof Terminated) {
+                if (!late) {
+                    answer(null, new IllegalStateException("The SMS service is gone."));
+                }
+            } else if (!late) {
+                answer(message, null);
+            } else if (message instanceof SmsServiceResponse && ((SmsServiceResponse<?>) message).succeeded()) {
+                service.tell(new DestroySmsSession((ActorRef) ((SmsServiceResponse<?>) message).get()), self());
+            }
+            getContext().stop(self());
+        }
+
+        private void answer(final Object reply, final Throwable failure) {
+            getContext().parent().tell(new Created(sms, reply, failure), self());
+        }
+    }
+
+    private static final class Created {
+        private final Message message;
+        private final Object reply;
+        private final Throwable failure;
+
+        private Created(final Message message, final Object reply, final Throwable failure) {
+            super();
+            this.message = message;
+            this.reply = reply;
+            this.failure = failure;
+        }
+    }
+}
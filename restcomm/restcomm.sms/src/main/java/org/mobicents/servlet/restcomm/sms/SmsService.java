@@ -54,6 +54,7 @@ import org.mobicents.servlet.restcomm.entities.Sid;
 import org.mobicents.servlet.restcomm.entities.SmsMessage;
 import org.mobicents.servlet.restcomm.entities.SmsMessage.Direction;
 import org.mobicents.servlet.restcomm.entities.SmsMessage.Status;
+import org.mobicents.servlet.restcomm.interpreter.InterpreterServices;
 import org.mobicents.servlet.restcomm.interpreter.SmsInterpreterBuilder;
 import org.mobicents.servlet.restcomm.interpreter.StartInterpreter;
 import org.mobicents.servlet.restcomm.telephony.TextMessage;
@@ -92,6 +93,8 @@ public final class SmsService extends UntypedActor {
     static final int WARNING_NOTIFICATION = 1;
 
     private final ActorRef monitoringService;
+    // Node wide services shared by the interpreters
+    private final InterpreterServices services;
 
     // configurable switch whether to use the To field in a SIP header to determine the callee address
     // alternatively the Request URI can be used
@@ -112,6 +115,7 @@ public final class SmsService extends UntypedActor {
         this.storage = storage;
         this.servletContext = servletContext;
         monitoringService = (ActorRef) servletContext.getAttribute(MonitoringService.class.getName());
+        services = (InterpreterServices) servletContext.getAttribute(InterpreterServices.class.getName());
         // final Configuration runtime = configuration.subset("runtime-settings");
         // TODO this.useTo = runtime.getBoolean("use-to");
         patchForNatB2BUASessions = runtime.getBoolean("patch-for-nat-b2bua-sessions", true);
@@ -274,6 +278,7 @@ public final class SmsService extends UntypedActor {
                     final SmsInterpreterBuilder builder = new SmsInterpreterBuilder(system);
                     builder.setSmsService(self);
                     builder.setConfiguration(configuration);
+                    builder.setServices(services);
                     builder.setStorage(storage);
                     builder.setAccount(number.getAccountSid());
                     builder.setVersion(number.getApiVersion());
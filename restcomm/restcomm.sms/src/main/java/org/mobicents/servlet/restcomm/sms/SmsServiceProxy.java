@@ -39,6 +39,7 @@ import akka.actor.ActorSystem;
 import akka.actor.Props;
 import akka.actor.UntypedActor;
 import akka.actor.UntypedActorFactory;
+import org.mobicents.servlet.restcomm.dispatch.RestcommDispatchers;
 import org.mobicents.servlet.restcomm.sms.smpp.SmppMessageHandler;
 import org.mobicents.servlet.restcomm.sms.smpp.SmppService;
 
@@ -72,14 +73,25 @@ public final class SmsServiceProxy extends SipServlet implements SipServletListe
 
 
     private ActorRef service(final Configuration configuration, final SipFactory factory, final DaoManager storage) {
-        return system.actorOf(new Props(new UntypedActorFactory() {
+        return system.actorOf(RestcommDispatchers.props(system, new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
 
             @Override
             public UntypedActor create() throws Exception {
                 return new SmsService(system, configuration, factory, storage, context);
             }
-        }));
+        }), RestcommDispatchers.DATABASE));
+    }
+
+    private ActorRef bulkSmsSender(final Configuration configuration, final ActorRef service, final DaoManager storage) {
+        return system.actorOf(RestcommDispatchers.props(system, new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public UntypedActor create() throws Exception {
+                return new BulkSmsSender(configuration, service, storage.getSmsMessagesDao());
+            }
+        }), RestcommDispatchers.DATABASE));
     }
 
     private ActorRef smppService(final Configuration configuration, final SipFactory factory, final DaoManager storage,
@@ -115,6 +127,7 @@ public final class SmsServiceProxy extends SipServlet implements SipServletListe
             system = (ActorSystem) context.getAttribute(ActorSystem.class.getName());
             service = service(configuration, factory, storage);
             context.setAttribute(SmsService.class.getName(), service);
+            context.setAttribute(BulkSmsSender.class.getName(), bulkSmsSender(configuration, service, storage));
             if (configuration.subset("smpp").getString("[@activateSmppConnection]", "false").equalsIgnoreCase("true")) {
                 if(logger.isInfoEnabled()) {
                     logger.info("Will initialize SMPP");
@@ -33,10 +33,11 @@ import org.mobicents.servlet.restcomm.entities.Registration;
 import org.mobicents.servlet.restcomm.patterns.Observe;
 import org.mobicents.servlet.restcomm.patterns.Observing;
 import org.mobicents.servlet.restcomm.patterns.StopObserving;
-import org.mobicents.servlet.restcomm.sms.smpp.SmppClientOpsThread;
 import org.mobicents.servlet.restcomm.sms.smpp.SmppInboundMessageEntity;
 import org.mobicents.servlet.restcomm.sms.smpp.SmppMessageHandler;
 import org.mobicents.servlet.restcomm.sms.smpp.SmppOutboundMessageEntity;
+import org.mobicents.servlet.restcomm.sms.smpp.SmppService;
+import org.mobicents.servlet.restcomm.sms.smpp.SmppSessionPool;
 import org.mobicents.servlet.restcomm.telephony.TextMessage;
 
 import javax.servlet.ServletContext;
@@ -245,8 +246,14 @@ public final class SmsSession extends UntypedActor {
             if(logger.isInfoEnabled()) {
                 logger.info("Destination is not a local registered client, therefore, sending through SMPP to:  " + to );
             }
-            if (sendUsingSmpp(from, to, body))
+            if (sendUsingSmpp(from, to, body)) {
+                // The SMPP link reports nothing back, the message is sent once it is handed over to it.
+                final SmsSessionResponse result = new SmsSessionResponse(info(), true);
+                for (final ActorRef observer : observers) {
+                    observer.tell(result, self);
+                }
                 return;
+            }
         }
 
         //Turns out that SMS was not send using SMPP so we procedd as usual with SIP MESSAGE
@@ -305,7 +312,8 @@ public final class SmsSession extends UntypedActor {
         }}
 
     private boolean sendUsingSmpp(String from, String to, String body) {
-        if ((SmppClientOpsThread.getSmppSession() != null && SmppClientOpsThread.getSmppSession().isBound()) && smppMessageHandler != null) {
+        final SmppSessionPool smppSessionPool = SmppService.getSmppSessionPool();
+        if ((smppSessionPool != null && smppSessionPool.isBound()) && smppMessageHandler != null) {
             if(logger.isInfoEnabled()) {
                 logger.info("SMPP session is available and connected, outbound message will be forwarded to :  " + to );
             }
@@ -1,8 +1,15 @@
 package org.mobicents.servlet.restcomm.sms.smpp;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import com.cloudhopper.smpp.SmppBindType;
 import com.cloudhopper.smpp.impl.DefaultSmppSession;
+import com.cloudhopper.smpp.pdu.SubmitSm;
 import com.cloudhopper.smpp.type.Address;
+import com.cloudhopper.smpp.type.RecoverablePduException;
+import com.cloudhopper.smpp.type.SmppChannelException;
+import com.cloudhopper.smpp.type.SmppTimeoutException;
+import com.cloudhopper.smpp.type.UnrecoverablePduException;
 
 /**
  *
@@ -37,6 +44,18 @@ public class Smpp {
 
     private long enquireLinkDelay;
 
+    // Share of the submits of the bind in the SmppSessionPool.
+    private int weight = 1;
+    // Submits per second granted by the SMSC, 0 if unlimited.
+    private int tps;
+
+    // Submits of the current second, the second in the high 32 bits and the count in the low ones.
+    private final AtomicLong rate = new AtomicLong();
+    // Counters.
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong acknowledged = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
     // not used as of today, but later we can allow users to stop each SMPP
     private boolean started = true;
 
@@ -202,6 +221,95 @@ public class Smpp {
         this.enquireLinkDelay = enquireLinkDelay;
     }
 
+    public int getWeight() {
+        return weight;
+    }
+
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+
+    public int getTps() {
+        return tps;
+    }
+
+    public void setTps(int tps) {
+        this.tps = tps;
+    }
+
+    /**
+     * @return the submits sent in the current second.
+     */
+    int getRate(long now) {
+        final long current = rate.get();
+        return (current >>> 32) == now / 1000 ? (int) current : 0;
+    }
+
+    boolean isThrottled(long now) {
+        return tps > 0 && getRate(now) >= tps;
+    }
+
+    /**
+     * Counts a submit in the current second.
+     *
+     * @return false if the bind already sent its tps in the current second.
+     */
+    boolean acquire(long now) {
+        final long second = now / 1000;
+        while (true) {
+            final long current = rate.get();
+            final int count = (current >>> 32) == second ? (int) current : 0;
+            if (tps > 0 && count >= tps) {
+                return false;
+            }
+            if (rate.compareAndSet(current, (second << 32) | (count + 1))) {
+                submitted.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    boolean isBound() {
+        final DefaultSmppSession session = defaultSmppSession;
+        return started && session != null && session.isBound();
+    }
+
+    /**
+     * @return the submits of the window of the session waiting for their response.
+     */
+    int getPendingSubmits() {
+        final DefaultSmppSession session = defaultSmppSession;
+        return session == null ? 0 : session.getSendWindow().getSize();
+    }
+
+    /**
+     * Sends the message without waiting for its response, blocks up to the window wait timeout when the window is full.
+     */
+    void send(SubmitSm submit) throws RecoverablePduException, UnrecoverablePduException, SmppTimeoutException,
+            SmppChannelException, InterruptedException {
+        defaultSmppSession.sendRequestPdu(submit, windowWaitTimeout, false);
+    }
+
+    void acknowledged() {
+        acknowledged.incrementAndGet();
+    }
+
+    void failed() {
+        failed.incrementAndGet();
+    }
+
+    long getSubmitted() {
+        return submitted.get();
+    }
+
+    long getAcknowledged() {
+        return acknowledged.get();
+    }
+
+    long getFailed() {
+        return failed.get();
+    }
+
     public boolean isStarted() {
         return started;
     }
@@ -228,7 +336,8 @@ public class Smpp {
                 + ", interfaceVersion=" + interfaceVersion + ", address=" + address + ", connectTimeout=" + connectTimeout
                 + ", windowSize=" + windowSize + ", windowWaitTimeout=" + windowWaitTimeout + ", requestExpiryTimeout="
                 + requestExpiryTimeout + ", windowMonitorInterval=" + windowMonitorInterval + ", countersEnabled="
-                + countersEnabled + ", logBytes=" + logBytes + ", enquireLinkDelay=" + enquireLinkDelay + "]";
+                + countersEnabled + ", logBytes=" + logBytes + ", enquireLinkDelay=" + enquireLinkDelay + ", weight=" + weight
+                + ", tps=" + tps + "]";
     }
 
     @Override
@@ -57,7 +57,6 @@ public class SmppClientOpsThread implements Runnable {
     private List<ChangeRequest> pendingChanges = new CopyOnWriteArrayList<ChangeRequest>();
     private Object waitObject = new Object();
     private final DefaultSmppClient clientBootstrap;
-    private static SmppSession getSmppSession;
     protected volatile boolean started = true;
     private static int sipPort;
 
@@ -234,6 +233,7 @@ public class SmppClientOpsThread implements Runnable {
 
             SmppSessionConfiguration config0 = new SmppSessionConfiguration();
             config0.setWindowSize(esme.getWindowSize());
+            config0.setWindowWaitTimeout(esme.getWindowWaitTimeout());
             config0.setName(esme.getSystemId());
             config0.setType(esme.getSmppBindType());
             config0.setSystemType(esme.getSystemType());
@@ -259,10 +259,6 @@ public class SmppClientOpsThread implements Runnable {
 
             session0 = clientBootstrap.bind(config0, sessionHandler);
 
-
-            //getting session to be used to process SMS received from Restcomm
-            getSmppSession = session0;
-
             // Set in ESME
             esme.setSmppSession((DefaultSmppSession) session0);
 
@@ -321,17 +317,20 @@ public class SmppClientOpsThread implements Runnable {
         @Override
         public void fireExpectedPduResponseReceived(
                 PduAsyncResponse pduAsyncResponse) {
-            // TODO : SMPP Response received. Does RestComm need confirmation
-            // for this?
-            logger.warn("ExpectedPduResponseReceived received for Smpp "
-                    + this.esme.getName() + " PduAsyncResponse="
-                    + pduAsyncResponse);
+            // Response to a message submitted asynchronously by the SmppSessionPool
+            SmppSessionPool.responded(this.esme, pduAsyncResponse);
+            if (logger.isDebugEnabled()) {
+                logger.debug("ExpectedPduResponseReceived received for Smpp "
+                        + this.esme.getName() + " PduAsyncResponse="
+                        + pduAsyncResponse);
+            }
         }
 
         @Override
         public void firePduRequestExpired(PduRequest pduRequest) {
             // TODO : SMPP request Expired. RestComm needs to notify Application
             // about SMS failure
+            this.esme.failed();
             logger.warn("PduRequestExpired for Smpp " + this.esme.getName()
                     + " PduRequest=" + pduRequest);
         }
@@ -405,13 +404,7 @@ public class SmppClientOpsThread implements Runnable {
         }
     }
 
-    //smpp session to be used for sending SMS from Restcomm to smpp endpoint
-    public static SmppSession getSmppSession() {
-        return getSmppSession;
-    }
-
     public void sendSmppMessageToRestcomm(String smppMessage, String smppTo, String smppFrom) throws IOException, ServletException {
-        SmppSession smppSession = SmppClientOpsThread.getSmppSession();
         String to = smppTo;
         String from = smppFrom;
         String inboundMessage = smppMessage;
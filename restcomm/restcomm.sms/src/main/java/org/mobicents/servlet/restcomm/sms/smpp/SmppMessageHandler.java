@@ -209,7 +209,7 @@ public class SmppMessageHandler extends UntypedActor  {
             if(logger.isInfoEnabled()) {
                 logger.info("To : " + request.getSmppTo() + " From : " + request.getSmppFrom() );
             }
-            SmppClientOpsThread.getSmppSession().submit(submit0, 10000); //send message through SMPP connector
+            SmppService.getSmppSessionPool().submit(submit0); //send message through one of the SMPP binds
         } catch (RecoverablePduException | UnrecoverablePduException
                 | SmppTimeoutException | SmppChannelException
                 | InterruptedException e) {
@@ -38,6 +38,7 @@ import javax.servlet.sip.SipURI;
 import akka.actor.ActorRef;
 import org.apache.commons.configuration.Configuration;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.util.Counters;
 
 import akka.actor.ActorSystem;
 import akka.actor.UntypedActor;
@@ -72,6 +73,7 @@ public final class SmppService extends UntypedActor {
     private static String smppSourceAddressMap;
     private static String smppDestinationAddressMap;
     private static String smppTonNpiValue;
+    private static volatile SmppSessionPool smppSessionPool;
 
     private ThreadPoolExecutor executor;
     private ScheduledThreadPoolExecutor monitorExecutor;
@@ -112,6 +114,11 @@ public final class SmppService extends UntypedActor {
         return smppTonNpiValue;
     }
 
+    //binds to be used for sending SMS from Restcomm to smpp endpoint
+    public static SmppSessionPool getSmppSessionPool() {
+        return smppSessionPool;
+    }
+
     @Override
     public void onReceive(Object message) throws Exception {}
 
@@ -166,18 +173,31 @@ public final class SmppService extends UntypedActor {
 
             long enquireLinkDelay = smppConfiguration.getLong("connections.connection(" + count + ").enquirelinkdelay");
 
-            Smpp smpp = new Smpp(name, systemId, peerIp, peerPort, bindtype, password, systemType, interfaceVersion, address,
-                    connectTimeout, windowSize, windowWaitTimeout, requestExpiryTimeout, windowMonitorInterval,
-                    countersEnabled, logBytes, enquireLinkDelay);
+            int binds = smppConfiguration.getInt("connections.connection(" + count + ").binds", 1);
+            int weight = smppConfiguration.getInt("connections.connection(" + count + ").weight", 1);
+            int tps = smppConfiguration.getInt("connections.connection(" + count + ").tps", 0);
 
-            this.smppList.add(smpp);
+            for (int bind = 1; bind <= binds; bind++) {
+                // Every bind needs its own name, name-1 to name-n when the SMSC grants several binds
+                String bindName = binds > 1 ? name + "-" + bind : name;
+                Smpp smpp = new Smpp(bindName, systemId, peerIp, peerPort, bindtype, password, systemType, interfaceVersion,
+                        address, connectTimeout, windowSize, windowWaitTimeout, requestExpiryTimeout, windowMonitorInterval,
+                        countersEnabled, logBytes, enquireLinkDelay);
+                smpp.setWeight(weight);
+                smpp.setTps(tps);
 
-            if(logger.isInfoEnabled()) {
-                logger.info("creating new SMPP connection " + smpp);
+                this.smppList.add(smpp);
+
+                if(logger.isInfoEnabled()) {
+                    logger.info("creating new SMPP connection " + smpp);
+                }
             }
 
         }
 
+        smppSessionPool = new SmppSessionPool(this.smppList);
+        Counters.register(SmppSessionPool.class.getName(), smppSessionPool);
+
         // for monitoring thread use, it's preferable to create your own
         // instance of an executor and cast it to a ThreadPoolExecutor from
         // Executors.newCachedThreadPool() this permits exposing thinks like
@@ -212,9 +232,8 @@ public final class SmppService extends UntypedActor {
         // threads it will ever use, despite the "max pool size", etc. set on
         // the executor passed in here
 
-        // Setting expected session to be 25. May be this should be
-        // configurable?
-        this.clientBootstrap = new DefaultSmppClient(this.executor, 25, monitorExecutor);
+        // Setting expected session to be at least 25, one per bind.
+        this.clientBootstrap = new DefaultSmppClient(this.executor, Math.max(25, this.smppList.size()), monitorExecutor);
 
         this.smppClientOpsThread = new SmppClientOpsThread(this.clientBootstrap, outboundInterface("udp").getPort(), smppMessageHandler);
 
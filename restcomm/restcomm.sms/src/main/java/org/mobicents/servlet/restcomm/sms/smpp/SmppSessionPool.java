@@ -0,0 +1,226 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+
+package org.mobicents.servlet.restcomm.sms.smpp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.util.Counters;
+
+import com.cloudhopper.smpp.PduAsyncResponse;
+import com.cloudhopper.smpp.SmppConstants;
+import com.cloudhopper.smpp.pdu.SubmitSm;
+import com.cloudhopper.smpp.type.RecoverablePduException;
+import com.cloudhopper.smpp.type.SmppChannelException;
+import com.cloudhopper.smpp.type.SmppTimeoutException;
+import com.cloudhopper.smpp.type.UnrecoverablePduException;
+
+/**
+ * Spreads the outbound messages over all the binds of the SMPP connections.
+ * <p>
+ * A message goes to the bound bind with the fewest messages in its window plus sent in the current second relative to
+ * its weight, among the binds that didn't send their <code>tps</code> yet in the current second. When all of them did
+ * the message waits for the next second. The messages are submitted asynchronously, the window of the bind bounds the
+ * messages waiting for their submit_sm_resp and the responses are counted by the session handler of the bind.
+ */
+@ThreadSafe
+public final class SmppSessionPool implements Counters.Source {
+    private static final Logger logger = Logger.getLogger(SmppSessionPool.class);
+
+    private final List<Smpp> binds;
+    private final Clock clock;
+    private final AtomicInteger next;
+    // Values of the previous read, guarded by this.
+    private final Map<Smpp, Long> lastSubmitted;
+    private long lastRead;
+
+    public SmppSessionPool(final List<Smpp> binds) {
+        this(binds, Clock.SYSTEM);
+    }
+
+    SmppSessionPool(final List<Smpp> binds, final Clock clock) {
+        super();
+        this.binds = new ArrayList<Smpp>(binds);
+        this.clock = clock;
+        this.next = new AtomicInteger();
+        this.lastSubmitted = new HashMap<Smpp, Long>();
+        this.lastRead = clock.currentTimeMillis();
+    }
+
+    /**
+     * @return true if at least one of the binds can send messages.
+     */
+    public boolean isBound() {
+        for (final Smpp bind : binds) {
+            if (bind.isBound()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the bind to send the next message with or null if none of them is bound. The bind is throttled when all
+     *         of them are.
+     */
+    public Smpp select() {
+        return select(clock.currentTimeMillis());
+    }
+
+    Smpp select(final long now) {
+        final int size = binds.size();
+        if (size == 0) {
+            return null;
+        }
+        final int start = (next.getAndIncrement() & Integer.MAX_VALUE) % size;
+        Smpp result = null;
+        boolean throttled = true;
+        double load = Double.MAX_VALUE;
+        for (int count = 0; count < size; count++) {
+            final Smpp bind = binds.get((start + count) % size);
+            if (!bind.isBound()) {
+                continue;
+            }
+            final boolean full = bind.isThrottled(now);
+            final int pending = bind.getPendingSubmits() + bind.getRate(now);
+            final double current = (double) pending / Math.max(bind.getWeight(), 1);
+            if (result == null || (throttled && !full) || (throttled == full && current < load)) {
+                result = bind;
+                throttled = full;
+                load = current;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sends the message without waiting for its response. Blocks up to the <code>windowwaittimeout</code> of the bind
+     * when its window is full, and up to the <code>windowwaittimeout</code> of the binds for the next second when all
+     * of them sent their <code>tps</code> in the current one.
+     */
+    public void submit(final SubmitSm submit) throws RecoverablePduException, UnrecoverablePduException,
+            SmppTimeoutException, SmppChannelException, InterruptedException {
+        final long start = clock.currentTimeMillis();
+        Smpp bind;
+        while (true) {
+            final long now = clock.currentTimeMillis();
+            bind = select(now);
+            if (bind == null) {
+                throw new SmppChannelException("None of the SMPP binds is bound");
+            }
+            if (!bind.isThrottled(now)) {
+                if (bind.acquire(now)) {
+                    break;
+                }
+                // Another message took the last submit of the second, select again.
+                continue;
+            }
+            final long waited = now - start;
+            if (waited >= bind.getWindowWaitTimeout()) {
+                throw new SmppTimeoutException("All the SMPP binds sent their submits per second, waited " + waited
+                        + "ms");
+            }
+            clock.sleep(Math.min(1000 - now % 1000, bind.getWindowWaitTimeout() - waited));
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Submitting message to " + submit.getDestAddress().getAddress() + " through SMPP bind "
+                    + bind.getName());
+        }
+        try {
+            bind.send(submit);
+        } catch (final RecoverablePduException | UnrecoverablePduException | SmppTimeoutException | SmppChannelException
+                | InterruptedException exception) {
+            bind.failed();
+            throw exception;
+        }
+    }
+
+    /**
+     * Counts the response of a message sent by {@link #submit(SubmitSm)}.
+     */
+    static void responded(final Smpp bind, final PduAsyncResponse response) {
+        if (response.getResponse().getCommandStatus() == SmppConstants.STATUS_OK) {
+            bind.acknowledged();
+        } else {
+            bind.failed();
+        }
+    }
+
+    /**
+     * Publishes <code>Submitted</code>, <code>Acknowledged</code>, <code>Failed</code>, <code>SubmitsPerSecond</code>,
+     * <code>WindowSize</code> and <code>WindowMax</code> for every bind, i.e <code>SmppBindTestWindowSize</code>.
+     */
+    @Override
+    public synchronized void counters(final Map<String, Integer> counters) {
+        final long now = clock.currentTimeMillis();
+        final long elapsed = Math.max(now - lastRead, 1);
+        for (final Smpp bind : binds) {
+            final String prefix = "SmppBind" + name(bind.getName());
+            final long submitted = bind.getSubmitted();
+            final Long last = lastSubmitted.put(bind, submitted);
+            counters.put(prefix + "Submitted", (int) submitted);
+            counters.put(prefix + "Acknowledged", (int) bind.getAcknowledged());
+            counters.put(prefix + "Failed", (int) bind.getFailed());
+            counters.put(prefix + "SubmitsPerSecond", (int) ((submitted - (last == null ? 0 : last)) * 1000 / elapsed));
+            counters.put(prefix + "Bound", bind.isBound() ? 1 : 0);
+            counters.put(prefix + "WindowSize", bind.getPendingSubmits());
+            counters.put(prefix + "WindowMax", bind.getWindowSize());
+        }
+        lastRead = now;
+    }
+
+    /**
+     * The time source of the pool, in milliseconds.
+     */
+    interface Clock {
+        Clock SYSTEM = new Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return System.currentTimeMillis();
+            }
+
+            @Override
+            public void sleep(final long milliseconds) throws InterruptedException {
+                Thread.sleep(milliseconds);
+            }
+        };
+
+        long currentTimeMillis();
+
+        void sleep(long milliseconds) throws InterruptedException;
+    }
+
+    // test-bind-1 becomes TestBind1
+    private static String name(final String name) {
+        final StringBuilder buffer = new StringBuilder();
+        for (final String word : name.split("[^A-Za-z0-9]")) {
+            if (!word.isEmpty()) {
+                buffer.append(Character.toUpperCase(word.charAt(0))).append(word.substring(1));
+            }
+        }
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.sms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.dao.SmsMessagesDao;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.patterns.Observe;
+
+import scala.concurrent.duration.Duration;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedActor;
+import akka.actor.UntypedActorFactory;
+import akka.testkit.JavaTestKit;
+import akka.util.Timeout;
+
+/**
+ * Drives the sender with its ticks sent by hand and probes in place of the SMS service and its sessions.
+ */
+public final class BulkSmsSenderTest {
+    private static final Sid ACCOUNT = Sid.generate(Sid.Type.ACCOUNT);
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void before() throws Exception {
+        system = ActorSystem.create();
+    }
+
+    @AfterClass
+    public static void after() throws Exception {
+        system.shutdown();
+    }
+
+    // Records the names of the methods called, the records go nowhere.
+    private static SmsMessagesDao dao(final List<String> calls) {
+        return (SmsMessagesDao) Proxy.newProxyInstance(SmsMessagesDao.class.getClassLoader(),
+                new Class<?>[] { SmsMessagesDao.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] arguments) {
+                        calls.add(method.getName());
+                        return null;
+                    }
+                });
+    }
+
+    private static ActorRef sender(final double messagesPerSecond, final int maxConcurrentMessages,
+            final long responseTimeout, final long retention, final long timeout, final ActorRef service,
+            final SmsMessagesDao dao) {
+        final Configuration configuration = new BaseConfiguration();
+        configuration.setProperty("runtime-settings.root-uri", "http://127.0.0.1:8080/restcomm/");
+        configuration.setProperty("bulk-sms.messages-per-second", messagesPerSecond);
+        configuration.setProperty("bulk-sms.max-concurrent-messages", maxConcurrentMessages);
+        configuration.setProperty("bulk-sms.response-timeout", responseTimeout);
+        configuration.setProperty("bulk-sms.retention", retention);
+        return system.actorOf(new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public UntypedActor create() throws Exception {
+                return new BulkSmsSender(configuration, service, dao, new Timeout(Duration.create(timeout,
+                        TimeUnit.MILLISECONDS)), false);
+            }
+        }));
+    }
+
+    private static ActorRef sender(final double messagesPerSecond, final int maxConcurrentMessages,
+            final long retention, final long timeout, final ActorRef service) {
+        return sender(messagesPerSecond, maxConcurrentMessages, 60, retention, timeout, service,
+                dao(new CopyOnWriteArrayList<String>()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BulkSmsInfo create(final JavaTestKit client, final ActorRef sender, final String... recipients) {
+        final CreateBulkSms request = new CreateBulkSms(ACCOUNT, "2012-04-24", "+15550000000",
+                Arrays.asList(recipients), "Hello", Collections.<String, String> emptyMap());
+        sender.tell(request, client.getRef());
+        return ((BulkSmsResponse<BulkSmsInfo>) client.expectMsgClass(BulkSmsResponse.class)).get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BulkSmsInfo info(final JavaTestKit client, final ActorRef sender, final Sid sid) {
+        sender.tell(new GetBulkSms(sid, ACCOUNT), client.getRef());
+        return ((BulkSmsResponse<BulkSmsInfo>) client.expectMsgClass(BulkSmsResponse.class)).get();
+    }
+
+    private static void tick(final ActorRef sender, final int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            sender.tell(BulkSmsSender.TICK, null);
+        }
+    }
+
+    // Answers a CreateSmsSession of the SMS service that no session could be made.
+    private static void refuse(final JavaTestKit service, final ActorRef creation) {
+        creation.tell(new SmsServiceResponse<ActorRef>(new IllegalStateException("Busy")), service.getRef());
+    }
+
+    @Test
+    public void testCanceledBulkSmsStopsSending() {
+        new JavaTestKit(system) {
+            {
+                final JavaTestKit client = this;
+                final JavaTestKit service = new JavaTestKit(system);
+                final ActorRef sender = sender(10, 100, 3600, 1000, service.getRef());
+                final Sid sid = create(this, sender, "+15550000001", "+15550000002", "+15550000003").sid();
+                tick(sender, 1);
+                service.expectMsgClass(CreateSmsSession.class);
+                final ActorRef creation = service.getLastSender();
+                sender.tell(new CancelBulkSms(sid, ACCOUNT), getRef());
+                @SuppressWarnings("unchecked")
+                final BulkSmsResponse<BulkSmsInfo> response = expectMsgClass(BulkSmsResponse.class);
+                final BulkSmsInfo canceled = response.get();
+                // The message being sent is left alone.
+                assertSame(BulkSmsInfo.Status.IN_PROGRESS, canceled.status());
+                assertEquals(1, canceled.sending());
+                assertEquals(2, canceled.canceled());
+                tick(sender, 5);
+                service.expectNoMsg(duration("200 milliseconds"));
+                refuse(service, creation);
+                new AwaitCond(duration("5 seconds")) {
+                    @Override
+                    protected boolean cond() {
+                        return BulkSmsInfo.Status.CANCELED == info(client, sender, sid).status();
+                    }
+                };
+            }
+        };
+    }
+
+    @Test
+    public void testAnsweredMessageIsSent() {
+        new JavaTestKit(system) {
+            {
+                final JavaTestKit client = this;
+                final JavaTestKit service = new JavaTestKit(system);
+                final JavaTestKit session = new JavaTestKit(system);
+                final List<String> calls = new CopyOnWriteArrayList<String>();
+                final ActorRef sender = sender(10, 100, 60, 3600, 1000, service.getRef(), dao(calls));
+                final Sid sid = create(this, sender, "+15550000001").sid();
+                tick(sender, 1);
+                service.expectMsgClass(CreateSmsSession.class);
+                service.getLastSender().tell(new SmsServiceResponse<ActorRef>(session.getRef()), service.getRef());
+                session.expectMsgClass(Observe.class);
+                session.expectMsgClass(SmsSessionAttribute.class);
+                final SmsSessionRequest request = session.expectMsgClass(SmsSessionRequest.class);
+                assertEquals("+15550000001", request.to());
+                assertEquals("Hello", request.body());
+                final SmsSessionInfo answer = new SmsSessionInfo(request.from(), request.to(),
+                        new HashMap<String, Object>());
+                session.getLastSender().tell(new SmsSessionResponse(answer, true), session.getRef());
+                assertSame(session.getRef(), service.expectMsgClass(DestroySmsSession.class).session());
+                new AwaitCond(duration("5 seconds")) {
+                    @Override
+                    protected boolean cond() {
+                        return BulkSmsInfo.Status.COMPLETED == info(client, sender, sid).status();
+                    }
+                };
+                final BulkSmsInfo info = info(this, sender, sid);
+                assertEquals(1, info.sent());
+                assertSame(BulkSmsResult.Status.SENT, info.results().get(0).status());
+                // The record is inserted before the message is sent and its new statuses are written in batches.
+                assertEquals("addSmsMessages", calls.get(0));
+                assertTrue(calls.contains("updateSmsMessages"));
+            }
+        };
+    }
+
+    @Test
+    public void testUnansweredMessageFailsAfterTheResponseTimeout() {
+        new JavaTestKit(system) {
+            {
+                final JavaTestKit service = new JavaTestKit(system);
+                final JavaTestKit session = new JavaTestKit(system);
+                final ActorRef sender = sender(10, 1, 1, 3600, 1000, service.getRef(),
+                        dao(new CopyOnWriteArrayList<String>()));
+                final Sid sid = create(this, sender, "+15550000001", "+15550000002").sid();
+                tick(sender, 1);
+                service.expectMsgClass(CreateSmsSession.class);
+                service.getLastSender().tell(new SmsServiceResponse<ActorRef>(session.getRef()), service.getRef());
+                session.expectMsgClass(Observe.class);
+                session.expectMsgClass(SmsSessionAttribute.class);
+                session.expectMsgClass(SmsSessionRequest.class);
+                // Past the response timeout of a second the next tick fails the message and frees its slot.
+                session.expectNoMsg(duration("1200 milliseconds"));
+                tick(sender, 1);
+                boolean destroyed = false;
+                boolean next = false;
+                for (final Object message : service.receiveN(2)) {
+                    if (message instanceof DestroySmsSession) {
+                        destroyed = session.getRef() == ((DestroySmsSession) message).session();
+                    } else {
+                        next = message instanceof CreateSmsSession;
+                    }
+                }
+                assertTrue(destroyed);
+                assertTrue(next);
+                final BulkSmsResult result = info(this, sender, sid).results().get(0);
+                assertSame(BulkSmsResult.Status.FAILED, result.status());
+            }
+        };
+    }
+
+    @Test
+    public void testSessionCreatedTooLateIsDestroyed() {
+        new JavaTestKit(system) {
+            {
+                final JavaTestKit client = this;
+                final JavaTestKit service = new JavaTestKit(system);
+                final JavaTestKit session = new JavaTestKit(system);
+                final ActorRef sender = sender(10, 1, 3600, 100, service.getRef());
+                final Sid sid = create(this, sender, "+15550000001", "+15550000002").sid();
+                tick(sender, 1);
+                service.expectMsgClass(CreateSmsSession.class);
+                final ActorRef creation = service.getLastSender();
+                // Nothing was sent yet, the message fails and the next one gets its slot.
+                new AwaitCond(duration("5 seconds")) {
+                    @Override
+                    protected boolean cond() {
+                        return info(client, sender, sid).failed() == 1;
+                    }
+                };
+                tick(sender, 1);
+                service.expectMsgClass(CreateSmsSession.class);
+                // The session of the failed message is of no use.
+                creation.tell(new SmsServiceResponse<ActorRef>(session.getRef()), service.getRef());
+                assertSame(session.getRef(), service.expectMsgClass(DestroySmsSession.class).session());
+                session.expectNoMsg(duration("200 milliseconds"));
+            }
+        };
+    }
+
+    @Test
+    public void testFinishedBulkSmsExpires() {
+        new JavaTestKit(system) {
+            {
+                final JavaTestKit client = this;
+                final JavaTestKit service = new JavaTestKit(system);
+                final ActorRef sender = sender(10, 100, 0, 1000, service.getRef());
+                final Sid sid = create(this, sender, "+15550000001").sid();
+                tick(sender, 1);
+                service.expectMsgClass(CreateSmsSession.class);
+                refuse(service, service.getLastSender());
+                // The bulk SMS is forgotten on the first tick past its retention.
+                new AwaitCond(duration("5 seconds")) {
+                    @Override
+                    protected boolean cond() {
+                        tick(sender, 1);
+                        return info(client, sender, sid) == null;
+                    }
+                };
+                assertNull(info(this, sender, sid));
+            }
+        };
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.sms.smpp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.cloudhopper.smpp.SmppBindType;
+import com.cloudhopper.smpp.pdu.SubmitSm;
+import com.cloudhopper.smpp.type.Address;
+import com.cloudhopper.smpp.type.SmppChannelException;
+import com.cloudhopper.smpp.type.SmppTimeoutException;
+
+public final class SmppSessionPoolTest {
+    private static SubmitSm submit() {
+        final SubmitSm submit = new SubmitSm();
+        submit.setDestAddress(new Address((byte) 1, (byte) 1, "+15126002188"));
+        return submit;
+    }
+
+    @Test
+    public void testMessagesAreSpreadByWeight() throws Exception {
+        final StubSmpp light = new StubSmpp("light", 1, 0, 1000);
+        final StubSmpp heavy = new StubSmpp("heavy", 3, 0, 1000);
+        final SmppSessionPool pool = new SmppSessionPool(Arrays.<Smpp> asList(light, heavy), new ManualClock(1000));
+        for (int count = 0; count < 40; count++) {
+            pool.submit(submit());
+        }
+        assertEquals(10, light.sent.get());
+        assertEquals(30, heavy.sent.get());
+    }
+
+    @Test
+    public void testThrottledBindsAreSkipped() throws Exception {
+        final StubSmpp slow = new StubSmpp("slow", 1, 2, 1000);
+        final StubSmpp fast = new StubSmpp("fast", 1, 10, 1000);
+        final ManualClock clock = new ManualClock(1000);
+        final SmppSessionPool pool = new SmppSessionPool(Arrays.<Smpp> asList(slow, fast), clock);
+        for (int count = 0; count < 8; count++) {
+            pool.submit(submit());
+        }
+        assertEquals(2, slow.sent.get());
+        assertEquals(6, fast.sent.get());
+        assertEquals(0, clock.slept);
+    }
+
+    @Test
+    public void testMessagesWaitForTheNextSecondWhenAllBindsAreThrottled() throws Exception {
+        final StubSmpp first = new StubSmpp("first", 1, 1, 1000);
+        final StubSmpp second = new StubSmpp("second", 1, 1, 1000);
+        final ManualClock clock = new ManualClock(1250);
+        final SmppSessionPool pool = new SmppSessionPool(Arrays.<Smpp> asList(first, second), clock);
+        pool.submit(submit());
+        pool.submit(submit());
+        assertEquals(0, clock.slept);
+        pool.submit(submit());
+        assertEquals(750, clock.slept);
+        assertEquals(3, first.sent.get() + second.sent.get());
+    }
+
+    @Test
+    public void testWaitForTheNextSecondIsBounded() throws Exception {
+        final StubSmpp bind = new StubSmpp("bind", 1, 1, 500);
+        final ManualClock clock = new ManualClock(1100);
+        final SmppSessionPool pool = new SmppSessionPool(Arrays.<Smpp> asList(bind), clock);
+        pool.submit(submit());
+        try {
+            pool.submit(submit());
+            fail("The message should not wait more than the window wait timeout");
+        } catch (final SmppTimeoutException exception) {
+            assertEquals(500, clock.slept);
+            assertEquals(1, bind.sent.get());
+        }
+    }
+
+    @Test
+    public void testUnboundBindsAreSkipped() throws Exception {
+        final StubSmpp down = new StubSmpp("down", 1, 0, 1000);
+        down.bound = false;
+        final StubSmpp up = new StubSmpp("up", 1, 0, 1000);
+        final SmppSessionPool pool = new SmppSessionPool(Arrays.<Smpp> asList(down, up), new ManualClock(1000));
+        for (int count = 0; count < 4; count++) {
+            pool.submit(submit());
+        }
+        assertEquals(0, down.sent.get());
+        assertEquals(4, up.sent.get());
+    }
+
+    @Test(expected = SmppChannelException.class)
+    public void testMessageFailsWhenNoBindIsBound() throws Exception {
+        final StubSmpp down = new StubSmpp("down", 1, 0, 1000);
+        down.bound = false;
+        final SmppSessionPool pool = new SmppSessionPool(Arrays.<Smpp> asList(down), new ManualClock(1000));
+        assertNull(pool.select());
+        pool.submit(submit());
+    }
+
+    @Test
+    public void testConcurrentSubmitsDoNotExceedTheTps() throws Exception {
+        final StubSmpp bind = new StubSmpp("bind", 1, 100, 1000);
+        final int threads = 8;
+        final AtomicInteger acquired = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int thread = 0; thread < threads; thread++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int count = 0; count < 50; count++) {
+                            if (bind.acquire(1000)) {
+                                acquired.incrementAndGet();
+                            }
+                        }
+                    } catch (final InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+        assertEquals(100, acquired.get());
+        assertEquals(100, bind.getRate(1999));
+        assertEquals(0, bind.getRate(2000));
+    }
+
+    // Advances on sleep.
+    private static final class ManualClock implements SmppSessionPool.Clock {
+        private long now;
+        private long slept;
+
+        private ManualClock(final long now) {
+            this.now = now;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+
+        @Override
+        public void sleep(final long milliseconds) {
+            now += milliseconds;
+            slept += milliseconds;
+        }
+    }
+
+    // A bind without SMPP session.
+    private static final class StubSmpp extends Smpp {
+        private final AtomicInteger sent = new AtomicInteger();
+        private volatile boolean bound = true;
+
+        private StubSmpp(final String name, final int weight, final int tps, final long windowWaitTimeout) {
+            super(name, "restcomm", "127.0.0.1", 2776, SmppBindType.TRANSCEIVER, "password", "sms", (byte) 0x34, null,
+                    10000, 100, windowWaitTimeout, 30000, 15000, false, false, 30000);
+            setWeight(weight);
+            setTps(tps);
+        }
+
+        @Override
+        boolean isBound() {
+            return bound;
+        }
+
+        @Override
+        int getPendingSubmits() {
+            return 0;
+        }
+
+        @Override
+        void send(final SubmitSm submit) {
+            sent.incrementAndGet();
+        }
+    }
+}
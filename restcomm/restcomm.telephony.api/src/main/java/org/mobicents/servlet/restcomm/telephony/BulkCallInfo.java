@@ -0,0 +1,142 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.telephony;
+
+import java.net.URI;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+/**
+ * A snapshot of the progress of a bulk call. The results of the destinations are left out of the list of bulk calls.
+ */
+@Immutable
+public final class BulkCallInfo {
+    public enum Status {
+        QUEUED("queued"), IN_PROGRESS("in-progress"), COMPLETED("completed"), CANCELED("canceled");
+
+        private final String text;
+
+        private Status(final String text) {
+            this.text = text;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    };
+
+    private final Sid sid;
+    private final Sid accountSid;
+    private final Status status;
+    private final DateTime dateCreated;
+    private final DateTime dateUpdated;
+    private final String from;
+    private final URI url;
+    private final int total;
+    private final int queued;
+    private final int active;
+    private final int completed;
+    private final int failed;
+    private final int canceled;
+    private final List<BulkCallResult> results;
+
+    public BulkCallInfo(final Sid sid, final Sid accountSid, final Status status, final DateTime dateCreated,
+            final DateTime dateUpdated, final String from, final URI url, final int total, final int queued,
+            final int active, final int completed, final int failed, final int canceled, final List<BulkCallResult> results) {
+        super();
+        this.sid = sid;
+        this.accountSid = accountSid;
+        this.status = status;
+        this.dateCreated = dateCreated;
+        this.dateUpdated = dateUpdated;
+        this.from = from;
+        this.url = url;
+        this.total = total;
+        this.queued = queued;
+        this.active = active;
+        this.completed = completed;
+        this.failed = failed;
+        this.canceled = canceled;
+        this.results = results;
+    }
+
+    public Sid sid() {
+        return sid;
+    }
+
+    public Sid accountSid() {
+        return accountSid;
+    }
+
+    public Status status() {
+        return status;
+    }
+
+    public DateTime dateCreated() {
+        return dateCreated;
+    }
+
+    public DateTime dateUpdated() {
+        return dateUpdated;
+    }
+
+    public String from() {
+        return from;
+    }
+
+    public URI url() {
+        return url;
+    }
+
+    public int total() {
+        return total;
+    }
+
+    public int queued() {
+        return queued;
+    }
+
+    public int active() {
+        return active;
+    }
+
+    public int completed() {
+        return completed;
+    }
+
+    public int failed() {
+        return failed;
+    }
+
+    public int canceled() {
+        return canceled;
+    }
+
+    /**
+     * @return the result of every destination, null in the list of bulk calls.
+     */
+    public List<BulkCallResult> results() {
+        return results;
+    }
+}
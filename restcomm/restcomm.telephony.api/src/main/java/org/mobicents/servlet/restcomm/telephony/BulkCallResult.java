@@ -0,0 +1,75 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.telephony;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+/**
+ * The outcome of one destination of a bulk call. The call sid is set once the call is created, its CDR holds the
+ * details of the call.
+ */
+@Immutable
+public final class BulkCallResult {
+    public enum Status {
+        QUEUED("queued"), DIALING("dialing"), IN_PROGRESS("in-progress"), COMPLETED("completed"), FAILED("failed"), CANCELED(
+                "canceled");
+
+        private final String text;
+
+        private Status(final String text) {
+            this.text = text;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    };
+
+    private final String to;
+    private final Sid callSid;
+    private final Status status;
+    private final String error;
+
+    public BulkCallResult(final String to, final Sid callSid, final Status status, final String error) {
+        super();
+        this.to = to;
+        this.callSid = callSid;
+        this.status = status;
+        this.error = error;
+    }
+
+    public String to() {
+        return to;
+    }
+
+    public Sid callSid() {
+        return callSid;
+    }
+
+    public Status status() {
+        return status;
+    }
+
+    public String error() {
+        return error;
+    }
+}
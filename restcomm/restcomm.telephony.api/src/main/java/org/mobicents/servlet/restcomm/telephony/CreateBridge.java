@@ -22,6 +22,7 @@
 package org.mobicents.servlet.restcomm.telephony;
 
 import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.entities.Sid;
 
 /**
  * @author Henrique Rosa (henrique.rosa@telestax.com)
@@ -30,8 +31,20 @@ import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
 @Immutable
 public final class CreateBridge {
 
+    // The call the bridge is created for, the bridge shares its media server.
+    private final Sid callSid;
+
     public CreateBridge() {
+        this(null);
+    }
+
+    public CreateBridge(final Sid callSid) {
         super();
+        this.callSid = callSid;
+    }
+
+    public Sid callSid() {
+        return callSid;
     }
 
 }
@@ -0,0 +1,120 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.telephony;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+/**
+ * Asks the bulk call dialer to call a list of destinations and run the same application on every call. The calls are
+ * created with {@link CreateCall} through the call manager, like the ones of the Calls REST API.
+ */
+@Immutable
+public final class CreateBulkCall {
+    private final Sid accountId;
+    private final String from;
+    private final List<String> destinations;
+    private final String username;
+    private final String password;
+    private final int timeout;
+    private final String version;
+    private final URI url;
+    private final String method;
+    private final URI fallbackUrl;
+    private final String fallbackMethod;
+    private final URI callback;
+    private final String callbackMethod;
+
+    public CreateBulkCall(final Sid accountId, final String from, final List<String> destinations, final String username,
+            final String password, final int timeout, final String version, final URI url, final String method,
+            final URI fallbackUrl, final String fallbackMethod, final URI callback, final String callbackMethod) {
+        super();
+        this.accountId = accountId;
+        this.from = from;
+        this.destinations = Collections.unmodifiableList(new ArrayList<String>(destinations));
+        this.username = username;
+        this.password = password;
+        this.timeout = timeout;
+        this.version = version;
+        this.url = url;
+        this.method = method;
+        this.fallbackUrl = fallbackUrl;
+        this.fallbackMethod = fallbackMethod;
+        this.callback = callback;
+        this.callbackMethod = callbackMethod;
+    }
+
+    public Sid accountId() {
+        return accountId;
+    }
+
+    public String from() {
+        return from;
+    }
+
+    public List<String> destinations() {
+        return destinations;
+    }
+
+    public String username() {
+        return username;
+    }
+
+    public String password() {
+        return password;
+    }
+
+    public int timeout() {
+        return timeout;
+    }
+
+    public String version() {
+        return version;
+    }
+
+    public URI url() {
+        return url;
+    }
+
+    public String method() {
+        return method;
+    }
+
+    public URI fallbackUrl() {
+        return fallbackUrl;
+    }
+
+    public String fallbackMethod() {
+        return fallbackMethod;
+    }
+
+    public URI callback() {
+        return callback;
+    }
+
+    public String callbackMethod() {
+        return callbackMethod;
+    }
+}
@@ -20,6 +20,7 @@
 package org.mobicents.servlet.restcomm.telephony;
 
 import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.entities.Sid;
 
 /**
  * @author quintana.thomas@gmail.com (Thomas Quintana)
@@ -27,13 +28,24 @@ import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
 @Immutable
 public final class CreateConference {
     private final String name;
+    // The call creating the conference, a new conference shares its media server.
+    private final Sid callSid;
 
     public CreateConference(final String name) {
+        this(name, null);
+    }
+
+    public CreateConference(final String name, final Sid callSid) {
         super();
         this.name = name;
+        this.callSid = callSid;
     }
 
     public String name() {
         return name;
     }
+
+    public Sid callSid() {
+        return callSid;
+    }
 }
@@ -0,0 +1,46 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.telephony;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+/**
+ * Asks the bulk call dialer for the progress of a bulk call and the result of each of its destinations.
+ */
+@Immutable
+public final class GetBulkCall {
+    private final Sid sid;
+    private final Sid accountId;
+
+    public GetBulkCall(final Sid sid, final Sid accountId) {
+        super();
+        this.sid = sid;
+        this.accountId = accountId;
+    }
+
+    public Sid sid() {
+        return sid;
+    }
+
+    public Sid accountId() {
+        return accountId;
+    }
+}
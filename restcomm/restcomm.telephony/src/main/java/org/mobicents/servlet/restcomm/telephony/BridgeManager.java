@@ -21,6 +21,7 @@
 
 package org.mobicents.servlet.restcomm.telephony;
 
+import org.mobicents.servlet.restcomm.entities.Sid;
 import org.mobicents.servlet.restcomm.mscontrol.MediaServerControllerFactory;
 import org.mobicents.servlet.restcomm.patterns.Observe;
 
@@ -42,13 +43,15 @@ public class BridgeManager extends UntypedActor {
         this.factory = factory;
     }
 
-    private ActorRef createBridge() {
+    private ActorRef createBridge(final Sid callSid) {
+        // The bridge shares the media server of the call it is created for.
+        final String affinity = callSid == null ? null : callSid.toString();
         return getContext().actorOf(new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
 
             @Override
             public UntypedActor create() throws Exception {
-                return new Bridge(factory.provideBridgeController());
+                return new Bridge(factory.provideBridgeController(affinity));
             }
         }));
     }
@@ -72,7 +75,7 @@ public class BridgeManager extends UntypedActor {
 
     private void onCreateBridge(CreateBridge message, ActorRef self, ActorRef sender) {
         // Create a new bridge
-        ActorRef bridge = createBridge();
+        ActorRef bridge = createBridge(message.callSid());
 
         // Observe state changes in the bridge for termination purposes
         bridge.tell(new Observe(self), self);
@@ -0,0 +1,530 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.telephony;
+
+import static akka.pattern.Patterns.ask;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.configuration.Configuration;
+import org.joda.time.DateTime;
+import org.mobicents.servlet.restcomm.dispatch.PacedQueue;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+import scala.concurrent.Future;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+import akka.actor.ActorRef;
+import akka.actor.Cancellable;
+import akka.actor.Props;
+import akka.actor.ReceiveTimeout;
+import akka.actor.Terminated;
+import akka.actor.UntypedActor;
+import akka.actor.UntypedActorFactory;
+import akka.dispatch.OnComplete;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+import akka.util.Timeout;
+
+/**
+ * Dials the destinations of the bulk calls created through the REST API at a steady pace. Every destination is called
+ * with a {@link CreateCall} sent to the call manager and the application of the bulk call runs on the call with an
+ * {@link ExecuteCallScript}, the same way the Calls REST API does it for a single call.
+ * <p>
+ * The pace is shared by all the bulk calls through a {@link PacedQueue}: at most 'calls-per-second' calls are created
+ * every second and at most 'max-concurrent-calls' destinations are up at once, the bulk calls taking turns. A
+ * destination stays active until all the calls created for it are gone, or until the call manager answers that none
+ * was. A call manager that is late gets a second timeout before the destination fails, the calls it creates during a
+ * third one are hung up. The progress of a bulk call is kept in memory for 'retention' seconds after its last
+ * destination is done, the outcome of every call is in its CDR.
+ */
+public final class BulkCallDialer extends UntypedActor {
+    static final Object TICK = new Object();
+    private static final long TICK_PERIOD = 100;
+
+    private final LoggingAdapter logger = Logging.getLogger(getContext().system(), this);
+
+    private final ActorRef callManager;
+    private final int maxDestinations;
+    private final Timeout timeout;
+    private final boolean ticking;
+
+    private final PacedQueue<Sid, BulkCall> bulkCalls;
+    private final Map<ActorRef, Destination> branches;
+    private Cancellable ticks;
+
+    public BulkCallDialer(final Configuration configuration, final ActorRef callManager) {
+        this(configuration, callManager, new Timeout(Duration.create(60, TimeUnit.SECONDS)), true);
+    }
+
+    // The tests answer in a shorter time and send the ticks themselves.
+    BulkCallDialer(final Configuration configuration, final ActorRef callManager, final Timeout timeout,
+            final boolean ticking) {
+        super();
+        this.callManager = callManager;
+        this.maxDestinations = configuration.getInt("max-destinations", 10000);
+        this.timeout = timeout;
+        this.ticking = ticking;
+        final double callsPerSecond = configuration.getDouble("calls-per-second", 10);
+        final int maxConcurrentCalls = configuration.getInt("max-concurrent-calls", 100);
+        final long retention = configuration.getLong("retention", 3600) * 1000;
+        this.bulkCalls = new PacedQueue<Sid, BulkCall>(callsPerSecond, maxConcurrentCalls, retention, TICK_PERIOD);
+        this.branches = new HashMap<ActorRef, Destination>();
+    }
+
+    @Override
+    public void preStart() {
+        if (!ticking) {
+            return;
+        }
+        final FiniteDuration period = Duration.create(TICK_PERIOD, TimeUnit.MILLISECONDS);
+        ticks = getContext().system().scheduler().schedule(period, period, self(), TICK, getContext().dispatcher());
+    }
+
+    @Override
+    public void postStop() {
+        if (ticks != null) {
+            ticks.cancel();
+        }
+    }
+
+    @Override
+    public void onReceive(final Object message) throws Exception {
+        final Class<?> klass = message.getClass();
+        final ActorRef sender = sender();
+        if (TICK == message) {
+            bulkCalls.tick(System.currentTimeMillis());
+        } else if (CreateBulkCall.class.equals(klass)) {
+            create((CreateBulkCall) message, sender);
+        } else if (GetBulkCall.class.equals(klass)) {
+            final GetBulkCall request = (GetBulkCall) message;
+            final BulkCall bulkCall = lookup(request.sid(), request.accountId());
+            final BulkCallInfo info = bulkCall == null ? null : bulkCall.info(true);
+            sender.tell(new BulkCallResponse<BulkCallInfo>(info), self());
+        } else if (GetBulkCalls.class.equals(klass)) {
+            final Sid accountId = ((GetBulkCalls) message).accountId();
+            final List<BulkCallInfo> infos = new ArrayList<BulkCallInfo>();
+            for (final BulkCall bulkCall : bulkCalls.batches()) {
+                if (bulkCall.request.accountId().equals(accountId)) {
+                    infos.add(bulkCall.info(false));
+                }
+            }
+            sender.tell(new BulkCallResponse<List<BulkCallInfo>>(infos), self());
+        } else if (CancelBulkCall.class.equals(klass)) {
+            final CancelBulkCall request = (CancelBulkCall) message;
+            final BulkCall bulkCall = lookup(request.sid(), request.accountId());
+            if (bulkCall != null) {
+                cancel(bulkCall);
+            }
+            final BulkCallInfo info = bulkCall == null ? null : bulkCall.info(true);
+            sender.tell(new BulkCallResponse<BulkCallInfo>(info), self());
+        } else if (Dialed.class.equals(klass)) {
+            dialed((Dialed) message);
+        } else if (Informed.class.equals(klass)) {
+            informed((Informed) message);
+        } else if (Terminated.class.equals(klass)) {
+            final Destination destination = branches.remove(((Terminated) message).actor());
+            if (destination != null) {
+                ended(destination);
+            }
+        } else {
+            unhandled(message);
+        }
+    }
+
+    private BulkCall lookup(final Sid sid, final Sid accountId) {
+        final BulkCall bulkCall = bulkCalls.get(sid);
+        if (bulkCall == null || !bulkCall.request.accountId().equals(accountId)) {
+            return null;
+        }
+        return bulkCall;
+    }
+
+    private void create(final CreateBulkCall request, final ActorRef sender) {
+        final int size = request.destinations().size();
+        if (size == 0) {
+            final String error = "A bulk call needs at least one destination.";
+            sender.tell(new BulkCallResponse<BulkCallInfo>(new IllegalArgumentException(error), error), self());
+            return;
+        } else if (size > maxDestinations) {
+            final String error = "A bulk call can not have more than " + maxDestinations + " destinations.";
+            sender.tell(new BulkCallResponse<BulkCallInfo>(new IllegalArgumentException(error), error), self());
+            return;
+        }
+        final BulkCall bulkCall = new BulkCall(Sid.generate(Sid.Type.BULK_CALL), request);
+        bulkCalls.add(bulkCall.sid, bulkCall);
+        if (logger.isInfoEnabled()) {
+            logger.info("Bulk call " + bulkCall.sid + " queued " + size + " destinations for account " + request.accountId());
+        }
+        sender.tell(new BulkCallResponse<BulkCallInfo>(bulkCall.info(false)), self());
+    }
+
+    private void dial(final Destination destination) {
+        final CreateBulkCall request = destination.bulkCall.request;
+        final String to = destination.to;
+        final CreateCall.Type type;
+        if (to.contains("@")) {
+            type = CreateCall.Type.SIP;
+        } else if (to.startsWith("client")) {
+            type = CreateCall.Type.CLIENT;
+        } else {
+            type = CreateCall.Type.PSTN;
+        }
+        final CreateCall create = new CreateCall(request.from(), to, request.username(), request.password(), true,
+                request.timeout(), type, request.accountId(), null);
+        create.setCreateCDR(false);
+        destination.status = BulkCallResult.Status.DIALING;
+        destination.bulkCall.touch();
+        // Not an ask: the calls may still be created after it timed out and the slot would be given away meanwhile.
+        final ActorRef callManager = this.callManager;
+        final long timeout = this.timeout.duration().toMillis();
+        getContext().actorOf(new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public UntypedActor create() throws Exception {
+                return new Creation(callManager, create, destination, timeout);
+            }
+        }));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void dialed(final Dialed message) {
+        final Destination destination = message.destination;
+        if (message.failure != null || !(message.reply instanceof CallManagerResponse)) {
+            failed(destination, message.failure != null ? message.failure.getMessage() : "Unexpected reply " + message.reply);
+            return;
+        }
+        final CallManagerResponse<Object> response = (CallManagerResponse<Object>) message.reply;
+        if (!response.succeeded()) {
+            failed(destination, response.error() != null ? response.error() : String.valueOf(response.cause()));
+            return;
+        }
+        final List<ActorRef> calls = new ArrayList<ActorRef>();
+        if (response.get() instanceof List) {
+            calls.addAll((List<ActorRef>) response.get());
+        } else {
+            calls.add((ActorRef) response.get());
+        }
+        if (calls.isEmpty()) {
+            failed(destination, "No call was created for " + destination.to);
+            return;
+        }
+        final ActorRef self = self();
+        destination.pending = calls.size();
+        for (final ActorRef call : calls) {
+            branches.put(call, destination);
+            getContext().watch(call);
+            final Future<Object> future = ask(call, new GetCallInfo(), timeout);
+            future.onComplete(new OnComplete<Object>() {
+                @Override
+                public void onComplete(final Throwable failure, final Object success) {
+                    self.tell(new Informed(call, success, failure), null);
+                }
+            }, getContext().dispatcher());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void informed(final Informed message) {
+        final Destination destination = branches.get(message.call);
+        if (destination == null) {
+            // The call is already gone.
+            return;
+        }
+        CallInfo info = null;
+        if (message.failure == null && message.reply instanceof CallResponse) {
+            final CallResponse<CallInfo> response = (CallResponse<CallInfo>) message.reply;
+            if (response.succeeded()) {
+                info = response.get();
+            }
+        }
+        if (info == null) {
+            branches.remove(message.call);
+            getContext().unwatch(message.call);
+            message.call.tell(new Hangup(), self());
+            destination.error = message.failure != null ? message.failure.getMessage() : "The call info is not available.";
+            ended(destination);
+            return;
+        }
+        final CreateBulkCall request = destination.bulkCall.request;
+        final ExecuteCallScript execute = new ExecuteCallScript(message.call, request.accountId(), request.version(),
+                request.url(), request.method(), request.fallbackUrl(), request.fallbackMethod(), request.callback(),
+                request.callbackMethod());
+        callManager.tell(execute, null);
+        if (destination.callSid == null) {
+            destination.callSid = info.sid();
+        }
+        destination.executed = true;
+        destination.status = BulkCallResult.Status.IN_PROGRESS;
+        destination.bulkCall.touch();
+    }
+
+    // One of the calls created for the destination is gone.
+    private void ended(final Destination destination) {
+        if (--destination.pending > 0) {
+            return;
+        }
+        if (destination.executed) {
+            destination.status = BulkCallResult.Status.COMPLETED;
+            destination.error = null;
+        } else {
+            destination.status = BulkCallResult.Status.FAILED;
+        }
+        done(destination);
+    }
+
+    private void failed(final Destination destination, final String error) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Bulk call " + destination.bulkCall.sid + " failed to call " + destination.to + ": " + error);
+        }
+        destination.status = BulkCallResult.Status.FAILED;
+        destination.error = error;
+        done(destination);
+    }
+
+    private void done(final Destination destination) {
+        final BulkCall bulkCall = destination.bulkCall;
+        bulkCall.touch();
+        bulkCalls.done(bulkCall, System.currentTimeMillis());
+    }
+
+    private void cancel(final BulkCall bulkCall) {
+        if (bulkCall.isFinished()) {
+            return;
+        }
+        for (int index = bulkCall.next; index < bulkCall.destinations.size(); index++) {
+            bulkCall.destinations.get(index).status = BulkCallResult.Status.CANCELED;
+        }
+        bulkCall.next = bulkCall.destinations.size();
+        bulkCall.canceled = true;
+        bulkCall.touch();
+        bulkCalls.cancel(bulkCall, System.currentTimeMillis());
+    }
+
+    private final class BulkCall extends PacedQueue.Batch {
+        private final Sid sid;
+        private final CreateBulkCall request;
+        private final DateTime dateCreated;
+        private final List<Destination> destinations;
+        private DateTime dateUpdated;
+        // The index of the next destination to dial.
+        private int next;
+        private boolean canceled;
+
+        private BulkCall(final Sid sid, final CreateBulkCall request) {
+            super();
+            this.sid = sid;
+            this.request = request;
+            this.dateCreated = DateTime.now();
+            this.dateUpdated = dateCreated;
+            this.destinations = new ArrayList<Destination>(request.destinations().size());
+            for (final String to : request.destinations()) {
+                destinations.add(new Destination(this, to));
+            }
+        }
+
+        private void touch() {
+            dateUpdated = DateTime.now();
+        }
+
+        @Override
+        protected boolean hasNext() {
+            return next < destinations.size();
+        }
+
+        @Override
+        protected boolean startNext() {
+            dial(destinations.get(next++));
+            return true;
+        }
+
+        @Override
+        protected void onFinished() {
+            if (logger.isInfoEnabled()) {
+                logger.info("Bulk call " + sid + " is over");
+            }
+        }
+
+        private BulkCallInfo info(final boolean withResults) {
+            int queued = 0, up = 0, completed = 0, failed = 0, stopped = 0;
+            final List<BulkCallResult> results = withResults ? new ArrayList<BulkCallResult>(destinations.size()) : null;
+            for (final Destination destination : destinations) {
+                switch (destination.status) {
+                    case QUEUED:
+                        queued++;
+                        break;
+                    case DIALING:
+                    case IN_PROGRESS:
+                        up++;
+                        break;
+                    case COMPLETED:
+                        completed++;
+                        break;
+                    case FAILED:
+                        failed++;
+                        break;
+                    case CANCELED:
+                        stopped++;
+                        break;
+                }
+                if (withResults) {
+                    results.add(new BulkCallResult(destination.to, destination.callSid, destination.status, destination.error));
+                }
+            }
+            final BulkCallInfo.Status status;
+            if (isFinished()) {
+                status = canceled ? BulkCallInfo.Status.CANCELED : BulkCallInfo.Status.COMPLETED;
+            } else if (next == 0) {
+                status = BulkCallInfo.Status.QUEUED;
+            } else {
+                status = BulkCallInfo.Status.IN_PROGRESS;
+            }
+            return new BulkCallInfo(sid, request.accountId(), status, dateCreated, dateUpdated, request.from(),
+                    request.url(), destinations.size(), queued, up, completed, failed, stopped, results);
+        }
+    }
+
+    private final class Destination {
+        private final BulkCall bulkCall;
+        private final String to;
+        private BulkCallResult.Status status;
+        private Sid callSid;
+        private String error;
+        // The calls created for the destination that are not gone yet.
+        private int pending;
+        private boolean executed;
+
+        private Destination(final BulkCall bulkCall, final String to) {
+            super();
+            this.bulkCall = bulkCall;
+            this.to = to;
+            this.status = BulkCallResult.Status.QUEUED;
+        }
+    }
+
+    private static final class Dialed {
+        private final Destination destination;
+        private final Object reply;
+        private final Throwable failure;
+
+        private Dialed(final Destination destination, final Object reply, final Throwable failure) {
+            super();
+            this.destination = destination;
+            this.reply = reply;
+            this.failure = failure;
+        }
+    }
+
+    // Forwards the answer of the call manager to a CreateCall, the calls of the destination may exist once it is late.
+    private static final class Creation extends UntypedActor {
+        private final LoggingAdapter logger = Logging.getLogger(getContext().system(), this);
+
+        private final ActorRef callManager;
+        private final CreateCall create;
+        private final Destination destination;
+        private final long timeout;
+        private int timeouts;
+
+        private Creation(final ActorRef callManager, final CreateCall create, final Destination destination,
+                final long timeout) {
+            super();
+            this.callManager = callManager;
+            this.create = create;
+            this.destination = destination;
+            this.timeout = timeout;
+        }
+
+        @Override
+        public void preStart() {
+            getContext().watch(callManager);
+            getContext().setReceiveTimeout(Duration.create(timeout, TimeUnit.MILLISECONDS));
+            callManager.tell(create, self());
+        }
+
+        @Override
+        public void onReceive(final Object message) throws Exception {
+            if (message instanceof ReceiveTimeout) {
+                timeouts++;
+                if (timeouts == 1) {
+                    logger.warning("The call manager did not answer the call to " + create.to() + " within " + timeout
+                            + "ms, its slot stays taken for another " + timeout + "ms.");
+                } else if (timeouts == 2) {
+                    // The call manager may have failed on the request, a restarted one does not answer it.
+                    final String error = "The call manager did not answer the call to " + create.to() + ".";
+                    getContext().parent().tell(new Dialed(destination, null, new TimeoutException(error)), self());
+                } else {
+                    getContext().stop(self());
+                }
+                return;
+            }
+            if (timeouts >= 2) {
+                // The destination already failed, the calls created this late must not ring without an application.
+                hangup(message);
+                getContext().stop(self());
+                return;
+            }
+            final Dialed dialed;
+            if (message instanceof Terminated) {
+                dialed = new Dialed(destination, null, new IllegalStateException("The call manager is gone."));
+            } else {
+                dialed = new Dialed(destination, message, null);
+            }
+            getContext().parent().tell(dialed, self());
+            getContext().stop(self());
+        }
+
+        @SuppressWarnings("unchecked")
+        private void hangup(final Object message) {
+            if (!(message instanceof CallManagerResponse) || !((CallManagerResponse<Object>) message).succeeded()) {
+                return;
+            }
+            final Object calls = ((CallManagerResponse<Object>) message).get();
+            final List<ActorRef> late = new ArrayList<ActorRef>();
+            if (calls instanceof List) {
+                late.addAll((List<ActorRef>) calls);
+            } else if (calls instanceof ActorRef) {
+                late.add((ActorRef) calls);
+            }
+            for (final ActorRef call : late) {
+                logger.warning("Hanging up the call to " + create.to() + " the call manager created too late.");
+                call.tell(new Hangup(), self());
+            }
+        }
+    }
+
+    private static final class Informed {
+        private final ActorRef call;
+        private final Object reply;
+        private final Throwable failure;
+
+        private Informed(final ActorRef call, final Object reply, final Throwable failure) {
+            super();
+            this.call = call;
+            this.reply = reply;
+            this.failure = failure;
+        }
+    }
+}
@@ -58,6 +58,8 @@ import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
 import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
 import org.mobicents.servlet.restcomm.dao.CallDetailRecordsDao;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.dao.RecordWriter;
+import org.mobicents.servlet.restcomm.dispatch.RestcommDispatchers;
 import org.mobicents.servlet.restcomm.entities.CallDetailRecord;
 import org.mobicents.servlet.restcomm.entities.Sid;
 import org.mobicents.servlet.restcomm.fsm.Action;
@@ -67,6 +69,7 @@ import org.mobicents.servlet.restcomm.fsm.Transition;
 import org.mobicents.servlet.restcomm.fsm.TransitionFailedException;
 import org.mobicents.servlet.restcomm.fsm.TransitionNotFoundException;
 import org.mobicents.servlet.restcomm.fsm.TransitionRollbackException;
+import org.mobicents.servlet.restcomm.logging.TargetedLogging;
 import org.mobicents.servlet.restcomm.mscontrol.messages.CloseMediaSession;
 import org.mobicents.servlet.restcomm.mscontrol.messages.Collect;
 import org.mobicents.servlet.restcomm.mscontrol.messages.CreateMediaSession;
@@ -185,6 +188,8 @@ public final class Call extends UntypedActor {
     // Media Group runtime stuff
     private CallDetailRecord outgoingCallRecord;
     private CallDetailRecordsDao recordsDao;
+    // Writes the call detail record on the database dispatcher.
+    private RecordWriter recordWriter;
     private DaoManager daoManager;
     private boolean liveCallModification;
     private boolean recording;
@@ -196,6 +201,11 @@ public final class Call extends UntypedActor {
     private boolean disableSdpPatchingOnUpdatingMediaSession;
 
     public Call(final SipFactory factory, final ActorRef mediaSessionController, final Configuration configuration) {
+        this(Sid.generate(Sid.Type.CALL), factory, mediaSessionController, configuration);
+    }
+
+    public Call(final Sid id, final SipFactory factory, final ActorRef mediaSessionController,
+            final Configuration configuration) {
         super();
         final ActorRef source = self();
 
@@ -285,7 +295,7 @@ public final class Call extends UntypedActor {
         this.fail = false;
 
         // Initialize the runtime stuff.
-        this.id = Sid.generate(Sid.Type.CALL);
+        this.id = id;
         this.instanceId = RestcommConfiguration.getInstance().getMain().getInstanceId();
         this.created = DateTime.now();
         this.observers = Collections.synchronizedList(new ArrayList<ActorRef>());
@@ -389,10 +399,13 @@ public final class Call extends UntypedActor {
         final ActorRef self = self();
         final ActorRef sender = sender();
         final State state = fsm.state();
-        if(logger.isInfoEnabled()) {
-            logger.info("********** Call's " + self().path() + " Current State: \"" + state.toString()+" direction: "+direction);
-            logger.info("********** Call " + self().path() + " Processing Message: \"" + klass.getName() + " sender : "
+        if (logger.isDebugEnabled()) {
+            logger.debug("********** Call's " + self().path() + " Current State: \"" + state.toString()+" direction: "+direction);
+            logger.debug("********** Call " + self().path() + " Processing Message: \"" + klass.getName() + " sender : "
                 + sender.path().toString());
+        } else if (TargetedLogging.isTargeted(id, accountId)) {
+            TargetedLogging.log(Call.class, "Call " + id + " Current State: \"" + state.toString() + " direction: " + direction
+                    + " Processing Message: \"" + klass.getName() + " sender : " + sender.path().toString());
         }
 
         if (Observe.class.equals(klass)) {
@@ -527,6 +540,7 @@ public final class Call extends UntypedActor {
             type = request.type();
             parentCallSid = request.getParentCallSid();
             recordsDao = request.getDaoManager().getCallDetailRecordsDao();
+            recordWriter = new RecordWriter(request.getDaoManager(), RestcommDispatchers.database(getContext().system()));
             String toHeaderString = to.toString();
             if (toHeaderString.indexOf('?') != -1) {
                 // custom headers parsing for SIP Out
@@ -584,6 +598,8 @@ public final class Call extends UntypedActor {
                     builder.setCallPath(self().path().toString());
                     builder.setParentCallSid(parentCallSid);
                     outgoingCallRecord = builder.build();
+                    // Written right away, the Calls endpoint reads the record back as soon as it gets the call info.
+                    // Only the updates are written behind.
                     recordsDao.addCallDetailRecord(outgoingCallRecord);
                 } else {
                     cdr.setStatus(external.name());
@@ -725,7 +741,7 @@ public final class Call extends UntypedActor {
             }
             if (outgoingCallRecord != null && isOutbound()) {
                 outgoingCallRecord = outgoingCallRecord.setStatus(external.name());
-                recordsDao.updateCallDetailRecord(outgoingCallRecord);
+                recordWriter.updateCallDetailRecord(outgoingCallRecord);
             }
         }
     }
@@ -785,7 +801,7 @@ public final class Call extends UntypedActor {
                     logger.info("Going to update CDR to CANCEL, call sid: "+id+" from: "+from+" to: "+to+" direction: "+direction);
                 }
                 outgoingCallRecord = outgoingCallRecord.setStatus(external.name());
-                recordsDao.updateCallDetailRecord(outgoingCallRecord);
+                recordWriter.updateCallDetailRecord(outgoingCallRecord);
             }
             fsm.transition(message, completed);
         }
@@ -867,12 +883,12 @@ public final class Call extends UntypedActor {
             // Record call data
             if (outgoingCallRecord != null && isOutbound()) {
                 outgoingCallRecord = outgoingCallRecord.setStatus(external.name());
-                recordsDao.updateCallDetailRecord(outgoingCallRecord);
+                recordWriter.updateCallDetailRecord(outgoingCallRecord);
                 outgoingCallRecord = outgoingCallRecord.setDuration(0);
-                recordsDao.updateCallDetailRecord(outgoingCallRecord);
+                recordWriter.updateCallDetailRecord(outgoingCallRecord);
                 final int seconds = (int) ((DateTime.now().getMillis() - outgoingCallRecord.getStartTime().getMillis()) / 1000);
                 outgoingCallRecord = outgoingCallRecord.setRingDuration(seconds);
-                recordsDao.updateCallDetailRecord(outgoingCallRecord);
+                recordWriter.updateCallDetailRecord(outgoingCallRecord);
             }
         }
     }
@@ -904,7 +920,7 @@ public final class Call extends UntypedActor {
             // Record call data
             if (outgoingCallRecord != null && isOutbound()) {
                 outgoingCallRecord = outgoingCallRecord.setStatus(external.name());
-                recordsDao.updateCallDetailRecord(outgoingCallRecord);
+                recordWriter.updateCallDetailRecord(outgoingCallRecord);
             }
         }
     }
@@ -932,7 +948,7 @@ public final class Call extends UntypedActor {
             // Record call data
             if (outgoingCallRecord != null && isOutbound()) {
                 outgoingCallRecord = outgoingCallRecord.setStatus(external.name());
-                recordsDao.updateCallDetailRecord(outgoingCallRecord);
+                recordWriter.updateCallDetailRecord(outgoingCallRecord);
             }
         }
     }
@@ -969,7 +985,7 @@ public final class Call extends UntypedActor {
             // Record call data
             if (outgoingCallRecord != null && isOutbound()) {
                 outgoingCallRecord = outgoingCallRecord.setStatus(external.name());
-                recordsDao.updateCallDetailRecord(outgoingCallRecord);
+                recordWriter.updateCallDetailRecord(outgoingCallRecord);
             }
         }
     }
@@ -1098,11 +1114,11 @@ public final class Call extends UntypedActor {
                 if (outgoingCallRecord != null && isOutbound()) {
                     final int seconds = (int) ((DateTime.now().getMillis() - outgoingCallRecord.getStartTime().getMillis()) / 1000);
                     outgoingCallRecord = outgoingCallRecord.setRingDuration(seconds);
-                    recordsDao.updateCallDetailRecord(outgoingCallRecord);
+                    recordWriter.updateCallDetailRecord(outgoingCallRecord);
                     outgoingCallRecord = outgoingCallRecord.setStartTime(DateTime.now());
-                    recordsDao.updateCallDetailRecord(outgoingCallRecord);
+                    recordWriter.updateCallDetailRecord(outgoingCallRecord);
                     outgoingCallRecord = outgoingCallRecord.setStatus(external.name());
-                    recordsDao.updateCallDetailRecord(outgoingCallRecord);
+                    recordWriter.updateCallDetailRecord(outgoingCallRecord);
                 }
             }
 
@@ -1145,7 +1161,7 @@ public final class Call extends UntypedActor {
             if (outgoingCallRecord != null && isOutbound() && !outgoingCallRecord.getStatus().equalsIgnoreCase("in_progress")) {
                 outgoingCallRecord = outgoingCallRecord.setStatus(external.name());
                 outgoingCallRecord = outgoingCallRecord.setAnsweredBy(to.getUser());
-                recordsDao.updateCallDetailRecord(outgoingCallRecord);
+                recordWriter.updateCallDetailRecord(outgoingCallRecord);
             }
         }
     }
@@ -1227,7 +1243,7 @@ public final class Call extends UntypedActor {
                 outgoingCallRecord = outgoingCallRecord.setEndTime(now);
                 final int seconds = (int) ((now.getMillis() - outgoingCallRecord.getStartTime().getMillis()) / 1000);
                 outgoingCallRecord = outgoingCallRecord.setDuration(seconds);
-                recordsDao.updateCallDetailRecord(outgoingCallRecord);
+                recordWriter.updateCallDetailRecord(outgoingCallRecord);
                 if(logger.isDebugEnabled()) {
                     logger.debug("Start: " + outgoingCallRecord.getStartTime());
                     logger.debug("End: " + outgoingCallRecord.getEndTime());
@@ -33,18 +33,24 @@ import akka.util.Timeout;
 import com.google.i18n.phonenumbers.NumberParseException;
 import com.google.i18n.phonenumbers.PhoneNumberUtil;
 import com.google.i18n.phonenumbers.PhoneNumberUtil.PhoneNumberFormat;
+import com.telestax.servlet.ExtensionController;
+import com.telestax.servlet.ExtensionResponse;
+import com.telestax.servlet.ExtensionType;
 import com.telestax.servlet.MonitoringService;
+import com.telestax.servlet.RestcommExtensionGeneric;
 import gov.nist.javax.sip.header.UserAgent;
 import org.apache.commons.configuration.Configuration;
 import org.joda.time.DateTime;
 import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
+import org.mobicents.servlet.restcomm.configuration.sets.RcmlCacheConfigurationSet;
 import org.mobicents.servlet.restcomm.dao.AccountsDao;
 import org.mobicents.servlet.restcomm.dao.ApplicationsDao;
 import org.mobicents.servlet.restcomm.dao.ClientsDao;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
-import org.mobicents.servlet.restcomm.dao.IncomingPhoneNumbersDao;
 import org.mobicents.servlet.restcomm.dao.NotificationsDao;
 import org.mobicents.servlet.restcomm.dao.RegistrationsDao;
+import org.mobicents.servlet.restcomm.dao.RoutingCache;
+import org.mobicents.servlet.restcomm.dispatch.RestcommDispatchers;
 import org.mobicents.servlet.restcomm.entities.Account;
 import org.mobicents.servlet.restcomm.entities.Application;
 import org.mobicents.servlet.restcomm.entities.Client;
@@ -52,6 +58,7 @@ import org.mobicents.servlet.restcomm.entities.IncomingPhoneNumber;
 import org.mobicents.servlet.restcomm.entities.Notification;
 import org.mobicents.servlet.restcomm.entities.Registration;
 import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.interpreter.InterpreterServices;
 import org.mobicents.servlet.restcomm.interpreter.StartInterpreter;
 import org.mobicents.servlet.restcomm.interpreter.StopInterpreter;
 import org.mobicents.servlet.restcomm.interpreter.VoiceInterpreterBuilder;
@@ -94,6 +101,7 @@ import static javax.servlet.sip.SipServlet.OUTBOUND_INTERFACES;
 import static javax.servlet.sip.SipServletResponse.SC_BAD_REQUEST;
 import static javax.servlet.sip.SipServletResponse.SC_NOT_FOUND;
 import static javax.servlet.sip.SipServletResponse.SC_OK;
+import static javax.servlet.sip.SipServletResponse.SC_SERVICE_UNAVAILABLE;
 
 /**
  * @author quintana.thomas@gmail.com (Thomas Quintana)
@@ -119,6 +127,8 @@ public final class CallManager extends UntypedActor {
     private final SipFactory sipFactory;
     private final DaoManager storage;
     private final ActorRef monitoring;
+    // Node wide services shared by the interpreters
+    private final InterpreterServices services;
 
     // configurable switch whether to use the To field in a SIP header to determine the callee address
     // alternatively the Request URI can be used
@@ -239,17 +249,27 @@ public final class CallManager extends UntypedActor {
 
         //Monitoring Service
         this.monitoring = (ActorRef) context.getAttribute(MonitoringService.class.getName());
+        this.services = (InterpreterServices) context.getAttribute(InterpreterServices.class.getName());
     }
 
     private ActorRef call() {
-        return system.actorOf(new Props(new UntypedActorFactory() {
+        return call(null);
+    }
+
+    /**
+     * @param parentCallSid the call an outbound call is a leg of, the leg shares its media server.
+     */
+    private ActorRef call(final Sid parentCallSid) {
+        final Sid id = Sid.generate(Sid.Type.CALL);
+        final String affinity = parentCallSid != null ? parentCallSid.toString() : id.toString();
+        return system.actorOf(RestcommDispatchers.props(system, new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
 
             @Override
             public UntypedActor create() throws Exception {
-                return new Call(sipFactory, msControllerFactory.provideCallController(), configuration);
+                return new Call(id, sipFactory, msControllerFactory.provideCallController(affinity), configuration);
             }
-        }));
+        }), RestcommDispatchers.CALL_CONTROL));
     }
 
     private void check(final Object message) throws IOException {
@@ -283,7 +303,9 @@ public final class CallManager extends UntypedActor {
             okay.send();
             return;
         }
-        //Run proInboundAction Extensions here
+        if (!executePreInboundAction(request)) {
+            return;
+        }
         // If it's a new invite lets try to handle it.
         final AccountsDao accounts = storage.getAccountsDao();
         final ApplicationsDao applications = storage.getApplicationsDao();
@@ -351,7 +373,7 @@ public final class CallManager extends UntypedActor {
             } else {
                 // toClient is null or we couldn't make the b2bua call to another client. check if this call is for a registered
                 // DID (application)
-                if (redirectToHostedVoiceApp(self, request, accounts, applications, toUser)) {
+                if (redirectToHostedVoiceApp(self, request, toUser)) {
                     // This is a call to a registered DID (application)
                     return;
                 }
@@ -430,7 +452,7 @@ public final class CallManager extends UntypedActor {
             }
         } else {
             // Client is null, check if this call is for a registered DID (application)
-            if (redirectToHostedVoiceApp(self, request, accounts, applications, toUser)) {
+            if (redirectToHostedVoiceApp(self, request, toUser)) {
                 // This is a call to a registered DID (application)
                 return;
             }
@@ -460,6 +482,7 @@ public final class CallManager extends UntypedActor {
         String rcml = "<Response><Dial>"+destNumber+"</Dial></Response>";
         final VoiceInterpreterBuilder builder = new VoiceInterpreterBuilder(system);
         builder.setConfiguration(configuration);
+        builder.setServices(services);
         builder.setStorage(storage);
         builder.setCallManager(self());
         builder.setConferenceManager(conferences);
@@ -545,8 +568,7 @@ public final class CallManager extends UntypedActor {
      * @param applications
      * @param phone
      */
-    private boolean redirectToHostedVoiceApp(final ActorRef self, final SipServletRequest request, final AccountsDao accounts,
-                                             final ApplicationsDao applications, String phone) {
+    private boolean redirectToHostedVoiceApp(final ActorRef self, final SipServletRequest request, String phone) {
         boolean isFoundHostedApp = false;
         // Format the destination to an E.164 phone number.
         final PhoneNumberUtil phoneNumberUtil = PhoneNumberUtil.getInstance();
@@ -558,29 +580,32 @@ public final class CallManager extends UntypedActor {
         IncomingPhoneNumber number = null;
         try {
             // Try to find an application defined for the phone number.
-            final IncomingPhoneNumbersDao numbers = storage.getIncomingPhoneNumbersDao();
-            number = numbers.getIncomingPhoneNumber(formatedPhone);
-            if (number == null) {
-                number = numbers.getIncomingPhoneNumber(phone);
+            // Routes are cached and invalidated on updates, so in the steady state this doesn't hit the database.
+            final RoutingCache routes = storage.getRoutingCache();
+            RoutingCache.Route route = routes.getRoute(formatedPhone);
+            if (route == null) {
+                route = routes.getRoute(phone);
             }
-            if(number == null){
+            if(route == null){
                 if (phone.startsWith("+")) {
                     //remove the (+) and check if exists
                     phone= phone.replaceFirst("\\+","");
-                    number = numbers.getIncomingPhoneNumber(phone);
+                    route = routes.getRoute(phone);
                 } else {
                     //Add "+" add check if number exists
                     phone = "+".concat(phone);
-                    number = numbers.getIncomingPhoneNumber(phone);
+                    route = routes.getRoute(phone);
                 }
             }
-            if (number == null) {
+            if (route == null) {
                 // https://github.com/Mobicents/RestComm/issues/84 using wildcard as default application
-                number = numbers.getIncomingPhoneNumber("*");
+                route = routes.getRoute("*");
             }
-            if (number != null) {
+            if (route != null) {
+                number = route.getNumber();
                 final VoiceInterpreterBuilder builder = new VoiceInterpreterBuilder(system);
                 builder.setConfiguration(configuration);
+                builder.setServices(services);
                 builder.setStorage(storage);
                 builder.setCallManager(self);
                 builder.setConferenceManager(conferences);
@@ -588,11 +613,11 @@ public final class CallManager extends UntypedActor {
                 builder.setSmsService(sms);
                 builder.setAccount(number.getAccountSid());
                 builder.setVersion(number.getApiVersion());
-                final Account account = accounts.getAccount(number.getAccountSid());
+                final Account account = route.getAccount();
                 builder.setEmailAddress(account.getEmailAddress());
                 final Sid sid = number.getVoiceApplicationSid();
                 if (sid != null) {
-                    final Application application = applications.getApplication(sid);
+                    final Application application = route.getApplication();
                     builder.setUrl(UriUtils.resolve(application.getRcmlUrl()));
                 } else {
                     builder.setUrl(UriUtils.resolve(number.getVoiceUrl()));
@@ -612,6 +637,12 @@ public final class CallManager extends UntypedActor {
                 builder.setStatusCallback(number.getStatusCallback());
                 builder.setStatusCallbackMethod(number.getStatusCallbackMethod());
                 builder.setMonitoring(monitoring);
+                // Static RCML of the applications and numbers listed in the rcml-cache configuration can be cached
+                final RcmlCacheConfigurationSet rcmlCache = RestcommConfiguration.getInstance().getRcmlCache();
+                if (rcmlCache != null) {
+                    builder.setCacheRcml(rcmlCache.isCacheable(sid != null ? sid.toString() : null,
+                            number.getSid().toString()));
+                }
                 final ActorRef interpreter = builder.build();
                 final ActorRef call = call();
                 final SipApplicationSession application = request.getApplicationSession();
@@ -659,6 +690,7 @@ public final class CallManager extends UntypedActor {
         if (isClientManaged) {
             final VoiceInterpreterBuilder builder = new VoiceInterpreterBuilder(system);
             builder.setConfiguration(configuration);
+            builder.setServices(services);
             builder.setStorage(storage);
             builder.setCallManager(self);
             builder.setConferenceManager(conferences);
@@ -836,6 +868,7 @@ public final class CallManager extends UntypedActor {
         final ActorRef self = self();
         final VoiceInterpreterBuilder builder = new VoiceInterpreterBuilder(system);
         builder.setConfiguration(configuration);
+        builder.setServices(services);
         builder.setStorage(storage);
         builder.setCallManager(self);
         builder.setConferenceManager(conferences);
@@ -906,6 +939,7 @@ public final class CallManager extends UntypedActor {
         // Build a new VoiceInterpreter
         final VoiceInterpreterBuilder builder = new VoiceInterpreterBuilder(system);
         builder.setConfiguration(configuration);
+        builder.setServices(services);
         builder.setStorage(storage);
         builder.setCallManager(self);
         builder.setConferenceManager(conferences);
@@ -954,8 +988,38 @@ public final class CallManager extends UntypedActor {
         }
     }
 
+    private boolean executePreInboundAction(final SipServletRequest request) throws IOException {
+        for (final RestcommExtensionGeneric extension : ExtensionController.getInstance().getExtensions(ExtensionType.CallManager)) {
+            final ExtensionResponse response = extension.preInboundAction(request);
+            if (response != null && !response.isAllowed()) {
+                // Extensions may tell which status code to reject the call with.
+                final Object status = response.getObject();
+                request.createResponse(status instanceof Integer ? (Integer) status : SC_SERVICE_UNAVAILABLE).send();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean executePreOutboundAction(final CreateCall request, final ActorRef sender) {
+        for (final RestcommExtensionGeneric extension : ExtensionController.getInstance().getExtensions(ExtensionType.CallManager)) {
+            final ExtensionResponse response = extension.preOutboundAction(request);
+            if (response != null && !response.isAllowed()) {
+                final String errMsg = "Outbound call from " + request.from() + " to " + request.to() + " was rejected by "
+                        + extension.getClass().getSimpleName();
+                sendNotification(errMsg, 11009, "info", false);
+                sender.tell(new CallManagerResponse<ActorRef>(new IllegalStateException(errMsg), request), self());
+                return false;
+            }
+        }
+        return true;
+    }
+
     private void outbound(final Object message, final ActorRef sender) throws ServletParseException {
         final CreateCall request = (CreateCall) message;
+        if (!executePreOutboundAction(request, sender)) {
+            return;
+        }
         switch (request.type()) {
             case CLIENT: {
                 outboundToClient(request, sender);
@@ -1178,7 +1242,7 @@ public final class CallManager extends UntypedActor {
         final String proxyUsername = (request.username() != null) ? request.username() : activeProxyUsername;
         final String proxyPassword = (request.password() != null) ? request.password() : activeProxyPassword;
 
-        final ActorRef call = call();
+        final ActorRef call = call(request.parentCallSid());
         final ActorRef self = self();
         final boolean userAtDisplayedName = runtime.subset("outbound-proxy").getBoolean("user-at-displayed-name");
         InitializeOutbound init;
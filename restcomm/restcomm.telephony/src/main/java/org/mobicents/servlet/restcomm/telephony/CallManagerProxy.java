@@ -39,6 +39,7 @@ import javax.sip.message.Response;
 import org.apache.commons.configuration.Configuration;
 import org.apache.log4j.Logger;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.dispatch.RestcommDispatchers;
 import org.mobicents.servlet.restcomm.mscontrol.MediaServerControllerFactory;
 import org.mobicents.servlet.restcomm.ussd.telephony.UssdCallManager;
 
@@ -119,26 +120,37 @@ public final class CallManagerProxy extends SipServlet implements SipServletList
     private ActorRef manager(final Configuration configuration, final ServletContext context,
             final MediaServerControllerFactory msControllerfactory, final ActorRef conferences, final ActorRef bridges,
             final ActorRef sms, final SipFactory factory, final DaoManager storage) {
-        return system.actorOf(new Props(new UntypedActorFactory() {
+        return system.actorOf(RestcommDispatchers.props(system, new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
 
             @Override
             public UntypedActor create() throws Exception {
                 return new CallManager(configuration, context, system, msControllerfactory, conferences, bridges, sms, factory, storage);
             }
-        }));
+        }), RestcommDispatchers.DATABASE));
+    }
+
+    private ActorRef bulkCallDialer(final Configuration configuration, final ActorRef manager) {
+        return system.actorOf(RestcommDispatchers.props(system, new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public UntypedActor create() throws Exception {
+                return new BulkCallDialer(configuration, manager);
+            }
+        }), RestcommDispatchers.DATABASE));
     }
 
     private ActorRef ussdManager(final Configuration configuration, final ServletContext context, final ActorRef conferences,
             final ActorRef bridges, final ActorRef sms, final SipFactory factory, final DaoManager storage) {
-        return system.actorOf(new Props(new UntypedActorFactory() {
+        return system.actorOf(RestcommDispatchers.props(system, new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
 
             @Override
             public UntypedActor create() throws Exception {
                 return new UssdCallManager(configuration, context, system, conferences, sms, factory, storage);
             }
-        }));
+        }), RestcommDispatchers.DATABASE));
     }
 
     private ActorRef conferences(final MediaServerControllerFactory factory) {
@@ -202,6 +214,7 @@ public final class CallManagerProxy extends SipServlet implements SipServletList
             ussdManager = ussdManager(configuration, context, conferences, bridges, sms, factory, storage);
             context.setAttribute(CallManager.class.getName(), manager);
             context.setAttribute(UssdCallManager.class.getName(), ussdManager);
+            context.setAttribute(BulkCallDialer.class.getName(), bulkCallDialer(configuration.subset("bulk-calls"), manager));
         }
     }
 }
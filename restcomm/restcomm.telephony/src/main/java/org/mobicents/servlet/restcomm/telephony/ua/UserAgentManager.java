@@ -134,27 +134,21 @@ public final class UserAgentManager extends UntypedActor {
 
     private void clean() {
         final RegistrationsDao registrations = storage.getRegistrationsDao();
-        final List<Registration> results = registrations.getRegistrations();
-        for (final Registration result : results) {
-            final DateTime expires = result.getDateExpires();
-            if (expires.isBeforeNow() || expires.isEqualNow()) {
-                if(logger.isInfoEnabled()) {
-                    logger.info("Registration: "+result.getAddressOfRecord()+" expired and will be removed now");
-                }
-                registrations.removeRegistration(result);
-                monitoringService.tell(new UserRegistration(result.getUserName(), result.getLocation(), false), self());
-                return;
+        final DateTime now = DateTime.now();
+        for (final Registration result : registrations.getExpiredRegistrations(now)) {
+            if(logger.isInfoEnabled()) {
+                logger.info("Registration: "+result.getAddressOfRecord()+" expired and will be removed now");
             }
-            final DateTime updated = result.getDateUpdated();
-            Long pingIntervalMillis = new Long(pingInterval * 1000 * 3);
-            if ( (DateTime.now().getMillis() - updated.getMillis()) >  pingIntervalMillis) {
-                //Last time this registration updated was older than (pingInterval * 3), looks like it doesn't respond to OPTIONS
-                if(logger.isInfoEnabled()) {
-                    logger.info("Registration: "+result.getAddressOfRecord()+" didn't respond to OPTIONS and will be removed now");
-                }
-                registrations.removeRegistration(result);
-                monitoringService.tell(new UserRegistration(result.getUserName(), result.getLocation(), false), self());
+            registrations.removeRegistration(result);
+            monitoringService.tell(new UserRegistration(result.getUserName(), result.getLocation(), false), self());
+        }
+        //Registrations not updated for more than (pingInterval * 3), looks like they don't respond to OPTIONS
+        for (final Registration result : registrations.getRegistrationsUpdatedBefore(now.minusSeconds(pingInterval * 3))) {
+            if(logger.isInfoEnabled()) {
+                logger.info("Registration: "+result.getAddressOfRecord()+" didn't respond to OPTIONS and will be removed now");
             }
+            registrations.removeRegistration(result);
+            monitoringService.tell(new UserRegistration(result.getUserName(), result.getLocation(), false), self());
         }
     }
 
@@ -179,7 +173,8 @@ public final class UserAgentManager extends UntypedActor {
 
     private void keepAlive() throws Exception {
         final RegistrationsDao registrations = storage.getRegistrationsDao();
-        final List<Registration> results = registrations.getRegistrations();
+        // Registrations refreshed or that answered an OPTIONS during the last interval are known to be alive.
+        final List<Registration> results = registrations.getRegistrationsUpdatedBefore(DateTime.now().minusSeconds(pingInterval));
         for (final Registration result : results) {
             final String to = result.getLocation();
             ping(to);
@@ -378,14 +373,14 @@ public final class UserAgentManager extends UntypedActor {
         final String initialIpBeforeLB = request.getHeader("X-Sip-Balancer-InitialRemoteAddr");
         final String initialPortBeforeLB = request.getHeader("X-Sip-Balancer-InitialRemotePort");
         if(initialIpBeforeLB != null && !initialIpBeforeLB.isEmpty() && initialPortBeforeLB != null && !initialPortBeforeLB.isEmpty()) {
-            if(logger.isInfoEnabled()) {
-                logger.info("Client in front of LB. Patching URI: "+uri.toString()+" with IP: "+initialIpBeforeLB+" and PORT: "+initialPortBeforeLB+" for USER: "+user);
+            if(logger.isDebugEnabled()) {
+                logger.debug("Client in front of LB. Patching URI: "+uri.toString()+" with IP: "+initialIpBeforeLB+" and PORT: "+initialPortBeforeLB+" for USER: "+user);
             }
             patch(uri, initialIpBeforeLB, Integer.valueOf(initialPortBeforeLB));
             isLBPresent = true;
         } else {
-            if(logger.isInfoEnabled()) {
-                logger.info("Patching URI: " + uri.toString() + " with IP: " + ip + " and PORT: " + port + " for USER: " + user);
+            if(logger.isDebugEnabled()) {
+                logger.debug("Patching URI: " + uri.toString() + " with IP: " + ip + " and PORT: " + port + " for USER: " + user);
             }
             patch(uri, ip, port);
         }
@@ -429,8 +424,8 @@ public final class UserAgentManager extends UntypedActor {
             if (registrations.hasRegistration(registration)) {
                 // Update Registration if exists
                 registrations.updateRegistration(registration);
-                if(logger.isInfoEnabled()) {
-                    logger.info("The user agent manager updated " + user + " at address " + address+":"+port);
+                if(logger.isDebugEnabled()) {
+                    logger.debug("The user agent manager updated " + user + " at address " + address+":"+port);
                 }
             } else {
                 // Add registration since it doesn't exists on the DB
@@ -33,6 +33,7 @@ import javax.servlet.sip.SipServletResponse;
 import org.apache.commons.configuration.Configuration;
 import org.apache.log4j.Logger;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.dispatch.RestcommDispatchers;
 
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
@@ -94,14 +95,14 @@ public final class UserAgentManagerProxy extends SipServlet implements SipServle
 //    }
 
     private ActorRef manager(final Configuration configuration, final SipFactory factory, final DaoManager storage) {
-        return system.actorOf(new Props(new UntypedActorFactory() {
+        return system.actorOf(RestcommDispatchers.props(system, new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
 
             @Override
             public UntypedActor create() throws Exception {
                 return new UserAgentManager(configuration, factory, storage, servletContext);
             }
-        }));
+        }), RestcommDispatchers.DATABASE));
     }
 
     @Override
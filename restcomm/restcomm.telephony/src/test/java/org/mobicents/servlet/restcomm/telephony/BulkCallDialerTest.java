@@ -0,0 +1,259 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.telephony;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.joda.time.DateTime;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+import scala.concurrent.duration.Duration;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedActor;
+import akka.actor.UntypedActorFactory;
+import akka.testkit.JavaTestKit;
+import akka.util.Timeout;
+
+/**
+ * Drives the dialer with its ticks sent by hand and a probe in place of the call manager.
+ */
+public final class BulkCallDialerTest {
+    private static final Sid ACCOUNT = Sid.generate(Sid.Type.ACCOUNT);
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void before() throws Exception {
+        system = ActorSystem.create();
+    }
+
+    @AfterClass
+    public static void after() throws Exception {
+        system.shutdown();
+    }
+
+    private static ActorRef dialer(final double callsPerSecond, final int maxConcurrentCalls, final long retention,
+            final long timeout, final ActorRef callManager) {
+        final Configuration configuration = new BaseConfiguration();
+        configuration.setProperty("calls-per-second", callsPerSecond);
+        configuration.setProperty("max-concurrent-calls", maxConcurrentCalls);
+        configuration.setProperty("retention", retention);
+        return system.actorOf(new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public UntypedActor create() throws Exception {
+                return new BulkCallDialer(configuration, callManager, new Timeout(Duration.create(timeout,
+                        TimeUnit.MILLISECONDS)), false);
+            }
+        }));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BulkCallInfo create(final JavaTestKit client, final ActorRef dialer, final String... destinations) {
+        final CreateBulkCall request = new CreateBulkCall(ACCOUNT, "+15550000000", Arrays.asList(destinations), null,
+                null, 30, "2012-04-24", URI.create("http://127.0.0.1/application.xml"), "POST", null, null, null, null);
+        dialer.tell(request, client.getRef());
+        return ((BulkCallResponse<BulkCallInfo>) client.expectMsgClass(BulkCallResponse.class)).get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BulkCallInfo info(final JavaTestKit client, final ActorRef dialer, final Sid sid) {
+        dialer.tell(new GetBulkCall(sid, ACCOUNT), client.getRef());
+        return ((BulkCallResponse<BulkCallInfo>) client.expectMsgClass(BulkCallResponse.class)).get();
+    }
+
+    private static void tick(final ActorRef dialer, final int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            dialer.tell(BulkCallDialer.TICK, null);
+        }
+    }
+
+    // Answers the last CreateCall of the call manager that no call could be made.
+    private static void refuse(final JavaTestKit callManager, final ActorRef creation) {
+        creation.tell(new CallManagerResponse<ActorRef>(new IllegalArgumentException("Busy")), callManager.getRef());
+    }
+
+    @Test
+    public void testCanceledBulkCallStopsDialing() {
+        new JavaTestKit(system) {
+            {
+                final JavaTestKit client = this;
+                final JavaTestKit callManager = new JavaTestKit(system);
+                final ActorRef dialer = dialer(10, 100, 3600, 1000, callManager.getRef());
+                final Sid sid = create(this, dialer, "+15550000001", "+15550000002", "+15550000003").sid();
+                tick(dialer, 1);
+                callManager.expectMsgClass(CreateCall.class);
+                final ActorRef creation = callManager.getLastSender();
+                dialer.tell(new CancelBulkCall(sid, ACCOUNT), getRef());
+                @SuppressWarnings("unchecked")
+                final BulkCallResponse<BulkCallInfo> response = expectMsgClass(BulkCallResponse.class);
+                final BulkCallInfo canceled = response.get();
+                // The destination being dialed is left alone.
+                assertSame(BulkCallInfo.Status.IN_PROGRESS, canceled.status());
+                assertEquals(1, canceled.active());
+                assertEquals(2, canceled.canceled());
+                tick(dialer, 5);
+                callManager.expectNoMsg(duration("200 milliseconds"));
+                refuse(callManager, creation);
+                new AwaitCond(duration("5 seconds")) {
+                    @Override
+                    protected boolean cond() {
+                        return BulkCallInfo.Status.CANCELED == info(client, dialer, sid).status();
+                    }
+                };
+            }
+        };
+    }
+
+    @Test
+    public void testAnsweredCallRunsTheApplication() {
+        new JavaTestKit(system) {
+            {
+                final JavaTestKit client = this;
+                final JavaTestKit callManager = new JavaTestKit(system);
+                final JavaTestKit call = new JavaTestKit(system);
+                final ActorRef dialer = dialer(10, 100, 3600, 1000, callManager.getRef());
+                final Sid sid = create(this, dialer, "+15550000001").sid();
+                tick(dialer, 1);
+                callManager.expectMsgClass(CreateCall.class);
+                final ActorRef creation = callManager.getLastSender();
+                creation.tell(new CallManagerResponse<ActorRef>(call.getRef()), callManager.getRef());
+                call.expectMsgClass(GetCallInfo.class);
+                final Sid callSid = Sid.generate(Sid.Type.CALL);
+                final CallInfo callInfo = new CallInfo(callSid, CallStateChanged.State.QUEUED, CreateCall.Type.PSTN,
+                        "outbound-api", DateTime.now(), null, null, "+15550000000", "+15550000001", null, null, false,
+                        false, DateTime.now());
+                call.getLastSender().tell(new CallResponse<CallInfo>(callInfo), call.getRef());
+                final ExecuteCallScript execute = callManager.expectMsgClass(ExecuteCallScript.class);
+                assertSame(call.getRef(), execute.call());
+                BulkCallInfo info = info(this, dialer, sid);
+                assertEquals(callSid, info.results().get(0).callSid());
+                assertSame(BulkCallResult.Status.IN_PROGRESS, info.results().get(0).status());
+                // The destination is done once its call is gone.
+                system.stop(call.getRef());
+                new AwaitCond(duration("5 seconds")) {
+                    @Override
+                    protected boolean cond() {
+                        return BulkCallInfo.Status.COMPLETED == info(client, dialer, sid).status();
+                    }
+                };
+                info = info(this, dialer, sid);
+                assertEquals(1, info.completed());
+                assertSame(BulkCallResult.Status.COMPLETED, info.results().get(0).status());
+            }
+        };
+    }
+
+    @Test
+    public void testSlotIsKeptUntilTheCallManagerAnswers() {
+        new JavaTestKit(system) {
+            {
+                final JavaTestKit callManager = new JavaTestKit(system);
+                final JavaTestKit call = new JavaTestKit(system);
+                final ActorRef dialer = dialer(10, 1, 3600, 500, callManager.getRef());
+                final Sid sid = create(this, dialer, "+15550000001", "+15550000002").sid();
+                tick(dialer, 1);
+                callManager.expectMsgClass(CreateCall.class);
+                final ActorRef creation = callManager.getLastSender();
+                // Past the response timeout but within the second one, the call may still be created.
+                callManager.expectNoMsg(duration("600 milliseconds"));
+                tick(dialer, 5);
+                callManager.expectNoMsg(duration("100 milliseconds"));
+                final BulkCallInfo info = info(this, dialer, sid);
+                assertEquals(1, info.active());
+                assertSame(BulkCallResult.Status.DIALING, info.results().get(0).status());
+                // The late call is followed, it is hung up as its info is not given in time.
+                creation.tell(new CallManagerResponse<ActorRef>(call.getRef()), callManager.getRef());
+                call.expectMsgClass(GetCallInfo.class);
+                call.expectMsgClass(Hangup.class);
+                tick(dialer, 1);
+                assertEquals("+15550000002", callManager.expectMsgClass(CreateCall.class).to());
+            }
+        };
+    }
+
+    @Test
+    public void testDestinationFailsWhenTheCallManagerNeverAnswers() {
+        new JavaTestKit(system) {
+            {
+                final JavaTestKit client = this;
+                final JavaTestKit callManager = new JavaTestKit(system);
+                final JavaTestKit call = new JavaTestKit(system);
+                final ActorRef dialer = dialer(10, 1, 3600, 500, callManager.getRef());
+                final Sid sid = create(this, dialer, "+15550000001", "+15550000002").sid();
+                tick(dialer, 1);
+                callManager.expectMsgClass(CreateCall.class);
+                final ActorRef creation = callManager.getLastSender();
+                // The call manager failed on the request and never answers, the slot is given back after two timeouts.
+                new AwaitCond(duration("5 seconds")) {
+                    @Override
+                    protected boolean cond() {
+                        return BulkCallResult.Status.FAILED == info(client, dialer, sid).results().get(0).status();
+                    }
+                };
+                tick(dialer, 1);
+                assertEquals("+15550000002", callManager.expectMsgClass(CreateCall.class).to());
+                // A call created that late is hung up instead of running the application.
+                creation.tell(new CallManagerResponse<ActorRef>(call.getRef()), callManager.getRef());
+                call.expectMsgClass(Hangup.class);
+                call.expectNoMsg(duration("200 milliseconds"));
+                assertEquals(1, info(this, dialer, sid).failed());
+            }
+        };
+    }
+
+    @Test
+    public void testFinishedBulkCallExpires() {
+        new JavaTestKit(system) {
+            {
+                final JavaTestKit client = this;
+                final JavaTestKit callManager = new JavaTestKit(system);
+                final ActorRef dialer = dialer(10, 100, 0, 1000, callManager.getRef());
+                final Sid sid = create(this, dialer, "+15550000001").sid();
+                tick(dialer, 1);
+                callManager.expectMsgClass(CreateCall.class);
+                refuse(callManager, callManager.getLastSender());
+                // The bulk call is forgotten on the first tick past its retention.
+                new AwaitCond(duration("5 seconds")) {
+                    @Override
+                    protected boolean cond() {
+                        tick(dialer, 1);
+                        return info(client, dialer, sid) == null;
+                    }
+                };
+                assertNull(info(this, dialer, sid));
+            }
+        };
+    }
+}
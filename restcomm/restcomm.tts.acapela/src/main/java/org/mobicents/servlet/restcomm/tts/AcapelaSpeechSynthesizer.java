@@ -34,9 +34,11 @@ import org.apache.http.StatusLine;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.client.utils.HttpClientUtils;
 import org.apache.http.message.BasicNameValuePair;
 import org.mobicents.servlet.restcomm.cache.HashGenerator;
+import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
+import org.mobicents.servlet.restcomm.http.CustomHttpClientBuilder;
 import org.mobicents.servlet.restcomm.tts.api.GetSpeechSynthesizerInfo;
 import org.mobicents.servlet.restcomm.tts.api.SpeechSynthesizerException;
 import org.mobicents.servlet.restcomm.tts.api.SpeechSynthesizerInfo;
@@ -227,35 +229,40 @@ public final class AcapelaSpeechSynthesizer extends UntypedActor {
         final HttpPost post = new HttpPost(service);
         final UrlEncodedFormEntity entity = new UrlEncodedFormEntity(query, "UTF-8");
         post.setEntity(entity);
-        final HttpClient client = new DefaultHttpClient();
+        // Shared pooled client, never closed here. Releasing the response returns its connection to the pool
+        final HttpClient client = CustomHttpClientBuilder.buildDefaultClient(RestcommConfiguration.getInstance().getMain());
         final HttpResponse response = client.execute(post);
-        final StatusLine line = response.getStatusLine();
-        final int status = line.getStatusCode();
-        if (status == HttpStatus.SC_OK) {
-            final Map<String, String> results = HttpUtils.toMap(response.getEntity());
-            if ("OK".equals(results.get("res"))) {
-                if(logger.isInfoEnabled()){
-                    logger.info("AcapelaSpeechSynthesizer success!");
+        try {
+            final StatusLine line = response.getStatusLine();
+            final int status = line.getStatusCode();
+            if (status == HttpStatus.SC_OK) {
+                final Map<String, String> results = HttpUtils.toMap(response.getEntity());
+                if ("OK".equals(results.get("res"))) {
+                    if(logger.isInfoEnabled()){
+                        logger.info("AcapelaSpeechSynthesizer success!");
+                    }
+                    String ret = results.get("snd_url") + "#hash=" + HashGenerator.hashMessage(gender, language, text);
+                    return URI.create(ret);
+                } else {
+                   if(logger.isInfoEnabled()){
+                        logger.info("AcapelaSpeechSynthesizer error code: " + results.get("err_code") + " error message: "
+                            + results.get("err_msg"));
+                    }
+                    final StringBuilder buffer = new StringBuilder();
+                    buffer.append(results.get("err_code")).append(" ").append(results.get("err_msg"));
+                    throw new SpeechSynthesizerException(buffer.toString());
                 }
-                String ret = results.get("snd_url") + "#hash=" + HashGenerator.hashMessage(gender, language, text);
-                return URI.create(ret);
             } else {
-               if(logger.isInfoEnabled()){
-                    logger.info("AcapelaSpeechSynthesizer error code: " + results.get("err_code") + " error message: "
-                        + results.get("err_msg"));
+                if(logger.isInfoEnabled()){
+                    logger.info("AcapelaSpeechSynthesizer error, status code: " + line.getStatusCode() + (" reason phrase: ")
+                        + line.getReasonPhrase());
                 }
                 final StringBuilder buffer = new StringBuilder();
-                buffer.append(results.get("err_code")).append(" ").append(results.get("err_msg"));
+                buffer.append(line.getStatusCode()).append(" ").append(line.getReasonPhrase());
                 throw new SpeechSynthesizerException(buffer.toString());
             }
-        } else {
-            if(logger.isInfoEnabled()){
-                logger.info("AcapelaSpeechSynthesizer error, status code: " + line.getStatusCode() + (" reason phrase: ")
-                    + line.getReasonPhrase());
-            }
-            final StringBuilder buffer = new StringBuilder();
-            buffer.append(line.getStatusCode()).append(" ").append(line.getReasonPhrase());
-            throw new SpeechSynthesizerException(buffer.toString());
+        } finally {
+            HttpClientUtils.closeQuietly(response);
         }
     }
 }
@@ -39,10 +39,12 @@ import org.apache.http.StatusLine;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.client.utils.HttpClientUtils;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.util.EntityUtils;
 import org.mobicents.servlet.restcomm.cache.HashGenerator;
+import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
+import org.mobicents.servlet.restcomm.http.CustomHttpClientBuilder;
 import org.mobicents.servlet.restcomm.tts.api.GetSpeechSynthesizerInfo;
 import org.mobicents.servlet.restcomm.tts.api.SpeechSynthesizerException;
 import org.mobicents.servlet.restcomm.tts.api.SpeechSynthesizerInfo;
@@ -172,49 +174,54 @@ public final class VoiceRSSSpeechSynthesizer extends UntypedActor {
         final HttpPost post = new HttpPost(service);
         final UrlEncodedFormEntity entity = new UrlEncodedFormEntity(query, "UTF-8");
         post.setEntity(entity);
-        final HttpClient client = new DefaultHttpClient();
+        // Shared pooled client, never closed here. Releasing the response returns its connection to the pool
+        final HttpClient client = CustomHttpClientBuilder.buildDefaultClient(RestcommConfiguration.getInstance().getMain());
         final HttpResponse response = client.execute(post);
-        final StatusLine line = response.getStatusLine();
-        final int status = line.getStatusCode();
+        try {
+            final StatusLine line = response.getStatusLine();
+            final int status = line.getStatusCode();
 
-        if (status == HttpStatus.SC_OK) {
+            if (status == HttpStatus.SC_OK) {
 
-            Header[] contentType = response.getHeaders("Content-Type");
+                Header[] contentType = response.getHeaders("Content-Type");
 
-            if (contentType[0].getValue().startsWith("text")) {
-                final StringBuilder buffer = new StringBuilder();
-                String error = EntityUtils.toString(response.getEntity());
-                logger.error("VoiceRSSSpeechSynthesizer error: " + error);
-                buffer.append(error);
-                throw new SpeechSynthesizerException(buffer.toString());
-            }
+                if (contentType[0].getValue().startsWith("text")) {
+                    final StringBuilder buffer = new StringBuilder();
+                    String error = EntityUtils.toString(response.getEntity());
+                    logger.error("VoiceRSSSpeechSynthesizer error: " + error);
+                    buffer.append(error);
+                    throw new SpeechSynthesizerException(buffer.toString());
+                }
 
-            if(logger.isInfoEnabled()){
-                logger.info("VoiceRSSSpeechSynthesizer success!");
-            }
-            InputStream is = response.getEntity().getContent();
-            File file = new File(System.getProperty("java.io.tmpdir") + File.separator + hash + ".wav");
-            final OutputStream ostream = new FileOutputStream(file);
-
-            final byte[] buffer = new byte[1024 * 8];
-            while (true) {
-                final int len = is.read(buffer);
-                if (len <= 0) {
-                    break;
+                if(logger.isInfoEnabled()){
+                    logger.info("VoiceRSSSpeechSynthesizer success!");
                 }
-                ostream.write(buffer, 0, len);
-            }
-            ostream.close();
-            is.close();
-            return file.toURI();
-        } else {
-            if(logger.isInfoEnabled()){
-                logger.info("VoiceRSSSpeechSynthesizer error, status code: " + line.getStatusCode() + (" reason phrase: ")
-                    + line.getReasonPhrase());
+                InputStream is = response.getEntity().getContent();
+                File file = new File(System.getProperty("java.io.tmpdir") + File.separator + hash + ".wav");
+                final OutputStream ostream = new FileOutputStream(file);
+
+                final byte[] buffer = new byte[1024 * 8];
+                while (true) {
+                    final int len = is.read(buffer);
+                    if (len <= 0) {
+                        break;
+                    }
+                    ostream.write(buffer, 0, len);
+                }
+                ostream.close();
+                is.close();
+                return file.toURI();
+            } else {
+                if(logger.isInfoEnabled()){
+                    logger.info("VoiceRSSSpeechSynthesizer error, status code: " + line.getStatusCode() + (" reason phrase: ")
+                        + line.getReasonPhrase());
+                }
+                final StringBuilder buffer = new StringBuilder();
+                buffer.append(line.getStatusCode()).append(" ").append(line.getReasonPhrase());
+                throw new SpeechSynthesizerException(buffer.toString());
             }
-            final StringBuilder buffer = new StringBuilder();
-            buffer.append(line.getStatusCode()).append(" ").append(line.getReasonPhrase());
-            throw new SpeechSynthesizerException(buffer.toString());
+        } finally {
+            HttpClientUtils.closeQuietly(response);
         }
     }
 }
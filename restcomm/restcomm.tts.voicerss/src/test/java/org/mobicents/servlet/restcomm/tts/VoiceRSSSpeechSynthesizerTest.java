@@ -39,6 +39,7 @@ import org.mobicents.servlet.restcomm.cache.DiskCache;
 import org.mobicents.servlet.restcomm.cache.DiskCacheRequest;
 import org.mobicents.servlet.restcomm.cache.DiskCacheResponse;
 import org.mobicents.servlet.restcomm.cache.HashGenerator;
+import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
 import org.mobicents.servlet.restcomm.tts.api.GetSpeechSynthesizerInfo;
 import org.mobicents.servlet.restcomm.tts.api.SpeechSynthesizerInfo;
 import org.mobicents.servlet.restcomm.tts.api.SpeechSynthesizerRequest;
@@ -71,6 +72,10 @@ public final class VoiceRSSSpeechSynthesizerTest {
         system = ActorSystem.create();
         final URL input = getClass().getResource("/voicerss.xml");
         final XMLConfiguration configuration = new XMLConfiguration(input);
+        // The synthesizer fetches through the shared http client which is configured by the main configuration set
+        final XMLConfiguration main = new XMLConfiguration();
+        main.setProperty("http-client.response-timeout", "5000");
+        RestcommConfiguration.createOnce(main);
         tts = tts(configuration);
         cache = cache("/tmp/cache", "http://127.0.0.1:8080/restcomm/cache");
         // Fix for MacOS systems: only append "/" to temporary path if it doesnt end with it - hrosa